@@ -0,0 +1,152 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xyz.hotchpotch.hogandiff.util.IntPair;
+
+/**
+ * {@link Matcher} の各実装
+ * （{@link GreedyMatcher}, {@link MinimumEditDistanceMatcher}, {@link MinimumCostFlowMatcher} など）
+ * のベンチマークです。<br>
+ * 文字列のリストと、その一部の要素を変更・挿入・削除したリストとを対応付ける処理時間を、
+ * リストの長さと変更の密度ごとに計測します。<br>
+ *
+ * @author nmby
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatcherBenchmark {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * マッチャーの種類を表す列挙型です。<br>
+     *
+     * @author nmby
+     */
+    public static enum Kind {
+        
+        // [static members] ----------------------------------------------------
+        
+        /** {@link Matcher#greedyMatcherOf(java.util.function.ToIntFunction, java.util.function.ToIntBiFunction)} */
+        GREEDY,
+        
+        /** {@link Matcher#minimumEditDistanceMatcherOf(java.util.function.ToIntFunction, java.util.function.ToIntBiFunction)} */
+        MINIMUM_EDIT_DISTANCE,
+        
+        /** {@link Matcher#bandedMinimumEditDistanceMatcherOf(java.util.function.ToIntFunction, java.util.function.ToIntBiFunction)} */
+        BANDED_MINIMUM_EDIT_DISTANCE,
+        
+        /** {@link Matcher#minimumCostFlowMatcherOf(java.util.function.ToIntFunction, java.util.function.ToIntBiFunction)} */
+        MINIMUM_COST_FLOW;
+        
+        // [instance members] --------------------------------------------------
+        
+        private Matcher<String> matcher() {
+            return switch (this) {
+            case GREEDY -> Matcher.greedyMatcherOf(String::length, MatcherBenchmark::diff);
+            case MINIMUM_EDIT_DISTANCE -> Matcher.minimumEditDistanceMatcherOf(String::length, MatcherBenchmark::diff);
+            case BANDED_MINIMUM_EDIT_DISTANCE -> Matcher.bandedMinimumEditDistanceMatcherOf(String::length, MatcherBenchmark::diff);
+            case MINIMUM_COST_FLOW -> Matcher.minimumCostFlowMatcherOf(String::length, MatcherBenchmark::diff);
+            };
+        }
+    }
+    
+    /** 乱数の種 */
+    private static final long SEED = 4_649L;
+    
+    /**
+     * 差分コスト評価関数です。<br>
+     * マッチャー自体の処理時間を計測するため、文字位置ごとの比較による軽量な評価を行います。<br>
+     */
+    private static int diff(String str1, String str2) {
+        int common = 0;
+        for (int i = 0; i < Math.min(str1.length(), str2.length()); i++) {
+            if (str1.charAt(i) == str2.charAt(i)) {
+                common++;
+            }
+        }
+        return str1.length() + str2.length() - 2 * common;
+    }
+    
+    // [instance members] ******************************************************
+    
+    /** 比較対象Aのリストの長さ */
+    @Param({ "100", "1000" })
+    public int size;
+    
+    /** 各要素に変更を加える確率 */
+    @Param({ "0.01", "0.1", "0.5" })
+    public double diffDensity;
+    
+    /** マッチャーの種類 */
+    @Param({ "GREEDY", "MINIMUM_EDIT_DISTANCE", "BANDED_MINIMUM_EDIT_DISTANCE", "MINIMUM_COST_FLOW" })
+    public Kind kind;
+    
+    private List<String> listA;
+    private List<String> listB;
+    private Matcher<String> matcher;
+    
+    /**
+     * 比較対象のリストを合成します。<br>
+     * 比較対象Aの各要素は {@code diffDensity} の確率で、内容の変更、削除、
+     * 直前への要素の挿入のいずれかの変更を受けて比較対象Bに現れます。<br>
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SEED);
+        listA = new ArrayList<>();
+        listB = new ArrayList<>();
+        
+        for (int i = 0; i < size; i++) {
+            String item = "要素%05d".formatted(i);
+            listA.add(item);
+            
+            if (diffDensity <= random.nextDouble()) {
+                listB.add(item);
+                continue;
+            }
+            switch (random.nextInt(3)) {
+            case 0 -> listB.add(item + "（変更）");
+            case 1 -> {
+                // 要素を削除する
+            }
+            default -> {
+                listB.add("追加%05d".formatted(i));
+                listB.add(item);
+            }
+            }
+        }
+        matcher = kind.matcher();
+    }
+    
+    /**
+     * 2つのリストの要素同士の対応付けを計測します。<br>
+     *
+     * @return 対応付け
+     */
+    @Benchmark
+    public List<IntPair> makeIdxPairs() {
+        return matcher.makeIdxPairs(listA, listB);
+    }
+}
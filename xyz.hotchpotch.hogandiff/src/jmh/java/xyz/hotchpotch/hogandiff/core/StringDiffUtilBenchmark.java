@@ -0,0 +1,95 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link StringDiffUtil#levenshteinDistance(String, String)} のベンチマークです。<br>
+ * 文字列と、その一部の文字を変更・挿入・削除した文字列との編集距離を求める処理時間を、
+ * 文字列の長さと変更の密度ごとに計測します。<br>
+ *
+ * @author nmby
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StringDiffUtilBenchmark {
+    
+    // [static members] ********************************************************
+    
+    /** 乱数の種 */
+    private static final long SEED = 4_649L;
+    
+    /** 合成する文字列に用いる文字 */
+    private static final String CHARS = "abcdefghijklmnopqrstuvwxyz0123456789あいうえおかきくけこ";
+    
+    // [instance members] ******************************************************
+    
+    /** 比較対象Aの文字列の長さ */
+    @Param({ "16", "256", "2048" })
+    public int length;
+    
+    /** 各文字に変更を加える確率 */
+    @Param({ "0.01", "0.1", "0.5" })
+    public double diffDensity;
+    
+    private String str1;
+    private String str2;
+    
+    /**
+     * 比較対象の文字列を合成します。<br>
+     * 比較対象Aの各文字は {@code diffDensity} の確率で、別の文字への置換、削除、
+     * 直前への文字の挿入のいずれかの変更を受けて比較対象Bに現れます。<br>
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SEED);
+        StringBuilder sb1 = new StringBuilder();
+        StringBuilder sb2 = new StringBuilder();
+        
+        for (int i = 0; i < length; i++) {
+            char ch = CHARS.charAt(random.nextInt(CHARS.length()));
+            sb1.append(ch);
+            
+            if (diffDensity <= random.nextDouble()) {
+                sb2.append(ch);
+                continue;
+            }
+            switch (random.nextInt(3)) {
+            case 0 -> sb2.append(CHARS.charAt(random.nextInt(CHARS.length())));
+            case 1 -> {
+                // 文字を削除する
+            }
+            default -> sb2.append(CHARS.charAt(random.nextInt(CHARS.length()))).append(ch);
+            }
+        }
+        str1 = sb1.toString();
+        str2 = sb2.toString();
+    }
+    
+    /**
+     * 2つの文字列の編集距離の計算を計測します。<br>
+     *
+     * @return 編集距離
+     */
+    @Benchmark
+    public int levenshteinDistance() {
+        return StringDiffUtil.levenshteinDistance(str1, str2);
+    }
+}
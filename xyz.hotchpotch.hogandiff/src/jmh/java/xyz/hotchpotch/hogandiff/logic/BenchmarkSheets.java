@@ -0,0 +1,112 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import xyz.hotchpotch.hogandiff.util.IntPair;
+import xyz.hotchpotch.hogandiff.util.Pair;
+
+/**
+ * ベンチマーク用のワークシートのセルデータを合成するユーティリティクラスです。<br>
+ * 同じパラメータに対しては常に同じセルデータを合成します。<br>
+ *
+ * @author nmby
+ */
+public class BenchmarkSheets {
+    
+    // [static members] ********************************************************
+    
+    /** 乱数の種 */
+    private static final long SEED = 4_649L;
+    
+    /**
+     * 比較対象Aのワークシートと、その一部の行を変更した比較対象Bのワークシートのセルセットを合成します。<br>
+     * 比較対象Aの各行は {@code diffDensity} の確率で、セル1つの内容の変更、行の削除、
+     * 直前への行の挿入のいずれかの変更を受けて比較対象Bに現れます。<br>
+     *
+     * @param rows        比較対象Aの行数
+     * @param columns     列数
+     * @param diffDensity 各行に変更を加える確率（{@code 0.0} ～ {@code 1.0}）
+     * @return 合成したセルセットのペア
+     */
+    public static Pair<Set<CellData>> cellsSetPairOf(int rows, int columns, double diffDensity) {
+        Random random = new Random(SEED);
+        Set<CellData> cellsA = new HashSet<>();
+        Set<CellData> cellsB = new HashSet<>();
+        int rowB = 0;
+        int newId = rows;
+        
+        for (int r = 0; r < rows; r++) {
+            addRow(cellsA, r, r, columns, -1);
+            
+            if (diffDensity <= random.nextDouble()) {
+                addRow(cellsB, rowB++, r, columns, -1);
+                continue;
+            }
+            switch (random.nextInt(3)) {
+            case 0 -> addRow(cellsB, rowB++, r, columns, random.nextInt(columns));
+            case 1 -> {
+                // 行を削除する
+            }
+            default -> {
+                addRow(cellsB, rowB++, newId++, columns, -1);
+                addRow(cellsB, rowB++, r, columns, -1);
+            }
+            }
+        }
+        return new Pair<>(cellsA, cellsB);
+    }
+    
+    /**
+     * 合成したセルセットのうち比較対象Bの1つのセルの内容を変更したセルセットのペアを返します。<br>
+     *
+     * @param cellsSetPair 合成したセルセットのペア
+     * @param row          変更するセルの行インデックス
+     * @param column       変更するセルの列インデックス
+     * @return 変更後のセルセットのペア
+     */
+    public static Pair<Set<CellData>> withCellChanged(Pair<Set<CellData>> cellsSetPair, int row, int column) {
+        Set<CellData> cellsB = new HashSet<>();
+        for (CellData cell : cellsSetPair.b()) {
+            cellsB.add(cell.row() == row && cell.column() == column
+                    ? new CellData(row, column, cell.content() + "（修正）", cell.comment())
+                    : cell);
+        }
+        return new Pair<>(cellsSetPair.a(), cellsB);
+    }
+    
+    /**
+     * 先頭から順に同じインデックス同士を対応付けた組のリストを返します。<br>
+     *
+     * @param size 組の数
+     * @return 組のリスト
+     */
+    public static List<IntPair> sequentialPairsOf(int size) {
+        return IntStream.range(0, size).mapToObj(i -> IntPair.of(i, i)).toList();
+    }
+    
+    /**
+     * 1行分のセルを追加します。<br>
+     * 偶数列には数値、奇数列には文字列を、行の識別子から決まる内容で設定します。<br>
+     */
+    private static void addRow(Set<CellData> cells, int row, int id, int columns, int changedColumn) {
+        for (int c = 0; c < columns; c++) {
+            String content = c % 2 == 0
+                    ? Integer.toString(id * columns + c)
+                    : "文字列" + id + "-" + c;
+            cells.add(new CellData(
+                    row,
+                    c,
+                    c == changedColumn ? content + "（変更）" : content,
+                    null));
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    private BenchmarkSheets() {
+    }
+}
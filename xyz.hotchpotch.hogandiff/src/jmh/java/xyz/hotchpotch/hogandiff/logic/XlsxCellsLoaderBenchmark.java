@@ -0,0 +1,243 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xyz.hotchpotch.hogandiff.logic.plain.CellsUtil;
+import xyz.hotchpotch.hogandiff.logic.sax.CellsLoaderWithSax;
+import xyz.hotchpotch.hogandiff.logic.stax.CellsLoaderWithStax;
+
+/**
+ * .xlsx/.xlsm 形式のワークシートを読み込む {@link CellsLoader} の実装
+ * （{@link CellsLoaderWithSax}, {@link CellsLoaderWithStax}）のベンチマークです。<br>
+ * 合成した大きなワークシートを読み込み、処理時間を計測します。
+ * {@code -prof gc} を指定して実行するとメモリ割り当て量を、
+ * また各イテレーションの終了時に出力されるログでヒープ使用量のピークを確認できます。<br>
+ *
+ * @author nmby
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XlsxCellsLoaderBenchmark {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * ワークシートの読み取り方式を表す列挙型です。<br>
+     *
+     * @author nmby
+     */
+    public static enum Reader {
+        
+        // [static members] ----------------------------------------------------
+        
+        /** SAX */
+        SAX,
+        
+        /** StAX */
+        STAX;
+        
+        // [instance members] --------------------------------------------------
+        
+        private CellsLoader loader(boolean extractCachedValue) {
+            return switch (this) {
+            case SAX -> new CellsLoaderWithSax(extractCachedValue);
+            case STAX -> new CellsLoaderWithStax(extractCachedValue);
+            };
+        }
+    }
+    
+    private static final String SHEET_NAME = "Sheet1";
+    
+    /** 合成するワークシートの列数 */
+    private static final int COLUMNS = 20;
+    
+    /** 合成する共有文字列の数 */
+    private static final int SST_SIZE = 1_000;
+    
+    private static void writeEntry(ZipOutputStream zos, String name, String content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(content.getBytes(StandardCharsets.UTF_8));
+        zos.closeEntry();
+    }
+    
+    /**
+     * 数値、共有文字列、数式のセルが混在するワークシートを1枚だけ持つ
+     * .xlsx 形式のExcelブックを合成します。<br>
+     *
+     * @param bookPath 出力先のパス
+     * @param cellCount セルの数
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private static void createBook(Path bookPath, int cellCount) throws IOException {
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(bookPath))) {
+            writeEntry(zos, "[Content_Types].xml", """
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">\
+                    <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>\
+                    <Default Extension="xml" ContentType="application/xml"/>\
+                    <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>\
+                    <Override PartName="/xl/worksheets/sheet1.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>\
+                    <Override PartName="/xl/sharedStrings.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml"/>\
+                    </Types>""");
+            writeEntry(zos, "_rels/.rels", """
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+                    <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>\
+                    </Relationships>""");
+            writeEntry(zos, "xl/workbook.xml", """
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" \
+                    xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">\
+                    <sheets><sheet name="%s" sheetId="1" r:id="rId1"/></sheets>\
+                    </workbook>""".formatted(SHEET_NAME));
+            writeEntry(zos, "xl/_rels/workbook.xml.rels", """
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+                    <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" Target="worksheets/sheet1.xml"/>\
+                    <Relationship Id="rId2" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings" Target="sharedStrings.xml"/>\
+                    </Relationships>""");
+            
+            StringBuilder sst = new StringBuilder();
+            sst.append("""
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <sst xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">""");
+            for (int i = 0; i < SST_SIZE; i++) {
+                sst.append("<si><t>文字列").append(i).append("</t></si>");
+            }
+            sst.append("</sst>");
+            writeEntry(zos, "xl/sharedStrings.xml", sst.toString());
+            
+            zos.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(zos, StandardCharsets.UTF_8));
+            writer.write("""
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <worksheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main"><sheetData>""");
+            int rows = (cellCount + COLUMNS - 1) / COLUMNS;
+            for (int r = 0; r < rows; r++) {
+                writer.write("<row r=\"%d\">".formatted(r + 1));
+                for (int c = 0; c < COLUMNS && r * COLUMNS + c < cellCount; c++) {
+                    String address = CellsUtil.idxToAddress(r, c);
+                    switch (c % 4) {
+                    case 0, 1 -> writer.write("<c r=\"%s\"><v>%d</v></c>".formatted(address, r * c));
+                    case 2 -> writer.write("<c r=\"%s\" t=\"s\"><v>%d</v></c>".formatted(address, (r + c) % SST_SIZE));
+                    default -> writer.write("<c r=\"%s\"><f>%s+%s</f><v>%d</v></c>".formatted(
+                            address, CellsUtil.idxToAddress(r, c - 3), CellsUtil.idxToAddress(r, c - 2), r * c));
+                    }
+                }
+                writer.write("</row>");
+            }
+            writer.write("</sheetData></worksheet>");
+            writer.flush();
+            zos.closeEntry();
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    /** 合成するワークシートのセルの数 */
+    @Param({ "1000000" })
+    public int cellCount;
+    
+    /** ワークシートの読み取り方式 */
+    @Param({ "SAX", "STAX" })
+    public Reader reader;
+    
+    private Path bookPath;
+    private BookInfo bookInfo;
+    
+    /**
+     * ベンチマーク用のExcelブックを合成します。<br>
+     *
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bookPath = Files.createTempFile("benchmark-", ".xlsx");
+        createBook(bookPath, cellCount);
+        bookInfo = BookInfo.ofLoadCompleted(bookPath, List.of(SHEET_NAME));
+    }
+    
+    /**
+     * ベンチマーク用のExcelブックを削除します。<br>
+     *
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(bookPath);
+    }
+    
+    /**
+     * ヒープ使用量のピークをリセットします。<br>
+     */
+    @Setup(Level.Iteration)
+    public void resetPeakHeap() {
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+    
+    /**
+     * イテレーション中のヒープ使用量のピーク（メモリプールごとのピークの合計）を出力します。<br>
+     */
+    @TearDown(Level.Iteration)
+    public void reportPeakHeap() {
+        long peak = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        System.out.printf("%n[%s] peak heap: %d MB%n", reader, peak >> 20);
+    }
+    
+    /**
+     * 数式セルからキャッシュされた計算値を抽出する場合の読み込み処理を計測します。<br>
+     *
+     * @return 抽出したセルデータ
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    @Benchmark
+    public Set<CellData> loadCachedValues() throws ExcelHandlingException {
+        return reader.loader(true).loadCells(bookInfo, null, SHEET_NAME);
+    }
+    
+    /**
+     * 数式セルから数式文字列を抽出する場合の読み込み処理を計測します。<br>
+     *
+     * @return 抽出したセルデータ
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    @Benchmark
+    public Set<CellData> loadFormulas() throws ExcelHandlingException {
+        return reader.loader(false).loadCells(bookInfo, null, SHEET_NAME);
+    }
+}
@@ -0,0 +1,103 @@
+package xyz.hotchpotch.hogandiff.logic.plain;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
+import xyz.hotchpotch.hogandiff.logic.BenchmarkSheets;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.ResultOfSheets;
+import xyz.hotchpotch.hogandiff.util.Pair;
+
+/**
+ * {@link ComparatorOfSheetsRC} のベンチマークです。<br>
+ * 合成したワークシート同士の比較の処理時間を、行数と変更の密度ごとに計測します。
+ * また、前回の比較からセル1つを修正したワークシートを再比較する場合について、
+ * 通常の比較と前回の比較結果を手掛かりとする比較の処理時間を計測します。<br>
+ *
+ * @author nmby
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ComparatorOfSheetsRCBenchmark {
+    
+    // [static members] ********************************************************
+    
+    /** 合成するワークシートの列数 */
+    private static final int COLUMNS = 20;
+    
+    // [instance members] ******************************************************
+    
+    /** 比較対象Aのワークシートの行数 */
+    @Param({ "1000", "10000" })
+    public int rows;
+    
+    /** 各行に変更を加える確率 */
+    @Param({ "0.01", "0.1" })
+    public double diffDensity;
+    
+    /** 列の挿入／削除を考慮する場合は {@code true} */
+    @Param({ "false", "true" })
+    public boolean considerColumnGaps;
+    
+    /** 比較処理の速度を優先する場合は {@code true} */
+    @Param({ "true", "false" })
+    public boolean prioritizeSpeed;
+    
+    private ComparatorOfSheetsRC comparator;
+    private Pair<Set<CellData>> prevCellsSetPair;
+    private ResultOfSheets prevResult;
+    private Pair<Set<CellData>> cellsSetPair;
+    
+    /**
+     * 比較対象のワークシートを合成し、再比較の基となる前回の比較結果を求めます。<br>
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        comparator = ComparatorOfSheetsRC.of(true, considerColumnGaps, prioritizeSpeed, 0);
+        prevCellsSetPair = BenchmarkSheets.cellsSetPairOf(rows, COLUMNS, diffDensity);
+        prevResult = comparator.compare(prevCellsSetPair);
+        cellsSetPair = BenchmarkSheets.withCellChanged(prevCellsSetPair, rows / 2, 1);
+    }
+    
+    /**
+     * ワークシート同士の比較を計測します。<br>
+     *
+     * @return 比較結果
+     */
+    @Benchmark
+    public ResultOfSheets compare() {
+        return comparator.compare(cellsSetPair, MatchBudget.unlimited());
+    }
+    
+    /**
+     * 前回の比較結果を手掛かりとするワークシート同士の再比較を計測します。<br>
+     *
+     * @return 比較結果
+     */
+    @Benchmark
+    public ResultOfSheets compareIncrementally() {
+        return comparator.compareIncrementally(
+                cellsSetPair,
+                MatchBudget.unlimited(),
+                prevCellsSetPair,
+                prevResult);
+    }
+}
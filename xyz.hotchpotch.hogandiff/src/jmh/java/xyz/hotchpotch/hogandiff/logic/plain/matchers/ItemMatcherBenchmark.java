@@ -0,0 +1,88 @@
+package xyz.hotchpotch.hogandiff.logic.plain.matchers;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
+import xyz.hotchpotch.hogandiff.logic.BenchmarkSheets;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.util.IntPair;
+import xyz.hotchpotch.hogandiff.util.Pair;
+
+/**
+ * 行同士の対応付けを行う {@link ItemMatcher} の実装
+ * （速度優先の {@link ItemMatcherImpl1}, 精度優先の {@link ItemMatcherImpl2}）のベンチマークです。<br>
+ * 合成したワークシートの行同士の対応付けの処理時間を、行数と変更の密度ごとに計測します。<br>
+ *
+ * @author nmby
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ItemMatcherBenchmark {
+    
+    // [static members] ********************************************************
+    
+    /** 合成するワークシートの列数 */
+    private static final int COLUMNS = 20;
+    
+    // [instance members] ******************************************************
+    
+    /** 比較対象Aのワークシートの行数 */
+    @Param({ "1000", "5000" })
+    public int rows;
+    
+    /** 各行に変更を加える確率 */
+    @Param({ "0.01", "0.1" })
+    public double diffDensity;
+    
+    /** 比較処理の速度を優先する（{@link ItemMatcherImpl1} を用いる）場合は {@code true} */
+    @Param({ "true", "false" })
+    public boolean prioritizeSpeed;
+    
+    /** 列の挿入／削除を考慮する場合は {@code true} */
+    @Param({ "false", "true" })
+    public boolean considerColumnGaps;
+    
+    private Pair<Set<CellData>> cellsSetPair;
+    private List<IntPair> columnPairs;
+    private ItemMatcher matcher;
+    
+    /**
+     * 比較対象のワークシートを合成します。<br>
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        cellsSetPair = BenchmarkSheets.cellsSetPairOf(rows, COLUMNS, diffDensity);
+        columnPairs = BenchmarkSheets.sequentialPairsOf(COLUMNS);
+        matcher = ItemMatcher.rowsMatcherOf(true, considerColumnGaps, prioritizeSpeed, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * 行同士の対応付けを計測します。<br>
+     *
+     * @return 行同士の対応付け
+     */
+    @Benchmark
+    public List<IntPair> makeRowPairs() {
+        return matcher.makePairs(cellsSetPair, columnPairs, MatchBudget.unlimited());
+    }
+}
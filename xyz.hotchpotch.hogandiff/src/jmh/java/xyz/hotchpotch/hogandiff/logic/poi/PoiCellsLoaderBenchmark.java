@@ -0,0 +1,180 @@
+package xyz.hotchpotch.hogandiff.logic.poi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xyz.hotchpotch.hogandiff.logic.BookInfo;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.CellsLoader;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.plain.CellsUtil;
+
+/**
+ * Apache POI を利用する {@link CellsLoader} の実装
+ * （{@link CellsLoaderWithPoiEventApi}, {@link CellsLoaderWithPoiUserApi}）のベンチマークです。<br>
+ * Apache POI で作成したワークシートを読み込み、処理時間を計測します。<br>
+ * {@link CellsLoaderWithPoiEventApi} は数式文字列の抽出をサポートしないため、
+ * 数式セルからはキャッシュされた計算値を抽出する場合について計測します。<br>
+ *
+ * @author nmby
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PoiCellsLoaderBenchmark {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * 読み込むExcelブックの形式とワークシートの読み取り方式の組み合わせを表す列挙型です。<br>
+     *
+     * @author nmby
+     */
+    public static enum Target {
+        
+        // [static members] ----------------------------------------------------
+        
+        /** .xls 形式のブックを Event API で読み取る */
+        XLS_EVENT_API(".xls"),
+        
+        /** .xls 形式のブックを User API で読み取る */
+        XLS_USER_API(".xls"),
+        
+        /** .xlsx 形式のブックを User API で読み取る */
+        XLSX_USER_API(".xlsx");
+        
+        // [instance members] --------------------------------------------------
+        
+        private final String extension;
+        
+        private Target(String extension) {
+            this.extension = extension;
+        }
+        
+        private Workbook createWorkbook() {
+            return switch (this) {
+            case XLS_EVENT_API, XLS_USER_API -> new HSSFWorkbook();
+            case XLSX_USER_API -> new SXSSFWorkbook();
+            };
+        }
+        
+        private CellsLoader loader() {
+            return switch (this) {
+            case XLS_EVENT_API -> new CellsLoaderWithPoiEventApi(true);
+            case XLS_USER_API, XLSX_USER_API -> new CellsLoaderWithPoiUserApi(cell -> {
+                String content = PoiUtil.getCellContentAsString(cell, true);
+                return "".equals(content)
+                        ? null
+                        : new CellData(cell.getRowIndex(), cell.getColumnIndex(), content, null);
+            });
+            };
+        }
+    }
+    
+    private static final String SHEET_NAME = "Sheet1";
+    
+    /** 作成するワークシートの列数 */
+    private static final int COLUMNS = 20;
+    
+    /**
+     * 数値、文字列、数式のセルが混在するワークシートを1枚だけ持つExcelブックを作成します。<br>
+     *
+     * @param bookPath  出力先のパス
+     * @param target    読み込むExcelブックの形式
+     * @param cellCount セルの数
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private static void createBook(Path bookPath, Target target, int cellCount) throws IOException {
+        try (Workbook book = target.createWorkbook();
+                OutputStream os = Files.newOutputStream(bookPath)) {
+            
+            Sheet sheet = book.createSheet(SHEET_NAME);
+            int rows = (cellCount + COLUMNS - 1) / COLUMNS;
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < COLUMNS && r * COLUMNS + c < cellCount; c++) {
+                    switch (c % 4) {
+                    case 0, 1 -> row.createCell(c).setCellValue(r * c);
+                    case 2 -> row.createCell(c).setCellValue("文字列" + (r + c) % 1_000);
+                    default -> row.createCell(c).setCellFormula("%s+%s".formatted(
+                            CellsUtil.idxToAddress(r, c - 3), CellsUtil.idxToAddress(r, c - 2)));
+                    }
+                }
+            }
+            book.write(os);
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    /** 作成するワークシートのセルの数（.xls 形式の行数の上限に収まる範囲で指定する） */
+    @Param({ "100000" })
+    public int cellCount;
+    
+    /** 読み込むExcelブックの形式とワークシートの読み取り方式 */
+    @Param({ "XLS_EVENT_API", "XLS_USER_API", "XLSX_USER_API" })
+    public Target target;
+    
+    private Path bookPath;
+    private BookInfo bookInfo;
+    
+    /**
+     * ベンチマーク用のExcelブックを作成します。<br>
+     *
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bookPath = Files.createTempFile("benchmark-", target.extension);
+        createBook(bookPath, target, cellCount);
+        bookInfo = BookInfo.ofLoadCompleted(bookPath, List.of(SHEET_NAME));
+    }
+    
+    /**
+     * ベンチマーク用のExcelブックを削除します。<br>
+     *
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(bookPath);
+    }
+    
+    /**
+     * 数式セルからキャッシュされた計算値を抽出する場合の読み込み処理を計測します。<br>
+     *
+     * @return 抽出したセルデータ
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    @Benchmark
+    public Set<CellData> loadCachedValues() throws ExcelHandlingException {
+        return target.loader().loadCells(bookInfo, null, SHEET_NAME);
+    }
+}
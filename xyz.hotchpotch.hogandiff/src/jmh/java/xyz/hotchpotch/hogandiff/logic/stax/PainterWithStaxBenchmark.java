@@ -0,0 +1,177 @@
+package xyz.hotchpotch.hogandiff.logic.stax;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.ResultOfSheets.Piece;
+
+/**
+ * {@link PainterWithStax} のベンチマークです。<br>
+ * Apache POI で作成したワークシートの余剰行と差分セルに着色して保存する処理時間を、
+ * 行数と差分の密度ごとに計測します。<br>
+ *
+ * @author nmby
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PainterWithStaxBenchmark {
+    
+    // [static members] ********************************************************
+    
+    private static final String SHEET_NAME = "Sheet1";
+    
+    /** 作成するワークシートの列数 */
+    private static final int COLUMNS = 20;
+    
+    /** 乱数の種 */
+    private static final long SEED = 4_649L;
+    
+    /**
+     * 数値と文字列のセルが混在するワークシートを1枚だけ持つ .xlsx 形式のExcelブックを作成します。<br>
+     *
+     * @param bookPath 出力先のパス
+     * @param rows     行数
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private static void createBook(Path bookPath, int rows) throws IOException {
+        try (XSSFWorkbook book = new XSSFWorkbook();
+                OutputStream os = Files.newOutputStream(bookPath)) {
+            
+            Sheet sheet = book.createSheet(SHEET_NAME);
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < COLUMNS; c++) {
+                    if (c % 2 == 0) {
+                        row.createCell(c).setCellValue(r * c);
+                    } else {
+                        row.createCell(c).setCellValue("文字列" + (r + c) % 1_000);
+                    }
+                }
+            }
+            book.write(os);
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    /** 作成するワークシートの行数 */
+    @Param({ "10000", "50000" })
+    public int rows;
+    
+    /** 各行を余剰行とする確率、および各セルを差分セルとする確率 */
+    @Param({ "0.01", "0.1" })
+    public double diffDensity;
+    
+    private Path srcBookPath;
+    private Path dstBookPath;
+    private Map<String, Optional<Piece>> diffs;
+    private PainterWithStax painter;
+    
+    /**
+     * ベンチマーク用のExcelブックと着色内容を作成します。<br>
+     *
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        srcBookPath = Files.createTempFile("benchmark-", ".xlsx");
+        dstBookPath = srcBookPath.resolveSibling("painted-" + srcBookPath.getFileName());
+        createBook(srcBookPath, rows);
+        
+        Random random = new Random(SEED);
+        List<Integer> redundantRows = new ArrayList<>();
+        List<CellData> diffCellContents = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            if (random.nextDouble() < diffDensity) {
+                redundantRows.add(r);
+                continue;
+            }
+            for (int c = 0; c < COLUMNS; c++) {
+                if (random.nextDouble() < diffDensity) {
+                    diffCellContents.add(new CellData(r, c, "", null));
+                }
+            }
+        }
+        diffs = Map.of(SHEET_NAME, Optional.of(new Piece(
+                redundantRows,
+                List.of(),
+                diffCellContents,
+                List.of(),
+                List.of())));
+        
+        painter = new PainterWithStax(
+                IndexedColors.CORAL.getIndex(),
+                IndexedColors.YELLOW.getIndex(),
+                "#ff8080",
+                "#ffff00",
+                Color.RED,
+                Color.YELLOW,
+                Color.CYAN);
+    }
+    
+    /**
+     * ベンチマーク用のExcelブックを削除します。<br>
+     *
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(srcBookPath);
+    }
+    
+    /**
+     * 着色後のExcelブックを削除します。<br>
+     * 着色処理は出力先にファイルが存在しないことを前提とするため、呼び出しごとに削除します。<br>
+     *
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    @TearDown(Level.Invocation)
+    public void deletePainted() throws IOException {
+        Files.deleteIfExists(dstBookPath);
+    }
+    
+    /**
+     * 余剰行と差分セルへの着色と保存を計測します。<br>
+     *
+     * @return 着色後のExcelブックのパス
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    @Benchmark
+    public Path paintAndSave() throws ExcelHandlingException {
+        painter.paintAndSave(srcBookPath, dstBookPath, null, diffs);
+        return dstBookPath;
+    }
+}
@@ -45,6 +45,28 @@ public class AppArgsParser {
             + SettingKeys.EXIT_WHEN_FINISHED.ifNotSetSupplier().get() + BR
             + "    --prioritize-speed=[true|false]      : default value is "
             + SettingKeys.PRIORITIZE_SPEED.ifNotSetSupplier().get() + BR
+            + "    --compare-dirs-recursively=[true|false] : default value is "
+            + SettingKeys.COMPARE_DIRS_RECURSIVELY.ifNotSetSupplier().get() + BR
+            + "    --headless=[true|false]              : default value is "
+            + SettingKeys.CURR_HEADLESS.ifNotSetSupplier().get() + BR
+            + BR
+            + "With --headless=true, the comparison runs without the GUI and exits with" + BR
+            + "    0 : no differences found" + BR
+            + "    1 : differences found" + BR
+            + "    2 : invalid arguments" + BR
+            + "    3 : comparison failed" + BR
+            + BR
+            + "方眼Diff.exe --batch=manifestPath <--batch-threads=n> <OPTIONS>" + BR
+            + BR
+            + "With --batch, each line of the manifest (JSON {\"a\":..,\"b\":..,\"options\":[..]}" + BR
+            + "or CSV pathA,pathB,options..) is compared without the GUI, and the process exits" + BR
+            + "with the highest exit code among the lines." + BR
+            + BR
+            + "方眼Diff.exe --serve=port <--serve-threads=n> <--serve-queue=n>" + BR
+            + BR
+            + "With --serve, a local HTTP service accepts comparison jobs on 127.0.0.1" + BR
+            + "(POST /uploads, POST /jobs, GET /jobs/{id}[/progress|/result|/files]) until" + BR
+            + "POST /shutdown." + BR
             + BR;
     
     private static final Map<String, Key<Boolean>> OPTIONS = Map.of(
@@ -55,7 +77,23 @@ public class AppArgsParser {
             "--show-painted-sheets", SettingKeys.SHOW_PAINTED_SHEETS,
             "--show-result-text", SettingKeys.SHOW_RESULT_REPORT,
             "--exit-when-finished", SettingKeys.EXIT_WHEN_FINISHED,
-            "--prioritize-speed", SettingKeys.PRIORITIZE_SPEED);
+            "--prioritize-speed", SettingKeys.PRIORITIZE_SPEED,
+            "--compare-dirs-recursively", SettingKeys.COMPARE_DIRS_RECURSIVELY,
+            "--headless", SettingKeys.CURR_HEADLESS);
+    
+    /**
+     * アプリケーション実行時引数にGUIを起動しない実行が指定されているかを返します。<br>
+     * 引数全体の解析に先立って判定するため、他の引数が不正であっても指定の有無を返します。<br>
+     * 
+     * @param args アプリケーション実行時引数
+     * @return {@code --headless=true} が指定されている場合は {@code true}
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static boolean isHeadless(String[] args) {
+        Objects.requireNonNull(args);
+        
+        return List.of(args).contains("--headless=true");
+    }
     
     /**
      * アプリケーション実行時引数を解析してアプリケーション設定に変換します。<br>
@@ -125,7 +163,11 @@ public class AppArgsParser {
                 return Optional.empty();
             }
             
-            return Optional.of(builder.build());
+            Settings settings = builder.build();
+            if (Files.isDirectory(pathA) && settings.get(SettingKeys.COMPARE_DIRS_RECURSIVELY)) {
+                settings = settings.getAltered(SettingKeys.CURR_MENU, AppMenu.COMPARE_TREES);
+            }
+            return Optional.of(settings);
             
         } catch (RuntimeException e) {
             return Optional.empty();
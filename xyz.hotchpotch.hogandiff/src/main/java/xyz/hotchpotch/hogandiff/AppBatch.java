@@ -0,0 +1,485 @@
+package xyz.hotchpotch.hogandiff;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONWriter;
+
+import xyz.hotchpotch.hogandiff.logic.BatchCache;
+import xyz.hotchpotch.hogandiff.logic.Factory;
+import xyz.hotchpotch.hogandiff.logic.sax.DecryptedBookCache;
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+/**
+ * マニフェストファイルに列挙された複数の比較を、GUIを起動せずに一括で実行するためのエントリポイントです。<br>
+ * <br>
+ * マニフェストファイルは UTF-8 のテキストファイルで、1行につき1件の比較を記述します。
+ * 空行と {@code #} で始まる行は無視します。各行は次のいずれかの形式で記述します。<br>
+ * <ul>
+ *   <li>JSON形式 : {@code {"a": "比較対象A", "b": "比較対象B", "options": ["--consider-row-gaps=false"]}}</li>
+ *   <li>CSV形式 : {@code 比較対象A,比較対象B,--consider-row-gaps=false}</li>
+ * </ul>
+ * 相対パスはマニフェストファイルのあるフォルダを基準に解決します。
+ * 各項目のオプションは、コマンドラインで指定した共通のオプションよりも優先されます。<br>
+ * <br>
+ * 比較はワーカースレッドのプールで並行して実行し、
+ * Excelブック情報と Shared Strings の読み込み結果を項目間で共有します。
+ * 暗号化されたExcelブックを復号した一時ファイルは、項目ごとに比較が終わり次第削除します。
+ * ひとつの項目の失敗は他の項目に影響しません。
+ * 各項目の比較結果は作業用フォルダ内の項目ごとのフォルダに保存し、
+ * 全項目の結果の一覧を {@code summary.ndjson} に書き出します。
+ * 終了コードは、各項目の終了コードのうち最も大きいものです。<br>
+ *
+ * @author nmby
+ */
+public final class AppBatch {
+    
+    // [static members] ********************************************************
+    
+    private static final String BATCH_OPTION = "--batch=";
+    private static final String THREADS_OPTION = "--batch-threads=";
+    
+    /** 一括比較の間に保持するExcelブック情報の最大数 */
+    private static final int BOOK_INFO_CACHE_CAPACITY = 4096;
+    
+    /** 一括比較の間に保持する Shared Strings の最大数 */
+    private static final int SHARED_STRINGS_CACHE_CAPACITY = 64;
+    
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    
+    /**
+     * マニフェストファイルに記述された比較1件を表す不変クラスです。<br>
+     *
+     * @param no 項目番号（1開始）
+     * @param pathA 比較対象Aのパス
+     * @param pathB 比較対象Bのパス
+     * @param options この項目に固有のオプション
+     */
+    /* package */ static record Item(int no, Path pathA, Path pathB, List<String> options) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        /**
+         * 共通のオプションにこの項目に固有のオプションを重ねた実行時引数を返します。<br>
+         *
+         * @param commonOptions 共通のオプション
+         * @return この項目の実行時引数
+         */
+        /* package */ String[] toArgs(List<String> commonOptions) {
+            Map<String, String> merged = new LinkedHashMap<>();
+            Stream.concat(commonOptions.stream(), options.stream())
+                    .forEach(option -> merged.put(option.split("=", 2)[0], option));
+            
+            List<String> args = new ArrayList<>();
+            args.add(pathA.toString());
+            args.add(pathB.toString());
+            args.addAll(merged.values());
+            return args.toArray(String[]::new);
+        }
+    }
+    
+    /**
+     * アプリケーション実行時引数に一括比較が指定されているかを返します。<br>
+     *
+     * @param args
+     *            アプリケーション実行時引数
+     * @return {@code --batch=マニフェストファイル} が指定されている場合は {@code true}
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public static boolean isBatch(String[] args) {
+        Objects.requireNonNull(args);
+        
+        return Stream.of(args).anyMatch(arg -> arg.startsWith(BATCH_OPTION));
+    }
+    
+    /**
+     * アプリケーション実行時引数で指定されたマニフェストファイルに従って一括比較を実行し、終了コードを返します。<br>
+     * {@code --batch=マニフェストファイル} と {@code --batch-threads=スレッド数} 以外の引数は、
+     * すべての項目に共通のオプションとして扱います。<br>
+     *
+     * @param args
+     *            アプリケーション実行時引数
+     * @param baseSettings
+     *            実行時引数で指定されなかった項目に適用する設定セット
+     * @param err
+     *            進捗状況とエラーの出力先
+     * @return 終了コード
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public static int run(String[] args, Settings baseSettings, PrintStream err) {
+        Objects.requireNonNull(args);
+        Objects.requireNonNull(baseSettings);
+        Objects.requireNonNull(err);
+        
+        Path manifest = null;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        List<String> commonOptions = new ArrayList<>();
+        
+        try {
+            for (String arg : args) {
+                if (arg.startsWith(BATCH_OPTION)) {
+                    manifest = Path.of(arg.substring(BATCH_OPTION.length()));
+                } else if (arg.startsWith(THREADS_OPTION)) {
+                    threads = Integer.parseInt(arg.substring(THREADS_OPTION.length()));
+                } else {
+                    commonOptions.add(arg);
+                }
+            }
+        } catch (RuntimeException e) {
+            manifest = null;
+        }
+        
+        // 共通のオプションは、マニフェストファイル自身を比較対象とみなして解析することで検証する。
+        if (manifest == null || threads < 1 || !Files.isRegularFile(manifest)
+                || AppArgsParser.parseArgs(Stream.concat(
+                        Stream.of(manifest.toString(), manifest.toString()),
+                        commonOptions.stream()).toArray(String[]::new)).isEmpty()) {
+            err.print(AppArgsParser.USAGE);
+            return AppHeadless.EXIT_INVALID_ARGS;
+        }
+        
+        List<Item> items;
+        try {
+            items = readManifest(manifest);
+        } catch (IOException | IllegalArgumentException e) {
+            err.println("%s%n%s".formatted(manifest, e.getMessage()));
+            return AppHeadless.EXIT_INVALID_ARGS;
+        }
+        
+        AppMain.relaxZipSecureLimits();
+        
+        Path batchDir = baseSettings.get(SettingKeys.WORK_DIR_BASE)
+                .resolve("batch-" + LocalDateTime.now().format(formatter));
+        
+        try (BatchCache cache = BatchCache.open(BOOK_INFO_CACHE_CAPACITY, SHARED_STRINGS_CACHE_CAPACITY);
+                BufferedWriter summary = openSummary(batchDir)) {
+            
+            int[] exitCodes = execute(items, commonOptions, baseSettings, batchDir, threads, summary, err);
+            
+            err.println();
+            err.println("no diff: %d, diff found: %d, invalid: %d, failed: %d (%s)".formatted(
+                    count(exitCodes, AppHeadless.EXIT_NO_DIFF),
+                    count(exitCodes, AppHeadless.EXIT_DIFF_FOUND),
+                    count(exitCodes, AppHeadless.EXIT_INVALID_ARGS),
+                    count(exitCodes, AppHeadless.EXIT_FAILED),
+                    batchDir.resolve("summary.ndjson")));
+            err.println("cache hits: %d, misses: %d".formatted(
+                    cache.stats().hitCount(), cache.stats().missCount()));
+            err.flush();
+            
+            int exitCode = AppHeadless.EXIT_NO_DIFF;
+            for (int code : exitCodes) {
+                exitCode = Math.max(exitCode, code);
+            }
+            return exitCode;
+            
+        } catch (Exception e) {
+            ErrorReporter.reportIfEnabled(e, "AppBatch::run-1");
+            err.println("%s%n%s".formatted(e.getClass().getName(), e.getMessage()));
+            return AppHeadless.EXIT_FAILED;
+        }
+    }
+    
+    /**
+     * マニフェストファイルを読み込み、比較項目のリストを返します。<br>
+     *
+     * @param manifest
+     *            マニフェストファイル
+     * @return 比較項目のリスト
+     * @throws IOException
+     *             マニフェストファイルの読み込みに失敗した場合
+     * @throws IllegalArgumentException
+     *             マニフェストファイルの記述が不正な場合
+     */
+    /* package */ static List<Item> readManifest(Path manifest) throws IOException {
+        assert manifest != null;
+        
+        Path baseDir = manifest.toAbsolutePath().getParent();
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        List<Item> items = new ArrayList<>();
+        
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            
+            List<String> fields;
+            try {
+                fields = line.startsWith("{") ? parseJsonLine(line) : parseCsvLine(line);
+            } catch (JSONException e) {
+                throw new IllegalArgumentException("line %d: %s".formatted(i + 1, e.getMessage()), e);
+            }
+            if (fields.size() < 2) {
+                throw new IllegalArgumentException("line %d: two paths are required".formatted(i + 1));
+            }
+            
+            items.add(new Item(
+                    items.size() + 1,
+                    baseDir.resolve(fields.get(0)),
+                    baseDir.resolve(fields.get(1)),
+                    List.copyOf(fields.subList(2, fields.size()))));
+        }
+        return items;
+    }
+    
+    private static List<String> parseJsonLine(String line) {
+        JSONObject json = new JSONObject(line);
+        List<String> fields = new ArrayList<>();
+        fields.add(json.getString("a"));
+        fields.add(json.getString("b"));
+        
+        JSONArray options = json.optJSONArray("options");
+        if (options != null) {
+            for (int i = 0; i < options.length(); i++) {
+                fields.add(options.getString(i));
+            }
+        }
+        return fields;
+    }
+    
+    /**
+     * CSV形式の1行をフィールドに分割します。<br>
+     * ダブルクォーテーションで囲まれたフィールドにはカンマを含めることができ、
+     * その中の連続する2つのダブルクォーテーションは1つのダブルクォーテーションとして扱います。<br>
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().strip());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unclosed quotation: " + line);
+        }
+        fields.add(field.toString().strip());
+        fields.removeIf(String::isEmpty);
+        return fields;
+    }
+    
+    private static BufferedWriter openSummary(Path batchDir) throws IOException {
+        Files.createDirectories(batchDir);
+        return Files.newBufferedWriter(
+                batchDir.resolve("summary.ndjson"),
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+    }
+    
+    /**
+     * ワーカースレッドのプールで全項目を比較し、各項目の終了コードを返します。<br>
+     */
+    private static int[] execute(
+            List<Item> items,
+            List<String> commonOptions,
+            Settings baseSettings,
+            Path batchDir,
+            int threads,
+            BufferedWriter summary,
+            PrintStream err)
+            throws InterruptedException, ExecutionException {
+        
+        int[] exitCodes = new int[items.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        
+        Callable<Void> worker = () -> {
+            int idx;
+            while ((idx = next.getAndIncrement()) < items.size()) {
+                Item item = items.get(idx);
+                long start = System.nanoTime();
+                exitCodes[idx] = executeItem(item, commonOptions, baseSettings, batchDir);
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                
+                synchronized (summary) {
+                    writeSummary(summary, item, exitCodes[idx], elapsedMillis, batchDir);
+                    err.println("[%d/%d] %s (%d ms) %s <-> %s".formatted(
+                            finished.incrementAndGet(), items.size(), statusOf(exitCodes[idx]),
+                            elapsedMillis, item.pathA(), item.pathB()));
+                }
+            }
+            return null;
+        };
+        
+        int workers = Math.min(threads, Math.max(1, items.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            for (Future<Void> future : executor.invokeAll(Collections.nCopies(workers, worker))) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return exitCodes;
+    }
+    
+    /**
+     * 1件の項目を比較し、終了コードを返します。<br>
+     * 比較の進捗状況とエラーは、項目ごとのフォルダ内の {@code log.txt} に書き出します。<br>
+     * 暗号化されたExcelブックは、比較対象の読み込みから比較の終了まで一度だけ復号して使い回し、
+     * 項目の比較が終わった時点で復号した一時ファイルを削除します。<br>
+     * ヒープ不足などのエラーで比較できなかった場合も、{@link VirtualMachineError} のうちヒープ不足以外のものを除き、
+     * 失敗を表す終了コードを返します。<br>
+     */
+    private static int executeItem(
+            Item item,
+            List<String> commonOptions,
+            Settings baseSettings,
+            Path batchDir) {
+        
+        Path itemDir = batchDir.resolve(itemDirName(item));
+        
+        try {
+            Files.createDirectories(itemDir);
+        } catch (IOException e) {
+            ErrorReporter.reportIfEnabled(e, "AppBatch::executeItem-1");
+            return AppHeadless.EXIT_FAILED;
+        }
+        
+        try (DecryptedBookCache _ = DecryptedBookCache.open(itemDir);
+                PrintStream log = new PrintStream(
+                        Files.newOutputStream(itemDir.resolve("log.txt")),
+                        true,
+                        StandardCharsets.UTF_8)) {
+            
+            Optional<Settings> fromArgs = AppArgsParser.parseArgs(item.toArgs(commonOptions));
+            if (fromArgs.isEmpty()) {
+                log.println(String.join(" ", item.toArgs(commonOptions)));
+                log.print(AppArgsParser.USAGE);
+                return AppHeadless.EXIT_INVALID_ARGS;
+            }
+            
+            Settings settings = AppHeadless.headlessSettings(
+                    baseSettings
+                            .getAltered(SettingKeys.SHEET_CACHE_DIR, Factory.sheetCacheDir(baseSettings))
+                            .getAltered(SettingKeys.WORK_DIR_BASE, itemDir),
+                    fromArgs.get());
+            return AppHeadless.execute(settings, log);
+            
+        } catch (IOException | RuntimeException e) {
+            // ひとつの項目の失敗が他の項目に波及しないよう、ここで食い止める。
+            ErrorReporter.reportIfEnabled(e, "AppBatch::executeItem-2");
+            return AppHeadless.EXIT_FAILED;
+            
+        } catch (OutOfMemoryError e) {
+            // 巨大なExcelブックによるヒープ不足は、項目の比較を終えて参照が外れれば回復し得るため、
+            // その項目の失敗として記録し、他の項目の比較を続ける。
+            ErrorReporter.reportIfEnabled(e, "AppBatch::executeItem-3");
+            return AppHeadless.EXIT_FAILED;
+            
+        } catch (Error e) {
+            // 仮想マシン自体の異常は回復できないため、一括比較全体を中止する。
+            if (e instanceof VirtualMachineError) {
+                throw e;
+            }
+            ErrorReporter.reportIfEnabled(e, "AppBatch::executeItem-4");
+            return AppHeadless.EXIT_FAILED;
+        }
+    }
+    
+    private static void writeSummary(
+            BufferedWriter summary,
+            Item item,
+            int exitCode,
+            long elapsedMillis,
+            Path batchDir)
+            throws IOException {
+        
+        try {
+            new JSONWriter(summary).object()
+                    .key("no").value(item.no())
+                    .key("a").value(item.pathA().toString())
+                    .key("b").value(item.pathB().toString())
+                    .key("status").value(statusOf(exitCode))
+                    .key("exitCode").value(exitCode)
+                    .key("elapsedMillis").value(elapsedMillis)
+                    .key("workDir").value(batchDir.resolve(itemDirName(item)).toString())
+                    .endObject();
+            summary.write('\n');
+            summary.flush();
+            
+        } catch (JSONException e) {
+            // JSONWriter は書き出し先の IOException を JSONException に包んでスローする。
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw e;
+        }
+    }
+    
+    private static String itemDirName(Item item) {
+        return "%05d".formatted(item.no());
+    }
+    
+    /**
+     * 終了コードに対応する状態の名前を返します。<br>
+     *
+     * @param exitCode 終了コード
+     * @return 状態の名前
+     */
+    /* package */ static String statusOf(int exitCode) {
+        return switch (exitCode) {
+        case AppHeadless.EXIT_NO_DIFF -> "noDiff";
+        case AppHeadless.EXIT_DIFF_FOUND -> "diffFound";
+        case AppHeadless.EXIT_INVALID_ARGS -> "invalid";
+        default -> "failed";
+        };
+    }
+    
+    private static long count(int[] exitCodes, int exitCode) {
+        return Arrays.stream(exitCodes).filter(code -> code == exitCode).count();
+    }
+    
+    // [instance members] ******************************************************
+    
+    private AppBatch() {
+    }
+}
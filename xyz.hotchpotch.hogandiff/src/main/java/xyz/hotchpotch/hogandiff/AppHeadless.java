@@ -0,0 +1,233 @@
+package xyz.hotchpotch.hogandiff;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
+import xyz.hotchpotch.hogandiff.logic.BookInfo;
+import xyz.hotchpotch.hogandiff.logic.BookInfo.Status;
+import xyz.hotchpotch.hogandiff.logic.DirInfo;
+import xyz.hotchpotch.hogandiff.logic.Factory;
+import xyz.hotchpotch.hogandiff.logic.PairingInfoBooks;
+import xyz.hotchpotch.hogandiff.logic.PairingInfoDirs;
+import xyz.hotchpotch.hogandiff.logic.Result;
+import xyz.hotchpotch.hogandiff.util.Pair;
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+/**
+ * GUIを起動せずにコマンドラインから比較を実行するためのエントリポイントです。<br>
+ * JavaFXランタイムを起動せず、進捗状況を標準エラー出力に書き出し、
+ * 比較結果の差分の有無を終了コードで返します。
+ * 着色したExcelブックや比較結果レポートは作業用フォルダに保存しますが、表示はしません。<br>
+ *
+ * @author nmby
+ */
+public final class AppHeadless {
+    
+    // [static members] ********************************************************
+    
+    /** 終了コード：差分なし */
+    public static final int EXIT_NO_DIFF = 0;
+    
+    /** 終了コード：差分あり */
+    public static final int EXIT_DIFF_FOUND = 1;
+    
+    /** 終了コード：実行時引数が不正 */
+    public static final int EXIT_INVALID_ARGS = 2;
+    
+    /** 終了コード：比較処理の失敗 */
+    public static final int EXIT_FAILED = 3;
+    
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    
+    /**
+     * アプリケーション実行時引数に従って比較を実行し、終了コードを返します。<br>
+     * 実行時引数から得た設定はプロパティファイルに記録しません。<br>
+     *
+     * @param args
+     *            アプリケーション実行時引数
+     * @param baseSettings
+     *            実行時引数で指定されなかった項目に適用する設定セット
+     * @param err
+     *            進捗状況とエラーの出力先
+     * @return 終了コード
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public static int run(String[] args, Settings baseSettings, PrintStream err) {
+        Objects.requireNonNull(args);
+        Objects.requireNonNull(baseSettings);
+        Objects.requireNonNull(err);
+        
+        Optional<Settings> fromArgs = AppArgsParser.parseArgs(args);
+        if (fromArgs.isEmpty()) {
+            err.print(AppArgsParser.USAGE);
+            return EXIT_INVALID_ARGS;
+        }
+        
+        AppMain.relaxZipSecureLimits();
+        
+        return execute(headlessSettings(baseSettings, fromArgs.get()), err);
+    }
+    
+    /**
+     * GUIを起動しない実行のための設定セットを返します。<br>
+     * 着色したExcelブックや比較結果レポートを表示しないようにし、現在時刻のタイムスタンプを設定します。<br>
+     *
+     * @param baseSettings
+     *            実行時引数で指定されなかった項目に適用する設定セット
+     * @param fromArgs
+     *            実行時引数から得た設定セット
+     * @return GUIを起動しない実行のための設定セット
+     */
+    /* package */ static Settings headlessSettings(Settings baseSettings, Settings fromArgs) {
+        assert baseSettings != null;
+        assert fromArgs != null;
+        
+        return Settings.builder()
+                .setAll(baseSettings)
+                .setAll(fromArgs)
+                .set(SettingKeys.SHOW_PAINTED_SHEETS, false)
+                .set(SettingKeys.SHOW_RESULT_REPORT, false)
+                .set(SettingKeys.CURR_TIMESTAMP, LocalDateTime.now().format(formatter))
+                .build();
+    }
+    
+    /**
+     * 比較メニューと比較対象のパスを含む設定セットに従って比較を実行し、終了コードを返します。<br>
+     *
+     * @param settings
+     *            比較メニューと比較対象のパスを含む設定セット
+     * @param err
+     *            進捗状況とエラーの出力先
+     * @return 終了コード
+     */
+    /* package */ static int execute(Settings settings, PrintStream err) {
+        assert settings != null;
+        assert err != null;
+        
+        try {
+            settings = withComparisonInfo(settings);
+        } catch (ApplicationException e) {
+            err.println(e.getMessage());
+            return EXIT_FAILED;
+        }
+        
+        AppMenu menu = settings.get(SettingKeys.CURR_MENU);
+        if (!menu.isValidTargets(settings)) {
+            err.println(Msg.APP_1180.get());
+            return EXIT_INVALID_ARGS;
+        }
+        
+        try {
+            Files.createDirectories(settings.get(SettingKeys.WORK_DIR_BASE)
+                    .resolve(settings.get(SettingKeys.CURR_TIMESTAMP)));
+            
+            Result result = menu.getTask(settings).callHeadless(err::print);
+            err.flush();
+            
+            return result.hasDiff() ? EXIT_DIFF_FOUND : EXIT_NO_DIFF;
+            
+        } catch (Exception e) {
+            ErrorReporter.reportIfEnabled(e, "AppHeadless::execute-1");
+            err.println();
+            err.println("%s%n%s".formatted(e.getClass().getName(), e.getMessage()));
+            return EXIT_FAILED;
+        }
+    }
+    
+    /**
+     * 設定セットに含まれる比較メニューと比較対象のパスに従って比較対象を読み込み、
+     * 比較情報を加えた設定セットを返します。<br>
+     * 組み合わせの計算は、呼び出し元のスレッドに割り込みが要求されると中断されます。<br>
+     *
+     * @param settings
+     *            比較メニューと比較対象のパスを含む設定セット
+     * @return 比較情報を加えた設定セット
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     * @throws ApplicationException
+     *             比較対象の読み込みに失敗した場合、または組み合わせの計算が中断された場合
+     */
+    public static Settings withComparisonInfo(Settings settings) throws ApplicationException {
+        Objects.requireNonNull(settings);
+        
+        try {
+            return withComparisonInfo2(settings);
+        } catch (CancellationException e) {
+            throw new ApplicationException(Msg.APP_0150.get() + " at AppHeadless::withComparisonInfo", e);
+        }
+    }
+    
+    private static Settings withComparisonInfo2(Settings settings) throws ApplicationException {
+        assert settings != null;
+        
+        AppMenu menu = settings.get(SettingKeys.CURR_MENU);
+        Pair<Path> pathPair = SettingKeys.CURR_ARG_PATHS.map(settings::get);
+        Map<Path, String> readPasswords = settings.get(SettingKeys.CURR_READ_PASSWORDS);
+        Thread current = Thread.currentThread();
+        MatchBudget budget = MatchBudget.of(current::isInterrupted);
+        
+        return switch (menu) {
+        case COMPARE_BOOKS -> {
+            Pair<BookInfo> bookInfoPair = pathPair.unsafeMap(path -> loadBookInfo(path, readPasswords));
+            yield settings.getAltered(
+                    SettingKeys.CURR_BOOK_COMPARE_INFO,
+                    PairingInfoBooks.calculate(bookInfoPair, Factory.sheetNamesMatcher(settings), budget));
+        }
+        case COMPARE_DIRS, COMPARE_TREES -> {
+            Pair<DirInfo> dirInfoPair = pathPair.unsafeMap(path -> loadDirInfo(path, settings));
+            PairingInfoDirs dirComparison = PairingInfoDirs.calculate(
+                    dirInfoPair,
+                    Factory.dirInfosMatcher(settings),
+                    Factory.bookInfosMatcher(settings),
+                    Factory.sheetNamesMatcher(settings),
+                    readPasswords,
+                    budget);
+            yield settings.getAltered(
+                    menu == AppMenu.COMPARE_DIRS
+                            ? SettingKeys.CURR_DIR_COMPARE_INFO
+                            : SettingKeys.CURR_TREE_COMPARE_INFO,
+                    dirComparison);
+        }
+        default -> throw new ApplicationException("not supported: " + menu);
+        };
+    }
+    
+    private static BookInfo loadBookInfo(Path bookPath, Map<Path, String> readPasswords)
+            throws ApplicationException {
+        
+        try {
+            BookInfo bookInfo = Factory.bookInfoLoader(bookPath)
+                    .loadBookInfo(bookPath, readPasswords.get(bookPath));
+            if (bookInfo.status() == Status.LOAD_COMPLETED) {
+                return bookInfo;
+            }
+        } catch (RuntimeException e) {
+            ErrorReporter.reportIfEnabled(e, "AppHeadless::loadBookInfo-1");
+        }
+        throw new ApplicationException("%s%n%s".formatted(Msg.APP_1140.get(), bookPath));
+    }
+    
+    private static DirInfo loadDirInfo(Path dirPath, Settings settings) throws ApplicationException {
+        try {
+            return Factory.dirInfoLoader(settings).loadDirInfo(dirPath);
+            
+        } catch (Exception e) {
+            ErrorReporter.reportIfEnabled(e, "AppHeadless::loadDirInfo-1");
+            throw new ApplicationException("%s%n%s".formatted(Msg.APP_1160.get(), dirPath), e);
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    private AppHeadless() {
+    }
+}
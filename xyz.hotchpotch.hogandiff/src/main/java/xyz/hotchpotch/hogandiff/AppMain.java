@@ -51,6 +51,17 @@ public class AppMain extends Application {
      *            アプリケーション実行時引数
      */
     public static void main(String[] args) {
+        // GUIを起動しない実行の場合は、JavaFXランタイムを起動せずに比較を行って終了する。
+        if (AppServer.isServer(args)) {
+            System.exit(AppServer.run(args, appResource.settings(), System.err));
+        }
+        if (AppBatch.isBatch(args)) {
+            System.exit(AppBatch.run(args, appResource.settings(), System.err));
+        }
+        if (AppArgsParser.isHeadless(args)) {
+            System.exit(AppHeadless.run(args, appResource.settings(), System.err));
+        }
+        
         try {
             appResource.reflectArgs(args);
         } catch (Exception e) {
@@ -61,6 +72,23 @@ public class AppMain extends Application {
         launch(args);
     }
     
+    /**
+     * 大きなExcelファイルを扱うために、Apache POI の Zip bomb 対策の制限を緩和します。<br>
+     */
+    /* package */ static void relaxZipSecureLimits() {
+        // Zip bomb対策の制限の緩和。規定値の0.01から0.001に変更する。
+        // いささか乱暴ではあるものの、ファイルを開く都度ではなくここで一括で設定してしまう。
+        ZipSecureFile.setMinInflateRatio(0.001);
+        
+        // 多数のシートを含むExcelファイルを扱うための制限の緩和。
+        // 規定値の 1,000 から 100,000 に変更する。
+        ZipSecureFile.setMaxFileCount(100_000);
+        
+        // 念のためこれも変更しておく。
+        // 規定値の 4,294,967,295 [0xffffffff] から Long.MAX_VALUE に変更する。
+        ZipSecureFile.setMaxEntrySize(Long.MAX_VALUE);
+    }
+    
     // [instance members] ******************************************************
     
     /**
@@ -79,17 +107,7 @@ public class AppMain extends Application {
             
             VersionMaster.announceNewFeature1();
             
-            // Zip bomb対策の制限の緩和。規定値の0.01から0.001に変更する。
-            // いささか乱暴ではあるものの、ファイルを開く都度ではなくここで一括で設定してしまう。
-            ZipSecureFile.setMinInflateRatio(0.001);
-            
-            // 多数のシートを含むExcelファイルを扱うための制限の緩和。
-            // 規定値の 1,000 から 100,000 に変更する。
-            ZipSecureFile.setMaxFileCount(100_000);
-            
-            // 念のためこれも変更しておく。
-            // 規定値の 4,294,967,295 [0xffffffff] から Long.MAX_VALUE に変更する。
-            ZipSecureFile.setMaxEntrySize(Long.MAX_VALUE);
+            relaxZipSecureLimits();
             
             FXMLLoader loader = new FXMLLoader(
                     getClass().getResource("gui/MainView.fxml"),
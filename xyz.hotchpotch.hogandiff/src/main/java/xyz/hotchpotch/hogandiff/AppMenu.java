@@ -4,9 +4,9 @@ import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
-import javafx.concurrent.Task;
 import xyz.hotchpotch.hogandiff.logic.PairingInfoBooks;
 import xyz.hotchpotch.hogandiff.logic.PairingInfoDirs;
+import xyz.hotchpotch.hogandiff.tasks.CompareTask;
 import xyz.hotchpotch.hogandiff.tasks.CompareTaskBooks;
 import xyz.hotchpotch.hogandiff.tasks.CompareTaskDirs;
 import xyz.hotchpotch.hogandiff.tasks.CompareTaskSheets;
@@ -79,11 +79,11 @@ public enum AppMenu {
     
     // [instance members] ******************************************************
     
-    private final Function<Settings, Task<Void>> taskFactory;
+    private final Function<Settings, CompareTask> taskFactory;
     private final Predicate<Settings> targetValidator;
     
     private AppMenu(
-            Function<Settings, Task<Void>> taskFactory,
+            Function<Settings, CompareTask> taskFactory,
             Predicate<Settings> targetValidator) {
         
         assert taskFactory != null;
@@ -115,7 +115,7 @@ public enum AppMenu {
      * @return 新しいタスク
      * @throws NullPointerException パラメータが {@code null} の場合
      */
-    public Task<Void> getTask(Settings settings) {
+    public CompareTask getTask(Settings settings) {
         Objects.requireNonNull(settings);
         
         return taskFactory.apply(settings);
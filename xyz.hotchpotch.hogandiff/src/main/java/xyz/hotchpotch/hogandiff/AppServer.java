@@ -0,0 +1,868 @@
+package xyz.hotchpotch.hogandiff;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import xyz.hotchpotch.hogandiff.AppBatch.Item;
+import xyz.hotchpotch.hogandiff.logic.BatchCache;
+import xyz.hotchpotch.hogandiff.logic.Factory;
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+/**
+ * 比較処理をローカルのHTTPサービスとして提供するためのエントリポイントです。<br>
+ * <br>
+ * ループバックアドレスでのみ待ち受け、次のエンドポイントを提供します。<br>
+ * <ul>
+ *   <li>{@code POST /uploads?name=ファイル名} : リクエストボディのExcelブックを保存し、そのパスを返す</li>
+ *   <li>{@code POST /jobs} : {@code {"a": "比較対象A", "b": "比較対象B", "options": [..]}} の比較をキューに登録する</li>
+ *   <li>{@code GET /jobs/{id}} : 比較の状態を返す</li>
+ *   <li>{@code GET /jobs/{id}/progress} : 比較の進捗状況を比較の終了までストリーミングする</li>
+ *   <li>{@code GET /jobs/{id}/result} : 比較結果を NDJSON 形式で返す</li>
+ *   <li>{@code GET /jobs/{id}/files}, {@code GET /jobs/{id}/files/{path}} : 着色したExcelブックなどの一覧と内容を返す</li>
+ *   <li>{@code POST /shutdown} : サービスを停止する</li>
+ * </ul>
+ * すべてのリクエストには、サービスの開始時に出力されるトークンを {@code X-Hogandiff-Token} ヘッダで指定する必要があります。
+ * また、ブラウザ上の他のサイトからの要求を防ぐため、ループバック以外の {@code Host}, {@code Origin} ヘッダを持つリクエストは拒否します。<br>
+ * 比較は同時実行数と待ち行列の長さが制限されたワーカースレッドのプールで実行し、
+ * 待ち行列が満杯の場合は {@code 503} を返します。
+ * Java仮想マシンとExcelブックの読み込み結果のキャッシュは、サービスの停止まで維持されます。<br>
+ * 保持する比較の数が上限を超えると、終了した比較から順にその作業用フォルダと
+ * どの比較からも参照されなくなったアップロードを削除します。<br>
+ *
+ * @author nmby
+ */
+public final class AppServer implements AutoCloseable {
+    
+    // [static members] ********************************************************
+    
+    private static final String SERVE_OPTION = "--serve=";
+    private static final String THREADS_OPTION = "--serve-threads=";
+    private static final String QUEUE_OPTION = "--serve-queue=";
+    
+    /** アクセス用トークンを指定するリクエストヘッダ */
+    public static final String TOKEN_HEADER = "X-Hogandiff-Token";
+    
+    /** ループバックアドレスを表すホスト名 */
+    private static final List<String> LOOPBACK_HOSTS = List.of("127.0.0.1", "localhost", "[::1]");
+    
+    /** 待ち行列の長さの既定値 */
+    private static final int DEFAULT_QUEUE_CAPACITY = 16;
+    
+    /** 状態を保持しておく比較の最大数 */
+    private static final int MAX_RETAINED_JOBS = 1024;
+    
+    /** どの比較からも参照されずに保持しておくアップロードの最大数 */
+    private static final int MAX_IDLE_UPLOADS = 64;
+    
+    /** アップロードできるExcelブックの最大サイズ（バイト） */
+    private static final long MAX_UPLOAD_BYTES = 256L * 1024 * 1024;
+    
+    /** サービスの実行中に保持するExcelブック情報の最大数 */
+    private static final int BOOK_INFO_CACHE_CAPACITY = 4096;
+    
+    /** サービスの実行中に保持する Shared Strings の最大数 */
+    private static final int SHARED_STRINGS_CACHE_CAPACITY = 64;
+    
+    /** 進捗状況のストリーミングで、新たな出力を待つ最大時間（ミリ秒） */
+    private static final long PROGRESS_POLL_MILLIS = 1000;
+    
+    /** 進捗状況のストリーミングで、一度に読み込む最大バイト数 */
+    private static final int PROGRESS_CHUNK_BYTES = 64 * 1024;
+    
+    /** サービスの停止時に、実行中の比較とリクエストの処理の終了を待つ最大時間（ミリ秒） */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    
+    /**
+     * キューに登録された比較1件を表します。<br>
+     * 比較処理の進捗状況の出力先を兼ねます。
+     * 進捗状況はヒープには保持せず、比較の作業用フォルダ内の {@code log.txt} に書き出します。<br>
+     *
+     * @author nmby
+     */
+    private static final class Job extends OutputStream {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final String id;
+        private final Path dir;
+        private final Item item;
+        
+        /** この比較が参照するアップロードのフォルダ */
+        private final List<Path> uploads;
+        
+        private final Path logFile;
+        private OutputStream log;
+        private long logSize;
+        private String status = "queued";
+        private int exitCode = -1;
+        
+        private Job(String id, Path dir, Item item, List<Path> uploads) {
+            this.id = id;
+            this.dir = dir;
+            this.item = item;
+            this.uploads = uploads;
+            this.logFile = dir.resolve("log.txt");
+        }
+        
+        @Override
+        public synchronized void write(int b) throws IOException {
+            log.write(b);
+            logSize++;
+            notifyAll();
+        }
+        
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            log.write(b, off, len);
+            logSize += len;
+            notifyAll();
+        }
+        
+        @Override
+        public synchronized void close() throws IOException {
+            if (log != null) {
+                log.close();
+            }
+        }
+        
+        /**
+         * 作業用フォルダを作成し、進捗状況の出力先のファイルを開きます。<br>
+         */
+        private synchronized void started() throws IOException {
+            Files.createDirectories(dir);
+            log = Files.newOutputStream(logFile);
+            status = "running";
+        }
+        
+        private synchronized void finished(int exitCode) {
+            this.exitCode = exitCode;
+            this.status = AppBatch.statusOf(exitCode);
+            notifyAll();
+        }
+        
+        private synchronized boolean isFinished() {
+            return 0 <= exitCode;
+        }
+        
+        /**
+         * 進捗状況の出力のうち、指定された位置以降を {@link #PROGRESS_CHUNK_BYTES} バイトまで返します。<br>
+         * 新たな出力が無く比較が終了していない場合は、一定時間だけ出力を待ちます。<br>
+         */
+        private byte[] logSince(long from) throws IOException, InterruptedException {
+            long size;
+            synchronized (this) {
+                if (logSize <= from && !isFinished()) {
+                    wait(PROGRESS_POLL_MILLIS);
+                }
+                size = logSize;
+            }
+            if (size <= from) {
+                return new byte[0];
+            }
+            
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size - from, PROGRESS_CHUNK_BYTES));
+            try (FileChannel channel = FileChannel.open(logFile)) {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, from + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+            }
+            buffer.flip();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        
+        private synchronized JSONObject toJson() {
+            JSONObject json = new JSONObject()
+                    .put("id", id)
+                    .put("a", item.pathA().toString())
+                    .put("b", item.pathB().toString())
+                    .put("status", status);
+            if (isFinished()) {
+                json.put("exitCode", exitCode);
+            }
+            return json;
+        }
+    }
+    
+    /**
+     * リクエストを処理するハンドラです。<br>
+     *
+     * @author nmby
+     */
+    @FunctionalInterface
+    private static interface Handler {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        void handle(HttpExchange exchange) throws IOException, InterruptedException;
+    }
+    
+    /**
+     * アプリケーション実行時引数にHTTPサービスとしての実行が指定されているかを返します。<br>
+     *
+     * @param args
+     *            アプリケーション実行時引数
+     * @return {@code --serve=ポート番号} が指定されている場合は {@code true}
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public static boolean isServer(String[] args) {
+        Objects.requireNonNull(args);
+        
+        return Stream.of(args).anyMatch(arg -> arg.startsWith(SERVE_OPTION));
+    }
+    
+    /**
+     * アプリケーション実行時引数に従ってHTTPサービスを開始し、
+     * {@code POST /shutdown} によって停止されるまで待機して終了コードを返します。<br>
+     * 同時実行数は {@code --serve-threads=n}、待ち行列の長さは {@code --serve-queue=n} で指定します。<br>
+     *
+     * @param args
+     *            アプリケーション実行時引数
+     * @param baseSettings
+     *            各比較に適用する設定セット
+     * @param err
+     *            サービスの状態とエラーの出力先
+     * @return 終了コード
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public static int run(String[] args, Settings baseSettings, PrintStream err) {
+        Objects.requireNonNull(args);
+        Objects.requireNonNull(baseSettings);
+        Objects.requireNonNull(err);
+        
+        int port = -1;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        
+        try {
+            for (String arg : args) {
+                if (arg.startsWith(SERVE_OPTION)) {
+                    port = Integer.parseInt(arg.substring(SERVE_OPTION.length()));
+                } else if (arg.startsWith(THREADS_OPTION)) {
+                    threads = Integer.parseInt(arg.substring(THREADS_OPTION.length()));
+                } else if (arg.startsWith(QUEUE_OPTION)) {
+                    queueCapacity = Integer.parseInt(arg.substring(QUEUE_OPTION.length()));
+                } else {
+                    port = -1;
+                    break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            port = -1;
+        }
+        if (port < 0 || 65535 < port || threads < 1 || queueCapacity < 1) {
+            err.print(AppArgsParser.USAGE);
+            return AppHeadless.EXIT_INVALID_ARGS;
+        }
+        
+        AppMain.relaxZipSecureLimits();
+        
+        try (AppServer server = start(port, threads, queueCapacity, baseSettings)) {
+            err.println("listening on http://%s:%d/".formatted(
+                    InetAddress.getLoopbackAddress().getHostAddress(), server.port()));
+            err.println("%s: %s".formatted(TOKEN_HEADER, server.token()));
+            server.awaitStop();
+            return AppHeadless.EXIT_NO_DIFF;
+            
+        } catch (Exception e) {
+            ErrorReporter.reportIfEnabled(e, "AppServer::run-1");
+            err.println("%s%n%s".formatted(e.getClass().getName(), e.getMessage()));
+            return AppHeadless.EXIT_FAILED;
+        }
+    }
+    
+    /**
+     * HTTPサービスを開始します。<br>
+     * 返されたサービスは、不要になった時点で必ず {@link #close()} してください。<br>
+     *
+     * @param port
+     *            待ち受けるポート番号（{@code 0} の場合は空いているポート）
+     * @param threads
+     *            比較の同時実行数
+     * @param queueCapacity
+     *            実行を待つ比較の最大数
+     * @param baseSettings
+     *            各比較に適用する設定セット
+     * @return 開始したサービス
+     * @throws NullPointerException
+     *             {@code baseSettings} が {@code null} の場合
+     * @throws IllegalArgumentException
+     *             {@code threads}, {@code queueCapacity} が {@code 1} 未満の場合
+     * @throws IllegalStateException
+     *             他の一括比較またはサービスが実行中の場合
+     * @throws IOException
+     *             サービスの開始に失敗した場合
+     */
+    public static AppServer start(int port, int threads, int queueCapacity, Settings baseSettings)
+            throws IOException {
+        
+        Objects.requireNonNull(baseSettings);
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("threads: %d, queueCapacity: %d".formatted(threads, queueCapacity));
+        }
+        
+        Path serverDir = baseSettings.get(SettingKeys.WORK_DIR_BASE)
+                .resolve("server-" + LocalDateTime.now().format(formatter));
+        Files.createDirectories(serverDir);
+        
+        BatchCache cache = BatchCache.open(BOOK_INFO_CACHE_CAPACITY, SHARED_STRINGS_CACHE_CAPACITY);
+        HttpServer httpServer;
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            cache.close();
+            throw e;
+        }
+        
+        AppServer server = new AppServer(httpServer, threads, queueCapacity, cache, serverDir, baseSettings);
+        httpServer.start();
+        return server;
+    }
+    
+    private static void sendJson(HttpExchange exchange, int code, Object json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(code, body.length);
+        exchange.getResponseBody().write(body);
+    }
+    
+    private static void sendError(HttpExchange exchange, int code, String message) throws IOException {
+        sendJson(exchange, code, new JSONObject().put("error", message));
+    }
+    
+    private static void sendFile(HttpExchange exchange, Path file, String contentType) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, Files.size(file));
+        Files.copy(file, exchange.getResponseBody());
+    }
+    
+    /**
+     * 指定されたフォルダをその内容ごと削除します。<br>
+     * 削除できないファイルがある場合は、それを飛ばして削除処理を継続します。<br>
+     */
+    private static void deleteTree(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    ErrorReporter.reportIfEnabled(e, "AppServer::deleteTree-1");
+                }
+            });
+        } catch (IOException e) {
+            ErrorReporter.reportIfEnabled(e, "AppServer::deleteTree-2");
+        }
+    }
+    
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+    
+    private static Map<String, String> queryOf(HttpExchange exchange) {
+        Map<String, String> query = new LinkedHashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw != null) {
+            for (String param : raw.split("&")) {
+                String[] keyValue = param.split("=", 2);
+                query.put(
+                        URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
+                        keyValue.length < 2 ? "" : URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final HttpServer httpServer;
+    private final ExecutorService httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ThreadPoolExecutor jobExecutor;
+    private final BatchCache cache;
+    private final Path serverDir;
+    private final Path uploadsDir;
+    private final Settings baseSettings;
+    private final AtomicLong jobSeq = new AtomicLong();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final String token = newToken();
+    
+    /** 保持している比較。{@link #uploads} の操作もこのオブジェクトで同期する。 */
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    
+    /** アップロードのフォルダと、それを参照する保持中の比較の数 */
+    private final Map<Path, Integer> uploads = new LinkedHashMap<>();
+    
+    private AppServer(
+            HttpServer httpServer,
+            int threads,
+            int queueCapacity,
+            BatchCache cache,
+            Path serverDir,
+            Settings baseSettings) {
+        
+        this.httpServer = httpServer;
+        this.jobExecutor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+        this.cache = cache;
+        this.serverDir = serverDir;
+        this.uploadsDir = serverDir.toAbsolutePath().resolve("uploads");
+        this.baseSettings = baseSettings;
+        
+        // 進捗状況のストリーミングは比較の終了まで続くため、リクエストごとに仮想スレッドで処理する。
+        httpServer.setExecutor(httpExecutor);
+        httpServer.createContext("/uploads", exchange -> handle(exchange, this::handleUpload));
+        httpServer.createContext("/jobs", exchange -> handle(exchange, this::handleJobs));
+        httpServer.createContext("/shutdown", exchange -> handle(exchange, this::handleShutdown));
+    }
+    
+    private void handle(HttpExchange exchange, Handler handler) {
+        try (exchange) {
+            if (!isLocalRequest(exchange)) {
+                sendError(exchange, 403, "forbidden host or origin");
+                return;
+            }
+            String requestToken = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+            if (requestToken == null || !MessageDigest.isEqual(
+                    requestToken.getBytes(StandardCharsets.UTF_8),
+                    token.getBytes(StandardCharsets.UTF_8))) {
+                
+                sendError(exchange, 401, "missing or invalid " + TOKEN_HEADER);
+                return;
+            }
+            handler.handle(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // クライアントとの接続が切れた場合などは、ここで処理を打ち切る。
+        } catch (RuntimeException e) {
+            ErrorReporter.reportIfEnabled(e, "AppServer::handle-1");
+            try {
+                sendError(exchange, 500, e.toString());
+            } catch (IOException e2) {
+                // nop
+            }
+        }
+    }
+    
+    /**
+     * リクエストの {@code Host} ヘッダがこのサービスのループバックアドレスを指し、
+     * かつ {@code Origin} ヘッダが無いかループバックアドレスを指すかを返します。<br>
+     * DNSリバインディングやブラウザ上の他のサイトからの要求を拒否するためのものです。<br>
+     */
+    private boolean isLocalRequest(HttpExchange exchange) {
+        List<String> allowedHosts = LOOPBACK_HOSTS.stream()
+                .map(host -> "%s:%d".formatted(host, port()))
+                .toList();
+        
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null || allowedHosts.stream().noneMatch(host::equalsIgnoreCase)) {
+            return false;
+        }
+        String origin = exchange.getRequestHeaders().getFirst("Origin");
+        return origin == null || allowedHosts.stream()
+                .anyMatch(allowed -> ("http://" + allowed).equalsIgnoreCase(origin));
+    }
+    
+    private void handleUpload(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "method not allowed");
+            return;
+        }
+        String name = queryOf(exchange).get("name");
+        Path fileName = name == null || name.isBlank() ? null : Path.of(name).getFileName();
+        if (fileName == null) {
+            sendError(exchange, 400, "name is required");
+            return;
+        }
+        
+        Path dir = uploadsDir.resolve(UUID.randomUUID().toString());
+        Path dst = dir.resolve(fileName);
+        Files.createDirectories(dir);
+        long size = 0;
+        try (InputStream body = exchange.getRequestBody();
+                OutputStream out = Files.newOutputStream(dst)) {
+            
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = body.read(buf)) != -1) {
+                size += n;
+                if (MAX_UPLOAD_BYTES < size) {
+                    break;
+                }
+                out.write(buf, 0, n);
+            }
+        }
+        if (MAX_UPLOAD_BYTES < size) {
+            deleteTree(dir);
+            sendError(exchange, 413, "upload exceeds %d bytes".formatted(MAX_UPLOAD_BYTES));
+            return;
+        }
+        
+        List<Path> garbage = new ArrayList<>();
+        synchronized (jobs) {
+            uploads.put(dir, 0);
+            long idle = uploads.values().stream().filter(count -> count == 0).count();
+            Iterator<Map.Entry<Path, Integer>> itr = uploads.entrySet().iterator();
+            while (MAX_IDLE_UPLOADS < idle && itr.hasNext()) {
+                Map.Entry<Path, Integer> entry = itr.next();
+                if (entry.getValue() == 0) {
+                    itr.remove();
+                    garbage.add(entry.getKey());
+                    idle--;
+                }
+            }
+        }
+        garbage.forEach(AppServer::deleteTree);
+        
+        sendJson(exchange, 201, new JSONObject().put("path", dst.toString()));
+    }
+    
+    private void handleJobs(HttpExchange exchange) throws IOException, InterruptedException {
+        // パスを "jobs", ID, 操作, 以降のパス に分解する。
+        String[] segments = exchange.getRequestURI().getPath().replaceFirst("^/+", "").split("/", 4);
+        String method = exchange.getRequestMethod();
+        
+        if (segments.length == 1 || segments[1].isEmpty()) {
+            if ("POST".equals(method)) {
+                submit(exchange);
+            } else {
+                sendError(exchange, 405, "method not allowed");
+            }
+            return;
+        }
+        if (!"GET".equals(method)) {
+            sendError(exchange, 405, "method not allowed");
+            return;
+        }
+        
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(segments[1]);
+        }
+        if (job == null) {
+            sendError(exchange, 404, "no such job: " + segments[1]);
+            return;
+        }
+        
+        switch (segments.length == 2 ? "" : segments[2]) {
+        case "" -> sendJson(exchange, 200, job.toJson());
+        case "progress" -> streamProgress(exchange, job);
+        case "result" -> sendResult(exchange, job);
+        case "files" -> {
+            if (segments.length == 3) {
+                sendFileList(exchange, job);
+            } else {
+                sendJobFile(exchange, job, segments[3]);
+            }
+        }
+        default -> sendError(exchange, 404, "not found");
+        }
+    }
+    
+    private void submit(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || !contentType.regionMatches(true, 0, "application/json", 0, 16)) {
+            sendError(exchange, 415, "Content-Type must be application/json");
+            return;
+        }
+        
+        Item item;
+        try (InputStream body = exchange.getRequestBody()) {
+            JSONObject json = new JSONObject(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            List<String> options = new ArrayList<>();
+            JSONArray jsonOptions = json.optJSONArray("options");
+            if (jsonOptions != null) {
+                for (int i = 0; i < jsonOptions.length(); i++) {
+                    options.add(jsonOptions.getString(i));
+                }
+            }
+            item = new Item(0, Path.of(json.getString("a")), Path.of(json.getString("b")), List.copyOf(options));
+            
+        } catch (JSONException | IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        
+        Optional<Settings> fromArgs = AppArgsParser.parseArgs(item.toArgs(List.of()));
+        if (fromArgs.isEmpty()) {
+            sendError(exchange, 400, AppArgsParser.USAGE);
+            return;
+        }
+        
+        // 比較の実行中にアップロードが削除されないよう、実行前に参照を登録しておく。
+        List<Path> referenced = Stream.of(item.pathA(), item.pathB())
+                .map(this::uploadDirOf)
+                .flatMap(Optional::stream)
+                .distinct()
+                .toList();
+        List<Path> claimed;
+        synchronized (jobs) {
+            claimed = referenced.stream().filter(uploads::containsKey).toList();
+            claimed.forEach(dir -> uploads.merge(dir, 1, Integer::sum));
+        }
+        
+        String id = Long.toString(jobSeq.incrementAndGet());
+        Job job = new Job(id, serverDir.resolve("jobs").resolve(id), item, claimed);
+        try {
+            jobExecutor.execute(() -> execute(job, fromArgs.get()));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                claimed.forEach(dir -> uploads.merge(dir, -1, Integer::sum));
+            }
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "job queue is full");
+            return;
+        }
+        
+        List<Path> garbage;
+        synchronized (jobs) {
+            jobs.put(id, job);
+            garbage = evictJobs();
+        }
+        garbage.forEach(AppServer::deleteTree);
+        sendJson(exchange, 202, job.toJson());
+    }
+    
+    /**
+     * 指定されたパスがアップロードされたファイルを指す場合は、そのアップロードのフォルダを返します。<br>
+     */
+    private Optional<Path> uploadDirOf(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        if (!normalized.startsWith(uploadsDir) || normalized.getNameCount() <= uploadsDir.getNameCount()) {
+            return Optional.empty();
+        }
+        return Optional.of(uploadsDir.resolve(normalized.getName(uploadsDir.getNameCount())));
+    }
+    
+    /**
+     * 保持する比較の数が上限を超えている間、終了した比較を古いものから順に破棄し、
+     * 削除すべき作業用フォルダとアップロードのフォルダを返します。<br>
+     * 実行中または実行待ちの比較は破棄しません。<br>
+     */
+    private List<Path> evictJobs() {
+        assert Thread.holdsLock(jobs);
+        
+        List<Path> garbage = new ArrayList<>();
+        Iterator<Job> itr = jobs.values().iterator();
+        while (MAX_RETAINED_JOBS < jobs.size() && itr.hasNext()) {
+            Job job = itr.next();
+            if (!job.isFinished()) {
+                continue;
+            }
+            itr.remove();
+            garbage.add(job.dir);
+            for (Path upload : job.uploads) {
+                if (uploads.merge(upload, -1, Integer::sum) == 0) {
+                    uploads.remove(upload);
+                    garbage.add(upload);
+                }
+            }
+        }
+        return garbage;
+    }
+    
+    private void execute(Job job, Settings fromArgs) {
+        int exitCode;
+        
+        try (PrintStream log = new PrintStream(job, true, StandardCharsets.UTF_8)) {
+            job.started();
+            Settings settings = AppHeadless.headlessSettings(
+                    baseSettings
+                            .getAltered(SettingKeys.SHEET_CACHE_DIR, Factory.sheetCacheDir(baseSettings))
+                            .getAltered(SettingKeys.WORK_DIR_BASE, job.dir),
+                    fromArgs)
+                    .getAltered(SettingKeys.REPORT_NDJSON, true);
+            exitCode = AppHeadless.execute(settings, log);
+            
+        } catch (IOException | RuntimeException e) {
+            // ひとつの比較の失敗がサービス全体に波及しないよう、ここで食い止める。
+            ErrorReporter.reportIfEnabled(e, "AppServer::execute-1");
+            exitCode = AppHeadless.EXIT_FAILED;
+        }
+        job.finished(exitCode);
+    }
+    
+    private void streamProgress(HttpExchange exchange, Job job) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        
+        long sent = 0;
+        while (true) {
+            boolean finished = job.isFinished();
+            byte[] bytes = job.logSince(sent);
+            if (0 < bytes.length) {
+                out.write(bytes);
+                out.flush();
+                sent += bytes.length;
+            } else if (finished) {
+                return;
+            }
+        }
+    }
+    
+    private void sendResult(HttpExchange exchange, Job job) throws IOException {
+        if (!job.isFinished()) {
+            sendError(exchange, 409, "job is not finished");
+            return;
+        }
+        Optional<Path> result = findFiles(job).stream()
+                .filter(path -> path.getFileName().toString().equals("result.ndjson"))
+                .findFirst();
+        if (result.isEmpty()) {
+            sendError(exchange, 404, "no result");
+            return;
+        }
+        sendFile(exchange, job.dir.resolve(result.get()), "application/x-ndjson; charset=UTF-8");
+    }
+    
+    private void sendFileList(HttpExchange exchange, Job job) throws IOException {
+        sendJson(exchange, 200, new JSONArray(findFiles(job).stream()
+                .map(path -> path.toString().replace('\\', '/'))
+                .toList()));
+    }
+    
+    private void sendJobFile(HttpExchange exchange, Job job, String relativePath) throws IOException {
+        Path file = job.dir.resolve(relativePath).normalize();
+        if (!file.startsWith(job.dir) || !Files.isRegularFile(file)) {
+            sendError(exchange, 404, "no such file: " + relativePath);
+            return;
+        }
+        sendFile(exchange, file, "application/octet-stream");
+    }
+    
+    /**
+     * 比較の作業用フォルダに含まれるファイルの、作業用フォルダからの相対パスを返します。<br>
+     */
+    private List<Path> findFiles(Job job) throws IOException {
+        if (!Files.isDirectory(job.dir)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(job.dir)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .map(job.dir::relativize)
+                    .sorted()
+                    .toList();
+        }
+    }
+    
+    private void handleShutdown(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "method not allowed");
+            return;
+        }
+        sendJson(exchange, 202, new JSONObject().put("status", "stopping"));
+        stopped.countDown();
+    }
+    
+    /**
+     * このサービスが待ち受けているポート番号を返します。<br>
+     *
+     * @return ポート番号
+     */
+    public int port() {
+        return httpServer.getAddress().getPort();
+    }
+    
+    /**
+     * このサービスへのリクエストに {@value #TOKEN_HEADER} ヘッダで指定すべきトークンを返します。<br>
+     * トークンはサービスごとに無作為に生成されます。<br>
+     *
+     * @return アクセス用トークン
+     */
+    public String token() {
+        return token;
+    }
+    
+    /**
+     * {@code POST /shutdown} によってサービスの停止が要求されるまで待機します。<br>
+     *
+     * @throws InterruptedException
+     *             待機中に割り込まれた場合
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+    
+    /**
+     * このサービスを停止します。<br>
+     * 実行中の比較には割り込みを行い、待ち行列の比較は破棄します。
+     * 割り込まれた比較とリクエストの処理が終了するまで一定時間待ってから、キャッシュを閉じます。<br>
+     */
+    @Override
+    public void close() {
+        stopped.countDown();
+        httpServer.stop(0);
+        jobExecutor.shutdownNow();
+        httpExecutor.shutdownNow();
+        
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MILLIS);
+            if (jobExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                httpExecutor.awaitTermination(
+                        Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cache.close();
+        }
+    }
+}
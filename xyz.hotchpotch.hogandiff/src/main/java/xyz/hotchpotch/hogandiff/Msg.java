@@ -95,6 +95,9 @@ public enum Msg {
     /** シート同士の比較を開始します。 */
     APP_0290,
     
+    /** ※ .xlsb 形式のExcelブックからは数式を抽出できないため、数式ではなく値で比較しました。 */
+    APP_0300,
+    
     /** フォルダツリー同士の比較を開始します。 */
     APP_0320,
     
@@ -194,9 +197,18 @@ public enum Msg {
     /** 差分セル : */
     APP_0800,
     
+    /** （制限時間超過のため簡易比較による近似結果） */
+    APP_0810,
+    
     /** ルートフォルダ%s : */
     APP_0820,
     
+    /** …ほか%d件は省略しました（result.txt を参照してください） */
+    APP_0830,
+    
+    /** 比較結果（NDJSON形式）の出力に失敗しました。 */
+    APP_0840,
+    
     /** 組み合わせ編集 */
     APP_0860,
     
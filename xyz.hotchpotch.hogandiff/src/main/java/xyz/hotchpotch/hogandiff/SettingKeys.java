@@ -66,6 +66,18 @@ public class SettingKeys {
             Path::of,
             true);
     
+    /**
+     * 読み込んだシートのキャッシュの保存先フォルダのパス。<br>
+     * 未設定の場合は、作業用フォルダの作成場所の配下とする。
+     * 作業用フォルダの作成場所を比較ごとに付け替える場合に、キャッシュを比較間で共有するために設定する。
+     */
+    public static final Key<Path> SHEET_CACHE_DIR = new Key<>(
+            "application.sheetCacheDir",
+            () -> null,
+            Path::toString,
+            Path::of,
+            false);
+    
     /** 設定エリアを表示するか */
     public static final Key<Boolean> SHOW_SETTINGS = new Key<>(
             "application.showSettings",
@@ -143,6 +155,14 @@ public class SettingKeys {
             CURR_ARG_PATH1,
             CURR_ARG_PATH2);
     
+    /** 今回の実行をGUIを起動せずにコマンドラインで行うか */
+    public static final Key<Boolean> CURR_HEADLESS = new Key<>(
+            "current.headless",
+            () -> false,
+            String::valueOf,
+            Boolean::valueOf,
+            false);
+    
     /** 今回の実行におけるシート比較情報 */
     public static final Key<PairingInfoBooks> CURR_SHEET_COMPARE_INFO = new Key<>(
             "current.sheetComparison",
@@ -309,6 +329,97 @@ public class SettingKeys {
             Boolean::valueOf,
             true);
     
+    /**
+     * 実行オプション：シート1組あたりの行・列の対応付けの制限時間（秒）。<br>
+     * 超過した場合は簡易的な対応付けによる近似結果で代替する。0以下の場合は制限しない。
+     */
+    public static final Key<Integer> MATCHING_TIME_LIMIT_SECONDS = new Key<>(
+            "execution.matchingTimeLimitSeconds",
+            () -> 0,
+            String::valueOf,
+            Integer::valueOf,
+            true);
+    
+    /**
+     * 実行オプション：.xlsx/.xlsm 形式のワークシートの読み取りにStAXを利用するか。<br>
+     * 利用できない場合や失敗した場合は、SAXによる読み取りで代替する。
+     */
+    public static final Key<Boolean> READ_WORKSHEETS_WITH_STAX = new Key<>(
+            "execution.readWorksheetsWithStax",
+            () -> false,
+            String::valueOf,
+            Boolean::valueOf,
+            true);
+    
+    /**
+     * 実行オプション：シート1枚あたりのセルデータをヒープ上に保持する上限（メガバイト）。<br>
+     * 超過した場合は作業用フォルダ配下の一時ファイルに退避する。0以下の場合は最大ヒープサイズの1/8とする。
+     */
+    public static final Key<Integer> CELLS_HEAP_BUDGET_MEGABYTES = new Key<>(
+            "execution.cellsHeapBudgetMegabytes",
+            () -> 0,
+            String::valueOf,
+            Integer::valueOf,
+            true);
+    
+    /**
+     * 実行オプション：読み込んだシートのセルデータをディスク上にキャッシュする容量の上限（メガバイト）。<br>
+     * 超過した場合は最も長い間参照されていないものから削除する。0以下の場合はキャッシュしない。
+     */
+    public static final Key<Integer> SHEET_CACHE_MEGABYTES = new Key<>(
+            "execution.sheetCacheMegabytes",
+            () -> 256,
+            String::valueOf,
+            Integer::valueOf,
+            true);
+    
+    /**
+     * 実行オプション：前回の比較の情報を引き継いで再比較を行うか。<br>
+     * 前回から変更の無いシートは読み込みを省略し、変更のあったシートは前回の行・列の対応付けを手掛かりに再比較する。
+     */
+    public static final Key<Boolean> INCREMENTAL_COMPARISON = new Key<>(
+            "execution.incrementalComparison",
+            () -> false,
+            String::valueOf,
+            Boolean::valueOf,
+            true);
+    
+    /**
+     * 実行オプション：列の挿入／削除を考慮せずに行の挿入／削除を考慮する場合に、
+     * 行同士の対応付けを一度に行う行数（ウィンドウの大きさ）。<br>
+     * 正の値の場合は、両シートの行を先頭から順に読み進めながらウィンドウの範囲内で対応付けを行う。
+     * 0以下の場合は、シート全体を一度に対応付ける。
+     */
+    public static final Key<Integer> ROW_WINDOW_SIZE = new Key<>(
+            "execution.rowWindowSize",
+            () -> 0,
+            String::valueOf,
+            Integer::valueOf,
+            true);
+    
+    /**
+     * 実行オプション：比較結果レポート（Excel形式）にシート1枚あたり出力する差分セルの上限。<br>
+     * 超過した分は省略した旨のみを出力する。0以下の場合は上限を設けない（ただしExcelの最大行数を超えて出力することはない）。
+     * 既定では上限を設けず、従来どおり全ての差分セルを出力する。
+     */
+    public static final Key<Integer> REPORT_MAX_DIFF_CELLS = new Key<>(
+            "execution.reportMaxDiffCells",
+            () -> 0,
+            String::valueOf,
+            Integer::valueOf,
+            true);
+    
+    /**
+     * 実行オプション：比較結果をNDJSON形式（シートの組み合わせ1組につき1行のJSON）でも
+     * 作業用フォルダの result.ndjson に逐次出力するか。<br>
+     */
+    public static final Key<Boolean> REPORT_NDJSON = new Key<>(
+            "execution.reportNdjson",
+            () -> false,
+            String::valueOf,
+            Boolean::valueOf,
+            true);
+    
     /** GoogleドライブからのファイルDL後に注意メッセージを表示するか */
     public static final Key<Boolean> SHOW_GOOGLE_DL_NOTICE = new Key<>(
             "application.showGoogleDLNotice",
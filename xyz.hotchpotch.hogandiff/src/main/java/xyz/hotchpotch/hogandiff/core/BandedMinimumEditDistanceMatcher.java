@@ -0,0 +1,410 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToIntFunction;
+
+import xyz.hotchpotch.hogandiff.util.IntPair;
+
+/**
+ * 2つのリスト間の編集距離が最小となるように要素同士を対応付ける {@link Matcher} の実装です。<br>
+ * {@link MinimumEditDistanceMatcher} と同じコストの対応付けを返しますが、
+ * エディットグラフのうち対角線の周辺の帯状の領域だけを探索することにより、
+ * 要素の挿入／削除が局所的である場合に高速に動作します。<br>
+ * <br>
+ * 帯の内側で求めた最適経路のコストが、帯の外側を通る経路のコストの下限以下であれば、
+ * その経路は全体としても最適です。そうでない場合は帯の幅を広げて探索し直します。
+ * 帯がエディットグラフ全体を覆う場合は {@link MinimumEditDistanceMatcher} に処理を委ねます。<br>
+ * <br>
+ * <strong>注意：</strong>
+ * 最適性の判定は、余剰コスト評価関数・差分コスト評価関数が非負の値を返すことを前提としています。
+ * 負のコストを返す評価関数を渡した場合、正しい結果が得られないことがあります。<br>
+ *
+ * @param <T> リストの要素の型
+ * @author nmby
+ */
+/*package*/ class BandedMinimumEditDistanceMatcher<T> extends MatcherBase<T> {
+    
+    // [static members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    /** 帯の幅の初期値（対角線からの片側の幅） */
+    private static final int INITIAL_BAND_WIDTH = 16;
+    
+    /** 帯の探索で保持する遷移方向の最大数。これを超える場合は全域探索に切り替える。 */
+    private static final long MAX_BAND_CELLS = Integer.MAX_VALUE - 8;
+    
+    /** 到達不能を表すコスト */
+    private static final long INF = Long.MAX_VALUE / 4;
+    
+    private static final byte NONE = 0;
+    private static final byte FROM_UPPER_LEFT = 1;
+    private static final byte FROM_UPPER = 2;
+    private static final byte FROM_LEFT = 3;
+    
+    /**
+     * 帯の内側での探索結果です。<br>
+     *
+     * @param cost 最適経路のコスト
+     * @param script 最適経路
+     */
+    private static record BandResult(long cost, EditScript script) {
+    }
+    
+    // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    private final MinimumEditDistanceMatcher<T> fullMatcher;
+    
+    /**
+     * コンストラクタ
+     *
+     * @param gapEvaluator 余剰評価関数
+     * @param diffEvaluator 差分評価関数
+     */
+    /*package*/ BandedMinimumEditDistanceMatcher(
+            ToIntFunction<? super T> gapEvaluator,
+            ToIntBiFunction<? super T, ? super T> diffEvaluator) {
+        
+        this(gapEvaluator, gapEvaluator, diffEvaluator);
+    }
+    
+    /**
+     * コンストラクタ
+     *
+     * @param gapEvaluatorA 比較対象Aに適用する余剰評価関数
+     * @param gapEvaluatorB 比較対象Bに適用する余剰評価関数
+     * @param diffEvaluator 差分評価関数
+     */
+    /*package*/ BandedMinimumEditDistanceMatcher(
+            ToIntFunction<? super T> gapEvaluatorA,
+            ToIntFunction<? super T> gapEvaluatorB,
+            ToIntBiFunction<? super T, ? super T> diffEvaluator) {
+        
+        this(gapEvaluatorA, gapEvaluatorB, diffEvaluator, ForkJoinPool.commonPool());
+        
+        assert gapEvaluatorA != null;
+        assert gapEvaluatorB != null;
+        assert diffEvaluator != null;
+    }
+    
+    /**
+     * コンストラクタ
+     *
+     * @param gapEvaluatorA 比較対象Aに適用する余剰評価関数
+     * @param gapEvaluatorB 比較対象Bに適用する余剰評価関数
+     * @param diffEvaluator 差分評価関数
+     * @param pool 全域探索のタイルの並列処理に用いるスレッドプール
+     */
+    /*package*/ BandedMinimumEditDistanceMatcher(
+            ToIntFunction<? super T> gapEvaluatorA,
+            ToIntFunction<? super T> gapEvaluatorB,
+            ToIntBiFunction<? super T, ? super T> diffEvaluator,
+            ForkJoinPool pool) {
+        
+        super(gapEvaluatorA, gapEvaluatorB, diffEvaluator);
+        
+        assert gapEvaluatorA != null;
+        assert gapEvaluatorB != null;
+        assert diffEvaluator != null;
+        assert pool != null;
+        
+        this.fullMatcher = new MinimumEditDistanceMatcher<>(gapEvaluatorA, gapEvaluatorB, diffEvaluator, pool);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、対応付けの結果を {@link EditScript} として返します。<br>
+     */
+    @Override
+    protected List<IntPair> makeIdxPairsMain(
+            List<? extends T> listA,
+            List<? extends T> listB,
+            MatchBudget budget) {
+        
+        // 親クラスでバリデーションチェック実施済み
+        
+        int[] gapCostsA = listA.parallelStream().mapToInt(gapEvaluatorA::applyAsInt).toArray();
+        int[] gapCostsB = listB.parallelStream().mapToInt(gapEvaluatorB::applyAsInt).toArray();
+        
+        // 帯の外側を通る経路のコストの下限を求めるために、
+        // 余剰コストの小さいものから k 個の和を参照できるようにしておく。
+        long[] smallestSumsA = smallestSums(gapCostsA);
+        long[] smallestSumsB = smallestSums(gapCostsB);
+        
+        // 余剰コストが 0 の要素（空行など）が多いと、帯の外側の下限が 0 となり
+        // 帯の内側の探索結果の最適性をほとんど確定できない。
+        // そのような幅での探索は行わず、下限が正となる幅まで初めから広げておく。
+        int w = widen(smallestSumsA, smallestSumsB, INITIAL_BAND_WIDTH, 1);
+        
+        while (!coversAll(listA.size(), listB.size(), w)
+                && (long) (listA.size() + 1) * bandSize(listA.size(), listB.size(), w) <= MAX_BAND_CELLS) {
+            
+            BandResult result = solveInBand(listA, listB, gapCostsA, gapCostsB, w, budget);
+            
+            if (result.cost() <= lowerBoundOutside(smallestSumsA, smallestSumsB, w)) {
+                return result.script();
+            }
+            
+            // 帯を広げた場合の最適コストは現在のコスト以下であるため、
+            // 帯の外側の下限が現在のコスト以上となる幅まで広げれば、次の探索で最適性が確定する。
+            w = widen(smallestSumsA, smallestSumsB, w, result.cost());
+        }
+        
+        return fullMatcher.makeIdxPairsMain(listA, listB, budget);
+    }
+    
+    /**
+     * 帯の外側の下限が {@code bound} 以上となるか帯がエディットグラフ全体を覆うまで、
+     * 帯の幅を倍々に広げて返します。<br>
+     *
+     * @param smallestSumsA リストAの余剰コストの小さいものから k 個の和
+     * @param smallestSumsB リストBの余剰コストの小さいものから k 個の和
+     * @param w 現在の帯の幅
+     * @param bound 帯の外側の下限として求める値
+     * @return 広げた帯の幅（条件を満たしている場合は {@code w}）
+     */
+    private static int widen(long[] smallestSumsA, long[] smallestSumsB, int w, long bound) {
+        int sizeA = smallestSumsA.length - 1;
+        int sizeB = smallestSumsB.length - 1;
+        
+        int next = w;
+        while (!coversAll(sizeA, sizeB, next) && lowerBoundOutside(smallestSumsA, smallestSumsB, next) < bound) {
+            next = next < Integer.MAX_VALUE / 2 ? next * 2 : Integer.MAX_VALUE;
+        }
+        return next;
+    }
+    
+    /**
+     * 幅 {@code w} の帯がエディットグラフ全体を覆うかを返します。<br>
+     *
+     * @param sizeA リストAの長さ
+     * @param sizeB リストBの長さ
+     * @param w 帯の幅
+     * @return 帯がエディットグラフ全体を覆う場合は {@code true}
+     */
+    private static boolean coversAll(int sizeA, int sizeB, int w) {
+        return (long) Math.min(0, sizeB - sizeA) - w <= -sizeA
+                && (long) Math.max(0, sizeB - sizeA) + w >= sizeB;
+    }
+    
+    /**
+     * 帯に含まれる対角線の本数を返します。<br>
+     *
+     * @param sizeA リストAの長さ
+     * @param sizeB リストBの長さ
+     * @param w 帯の幅
+     * @return 帯に含まれる対角線の本数
+     */
+    private static long bandSize(int sizeA, int sizeB, int w) {
+        return (long) Math.abs(sizeB - sizeA) + 2L * w + 1;
+    }
+    
+    /**
+     * 小さいものから k 個の要素の和を {@code k} 番目の要素に格納した配列を返します。<br>
+     *
+     * @param costs コストの配列
+     * @return 小さいものから k 個の要素の和の配列（長さは {@code costs.length + 1}）
+     */
+    private static long[] smallestSums(int[] costs) {
+        int[] sorted = costs.clone();
+        Arrays.sort(sorted);
+        
+        long[] sums = new long[sorted.length + 1];
+        for (int i = 0; i < sorted.length; i++) {
+            sums[i + 1] = sums[i] + sorted[i];
+        }
+        return sums;
+    }
+    
+    /**
+     * 幅 {@code w} の帯の外側を通る経路のコストの下限を返します。<br>
+     * 帯の上側に出る経路は少なくとも {@code kMax + 1} 個のBの余剰を含み、
+     * 帯の下側に出る経路は少なくとも {@code 1 - kMin} 個のAの余剰を含むことから求めます。<br>
+     *
+     * @param smallestSumsA リストAの余剰コストの小さいものから k 個の和
+     * @param smallestSumsB リストBの余剰コストの小さいものから k 個の和
+     * @param w 帯の幅
+     * @return 帯の外側を通る経路のコストの下限
+     */
+    private static long lowerBoundOutside(long[] smallestSumsA, long[] smallestSumsB, int w) {
+        int sizeA = smallestSumsA.length - 1;
+        int sizeB = smallestSumsB.length - 1;
+        int d = sizeB - sizeA;
+        long kMin = (long) Math.min(0, d) - w;
+        long kMax = (long) Math.max(0, d) + w;
+        
+        long upper = sumOf(smallestSumsB, kMax + 1) + sumOf(smallestSumsA, kMax + 1 - d);
+        long lower = sumOf(smallestSumsA, 1 - kMin) + sumOf(smallestSumsB, 1 - kMin + d);
+        
+        return Math.min(Math.min(upper, lower), INF);
+    }
+    
+    private static long sumOf(long[] smallestSums, long count) {
+        assert 0 <= count;
+        
+        return count < smallestSums.length
+                ? smallestSums[(int) count]
+                : INF;
+    }
+    
+    /**
+     * 幅 {@code w} の帯の内側で最適経路を求めます。<br>
+     * コストは対角線ごとに保持し、セル {@code (a, b)} のコストは
+     * 対角線 {@code k = b - a} に対応する位置 {@code k - kMin} に格納します。<br>
+     *
+     * @param listA 比較対象リストA
+     * @param listB 比較対象リストB
+     * @param gapCostsA リストAの要素の余剰コスト
+     * @param gapCostsB リストBの要素の余剰コスト
+     * @param w 帯の幅
+     * @param budget 打ち切り条件
+     * @return 帯の内側での最適経路とそのコスト
+     */
+    private BandResult solveInBand(
+            List<? extends T> listA,
+            List<? extends T> listB,
+            int[] gapCostsA,
+            int[] gapCostsB,
+            int w,
+            MatchBudget budget) {
+        
+        int sizeA = listA.size();
+        int sizeB = listB.size();
+        int kMin = Math.min(0, sizeB - sizeA) - w;
+        int kMax = Math.max(0, sizeB - sizeA) + w;
+        int width = kMax - kMin + 1;
+        
+        long[] prevCosts = new long[width + 1];
+        long[] currCosts = new long[width + 1];
+        int[] diffCosts = new int[width];
+        byte[] directions = new byte[(sizeA + 1) * width];
+        
+        Arrays.fill(prevCosts, INF);
+        
+        for (int a = 0; a <= sizeA; a++) {
+            budget.checkpoint();
+            Arrays.fill(currCosts, INF);
+            
+            int lo = Math.max(0, a + kMin);
+            int hi = Math.min(sizeB, a + kMax);
+            
+            // 差分コストは先に行の分をまとめて計算しておく。
+            // 1行あたりのセル数は帯の幅程度と少なく、行ごとに並列処理を起動しても割に合わないため、逐次計算する。
+            if (0 < a) {
+                T elemA = listA.get(a - 1);
+                int from = Math.max(1, lo);
+                for (int b = from; b <= hi; b++) {
+                    diffCosts[b - from] = diffEvaluator.applyAsInt(elemA, listB.get(b - 1));
+                }
+            }
+            
+            for (int b = lo; b <= hi; b++) {
+                int j = b - a - kMin;
+                
+                if (a == 0 && b == 0) {
+                    currCosts[j] = 0;
+                    directions[j] = NONE;
+                    continue;
+                }
+                
+                long tmpCostAB = 0 < a && 0 < b && prevCosts[j] < INF
+                        ? prevCosts[j] + diffCosts[b - Math.max(1, lo)]
+                        : INF;
+                long tmpCostB = 0 < b && 0 < j && currCosts[j - 1] < INF
+                        ? currCosts[j - 1] + gapCostsB[b - 1]
+                        : INF;
+                long tmpCostA = 0 < a && prevCosts[j + 1] < INF
+                        ? prevCosts[j + 1] + gapCostsA[a - 1]
+                        : INF;
+                
+                // 遷移元の選び方は MinimumEditDistanceMatcher と揃える。
+                if (tmpCostA < tmpCostB && tmpCostA < tmpCostAB) {
+                    directions[a * width + j] = FROM_UPPER;
+                    currCosts[j] = tmpCostA;
+                    
+                } else if (tmpCostB <= tmpCostA && tmpCostB < tmpCostAB) {
+                    directions[a * width + j] = FROM_LEFT;
+                    currCosts[j] = tmpCostB;
+                    
+                } else {
+                    directions[a * width + j] = FROM_UPPER_LEFT;
+                    currCosts[j] = tmpCostAB;
+                }
+            }
+            
+            long[] tmp = prevCosts;
+            prevCosts = currCosts;
+            currCosts = tmp;
+        }
+        
+        long cost = prevCosts[sizeB - sizeA - kMin];
+        assert cost < INF;
+        
+        return new BandResult(cost, traceBestRoute(directions, width, kMin, sizeA, sizeB));
+    }
+    
+    private EditScript traceBestRoute(
+            byte[] directions,
+            int width,
+            int kMin,
+            int sizeA,
+            int sizeB) {
+        
+        // 最適経路を終点から遡り、同じ遷移方向の連続をひとつのランにまとめる。
+        byte[] runDirections = new byte[16];
+        int[] runLengths = new int[16];
+        int runCount = 0;
+        
+        int a = sizeA;
+        int b = sizeB;
+        while (0 < a || 0 < b) {
+            byte direction = directions[a * width + b - a - kMin];
+            
+            if (runCount == 0 || runDirections[runCount - 1] != direction) {
+                if (runCount == runDirections.length) {
+                    runDirections = Arrays.copyOf(runDirections, runCount * 2);
+                    runLengths = Arrays.copyOf(runLengths, runCount * 2);
+                }
+                runDirections[runCount] = direction;
+                runLengths[runCount] = 0;
+                runCount++;
+            }
+            runLengths[runCount - 1]++;
+            
+            switch (direction) {
+            case FROM_UPPER_LEFT:
+                a--;
+                b--;
+                break;
+            case FROM_UPPER:
+                a--;
+                break;
+            case FROM_LEFT:
+                b--;
+                break;
+            default:
+                throw new AssertionError(direction);
+            }
+        }
+        
+        EditScript.Builder builder = EditScript.builder();
+        for (int r = runCount - 1; 0 <= r; r--) {
+            switch (runDirections[r]) {
+            case FROM_UPPER_LEFT:
+                builder.paired(runLengths[r]);
+                break;
+            case FROM_UPPER:
+                builder.onlyA(runLengths[r]);
+                break;
+            case FROM_LEFT:
+                builder.onlyB(runLengths[r]);
+                break;
+            default:
+                throw new AssertionError(runDirections[r]);
+            }
+        }
+        return builder.build();
+    }
+}
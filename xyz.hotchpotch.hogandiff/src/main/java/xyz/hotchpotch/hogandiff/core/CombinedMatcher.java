@@ -43,7 +43,8 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
     @Override
     protected List<IntPair> makeIdxPairsMain(
             List<? extends T> listA,
-            List<? extends T> listB) {
+            List<? extends T> listB,
+            MatchBudget budget) {
         
         // 親クラスでバリデーションチェック済み
         
@@ -60,7 +61,7 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
         List<? extends T> tmpB = listB;
         
         for (Matcher<? super T> matcher : matchers) {
-            List<IntPair> res = matcher.makeIdxPairs(tmpA, tmpB);
+            List<IntPair> res = matcher.makeIdxPairs(tmpA, tmpB, budget);
             BitSet pairedA = new BitSet(tmpA.size());
             BitSet pairedB = new BitSet(tmpB.size());
             
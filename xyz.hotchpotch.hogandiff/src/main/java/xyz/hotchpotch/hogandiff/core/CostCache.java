@@ -0,0 +1,192 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * 要素同士の差分コストを記憶しておく、容量制限付きのキャッシュです。<br>
+ * {@link #memoize(ToIntBiFunction)} で差分コスト評価関数をラップすることにより、
+ * 同じ要素の組み合わせについて評価関数が繰り返し呼び出されることを防ぎます。<br>
+ * <br>
+ * 要素の組み合わせは、要素の等価性ではなく同一性（{@code ==}）に基づいて識別します。
+ * このため、ひとつのキャッシュを複数のマッチャーや複数回の対応付け処理で共有することができます。
+ * 容量を超えた場合は、最も長い間参照されていない組み合わせから破棄します。<br>
+ * このクラスはスレッドセーフです。<br>
+ *
+ * @author nmby
+ */
+public final class CostCache {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * キャッシュの利用状況を表す不変クラスです。<br>
+     *
+     * @author nmby
+     * @param hitCount キャッシュにヒットした回数
+     * @param missCount キャッシュにヒットせず評価関数を呼び出した回数
+     * @param size 現在キャッシュされている組み合わせの数
+     */
+    public static record Stats(long hitCount, long missCount, int size) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        /**
+         * キャッシュのヒット率を返します。<br>
+         * 一度も参照されていない場合は {@code 0.0} を返します。<br>
+         *
+         * @return キャッシュのヒット率（{@code 0.0} 以上 {@code 1.0} 以下）
+         */
+        public double hitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0.0 : (double) hitCount / total;
+        }
+    }
+    
+    /**
+     * キャッシュのキーです。<br>
+     * 評価関数と2つの要素を、いずれも同一性に基づいて識別します。<br>
+     *
+     * @author nmby
+     */
+    private static final class Key {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final Object evaluator;
+        private final Object elem1;
+        private final Object elem2;
+        private final int hash;
+        
+        private Key(Object evaluator, Object elem1, Object elem2) {
+            this.evaluator = evaluator;
+            this.elem1 = elem1;
+            this.elem2 = elem2;
+            this.hash = (31 * System.identityHashCode(evaluator)
+                    + System.identityHashCode(elem1)) * 31
+                    + System.identityHashCode(elem2);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other
+                    && evaluator == other.evaluator
+                    && elem1 == other.elem1
+                    && elem2 == other.elem2;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    /**
+     * 指定された容量を持つ新たなキャッシュを返します。<br>
+     *
+     * @param maxSize キャッシュする組み合わせの最大数
+     * @return 新たなキャッシュ
+     * @throws IllegalArgumentException {@code maxSize} が正の値でない場合
+     */
+    public static CostCache of(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize: " + maxSize);
+        }
+        return new CostCache(maxSize);
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final Map<Key, Integer> map;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    
+    private CostCache(int maxSize) {
+        assert 0 < maxSize;
+        
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+                return maxSize < size();
+            }
+        };
+    }
+    
+    /**
+     * 指定された差分コスト評価関数の結果をこのキャッシュに記憶する評価関数を返します。<br>
+     * キャッシュは評価関数ごとに区別されます。
+     * キャッシュを有効に利用するには、返された評価関数を使い回してください。<br>
+     * <br>
+     * 評価関数は、同じ要素の組み合わせに対して常に同じ値を返す必要があります。<br>
+     *
+     * @param <T> 要素の型
+     * @param diffEvaluator 差分コスト評価関数
+     * @return このキャッシュを利用する差分コスト評価関数
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public <T> ToIntBiFunction<T, T> memoize(ToIntBiFunction<? super T, ? super T> diffEvaluator) {
+        Objects.requireNonNull(diffEvaluator);
+        
+        return (elem1, elem2) -> {
+            Key key = new Key(diffEvaluator, elem1, elem2);
+            
+            Integer cost;
+            synchronized (map) {
+                cost = map.get(key);
+            }
+            if (cost != null) {
+                hitCount.increment();
+                return cost;
+            }
+            
+            // 評価関数の呼び出しはロックの外で行う。
+            // 同じ組み合わせが同時に評価されることがあり得るが、結果は同じであるため問題ない。
+            missCount.increment();
+            int newCost = diffEvaluator.applyAsInt(elem1, elem2);
+            synchronized (map) {
+                map.put(key, newCost);
+            }
+            return newCost;
+        };
+    }
+    
+    /**
+     * このキャッシュの利用状況を返します。<br>
+     *
+     * @return このキャッシュの利用状況
+     */
+    public Stats stats() {
+        int size;
+        synchronized (map) {
+            size = map.size();
+        }
+        return new Stats(hitCount.sum(), missCount.sum(), size);
+    }
+    
+    /**
+     * キャッシュの内容と利用状況をクリアします。<br>
+     */
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+        hitCount.reset();
+        missCount.reset();
+    }
+    
+    @Override
+    public String toString() {
+        Stats stats = stats();
+        return "CostCache[size=%d, hit=%d, miss=%d, hitRate=%.3f]".formatted(
+                stats.size(), stats.hitCount(), stats.missCount(), stats.hitRate());
+    }
+}
@@ -0,0 +1,357 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import xyz.hotchpotch.hogandiff.util.IntPair;
+
+/**
+ * 2つのリストの要素の対応付けを、リストの先頭から順に並べた「対応」「Aのみ」「Bのみ」の連続区間
+ * （ラン）の並びとして保持する不変リストです。<br>
+ * リストA, リストBの要素の順序を保った対応付け（すなわち編集スクリプト）だけを表現できます。<br>
+ * <br>
+ * 各要素 {@link IntPair} はアクセスの都度生成されます。
+ * 要素ごとにオブジェクトを保持しないため、長大なリスト同士の対応付けであっても
+ * 記憶領域の消費はランの数に比例する程度に抑えられます。<br>
+ *
+ * @author nmby
+ */
+// 実装メモ：
+// ひとつのランを int 値ひとつで表現する。下位2ビットが種別、上位30ビットが長さ。
+public final class EditScript extends AbstractList<IntPair> implements RandomAccess {
+    
+    // [static members] ********************************************************
+    
+    private static final int KIND_BITS = 2;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+    private static final int MAX_RUN_LENGTH = Integer.MAX_VALUE >>> KIND_BITS;
+    
+    private static final int PAIRED = 0;
+    private static final int ONLY_A = 1;
+    private static final int ONLY_B = 2;
+    
+    private static final EditScript EMPTY = new EditScript(new int[0], 0);
+    
+    /**
+     * {@link EditScript} のビルダーです。<br>
+     * 対応付けをリストの先頭から順に追加していきます。<br>
+     * 同じ種別のランが続けて追加された場合は、ひとつのランに併合します。<br>
+     *
+     * @author nmby
+     */
+    public static final class Builder {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private int[] runs = new int[16];
+        private int runCount;
+        private boolean built;
+        
+        private Builder() {
+        }
+        
+        /**
+         * リストA, リストBの要素が対応する区間を追加します。<br>
+         *
+         * @param len 区間の長さ
+         * @return このビルダー
+         * @throws IllegalArgumentException {@code len} が負数の場合
+         * @throws IllegalStateException 既に {@link #build()} が呼ばれている場合
+         */
+        public Builder paired(int len) {
+            return add(PAIRED, len);
+        }
+        
+        /**
+         * リストAの要素だけが存在する区間を追加します。<br>
+         *
+         * @param len 区間の長さ
+         * @return このビルダー
+         * @throws IllegalArgumentException {@code len} が負数の場合
+         * @throws IllegalStateException 既に {@link #build()} が呼ばれている場合
+         */
+        public Builder onlyA(int len) {
+            return add(ONLY_A, len);
+        }
+        
+        /**
+         * リストBの要素だけが存在する区間を追加します。<br>
+         *
+         * @param len 区間の長さ
+         * @return このビルダー
+         * @throws IllegalArgumentException {@code len} が負数の場合
+         * @throws IllegalStateException 既に {@link #build()} が呼ばれている場合
+         */
+        public Builder onlyB(int len) {
+            return add(ONLY_B, len);
+        }
+        
+        private Builder add(int kind, int len) {
+            if (len < 0) {
+                throw new IllegalArgumentException("len: " + len);
+            }
+            if (built) {
+                throw new IllegalStateException();
+            }
+            
+            while (0 < len) {
+                if (0 < runCount && kindOf(runs[runCount - 1]) == kind
+                        && lengthOf(runs[runCount - 1]) < MAX_RUN_LENGTH) {
+                    
+                    int prev = lengthOf(runs[runCount - 1]);
+                    int delta = Math.min(len, MAX_RUN_LENGTH - prev);
+                    runs[runCount - 1] = encode(kind, prev + delta);
+                    len -= delta;
+                    
+                } else {
+                    if (runCount == runs.length) {
+                        runs = Arrays.copyOf(runs, runs.length * 2);
+                    }
+                    int delta = Math.min(len, MAX_RUN_LENGTH);
+                    runs[runCount] = encode(kind, delta);
+                    runCount++;
+                    len -= delta;
+                }
+            }
+            return this;
+        }
+        
+        /**
+         * このビルダーで {@link EditScript} を生成します。<br>
+         *
+         * @return 新たな {@link EditScript}
+         * @throws IllegalStateException 既に {@link #build()} が呼ばれている場合
+         */
+        public EditScript build() {
+            if (built) {
+                throw new IllegalStateException();
+            }
+            built = true;
+            
+            return runCount == 0
+                    ? EMPTY
+                    : new EditScript(runs, runCount);
+        }
+    }
+    
+    /**
+     * 新たなビルダーを返します。<br>
+     *
+     * @return 新たなビルダー
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * 空の {@link EditScript} を返します。<br>
+     *
+     * @return 空の {@link EditScript}
+     */
+    public static EditScript empty() {
+        return EMPTY;
+    }
+    
+    /**
+     * リストA, リストBの要素を先頭から順に対応付け、
+     * 長い方のリストの残りの要素を余剰とする {@link EditScript} を返します。<br>
+     *
+     * @param sizeA リストAの長さ
+     * @param sizeB リストBの長さ
+     * @return 新たな {@link EditScript}
+     * @throws IllegalArgumentException {@code sizeA}, {@code sizeB} のいずれかが負数の場合
+     */
+    public static EditScript simple(int sizeA, int sizeB) {
+        if (sizeA < 0 || sizeB < 0) {
+            throw new IllegalArgumentException("sizeA: %d, sizeB: %d".formatted(sizeA, sizeB));
+        }
+        
+        return builder()
+                .paired(Math.min(sizeA, sizeB))
+                .onlyA(Math.max(0, sizeA - sizeB))
+                .onlyB(Math.max(0, sizeB - sizeA))
+                .build();
+    }
+    
+    private static int encode(int kind, int len) {
+        return (len << KIND_BITS) | kind;
+    }
+    
+    private static int kindOf(int run) {
+        return run & KIND_MASK;
+    }
+    
+    private static int lengthOf(int run) {
+        return run >>> KIND_BITS;
+    }
+    
+    private static IntPair pairOf(int kind, int a, int b) {
+        return switch (kind) {
+        case PAIRED -> IntPair.of(a, b);
+        case ONLY_A -> IntPair.onlyA(a);
+        case ONLY_B -> IntPair.onlyB(b);
+        default -> throw new AssertionError(kind);
+        };
+    }
+    
+    // [instance members] ******************************************************
+    
+    /** ランの並び */
+    private final int[] runs;
+    
+    /** 各ランの開始位置（要素の通し番号） */
+    private final int[] starts;
+    
+    /** 各ランの開始位置におけるリストAのインデックス */
+    private final int[] startsA;
+    
+    /** 各ランの開始位置におけるリストBのインデックス */
+    private final int[] startsB;
+    
+    private final int size;
+    private final int sizeA;
+    private final int sizeB;
+    private final int pairedCount;
+    
+    private EditScript(int[] runs, int runCount) {
+        assert runs != null;
+        assert 0 <= runCount && runCount <= runs.length;
+        
+        this.runs = Arrays.copyOf(runs, runCount);
+        this.starts = new int[runCount];
+        this.startsA = new int[runCount];
+        this.startsB = new int[runCount];
+        
+        int n = 0;
+        int a = 0;
+        int b = 0;
+        int paired = 0;
+        for (int r = 0; r < runCount; r++) {
+            starts[r] = n;
+            startsA[r] = a;
+            startsB[r] = b;
+            
+            int len = lengthOf(runs[r]);
+            n = Math.addExact(n, len);
+            switch (kindOf(runs[r])) {
+            case PAIRED:
+                a += len;
+                b += len;
+                paired += len;
+                break;
+            case ONLY_A:
+                a += len;
+                break;
+            case ONLY_B:
+                b += len;
+                break;
+            default:
+                throw new AssertionError(kindOf(runs[r]));
+            }
+        }
+        this.size = n;
+        this.sizeA = a;
+        this.sizeB = b;
+        this.pairedCount = paired;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、要素の取得のたびに新たな {@link IntPair} を生成します。<br>
+     */
+    @Override
+    public IntPair get(int index) {
+        Objects.checkIndex(index, size);
+        
+        int r = Arrays.binarySearch(starts, index);
+        if (r < 0) {
+            r = -r - 2;
+        }
+        int offset = index - starts[r];
+        return pairOf(kindOf(runs[r]), startsA[r] + offset, startsB[r] + offset);
+    }
+    
+    @Override
+    public Iterator<IntPair> iterator() {
+        return new Iterator<>() {
+            private int r = 0;
+            private int offset = 0;
+            
+            @Override
+            public boolean hasNext() {
+                return r < runs.length;
+            }
+            
+            @Override
+            public IntPair next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                IntPair pair = pairOf(kindOf(runs[r]), startsA[r] + offset, startsB[r] + offset);
+                offset++;
+                if (offset == lengthOf(runs[r])) {
+                    r++;
+                    offset = 0;
+                }
+                return pair;
+            }
+        };
+    }
+    
+    /**
+     * ランの数を返します。<br>
+     *
+     * @return ランの数
+     */
+    public int runCount() {
+        return runs.length;
+    }
+    
+    /**
+     * この対応付けの対象であるリストAの長さを返します。<br>
+     *
+     * @return リストAの長さ
+     */
+    public int sizeA() {
+        return sizeA;
+    }
+    
+    /**
+     * この対応付けの対象であるリストBの長さを返します。<br>
+     *
+     * @return リストBの長さ
+     */
+    public int sizeB() {
+        return sizeB;
+    }
+    
+    /**
+     * リストA, リストBの要素が対応するペアの数を返します。<br>
+     *
+     * @return 対応するペアの数
+     */
+    public int pairedCount() {
+        return pairedCount;
+    }
+    
+    /**
+     * 対応する相手のいない要素の数を返します。<br>
+     *
+     * @return 対応する相手のいない要素の数
+     */
+    public int unpairedCount() {
+        return size - pairedCount;
+    }
+}
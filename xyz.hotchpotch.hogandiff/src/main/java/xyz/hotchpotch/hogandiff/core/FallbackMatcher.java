@@ -0,0 +1,80 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import java.util.List;
+import java.util.Objects;
+
+import xyz.hotchpotch.hogandiff.util.IntPair;
+
+/**
+ * 主マッチャーで対応付けを行い、制限時間を超過した場合は
+ * 代替マッチャーによる対応付けの結果を返す {@link Matcher} の実装です。<br>
+ *
+ * @param <T> リストの要素の型
+ * @author nmby
+ */
+/*package*/ class FallbackMatcher<T> implements Matcher<T> {
+    
+    // [static members] ********************************************************
+    
+    // [instance members] ******************************************************
+    
+    private final Matcher<? super T> primary;
+    private final Matcher<? super T> fallback;
+    
+    /**
+     * コンストラクタ
+     *
+     * @param primary 主マッチャー
+     * @param fallback 代替マッチャー
+     */
+    /*package*/ FallbackMatcher(
+            Matcher<? super T> primary,
+            Matcher<? super T> fallback) {
+        
+        assert primary != null;
+        assert fallback != null;
+        
+        this.primary = primary;
+        this.fallback = fallback;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * 打ち切り条件を持たないため、常に主マッチャーによる対応付けの結果を返します。<br>
+     */
+    @Override
+    public List<IntPair> makeIdxPairs(
+            List<? extends T> listA,
+            List<? extends T> listB) {
+        
+        return makeIdxPairs(listA, listB, MatchBudget.unlimited());
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * 主マッチャーが制限時間を超過した場合は、代替マッチャーによる対応付けの結果を返し、
+     * その旨を {@code budget} に記録します。
+     * 代替マッチャーには制限時間を適用しません。<br>
+     */
+    @Override
+    public List<IntPair> makeIdxPairs(
+            List<? extends T> listA,
+            List<? extends T> listB,
+            MatchBudget budget) {
+        
+        Objects.requireNonNull(listA);
+        Objects.requireNonNull(listB);
+        Objects.requireNonNull(budget);
+        
+        try {
+            return primary.makeIdxPairs(listA, listB, budget);
+            
+        } catch (MatchBudget.ExceededException e) {
+            budget.markDegraded();
+            budget.checkCancelled();
+            return fallback.makeIdxPairs(listA, listB);
+        }
+    }
+}
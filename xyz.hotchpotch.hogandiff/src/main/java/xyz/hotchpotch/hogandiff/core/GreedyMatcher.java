@@ -23,6 +23,9 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
     
     // [static members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
     
+    /** 候補の取り出しループにおいて、打ち切り条件を確認する間隔（2のべき乗 - 1） */
+    private static final int CHECKPOINT_MASK = (1 << 12) - 1;
+    
     /**
      * 要素同士の差分コストもしくは要素単独の余剰コストを保持する内部計算用の不変クラスです。<br>
      * 
@@ -132,9 +135,11 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
         assert diffEvaluator != null;
     }
     
+    @Override
     protected List<IntPair> makeIdxPairsMain(
             List<? extends T> listA,
-            List<? extends T> listB) {
+            List<? extends T> listB,
+            MatchBudget budget) {
         
         // 親クラスでバリデーションチェック済み
         
@@ -145,10 +150,14 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
                 .mapToObj(j -> new Cost(IntPair.onlyB(j), gapEvaluatorB.applyAsInt(listB.get(j))));
         Stream<Cost> diffCosts = IntStream.range(0, listA.size()).parallel()
                 .boxed()
-                .flatMap(i -> IntStream.range(0, listB.size()).parallel()
-                        .mapToObj(j -> new Cost(
-                                IntPair.of(i, j),
-                                diffEvaluator.applyAsInt(listA.get(i), listB.get(j)))));
+                .flatMap(i -> {
+                    // リストAの要素ごとに打ち切り条件を確認する。
+                    budget.checkpoint();
+                    return IntStream.range(0, listB.size()).parallel()
+                            .mapToObj(j -> new Cost(
+                                    IntPair.of(i, j),
+                                    diffEvaluator.applyAsInt(listA.get(i), listB.get(j))));
+                });
         
         // これらを結合し、優先度付きキューに投入する。
         PriorityQueue<Cost> pq = Stream.concat(Stream.concat(gapCostsA, gapCostsB), diffCosts)
@@ -158,7 +167,11 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
         BitSet usedB = new BitSet(listB.size());
 
         List<IntPair> pairs = new ArrayList<>();
+        int polled = 0;
         while (!pq.isEmpty()) {
+            if ((++polled & CHECKPOINT_MASK) == 0) {
+                budget.checkpoint();
+            }
 
             // 小さいものから取り出す。
             Cost cost = pq.poll();
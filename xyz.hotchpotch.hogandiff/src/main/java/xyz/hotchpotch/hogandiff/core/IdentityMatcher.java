@@ -70,7 +70,8 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
     @Override
     protected List<IntPair> makeIdxPairsMain(
             List<? extends T> listA,
-            List<? extends T> listB) {
+            List<? extends T> listB,
+            MatchBudget budget) {
         
         // 親クラスでバリデーションチェック済み
         
@@ -0,0 +1,161 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * マッチャーによる対応付け処理の打ち切り条件（中断要求と制限時間）を表すトークンです。<br>
+ * マッチャーは処理の節目ごとに {@link #checkpoint()} を呼び出し、
+ * 中断が要求されている場合や制限時間を超過した場合に処理を打ち切ります。<br>
+ * <br>
+ * 制限時間の超過による打ち切りが発生し、より安価なマッチャーによる近似結果で代替した場合は、
+ * その旨がこのトークンに記録されます（{@link #isDegraded()}）。<br>
+ * このクラスはスレッドセーフです。<br>
+ *
+ * @author nmby
+ */
+public final class MatchBudget {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * 対応付け処理が制限時間を超過したことを表す例外です。<br>
+     *
+     * @author nmby
+     */
+    public static final class ExceededException extends RuntimeException {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private ExceededException(Duration timeLimit) {
+            super("time limit exceeded: " + timeLimit);
+        }
+    }
+    
+    private static final BooleanSupplier NEVER = () -> false;
+    
+    private static final MatchBudget UNLIMITED = new MatchBudget(NEVER, null);
+    
+    /**
+     * 中断されることも制限時間もないトークンを返します。<br>
+     * このトークンには近似結果で代替した旨が記録されることはありません。<br>
+     *
+     * @return 打ち切り条件を持たないトークン
+     */
+    public static MatchBudget unlimited() {
+        return UNLIMITED;
+    }
+    
+    /**
+     * 指定された中断要求を監視し、制限時間を持たない新たなトークンを返します。<br>
+     *
+     * @param isCancelled 中断が要求されている場合に {@code true} を返す関数
+     * @return 新たなトークン
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static MatchBudget of(BooleanSupplier isCancelled) {
+        Objects.requireNonNull(isCancelled);
+        
+        return new MatchBudget(isCancelled, null);
+    }
+    
+    /**
+     * 指定された中断要求を監視し、指定された制限時間を持つ新たなトークンを返します。<br>
+     * 制限時間は、このメソッドの呼び出し時点から計測します。<br>
+     *
+     * @param isCancelled 中断が要求されている場合に {@code true} を返す関数
+     * @param timeLimit 制限時間
+     * @return 新たなトークン
+     * @throws NullPointerException パラメータが {@code null} の場合
+     * @throws IllegalArgumentException {@code timeLimit} が正の値でない場合
+     */
+    public static MatchBudget of(BooleanSupplier isCancelled, Duration timeLimit) {
+        Objects.requireNonNull(isCancelled);
+        Objects.requireNonNull(timeLimit);
+        if (timeLimit.isNegative() || timeLimit.isZero()) {
+            throw new IllegalArgumentException("timeLimit: " + timeLimit);
+        }
+        
+        return new MatchBudget(isCancelled, timeLimit);
+    }
+    
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE / 2;
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final BooleanSupplier isCancelled;
+    private final Duration timeLimit;
+    private final long deadline;
+    private volatile boolean degraded;
+    
+    private MatchBudget(BooleanSupplier isCancelled, Duration timeLimit) {
+        assert isCancelled != null;
+        
+        this.isCancelled = isCancelled;
+        this.timeLimit = timeLimit;
+        this.deadline = timeLimit == null
+                ? 0L
+                : System.nanoTime() + saturatedNanos(timeLimit);
+    }
+    
+    /**
+     * 中断要求と制限時間を確認します。<br>
+     * マッチャーは処理の節目ごとにこのメソッドを呼び出します。<br>
+     *
+     * @throws CancellationException 中断が要求されている場合
+     * @throws ExceededException 制限時間を超過した場合
+     */
+    public void checkpoint() {
+        if (isCancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+        if (timeLimit != null && 0 < System.nanoTime() - deadline) {
+            throw new ExceededException(timeLimit);
+        }
+    }
+    
+    /**
+     * 中断要求だけを確認します。<br>
+     *
+     * @throws CancellationException 中断が要求されている場合
+     */
+    public void checkCancelled() {
+        if (isCancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+    
+    /**
+     * 制限時間の超過により、近似結果で代替したことを記録します。<br>
+     */
+    /*package*/ void markDegraded() {
+        if (this != UNLIMITED) {
+            degraded = true;
+        }
+    }
+    
+    /**
+     * このトークンのもとで行われた対応付けのいずれかが、
+     * 制限時間の超過により近似結果で代替されたかを返します。<br>
+     *
+     * @return 近似結果で代替された場合は {@code true}
+     */
+    public boolean isDegraded() {
+        return degraded;
+    }
+    
+    @Override
+    public String toString() {
+        return "MatchBudget[timeLimit=%s, degraded=%b]".formatted(timeLimit, degraded);
+    }
+}
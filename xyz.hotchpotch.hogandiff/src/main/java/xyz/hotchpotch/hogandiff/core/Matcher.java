@@ -2,6 +2,7 @@ package xyz.hotchpotch.hogandiff.core;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.function.ToIntBiFunction;
 import java.util.function.ToIntFunction;
@@ -140,6 +141,123 @@ public interface Matcher<T> {
         return new MinimumEditDistanceMatcher<>(gapEvaluatorA, gapEvaluatorB, diffEvaluator);
     }
     
+    /**
+     * 2つのリスト間の編集距離が最小となるように要素同士を対応付けるマッチャーを返します。<br>
+     * 比較対象リストが長い場合の並列処理には、指定されたスレッドプールを使用します。
+     * 複数の比較処理を同時に行う場合に、それぞれに専用のスレッドプールを割り当てることで
+     * 処理同士がスレッドを奪い合うことを避けられます。<br>
+     * 
+     * @param <T> リストの要素の型
+     * @param gapEvaluatorA 比較対象Aに適用する余剰コスト評価関数
+     * @param gapEvaluatorB 比較対象Bに適用する余剰コスト評価関数
+     * @param diffEvaluator 差分コスト評価関数
+     * @param pool 並列処理に使用するスレッドプール
+     * @return 新しいマッチャー
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static <T> Matcher<T> minimumEditDistanceMatcherOf(
+            ToIntFunction<? super T> gapEvaluatorA,
+            ToIntFunction<? super T> gapEvaluatorB,
+            ToIntBiFunction<? super T, ? super T> diffEvaluator,
+            ForkJoinPool pool) {
+        
+        Objects.requireNonNull(gapEvaluatorA);
+        Objects.requireNonNull(gapEvaluatorB);
+        Objects.requireNonNull(diffEvaluator);
+        Objects.requireNonNull(pool);
+        
+        return new MinimumEditDistanceMatcher<>(gapEvaluatorA, gapEvaluatorB, diffEvaluator, pool);
+    }
+    
+    /**
+     * 2つのリスト間の編集距離が最小となるように要素同士を対応付けるマッチャーを返します。<br>
+     * エディットグラフの対角線周辺の帯状の領域から探索を始めるため、
+     * 要素の挿入／削除が局所的である場合に
+     * {@link #minimumEditDistanceMatcherOf(ToIntFunction, ToIntBiFunction)} よりも高速に動作します。<br>
+     * <br>
+     * <strong>注意：</strong>
+     * {@code gapEvaluator} および {@code diffEvaluator} は必ず非負の値を返す必要があります。
+     * 負のコストを返す評価関数を渡した場合、正しい結果が得られないことがあります。<br>
+     * 
+     * @param <T> リストの要素の型
+     * @param gapEvaluator 余剰コスト評価関数（非負の値を返すこと）
+     * @param diffEvaluator 差分コスト評価関数（非負の値を返すこと）
+     * @return 新しいマッチャー
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static <T> Matcher<T> bandedMinimumEditDistanceMatcherOf(
+            ToIntFunction<? super T> gapEvaluator,
+            ToIntBiFunction<? super T, ? super T> diffEvaluator) {
+        
+        Objects.requireNonNull(gapEvaluator);
+        Objects.requireNonNull(diffEvaluator);
+        
+        return new BandedMinimumEditDistanceMatcher<>(gapEvaluator, diffEvaluator);
+    }
+    
+    /**
+     * 2つのリスト間の編集距離が最小となるように要素同士を対応付けるマッチャーを返します。<br>
+     * エディットグラフの対角線周辺の帯状の領域から探索を始めるため、
+     * 要素の挿入／削除が局所的である場合に
+     * {@link #minimumEditDistanceMatcherOf(ToIntFunction, ToIntFunction, ToIntBiFunction)}
+     * よりも高速に動作します。<br>
+     * <br>
+     * <strong>注意：</strong>
+     * {@code gapEvaluatorA}、{@code gapEvaluatorB} および {@code diffEvaluator} は
+     * 必ず非負の値を返す必要があります。
+     * 負のコストを返す評価関数を渡した場合、正しい結果が得られないことがあります。<br>
+     * 
+     * @param <T> リストの要素の型
+     * @param gapEvaluatorA 比較対象Aに適用する余剰コスト評価関数（非負の値を返すこと）
+     * @param gapEvaluatorB 比較対象Bに適用する余剰コスト評価関数（非負の値を返すこと）
+     * @param diffEvaluator 差分コスト評価関数（非負の値を返すこと）
+     * @return 新しいマッチャー
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static <T> Matcher<T> bandedMinimumEditDistanceMatcherOf(
+            ToIntFunction<? super T> gapEvaluatorA,
+            ToIntFunction<? super T> gapEvaluatorB,
+            ToIntBiFunction<? super T, ? super T> diffEvaluator) {
+        
+        Objects.requireNonNull(gapEvaluatorA);
+        Objects.requireNonNull(gapEvaluatorB);
+        Objects.requireNonNull(diffEvaluator);
+        
+        return new BandedMinimumEditDistanceMatcher<>(gapEvaluatorA, gapEvaluatorB, diffEvaluator);
+    }
+    
+    /**
+     * 2つのリスト間の編集距離が最小となるように要素同士を対応付けるマッチャーを返します。<br>
+     * {@link #bandedMinimumEditDistanceMatcherOf(ToIntFunction, ToIntFunction, ToIntBiFunction)} と同様ですが、
+     * 並列処理には指定されたスレッドプールを使用します。<br>
+     * <br>
+     * <strong>注意：</strong>
+     * {@code gapEvaluatorA}、{@code gapEvaluatorB} および {@code diffEvaluator} は
+     * 必ず非負の値を返す必要があります。
+     * 負のコストを返す評価関数を渡した場合、正しい結果が得られないことがあります。<br>
+     * 
+     * @param <T> リストの要素の型
+     * @param gapEvaluatorA 比較対象Aに適用する余剰コスト評価関数（非負の値を返すこと）
+     * @param gapEvaluatorB 比較対象Bに適用する余剰コスト評価関数（非負の値を返すこと）
+     * @param diffEvaluator 差分コスト評価関数（非負の値を返すこと）
+     * @param pool 並列処理に使用するスレッドプール
+     * @return 新しいマッチャー
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static <T> Matcher<T> bandedMinimumEditDistanceMatcherOf(
+            ToIntFunction<? super T> gapEvaluatorA,
+            ToIntFunction<? super T> gapEvaluatorB,
+            ToIntBiFunction<? super T, ? super T> diffEvaluator,
+            ForkJoinPool pool) {
+        
+        Objects.requireNonNull(gapEvaluatorA);
+        Objects.requireNonNull(gapEvaluatorB);
+        Objects.requireNonNull(diffEvaluator);
+        Objects.requireNonNull(pool);
+        
+        return new BandedMinimumEditDistanceMatcher<>(gapEvaluatorA, gapEvaluatorB, diffEvaluator, pool);
+    }
+    
     /**
      * 2つのリストの要素同士の組み合わせで得られる差分コストが最小となるような対応付けを行う
      * マッチャーを返します。<br>
@@ -205,6 +323,28 @@ public interface Matcher<T> {
         return new CombinedMatcher<>(matchers);
     }
     
+    /**
+     * 主マッチャーで対応付けを行い、制限時間を超過した場合は
+     * 代替マッチャーによる対応付けの結果を返すマッチャーを返します。<br>
+     * 代替マッチャーを用いた場合は、その旨が {@link MatchBudget} に記録されます。<br>
+     * 代替マッチャーには、{@link #simpleMatcherOf()} のような安価なマッチャーを指定してください。<br>
+     * 
+     * @param <T> リストの要素の型
+     * @param primary 主マッチャー
+     * @param fallback 代替マッチャー
+     * @return 新しいマッチャー
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static <T> Matcher<T> fallbackMatcherOf(
+            Matcher<? super T> primary,
+            Matcher<? super T> fallback) {
+        
+        Objects.requireNonNull(primary);
+        Objects.requireNonNull(fallback);
+        
+        return new FallbackMatcher<>(primary, fallback);
+    }
+    
     // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
     
     /**
@@ -219,6 +359,32 @@ public interface Matcher<T> {
             List<? extends T> listA,
             List<? extends T> listB);
     
+    /**
+     * 指定された打ち切り条件のもとで、2つのリストの要素同士の最適な組み合わせを返します。<br>
+     * 中断が要求された場合や制限時間を超過した場合は、例外をスローして処理を打ち切ります。<br>
+     * <br>
+     * このデフォルト実装は、処理の開始前に一度だけ打ち切り条件を確認したのち
+     * {@link #makeIdxPairs(List, List)} を呼び出します。<br>
+     * 
+     * @param listA リストA
+     * @param listB リストB
+     * @param budget 打ち切り条件
+     * @return リストA, Bの要素同士の最適な組み合わせを表す、要素のインデックスのペアのリスト
+     * @throws NullPointerException {@code budget} が {@code null} の場合
+     * @throws java.util.concurrent.CancellationException 中断が要求された場合
+     * @throws MatchBudget.ExceededException 制限時間を超過した場合
+     */
+    default List<IntPair> makeIdxPairs(
+            List<? extends T> listA,
+            List<? extends T> listB,
+            MatchBudget budget) {
+        
+        Objects.requireNonNull(budget);
+        
+        budget.checkpoint();
+        return makeIdxPairs(listA, listB);
+    }
+    
     /**
      * 2つのリストの要素同士の最適な組み合わせを返します。<br>
      * 「最適な」の定義は {@link Matcher} の実装ごとに異なります。<br>
@@ -232,10 +398,31 @@ public interface Matcher<T> {
             List<? extends T> listA,
             List<? extends T> listB) {
         
+        return makeItemPairs(listA, listB, MatchBudget.unlimited());
+    }
+    
+    /**
+     * 指定された打ち切り条件のもとで、2つのリストの要素同士の最適な組み合わせを返します。<br>
+     * 中断が要求された場合や制限時間を超過した場合は、例外をスローして処理を打ち切ります。<br>
+     * 
+     * @param listA リストA
+     * @param listB リストB
+     * @param budget 打ち切り条件
+     * @return リストA, Bの要素同士の最適な組み合わせを表す、要素のペアのリスト
+     * @throws NullPointerException パラメータが {@code null} の場合
+     * @throws java.util.concurrent.CancellationException 中断が要求された場合
+     * @throws MatchBudget.ExceededException 制限時間を超過した場合
+     */
+    default List<Pair<T>> makeItemPairs(
+            List<? extends T> listA,
+            List<? extends T> listB,
+            MatchBudget budget) {
+        
         Objects.requireNonNull(listA);
         Objects.requireNonNull(listB);
+        Objects.requireNonNull(budget);
         
-        List<IntPair> pairs = makeIdxPairs(listA, listB);
+        List<IntPair> pairs = makeIdxPairs(listA, listB, budget);
         
         return pairs.stream()
                 .map(p -> new Pair<>(
@@ -4,7 +4,6 @@ import java.util.List;
 import java.util.Objects;
 import java.util.function.ToIntBiFunction;
 import java.util.function.ToIntFunction;
-import java.util.stream.IntStream;
 
 import xyz.hotchpotch.hogandiff.util.IntPair;
 
@@ -74,13 +73,17 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
     /**
      * 比較処理の本体。汎用的な事前チェック処理は実施済み。<br>
      * 
+     * 処理の節目ごとに {@link MatchBudget#checkpoint()} を呼び出すこと。<br>
+     * 
      * @param listA 比較対象リストA
      * @param listB 比較対象リストB
+     * @param budget 打ち切り条件
      * @return リストAとリストBの対応関係
      */
     protected abstract List<IntPair> makeIdxPairsMain(
             List<? extends T> listA,
-            List<? extends T> listB);
+            List<? extends T> listB,
+            MatchBudget budget);
     
     /**
      * {@inheritDoc}
@@ -92,26 +95,34 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
             List<? extends T> listA,
             List<? extends T> listB) {
         
+        return makeIdxPairs(listA, listB, MatchBudget.unlimited());
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    @Override
+    public List<IntPair> makeIdxPairs(
+            List<? extends T> listA,
+            List<? extends T> listB,
+            MatchBudget budget) {
+        
         Objects.requireNonNull(listA);
         Objects.requireNonNull(listB);
+        Objects.requireNonNull(budget);
         
+        budget.checkpoint();
         makeIdxPairsPrecheck(listA, listB);
         
         if (listA.isEmpty() && listB.isEmpty()) {
-            return List.of();
-        }
-        if (listA == listB) {
-            return IntStream.range(0, listA.size())
-                    .mapToObj(n -> IntPair.of(n, n))
-                    .toList();
-        }
-        if (listA.isEmpty()) {
-            return IntStream.range(0, listB.size()).mapToObj(IntPair::onlyB).toList();
+            return EditScript.empty();
         }
-        if (listB.isEmpty()) {
-            return IntStream.range(0, listA.size()).mapToObj(IntPair::onlyA).toList();
+        if (listA == listB || listA.isEmpty() || listB.isEmpty()) {
+            return EditScript.simple(listA.size(), listB.size());
         }
         
-        return makeIdxPairsMain(listA, listB);
+        return makeIdxPairsMain(listA, listB, budget);
     }
 }
@@ -69,13 +69,15 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
         assert diffEvaluator != null;
     }
     
+    @Override
     protected List<IntPair> makeIdxPairsMain(
             List<? extends T> listA,
-            List<? extends T> listB) {
+            List<? extends T> listB,
+            MatchBudget budget) {
         
         // 親クラスでバリデーションチェック実施済み
         
-        return new Graph(listA, listB).execute();
+        return new Graph(listA, listB).execute(budget);
     }
     
     private class Graph {
@@ -141,9 +143,13 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
             currFlowsBT = new int[sizeB + 1];
         }
         
-        private List<IntPair> execute() {
-            while (update(calcBestPath())) {
-            }
+        private List<IntPair> execute(MatchBudget budget) {
+            assert budget != null;
+            
+            // 増加路をひとつ見つけるごとに打ち切り条件を確認する。
+            do {
+                budget.checkpoint();
+            } while (update(calcBestPath()));
             return traceBestRoute();
         }
         
@@ -1,10 +1,12 @@
 package xyz.hotchpotch.hogandiff.core;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.function.ToIntBiFunction;
 import java.util.function.ToIntFunction;
-import java.util.stream.IntStream;
 
 import xyz.hotchpotch.hogandiff.util.IntPair;
 
@@ -12,6 +14,9 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
  * 2つのリスト間の編集距離が最小となるように要素同士を対応付ける {@link Matcher} の実装です。<br>
  * 文字列（文字を要素とするリスト）同士のマッチングだけでなく、
  * 任意の型の要素のリスト同士のマッチングに利用することができます。<br>
+ * <br>
+ * エディットグラフが広い場合は、グラフを矩形のタイルに分割し、
+ * 依存関係（上と左のタイル）が解決したタイルから順に {@link ForkJoinPool} で並列に処理します。<br>
  * 
  * @param <T>
  *            リストの要素の型
@@ -21,6 +26,12 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
     
     // [static members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
     
+    /** タイルの一辺の長さ */
+    private static final int TILE_SIZE = 256;
+    
+    /** エディットグラフの点の数がこれ未満の場合は並列化せずに逐次処理する */
+    private static final long SEQUENTIAL_THRESHOLD = 4L * TILE_SIZE * TILE_SIZE;
+    
     /**
      * 内部処理用の列挙型です。<br>
      * エディットグラフ上の各点における最適遷移方向を表します。<br>
@@ -102,8 +113,60 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
         ComeFrom prev();
     }
     
+    /**
+     * ひとつのタイルを処理し、依存関係が解決した右と下のタイルを起動するタスクです。<br>
+     * 全てのタイルの処理が完了したとき、起点のタスクが完了します。<br>
+     * 
+     * @author nmby
+     */
+    private static final class TileTask extends CountedCompleter<Void> {
+        
+        // [static members] ----------------------------------------------------
+        
+        private static final long serialVersionUID = 1L;
+        
+        // [instance members] --------------------------------------------------
+        
+        private final transient MinimumEditDistanceMatcher<?>.Wavefront wavefront;
+        private final int ti;
+        private final int tj;
+        
+        private TileTask(
+                CountedCompleter<?> completer,
+                MinimumEditDistanceMatcher<?>.Wavefront wavefront,
+                int ti,
+                int tj) {
+            
+            super(completer);
+            
+            assert wavefront != null;
+            
+            this.wavefront = wavefront;
+            this.ti = ti;
+            this.tj = tj;
+        }
+        
+        @Override
+        public void compute() {
+            wavefront.computeTile(ti, tj);
+            
+            if (wavefront.release(ti, tj + 1)) {
+                addToPendingCount(1);
+                new TileTask(this, wavefront, ti, tj + 1).fork();
+            }
+            if (wavefront.release(ti + 1, tj)) {
+                addToPendingCount(1);
+                new TileTask(this, wavefront, ti + 1, tj).fork();
+            }
+            tryComplete();
+        }
+    }
+    
     // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
     
+    /** タイルの並列処理に用いるスレッドプール */
+    private final ForkJoinPool pool;
+    
     /**
      * コンストラクタ
      * 
@@ -116,7 +179,7 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
             ToIntFunction<? super T> gapEvaluator,
             ToIntBiFunction<? super T, ? super T> diffEvaluator) {
         
-        super(gapEvaluator, diffEvaluator);
+        this(gapEvaluator, gapEvaluator, diffEvaluator);
         
         assert gapEvaluator != null;
         assert diffEvaluator != null;
@@ -137,170 +200,341 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
             ToIntFunction<? super T> gapEvaluatorB,
             ToIntBiFunction<? super T, ? super T> diffEvaluator) {
         
+        this(gapEvaluatorA, gapEvaluatorB, diffEvaluator, ForkJoinPool.commonPool());
+        
+        assert gapEvaluatorA != null;
+        assert gapEvaluatorB != null;
+        assert diffEvaluator != null;
+    }
+    
+    /**
+     * コンストラクタ
+     * 
+     * @param gapEvaluatorA
+     *            比較対象Aに適用する余剰評価関数
+     * @param gapEvaluatorB
+     *            比較対象Bに適用する余剰評価関数
+     * @param diffEvaluator
+     *            差分評価関数
+     * @param pool
+     *            タイルの並列処理に用いるスレッドプール
+     */
+    /*package*/ MinimumEditDistanceMatcher(
+            ToIntFunction<? super T> gapEvaluatorA,
+            ToIntFunction<? super T> gapEvaluatorB,
+            ToIntBiFunction<? super T, ? super T> diffEvaluator,
+            ForkJoinPool pool) {
+        
         super(gapEvaluatorA, gapEvaluatorB, diffEvaluator);
         
         assert gapEvaluatorA != null;
         assert gapEvaluatorB != null;
         assert diffEvaluator != null;
+        assert pool != null;
+        
+        this.pool = pool;
     }
     
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、対応付けの結果を {@link EditScript} として返します。<br>
+     */
+    @Override
     protected List<IntPair> makeIdxPairsMain(
             List<? extends T> listA,
-            List<? extends T> listB) {
+            List<? extends T> listB,
+            MatchBudget budget) {
         
         // 親クラスでバリデーションチェック実施済み
         
-        ComeFrom bestRoute = calcBestRoute(listA, listB);
+        ComeFrom bestRoute = calcBestRoute(listA, listB, budget);
         
-        List<IntPair> pairs = traceBestRoute(listA, listB, bestRoute);
-        
-        return pairs;
+        return traceBestRoute(bestRoute);
     }
     
     private ComeFrom calcBestRoute(
             List<? extends T> listA,
-            List<? extends T> listB) {
+            List<? extends T> listB,
+            MatchBudget budget) {
         
         assert listA != null;
         assert listB != null;
         assert listA != listB;
+        assert budget != null;
         
         // 1. リストA, リストBの要素の余剰コストを計算する。
-        int[] gapCostsA = listA.parallelStream().mapToInt(gapEvaluatorA::applyAsInt).toArray();
-        int[] gapCostsB = listB.parallelStream().mapToInt(gapEvaluatorB::applyAsInt).toArray();
+        int[] gapCostsA = listA.stream().mapToInt(gapEvaluatorA::applyAsInt).toArray();
+        int[] gapCostsB = listB.stream().mapToInt(gapEvaluatorB::applyAsInt).toArray();
         
         // 2. エディットグラフ上の各点の最小到達コストと最適遷移方向を計算する。
-        //    比較対象リストが長くなるほど、すなわちエディットグラフ（探索平面）が広くなるほど
-        //    処理の並列化が効果を発揮すると信じて、処理を並列化する。
-        //    縦方向、横方向には並列化できないため、探索平面を斜めにスライスして並列化する。
-        int minSize = Math.min(listA.size(), listB.size());
-        int maxSize = Math.max(listA.size(), listB.size());
-        int sumSize = listA.size() + listB.size();
-        
-        long[] accCosts2 = new long[minSize + 2];
-        long[] accCosts1 = new long[minSize + 2];
-        long[] accCosts0 = new long[minSize + 2];
-        ComeFrom[] comeFrom2 = new ComeFrom[minSize + 2];
-        ComeFrom[] comeFrom1 = new ComeFrom[minSize + 2];
-        ComeFrom[] comeFrom0 = new ComeFrom[minSize + 2];
-        int sliceLen1 = 1;
-        
-        for (int n = 0; n < sumSize; n++) {
-            int sliceLen0 = n < minSize
-                    ? n + 2
-                    : n < maxSize
-                            ? minSize + 2
-                            : sumSize - n + 2;
+        //    以前はエディットグラフを斜めにスライスし、スライスごとに並列ストリームを起動していたが、
+        //    短いスライスでは並列化のオーバーヘッドの方が大きくなってしまう。
+        //    そこで、グラフをタイルに分割してタイル単位で並列化し、狭いグラフは逐次処理する。
+        Wavefront wavefront = new Wavefront(listA, listB, gapCostsA, gapCostsB, budget);
+        
+        if ((long) listA.size() * listB.size() < SEQUENTIAL_THRESHOLD
+                || wavefront.tilesA == 1
+                || wavefront.tilesB == 1
+                || pool.getParallelism() == 1) {
+            
+            // タイルを行優先で処理すれば、依存関係は常に解決済みとなる。
+            for (int ti = 0; ti < wavefront.tilesA; ti++) {
+                for (int tj = 0; tj < wavefront.tilesB; tj++) {
+                    wavefront.computeTile(ti, tj);
+                }
+            }
+        } else {
+            pool.invoke(new TileTask(null, wavefront, 0, 0));
+        }
+        
+        return wavefront.result();
+    }
+    
+    /**
+     * タイルに分割したエディットグラフの計算状態を保持する内部クラスです。<br>
+     * <br>
+     * 各タイルは、上のタイルの最下行と左のタイルの最右列を入力として自身の全点を計算し、
+     * 自身の最下行と最右列を出力します。
+     * 最下行はタイルの列ごと、最右列はタイルの行ごとのバッファに保持し、
+     * 同じバッファを読み書きするタイル同士は依存関係により同時に実行されることはありません。<br>
+     * 
+     * @author nmby
+     */
+    private final class Wavefront {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final List<? extends T> listA;
+        private final List<? extends T> listB;
+        private final int[] gapCostsA;
+        private final int[] gapCostsB;
+        private final MatchBudget budget;
+        
+        private final int tilesA;
+        private final int tilesB;
+        
+        /** タイルの列ごとの、直近に処理したタイルの最下行（先頭は左下隅の点） */
+        private final long[][] rowCosts;
+        private final ComeFrom[][] rowComeFroms;
+        
+        /** タイルの行ごとの、直近に処理したタイルの最右列（先頭は右上隅の点） */
+        private final long[][] columnCosts;
+        private final ComeFrom[][] columnComeFroms;
+        
+        /** 各タイルの未解決の依存数 */
+        private final AtomicIntegerArray pending;
+        
+        private Wavefront(
+                List<? extends T> listA,
+                List<? extends T> listB,
+                int[] gapCostsA,
+                int[] gapCostsB,
+                MatchBudget budget) {
+            
+            assert listA != null;
+            assert listB != null;
+            assert gapCostsA != null && gapCostsA.length == listA.size();
+            assert gapCostsB != null && gapCostsB.length == listB.size();
+            assert budget != null;
+            
+            this.listA = listA;
+            this.listB = listB;
+            this.gapCostsA = gapCostsA;
+            this.gapCostsB = gapCostsB;
+            this.budget = budget;
+            this.tilesA = (listA.size() + TILE_SIZE - 1) / TILE_SIZE;
+            this.tilesB = (listB.size() + TILE_SIZE - 1) / TILE_SIZE;
             
-            if (n < listA.size()) {
-                accCosts0[0] = accCosts1[0] + gapCostsA[n];
-                comeFrom0[0] = new ComeFrom.Upper(comeFrom1[0]);
+            // エディットグラフの上辺（リストBの要素が全て余剰となる経路）で初期化する。
+            rowCosts = new long[tilesB][];
+            rowComeFroms = new ComeFrom[tilesB][];
+            long cost = 0;
+            ComeFrom comeFrom = null;
+            for (int tj = 0; tj < tilesB; tj++) {
+                int b0 = tj * TILE_SIZE;
+                int w = Math.min(listB.size(), b0 + TILE_SIZE) - b0;
+                rowCosts[tj] = new long[w + 1];
+                rowComeFroms[tj] = new ComeFrom[w + 1];
+                rowCosts[tj][0] = cost;
+                rowComeFroms[tj][0] = comeFrom;
+                for (int c = 1; c <= w; c++) {
+                    cost += gapCostsB[b0 + c - 1];
+                    comeFrom = new ComeFrom.Left(comeFrom);
+                    rowCosts[tj][c] = cost;
+                    rowComeFroms[tj][c] = comeFrom;
+                }
             }
-            if (n < listB.size()) {
-                accCosts0[sliceLen0 - 1] = accCosts1[sliceLen1 - 1] + gapCostsB[n];
-                comeFrom0[sliceLen0 - 1] = new ComeFrom.Left(comeFrom1[sliceLen1 - 1]);
+            
+            // エディットグラフの左辺（リストAの要素が全て余剰となる経路）で初期化する。
+            columnCosts = new long[tilesA][];
+            columnComeFroms = new ComeFrom[tilesA][];
+            cost = 0;
+            comeFrom = null;
+            for (int ti = 0; ti < tilesA; ti++) {
+                int a0 = ti * TILE_SIZE;
+                int h = Math.min(listA.size(), a0 + TILE_SIZE) - a0;
+                columnCosts[ti] = new long[h + 1];
+                columnComeFroms[ti] = new ComeFrom[h + 1];
+                columnCosts[ti][0] = cost;
+                columnComeFroms[ti][0] = comeFrom;
+                for (int r = 1; r <= h; r++) {
+                    cost += gapCostsA[a0 + r - 1];
+                    comeFrom = new ComeFrom.Upper(comeFrom);
+                    columnCosts[ti][r] = cost;
+                    columnComeFroms[ti][r] = comeFrom;
+                }
             }
             
-            final int nf = n;
-            final long[] accCosts2f = accCosts2;
-            final long[] accCosts1f = accCosts1;
-            final long[] accCosts0f = accCosts0;
-            final ComeFrom[] comeFrom2f = comeFrom2;
-            final ComeFrom[] comeFrom1f = comeFrom1;
-            final ComeFrom[] comeFrom0f = comeFrom0;
+            pending = new AtomicIntegerArray(tilesA * tilesB);
+            for (int ti = 0; ti < tilesA; ti++) {
+                for (int tj = 0; tj < tilesB; tj++) {
+                    pending.set(ti * tilesB + tj, (0 < ti ? 1 : 0) + (0 < tj ? 1 : 0));
+                }
+            }
+        }
+        
+        /**
+         * 指定されたタイルの依存をひとつ解決し、全ての依存が解決したかを返します。<br>
+         * 
+         * @param ti タイルの行番号
+         * @param tj タイルの列番号
+         * @return 指定されたタイルが存在し、全ての依存が解決した場合は {@code true}
+         */
+        private boolean release(int ti, int tj) {
+            return ti < tilesA && tj < tilesB
+                    && pending.decrementAndGet(ti * tilesB + tj) == 0;
+        }
+        
+        /**
+         * 指定されたタイルに含まれる点の最小到達コストと最適遷移方向を計算します。<br>
+         * 上と左のタイルは計算済みでなければなりません。<br>
+         * 
+         * @param ti タイルの行番号
+         * @param tj タイルの列番号
+         */
+        private void computeTile(int ti, int tj) {
+            // タイルごとに打ち切り条件を確認する。
+            budget.checkpoint();
             
-            IntStream.range(1, sliceLen0 - 1).parallel().forEach(k -> {
-                int a = nf < listA.size() ? nf - k : listA.size() - k;
-                int b = nf - a - 1;
-                
-                //// それぞれの方向から遷移した場合のコストを計算する。
-                int dk1 = (nf <= listA.size()) ? -1 : 0;
-                int dk2 = (nf <= listA.size()) ? -1 : (nf == listA.size() + 1) ? 0 : 1;
-                
-                // 左上からの遷移（つまりリストA, リストBの要素が対応する場合）が最適であると仮置きする。
-                long tmpCostAB = accCosts2f[k + dk2] + diffEvaluator.applyAsInt(listA.get(a), listB.get(b));
-                
-                // 左から遷移した場合（つまりリストBの要素が余剰である場合）のコストを求めて比較する。
-                long tmpCostB = accCosts1f[k + dk1] + gapCostsB[b];
-                
-                // 上から遷移した場合（つまりリストAの要素が余剰である場合）のコストを求めて比較する。
-                long tmpCostA = accCosts1f[k + dk1 + 1] + gapCostsA[a];
+            int a0 = ti * TILE_SIZE;
+            int b0 = tj * TILE_SIZE;
+            int w = rowCosts[tj].length - 1;
+            int h = columnCosts[ti].length - 1;
+            
+            long[] prevCosts = rowCosts[tj];
+            ComeFrom[] prevComeFroms = rowComeFroms[tj];
+            long[] currCosts = new long[w + 1];
+            ComeFrom[] currComeFroms = new ComeFrom[w + 1];
+            long[] leftCosts = columnCosts[ti];
+            ComeFrom[] leftComeFroms = columnComeFroms[ti];
+            
+            long cornerCost = prevCosts[w];
+            ComeFrom cornerComeFrom = prevComeFroms[w];
+            
+            for (int r = 1; r <= h; r++) {
+                int a = a0 + r - 1;
+                T elemA = listA.get(a);
+                currCosts[0] = leftCosts[r];
+                currComeFroms[0] = leftComeFroms[r];
                 
-                //// 最も小さいコストの遷移元を採用する。
-                if (tmpCostA < tmpCostB && tmpCostA < tmpCostAB) {
-                    comeFrom0f[k] = new ComeFrom.Upper(comeFrom1f[k + dk1 + 1]);
-                    accCosts0f[k] = tmpCostA;
+                for (int c = 1; c <= w; c++) {
+                    int b = b0 + c - 1;
+                    
+                    //// それぞれの方向から遷移した場合のコストを計算する。
                     
-                } else if (tmpCostB <= tmpCostA && tmpCostB < tmpCostAB) {
-                    comeFrom0f[k] = new ComeFrom.Left(comeFrom1f[k + dk1]);
-                    accCosts0f[k] = tmpCostB;
+                    // 左上からの遷移（つまりリストA, リストBの要素が対応する場合）
+                    long tmpCostAB = prevCosts[c - 1] + diffEvaluator.applyAsInt(elemA, listB.get(b));
                     
-                } else {
-                    comeFrom0f[k] = new ComeFrom.UpperLeft(comeFrom2f[k + dk2]);
-                    accCosts0f[k] = tmpCostAB;
+                    // 左から遷移した場合（つまりリストBの要素が余剰である場合）
+                    long tmpCostB = currCosts[c - 1] + gapCostsB[b];
+                    
+                    // 上から遷移した場合（つまりリストAの要素が余剰である場合）
+                    long tmpCostA = prevCosts[c] + gapCostsA[a];
+                    
+                    //// 最も小さいコストの遷移元を採用する。
+                    if (tmpCostA < tmpCostB && tmpCostA < tmpCostAB) {
+                        currComeFroms[c] = new ComeFrom.Upper(prevComeFroms[c]);
+                        currCosts[c] = tmpCostA;
+                        
+                    } else if (tmpCostB <= tmpCostA && tmpCostB < tmpCostAB) {
+                        currComeFroms[c] = new ComeFrom.Left(currComeFroms[c - 1]);
+                        currCosts[c] = tmpCostB;
+                        
+                    } else {
+                        currComeFroms[c] = new ComeFrom.UpperLeft(prevComeFroms[c - 1]);
+                        currCosts[c] = tmpCostAB;
+                    }
                 }
-            });
-            
-            long[] accCostsTmp = accCosts2;
-            accCosts2 = accCosts1;
-            accCosts1 = accCosts0;
-            accCosts0 = accCostsTmp;
-            
-            ComeFrom[] comeFromTmp = comeFrom2;
-            comeFrom2 = comeFrom1;
-            comeFrom1 = comeFrom0;
-            comeFrom0 = comeFromTmp;
+                
+                // 左の列は読み終えたので、このタイルの最右列で上書きしていく。
+                leftCosts[r] = currCosts[w];
+                leftComeFroms[r] = currComeFroms[w];
+                
+                long[] costsTmp = prevCosts;
+                prevCosts = currCosts;
+                currCosts = costsTmp;
+                ComeFrom[] comeFromsTmp = prevComeFroms;
+                prevComeFroms = currComeFroms;
+                currComeFroms = comeFromsTmp;
+            }
             
-            sliceLen1 = sliceLen0;
+            leftCosts[0] = cornerCost;
+            leftComeFroms[0] = cornerComeFrom;
+            rowCosts[tj] = prevCosts;
+            rowComeFroms[tj] = prevComeFroms;
         }
         
-        ComeFrom finalResult = comeFrom1[1];
-        
-        // どれだけ意味があるのか分からないが長大配列をGCしてもらうために null 代入しておく
-        accCosts2 = null;
-        accCosts1 = null;
-        accCosts0 = null;
-        comeFrom2 = null;
-        comeFrom1 = null;
-        comeFrom0 = null;
-        
-        return finalResult;
+        /**
+         * エディットグラフの終点に至る最適経路を返します。<br>
+         * 全てのタイルが計算済みでなければなりません。<br>
+         * 
+         * @return 終点に至る最適経路
+         */
+        private ComeFrom result() {
+            ComeFrom[] lastRow = rowComeFroms[tilesB - 1];
+            return lastRow[lastRow.length - 1];
+        }
     }
     
-    private List<IntPair> traceBestRoute(
-            List<? extends T> listA,
-            List<? extends T> listB,
-            ComeFrom comeFrom) {
-        
-        assert listA != null;
-        assert listB != null;
+    private EditScript traceBestRoute(ComeFrom comeFrom) {
         assert comeFrom != null;
         
-        LinkedList<IntPair> bestRoute = new LinkedList<>();
-        int a = listA.size();
-        int b = listB.size();
+        // 最適経路を終点から遡り、同じ遷移方向の連続をひとつのランにまとめる。
+        // 要素ごとに IntPair を生成することはせず、ランの並びだけを保持する。
+        List<Direction> directions = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
         
         while (comeFrom != null) {
-            switch (comeFrom.direction()) {
+            Direction direction = comeFrom.direction();
+            int len = 0;
+            while (comeFrom != null && comeFrom.direction() == direction) {
+                len++;
+                comeFrom = comeFrom.prev();
+            }
+            directions.add(direction);
+            lengths.add(len);
+        }
+        
+        EditScript.Builder builder = EditScript.builder();
+        for (int r = directions.size() - 1; 0 <= r; r--) {
+            switch (directions.get(r)) {
             case FROM_UPPER_LEFT:
-                a--;
-                b--;
-                bestRoute.addFirst(IntPair.of(a, b));
+                builder.paired(lengths.get(r));
                 break;
             case FROM_UPPER:
-                a--;
-                bestRoute.addFirst(IntPair.onlyA(a));
+                builder.onlyA(lengths.get(r));
                 break;
             case FROM_LEFT:
-                b--;
-                bestRoute.addFirst(IntPair.onlyB(b));
+                builder.onlyB(lengths.get(r));
                 break;
             default:
-                throw new AssertionError(comeFrom.direction());
+                throw new AssertionError(directions.get(r));
             }
-            comeFrom = comeFrom.prev();
         }
         
-        return bestRoute;
+        return builder.build();
     }
 }
@@ -2,7 +2,6 @@ package xyz.hotchpotch.hogandiff.core;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.IntStream;
 
 import xyz.hotchpotch.hogandiff.util.IntPair;
 
@@ -38,10 +37,6 @@ import xyz.hotchpotch.hogandiff.util.IntPair;
         Objects.requireNonNull(listA);
         Objects.requireNonNull(listB);
         
-        return IntStream.range(0, Math.max(listA.size(), listB.size()))
-                .mapToObj(n -> listA.size() <= n ? IntPair.onlyB(n)
-                        : listB.size() <= n ? IntPair.onlyA(n)
-                                : IntPair.of(n, n))
-                .toList();
+        return EditScript.simple(listA.size(), listB.size());
     }
 }
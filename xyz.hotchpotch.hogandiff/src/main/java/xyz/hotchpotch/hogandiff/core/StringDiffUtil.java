@@ -71,9 +71,12 @@ public class StringDiffUtil {
         List<Integer> codePoints2 = str2.codePoints().boxed().toList();
         List<IntPair> pairs = codeMatcher.makeIdxPairs(codePoints1, codePoints2);
         
-        return (int) pairs.stream()
-                .filter(Predicate.not(IntPair::isPaired))
-                .count();
+        // EditScript であれば要素を生成せずに非ペア要素数を得られる
+        return pairs instanceof EditScript script
+                ? script.unpairedCount()
+                : (int) pairs.stream()
+                        .filter(Predicate.not(IntPair::isPaired))
+                        .count();
     }
     
     // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
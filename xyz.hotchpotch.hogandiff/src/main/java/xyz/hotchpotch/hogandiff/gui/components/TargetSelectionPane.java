@@ -387,7 +387,7 @@ public class TargetSelectionPane extends GridPane implements ChildController {
             }
             
             chooser.getExtensionFilters().add(
-                    new FileChooser.ExtensionFilter(Msg.APP_1130.get(), "*.xls", "*.xlsx", "*.xlsm"));
+                    new FileChooser.ExtensionFilter(Msg.APP_1130.get(), "*.xls", "*.xlsx", "*.xlsm", "*.xlsb"));
             
             File selected = chooser.showOpenDialog(getScene().getWindow());
             
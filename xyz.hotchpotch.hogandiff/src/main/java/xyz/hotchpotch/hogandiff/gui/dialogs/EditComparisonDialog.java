@@ -8,6 +8,8 @@ import javafx.scene.control.Dialog;
 import javafx.scene.control.DialogPane;
 import xyz.hotchpotch.hogandiff.ErrorReporter;
 import xyz.hotchpotch.hogandiff.Msg;
+import xyz.hotchpotch.hogandiff.core.CostCache;
+import xyz.hotchpotch.hogandiff.logic.Factory;
 import xyz.hotchpotch.hogandiff.logic.PairingInfo;
 import xyz.hotchpotch.hogandiff.logic.PairingInfoBooks;
 import xyz.hotchpotch.hogandiff.logic.PairingInfoDirs;
@@ -25,8 +27,11 @@ public class EditComparisonDialog<T extends PairingInfo> extends Dialog<T> {
     
     // instance members ********************************************************
     
+    private final CostCache costCache;
+    
     /**
      * 新しいダイアログを構成します。<br>
+     * 組み合わせの再計算に用いる差分コストのキャッシュは、このダイアログを閉じるまで保持します。<br>
      * 
      * @param comparison
      *            比較情報
@@ -36,8 +41,31 @@ public class EditComparisonDialog<T extends PairingInfo> extends Dialog<T> {
      *             パラメータが {@code null} の場合
      */
     public EditComparisonDialog(T comparison) throws IOException {
+        this(comparison, Factory.pairingCostCache());
+        
+        // このダイアログが生成したキャッシュは、ダイアログを閉じた時点で不要となる。
+        setOnHidden(_ -> costCache.clear());
+    }
+    
+    /**
+     * 新しいダイアログを構成します。<br>
+     * 組み合わせの再計算に用いる差分コストのキャッシュを、呼び出し元のダイアログと共有します。<br>
+     * 
+     * @param comparison
+     *            比較情報
+     * @param costCache
+     *            差分コストのキャッシュ
+     * @throws IOException
+     *             ダイアログの構成に失敗した場合
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    /* package */ EditComparisonDialog(T comparison, CostCache costCache) throws IOException {
         try {
             Objects.requireNonNull(comparison);
+            Objects.requireNonNull(costCache);
+            
+            this.costCache = costCache;
             
             @SuppressWarnings("unchecked")
             EditComparisonDialogPane<T> editComparisonDialogPane = (EditComparisonDialogPane<T>) switch (comparison) {
@@ -47,7 +75,7 @@ public class EditComparisonDialog<T extends PairingInfo> extends Dialog<T> {
                 yield pane;
             }
             case PairingInfoDirs dirComparison -> {
-                EditDirComparisonDialogPane pane = new EditDirComparisonDialogPane(dirComparison);
+                EditDirComparisonDialogPane pane = new EditDirComparisonDialogPane(dirComparison, costCache);
                 pane.init();
                 yield pane;
             }
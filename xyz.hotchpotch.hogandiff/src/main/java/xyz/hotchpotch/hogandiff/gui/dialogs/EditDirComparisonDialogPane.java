@@ -12,6 +12,7 @@ import xyz.hotchpotch.hogandiff.AppMain;
 import xyz.hotchpotch.hogandiff.AppResource;
 import xyz.hotchpotch.hogandiff.ErrorReporter;
 import xyz.hotchpotch.hogandiff.SettingKeys;
+import xyz.hotchpotch.hogandiff.core.CostCache;
 import xyz.hotchpotch.hogandiff.core.Matcher;
 import xyz.hotchpotch.hogandiff.logic.BookInfo;
 import xyz.hotchpotch.hogandiff.logic.BookInfo.Status;
@@ -37,6 +38,7 @@ public class EditDirComparisonDialogPane extends EditComparisonDialogPane<Pairin
     private final AppResource ar = AppMain.appResource;
     
     private final PairingInfoDirs dirComparison;
+    private final CostCache costCache;
     private final List<Pair<DirInfo>> currChildDirInfoPairs;
     private final List<Pair<BookInfo>> currChildBookInfoPairs;
     private final Map<Pair<DirInfo>, Optional<PairingInfoDirs>> currChildDirComparisons;
@@ -47,12 +49,15 @@ public class EditDirComparisonDialogPane extends EditComparisonDialogPane<Pairin
      * 
      * @param dirComparison
      *            フォルダ比較情報
+     * @param costCache
+     *            組み合わせの再計算に用いる差分コストのキャッシュ
      * @throws IOException
      *             FXMLファイルの読み込みに失敗した場合
      */
-    public EditDirComparisonDialogPane(PairingInfoDirs dirComparison) throws IOException {
+    public EditDirComparisonDialogPane(PairingInfoDirs dirComparison, CostCache costCache) throws IOException {
         super();
         this.dirComparison = dirComparison;
+        this.costCache = costCache;
         this.currChildDirInfoPairs = new ArrayList<>(dirComparison.childDirInfoPairs());
         this.currChildBookInfoPairs = new ArrayList<>(dirComparison.childBookInfoPairs());
         this.currChildDirComparisons = new HashMap<>(dirComparison.childDirComparisons());
@@ -88,9 +93,9 @@ public class EditDirComparisonDialogPane extends EditComparisonDialogPane<Pairin
             return Optional.of(
                     PairingInfoDirs.calculate(
                             dirInfoPair,
-                            Factory.dirInfosMatcher(ar.settings()),
-                            Factory.bookInfosMatcher(ar.settings()),
-                            Factory.sheetNamesMatcher(ar.settings()),
+                            Factory.dirInfosMatcher(ar.settings(), costCache),
+                            Factory.bookInfosMatcher(ar.settings(), costCache),
+                            Factory.sheetNamesMatcher(ar.settings(), costCache),
                             ar.settings().get(SettingKeys.CURR_READ_PASSWORDS)));
             
         } catch (Exception e) {
@@ -101,7 +106,9 @@ public class EditDirComparisonDialogPane extends EditComparisonDialogPane<Pairin
     
     private Optional<PairingInfoBooks> createBookComparison(Pair<BookInfo> bookInfoPair) {
         try {
-            return Optional.of(PairingInfoBooks.calculate(bookInfoPair, Factory.sheetNamesMatcher(ar.settings())));
+            return Optional.of(PairingInfoBooks.calculate(
+                    bookInfoPair,
+                    Factory.sheetNamesMatcher(ar.settings(), costCache)));
             
         } catch (Exception e) {
             ErrorReporter.reportIfEnabled(e, "EditDirComparisonDialogPane#createBookComparison-1");
@@ -159,7 +166,7 @@ public class EditDirComparisonDialogPane extends EditComparisonDialogPane<Pairin
                 currChildBookInfoPairs.add(idx2 + 2, unpairedB);
                 currChildBookInfoPairs.remove(idx2);
                 
-                Matcher<String> sheetNamesMatcher = Factory.sheetNamesMatcher(ar.settings());
+                Matcher<String> sheetNamesMatcher = Factory.sheetNamesMatcher(ar.settings(), costCache);
                 PairingInfoBooks bookComparisonA = PairingInfoBooks.calculate(unpairedA, sheetNamesMatcher);
                 PairingInfoBooks bookComparisonB = PairingInfoBooks.calculate(unpairedA, sheetNamesMatcher);
                 
@@ -261,7 +268,7 @@ public class EditDirComparisonDialogPane extends EditComparisonDialogPane<Pairin
                 assert paired.isPaired();
                 
                 PairingInfoDirs comparison = currChildDirComparisons.get(paired).orElseThrow();
-                EditComparisonDialog<PairingInfoDirs> dialog = new EditComparisonDialog<>(comparison);
+                EditComparisonDialog<PairingInfoDirs> dialog = new EditComparisonDialog<>(comparison, costCache);
                 Optional<PairingInfoDirs> modified = dialog.showAndWait();
                 if (modified.isPresent()) {
                     currChildDirComparisons.put(paired, modified);
@@ -274,7 +281,7 @@ public class EditDirComparisonDialogPane extends EditComparisonDialogPane<Pairin
                 assert paired.isPaired();
                 
                 PairingInfoBooks comparison = currChildBookComparisons.get(paired).orElseThrow();
-                EditComparisonDialog<PairingInfoBooks> dialog = new EditComparisonDialog<>(comparison);
+                EditComparisonDialog<PairingInfoBooks> dialog = new EditComparisonDialog<>(comparison, costCache);
                 Optional<PairingInfoBooks> modified = dialog.showAndWait();
                 if (modified.isPresent()) {
                     currChildBookComparisons.put(paired, modified);
@@ -334,7 +341,7 @@ public class EditDirComparisonDialogPane extends EditComparisonDialogPane<Pairin
                     side == Side.B ? newBookInfo : currBookInfoPair.b());
             PairingInfoBooks newBookComparison = PairingInfoBooks.calculate(
                     newBookInfoPair,
-                    Factory.sheetNamesMatcher(ar.settings()));
+                    Factory.sheetNamesMatcher(ar.settings(), costCache));
             
             currChildBookInfoPairs.remove(idx2);
             currChildBookInfoPairs.add(idx2, newBookInfoPair);
@@ -0,0 +1,312 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import xyz.hotchpotch.hogandiff.util.function.UnsafeSupplier;
+
+/**
+ * 一括比較の間、複数の比較処理をまたいでExcelブックの読み込み結果を使い回すためのキャッシュです。<br>
+ * <br>
+ * {@link #open(int, int)} から {@link #close()} までの間、プロセス内のすべてのスレッドで
+ * Excelブック情報と Shared Strings の読み込み結果を共有します。
+ * 同じExcelブックが複数の比較項目に現れる場合でも、読み込みは一度だけ行われます。<br>
+ * Excelブックはパス、ファイルサイズ、最終更新日時、読み取りパスワードの組で識別するため、
+ * 一括比較の途中でファイルが更新された場合は改めて読み込みます。
+ * 容量を超えた場合は、最も長い間参照されていないものから破棄します。
+ * {@link AutoCloseable} である読み込み結果（一時ファイルに退避した Shared Strings など）は、
+ * 破棄する際およびこのキャッシュを閉じる際に閉じます。<br>
+ * <br>
+ * また、一括比較の間の行同士・列同士の対応付けの並列処理に用いる専用のスレッドプールを保持します。
+ * 一括比較の処理が共通プールを占有し、同じプロセス内の他の処理を妨げることを避けるためです。<br>
+ * このクラスはスレッドセーフです。<br>
+ *
+ * @author nmby
+ */
+public final class BatchCache implements AutoCloseable {
+    
+    // [static members] ********************************************************
+    
+    private static BatchCache current;
+    
+    private static record Key(Path bookPath, long size, long lastModified, String readPassword) {
+        
+        // [static members] ----------------------------------------------------
+        
+        /**
+         * 指定されたExcelブックのキーを返します。<br>
+         * ファイルの属性を取得できない場合は {@code null} を返します。<br>
+         */
+        private static Key of(Path bookPath, String readPassword) {
+            try {
+                return new Key(
+                        bookPath,
+                        Files.size(bookPath),
+                        Files.getLastModifiedTime(bookPath).toMillis(),
+                        readPassword);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 容量制限付きの、参照順に並ぶマップです。<br>
+     */
+    private static final class LruMap<V> extends LinkedHashMap<Key, V> {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final int capacity;
+        
+        private LruMap(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+            if (capacity < size()) {
+                closeIfCloseable(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+    
+    private static void closeIfCloseable(Object value) {
+        if (value instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                // nop
+            }
+        }
+    }
+    
+    /**
+     * キャッシュの利用状況を表す不変クラスです。<br>
+     *
+     * @param hitCount キャッシュにヒットした回数
+     * @param missCount キャッシュにヒットせず読み込みを行った回数
+     */
+    public static record Stats(long hitCount, long missCount) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 新たなキャッシュを開きます。<br>
+     * 返されたキャッシュは、一括比較の終了時に必ず {@link #close()} してください。<br>
+     *
+     * @param bookInfoCapacity
+     *            保持するExcelブック情報の最大数
+     * @param sharedStringsCapacity
+     *            保持する Shared Strings の最大数
+     * @return 新たなキャッシュ
+     * @throws IllegalArgumentException
+     *             容量が {@code 1} 未満の場合
+     * @throws IllegalStateException
+     *             既にキャッシュが開かれている場合
+     */
+    public static synchronized BatchCache open(int bookInfoCapacity, int sharedStringsCapacity) {
+        if (bookInfoCapacity < 1 || sharedStringsCapacity < 1) {
+            throw new IllegalArgumentException("capacity: %d, %d".formatted(bookInfoCapacity, sharedStringsCapacity));
+        }
+        if (current != null) {
+            throw new IllegalStateException("already opened");
+        }
+        
+        current = new BatchCache(bookInfoCapacity, sharedStringsCapacity);
+        return current;
+    }
+    
+    /**
+     * 現在開かれているキャッシュを返します。<br>
+     *
+     * @return 現在開かれているキャッシュ
+     */
+    public static synchronized Optional<BatchCache> current() {
+        return Optional.ofNullable(current);
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final LruMap<BookInfo> bookInfos;
+    private final LruMap<List<String>> sharedStrings;
+    private final List<List<String>> uncachedSharedStrings = new ArrayList<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final ForkJoinPool matcherPool = new ForkJoinPool();
+    
+    private BatchCache(int bookInfoCapacity, int sharedStringsCapacity) {
+        this.bookInfos = new LruMap<>(bookInfoCapacity);
+        this.sharedStrings = new LruMap<>(sharedStringsCapacity);
+    }
+    
+    /**
+     * 一括比較の間、行同士・列同士の対応付けの並列処理に用いるスレッドプールを返します。<br>
+     * このスレッドプールは {@link #close()} で終了します。<br>
+     *
+     * @return 対応付けの並列処理に用いるスレッドプール
+     */
+    public ForkJoinPool matcherPool() {
+        return matcherPool;
+    }
+    
+    /**
+     * 指定されたExcelブックのExcelブック情報を返します。<br>
+     * キャッシュに無い場合は指定されたローダーで読み込み、
+     * 読み込みに成功した場合に限りキャッシュに加えます。<br>
+     *
+     * @param bookPath
+     *            Excelブックのパス
+     * @param readPassword
+     *            Excelブックの読み取りパスワード
+     * @param loader
+     *            キャッシュに無い場合に用いるローダー
+     * @return Excelブック情報
+     * @throws NullPointerException
+     *             {@code bookPath}, {@code loader} のいずれかが {@code null} の場合
+     */
+    public BookInfo bookInfo(Path bookPath, String readPassword, BookInfoLoader loader) {
+        Objects.requireNonNull(bookPath);
+        // readPassword may be null.
+        Objects.requireNonNull(loader);
+        
+        Key key = Key.of(bookPath, readPassword);
+        BookInfo cached = get(bookInfos, key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        BookInfo bookInfo = loader.loadBookInfo(bookPath, readPassword);
+        if (key != null && bookInfo.status() == BookInfo.Status.LOAD_COMPLETED) {
+            put(bookInfos, key, bookInfo);
+        }
+        return bookInfo;
+    }
+    
+    /**
+     * 指定されたExcelブックの Shared Strings を返します。<br>
+     * キャッシュに無い場合は指定されたローダーで読み込み、キャッシュに加えます。
+     * 読み込んだリストの後始末はこのキャッシュが行います。<br>
+     * 返されるリストは複数のスレッドから同時に参照されることがあるため、変更しないでください。<br>
+     *
+     * @param bookPath
+     *            Excelブックのパス
+     * @param readPassword
+     *            Excelブックの読み取りパスワード
+     * @param loader
+     *            キャッシュに無い場合に用いるローダー
+     * @return Shared Strings
+     * @throws NullPointerException
+     *             {@code bookPath}, {@code loader} のいずれかが {@code null} の場合
+     * @throws ExcelHandlingException
+     *             読み込みに失敗した場合
+     */
+    public List<String> sharedStrings(
+            Path bookPath,
+            String readPassword,
+            UnsafeSupplier<List<String>, ExcelHandlingException> loader)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookPath);
+        // readPassword may be null.
+        Objects.requireNonNull(loader);
+        
+        Key key = Key.of(bookPath, readPassword);
+        List<String> cached = get(sharedStrings, key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        // 読み込みはロックの外で行う。
+        // 同じExcelブックを複数のスレッドが同時に読み込むことがあり得るが、結果は同じであるため許容する。
+        List<String> sst = loader.get();
+        if (key == null) {
+            synchronized (uncachedSharedStrings) {
+                uncachedSharedStrings.add(sst);
+            }
+            return sst;
+        }
+        List<String> existing;
+        synchronized (sharedStrings) {
+            existing = sharedStrings.putIfAbsent(key, sst);
+        }
+        if (existing != null) {
+            // 他のスレッドが先に読み込んだ結果を優先する。自身の読み込み結果はまだ誰も参照していない。
+            closeIfCloseable(sst);
+            return existing;
+        }
+        return sst;
+    }
+    
+    private <V> V get(LruMap<V> map, Key key) {
+        if (key == null) {
+            missCount.increment();
+            return null;
+        }
+        V value;
+        synchronized (map) {
+            value = map.get(key);
+        }
+        (value == null ? missCount : hitCount).increment();
+        return value;
+    }
+    
+    private <V> void put(LruMap<V> map, Key key, V value) {
+        synchronized (map) {
+            map.put(key, value);
+        }
+    }
+    
+    /**
+     * このキャッシュの利用状況を返します。<br>
+     *
+     * @return キャッシュの利用状況
+     */
+    public Stats stats() {
+        return new Stats(hitCount.sum(), missCount.sum());
+    }
+    
+    /**
+     * このキャッシュを閉じ、保持している読み込み結果を破棄します。<br>
+     * 対応付けの並列処理に用いるスレッドプールも終了します。<br>
+     */
+    @Override
+    public void close() {
+        synchronized (BatchCache.class) {
+            if (current == this) {
+                current = null;
+            }
+        }
+        synchronized (bookInfos) {
+            bookInfos.clear();
+        }
+        synchronized (sharedStrings) {
+            sharedStrings.values().forEach(BatchCache::closeIfCloseable);
+            sharedStrings.clear();
+        }
+        synchronized (uncachedSharedStrings) {
+            uncachedSharedStrings.forEach(BatchCache::closeIfCloseable);
+            uncachedSharedStrings.clear();
+        }
+        matcherPool.shutdown();
+    }
+}
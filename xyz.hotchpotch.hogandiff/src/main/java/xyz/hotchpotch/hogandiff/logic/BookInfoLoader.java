@@ -10,6 +10,7 @@ import xyz.hotchpotch.hogandiff.logic.plain.BookInfoLoaderCombined;
 import xyz.hotchpotch.hogandiff.logic.poi.BookInfoLoaderWithPoiEventApi;
 import xyz.hotchpotch.hogandiff.logic.poi.BookInfoLoaderWithPoiUserApi;
 import xyz.hotchpotch.hogandiff.logic.sax.BookInfoLoaderWithSax;
+import xyz.hotchpotch.hogandiff.logic.xlsb.BookInfoLoaderWithBiff12;
 
 /**
  * Excelブック情報を抽出するローダーを表します。<br>
@@ -44,8 +45,9 @@ public interface BookInfoLoader {
                 () -> BookInfoLoaderWithSax.of(targetSheetTypes),
                 () -> BookInfoLoaderWithPoiUserApi.of(targetSheetTypes)));
     
-        // FIXME: [No.02 .xlsbのサポート]
-        case XLSB -> throw new UnsupportedOperationException("unsupported book type: " + BookType.XLSB);
+        case XLSB -> BookInfoLoaderCombined.of(List.of(
+                () -> BookInfoLoaderWithBiff12.of(targetSheetTypes)));
+    
         default -> throw new AssertionError("unknown book type: " + BookType.of(bookPath));
         };
     }
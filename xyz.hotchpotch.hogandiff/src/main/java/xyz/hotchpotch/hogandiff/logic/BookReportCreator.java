@@ -6,18 +6,19 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
-import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import xyz.hotchpotch.hogandiff.AppMain;
-import xyz.hotchpotch.hogandiff.AppResource;
 import xyz.hotchpotch.hogandiff.Msg;
 import xyz.hotchpotch.hogandiff.SettingKeys;
 import xyz.hotchpotch.hogandiff.logic.plain.CellsUtil;
@@ -25,9 +26,14 @@ import xyz.hotchpotch.hogandiff.logic.poi.PoiUtil;
 import xyz.hotchpotch.hogandiff.util.IntPair;
 import xyz.hotchpotch.hogandiff.util.Pair;
 import xyz.hotchpotch.hogandiff.util.Pair.Side;
+import xyz.hotchpotch.hogandiff.util.Settings;
 
 /**
  * Excelブック同士の比較結果をExcelファイルの形式に出力する機能を提供します。<br>
+ * <br>
+ * テンプレートブックを {@link SXSSFWorkbook} でラップし、テンプレートに続く行を一定の行数ずつ
+ * 一時ファイルに書き出しながら出力するため、差分セルが膨大な場合でもブック全体をヒープ上に保持しません。
+ * シートごとの差分セルの出力数には上限があり、超過した分は省略した旨のみを出力します。<br>
  * 
  * @author nmby
  */
@@ -49,11 +55,47 @@ public class BookReportCreator {
     private static final int ROW_START = 19;
     private static final IntPair COL_LEFT = IntPair.of(3, 5);
     
+    /** ヒープ上に保持する行数。超過した行は一時ファイルに書き出す。 */
+    private static final int ROW_ACCESS_WINDOW = 100;
+    
+    /** 出力可能な最終行。シートペアごとの見出し等を出力する余地を残しておく。 */
+    private static final int ROW_LIMIT = SpreadsheetVersion.EXCEL2007.getLastRowIndex() - 16;
+    
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
     
     // [instance members] ******************************************************
     
-    private final AppResource ar = AppMain.appResource;
+    private final int maxDiffCells;
+    private final String timestamp;
+    
+    /**
+     * 指定された設定に従い、シートごとの差分セルの出力数に上限を設けるインスタンスを生成します。<br>
+     * 比較日時には設定セットのタイムスタンプを出力します。<br>
+     * 
+     * @param settings
+     *            設定セット
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public BookReportCreator(Settings settings) {
+        this(
+                Objects.requireNonNull(settings).get(SettingKeys.REPORT_MAX_DIFF_CELLS),
+                settings.get(SettingKeys.CURR_TIMESTAMP));
+    }
+    
+    /**
+     * シートごとの差分セルの出力数に指定された上限を設けるインスタンスを生成します。<br>
+     * 比較日時には指定されたタイムスタンプを出力します。<br>
+     * 
+     * @param maxDiffCells
+     *            シートごとの差分セルの出力数の上限（0以下の場合は上限なし）
+     * @param timestamp
+     *            タイムスタンプ（{@code yyyyMMdd-HHmmss-SSS} 形式）
+     */
+    public BookReportCreator(int maxDiffCells, String timestamp) {
+        this.maxDiffCells = 0 < maxDiffCells ? maxDiffCells : Integer.MAX_VALUE;
+        this.timestamp = timestamp;
+    }
     
     /**
      * Excelブック同士の比較結果をExcelファイルの形式で出力して指定されたパスに保存します。<br>
@@ -75,56 +117,68 @@ public class BookReportCreator {
         Objects.requireNonNull(dstBookPath);
         Objects.requireNonNull(bookResult);
         
-        // 1. テンプレートブックをコピーする。
+        // 1. テンプレートブックをロードし、ストリーミング出力用にラップする。
+        SXSSFWorkbook book;
         try (InputStream srcIs = ClassLoader.getSystemResourceAsStream(templateBookName)) {
-            Files.copy(srcIs, dstBookPath);
-            dstBookPath.toFile().setReadable(true, false);
-            dstBookPath.toFile().setWritable(true, false);
+            book = new SXSSFWorkbook(new XSSFWorkbook(srcIs), ROW_ACCESS_WINDOW);
+            book.setCompressTempFiles(true);
             
         } catch (Exception e) {
             throw new ExcelHandlingException(
-                    "failed to copy template book : %s -> %s".formatted(templateBookName, dstBookPath),
+                    "failed to load template book : %s".formatted(templateBookName),
                     e);
         }
         
-        // 2. コピーしたファイルをExcelブックとしてロードする。
-        try (InputStream is = Files.newInputStream(dstBookPath);
-                Workbook book = WorkbookFactory.create(is)) {
-            
-            CreationHelper ch = book.getCreationHelper();
-            Sheet sheet = book.getSheet(sheetName);
+        try (book) {
+            // テンプレート部分の行はストリーミング出力の対象外のため、ラップ前のシートを直接編集する。
+            Sheet template = book.getXSSFWorkbook().getSheet(sheetName);
+            SXSSFSheet sheet = book.getSheet(sheetName);
             
-            // 3. ヘッダ情報を出力する。
-            outputHeader(ch, sheet, dstBookPath.getParent(), bookResult);
+            // 2. ヘッダ情報を出力する。
+            outputHeader(template, dstBookPath.getParent(), bookResult);
             
-            // 4. シートごとの比較結果を出力する。
+            // 3. シートごとの比較結果を出力する。
             
-            // 4-1. 各種準備
+            // 3-1. 各種準備
             int rowIdx = ROW_START - 1;
+            List<Pair<String>> sheetNamePairs = bookResult.bookComparison().childSheetNamePairs();
             
-            // 4-2. シートペアごとの処理
-            for (int j = 0; j < bookResult.bookComparison().childSheetNamePairs().size(); j++) {
-                Pair<String> sheetNamePair = bookResult.bookComparison().childSheetNamePairs().get(j);
+            // 3-2. シートペアごとの処理
+            for (int j = 0; j < sheetNamePairs.size(); j++) {
+                Pair<String> sheetNamePair = sheetNamePairs.get(j);
                 ResultOfSheets sheetResult = bookResult.sheetResults().get(sheetNamePair).orElse(null);
                 rowIdx++;
                 
-                // 4-3. シートペアの差分出力
-                rowIdx = outputSheetResult(sheet, j, rowIdx, sheetNamePair, sheetResult);
+                // Excelの最大行数に達した場合は、残りのシートペアを省略した旨を出力する。
+                if (ROW_LIMIT <= rowIdx) {
+                    PoiUtil.copyRow(template, ROW_TEMPLATE_SHEET_TITLE, sheet, rowIdx);
+                    PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a() + 1,
+                            Msg.APP_0830.get().formatted(sheetNamePairs.size() - j));
+                    break;
+                }
+                
+                // 3-3. シートペアの差分出力
+                rowIdx = outputSheetResult(template, sheet, j, rowIdx, sheetNamePair, sheetResult);
             }
             
-            // 5. Excelブックを上書き保存する。
-            try (OutputStream os = Files.newOutputStream(dstBookPath)) {
+            // 4. Excelブックを保存する。
+            try (OutputStream os = Files.newOutputStream(dstBookPath, StandardOpenOption.CREATE_NEW)) {
                 book.write(os);
             }
+            dstBookPath.toFile().setReadable(true, false);
+            dstBookPath.toFile().setWritable(true, false);
             
         } catch (Exception e) {
             throw new ExcelHandlingException(
                     "failed to create and save result book : %s".formatted(dstBookPath), e);
+            
+        } finally {
+            // 一時ファイルを削除する。
+            book.dispose();
         }
     }
     
     private void outputHeader(
-            CreationHelper ch,
             Sheet sheet,
             Path workDir,
             ResultOfBooks bookResult) {
@@ -134,7 +188,6 @@ public class BookReportCreator {
         PoiUtil.setCellValue(sheet, 2, COL_LEFT.a(), Msg.APP_0440.get().formatted(Side.A));
         PoiUtil.setCellValue(sheet, 3, COL_LEFT.a(), Msg.APP_0440.get().formatted(Side.B));
         
-        String timestamp = ar.settings().get(SettingKeys.CURR_TIMESTAMP);
         LocalDateTime localDateTime = LocalDateTime.parse(timestamp, formatter);
         PoiUtil.setCellValue(sheet, 0, COL_LEFT.a() + 1, localDateTime);
         
@@ -182,13 +235,14 @@ public class BookReportCreator {
     }
     
     private int outputSheetResult(
-            Sheet sheet,
+            Sheet template,
+            SXSSFSheet sheet,
             int sheetIdx,
             int rowIdx,
             Pair<String> sheetNamePair,
             ResultOfSheets sheetResult) {
         
-        PoiUtil.copyRow(sheet, ROW_TEMPLATE_SHEET_TITLE, rowIdx);
+        PoiUtil.copyRow(template, ROW_TEMPLATE_SHEET_TITLE, sheet, rowIdx);
         PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a() - 1, sheetIdx + 1);
         PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a() + 1,
                 sheetNamePair.hasA() ? sheetNamePair.a() : Msg.APP_0400.get());
@@ -198,28 +252,28 @@ public class BookReportCreator {
         
         // 比較対象なしの場合は「比較対象なし」の旨を出力する。
         if (!sheetNamePair.isPaired()) {
-            PoiUtil.copyRow(sheet, ROW_TEMPLATE_NO_OPPONENT, rowIdx);
+            PoiUtil.copyRow(template, ROW_TEMPLATE_NO_OPPONENT, sheet, rowIdx);
             rowIdx++;
             return rowIdx;
         }
         
         // 比較結果なしの場合は「失敗」の旨を出力する。
         if (sheetResult == null) {
-            PoiUtil.copyRow(sheet, ROW_TEMPLATE_FAILED, rowIdx);
+            PoiUtil.copyRow(template, ROW_TEMPLATE_FAILED, sheet, rowIdx);
             rowIdx++;
             return rowIdx;
         }
         
         // 差分なしの場合は「差分なし」の旨を出力する。
         if (!sheetResult.hasDiff()) {
-            PoiUtil.copyRow(sheet, ROW_TEMPLATE_NO_DIFF, rowIdx);
+            PoiUtil.copyRow(template, ROW_TEMPLATE_NO_DIFF, sheet, rowIdx);
             rowIdx++;
             return rowIdx;
         }
         
         // 余剰行ありの場合
         if (!sheetResult.redundantRows().a().isEmpty() || !sheetResult.redundantRows().b().isEmpty()) {
-            PoiUtil.copyRow(sheet, ROW_TEMPLATE_RROWS_TITLE, rowIdx);
+            PoiUtil.copyRow(template, ROW_TEMPLATE_RROWS_TITLE, sheet, rowIdx);
             PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a(),
                     Msg.APP_0620.get().formatted(
                             sheetResult.redundantRows().a().size(),
@@ -234,7 +288,8 @@ public class BookReportCreator {
             
             while (!rRowsA.isEmpty() || !rRowsB.isEmpty()) {
                 boolean isLast = rRowsA.length() <= MAX_CHARS && rRowsB.length() <= MAX_CHARS;
-                PoiUtil.copyRow(sheet, ROW_TEMPLATE_RROWS_TITLE + (isLast ? 3 : 2), rowIdx);
+                PoiUtil.copyRow(template, ROW_TEMPLATE_RROWS_TITLE + (isLast ? 3 : 2), sheet, rowIdx);
+                sheet.setRowOutlineLevel(rowIdx, 1);
                 if (rowIdx == rRowsStart) {
                     PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a(), "【A】");
                     PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.b(), "【B】");
@@ -262,12 +317,11 @@ public class BookReportCreator {
                 PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.b() + 1, b);
                 rowIdx++;
             }
-            sheet.groupRow(rRowsStart, rowIdx - 1);
         }
         
         // 余剰列ありの場合
         if (!sheetResult.redundantColumns().a().isEmpty() || !sheetResult.redundantColumns().b().isEmpty()) {
-            PoiUtil.copyRow(sheet, ROW_TEMPLATE_RCOLS_TITLE, rowIdx);
+            PoiUtil.copyRow(template, ROW_TEMPLATE_RCOLS_TITLE, sheet, rowIdx);
             PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a(),
                     Msg.APP_0630.get().formatted(
                             sheetResult.redundantColumns().a().size(),
@@ -282,7 +336,8 @@ public class BookReportCreator {
             
             while (!rColsA.isEmpty() || !rColsB.isEmpty()) {
                 boolean isLast = rColsA.length() <= MAX_CHARS && rColsB.length() <= MAX_CHARS;
-                PoiUtil.copyRow(sheet, ROW_TEMPLATE_RCOLS_TITLE + (isLast ? 3 : 2), rowIdx);
+                PoiUtil.copyRow(template, ROW_TEMPLATE_RCOLS_TITLE + (isLast ? 3 : 2), sheet, rowIdx);
+                sheet.setRowOutlineLevel(rowIdx, 1);
                 if (rowIdx == rColsStart) {
                     PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a(), "【A】");
                     PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.b(), "【B】");
@@ -310,19 +365,22 @@ public class BookReportCreator {
                 PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.b() + 1, b);
                 rowIdx++;
             }
-            sheet.groupRow(rColsStart, rowIdx - 1);
         }
         
         // 差分セルありの場合
         if (!sheetResult.diffCells().isEmpty()) {
-            PoiUtil.copyRow(sheet, ROW_TEMPLATE_DCELLS_TITLE, rowIdx);
+            List<Pair<CellData>> diffCells = sheetResult.diffCells();
+            PoiUtil.copyRow(template, ROW_TEMPLATE_DCELLS_TITLE, sheet, rowIdx);
             PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a(),
-                    Msg.APP_0640.get().formatted(sheetResult.diffCells().size()));
+                    Msg.APP_0640.get().formatted(diffCells.size()));
             rowIdx++;
-            int start = rowIdx;
             
-            for (Pair<CellData> pair : sheetResult.diffCells()) {
-                PoiUtil.copyRow(sheet, ROW_TEMPLATE_DCELLS_TITLE + 1, rowIdx);
+            // 上限を超える差分セルと、Excelの最大行数を超える差分セルは省略する。
+            int n = Math.min(diffCells.size(), Math.min(maxDiffCells, Math.max(0, ROW_LIMIT - rowIdx)));
+            
+            for (Pair<CellData> pair : diffCells.subList(0, n)) {
+                PoiUtil.copyRow(template, ROW_TEMPLATE_DCELLS_TITLE + 1, sheet, rowIdx);
+                sheet.setRowOutlineLevel(rowIdx, 1);
                 
                 PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a(), pair.a().address());
                 PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.b(), pair.b().address());
@@ -330,7 +388,13 @@ public class BookReportCreator {
                 PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.b() + 1, pair.b().dataString());
                 rowIdx++;
             }
-            sheet.groupRow(start, rowIdx - 1);
+            if (n < diffCells.size()) {
+                PoiUtil.copyRow(template, ROW_TEMPLATE_DCELLS_TITLE + 1, sheet, rowIdx);
+                sheet.setRowOutlineLevel(rowIdx, 1);
+                PoiUtil.setCellValue(sheet, rowIdx, COL_LEFT.a() + 1,
+                        Msg.APP_0830.get().formatted(diffCells.size() - n));
+                rowIdx++;
+            }
         }
         return rowIdx;
     }
@@ -1,9 +1,14 @@
 package xyz.hotchpotch.hogandiff.logic;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.apache.poi.ss.usermodel.Cell;
 
@@ -12,6 +17,8 @@ import xyz.hotchpotch.hogandiff.logic.poi.CellsLoaderWithPoiEventApi;
 import xyz.hotchpotch.hogandiff.logic.poi.CellsLoaderWithPoiUserApi;
 import xyz.hotchpotch.hogandiff.logic.poi.PoiUtil;
 import xyz.hotchpotch.hogandiff.logic.sax.CellsLoaderWithSax;
+import xyz.hotchpotch.hogandiff.logic.stax.CellsLoaderWithStax;
+import xyz.hotchpotch.hogandiff.logic.xlsb.CellsLoaderWithBiff12;
 
 /**
  * Excelシートからセルデータを抽出するローダーを表します。<br>
@@ -34,7 +41,49 @@ public interface CellsLoader {
      * @throws UnsupportedOperationException {@code bookInfo} がサポート対象外の形式の場合
      */
     public static CellsLoader of(BookInfo bookInfo, boolean useCachedValue) {
+        return of(bookInfo, useCachedValue, false);
+    }
+    
+    /**
+     * Excelシートからセルデータを抽出するローダーを返します。<br>
+     * {@code useStax} が {@code true} の場合、.xlsx/.xlsm 形式のワークシートは
+     * StAXにより読み取り、失敗した場合はSAXによる読み取りで代替します。<br>
+     * 
+     * @param bookInfo       Excelブック情報
+     * @param useCachedValue 数式ではなく値で比較する場合は {@code true}
+     * @param useStax        .xlsx/.xlsm 形式のワークシートの読み取りにStAXを利用する場合は {@code true}
+     * @return Excelシートからセルデータを抽出するローダー
+     * @throws NullPointerException          {@code bookInfo} が {@code null} の場合
+     * @throws UnsupportedOperationException {@code bookInfo} がサポート対象外の形式の場合
+     */
+    public static CellsLoader of(BookInfo bookInfo, boolean useCachedValue, boolean useStax) {
+        return of(bookInfo, useCachedValue, useStax, HashSet::new);
+    }
+    
+    /**
+     * Excelシートからセルデータを抽出するローダーを返します。<br>
+     * {@code useStax} が {@code true} の場合、.xlsx/.xlsm 形式のワークシートは
+     * StAXにより読み取り、失敗した場合はSAXによる読み取りで代替します。<br>
+     * .xlsx/.xlsm 形式のワークシートをSAXまたはStAXにより読み取る場合は、
+     * 抽出したセルデータを {@code cellsSetFactory} で生成したセットに格納して返します。<br>
+     * .xlsb 形式からは数式文字列を抽出できないため、{@code useCachedValue} にかかわらず値を抽出します。<br>
+     * 
+     * @param bookInfo        Excelブック情報
+     * @param useCachedValue  数式ではなく値で比較する場合は {@code true}
+     * @param useStax         .xlsx/.xlsm 形式のワークシートの読み取りにStAXを利用する場合は {@code true}
+     * @param cellsSetFactory 抽出したセルデータを格納する空のセットのファクトリ
+     * @return Excelシートからセルデータを抽出するローダー
+     * @throws NullPointerException          {@code bookInfo}, {@code cellsSetFactory} のいずれかが {@code null} の場合
+     * @throws UnsupportedOperationException {@code bookInfo} がサポート対象外の形式の場合
+     */
+    public static CellsLoader of(
+            BookInfo bookInfo,
+            boolean useCachedValue,
+            boolean useStax,
+            Supplier<? extends Set<CellData>> cellsSetFactory) {
+        
         Objects.requireNonNull(bookInfo);
+        Objects.requireNonNull(cellsSetFactory);
         
         Function<Cell, CellData> converter = cell -> {
             String content = PoiUtil.getCellContentAsString(cell, useCachedValue);
@@ -54,14 +103,19 @@ public interface CellsLoader {
                         () -> new CellsLoaderWithPoiUserApi(converter)))
                 : new CellsLoaderWithPoiUserApi(converter);
     
-        case XLSX, XLSM -> useCachedValue
+        case XLSX, XLSM -> useStax
                 ? CellsLoaderCombined.of(List.of(
-                        () -> new CellsLoaderWithSax(useCachedValue),
+                        () -> new CellsLoaderWithStax(useCachedValue, cellsSetFactory),
+                        () -> new CellsLoaderWithSax(useCachedValue, cellsSetFactory),
                         () -> new CellsLoaderWithPoiUserApi(converter)))
-                : new CellsLoaderWithPoiUserApi(converter);
+                : CellsLoaderCombined.of(List.of(
+                        () -> new CellsLoaderWithSax(useCachedValue, cellsSetFactory),
+                        () -> new CellsLoaderWithPoiUserApi(converter)));
+    
+        // .xlsb 形式からは数式文字列を抽出できないため、常に値で比較する。
+        case XLSB -> CellsLoaderCombined.of(List.of(
+                () -> new CellsLoaderWithBiff12(cellsSetFactory)));
     
-        // FIXME: [No.02 .xlsbのサポート]
-        case XLSB -> throw new UnsupportedOperationException("unsupported book type: " + BookType.XLSB);
         default -> throw new AssertionError("unknown book type: " + BookType.of(bookInfo.bookPath()));
         };
     }
@@ -82,4 +136,56 @@ public interface CellsLoader {
             String readPassword,
             String sheetName)
             throws ExcelHandlingException;
+    
+    /**
+     * 同一のExcelブックに含まれる複数のExcelシートについて、それぞれに含まれるセルのセットを返します。<br>
+     * 読み込めなかったシートは戻り値のマップに含まれません。
+     * 失敗の理由が必要な場合は、そのシートについて改めて {@link #loadCells(BookInfo, String, String)} を呼び出してください。<br>
+     * <br>
+     * デフォルトの実装は、シートごとに {@link #loadCells(BookInfo, String, String)} を呼び出します。
+     * Excelブック全体を一度に走査した方が効率的な実装は、このメソッドをオーバーライドします。<br>
+     * 
+     * @see #prefersLoadingSheetsAtOnce()
+     * 
+     * @param bookInfo     Excelブック情報
+     * @param readPassword Excelブックの読み取りパスワード
+     * @param sheetNames   シート名
+     * @return シート名をキーとし、そのシートに含まれるセルのセットを値とするマップ
+     * @throws NullPointerException   {@code bookInfo}, {@code sheetNames} のいずれかが {@code null} の場合
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    default Map<String, Set<CellData>> loadCellsOfSheets(
+            BookInfo bookInfo,
+            String readPassword,
+            Collection<String> sheetNames)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookInfo);
+        // readPassword may be null.
+        Objects.requireNonNull(sheetNames);
+        
+        Map<String, Set<CellData>> result = new HashMap<>();
+        for (String sheetName : sheetNames) {
+            try {
+                result.put(sheetName, loadCells(bookInfo, readPassword, sheetName));
+            } catch (ExcelHandlingException e) {
+                // nop: 読み込めなかったシートは戻り値に含めない。
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * {@link #loadCellsOfSheets(BookInfo, String, Collection)} で複数のシートをまとめて読み込んだ方が、
+     * シートごとに読み込むよりも効率的かを返します。<br>
+     * まとめて読み込む場合は全シート分のセルデータを同時に保持することになるため、
+     * 呼び出し側はこの値に応じてどちらの方法を採るかを判断します。<br>
+     * <br>
+     * デフォルトの実装は {@code false} を返します。<br>
+     * 
+     * @return まとめて読み込んだ方が効率的な場合は {@code true}
+     */
+    default boolean prefersLoadingSheetsAtOnce() {
+        return false;
+    }
 }
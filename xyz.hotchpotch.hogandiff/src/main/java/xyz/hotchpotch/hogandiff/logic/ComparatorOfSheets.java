@@ -1,13 +1,15 @@
 package xyz.hotchpotch.hogandiff.logic;
 
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.logic.plain.ComparatorOfSheetsRC;
 import xyz.hotchpotch.hogandiff.util.Pair;
 
 /**
  * 2つのシートから抽出したセルセット同士を比較するコンパレータを表します。<br>
- * これは、{@link #compare(Pair)} を関数メソッドに持つ関数型インタフェースです。<br>
+ * これは、{@link #compare(Pair, MatchBudget)} を関数メソッドに持つ関数型インタフェースです。<br>
  * 
  * @author nmby
  */
@@ -29,10 +31,58 @@ public interface ComparatorOfSheets {
             boolean considerColumnGaps,
             boolean prioritizeSpeed) {
 
+        return of(considerRowGaps, considerColumnGaps, prioritizeSpeed, 0);
+    }
+    
+    /**
+     * {@link ComparatorOfSheets} のインスタンスを生成して返します。<br>
+     * 列の挿入／削除を考慮せずに行の挿入／削除を考慮する場合に {@code rowWindowSize} が正の値であれば、
+     * 両シートの行を先頭から順に読み進めながら、指定された行数のウィンドウの範囲内で行同士の対応付けを行います。<br>
+     * 
+     * @param considerRowGaps    行の挿入／削除を考慮する場合は {@code true}
+     * @param considerColumnGaps 列の挿入／削除を考慮する場合は {@code true}
+     * @param prioritizeSpeed    比較処理の速度を優先する場合は {@code true}
+     * @param rowWindowSize      行同士の対応付けを一度に行う行数（0以下の場合はシート全体）
+     * @return コンパレータ
+     */
+    public static ComparatorOfSheets of(
+            boolean considerRowGaps,
+            boolean considerColumnGaps,
+            boolean prioritizeSpeed,
+            int rowWindowSize) {
+        
         return ComparatorOfSheetsRC.of(
                 considerRowGaps,
                 considerColumnGaps,
-                prioritizeSpeed);
+                prioritizeSpeed,
+                rowWindowSize);
+    }
+    
+    /**
+     * {@link ComparatorOfSheets} のインスタンスを生成して返します。<br>
+     * 行同士、列同士の対応付けの並列処理には、指定されたスレッドプールを使用します。<br>
+     * 
+     * @param considerRowGaps    行の挿入／削除を考慮する場合は {@code true}
+     * @param considerColumnGaps 列の挿入／削除を考慮する場合は {@code true}
+     * @param prioritizeSpeed    比較処理の速度を優先する場合は {@code true}
+     * @param rowWindowSize      行同士の対応付けを一度に行う行数（0以下の場合はシート全体）
+     * @param pool               並列処理に用いるスレッドプール
+     * @return コンパレータ
+     * @throws NullPointerException {@code pool} が {@code null} の場合
+     */
+    public static ComparatorOfSheets of(
+            boolean considerRowGaps,
+            boolean considerColumnGaps,
+            boolean prioritizeSpeed,
+            int rowWindowSize,
+            ForkJoinPool pool) {
+        
+        return ComparatorOfSheetsRC.of(
+                considerRowGaps,
+                considerColumnGaps,
+                prioritizeSpeed,
+                rowWindowSize,
+                pool);
     }
 
     // [instance members] ******************************************************
@@ -43,5 +93,39 @@ public interface ComparatorOfSheets {
      * @param cellsSetPair セルセット
      * @return 比較結果
      */
-    ResultOfSheets compare(Pair<Set<CellData>> cellsSetPair);
+    default ResultOfSheets compare(Pair<Set<CellData>> cellsSetPair) {
+        return compare(cellsSetPair, MatchBudget.unlimited());
+    }
+
+    /**
+     * 指定された打ち切り条件のもとで、2つのシートから抽出したセルセット同士を比較して結果を返します。<br>
+     * 制限時間を超過した場合は近似結果を返し、その旨を比較結果に記録します。<br>
+     * 
+     * @param cellsSetPair セルセット
+     * @param budget       打ち切り条件
+     * @return 比較結果
+     * @throws java.util.concurrent.CancellationException 中断が要求された場合
+     */
+    ResultOfSheets compare(Pair<Set<CellData>> cellsSetPair, MatchBudget budget);
+    
+    /**
+     * 同じシート同士の前回の比較結果を手掛かりに、2つのシートから抽出したセルセット同士を比較して結果を返します。<br>
+     * 前回から変更の無い行・列の対応付けを引き継ぐことで、一部のセルを修正しただけのシートを高速に再比較できます。<br>
+     * この実装は、前回の比較結果を用いずに {@link #compare(Pair, MatchBudget)} の結果を返します。<br>
+     * 
+     * @param cellsSetPair     セルセット
+     * @param budget           打ち切り条件
+     * @param prevCellsSetPair 前回比較したセルセット
+     * @param prevResult       前回の比較結果
+     * @return 比較結果
+     * @throws java.util.concurrent.CancellationException 中断が要求された場合
+     */
+    default ResultOfSheets compareIncrementally(
+            Pair<Set<CellData>> cellsSetPair,
+            MatchBudget budget,
+            Pair<Set<CellData>> prevCellsSetPair,
+            ResultOfSheets prevResult) {
+        
+        return compare(cellsSetPair, budget);
+    }
 }
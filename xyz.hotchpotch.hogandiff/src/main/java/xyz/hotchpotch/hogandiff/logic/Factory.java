@@ -4,12 +4,19 @@ import java.awt.Color;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntBiFunction;
 
 import xyz.hotchpotch.hogandiff.SettingKeys;
+import xyz.hotchpotch.hogandiff.core.CostCache;
 import xyz.hotchpotch.hogandiff.core.Matcher;
 import xyz.hotchpotch.hogandiff.core.StringDiffUtil;
+import xyz.hotchpotch.hogandiff.logic.plain.CellsLoaderWithDiskCache;
+import xyz.hotchpotch.hogandiff.logic.plain.SpillableCellsSet;
 import xyz.hotchpotch.hogandiff.util.IntPair;
 import xyz.hotchpotch.hogandiff.util.Settings;
 
@@ -22,8 +29,15 @@ public class Factory {
     
     // [static members] ********************************************************
     
+    /** 読み込んだシートのキャッシュの保存先が設定されていない場合に用いる、作業用フォルダの作成場所配下のフォルダ名 */
+    private static final String SHEET_CACHE_DIR_NAME = "sheetCache";
+    
+    /** ペアリング処理の差分コストのキャッシュの容量 */
+    private static final int PAIRING_COST_CACHE_SIZE = 1 << 16;
+    
     /**
      * Excelブック情報を抽出するローダーを返します。<br>
+     * {@link BatchCache} が開かれている場合は、キャッシュを経由して読み込むローダーを返します。<br>
      * 
      * @param bookPath Excelブックのパス
      * @return Excelブックからシート名の一覧を抽出するローダー
@@ -33,11 +47,15 @@ public class Factory {
     public static BookInfoLoader bookInfoLoader(Path bookPath) {
         Objects.requireNonNull(bookPath);
         
-        return BookInfoLoader.of(bookPath);
+        BookInfoLoader loader = BookInfoLoader.of(bookPath);
+        return (path, readPassword) -> BatchCache.current()
+                .map(cache -> cache.bookInfo(path, readPassword, loader))
+                .orElseGet(() -> loader.loadBookInfo(path, readPassword));
     }
     
     /**
      * Excelシートからセルデータを抽出するローダーを返します。<br>
+     * シートのキャッシュが有効な場合は、{@link #sheetCacheDir(Settings)} 配下のキャッシュを先に参照するローダーを返します。<br>
      * 
      * @param settings 設定
      * @param bookInfo Excelブック情報
@@ -55,8 +73,42 @@ public class Factory {
         // Settings 丸ごとではなく、必要な個別のパラメータを渡すこととする。
         
         boolean useCachedValue = !settings.get(SettingKeys.COMPARE_ON_FORMULA_STRING);
+        boolean useStax = settings.get(SettingKeys.READ_WORKSHEETS_WITH_STAX);
+        Path workDirBase = settings.get(SettingKeys.WORK_DIR_BASE);
+        int budgetMegabytes = settings.get(SettingKeys.CELLS_HEAP_BUDGET_MEGABYTES);
+        long heapBudget = 0 < budgetMegabytes
+                ? budgetMegabytes * 1024L * 1024L
+                : Runtime.getRuntime().maxMemory() / 8;
+        Supplier<Set<CellData>> cellsSetFactory = () -> new SpillableCellsSet(workDirBase, heapBudget);
         
-        return CellsLoader.of(bookInfo, useCachedValue);
+        CellsLoader loader = CellsLoader.of(bookInfo, useCachedValue, useStax, cellsSetFactory);
+        
+        int cacheMegabytes = settings.get(SettingKeys.SHEET_CACHE_MEGABYTES);
+        return 0 < cacheMegabytes
+                ? CellsLoaderWithDiskCache.of(
+                        loader,
+                        sheetCacheDir(settings),
+                        cacheMegabytes * 1024L * 1024L,
+                        useCachedValue,
+                        cellsSetFactory)
+                : loader;
+    }
+    
+    /**
+     * 読み込んだシートのキャッシュの保存先フォルダを返します。<br>
+     * 保存先が設定されていない場合は、作業用フォルダの作成場所の配下のフォルダを返します。<br>
+     * 
+     * @param settings 設定
+     * @return シートのキャッシュの保存先フォルダ
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static Path sheetCacheDir(Settings settings) {
+        Objects.requireNonNull(settings);
+        
+        Path sheetCacheDir = settings.get(SettingKeys.SHEET_CACHE_DIR);
+        return sheetCacheDir != null
+                ? sheetCacheDir
+                : settings.get(SettingKeys.WORK_DIR_BASE).resolve(SHEET_CACHE_DIR_NAME);
     }
     
     /**
@@ -73,6 +125,18 @@ public class Factory {
         return DirInfoLoader.of(recursively);
     }
     
+    /**
+     * ペアリング処理の差分コストを記憶する、新たなキャッシュを返します。<br>
+     * 比較対象の組み合わせの編集中など、同じ要素の対応付けを繰り返す一連の処理の間このキャッシュを保持し、
+     * {@link #sheetNamesMatcher(Settings, CostCache)} などに渡すことで、差分コストの再計算を省くことができます。
+     * キャッシュは要素を強参照で保持するため、一連の処理を終えたら破棄してください。<br>
+     * 
+     * @return 差分コストの新たなキャッシュ
+     */
+    public static CostCache pairingCostCache() {
+        return CostCache.of(PAIRING_COST_CACHE_SIZE);
+    }
+    
     /**
      * 2つのExcelブックに含まれるシート名同士の対応関係を決めるマッチャーを返します。<br>
      * 
@@ -81,7 +145,22 @@ public class Factory {
      * @throws NullPointerException パラメータが {@code null} の場合
      */
     public static Matcher<String> sheetNamesMatcher(Settings settings) {
+        return sheetNamesMatcher(settings, pairingCostCache());
+    }
+    
+    /**
+     * 2つのExcelブックに含まれるシート名同士の対応関係を決めるマッチャーを返します。<br>
+     * 曖昧一致のための差分コストを、指定されたキャッシュに記憶します。<br>
+     * 
+     * @param settings 設定
+     * @param costCache 差分コストのキャッシュ
+     * @return シート名同士の対応関係を決めるマッチャー
+     * @throws NullPointerException パラメータが {@code null} の場合
+     * @see #pairingCostCache()
+     */
+    public static Matcher<String> sheetNamesMatcher(Settings settings, CostCache costCache) {
         Objects.requireNonNull(settings);
+        Objects.requireNonNull(costCache);
         
         boolean enableFuzzyMatching = settings.get(SettingKeys.ENABLE_FUZZY_MATCHING);
         return enableFuzzyMatching
@@ -89,10 +168,14 @@ public class Factory {
                         Matcher.identityMatcherOf(),
                         Matcher.minimumCostFlowMatcherOf(
                                 String::length,
-                                (s1, s2) -> StringDiffUtil.levenshteinDistance(s1, s2) + 1)))
+                                costCache.memoize(sheetNamesDiffEvaluator))))
                 : Matcher.identityMatcherOf();
     }
     
+    private static final ToIntBiFunction<String, String> sheetNamesDiffEvaluator = (s1, s2) -> {
+        return StringDiffUtil.levenshteinDistance(s1, s2) + 1;
+    };
+    
     /**
      * 2つのフォルダに含まれるExcelブック情報同士の対応関係を決めるマッチャーを返します。<br>
      * Excelブックパスの末尾のファイル名に基づいて対応関係を求めます。<br>
@@ -102,7 +185,23 @@ public class Factory {
      * @throws NullPointerException パラメータが {@code null} の場合
      */
     public static Matcher<BookInfo> bookInfosMatcher(Settings settings) {
+        return bookInfosMatcher(settings, pairingCostCache());
+    }
+    
+    /**
+     * 2つのフォルダに含まれるExcelブック情報同士の対応関係を決めるマッチャーを返します。<br>
+     * Excelブックパスの末尾のファイル名に基づいて対応関係を求めます。
+     * 曖昧一致のための差分コストを、指定されたキャッシュに記憶します。<br>
+     * 
+     * @param settings 設定
+     * @param costCache 差分コストのキャッシュ
+     * @return Excelブックパス同士の対応関係を決めるマッチャー
+     * @throws NullPointerException パラメータが {@code null} の場合
+     * @see #pairingCostCache()
+     */
+    public static Matcher<BookInfo> bookInfosMatcher(Settings settings, CostCache costCache) {
         Objects.requireNonNull(settings);
+        Objects.requireNonNull(costCache);
         
         boolean enableFuzzyMatching = settings.get(SettingKeys.ENABLE_FUZZY_MATCHING);
         return enableFuzzyMatching
@@ -110,14 +209,16 @@ public class Factory {
                         Matcher.identityMatcherOf(BookInfo::bookName),
                         Matcher.minimumCostFlowMatcherOf(
                                 bookInfo -> bookInfo.bookName().length(),
-                                (bookInfo1, bookInfo2) -> {
-                                    String bookName1 = bookInfo1.bookName();
-                                    String bookName2 = bookInfo2.bookName();
-                                    return StringDiffUtil.levenshteinDistance(bookName1, bookName2) + 1;
-                                })))
+                                costCache.memoize(bookInfosDiffEvaluator))))
                 : Matcher.identityMatcherOf(BookInfo::bookName);
     }
     
+    private static final ToIntBiFunction<BookInfo, BookInfo> bookInfosDiffEvaluator = (bookInfo1, bookInfo2) -> {
+        String bookName1 = bookInfo1.bookName();
+        String bookName2 = bookInfo2.bookName();
+        return StringDiffUtil.levenshteinDistance(bookName1, bookName2) + 1;
+    };
+    
     /**
      * 2つのフォルダツリーに含まれるフォルダ同士の対応関係を決めるマッチャーを返します。<br>
      * 
@@ -126,13 +227,30 @@ public class Factory {
      * @throws NullPointerException パラメータが {@code null} の場合
      */
     public static Matcher<DirInfo> dirInfosMatcher(Settings settings) {
+        return dirInfosMatcher(settings, pairingCostCache());
+    }
+    
+    /**
+     * 2つのフォルダツリーに含まれるフォルダ同士の対応関係を決めるマッチャーを返します。<br>
+     * 曖昧一致のための差分コストを、指定されたキャッシュに記憶します。<br>
+     * 
+     * @param settings 設定
+     * @param costCache 差分コストのキャッシュ
+     * @return フォルダ同士の対応関係を決めるマッチャー
+     * @throws NullPointerException パラメータが {@code null} の場合
+     * @see #pairingCostCache()
+     */
+    public static Matcher<DirInfo> dirInfosMatcher(Settings settings, CostCache costCache) {
         Objects.requireNonNull(settings);
+        Objects.requireNonNull(costCache);
         
         boolean enableFuzzyMatching = settings.get(SettingKeys.ENABLE_FUZZY_MATCHING);
         return enableFuzzyMatching
                 ? Matcher.combinedMatcherOf(List.of(
                         strictDirInfosMatcher,
-                        fuzzyButSimpleDirInfosMatcher))
+                        Matcher.minimumCostFlowMatcherOf(
+                                d -> d.childDirInfos().size() + d.childBookInfos().size(),
+                                costCache.memoize(dirInfosDiffEvaluator))))
                 : strictDirInfosMatcher;
     }
     
@@ -140,23 +258,22 @@ public class Factory {
     
     private static final Matcher<DirInfo> strictDirInfosMatcher = Matcher.identityMatcherOf(dirNameExtractor);
     
-    private static final Matcher<DirInfo> fuzzyButSimpleDirInfosMatcher = Matcher.minimumCostFlowMatcherOf(
-            d -> d.childDirInfos().size() + d.childBookInfos().size(),
-            (d1, d2) -> {
-                List<String> childrenNames1 = d1.childDirInfos().stream().map(dirNameExtractor).toList();
-                List<String> childrenNames2 = d2.childDirInfos().stream().map(dirNameExtractor).toList();
-                
-                int gapChildren = (int) Matcher.identityMatcherOf().makeIdxPairs(childrenNames1, childrenNames2)
-                        .stream().filter(Predicate.not(IntPair::isPaired)).count();
-                int gapBookNames = (int) Matcher.identityMatcherOf()
-                        .makeIdxPairs(d1.childBookInfos(), d2.childBookInfos())
-                        .stream().filter(Predicate.not(IntPair::isPaired)).count();
-                
-                return gapChildren + gapBookNames;
-            });
+    private static final ToIntBiFunction<DirInfo, DirInfo> dirInfosDiffEvaluator = (d1, d2) -> {
+        List<String> childrenNames1 = d1.childDirInfos().stream().map(dirNameExtractor).toList();
+        List<String> childrenNames2 = d2.childDirInfos().stream().map(dirNameExtractor).toList();
+        
+        int gapChildren = (int) Matcher.identityMatcherOf().makeIdxPairs(childrenNames1, childrenNames2)
+                .stream().filter(Predicate.not(IntPair::isPaired)).count();
+        int gapBookNames = (int) Matcher.identityMatcherOf()
+                .makeIdxPairs(d1.childBookInfos(), d2.childBookInfos())
+                .stream().filter(Predicate.not(IntPair::isPaired)).count();
+        
+        return gapChildren + gapBookNames;
+    };
     
     /**
      * 2つのExcelシートから抽出したセルセット同士を比較するコンパレータを返します。<br>
+     * {@link BatchCache} が開かれている場合は、その専用のスレッドプールで並列処理を行うコンパレータを返します。<br>
      * 
      * @param settings 設定
      * @return セルセット同士を比較するコンパレータ
@@ -168,8 +285,12 @@ public class Factory {
         boolean considerRowGaps = settings.get(SettingKeys.CONSIDER_ROW_GAPS);
         boolean considerColumnGaps = settings.get(SettingKeys.CONSIDER_COLUMN_GAPS);
         boolean prioritizeSpeed = settings.get(SettingKeys.PRIORITIZE_SPEED);
+        int rowWindowSize = settings.get(SettingKeys.ROW_WINDOW_SIZE);
+        ForkJoinPool pool = BatchCache.current()
+                .map(BatchCache::matcherPool)
+                .orElseGet(ForkJoinPool::commonPool);
         
-        return ComparatorOfSheets.of(considerRowGaps, considerColumnGaps, prioritizeSpeed);
+        return ComparatorOfSheets.of(considerRowGaps, considerColumnGaps, prioritizeSpeed, rowWindowSize, pool);
     }
     
     /**
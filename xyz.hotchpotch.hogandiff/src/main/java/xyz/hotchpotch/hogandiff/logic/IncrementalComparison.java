@@ -0,0 +1,394 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
+import xyz.hotchpotch.hogandiff.logic.plain.SpillableCellsSet;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil;
+import xyz.hotchpotch.hogandiff.util.Pair;
+import xyz.hotchpotch.hogandiff.util.Pair.Side;
+
+/**
+ * 同じExcelブックを繰り返し比較する場合に、前回の比較の情報を引き継いで再比較を高速に行うための仕組みです。<br>
+ * <br>
+ * シートごとにダイジェストと読み込んだセルデータを、シート同士の組ごとに比較結果をプロセス内で保持します。
+ * ダイジェストが前回から変わっていないシートは読み込みを省略し、前回のセルデータを用います。
+ * 両シートとも前回と同じ内容であれば前回の比較結果をそのまま返し、
+ * そうでなければ前回の行同士・列同士の対応付けを手掛かりに、変更箇所の周辺のみを改めて対応付けます。<br>
+ * シートのダイジェストは、暗号化されていない .xlsx/.xlsm 形式のExcelブックではシートごとに求め、
+ * それ以外の形式ではExcelブックのファイルサイズと最終更新日時から求めます。<br>
+ * 保持するセルデータの総数が上限を超えた場合は、最も長い間参照されていないシートから破棄します。<br>
+ * このクラスはスレッドセーフです。<br>
+ *
+ * @author nmby
+ */
+public final class IncrementalComparison {
+    
+    // [static members] ********************************************************
+    
+    private static final int DEFAULT_MAX_RETAINED_CELLS = 2_000_000;
+    
+    private static final IncrementalComparison shared = new IncrementalComparison(DEFAULT_MAX_RETAINED_CELLS);
+    
+    /**
+     * シートの識別子です。<br>
+     * 数式文字列と値のどちらでセルデータを読み込んだかも区別します。<br>
+     */
+    private static record SheetKey(Path bookPath, String sheetName, boolean useCachedValue) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * Excelブックのシートごとのダイジェストです。<br>
+     * Excelブックのファイルサイズと最終更新日時が変わらない限り、求め直さずに用います。<br>
+     */
+    private static record BookDigests(long size, long lastModified, Map<String, String> digests) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    private static record LoadedSheet(String digest, Set<CellData> cells) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    private static record ComparedSheets(
+            Pair<Set<CellData>> cellsSetPair,
+            ComparatorOfSheets comparator,
+            ResultOfSheets result) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 利用状況を表す不変クラスです。<br>
+     *
+     * @param reusedSheets     読み込みを省略したシートの数
+     * @param loadedSheets     読み込んだシートの数
+     * @param reusedResults    前回の比較結果をそのまま返したシート同士の組の数
+     * @param realignedResults 前回の対応付けを手掛かりに再比較したシート同士の組の数
+     */
+    public static record Stats(
+            long reusedSheets,
+            long loadedSheets,
+            long reusedResults,
+            long realignedResults) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * プロセス内で共有されるインスタンスを返します。<br>
+     *
+     * @return 共有インスタンス
+     */
+    public static IncrementalComparison shared() {
+        return shared;
+    }
+    
+    /**
+     * 2つのセルセットが同じセルデータから成るかを返します。<br>
+     * 一時ファイルに退避されたセルセットも扱えるよう、行の順に読み進めながら照合します。<br>
+     */
+    private static boolean sameCells(Set<CellData> cells1, Set<CellData> cells2) {
+        if (cells1 == cells2) {
+            return true;
+        }
+        if (cells1.size() != cells2.size()) {
+            return false;
+        }
+        Iterator<List<CellData>> rows1 = SpillableCellsSet.rows(cells1);
+        Iterator<List<CellData>> rows2 = SpillableCellsSet.rows(cells2);
+        while (rows1.hasNext() && rows2.hasNext()) {
+            if (!rows1.next().equals(rows2.next())) {
+                return false;
+            }
+        }
+        return !rows1.hasNext() && !rows2.hasNext();
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final long maxRetainedCells;
+    private final Map<Path, BookDigests> bookDigests = new HashMap<>();
+    private final LinkedHashMap<SheetKey, LoadedSheet> sheets = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Pair<SheetKey>, ComparedSheets> compared = new HashMap<>();
+    private long retainedCells;
+    
+    private final LongAdder reusedSheets = new LongAdder();
+    private final LongAdder loadedSheets = new LongAdder();
+    private final LongAdder reusedResults = new LongAdder();
+    private final LongAdder realignedResults = new LongAdder();
+    
+    /**
+     * コンストラクタ
+     *
+     * @param maxRetainedCells 保持するセルデータの総数の上限
+     */
+    /* package */ IncrementalComparison(long maxRetainedCells) {
+        assert 0 < maxRetainedCells;
+        
+        this.maxRetainedCells = maxRetainedCells;
+    }
+    
+    /**
+     * 指定されたシートのセルデータを返します。<br>
+     * シートのダイジェストが前回読み込んだときから変わっていない場合は前回のセルデータを返し、
+     * そうでない場合は指定されたローダーで読み込みます。<br>
+     *
+     * @param bookInfo       Excelブック情報
+     * @param readPassword   Excelブックの読み取りパスワード（{@code null} 許容）
+     * @param sheetName      シート名
+     * @param useCachedValue 数式ではなく値で比較する場合は {@code true}
+     * @param loader         セルデータのローダー
+     * @return セルデータ
+     * @throws NullPointerException
+     *             {@code bookInfo}, {@code sheetName}, {@code loader} のいずれかが {@code null} の場合
+     * @throws ExcelHandlingException
+     *             読み込みに失敗した場合
+     */
+    public Set<CellData> loadCells(
+            BookInfo bookInfo,
+            String readPassword,
+            String sheetName,
+            boolean useCachedValue,
+            CellsLoader loader)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookInfo);
+        // readPassword may be null.
+        Objects.requireNonNull(sheetName);
+        Objects.requireNonNull(loader);
+        
+        SheetKey key = new SheetKey(bookInfo.bookPath(), sheetName, useCachedValue);
+        String digest = digestOf(bookInfo.bookPath(), readPassword, sheetName);
+        
+        synchronized (this) {
+            LoadedSheet loaded = sheets.get(key);
+            if (loaded != null && digest != null && digest.equals(loaded.digest())) {
+                reusedSheets.increment();
+                return loaded.cells();
+            }
+        }
+        
+        Set<CellData> cells = loader.loadCells(bookInfo, readPassword, sheetName);
+        loadedSheets.increment();
+        
+        if (digest != null) {
+            synchronized (this) {
+                LoadedSheet old = sheets.put(key, new LoadedSheet(digest, cells));
+                retainedCells += cells.size() - (old == null ? 0 : old.cells().size());
+                evict();
+            }
+        }
+        return cells;
+    }
+    
+    /**
+     * 指定されたシートのうち、前回読み込んだときからダイジェストが変わったもの、
+     * または保持していないもののシート名を返します。<br>
+     *
+     * @param bookInfo       Excelブック情報
+     * @param readPassword   Excelブックの読み取りパスワード（{@code null} 許容）
+     * @param sheetNames     シート名
+     * @param useCachedValue 数式ではなく値で比較する場合は {@code true}
+     * @return 読み込みが必要なシートのシート名
+     * @throws NullPointerException
+     *             {@code bookInfo}, {@code sheetNames} のいずれかが {@code null} の場合
+     */
+    public List<String> sheetNamesToLoad(
+            BookInfo bookInfo,
+            String readPassword,
+            List<String> sheetNames,
+            boolean useCachedValue) {
+        
+        Objects.requireNonNull(bookInfo);
+        // readPassword may be null.
+        Objects.requireNonNull(sheetNames);
+        
+        return sheetNames.stream()
+                .filter(sheetName -> {
+                    String digest = digestOf(bookInfo.bookPath(), readPassword, sheetName);
+                    synchronized (this) {
+                        LoadedSheet loaded = sheets.get(new SheetKey(bookInfo.bookPath(), sheetName, useCachedValue));
+                        return loaded == null || digest == null || !digest.equals(loaded.digest());
+                    }
+                })
+                .toList();
+    }
+    
+    /**
+     * 2つのシートから抽出したセルセット同士を比較して結果を返します。<br>
+     * 同じシート同士を同じ比較方法で前回比較しており、両シートとも前回と同じ内容であれば、前回の比較結果を返します。
+     * 内容が変わっている場合は、前回の比較結果を手掛かりに比較します。<br>
+     *
+     * @param bookInfoPair   Excelブック情報
+     * @param sheetNamePair  シート名
+     * @param useCachedValue 数式ではなく値で比較する場合は {@code true}
+     * @param cellsSetPair   セルセット
+     * @param comparator     シート同士のコンパレータ
+     * @param budget         打ち切り条件
+     * @return 比較結果
+     * @throws NullPointerException
+     *             {@code useCachedValue} 以外のパラメータのいずれかが {@code null} の場合
+     * @throws java.util.concurrent.CancellationException
+     *             中断が要求された場合
+     */
+    public ResultOfSheets compare(
+            Pair<BookInfo> bookInfoPair,
+            Pair<String> sheetNamePair,
+            boolean useCachedValue,
+            Pair<Set<CellData>> cellsSetPair,
+            ComparatorOfSheets comparator,
+            MatchBudget budget) {
+        
+        Objects.requireNonNull(bookInfoPair);
+        Objects.requireNonNull(sheetNamePair);
+        Objects.requireNonNull(cellsSetPair);
+        Objects.requireNonNull(comparator);
+        Objects.requireNonNull(budget);
+        
+        Pair<SheetKey> key = Side.map(side -> new SheetKey(
+                bookInfoPair.get(side).bookPath(),
+                sheetNamePair.get(side),
+                useCachedValue));
+        
+        ComparedSheets prev;
+        synchronized (this) {
+            prev = compared.get(key);
+        }
+        
+        ResultOfSheets result;
+        if (prev == null || !prev.comparator().equals(comparator)) {
+            result = comparator.compare(cellsSetPair, budget);
+            
+        } else if (sameCells(prev.cellsSetPair().a(), cellsSetPair.a())
+                && sameCells(prev.cellsSetPair().b(), cellsSetPair.b())) {
+            reusedResults.increment();
+            result = prev.result();
+            
+        } else {
+            realignedResults.increment();
+            result = comparator.compareIncrementally(
+                    cellsSetPair,
+                    budget,
+                    prev.cellsSetPair(),
+                    prev.result());
+        }
+        
+        synchronized (this) {
+            // 近似的な対応付けは次回の手掛かりとしないため、保持しない。
+            // 保持していないシートのセルセットは次回照合できないため、やはり保持しない。
+            if (result.isApproximated()
+                    || !sheets.containsKey(key.a())
+                    || !sheets.containsKey(key.b())) {
+                compared.remove(key);
+            } else {
+                compared.put(key, new ComparedSheets(cellsSetPair, comparator, result));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 利用状況を返します。<br>
+     *
+     * @return 利用状況
+     */
+    public Stats stats() {
+        return new Stats(
+                reusedSheets.sum(),
+                loadedSheets.sum(),
+                reusedResults.sum(),
+                realignedResults.sum());
+    }
+    
+    /**
+     * 保持しているすべての情報を破棄します。<br>
+     */
+    public synchronized void clear() {
+        bookDigests.clear();
+        sheets.clear();
+        compared.clear();
+        retainedCells = 0;
+    }
+    
+    /**
+     * 指定されたシートのダイジェストを返します。<br>
+     * Excelブックのファイル属性を取得できない場合は {@code null} を返します。<br>
+     */
+    private String digestOf(Path bookPath, String readPassword, String sheetName) {
+        assert bookPath != null;
+        assert sheetName != null;
+        
+        long size;
+        long lastModified;
+        try {
+            size = Files.size(bookPath);
+            lastModified = Files.getLastModifiedTime(bookPath).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+        String bookDigest = "%d:%d".formatted(size, lastModified);
+        
+        BookType bookType = BookType.of(bookPath);
+        if (readPassword != null || (bookType != BookType.XLSX && bookType != BookType.XLSM)) {
+            return bookDigest;
+        }
+        
+        BookDigests digests;
+        synchronized (this) {
+            digests = bookDigests.get(bookPath);
+        }
+        if (digests == null || digests.size() != size || digests.lastModified() != lastModified) {
+            try {
+                digests = new BookDigests(size, lastModified, SaxUtil.loadSheetDigests(bookPath));
+            } catch (ExcelHandlingException e) {
+                digests = new BookDigests(size, lastModified, Map.of());
+            }
+            synchronized (this) {
+                bookDigests.put(bookPath, digests);
+            }
+        }
+        
+        String sheetDigest = digests.digests().get(sheetName);
+        return sheetDigest != null ? sheetDigest : bookDigest;
+    }
+    
+    /**
+     * 保持するセルデータの総数が上限を超えている間、最も長い間参照されていないシートを破棄します。<br>
+     */
+    private void evict() {
+        assert Thread.holdsLock(this);
+        
+        Iterator<Map.Entry<SheetKey, LoadedSheet>> itr = sheets.entrySet().iterator();
+        while (maxRetainedCells < retainedCells && itr.hasNext()) {
+            Map.Entry<SheetKey, LoadedSheet> eldest = itr.next();
+            SheetKey key = eldest.getKey();
+            retainedCells -= eldest.getValue().cells().size();
+            itr.remove();
+            compared.keySet().removeIf(pair -> pair.a().equals(key) || pair.b().equals(key));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import xyz.hotchpotch.hogandiff.util.function.UnsafeConsumer;
+
+/**
+ * 書き込まれた文字列の各行を字下げして、別の {@link Appendable} に逐次書き出すラッパーです。<br>
+ * 書き込みを終えた後に {@link #finish()} を呼び出すと、
+ * {@code text.indent(n).replace("\n", System.lineSeparator())} と同じ文字列を書き出したことになります。
+ * すなわち、空行も含めて各行の先頭に空白を挿入し、改行文字をプラットフォームの改行文字に揃え、
+ * 最終行が改行で終わっていない場合は改行を補います。<br>
+ * 文字列全体をヒープ上に保持せずに、比較結果の差分詳細を入れ子に字下げしながら出力するために利用します。<br>
+ *
+ * @author nmby
+ */
+/* package */ final class IndentingAppendable implements Appendable {
+    
+    // [static members] ********************************************************
+    
+    private static final String BR = System.lineSeparator();
+    
+    /**
+     * 指定された書き出し処理が書き出す文字列を返します。<br>
+     *
+     * @param writer
+     *            書き出し処理
+     * @return 書き出された文字列
+     */
+    /* package */ static String toText(UnsafeConsumer<Appendable, IOException> writer) {
+        assert writer != null;
+        
+        StringBuilder str = new StringBuilder();
+        try {
+            writer.accept(str);
+        } catch (IOException e) {
+            // StringBuilder への書き出しは失敗しない。
+            throw new AssertionError(e);
+        }
+        return str.toString();
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final Appendable out;
+    private final String indent;
+    
+    /** 現在の行の字下げを書き出し済みの場合は {@code true} */
+    private boolean inLine;
+    
+    /** 直前の文字が {@code '\r'} の場合は {@code true} */
+    private boolean afterCR;
+    
+    /**
+     * コンストラクタ<br>
+     *
+     * @param out
+     *            書き出し先
+     * @param n
+     *            字下げする空白の数
+     * @throws NullPointerException
+     *             {@code out} が {@code null} の場合
+     * @throws IllegalArgumentException
+     *             {@code n} が負数の場合
+     */
+    /* package */ IndentingAppendable(Appendable out, int n) {
+        Objects.requireNonNull(out);
+        if (n < 0) {
+            throw new IllegalArgumentException("n: " + n);
+        }
+        
+        this.out = out;
+        this.indent = " ".repeat(n);
+    }
+    
+    @Override
+    public IndentingAppendable append(CharSequence csq) throws IOException {
+        CharSequence s = csq == null ? "null" : csq;
+        return append(s, 0, s.length());
+    }
+    
+    @Override
+    public IndentingAppendable append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) {
+            return append("null", start, end);
+        }
+        Objects.checkFromToIndex(start, end, csq.length());
+        
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char c = csq.charAt(i);
+            if (c == '\r' || c == '\n') {
+                writeRun(csq, runStart, i);
+                runStart = i + 1;
+                
+                if (c == '\n' && afterCR) {
+                    // "\r\n" はひとつの改行として扱う。
+                    afterCR = false;
+                    continue;
+                }
+                endLine();
+                afterCR = c == '\r';
+            }
+        }
+        writeRun(csq, runStart, end);
+        return this;
+    }
+    
+    @Override
+    public IndentingAppendable append(char c) throws IOException {
+        return append(String.valueOf(c), 0, 1);
+    }
+    
+    /**
+     * 書き込みを終えます。最終行が改行で終わっていない場合は改行を書き出します。<br>
+     * このメソッドの呼び出し後に書き込みを再開すると、新たな文字列の書き込みとして扱います。<br>
+     *
+     * @throws IOException
+     *             書き出しに失敗した場合
+     */
+    public void finish() throws IOException {
+        if (inLine) {
+            out.append(BR);
+            inLine = false;
+        }
+        afterCR = false;
+    }
+    
+    private void writeRun(CharSequence csq, int start, int end) throws IOException {
+        if (start == end) {
+            return;
+        }
+        afterCR = false;
+        if (!inLine) {
+            out.append(indent);
+            inLine = true;
+        }
+        out.append(csq, start, end);
+    }
+    
+    private void endLine() throws IOException {
+        if (!inLine) {
+            out.append(indent);
+        }
+        out.append(BR);
+        inLine = false;
+    }
+}
@@ -0,0 +1,279 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+import org.json.JSONException;
+import org.json.JSONWriter;
+
+import xyz.hotchpotch.hogandiff.logic.plain.CellsUtil;
+import xyz.hotchpotch.hogandiff.util.Pair;
+import xyz.hotchpotch.hogandiff.util.Pair.Side;
+
+/**
+ * 比較結果を NDJSON（改行区切りのJSON）形式で逐次書き出すライターです。<br>
+ * シートの組み合わせ1組につき1行のJSONオブジェクトを書き出します。
+ * 各行は書き出し先に直接書き込まれるため、出力全体がヒープ上に保持されることはありません。<br>
+ * <br>
+ * 各行は次の項目から成ります。<br>
+ * <ul>
+ *   <li>{@code dirId} : フォルダの識別番号（フォルダ同士の比較の場合のみ）</li>
+ *   <li>{@code books}, {@code sheets} : 比較対象のExcelブックのパスとシート名（片側のみの場合は {@code null}）</li>
+ *   <li>{@code status} : {@code "compared"}（比較済み）, {@code "unpaired"}（片側のみ）, {@code "failed"}（比較失敗）のいずれか</li>
+ *   <li>{@code hasDiff}, {@code approximated} : 差分の有無と、近似的な対応付けが用いられたか</li>
+ *   <li>{@code redundantRows}, {@code redundantColumns} : 各側の余剰行（1開始の行番号）・余剰列（列記号）の連続範囲の配列</li>
+ *   <li>{@code diffCells} : 差分セルの配列。各要素は各側のセルアドレス、セル内容、セルコメントから成る</li>
+ *   <li>{@code timingsNanos} : シートの読み込みと比較に要した時間（ナノ秒）</li>
+ * </ul>
+ *
+ * @author nmby
+ */
+public final class NdjsonResultWriter implements AutoCloseable {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * シート1組分の比較処理の各フェーズに要した時間を表す不変クラスです。<br>
+     *
+     * @param loadNanosA
+     *            シートAの読み込みに要した時間（ナノ秒）
+     * @param loadNanosB
+     *            シートBの読み込みに要した時間（ナノ秒）
+     * @param compareNanos
+     *            比較に要した時間（ナノ秒）
+     */
+    public static record PhaseTimings(
+            long loadNanosA,
+            long loadNanosB,
+            long compareNanos) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 指定されたファイルに書き出すライターを返します。<br>
+     *
+     * @param dst
+     *            書き出し先ファイル
+     * @return 新たなライター
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     * @throws IOException
+     *             ファイルの作成に失敗した場合（既に存在する場合を含む）
+     */
+    public static NdjsonResultWriter open(Path dst) throws IOException {
+        Objects.requireNonNull(dst);
+        
+        return new NdjsonResultWriter(Files.newBufferedWriter(
+                dst,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE));
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final Appendable out;
+    
+    /**
+     * コンストラクタ<br>
+     * 書き出し先が {@link Closeable} の場合は、{@link #close()} の際にクローズします。<br>
+     *
+     * @param out
+     *            書き出し先
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public NdjsonResultWriter(Appendable out) {
+        Objects.requireNonNull(out);
+        
+        this.out = out;
+    }
+    
+    /**
+     * シート同士の比較結果を1行書き出します。<br>
+     *
+     * @param dirId
+     *            フォルダの識別番号（フォルダ同士の比較でない場合は {@code null}）
+     * @param bookInfoPair
+     *            比較対象のExcelブック情報
+     * @param sheetNamePair
+     *            比較対象のシート名
+     * @param result
+     *            比較結果（片側のみのシートまたは比較に失敗したシートの場合は空）
+     * @param timings
+     *            各フェーズに要した時間（計測していない場合は {@code null}）
+     * @throws NullPointerException
+     *             {@code bookInfoPair}, {@code sheetNamePair}, {@code result} のいずれかが {@code null} の場合
+     * @throws IOException
+     *             書き出しに失敗した場合
+     */
+    public void writeSheetResult(
+            String dirId,
+            Pair<BookInfo> bookInfoPair,
+            Pair<String> sheetNamePair,
+            Optional<ResultOfSheets> result,
+            PhaseTimings timings)
+            throws IOException {
+        
+        Objects.requireNonNull(bookInfoPair);
+        Objects.requireNonNull(sheetNamePair);
+        Objects.requireNonNull(result);
+        
+        try {
+            JSONWriter json = new JSONWriter(out).object();
+            
+            if (dirId != null) {
+                json.key("dirId").value(dirId);
+            }
+            writePair(json.key("books"), bookInfoPair.map(bookInfo -> bookInfo.bookPath().toString()));
+            writePair(json.key("sheets"), sheetNamePair);
+            json.key("status").value(
+                    result.isPresent() ? "compared" : sheetNamePair.isPaired() ? "failed" : "unpaired");
+            
+            if (result.isPresent()) {
+                ResultOfSheets r = result.get();
+                json.key("hasDiff").value(r.hasDiff());
+                json.key("approximated").value(r.isApproximated());
+                writeRanges(json.key("redundantRows"), r.redundantRows(), i -> i + 1);
+                writeRanges(json.key("redundantColumns"), r.redundantColumns(), CellsUtil::columnIdxToStr);
+                
+                json.key("diffCells").array();
+                for (Pair<CellData> cellPair : r.diffCells()) {
+                    json.object();
+                    for (Side side : Side.values()) {
+                        CellData cell = cellPair.get(side);
+                        json.key(side == Side.A ? "a" : "b").object()
+                                .key("address").value(cell.address())
+                                .key("content").value(cell.content())
+                                .key("comment").value(cell.comment())
+                                .endObject();
+                    }
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            
+            if (timings != null) {
+                json.key("timingsNanos").object()
+                        .key("loadA").value(timings.loadNanosA())
+                        .key("loadB").value(timings.loadNanosB())
+                        .key("compare").value(timings.compareNanos())
+                        .endObject();
+            }
+            
+            json.endObject();
+            out.append('\n');
+            
+        } catch (JSONException e) {
+            // JSONWriter は書き出し先の IOException を JSONException に包んでスローする。
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Excelブック同士の比較結果に含まれるシートの組み合わせごとに1行ずつ書き出します。<br>
+     *
+     * @param dirId
+     *            フォルダの識別番号（フォルダ同士の比較でない場合は {@code null}）
+     * @param bookResult
+     *            Excelブック同士の比較結果
+     * @throws NullPointerException
+     *             {@code bookResult} が {@code null} の場合
+     * @throws IOException
+     *             書き出しに失敗した場合
+     */
+    public void writeBookResult(String dirId, ResultOfBooks bookResult) throws IOException {
+        Objects.requireNonNull(bookResult);
+        
+        Pair<BookInfo> bookInfoPair = bookResult.bookComparison().parentBookInfoPair();
+        for (Pair<String> sheetNamePair : bookResult.bookComparison().childSheetNamePairs()) {
+            writeSheetResult(
+                    dirId,
+                    bookInfoPair,
+                    sheetNamePair,
+                    bookResult.sheetResults().getOrDefault(sheetNamePair, Optional.empty()),
+                    null);
+        }
+    }
+    
+    /**
+     * フォルダ同士の比較結果に含まれるExcelブックの比較結果を書き出します。<br>
+     * 比較されなかったExcelブックについては何も書き出しません。<br>
+     *
+     * @param dirResult
+     *            フォルダ同士の比較結果
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     * @throws IOException
+     *             書き出しに失敗した場合
+     */
+    public void writeDirResult(ResultOfDirs dirResult) throws IOException {
+        Objects.requireNonNull(dirResult);
+        
+        for (Pair<BookInfo> bookInfoPair : dirResult.dirComparison().childBookInfoPairs()) {
+            Optional<ResultOfBooks> bookResult = dirResult.bookResults().get(bookInfoPair);
+            if (bookResult != null && bookResult.isPresent()) {
+                writeBookResult(dirResult.dirId(), bookResult.get());
+            }
+        }
+    }
+    
+    private void writePair(JSONWriter json, Pair<String> pair) {
+        json.object()
+                .key("a").value(pair.a())
+                .key("b").value(pair.b())
+                .endObject();
+    }
+    
+    /**
+     * 各側のインデックスのリストを、連続する範囲 {@code [開始, 終了]} の配列として書き出します。<br>
+     */
+    private void writeRanges(JSONWriter json, Pair<List<Integer>> indexes, IntFunction<Object> label) {
+        json.object();
+        for (Side side : Side.values()) {
+            json.key(side == Side.A ? "a" : "b").array();
+            List<Integer> list = indexes.get(side);
+            int i = 0;
+            while (i < list.size()) {
+                int j = i;
+                while (j + 1 < list.size() && list.get(j + 1) == list.get(j) + 1) {
+                    j++;
+                }
+                json.array()
+                        .value(label.apply(list.get(i)))
+                        .value(label.apply(list.get(j)))
+                        .endArray();
+                i = j + 1;
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+    
+    /**
+     * 書き出し先が {@link Closeable} の場合はクローズします。<br>
+     *
+     * @throws IOException
+     *             クローズに失敗した場合
+     */
+    @Override
+    public void close() throws IOException {
+        if (out instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
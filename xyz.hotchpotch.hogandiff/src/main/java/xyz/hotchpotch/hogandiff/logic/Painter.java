@@ -11,6 +11,7 @@ import xyz.hotchpotch.hogandiff.logic.ResultOfSheets.Piece;
 import xyz.hotchpotch.hogandiff.logic.plain.PainterCombined;
 import xyz.hotchpotch.hogandiff.logic.poi.PainterWithPoiUserApi;
 import xyz.hotchpotch.hogandiff.logic.stax.PainterWithStax;
+import xyz.hotchpotch.hogandiff.logic.xlsb.PainterWithBiff12;
 
 /**
  * Excelブックの差分個所に色を付けて新しいファイルとして保存するペインターを表します。<br>
@@ -88,8 +89,16 @@ public interface Painter {
                         diffSheetColor,
                         sameSheetColor)));
     
-        // FIXME: [No.02 .xlsbのサポート]
-        case XLSB -> throw new UnsupportedOperationException("unsupported book type: " + BookType.XLSB);
+        case XLSB -> PainterCombined.of(List.of(
+                () -> new PainterWithBiff12(
+                        redundantColor,
+                        diffColor,
+                        redundantCommentHex,
+                        diffCommentHex,
+                        redundantSheetColor,
+                        diffSheetColor,
+                        sameSheetColor)));
+    
         default -> throw new AssertionError("unknown book type: " + BookType.of(bookPath));
         };
     }
@@ -3,6 +3,7 @@ package xyz.hotchpotch.hogandiff.logic;
 import java.util.List;
 import java.util.Objects;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.core.Matcher;
 import xyz.hotchpotch.hogandiff.util.Pair;
 import xyz.hotchpotch.hogandiff.util.Pair.Side;
@@ -34,13 +35,33 @@ public final record PairingInfoBooks(
             Pair<BookInfo> parentBookInfoPair,
             Matcher<String> sheetNamesMatcher) {
         
+        return calculate(parentBookInfoPair, sheetNamesMatcher, MatchBudget.unlimited());
+    }
+    
+    /**
+     * 与えられたマッチャーと打ち切り条件を使用して新たな {@link PairingInfoBooks} インスタンスを生成します。<br>
+     * 
+     * @param parentBookInfoPair 比較対象Excelブックの情報
+     * @param sheetNamesMatcher  シート名の組み合わせを決めるマッチャー
+     * @param budget             打ち切り条件
+     * @return 新たなインスタンス
+     * @throws NullPointerException パラメータが {@code null} の場合
+     * @throws java.util.concurrent.CancellationException 中断が要求された場合
+     */
+    public static PairingInfoBooks calculate(
+            Pair<BookInfo> parentBookInfoPair,
+            Matcher<String> sheetNamesMatcher,
+            MatchBudget budget) {
+        
         Objects.requireNonNull(parentBookInfoPair);
         Objects.requireNonNull(sheetNamesMatcher);
+        Objects.requireNonNull(budget);
         
         if (parentBookInfoPair.isPaired()) {
             List<Pair<String>> sheetNamePairs = sheetNamesMatcher.makeItemPairs(
                     parentBookInfoPair.a().sheetNames(),
-                    parentBookInfoPair.b().sheetNames());
+                    parentBookInfoPair.b().sheetNames(),
+                    budget);
             return new PairingInfoBooks(parentBookInfoPair, sheetNamePairs);
             
         } else if (parentBookInfoPair.hasA()) {
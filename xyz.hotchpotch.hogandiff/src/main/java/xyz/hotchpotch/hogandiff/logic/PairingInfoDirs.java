@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.core.Matcher;
 import xyz.hotchpotch.hogandiff.util.Pair;
 import xyz.hotchpotch.hogandiff.util.Pair.Side;
@@ -68,10 +69,42 @@ public final record PairingInfoDirs(
             Matcher<String> sheetNamesMatcher,
             Map<Path, String> readPasswords) {
         
+        return calculate(
+                parentDirInfoPair,
+                dirInfosMatcher,
+                bookPathsMatcher,
+                sheetNamesMatcher,
+                readPasswords,
+                MatchBudget.unlimited());
+    }
+    
+    /**
+     * 与えられたマッチャーと打ち切り条件を使用して新たな {@link PairingInfoDirs} インスタンスを生成します。<br>
+     * 
+     * @param parentDirInfoPair 比較対象フォルダ情報
+     * @param dirInfosMatcher   フォルダ情報の組み合わせを決めるマッチャー
+     * @param bookPathsMatcher  Excelブックパスの組み合わせを決めるマッチャー
+     * @param sheetNamesMatcher シート名の組み合わせを決めるマッチャー
+     * @param readPasswords     読み取りパスワード
+     * @param budget            打ち切り条件
+     * @return 新たなインスタンス
+     * @throws NullPointerException パラメータが {@code null} の場合
+     * @throws java.util.concurrent.CancellationException 中断が要求された場合
+     */
+    public static PairingInfoDirs calculate(
+            Pair<DirInfo> parentDirInfoPair,
+            Matcher<DirInfo> dirInfosMatcher,
+            Matcher<BookInfo> bookPathsMatcher,
+            Matcher<String> sheetNamesMatcher,
+            Map<Path, String> readPasswords,
+            MatchBudget budget) {
+        
         Objects.requireNonNull(parentDirInfoPair);
+        Objects.requireNonNull(dirInfosMatcher);
         Objects.requireNonNull(bookPathsMatcher);
         Objects.requireNonNull(sheetNamesMatcher);
         Objects.requireNonNull(readPasswords);
+        Objects.requireNonNull(budget);
         
         List<Pair<DirInfo>> dirInfoPairs;
         List<Pair<BookInfo>> bookInfoPairs;
@@ -79,10 +112,12 @@ public final record PairingInfoDirs(
         if (parentDirInfoPair.isPaired()) {
             dirInfoPairs = dirInfosMatcher.makeItemPairs(
                     parentDirInfoPair.a().childDirInfos(),
-                    parentDirInfoPair.b().childDirInfos());
+                    parentDirInfoPair.b().childDirInfos(),
+                    budget);
             bookInfoPairs = bookPathsMatcher.makeItemPairs(
                     parentDirInfoPair.a().childBookInfos(),
-                    parentDirInfoPair.b().childBookInfos());
+                    parentDirInfoPair.b().childBookInfos(),
+                    budget);
             
         } else if (parentDirInfoPair.hasA()) {
             dirInfoPairs = parentDirInfoPair.a().childDirInfos().stream()
@@ -114,12 +149,13 @@ public final record PairingInfoDirs(
                     dirInfosMatcher,
                     bookPathsMatcher,
                     sheetNamesMatcher,
-                    readPasswords);
+                    readPasswords,
+                    budget);
             dirComparisons.put(dirInfoPair, Optional.ofNullable(dirComparison));
         }
         
         for (Pair<BookInfo> bookInfoPair : bookInfoPairs) {
-            PairingInfoBooks bookComparison = PairingInfoBooks.calculate(bookInfoPair, sheetNamesMatcher);
+            PairingInfoBooks bookComparison = PairingInfoBooks.calculate(bookInfoPair, sheetNamesMatcher, budget);
             bookComparisons.put(bookInfoPair, Optional.ofNullable(bookComparison));
         }
         
@@ -1,5 +1,6 @@
 package xyz.hotchpotch.hogandiff.logic;
 
+import java.io.IOException;
 import java.util.List;
 
 import xyz.hotchpotch.hogandiff.logic.ResultOfSheets.SheetStats;
@@ -23,4 +24,24 @@ public sealed interface Result
      * @return シートごとの統計情報
      */
     List<SheetStats> sheetStats();
+    
+    /**
+     * この比較結果における差分の有無を返します。<br>
+     * 
+     * @return 差分ありの場合は {@code true}
+     */
+    boolean hasDiff();
+    
+    /**
+     * 比較結果を {@link #toString()} と同じ形式で指定された出力先に書き出します。<br>
+     * 比較結果の全文をヒープ上に組み立てずに、差分詳細を単位ごとに逐次書き出します。<br>
+     * 
+     * @param out
+     *            出力先
+     * @throws IOException
+     *             書き出しに失敗した場合
+     * @throws NullPointerException
+     *             {@code out} が {@code null} の場合
+     */
+    void writeTo(Appendable out) throws IOException;
 }
@@ -1,5 +1,6 @@
 package xyz.hotchpotch.hogandiff.logic;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -157,7 +158,45 @@ public record ResultOfBooks(
      * @return 比較結果の差分詳細
      */
     public String getDiffDetail() {
-        return getDiffText(sResult -> BR + sResult.getDiffDetail().indent(8).replace("\n", BR));
+        return IndentingAppendable.toText(this::writeDiffDetail);
+    }
+    
+    /**
+     * 比較結果の差分詳細を、{@link #getDiffDetail()} と同じ形式で指定された出力先に書き出します。<br>
+     * シートごとの差分詳細は、文字列に組み立てずに字下げしながら逐次書き出します。<br>
+     * 
+     * @param out
+     *            出力先
+     * @throws IOException
+     *             書き出しに失敗した場合
+     * @throws NullPointerException
+     *             {@code out} が {@code null} の場合
+     */
+    public void writeDiffDetail(Appendable out) throws IOException {
+        Objects.requireNonNull(out);
+        
+        boolean written = false;
+        IndentingAppendable indented = new IndentingAppendable(out, 8);
+        
+        for (int i = 0; i < bookComparison.childSheetNamePairs().size(); i++) {
+            Pair<String> sheetNamePair = bookComparison.childSheetNamePairs().get(i);
+            Optional<ResultOfSheets> sResult = sheetResults.get(sheetNamePair);
+            
+            if (!sheetNamePair.isPaired() || sResult.isEmpty() || !sResult.get().hasDiff()) {
+                continue;
+            }
+            
+            out.append(formatSheetNamesPair(Integer.toString(i + 1), sheetNamePair));
+            out.append(BR);
+            sResult.get().writeDiffDetail(indented);
+            indented.finish();
+            out.append(BR);
+            written = true;
+        }
+        
+        if (!written) {
+            out.append("    " + Msg.APP_0410.get() + BR + BR);
+        }
     }
     
     private String getDiffText(Function<ResultOfSheets, String> diffDescriptor) {
@@ -183,30 +222,33 @@ public record ResultOfBooks(
     
     @Override
     public String toString() {
-        StringBuilder str = new StringBuilder();
+        return IndentingAppendable.toText(this::writeTo);
+    }
+    
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        Objects.requireNonNull(out);
         
         if (bookComparison.parentBookInfoPair().isIdentical()) {
-            str.append(Msg.APP_0440.get().formatted(""))
-                    .append(bookComparison.parentBookInfoPair().a().bookPath()).append(BR);
+            out.append(Msg.APP_0440.get().formatted(""))
+                    .append(bookComparison.parentBookInfoPair().a().bookPath().toString()).append(BR);
         } else {
-            str.append(Msg.APP_0440.get().formatted("A"))
-                    .append(bookComparison.parentBookInfoPair().a().bookPath()).append(BR);
-            str.append(Msg.APP_0440.get().formatted("B"))
-                    .append(bookComparison.parentBookInfoPair().b().bookPath()).append(BR);
+            out.append(Msg.APP_0440.get().formatted("A"))
+                    .append(bookComparison.parentBookInfoPair().a().bookPath().toString()).append(BR);
+            out.append(Msg.APP_0440.get().formatted("B"))
+                    .append(bookComparison.parentBookInfoPair().b().bookPath().toString()).append(BR);
         }
         
         for (int i = 0; i < bookComparison.childSheetNamePairs().size(); i++) {
             Pair<String> sheetNamePair = bookComparison.childSheetNamePairs().get(i);
-            str.append(formatSheetNamesPair(Integer.toString(i + 1), sheetNamePair)).append(BR);
+            out.append(formatSheetNamesPair(Integer.toString(i + 1), sheetNamePair)).append(BR);
         }
         
-        str.append(BR);
-        str.append(Msg.APP_0450.get()).append(BR);
-        str.append(getDiffSummary()).append(BR);
-        str.append(Msg.APP_0460.get()).append(BR);
-        str.append(getDiffDetail());
-        
-        return str.toString();
+        out.append(BR);
+        out.append(Msg.APP_0450.get()).append(BR);
+        out.append(getDiffSummary()).append(BR);
+        out.append(Msg.APP_0460.get()).append(BR);
+        writeDiffDetail(out);
     }
     
     @Override
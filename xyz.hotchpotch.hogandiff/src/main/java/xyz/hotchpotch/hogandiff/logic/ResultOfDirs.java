@@ -1,5 +1,6 @@
 package xyz.hotchpotch.hogandiff.logic;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -150,8 +151,7 @@ public record ResultOfDirs(
     private String getDiffSummary() {
         return getDiffText(bResult -> "  -  %s%n".formatted(bResult.isPresent()
                 ? bResult.get().getDiffSimpleSummary()
-                : Msg.APP_0120.get()),
-                false);
+                : Msg.APP_0120.get()));
     }
     
     /**
@@ -160,23 +160,53 @@ public record ResultOfDirs(
      * @return 差分内容の詳細を表す文字列
      */
     public String getDiffDetail() {
-        return getDiffText(bResult -> bResult.isPresent()
-                ? BR + bResult.get().getDiffDetail().indent(4).replace("\n", BR)
-                : BR + "        " + Msg.APP_0120.get() + BR + BR,
-                true);
+        return IndentingAppendable.toText(this::writeDiffDetail);
     }
     
-    private String getDiffText(
-            Function<Optional<ResultOfBooks>, String> diffDescriptor,
-            boolean isDetailMode) {
+    /**
+     * 差分内容の詳細を、{@link #getDiffDetail()} と同じ形式で指定された出力先に書き出します。<br>
+     * Excelブックごとの差分詳細は、文字列に組み立てずに字下げしながら逐次書き出します。<br>
+     * 
+     * @param out
+     *            出力先
+     * @throws IOException
+     *             書き出しに失敗した場合
+     * @throws NullPointerException
+     *             {@code out} が {@code null} の場合
+     */
+    public void writeDiffDetail(Appendable out) throws IOException {
+        Objects.requireNonNull(out);
+        
+        if (bookResults.isEmpty()) {
+            out.append("    - ").append(Msg.APP_0130.get()).append(BR).append(BR);
+            return;
+        }
         
+        IndentingAppendable indented = new IndentingAppendable(out, 4);
+        
+        for (int i = 0; i < dirComparison.childBookInfoPairs().size(); i++) {
+            Pair<BookInfo> bookInfoPair = dirComparison.childBookInfoPairs().get(i);
+            Optional<ResultOfBooks> bResult = bookResults.get(bookInfoPair);
+            
+            out.append(formatBookNamesPair(dirId, Integer.toString(i + 1), bookInfoPair));
+            
+            if (!bookInfoPair.isPaired()) {
+                out.append(BR).append(BR);
+            } else if (bResult.isPresent()) {
+                out.append(BR);
+                bResult.get().writeDiffDetail(indented);
+                indented.finish();
+            } else {
+                out.append(BR + "        " + Msg.APP_0120.get() + BR + BR);
+            }
+        }
+    }
+    
+    private String getDiffText(Function<Optional<ResultOfBooks>, String> diffDescriptor) {
         StringBuilder str = new StringBuilder();
         
         if (bookResults.isEmpty()) {
             str.append("    - ").append(Msg.APP_0130.get()).append(BR);
-            if (isDetailMode) {
-                str.append(BR);
-            }
             return str.toString();
         }
         
@@ -190,9 +220,6 @@ public record ResultOfDirs(
                 str.append(diffDescriptor.apply(bResult));
             } else {
                 str.append(BR);
-                if (isDetailMode) {
-                    str.append(BR);
-                }
             }
         }
         return str.toString();
@@ -200,27 +227,30 @@ public record ResultOfDirs(
     
     @Override
     public String toString() {
-        StringBuilder str = new StringBuilder();
+        return IndentingAppendable.toText(this::writeTo);
+    }
+    
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        Objects.requireNonNull(out);
         
-        str.append(Msg.APP_0480.get().formatted("A"))
-                .append(dirComparison.parentDirInfoPair().a().dirPath())
+        out.append(Msg.APP_0480.get().formatted("A"))
+                .append(dirComparison.parentDirInfoPair().a().dirPath().toString())
                 .append(BR);
-        str.append(Msg.APP_0480.get().formatted("B"))
-                .append(dirComparison.parentDirInfoPair().b().dirPath())
+        out.append(Msg.APP_0480.get().formatted("B"))
+                .append(dirComparison.parentDirInfoPair().b().dirPath().toString())
                 .append(BR);
         
         for (int i = 0; i < dirComparison.childBookInfoPairs().size(); i++) {
             Pair<BookInfo> bookInfoPair = dirComparison.childBookInfoPairs().get(i);
-            str.append(formatBookNamesPair(dirId, Integer.toString(i + 1), bookInfoPair)).append(BR);
+            out.append(formatBookNamesPair(dirId, Integer.toString(i + 1), bookInfoPair)).append(BR);
         }
         
-        str.append(BR);
-        str.append(Msg.APP_0450.get()).append(BR);
-        str.append(getDiffSummary()).append(BR);
-        str.append(Msg.APP_0460.get()).append(BR);
-        str.append(getDiffDetail());
-        
-        return str.toString();
+        out.append(BR);
+        out.append(Msg.APP_0450.get()).append(BR);
+        out.append(getDiffSummary()).append(BR);
+        out.append(Msg.APP_0460.get()).append(BR);
+        writeDiffDetail(out);
     }
     
     @Override
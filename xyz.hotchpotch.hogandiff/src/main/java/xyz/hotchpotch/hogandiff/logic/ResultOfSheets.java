@@ -1,7 +1,9 @@
 package xyz.hotchpotch.hogandiff.logic;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 
 import xyz.hotchpotch.hogandiff.Msg;
@@ -143,11 +145,24 @@ public final class ResultOfSheets implements Result {
         }
     }
     
+    /**
+     * 行同士または列同士の対応関係から、各シートにおける余剰行または余剰列を抽出します。<br>
+     */
+    private static Pair<List<Integer>> redundantsOf(List<IntPair> pairs) {
+        return Side.map(side -> pairs.stream()
+                .filter(pair -> pair.isOnly(side))
+                .map(pair -> pair.get(side))
+                .toList());
+    }
+    
     // [instance members] ******************************************************
     
+    private final List<IntPair> rowPairs;
+    private final List<IntPair> columnPairs;
     private final Pair<List<Integer>> redundantRows;
     private final Pair<List<Integer>> redundantColumns;
     private final List<Pair<CellData>> diffCells;
+    private final boolean approximated;
     private final SheetStats stats;
     
     /**
@@ -172,7 +187,82 @@ public final class ResultOfSheets implements Result {
             Pair<List<Integer>> redundantColumns,
             List<Pair<CellData>> diffCells) {
         
+        this(cellsSetPair, redundantRows, redundantColumns, diffCells, false);
+    }
+    
+    /**
+     * コンストラクタ<br>
+     * 
+     * @param cellsSetPair
+     *            各シートに含まれるセル
+     * @param redundantRows
+     *            各シートにおける余剰行
+     * @param redundantColumns
+     *            各シートにおける余剰列
+     * @param diffCells
+     *            差分セル
+     * @param approximated
+     *            制限時間の超過により近似的な対応付けが用いられた場合は {@code true}
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     * @throws IllegalArgumentException
+     *             余剰／欠損の考慮なしにも関わらす余剰／欠損の数が 0 でない場合
+     */
+    public ResultOfSheets(
+            Pair<Set<CellData>> cellsSetPair,
+            Pair<List<Integer>> redundantRows,
+            Pair<List<Integer>> redundantColumns,
+            List<Pair<CellData>> diffCells,
+            boolean approximated) {
+        
+        this(cellsSetPair, null, null, redundantRows, redundantColumns, diffCells, approximated);
+    }
+    
+    /**
+     * コンストラクタ<br>
+     * 余剰行・余剰列は、行同士・列同士の対応関係から求めます。<br>
+     * 
+     * @param cellsSetPair
+     *            各シートに含まれるセル
+     * @param rowPairs
+     *            行同士の対応関係
+     * @param columnPairs
+     *            列同士の対応関係
+     * @param diffCells
+     *            差分セル
+     * @param approximated
+     *            制限時間の超過により近似的な対応付けが用いられた場合は {@code true}
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public ResultOfSheets(
+            Pair<Set<CellData>> cellsSetPair,
+            List<IntPair> rowPairs,
+            List<IntPair> columnPairs,
+            List<Pair<CellData>> diffCells,
+            boolean approximated) {
+        
+        this(
+                cellsSetPair,
+                Objects.requireNonNull(rowPairs),
+                Objects.requireNonNull(columnPairs),
+                redundantsOf(rowPairs),
+                redundantsOf(columnPairs),
+                diffCells,
+                approximated);
+    }
+    
+    private ResultOfSheets(
+            Pair<Set<CellData>> cellsSetPair,
+            List<IntPair> rowPairs,
+            List<IntPair> columnPairs,
+            Pair<List<Integer>> redundantRows,
+            Pair<List<Integer>> redundantColumns,
+            List<Pair<CellData>> diffCells,
+            boolean approximated) {
+        
         Objects.requireNonNull(cellsSetPair);
+        // rowPairs, columnPairs may be null.
         Objects.requireNonNull(redundantRows);
         Objects.requireNonNull(redundantColumns);
         Objects.requireNonNull(diffCells);
@@ -181,9 +271,12 @@ public final class ResultOfSheets implements Result {
             throw new IllegalArgumentException("illegal result");
         }
         
+        this.rowPairs = rowPairs == null ? null : List.copyOf(rowPairs);
+        this.columnPairs = columnPairs == null ? null : List.copyOf(columnPairs);
         this.redundantRows = redundantRows.map(List::copyOf);
         this.redundantColumns = redundantColumns.map(List::copyOf);
         this.diffCells = List.copyOf(diffCells);
+        this.approximated = approximated;
         this.stats = new SheetStats(
                 IntPair.from(cellsSetPair.map(cells -> cells.stream().mapToInt(CellData::row).max().orElse(0))),
                 IntPair.from(cellsSetPair.map(cells -> cells.stream().mapToInt(CellData::column).max().orElse(0))),
@@ -248,7 +341,9 @@ public final class ResultOfSheets implements Result {
      */
     public String getDiffSummary() {
         if (!hasDiff()) {
-            return Msg.APP_0410.get();
+            return approximated
+                    ? Msg.APP_0410.get() + " " + Msg.APP_0810.get()
+                    : Msg.APP_0410.get();
         }
         
         int rows = redundantRows.a().size() + redundantRows.b().size();
@@ -271,6 +366,9 @@ public final class ResultOfSheets implements Result {
             }
             str.append(Msg.APP_0750.get().formatted(cells));
         }
+        if (approximated) {
+            str.append(" ").append(Msg.APP_0810.get());
+        }
         
         return str.toString();
     }
@@ -281,50 +379,68 @@ public final class ResultOfSheets implements Result {
      * @return 比較結果の差分詳細
      */
     public String getDiffDetail() {
+        return IndentingAppendable.toText(this::writeDiffDetail);
+    }
+    
+    /**
+     * 比較結果の差分詳細を、{@link #getDiffDetail()} と同じ形式で指定された出力先に書き出します。<br>
+     * 
+     * @param out
+     *            出力先
+     * @throws IOException
+     *             書き出しに失敗した場合
+     * @throws NullPointerException
+     *             {@code out} が {@code null} の場合
+     */
+    public void writeDiffDetail(Appendable out) throws IOException {
+        Objects.requireNonNull(out);
+        
         if (!hasDiff()) {
-            return Msg.APP_0410.get();
+            out.append(approximated
+                    ? Msg.APP_0410.get() + " " + Msg.APP_0810.get()
+                    : Msg.APP_0410.get());
+            return;
         }
         
-        StringBuilder str = new StringBuilder();
-        
+        if (approximated) {
+            out.append(Msg.APP_0810.get()).append(BR).append(BR);
+        }
         if (!redundantRows.a().isEmpty() || !redundantRows.b().isEmpty()) {
             for (Side side : Side.values()) {
                 List<Integer> rows = redundantRows.get(side);
                 if (!rows.isEmpty()) {
-                    str.append(Msg.APP_0760.get().formatted(side)).append(BR);
+                    out.append(Msg.APP_0760.get().formatted(side)).append(BR);
                     for (int row : rows) {
-                        str.append("    ")
+                        out.append("    ")
                                 .append(Msg.APP_0770.get().formatted(row + 1))
                                 .append(BR);
                     }
                 }
             }
-            str.append(BR);
+            out.append(BR);
         }
         if (!redundantColumns.a().isEmpty() || !redundantColumns.b().isEmpty()) {
             for (Side side : Side.values()) {
                 List<Integer> cols = redundantColumns.get(side);
                 if (!cols.isEmpty()) {
-                    str.append(Msg.APP_0780.get().formatted(side)).append(BR);
+                    out.append(Msg.APP_0780.get().formatted(side)).append(BR);
                     for (int col : cols) {
-                        str.append("    ")
+                        out.append("    ")
                                 .append(Msg.APP_0790.get().formatted(CellsUtil.columnIdxToStr(col)))
                                 .append(BR);
                     }
                 }
             }
-            str.append(BR);
+            out.append(BR);
         }
         if (!diffCells.isEmpty()) {
-            str.append(Msg.APP_0800.get());
-            diffCells.forEach(pair -> {
-                str.append(BR);
-                str.append("    [A] ").append(pair.a()).append(BR);
-                str.append("    [B] ").append(pair.b()).append(BR);
-            });
+            out.append(Msg.APP_0800.get());
+            for (Pair<CellData> pair : diffCells) {
+                out.append(BR);
+                out.append("    [A] ").append(String.valueOf(pair.a())).append(BR);
+                out.append("    [B] ").append(String.valueOf(pair.b())).append(BR);
+            }
         }
-        
-        return str.toString();
     }
     
     @Override
@@ -332,11 +448,45 @@ public final class ResultOfSheets implements Result {
         return getDiffDetail();
     }
     
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        writeDiffDetail(out);
+    }
+    
     @Override
     public List<SheetStats> sheetStats() {
         return List.of(stats);
     }
     
+    /**
+     * 制限時間の超過により、行・列の対応付けに近似的な手法が用いられたかを返します。<br>
+     * 
+     * @return 近似的な対応付けが用いられた場合は {@code true}
+     */
+    public boolean isApproximated() {
+        return approximated;
+    }
+    
+    /**
+     * 行同士の対応関係を返します。<br>
+     * 対応関係を保持しない比較結果の場合は空の {@link Optional} を返します。<br>
+     * 
+     * @return 行同士の対応関係
+     */
+    public Optional<List<IntPair>> rowPairs() {
+        return Optional.ofNullable(rowPairs);
+    }
+    
+    /**
+     * 列同士の対応関係を返します。<br>
+     * 対応関係を保持しない比較結果の場合は空の {@link Optional} を返します。<br>
+     * 
+     * @return 列同士の対応関係
+     */
+    public Optional<List<IntPair>> columnPairs() {
+        return Optional.ofNullable(columnPairs);
+    }
+    
     /**
      * 余剰行を返します。<br>
      * 
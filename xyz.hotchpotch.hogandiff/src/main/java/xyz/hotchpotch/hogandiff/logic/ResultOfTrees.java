@@ -1,5 +1,6 @@
 package xyz.hotchpotch.hogandiff.logic;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -93,10 +94,27 @@ public record ResultOfTrees(
                 : Msg.APP_0120.get()));
     }
     
-    private String getDiffDetail() {
-        return getDiffText(dirResult -> dirResult.isPresent()
-                ? dirResult.get().getDiffDetail().indent(4).replace("\n", BR)
-                : "        " + Msg.APP_0120.get() + BR + BR);
+    private void writeDiffDetail(Appendable out) throws IOException {
+        assert out != null;
+        
+        IndentingAppendable indented = new IndentingAppendable(out, 4);
+        
+        for (int i = 0; i < flattenDirComparison.dirInfoPairs().size(); i++) {
+            Pair<DirInfo> dirInfoPair = flattenDirComparison.dirInfoPairs().get(i);
+            PairingInfoDirs dirComparison = flattenDirComparison.dirComparisons().get(dirInfoPair).get();
+            Optional<ResultOfDirs> dirResult = dirResults.get(dirInfoPair);
+            
+            out.append(formatDirInfoPair(Integer.toString(i + 1), dirComparison.parentDirInfoPair()));
+            
+            if (!dirComparison.parentDirInfoPair().isPaired()) {
+                out.append(BR);
+            } else if (dirResult.isPresent()) {
+                dirResult.get().writeDiffDetail(indented);
+                indented.finish();
+            } else {
+                out.append("        " + Msg.APP_0120.get() + BR + BR);
+            }
+        }
     }
     
     private String getDiffText(Function<Optional<ResultOfDirs>, String> diffDescriptor) {
@@ -121,22 +139,25 @@ public record ResultOfTrees(
     
     @Override
     public String toString() {
-        StringBuilder str = new StringBuilder();
+        return IndentingAppendable.toText(this::writeTo);
+    }
+    
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        Objects.requireNonNull(out);
         
-        str.append(Msg.APP_0820.get().formatted("A"))
-                .append(flattenDirComparison.parentDirInfoPair().a().dirPath())
+        out.append(Msg.APP_0820.get().formatted("A"))
+                .append(flattenDirComparison.parentDirInfoPair().a().dirPath().toString())
                 .append(BR);
-        str.append(Msg.APP_0820.get().formatted("B"))
-                .append(flattenDirComparison.parentDirInfoPair().b().dirPath())
+        out.append(Msg.APP_0820.get().formatted("B"))
+                .append(flattenDirComparison.parentDirInfoPair().b().dirPath().toString())
                 .append(BR);
         
-        str.append(BR);
-        str.append(Msg.APP_0450.get()).append(BR);
-        str.append(getDiffSummary());
-        str.append(Msg.APP_0460.get()).append(BR);
-        str.append(getDiffDetail());
-        
-        return str.toString();
+        out.append(BR);
+        out.append(Msg.APP_0450.get()).append(BR);
+        out.append(getDiffSummary());
+        out.append(Msg.APP_0460.get()).append(BR);
+        writeDiffDetail(out);
     }
     
     @Override
@@ -1,35 +1,46 @@
 package xyz.hotchpotch.hogandiff.logic;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.function.BiFunction;
 
+import org.apache.poi.common.usermodel.HyperlinkType;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Hyperlink;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import xyz.hotchpotch.hogandiff.AppMain;
-import xyz.hotchpotch.hogandiff.AppResource;
+import xyz.hotchpotch.hogandiff.ErrorReporter;
 import xyz.hotchpotch.hogandiff.Msg;
 import xyz.hotchpotch.hogandiff.SettingKeys;
+import xyz.hotchpotch.hogandiff.logic.PairingInfoDirs.PairingInfoDirsFlatten;
 import xyz.hotchpotch.hogandiff.logic.poi.PoiUtil;
 import xyz.hotchpotch.hogandiff.util.IntPair;
 import xyz.hotchpotch.hogandiff.util.Pair;
 import xyz.hotchpotch.hogandiff.util.Pair.Side;
+import xyz.hotchpotch.hogandiff.util.Settings;
 
 /**
  * フォルダツリー同士の比較結果をExcelファイルの形式に出力する機能を提供します。<br>
+ * <br>
+ * {@link #openResultBook(Path, PairingInfoDirsFlatten, boolean)} で取得する {@link ReportWriter} を利用すると、
+ * フォルダ同士の比較結果が得られる都度その行を出力できるため、フォルダツリー同士の比較と並行してレポートを作成できます。<br>
  * 
  * @author nmby
  */
@@ -49,11 +60,342 @@ public class TreeReportCreator {
     private static final String DIFF_BOTH = "!";
     private static final String DIFF_FAILED = "?";
     
+    /** ヒープ上に保持する行数。超過した行は一時ファイルに書き出す。 */
+    private static final int ROW_ACCESS_WINDOW = 100;
+    
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
     
+    /**
+     * フォルダツリー同士の比較結果を、フォルダペアごとに逐次出力するライターです。<br>
+     * テンプレートブックを {@link SXSSFWorkbook} でラップし、出力済みの行を一定の行数ずつ一時ファイルに書き出します。
+     * セルのスタイルとハイパーリンクの生成に必要なオブジェクトは、ライターの生成時に一度だけ用意します。<br>
+     * <br>
+     * フォルダペアの比較結果は {@link PairingInfoDirsFlatten#dirInfoPairs()} の順に
+     * {@link #writeDirResult(Pair, Optional)} で出力し、全てのフォルダペアを出力した後に {@link #save()} で保存します。
+     * 保存の成否に関わらず、最後に {@link #close()} で一時ファイルを削除してください。<br>
+     * 
+     * @author nmby
+     */
+    public static final class ReportWriter implements AutoCloseable {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final Path dstBookPath;
+        private final PairingInfoDirsFlatten flattenDirComparison;
+        private final boolean recursively;
+        
+        private final SXSSFWorkbook book;
+        private final SXSSFSheet sheet;
+        private final CreationHelper ch;
+        private final Pair<CellStyle[]> leftStyles;
+        private final CellStyle diffStyle;
+        
+        private final Pair<Map<Path, Path>> outputDirsMaps = new Pair<>(new HashMap<>(), new HashMap<>());
+        private final Map<Path, String> linkAddresses = new HashMap<>();
+        
+        private int dirIdx;
+        private int rowNo = ROW_LIST_START - 1;
+        private boolean saved;
+        
+        private ReportWriter(
+                Path dstBookPath,
+                PairingInfoDirsFlatten flattenDirComparison,
+                boolean recursively,
+                SXSSFWorkbook book,
+                Sheet template) {
+            
+            assert dstBookPath != null;
+            assert flattenDirComparison != null;
+            assert book != null;
+            assert template != null;
+            
+            this.dstBookPath = dstBookPath;
+            this.flattenDirComparison = flattenDirComparison;
+            this.recursively = recursively;
+            this.book = book;
+            this.sheet = book.getSheet(sheetName);
+            this.ch = book.getCreationHelper();
+            
+            Row templateRow = template.getRow(ROW_LIST_TEMPLATE);
+            this.leftStyles = Side.map(side -> {
+                CellStyle[] styles = new CellStyle[4];
+                for (int i = 0; i < styles.length; i++) {
+                    styles[i] = templateRow.getCell(COL_LEFT.get(side) + i).getCellStyle();
+                }
+                return styles;
+            });
+            this.diffStyle = templateRow.getCell(COL_DIFF).getCellStyle();
+            
+            for (Side side : Side.values()) {
+                outputDirsMaps.get(side).put(
+                        flattenDirComparison.parentDirInfoPair().get(side).dirPath().getParent(),
+                        dstBookPath.getParent());
+            }
+        }
+        
+        /**
+         * 保存先Excelブックのパスを返します。<br>
+         * 
+         * @return 保存先Excelブックのパス
+         */
+        public Path dstBookPath() {
+            return dstBookPath;
+        }
+        
+        /**
+         * 次のフォルダペアの比較結果を出力します。<br>
+         * 
+         * @param dirInfoPair
+         *            フォルダペア
+         * @param dirResult
+         *            フォルダ同士の比較結果（比較できなかった場合は {@link Optional#empty()}）
+         * @throws NullPointerException
+         *             パラメータが {@code null} の場合
+         * @throws IllegalArgumentException
+         *             {@code dirInfoPair} が次に出力すべきフォルダペアでない場合
+         * @throws IllegalStateException
+         *             全てのフォルダペアを出力済みの場合
+         * @throws ExcelHandlingException
+         *             出力に失敗した場合
+         */
+        public void writeDirResult(
+                Pair<DirInfo> dirInfoPair,
+                Optional<ResultOfDirs> dirResult)
+                throws ExcelHandlingException {
+            
+            Objects.requireNonNull(dirInfoPair);
+            Objects.requireNonNull(dirResult);
+            
+            List<Pair<DirInfo>> dirInfoPairs = flattenDirComparison.dirInfoPairs();
+            if (saved || dirInfoPairs.size() <= dirIdx) {
+                throw new IllegalStateException("all dir pairs have already been written");
+            }
+            if (!dirInfoPairs.get(dirIdx).equals(dirInfoPair)) {
+                throw new IllegalArgumentException("unexpected dir pair : %s".formatted(dirInfoPair));
+            }
+            
+            try {
+                outputDirResult(dirInfoPair, dirResult);
+                dirIdx++;
+                
+            } catch (Exception e) {
+                throw new ExcelHandlingException(
+                        "failed to write dir result : %s".formatted(dirInfoPair), e);
+            }
+        }
+        
+        /**
+         * 全てのフォルダペアの比較結果を出力したExcelブックを保存します。<br>
+         * 保存先Excelブックが既に存在する場合は失敗します。<br>
+         * 
+         * @throws IllegalStateException
+         *             出力していないフォルダペアがある場合、または保存済みの場合
+         * @throws ExcelHandlingException
+         *             保存に失敗した場合
+         */
+        public void save() throws ExcelHandlingException {
+            if (saved || dirIdx < flattenDirComparison.dirInfoPairs().size()) {
+                throw new IllegalStateException("dir results written : %d / %d"
+                        .formatted(dirIdx, flattenDirComparison.dirInfoPairs().size()));
+            }
+            saved = true;
+            
+            try {
+                sheet.setAutoFilter(new CellRangeAddress(ROW_LIST_START - 1, rowNo, COL_DIFF, COL_DIFF));
+                
+                try (OutputStream os = Files.newOutputStream(dstBookPath, StandardOpenOption.CREATE_NEW)) {
+                    book.write(os);
+                }
+                dstBookPath.toFile().setReadable(true, false);
+                dstBookPath.toFile().setWritable(true, false);
+                
+            } catch (Exception e) {
+                throw new ExcelHandlingException(
+                        "failed to create and save result book : %s".formatted(dstBookPath), e);
+            }
+        }
+        
+        /**
+         * 一時ファイルを削除し、このライターを閉じます。<br>
+         * 保存前に閉じた場合、Excelブックは保存されません。<br>
+         */
+        @Override
+        public void close() {
+            book.dispose();
+            try {
+                book.close();
+            } catch (IOException e) {
+                ErrorReporter.reportIfEnabled(e, "TreeReportCreator.ReportWriter::close-1");
+            }
+        }
+        
+        private void outputDirResult(
+                Pair<DirInfo> dirInfoPair,
+                Optional<ResultOfDirs> dirResult) {
+            
+            assert dirInfoPair != null;
+            assert dirResult != null;
+            
+            PairingInfoDirs dirComparison = flattenDirComparison.dirComparisons().get(dirInfoPair).get();
+            String dirId = recursively ? Integer.toString(dirIdx + 1) : "";
+            rowNo++;
+            
+            // フォルダ名と差分シンボルの出力
+            Pair<String> dirRelNamePair = Side.map(
+                    side -> dirInfoPair.has(side)
+                            ? relPath(side, dirInfoPair.get(side).dirPath())
+                            : null);
+            
+            Pair<Path> outputDirPair = Side.map(side -> dirInfoPair.has(side)
+                    ? outputDirsMaps.get(side)
+                            .get(dirInfoPair.get(side).dirPath().getParent())
+                            .resolve("【%s%s】%s".formatted(side, dirId,
+                                    dirInfoPair.get(side).dirPath()
+                                            .getFileName()
+                                            .toString()))
+                    : null);
+            
+            for (Side side : Side.values()) {
+                if (dirInfoPair.has(side)) {
+                    outputDirsMaps.get(side).put(dirInfoPair.get(side).dirPath(),
+                            outputDirPair.get(side));
+                }
+            }
+            
+            outputDirLine(dirId, outputDirPair, dirRelNamePair, dirInfoPair);
+            
+            // Excelブックパスペアごとの処理
+            for (int i = 0; i < dirComparison.childBookInfoPairs().size(); i++) {
+                rowNo++;
+                
+                Pair<BookInfo> bookInfoPair = dirComparison.childBookInfoPairs().get(i);
+                Optional<ResultOfBooks> bookResult = dirResult
+                        .map(ResultOfDirs::bookResults)
+                        .flatMap(br -> br.get(bookInfoPair));
+                
+                outputFileLine(
+                        dirId,
+                        i + 1,
+                        outputDirPair,
+                        dirRelNamePair,
+                        bookInfoPair,
+                        bookResult);
+            }
+            rowNo++;
+        }
+        
+        private String relPath(Side side, Path p) {
+            return p.subpath(
+                    flattenDirComparison.parentDirInfoPair().get(side).dirPath().getNameCount() - 1,
+                    p.getNameCount())
+                    .toString();
+        }
+        
+        private void outputDirLine(
+                String dirId,
+                Pair<Path> outputDirPair,
+                Pair<String> dirRelNamePair,
+                Pair<DirInfo> dirPair) {
+            
+            Row row = sheet.createRow(rowNo);
+            
+            for (Side side : Side.values()) {
+                if (dirPair.has(side)) {
+                    // フォルダパスの出力とハイパーリンクの設定
+                    setHyperlink(
+                            setCellValue(row, side, 0, "【%s%s】".formatted(side, dirId)),
+                            outputDirPair.get(side));
+                    setCellValue(row, side, 1, dirRelNamePair.get(side));
+                }
+            }
+        }
+        
+        private void outputFileLine(
+                String dirId,
+                int bookNo,
+                Pair<Path> outputDirPair,
+                Pair<String> dirRelNamePair,
+                Pair<BookInfo> bookInfoPair,
+                Optional<ResultOfBooks> bookResult) {
+            
+            Row row = sheet.createRow(rowNo);
+            
+            for (Side side : Side.values()) {
+                if (bookInfoPair.has(side)) {
+                    String bookName = bookInfoPair.get(side).bookName();
+                    
+                    // フォルダ名とファイル名の出力とハイパーリンクの設定
+                    setHyperlink(
+                            setCellValue(row, side, 0, "【%s%s】".formatted(side, dirId)),
+                            outputDirPair.get(side));
+                    setCellValue(row, side, 1, dirRelNamePair.get(side));
+                    
+                    Path bookPath = outputDirPair.get(side)
+                            .resolve("【%s%s-%d】%s".formatted(side, dirId, bookNo, bookName));
+                    setHyperlink(
+                            setCellValue(row, side, 2, "【%s%s-%d】".formatted(side, dirId, bookNo)),
+                            bookPath);
+                    setCellValue(row, side, 3, bookName);
+                }
+            }
+            
+            // 差分記号の出力
+            String diff = null;
+            if (bookInfoPair.isOnlyA()) {
+                diff = DIFF_ONLY_A;
+            } else if (bookInfoPair.isOnlyB()) {
+                diff = DIFF_ONLY_B;
+            } else if (bookResult.isEmpty()) {
+                diff = DIFF_FAILED;
+            } else if (bookResult.get().hasDiff()) {
+                diff = DIFF_BOTH;
+            }
+            if (diff != null) {
+                Cell cell = row.createCell(COL_DIFF);
+                cell.setCellValue(diff);
+                cell.setCellStyle(diffStyle);
+            }
+        }
+        
+        private Cell setCellValue(Row row, Side side, int offset, String value) {
+            Cell cell = row.createCell(COL_LEFT.get(side) + offset);
+            cell.setCellValue(value);
+            cell.setCellStyle(leftStyles.get(side)[offset]);
+            return cell;
+        }
+        
+        private void setHyperlink(Cell cell, Path path) {
+            try {
+                Hyperlink link = ch.createHyperlink(HyperlinkType.FILE);
+                // 同じフォルダへのリンクはフォルダ内のExcelブックの数だけ出力されるため、アドレスを使い回す。
+                link.setAddress(linkAddresses.computeIfAbsent(path, p -> p.toUri().toString()));
+                cell.setHyperlink(link);
+                
+            } catch (Exception e) {
+                ErrorReporter.reportIfEnabled(e, "TreeReportCreator.ReportWriter::setHyperlink-1");
+            }
+        }
+    }
+    
     // [instance members] ******************************************************
     
-    private final AppResource ar = AppMain.appResource;
+    private final String timestamp;
+    
+    /**
+     * 比較日時に指定された設定セットのタイムスタンプを出力するインスタンスを生成します。<br>
+     * 
+     * @param settings
+     *            設定セット
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public TreeReportCreator(Settings settings) {
+        Objects.requireNonNull(settings);
+        
+        this.timestamp = settings.get(SettingKeys.CURR_TIMESTAMP);
+    }
     
     /**
      * フォルダツリー同士の比較結果をExcelファイルの形式で出力して指定されたパスに保存します。<br>
@@ -78,150 +420,77 @@ public class TreeReportCreator {
         Objects.requireNonNull(dstBookPath);
         Objects.requireNonNull(treeResult);
         
-        // 1. テンプレートブックをコピーする。
+        try (ReportWriter writer = openResultBook(dstBookPath, treeResult.flattenDirComparison(), recursively)) {
+            for (Pair<DirInfo> dirInfoPair : treeResult.flattenDirComparison().dirInfoPairs()) {
+                writer.writeDirResult(dirInfoPair, treeResult.dirResults().get(dirInfoPair));
+            }
+            writer.save();
+        }
+    }
+    
+    /**
+     * フォルダツリー同士の比較結果をフォルダペアごとに逐次出力するためのライターを返します。<br>
+     * この時点でヘッダ情報を出力します。<br>
+     * 
+     * @param dstBookPath
+     *            保存先Excelブックのパス
+     * @param flattenDirComparison
+     *            フォルダツリー比較情報
+     * @param recursively
+     *            「子フォルダも含める」の場合は {@code true}
+     * @return 新たなライター
+     * @throws ExcelHandlingException
+     *             処理に失敗した場合
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public ReportWriter openResultBook(
+            Path dstBookPath,
+            PairingInfoDirsFlatten flattenDirComparison,
+            boolean recursively)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(dstBookPath);
+        Objects.requireNonNull(flattenDirComparison);
+        
+        // 1. テンプレートブックをロードし、ストリーミング出力用にラップする。
+        SXSSFWorkbook book;
         try (InputStream srcIs = ClassLoader.getSystemResourceAsStream(templateBookName)) {
-            Files.copy(srcIs, dstBookPath);
-            dstBookPath.toFile().setReadable(true, false);
-            dstBookPath.toFile().setWritable(true, false);
+            book = new SXSSFWorkbook(new XSSFWorkbook(srcIs), ROW_ACCESS_WINDOW);
+            book.setCompressTempFiles(true);
             
         } catch (Exception e) {
             throw new ExcelHandlingException(
-                    "failed to copy template book : %s -> %s".formatted(templateBookName,
-                            dstBookPath),
+                    "failed to load template book : %s".formatted(templateBookName),
                     e);
         }
         
-        // 2. コピーしたファイルをExcelブックとしてロードする。
-        try (InputStream is = Files.newInputStream(dstBookPath);
-                Workbook book = WorkbookFactory.create(is)) {
-            
-            CreationHelper ch = book.getCreationHelper();
-            Sheet sheet = book.getSheet(sheetName);
-            Row templateRow = sheet.getRow(ROW_LIST_TEMPLATE);
-            
-            // 3. ヘッダ情報を出力する。
-            outputHeader(ch, sheet, dstBookPath.getParent(), treeResult);
-            
-            // 4. フォルダとファイルの比較結果を出力する。
-            
-            // 4-1. 各種準備
-            Pair<Map<Path, Path>> outputDirsMaps = new Pair<>(
-                    new HashMap<>(),
-                    new HashMap<>());
-            
-            for (Side side : Side.values()) {
-                outputDirsMaps.get(side).put(
-                        treeResult.flattenDirComparison().parentDirInfoPair().get(side)
-                                .dirPath().getParent(),
-                        dstBookPath.getParent());
-            }
-            
-            BiFunction<Side, Path, String> relPath = (side, p) -> p.subpath(
-                    treeResult.flattenDirComparison().parentDirInfoPair().get(side).dirPath()
-                            .getNameCount() - 1,
-                    p.getNameCount())
-                    .toString();
-            
-            int rowNo = ROW_LIST_START - 1;
-            
-            // 4-2. フォルダペアごとの処理
-            for (int j = 0; j < treeResult.flattenDirComparison().dirInfoPairs().size(); j++) {
-                Pair<DirInfo> dirInfoPair = treeResult.flattenDirComparison().dirInfoPairs().get(j);
-                PairingInfoDirs dirComparison = treeResult.flattenDirComparison().dirComparisons()
-                        .get(dirInfoPair)
-                        .get();
-                String dirId = recursively ? Integer.toString(j + 1) : "";
-                rowNo++;
-                
-                // 4-3. フォルダ名と差分シンボルの出力
-                Optional<ResultOfDirs> dirResult = treeResult.dirResults().get(dirInfoPair);
-                
-                Pair<String> dirRelNamePair = Side.map(
-                        side -> dirInfoPair.has(side)
-                                ? relPath.apply(side, dirInfoPair.get(side).dirPath())
-                                : null);
-                
-                Pair<Path> outputDirPair = Side.map(side -> dirInfoPair.has(side)
-                        ? outputDirsMaps.get(side)
-                                .get(dirInfoPair.get(side).dirPath().getParent())
-                                .resolve("【%s%s】%s".formatted(side, dirId,
-                                        dirInfoPair.get(side).dirPath()
-                                                .getFileName()
-                                                .toString()))
-                        : null);
-                
-                for (Side side : Side.values()) {
-                    if (dirInfoPair.has(side)) {
-                        outputDirsMaps.get(side).put(dirInfoPair.get(side).dirPath(),
-                                outputDirPair.get(side));
-                    }
-                }
-                
-                outputDirLine(
-                        ch,
-                        sheet,
-                        rowNo,
-                        dirId,
-                        outputDirPair,
-                        dirRelNamePair,
-                        dirInfoPair,
-                        dirResult);
-                
-                // 4-4. セル書式を整える
-                copyCellStyles(sheet, rowNo, templateRow);
-                
-                // 4-5. Excelブックパスペアごとの処理
-                for (int i = 0; i < dirComparison.childBookInfoPairs().size(); i++) {
-                    rowNo++;
-                    
-                    // 4-6. Excelブック名と差分シンボルの出力
-                    Pair<BookInfo> bookInfoPair = dirComparison.childBookInfoPairs().get(i);
-                    Optional<ResultOfBooks> bookResult = dirResult
-                            .map(ResultOfDirs::bookResults)
-                            .flatMap(br -> br.get(bookInfoPair));
-                    
-                    outputFileLine(
-                            ch,
-                            sheet,
-                            rowNo,
-                            dirId,
-                            i + 1,
-                            outputDirPair,
-                            dirRelNamePair,
-                            bookInfoPair,
-                            bookResult);
-                    
-                    // 4-7. セル書式を整える
-                    copyCellStyles(sheet, rowNo, templateRow);
-                }
-                rowNo++;
-            }
+        try {
+            // テンプレート部分の行はストリーミング出力の対象外のため、ラップ前のシートを直接編集する。
+            Sheet template = book.getXSSFWorkbook().getSheet(sheetName);
             
-            sheet.setAutoFilter(new CellRangeAddress(ROW_LIST_START - 1, rowNo, COL_DIFF, COL_DIFF));
+            // 2. ヘッダ情報を出力する。
+            outputHeader(template, dstBookPath.getParent(), flattenDirComparison);
             
-            // 5. Excelブックを上書き保存する。
-            try (OutputStream os = Files.newOutputStream(dstBookPath)) {
-                book.write(os);
-            }
+            return new ReportWriter(dstBookPath, flattenDirComparison, recursively, book, template);
             
         } catch (Exception e) {
+            book.dispose();
             throw new ExcelHandlingException(
-                    "failed to create and save result book : %s".formatted(dstBookPath), e);
+                    "failed to create result book : %s".formatted(dstBookPath), e);
         }
     }
     
     private void outputHeader(
-            CreationHelper ch,
             Sheet sheet,
             Path workDir,
-            ResultOfTrees treeResult) {
+            PairingInfoDirsFlatten flattenDirComparison) {
         
         PoiUtil.setCellValue(sheet, 0, 4, Msg.APP_0160.get());
         PoiUtil.setCellValue(sheet, 1, 4, Msg.APP_0580.get());
         PoiUtil.setCellValue(sheet, 2, 4, Msg.APP_0930.get().formatted(Side.A));
         PoiUtil.setCellValue(sheet, 3, 4, Msg.APP_0660.get().formatted(Side.B));
         
-        String timestamp = ar.settings().get(SettingKeys.CURR_TIMESTAMP);
         LocalDateTime localDateTime = LocalDateTime.parse(timestamp, formatter);
         PoiUtil.setCellValue(sheet, 0, 5, localDateTime);
         
@@ -229,104 +498,14 @@ public class TreeReportCreator {
                 PoiUtil.setCellValue(sheet, 1, 5, workDir.toString()),
                 workDir);
         
-        Path topDirA = treeResult.flattenDirComparison().parentDirInfoPair().a().dirPath();
+        Path topDirA = flattenDirComparison.parentDirInfoPair().a().dirPath();
         PoiUtil.setHyperlink(
                 PoiUtil.setCellValue(sheet, 2, 5, topDirA.toString()),
                 topDirA);
         
-        Path topDirB = treeResult.flattenDirComparison().parentDirInfoPair().b().dirPath();
+        Path topDirB = flattenDirComparison.parentDirInfoPair().b().dirPath();
         PoiUtil.setHyperlink(
                 PoiUtil.setCellValue(sheet, 3, 5, topDirB.toString()),
                 topDirB);
     }
-    
-    private void outputDirLine(
-            CreationHelper ch,
-            Sheet sheet,
-            int rowNo,
-            String dirId,
-            Pair<Path> outputDirPair,
-            Pair<String> dirRelNamePair,
-            Pair<DirInfo> dirPair,
-            Optional<ResultOfDirs> dirResult) {
-        
-        for (Side side : Side.values()) {
-            if (dirPair.has(side)) {
-                // フォルダパスの出力
-                PoiUtil.setCellValue(sheet, rowNo, COL_LEFT.get(side), "【%s%s】".formatted(side, dirId));
-                PoiUtil.setCellValue(sheet, rowNo, COL_LEFT.get(side) + 1, dirRelNamePair.get(side));
-                
-                // ハイパーリンクの設定
-                PoiUtil.setHyperlink(
-                        PoiUtil.getCell(sheet, rowNo, COL_LEFT.get(side)),
-                        outputDirPair.get(side));
-            }
-        }
-    }
-    
-    private void outputFileLine(
-            CreationHelper ch,
-            Sheet sheet,
-            int rowNo,
-            String dirId,
-            int bookNo,
-            Pair<Path> outputDirPair,
-            Pair<String> dirRelNamePair,
-            Pair<BookInfo> bookInfoPair,
-            Optional<ResultOfBooks> bookResult) {
-        
-        for (Side side : Side.values()) {
-            if (bookInfoPair.has(side)) {
-                String bookName = bookInfoPair.get(side).bookName();
-                
-                // フォルダ名とファイル名の出力
-                PoiUtil.setCellValue(sheet, rowNo, COL_LEFT.get(side), "【%s%s】".formatted(side, dirId));
-                PoiUtil.setCellValue(sheet, rowNo, COL_LEFT.get(side) + 1, dirRelNamePair.get(side));
-                
-                PoiUtil.setCellValue(sheet, rowNo, COL_LEFT.get(side) + 2,
-                        "【%s%s-%d】".formatted(side, dirId, bookNo));
-                PoiUtil.setCellValue(sheet, rowNo, COL_LEFT.get(side) + 3, bookName);
-                
-                // ハイパーリンクの設定
-                PoiUtil.setHyperlink(
-                        PoiUtil.getCell(sheet, rowNo, COL_LEFT.get(side)),
-                        outputDirPair.get(side));
-                
-                Path bookPath = outputDirPair.get(side)
-                        .resolve("【%s%s-%d】%s".formatted(side, dirId, bookNo, bookName));
-                PoiUtil.setHyperlink(
-                        PoiUtil.getCell(sheet, rowNo, COL_LEFT.get(side) + 2),
-                        bookPath);
-            }
-        }
-        
-        // 差分記号の出力
-        if (bookInfoPair.isOnlyA()) {
-            PoiUtil.setCellValue(sheet, rowNo, COL_DIFF, DIFF_ONLY_A);
-        } else if (bookInfoPair.isOnlyB()) {
-            PoiUtil.setCellValue(sheet, rowNo, COL_DIFF, DIFF_ONLY_B);
-        } else if (bookResult.isEmpty()) {
-            PoiUtil.setCellValue(sheet, rowNo, COL_DIFF, DIFF_FAILED);
-        } else if (bookResult.get().hasDiff()) {
-            PoiUtil.setCellValue(sheet, rowNo, COL_DIFF, DIFF_BOTH);
-        }
-    }
-    
-    private void copyCellStyles(
-            Sheet sheet,
-            int rowNo,
-            Row templateRow) {
-        
-        for (Side side : Side.values()) {
-            for (int i = 0; i < 4; i++) {
-                int ii = i;
-                PoiUtil.getCellIfPresent(sheet, rowNo, COL_LEFT.get(side) + ii)
-                        .ifPresent(c -> c.setCellStyle(templateRow
-                                .getCell(COL_LEFT.get(side) + ii).getCellStyle()));
-            }
-        }
-        
-        PoiUtil.getCellIfPresent(sheet, rowNo, COL_DIFF)
-                .ifPresent(c -> c.setCellStyle(templateRow.getCell(COL_DIFF).getCellStyle()));
-    }
 }
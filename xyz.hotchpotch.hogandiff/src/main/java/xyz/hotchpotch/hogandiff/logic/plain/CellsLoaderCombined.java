@@ -1,7 +1,10 @@
 package xyz.hotchpotch.hogandiff.logic.plain;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -101,4 +104,60 @@ public class CellsLoaderCombined implements CellsLoader {
         }
         throw failed;
     }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、構成時に指定されたローダーを使って処理を行います。<br>
+     * 一つ目のローダーで処理を行い、読み込めなかったシートについて二つ目のローダーで処理を行います。
+     * 以下同様に、全てのシートを読み込むか全てのローダーで処理を行うまで繰り返します。<br>
+     * 
+     * @throws NullPointerException
+     *                                  {@code bookInfo}, {@code sheetNames} のいずれかが
+     *                                  {@code null} の場合
+     * @throws IllegalArgumentException
+     *                                  {@code bookInfo} がサポート対象外の形式の場合
+     */
+    @Override
+    public Map<String, Set<CellData>> loadCellsOfSheets(
+            BookInfo bookInfo,
+            String readPassword,
+            Collection<String> sheetNames)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookInfo);
+        // readPassword may be null.
+        Objects.requireNonNull(sheetNames);
+        CommonUtil.ifNotSupportedBookTypeThenThrow(getClass(), BookType.of(bookInfo.bookPath()));
+        
+        Map<String, Set<CellData>> result = new HashMap<>();
+        
+        Iterator<UnsafeSupplier<CellsLoader, ExcelHandlingException>> itr = suppliers.iterator();
+        while (itr.hasNext() && result.size() < sheetNames.size()) {
+            List<String> remaining = sheetNames.stream()
+                    .filter(sheetName -> !result.containsKey(sheetName))
+                    .toList();
+            try {
+                CellsLoader loader = itr.next().get();
+                result.putAll(loader.loadCellsOfSheets(bookInfo, readPassword, remaining));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、一つ目のローダーの値を返します。<br>
+     */
+    @Override
+    public boolean prefersLoadingSheetsAtOnce() {
+        try {
+            return suppliers.get(0).get().prefersLoadingSheetsAtOnce();
+        } catch (ExcelHandlingException e) {
+            return false;
+        }
+    }
 }
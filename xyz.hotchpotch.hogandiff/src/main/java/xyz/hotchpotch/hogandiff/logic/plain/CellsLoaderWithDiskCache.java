@@ -0,0 +1,493 @@
+package xyz.hotchpotch.hogandiff.logic.plain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import xyz.hotchpotch.hogandiff.logic.BookHandler;
+import xyz.hotchpotch.hogandiff.logic.BookInfo;
+import xyz.hotchpotch.hogandiff.logic.BookType;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.CellsLoader;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.SheetHandler;
+
+/**
+ * 読み込んだシートのセルデータをディスク上にキャッシュし、
+ * 同じ内容のExcelブックの同じシートを再び読み込む際にキャッシュから返す {@link CellsLoader} の実装です。<br>
+ * <br>
+ * キャッシュはExcelブックのファイル内容のダイジェスト、シート名、数式と値のどちらで比較するかの組で識別するため、
+ * Excelブックのパスや更新日時が変わっても内容が同じであればキャッシュを利用できます。
+ * キャッシュファイルはセルデータを行優先の順に並べ、行・列の差分と文字列長を可変長整数で表したうえで圧縮した形式で保存します。
+ * キャッシュの合計サイズが上限を超えた場合は、最も長い間参照されていないものから削除します。<br>
+ * <br>
+ * 読み取りパスワードで暗号化されたExcelブックは、復号した内容をディスクに残さないよう、キャッシュしません。<br>
+ *
+ * @author nmby
+ */
+@BookHandler
+@SheetHandler
+public class CellsLoaderWithDiskCache implements CellsLoader {
+    
+    // [static members] ********************************************************
+    
+    /** キャッシュファイルの形式を表す識別子。形式を変更した場合は値を変えること。 */
+    private static final int MAGIC = 0x48444331; // "HDC1"
+    
+    private static final String SUFFIX = ".cells";
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * キャッシュファイルのサイズと最後に参照された日時を表す不変クラスです。<br>
+     *
+     * @author nmby
+     * @param path         キャッシュファイルのパス
+     * @param size         キャッシュファイルのサイズ（バイト）
+     * @param lastAccessed 最後に参照された日時（エポックミリ秒）
+     */
+    private static record CacheEntry(Path path, long size, long lastAccessed) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 新しいローダーを構成します。<br>
+     *
+     * @param delegate
+     *            キャッシュに無い場合に用いるローダー
+     * @param cacheDir
+     *            キャッシュファイルの保存先フォルダ
+     * @param maxBytes
+     *            キャッシュの合計サイズの上限（バイト）
+     * @param useCachedValue
+     *            数式ではなく値で比較する場合は {@code true}
+     * @param cellsSetFactory
+     *            キャッシュから読み込んだセルデータを格納する空のセットのファクトリ
+     * @return 新しいローダー
+     * @throws NullPointerException
+     *             {@code delegate}, {@code cacheDir}, {@code cellsSetFactory} のいずれかが {@code null} の場合
+     * @throws IllegalArgumentException
+     *             {@code maxBytes} が {@code 1} 未満の場合
+     */
+    public static CellsLoader of(
+            CellsLoader delegate,
+            Path cacheDir,
+            long maxBytes,
+            boolean useCachedValue,
+            Supplier<? extends Set<CellData>> cellsSetFactory) {
+        
+        Objects.requireNonNull(delegate);
+        Objects.requireNonNull(cacheDir);
+        Objects.requireNonNull(cellsSetFactory);
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes: " + maxBytes);
+        }
+        
+        return new CellsLoaderWithDiskCache(delegate, cacheDir, maxBytes, useCachedValue, cellsSetFactory);
+    }
+    
+    /**
+     * 指定されたファイルの内容の SHA-256 ダイジェストを返します。<br>
+     */
+    private static byte[] digestOf(Path file) throws IOException {
+        try (InputStream is = Files.newInputStream(file)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                md.update(buf, 0, n);
+            }
+            return md.digest();
+            
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+    
+    /**
+     * セルデータを行優先の順に並べ、キャッシュファイルの形式で書き出します。<br>
+     *
+     * @param cells
+     *            セルデータ
+     * @param os
+     *            書き出し先
+     * @throws IOException
+     *             入出力エラーが発生した場合
+     */
+    /* package */ static void encode(Collection<CellData> cells, OutputStream os) throws IOException {
+        assert cells != null;
+        assert os != null;
+        
+        CellData[] sorted = cells.toArray(CellData[]::new);
+        Arrays.sort(sorted, Comparator.comparingInt(CellData::row).thenComparingInt(CellData::column));
+        
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(os, deflater, BUFFER_SIZE), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            writeVarInt(out, sorted.length);
+            
+            // 行は直前のセルとの差分、列は同じ行であれば直前のセルとの差分、行が変われば絶対値で表す。
+            int prevRow = 0;
+            int prevColumn = 0;
+            for (CellData cell : sorted) {
+                int rowDelta = cell.row() - prevRow;
+                writeVarInt(out, rowDelta);
+                writeVarInt(out, rowDelta == 0 ? cell.column() - prevColumn : cell.column());
+                writeString(out, cell.content());
+                if (cell.comment() == null) {
+                    writeVarInt(out, 0);
+                } else {
+                    writeVarInt(out, 1);
+                    writeString(out, cell.comment());
+                }
+                prevRow = cell.row();
+                prevColumn = cell.column();
+            }
+            out.flush();
+            out.close();
+            
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    /**
+     * キャッシュファイルの形式で書き出されたセルデータを読み込み、指定されたセットに格納します。<br>
+     *
+     * @param is
+     *            読み込み元
+     * @param cells
+     *            格納先のセット
+     * @throws IOException
+     *             入出力エラーが発生した場合や、形式が不正な場合
+     */
+    /* package */ static void decode(InputStream is, Set<CellData> cells) throws IOException {
+        assert is != null;
+        assert cells != null;
+        
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(is), BUFFER_SIZE));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("unknown format");
+        }
+        int count = readVarInt(in);
+        
+        int row = 0;
+        int column = 0;
+        for (int i = 0; i < count; i++) {
+            int rowDelta = readVarInt(in);
+            int columnValue = readVarInt(in);
+            row += rowDelta;
+            column = rowDelta == 0 ? column + columnValue : columnValue;
+            String content = readString(in);
+            String comment = readVarInt(in) == 0 ? null : readString(in);
+            cells.add(new CellData(row, column, content, comment));
+        }
+    }
+    
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        assert 0 <= value;
+        
+        while (0x7F < value) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+    
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+    
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final CellsLoader delegate;
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final boolean useCachedValue;
+    private final Supplier<? extends Set<CellData>> cellsSetFactory;
+    
+    /** Excelブックのパスとそのダイジェスト。同じExcelブックのシートごとに再計算しないために保持する。 */
+    private final Map<Path, byte[]> digests = new HashMap<>();
+    
+    private CellsLoaderWithDiskCache(
+            CellsLoader delegate,
+            Path cacheDir,
+            long maxBytes,
+            boolean useCachedValue,
+            Supplier<? extends Set<CellData>> cellsSetFactory) {
+        
+        assert delegate != null;
+        assert cacheDir != null;
+        assert 0 < maxBytes;
+        assert cellsSetFactory != null;
+        
+        this.delegate = delegate;
+        this.cacheDir = cacheDir;
+        this.maxBytes = maxBytes;
+        this.useCachedValue = useCachedValue;
+        this.cellsSetFactory = cellsSetFactory;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、キャッシュにあればキャッシュから、無ければ構成時に指定されたローダーで読み込みます。
+     * 構成時に指定されたローダーで読み込んだ結果は、キャッシュに加えます。<br>
+     *
+     * @throws NullPointerException
+     *             {@code bookInfo}, {@code sheetName} のいずれかが {@code null} の場合
+     * @throws ExcelHandlingException
+     *             処理に失敗した場合
+     */
+    @Override
+    public Set<CellData> loadCells(
+            BookInfo bookInfo,
+            String readPassword,
+            String sheetName)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookInfo);
+        // readPassword may be null.
+        Objects.requireNonNull(sheetName);
+        CommonUtil.ifNotSupportedBookTypeThenThrow(getClass(), BookType.of(bookInfo.bookPath()));
+        
+        if (readPassword != null) {
+            return delegate.loadCells(bookInfo, readPassword, sheetName);
+        }
+        
+        Path cacheFile = cacheFileOf(bookInfo.bookPath(), sheetName);
+        Set<CellData> cached = readCache(cacheFile);
+        if (cached != null) {
+            return cached;
+        }
+        
+        Set<CellData> cells = delegate.loadCells(bookInfo, readPassword, sheetName);
+        writeCache(cacheFile, cells);
+        evict();
+        return cells;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、キャッシュに無いシートのみを構成時に指定されたローダーでまとめて読み込みます。<br>
+     *
+     * @throws NullPointerException
+     *             {@code bookInfo}, {@code sheetNames} のいずれかが {@code null} の場合
+     * @throws ExcelHandlingException
+     *             処理に失敗した場合
+     */
+    @Override
+    public Map<String, Set<CellData>> loadCellsOfSheets(
+            BookInfo bookInfo,
+            String readPassword,
+            Collection<String> sheetNames)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookInfo);
+        // readPassword may be null.
+        Objects.requireNonNull(sheetNames);
+        
+        if (readPassword != null) {
+            return delegate.loadCellsOfSheets(bookInfo, readPassword, sheetNames);
+        }
+        
+        Map<String, Set<CellData>> result = new HashMap<>();
+        List<String> missed = new ArrayList<>();
+        for (String sheetName : sheetNames) {
+            Set<CellData> cached = readCache(cacheFileOf(bookInfo.bookPath(), sheetName));
+            if (cached != null) {
+                result.put(sheetName, cached);
+            } else {
+                missed.add(sheetName);
+            }
+        }
+        
+        if (!missed.isEmpty()) {
+            Map<String, Set<CellData>> loaded = delegate.loadCellsOfSheets(bookInfo, readPassword, missed);
+            for (Map.Entry<String, Set<CellData>> entry : loaded.entrySet()) {
+                writeCache(cacheFileOf(bookInfo.bookPath(), entry.getKey()), entry.getValue());
+            }
+            result.putAll(loaded);
+            evict();
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean prefersLoadingSheetsAtOnce() {
+        return delegate.prefersLoadingSheetsAtOnce();
+    }
+    
+    /**
+     * 指定されたシートのキャッシュファイルのパスを返します。<br>
+     * Excelブックのダイジェストを計算できない場合は {@code null} を返します。<br>
+     */
+    private Path cacheFileOf(Path bookPath, String sheetName) {
+        try {
+            byte[] bookDigest = digests.get(bookPath);
+            if (bookDigest == null) {
+                bookDigest = digestOf(bookPath);
+                digests.put(bookPath, bookDigest);
+            }
+            
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(bookDigest);
+            md.update((byte) (useCachedValue ? 'V' : 'F'));
+            md.update(sheetName.getBytes(StandardCharsets.UTF_8));
+            return cacheDir.resolve(HexFormat.of().formatHex(md.digest()) + SUFFIX);
+            
+        } catch (IOException e) {
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+    
+    /**
+     * キャッシュファイルからセルデータを読み込みます。<br>
+     * キャッシュファイルが存在しない場合や読み込めない場合は {@code null} を返します。<br>
+     */
+    private Set<CellData> readCache(Path cacheFile) {
+        if (cacheFile == null || !Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try (InputStream is = Files.newInputStream(cacheFile)) {
+            Set<CellData> cells = cellsSetFactory.get();
+            decode(is, cells);
+            
+            // 最終更新日時を、最後に参照された日時として扱う。
+            Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(System.currentTimeMillis()));
+            return cells;
+            
+        } catch (IOException | RuntimeException e) {
+            // 壊れたキャッシュファイルは削除し、改めて読み込ませる。
+            try {
+                Files.deleteIfExists(cacheFile);
+            } catch (IOException e2) {
+                // nop
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * セルデータをキャッシュファイルに書き出します。<br>
+     * 書き出しに失敗しても比較処理は継続できるため、例外はスローしません。<br>
+     */
+    private void writeCache(Path cacheFile, Set<CellData> cells) {
+        if (cacheFile == null) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            Files.createDirectories(cacheDir);
+            tmp = Files.createTempFile(cacheDir, "cells-", ".tmp");
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                encode(cells, os);
+            }
+            // 他のプロセスが読み込み中のファイルを壊さないよう、書き出し終えたファイルで置き換える。
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            
+        } catch (IOException | RuntimeException e) {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e2) {
+                    // nop
+                }
+            }
+        }
+    }
+    
+    /**
+     * キャッシュの合計サイズが上限を超えている場合に、最も長い間参照されていないものから削除します。<br>
+     */
+    private void evict() {
+        List<CacheEntry> entries;
+        try (Stream<Path> paths = Files.list(cacheDir)) {
+            entries = paths
+                    .filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .map(path -> {
+                        try {
+                            return new CacheEntry(
+                                    path,
+                                    Files.size(path),
+                                    Files.getLastModifiedTime(path).toMillis());
+                        } catch (IOException e) {
+                            return null;
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparingLong(CacheEntry::lastAccessed))
+                    .toList();
+        } catch (IOException e) {
+            return;
+        }
+        
+        long total = entries.stream().mapToLong(CacheEntry::size).sum();
+        for (CacheEntry entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entry.path());
+                total -= entry.size();
+            } catch (IOException e) {
+                // nop
+            }
+        }
+    }
+}
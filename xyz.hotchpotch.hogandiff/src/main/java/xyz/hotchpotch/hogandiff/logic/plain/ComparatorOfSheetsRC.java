@@ -1,16 +1,27 @@
 package xyz.hotchpotch.hogandiff.logic.plain;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.logic.CellData;
 import xyz.hotchpotch.hogandiff.logic.ComparatorOfSheets;
 import xyz.hotchpotch.hogandiff.logic.ResultOfSheets;
 import xyz.hotchpotch.hogandiff.logic.plain.matchers.RCMatcher;
+import xyz.hotchpotch.hogandiff.logic.plain.matchers.RowWindowMatcher;
 import xyz.hotchpotch.hogandiff.util.IntPair;
 import xyz.hotchpotch.hogandiff.util.Pair;
 import xyz.hotchpotch.hogandiff.util.Pair.Side;
@@ -29,7 +40,7 @@ public class ComparatorOfSheetsRC implements ComparatorOfSheets {
     
     /**
      * 新たなコンパレータを返します。<br>
-     * 
+     *
      * @param considerRowGaps    行の挿入／削除を考慮する場合は {@code true}
      * @param considerColumnGaps 列の挿入／削除を考慮する場合は {@code true}
      * @param prioritizeSpeed    比較処理の速度を優先する場合は {@code true}
@@ -40,34 +51,232 @@ public class ComparatorOfSheetsRC implements ComparatorOfSheets {
             boolean considerColumnGaps,
             boolean prioritizeSpeed) {
         
+        return of(considerRowGaps, considerColumnGaps, prioritizeSpeed, 0);
+    }
+    
+    /**
+     * 新たなコンパレータを返します。<br>
+     * 列の挿入／削除を考慮せずに行の挿入／削除を考慮する場合に {@code rowWindowSize} が正の値であれば、
+     * 行同士の対応付けを {@link RowWindowMatcher} により行います。<br>
+     *
+     * @param considerRowGaps    行の挿入／削除を考慮する場合は {@code true}
+     * @param considerColumnGaps 列の挿入／削除を考慮する場合は {@code true}
+     * @param prioritizeSpeed    比較処理の速度を優先する場合は {@code true}
+     * @param rowWindowSize      行同士の対応付けを一度に行う行数（0以下の場合はシート全体）
+     * @return 新たなコンパレータ
+     */
+    public static ComparatorOfSheetsRC of(
+            boolean considerRowGaps,
+            boolean considerColumnGaps,
+            boolean prioritizeSpeed,
+            int rowWindowSize) {
+        
+        return of(considerRowGaps, considerColumnGaps, prioritizeSpeed, rowWindowSize, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * 新たなコンパレータを返します。<br>
+     * 行同士、列同士の対応付けの並列処理には、指定されたスレッドプールを使用します。<br>
+     *
+     * @param considerRowGaps    行の挿入／削除を考慮する場合は {@code true}
+     * @param considerColumnGaps 列の挿入／削除を考慮する場合は {@code true}
+     * @param prioritizeSpeed    比較処理の速度を優先する場合は {@code true}
+     * @param rowWindowSize      行同士の対応付けを一度に行う行数（0以下の場合はシート全体）
+     * @param pool               並列処理に用いるスレッドプール
+     * @return 新たなコンパレータ
+     * @throws NullPointerException {@code pool} が {@code null} の場合
+     */
+    public static ComparatorOfSheetsRC of(
+            boolean considerRowGaps,
+            boolean considerColumnGaps,
+            boolean prioritizeSpeed,
+            int rowWindowSize,
+            ForkJoinPool pool) {
+        
+        Objects.requireNonNull(pool);
+        
+        int windowSize = considerRowGaps && !considerColumnGaps && 0 < rowWindowSize
+                ? Math.max(2, rowWindowSize)
+                : 0;
+        
         return new ComparatorOfSheetsRC(
-                RCMatcher.of(
-                        considerRowGaps,
-                        considerColumnGaps,
-                        prioritizeSpeed));
+                considerRowGaps,
+                considerColumnGaps,
+                prioritizeSpeed,
+                windowSize,
+                pool);
+    }
+    
+    /**
+     * 前回比較したセルセットの縦インデックスから、今回のセルセットの縦インデックスへの対応を求めます。<br>
+     * 内容が同一で、かつそれぞれのセルセットの中で一意である行（列）同士を、
+     * 順序が入れ替わらない範囲で最も多く対応付けます。<br>
+     *
+     * @param prevCells 前回比較したセルセット
+     * @param currCells 今回のセルセット
+     * @param byRow     行同士の対応を求める場合は {@code true}、列同士の対応を求める場合は {@code false}
+     * @return 前回の縦インデックスを今回の縦インデックスに変換する関数（対応しない場合は {@code -1} を返す）
+     */
+    private static IntUnaryOperator mappingOf(
+            Set<CellData> prevCells,
+            Set<CellData> currCells,
+            boolean byRow) {
+        
+        assert prevCells != null;
+        assert currCells != null;
+        
+        if (prevCells == currCells) {
+            return IntUnaryOperator.identity();
+        }
+        
+        Function<Set<CellData>, Iterator<List<CellData>>> groups = byRow
+                ? SpillableCellsSet::rows
+                : SpillableCellsSet::columns;
+        ToIntFunction<CellData> vertical = byRow
+                ? CellData::row
+                : CellData::column;
+        UnaryOperator<CellData> normalizer = byRow
+                ? cell -> new CellData(0, cell.column(), cell.content(), cell.comment())
+                : cell -> new CellData(cell.row(), 0, cell.content(), cell.comment());
+        
+        Map<List<CellData>, Integer> prevLines = uniqueLinesOf(groups.apply(prevCells), vertical, normalizer);
+        Map<List<CellData>, Integer> currLines = uniqueLinesOf(groups.apply(currCells), vertical, normalizer);
+        
+        // 双方で一意な内容を持つ縦インデックスの組を、前回の縦インデックスの昇順に抽出する
+        List<IntPair> candidates = new ArrayList<>();
+        prevLines.forEach((line, prevIdx) -> {
+            Integer currIdx = currLines.get(line);
+            if (0 <= prevIdx && currIdx != null && 0 <= currIdx) {
+                candidates.add(IntPair.of(prevIdx, currIdx));
+            }
+        });
+        
+        int[] chosen = longestIncreasingOf(candidates.stream().mapToInt(IntPair::b).toArray());
+        int[] prevIdxs = Arrays.stream(chosen).map(i -> candidates.get(i).a()).toArray();
+        int[] currIdxs = Arrays.stream(chosen).map(i -> candidates.get(i).b()).toArray();
+        
+        return idx -> {
+            int pos = Arrays.binarySearch(prevIdxs, idx);
+            return pos < 0 ? -1 : currIdxs[pos];
+        };
+    }
+    
+    /**
+     * 縦インデックスを取り除いた横方向のリストに対する縦インデックスのマップを、縦インデックスの昇順に返します。<br>
+     * 同じ内容のリストが複数ある場合、その縦インデックスは {@code -1} とします。<br>
+     */
+    private static Map<List<CellData>, Integer> uniqueLinesOf(
+            Iterator<List<CellData>> groups,
+            ToIntFunction<CellData> vertical,
+            UnaryOperator<CellData> normalizer) {
+        
+        Map<List<CellData>, Integer> lines = new LinkedHashMap<>();
+        
+        while (groups.hasNext()) {
+            List<CellData> group = groups.next();
+            List<CellData> line = group.stream().map(normalizer).toList();
+            lines.merge(line, vertical.applyAsInt(group.get(0)), (_, _) -> -1);
+        }
+        return lines;
+    }
+    
+    /**
+     * 指定された値の列の最長狭義単調増加部分列を求め、その要素の位置を昇順に返します。<br>
+     *
+     * @param values 値の列
+     * @return 最長狭義単調増加部分列の要素の位置
+     */
+    private static int[] longestIncreasingOf(int[] values) {
+        int[] tails = new int[values.length];
+        int[] prevs = new int[values.length];
+        int len = 0;
+        
+        for (int i = 0; i < values.length; i++) {
+            int lo = 0;
+            int hi = len;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            prevs[i] = lo == 0 ? -1 : tails[lo - 1];
+            tails[lo] = i;
+            if (lo == len) {
+                len++;
+            }
+        }
+        
+        int[] result = new int[len];
+        int i = len == 0 ? -1 : tails[len - 1];
+        for (int k = len - 1; 0 <= k; k--) {
+            result[k] = i;
+            i = prevs[i];
+        }
+        return result;
+    }
+    
+    /**
+     * 前回の対応付けのうち、両側とも今回のセルセットに同じ内容で残っている縦インデックスの組を、
+     * 今回の縦インデックスに変換して返します。<br>
+     *
+     * @param prevPairs 前回の対応付け
+     * @param mappings  各側の縦インデックスの変換関数
+     * @return アンカー
+     */
+    private static List<IntPair> anchorsOf(List<IntPair> prevPairs, Pair<IntUnaryOperator> mappings) {
+        List<IntPair> anchors = new ArrayList<>();
+        
+        for (IntPair pair : prevPairs) {
+            if (pair.isPaired()) {
+                int a = mappings.a().applyAsInt(pair.a());
+                int b = mappings.b().applyAsInt(pair.b());
+                if (0 <= a && 0 <= b) {
+                    anchors.add(IntPair.of(a, b));
+                }
+            }
+        }
+        return anchors;
     }
     
     // [instance members] ******************************************************
     
+    private final boolean considerRowGaps;
+    private final boolean considerColumnGaps;
+    private final boolean prioritizeSpeed;
+    private final int rowWindowSize;
     private final RCMatcher rcMatcher;
+    private final RowWindowMatcher rowWindowMatcher;
     
-    private ComparatorOfSheetsRC(RCMatcher rcMatcher) {
-        assert rcMatcher != null;
+    private ComparatorOfSheetsRC(
+            boolean considerRowGaps,
+            boolean considerColumnGaps,
+            boolean prioritizeSpeed,
+            int rowWindowSize,
+            ForkJoinPool pool) {
         
-        this.rcMatcher = rcMatcher;
+        this.considerRowGaps = considerRowGaps;
+        this.considerColumnGaps = considerColumnGaps;
+        this.prioritizeSpeed = prioritizeSpeed;
+        this.rowWindowSize = rowWindowSize;
+        this.rcMatcher = RCMatcher.of(considerRowGaps, considerColumnGaps, prioritizeSpeed, pool);
+        this.rowWindowMatcher = 0 < rowWindowSize ? RowWindowMatcher.of(rowWindowSize, pool) : null;
     }
     
     /**
      * {@inheritDoc}
-     * 
+     *
      * @throws NullPointerException
-     *                                  {@code cellsSetPair} が {@code null} の場合
+     *                                  {@code cellsSetPair}, {@code budget} のいずれかが {@code null} の場合
      * @throws IllegalArgumentException
      *                                  {@code cellsSetPair} に含まれるセルセットが同一インスタンスの場合
      */
     @Override
-    public ResultOfSheets compare(Pair<Set<CellData>> cellsSetPair) {
+    public ResultOfSheets compare(Pair<Set<CellData>> cellsSetPair, MatchBudget budget) {
         Objects.requireNonNull(cellsSetPair);
+        Objects.requireNonNull(budget);
         
         if (cellsSetPair.a() == cellsSetPair.b()) {
             if (cellsSetPair.a().isEmpty()) {
@@ -75,38 +284,217 @@ public class ComparatorOfSheetsRC implements ComparatorOfSheets {
                         cellsSetPair,
                         EMPTY_PAIR,
                         EMPTY_PAIR,
-                        List.of());
+                        List.of(),
+                        false);
             } else {
                 throw new IllegalArgumentException("cells1 == cells2");
             }
         }
         
-        Pair<List<IntPair>> pairs = rcMatcher.make2Pairs(cellsSetPair);
-        List<IntPair> rowPairs = pairs.a();
-        List<IntPair> columnPairs = pairs.b();
+        if (rowWindowMatcher != null) {
+            return compareInWindows(cellsSetPair, budget);
+        }
+        
+        return resultOf(cellsSetPair, rcMatcher.make2Pairs(cellsSetPair, budget), budget);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * <br>
+     * 前回の行同士・列同士の対応付けのうち、両シートとも同じ内容で残っている行・列の組をアンカーとして固定し、
+     * アンカー同士の間の範囲のみを改めて対応付けます。
+     * 変更の無いシートは前回と同一のセルセットを指定することで、内容の照合を省略できます。<br>
+     * 行同士の対応付けをウィンドウの範囲内で行う場合や、前回の比較結果が対応付けを保持していない場合は、
+     * 前回の比較結果を用いずに比較します。<br>
+     *
+     * @throws NullPointerException
+     *                                  パラメータのいずれかが {@code null} の場合
+     * @throws IllegalArgumentException
+     *                                  {@code cellsSetPair} に含まれるセルセットが同一インスタンスの場合
+     */
+    @Override
+    public ResultOfSheets compareIncrementally(
+            Pair<Set<CellData>> cellsSetPair,
+            MatchBudget budget,
+            Pair<Set<CellData>> prevCellsSetPair,
+            ResultOfSheets prevResult) {
+        
+        Objects.requireNonNull(cellsSetPair);
+        Objects.requireNonNull(budget);
+        Objects.requireNonNull(prevCellsSetPair);
+        Objects.requireNonNull(prevResult);
         
-        // 余剰行の収集
-        Pair<List<Integer>> redundantRows = Side.map(side -> rowPairs.stream()
-                .filter(pair -> pair.isOnly(side))
-                .map(pair -> pair.get(side))
-                .toList());
+        if (rowWindowMatcher != null
+                || cellsSetPair.a() == cellsSetPair.b()
+                || prevCellsSetPair.a() == prevCellsSetPair.b()
+                || prevResult.rowPairs().isEmpty()
+                || prevResult.columnPairs().isEmpty()) {
+            
+            return compare(cellsSetPair, budget);
+        }
+        
+        List<IntPair> rowAnchors = considerRowGaps
+                ? anchorsOf(prevResult.rowPairs().get(), Side.map(side -> mappingOf(
+                        prevCellsSetPair.get(side),
+                        cellsSetPair.get(side),
+                        true)))
+                : null;
+        List<IntPair> columnAnchors = considerColumnGaps
+                ? anchorsOf(prevResult.columnPairs().get(), Side.map(side -> mappingOf(
+                        prevCellsSetPair.get(side),
+                        cellsSetPair.get(side),
+                        false)))
+                : null;
         
-        // 余剰列の収集
-        Pair<List<Integer>> redundantColumns = Side.map(side -> columnPairs.stream()
-                .filter(pair -> pair.isOnly(side))
-                .map(pair -> pair.get(side))
-                .toList());
+        return resultOf(
+                cellsSetPair,
+                rcMatcher.make2Pairs(cellsSetPair, new Pair<>(rowAnchors, columnAnchors), budget),
+                budget);
+    }
+    
+    /**
+     * 行同士・列同士の対応関係から差分セルを収集し、比較結果を返します。<br>
+     *
+     * @param cellsSetPair 比較対象シートのセルセット
+     * @param pairs        行同士・列同士の対応関係
+     * @param budget       打ち切り条件
+     * @return 比較結果
+     */
+    private ResultOfSheets resultOf(
+            Pair<Set<CellData>> cellsSetPair,
+            Pair<List<IntPair>> pairs,
+            MatchBudget budget) {
+        
+        assert cellsSetPair != null;
+        assert pairs != null;
+        assert budget != null;
+        
+        List<IntPair> rowPairs = pairs.a();
+        List<IntPair> columnPairs = pairs.b();
         
         // 差分セルの収集
         List<Pair<CellData>> diffCells = extractDiffs(cellsSetPair, rowPairs, columnPairs);
         
+        return new ResultOfSheets(
+                cellsSetPair,
+                rowPairs,
+                columnPairs,
+                diffCells,
+                budget.isDegraded());
+    }
+    
+    /**
+     * このコンパレータと比較方法の設定が等しいコンパレータである場合に {@code true} を返します。<br>
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ComparatorOfSheetsRC other
+                && considerRowGaps == other.considerRowGaps
+                && considerColumnGaps == other.considerColumnGaps
+                && prioritizeSpeed == other.prioritizeSpeed
+                && rowWindowSize == other.rowWindowSize;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(considerRowGaps, considerColumnGaps, prioritizeSpeed, rowWindowSize);
+    }
+    
+    /**
+     * 両シートの行を先頭から順に読み進めながらウィンドウの範囲内で行同士を対応付け、
+     * 対応付けが確定した行から順に差分セルを収集します。<br>
+     * 列の挿入／削除は考慮しないため、列同士は列インデックスの等しいもの同士を対応付けます。<br>
+     *
+     * @param cellsSetPair 比較対象シートのセルセット
+     * @param budget       打ち切り条件
+     * @return 比較結果
+     */
+    private ResultOfSheets compareInWindows(
+            Pair<Set<CellData>> cellsSetPair,
+            MatchBudget budget) {
+        
+        assert cellsSetPair != null;
+        assert budget != null;
+        
+        Pair<List<Integer>> redundantRows = new Pair<>(new ArrayList<>(), new ArrayList<>());
+        List<Pair<CellData>> diffCells = new ArrayList<>();
+        
+        rowWindowMatcher.matchRows(
+                cellsSetPair.map(SpillableCellsSet::rows),
+                budget,
+                (rows, rowPair) -> {
+                    if (rows.isPaired()) {
+                        extractDiffs(rows, rowPair, diffCells);
+                    } else if (rows.hasA()) {
+                        redundantRows.a().add(rows.a());
+                    } else {
+                        redundantRows.b().add(rows.b());
+                    }
+                });
+        
         return new ResultOfSheets(
                 cellsSetPair,
                 redundantRows,
-                redundantColumns,
-                diffCells);
+                EMPTY_PAIR,
+                diffCells,
+                budget.isDegraded());
     }
     
+    /**
+     * 対応付けられた行同士に含まれるセルを列インデックスの等しいもの同士で比較し、差分セルを収集します。<br>
+     *
+     * @param rows      行同士の対応関係
+     * @param rowPair   各行に含まれるセル（列インデックスの昇順）
+     * @param diffCells 差分セルの収集先
+     */
+    private static void extractDiffs(
+            IntPair rows,
+            Pair<List<CellData>> rowPair,
+            List<Pair<CellData>> diffCells) {
+        
+        assert rows != null;
+        assert rows.isPaired();
+        assert rowPair != null;
+        assert diffCells != null;
+        
+        List<CellData> rowA = rowPair.a();
+        List<CellData> rowB = rowPair.b();
+        int i = 0;
+        int j = 0;
+        
+        while (i < rowA.size() || j < rowB.size()) {
+            int columnA = i < rowA.size() ? rowA.get(i).column() : Integer.MAX_VALUE;
+            int columnB = j < rowB.size() ? rowB.get(j).column() : Integer.MAX_VALUE;
+            
+            if (columnA == columnB) {
+                if (!rowA.get(i).dataEquals(rowB.get(j))) {
+                    diffCells.add(new Pair<>(rowA.get(i), rowB.get(j)));
+                }
+                i++;
+                j++;
+                
+            } else if (columnA < columnB) {
+                diffCells.add(new Pair<>(rowA.get(i), CellData.empty(rows.b(), columnA)));
+                i++;
+                
+            } else {
+                diffCells.add(new Pair<>(CellData.empty(rows.a(), columnB), rowB.get(j)));
+                j++;
+            }
+        }
+    }
+    
+    /**
+     * 対応付けられた行同士・列同士に含まれるセルを比較し、差分セルを収集します。<br>
+     * 各シートのセルは行の順に読み取るため、一時ファイルに退避された {@link SpillableCellsSet} であっても
+     * シート全体をヒープ上に展開することはありません。<br>
+     *
+     * @param cellsSetPair 比較対象シートのセルセット
+     * @param rowPairs     行同士の対応関係
+     * @param columnPairs  列同士の対応関係
+     * @return 差分セルのリスト
+     */
     private List<Pair<CellData>> extractDiffs(
             Pair<Set<CellData>> cellsSetPair,
             List<IntPair> rowPairs,
@@ -117,29 +505,145 @@ public class ComparatorOfSheetsRC implements ComparatorOfSheets {
         assert rowPairs != null;
         assert columnPairs != null;
         
-        Pair<Map<String, CellData>> maps = cellsSetPair.map(cells -> cells.stream()
-                .collect(Collectors.toMap(CellData::address, Function.identity())));
-        
+        List<IntPair> rowPairsFiltered = rowPairs.stream().filter(IntPair::isPaired).toList();
         List<IntPair> columnPairsFiltered = columnPairs.stream().filter(IntPair::isPaired).toList();
+        Pair<int[]> columnOrders = Side.map(side -> ordersOf(columnPairsFiltered, side));
         
-        return rowPairs.parallelStream().filter(IntPair::isPaired).flatMap(
-                rows -> columnPairsFiltered.stream().map(columns -> {
-                    Pair<String> addressPair = Side.map(
-                            side -> CellsUtil.idxToAddress(rows.get(side),
-                                    columns.get(side)));
-                    Pair<CellData> cellPair = Side
-                            .map(side -> maps.get(side).get(addressPair.get(side)));
-                    
-                    boolean bothAbsent = cellPair.a() == null && cellPair.b() == null;
-                    boolean bothPresentAndEqual = cellPair.a() != null
-                            && cellPair.b() != null
-                            && cellPair.a().dataEquals(cellPair.b());
-                    if (bothAbsent || bothPresentAndEqual) {
-                        return null;
+        // 行同士の対応付けは通常どちらのシートでも行インデックスの昇順となるため、
+        // 各シートのセルを行の順に読み進めながら比較する。そうでない場合は行ごとに索引を作成する。
+        boolean ascending = isAscending(rowPairsFiltered, Side.A)
+                && isAscending(rowPairsFiltered, Side.B);
+        Pair<IntFunction<List<CellData>>> rowSources = cellsSetPair.map(cells -> ascending
+                ? rowCursorOf(SpillableCellsSet.rows(cells))
+                : rowIndexOf(SpillableCellsSet.rows(cells)));
+        
+        List<Pair<CellData>> diffCells = new ArrayList<>();
+        
+        for (IntPair rows : rowPairsFiltered) {
+            Pair<List<CellData>> rowPair = Side.map(side -> rowSources.get(side).apply(rows.get(side)));
+            if (rowPair.a().isEmpty() && rowPair.b().isEmpty()) {
+                continue;
+            }
+            Pair<long[]> keysPair = Side.map(side -> keysOf(rowPair.get(side), columnOrders.get(side)));
+            long[] keysA = keysPair.a();
+            long[] keysB = keysPair.b();
+            int i = 0;
+            int j = 0;
+            
+            while (i < keysA.length || j < keysB.length) {
+                int orderA = i < keysA.length ? (int) (keysA[i] >>> 32) : Integer.MAX_VALUE;
+                int orderB = j < keysB.length ? (int) (keysB[j] >>> 32) : Integer.MAX_VALUE;
+                
+                if (orderA == orderB) {
+                    CellData cellA = rowPair.a().get((int) keysA[i]);
+                    CellData cellB = rowPair.b().get((int) keysB[j]);
+                    if (!cellA.dataEquals(cellB)) {
+                        diffCells.add(new Pair<>(cellA, cellB));
                     }
-                    return Side.map(side -> cellPair.get(side) != null
-                            ? cellPair.get(side)
-                            : CellData.empty(rows.get(side), columns.get(side)));
-                }).filter(Objects::nonNull)).toList();
+                    i++;
+                    j++;
+                    
+                } else if (orderA < orderB) {
+                    CellData cellA = rowPair.a().get((int) keysA[i]);
+                    diffCells.add(new Pair<>(
+                            cellA,
+                            CellData.empty(rows.b(), columnPairsFiltered.get(orderA).b())));
+                    i++;
+                    
+                } else {
+                    CellData cellB = rowPair.b().get((int) keysB[j]);
+                    diffCells.add(new Pair<>(
+                            CellData.empty(rows.a(), columnPairsFiltered.get(orderB).a()),
+                            cellB));
+                    j++;
+                }
+            }
+        }
+        
+        return diffCells;
+    }
+    
+    /**
+     * 指定された側の列インデックスから、対応付けられた列の中での順序への変換表を返します。<br>
+     * 対応付けられていない列の順序は {@code -1} とします。<br>
+     *
+     * @param columnPairs 対応付けられた列同士の対応関係
+     * @param side        比較対象の側
+     * @return 列インデックスから順序への変換表
+     */
+    private static int[] ordersOf(List<IntPair> columnPairs, Side side) {
+        int max = columnPairs.stream().mapToInt(pair -> pair.get(side)).max().orElse(-1);
+        int[] orders = new int[max + 1];
+        Arrays.fill(orders, -1);
+        for (int i = 0; i < columnPairs.size(); i++) {
+            orders[columnPairs.get(i).get(side)] = i;
+        }
+        return orders;
+    }
+    
+    /**
+     * 行に含まれるセルのうち対応付けられた列のものについて、
+     * 上位32ビットに列の順序、下位32ビットに行内の位置を持つキーを、列の順序の昇順に返します。<br>
+     *
+     * @param row    行に含まれるセル
+     * @param orders 列インデックスから順序への変換表
+     * @return キーの配列
+     */
+    private static long[] keysOf(List<CellData> row, int[] orders) {
+        long[] keys = new long[row.size()];
+        int n = 0;
+        for (int i = 0; i < row.size(); i++) {
+            int column = row.get(i).column();
+            int order = column < orders.length ? orders[column] : -1;
+            if (0 <= order) {
+                keys[n++] = ((long) order << 32) | i;
+            }
+        }
+        keys = Arrays.copyOf(keys, n);
+        Arrays.sort(keys);
+        return keys;
+    }
+    
+    private static boolean isAscending(List<IntPair> pairs, Side side) {
+        for (int i = 1; i < pairs.size(); i++) {
+            if (pairs.get(i).get(side) <= pairs.get(i - 1).get(side)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 行インデックスの昇順に要求された行のセルを、行ごとのリストを読み進めながら返す関数を返します。<br>
+     *
+     * @param rows 行インデックスの昇順に並んだ行ごとのリスト
+     * @return 行インデックスに対する行のセルを返す関数
+     */
+    private static IntFunction<List<CellData>> rowCursorOf(Iterator<List<CellData>> rows) {
+        return new IntFunction<>() {
+            private List<CellData> next = rows.hasNext() ? rows.next() : null;
+            
+            @Override
+            public List<CellData> apply(int idx) {
+                while (next != null && next.get(0).row() < idx) {
+                    next = rows.hasNext() ? rows.next() : null;
+                }
+                return next != null && next.get(0).row() == idx
+                        ? next
+                        : List.of();
+            }
+        };
+    }
+    
+    /**
+     * 任意の順に要求された行のセルを返す関数を返します。<br>
+     *
+     * @param rows 行ごとのリスト
+     * @return 行インデックスに対する行のセルを返す関数
+     */
+    private static IntFunction<List<CellData>> rowIndexOf(Iterator<List<CellData>> rows) {
+        Map<Integer, List<CellData>> map = new HashMap<>();
+        rows.forEachRemaining(row -> map.put(row.get(0).row(), row));
+        return idx -> map.getOrDefault(idx, List.of());
     }
 }
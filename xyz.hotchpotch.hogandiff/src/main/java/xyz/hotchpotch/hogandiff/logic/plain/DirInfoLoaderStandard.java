@@ -31,6 +31,7 @@ public class DirInfoLoaderStandard implements DirInfoLoader {
     private static final Set<String> handleableExtensions = Set.of(
             BookType.XLSX.extension(),
             BookType.XLSM.extension(),
+            BookType.XLSB.extension(),
             BookType.XLS.extension());
     
     private static boolean isHandleableExcelBook(Path path) {
@@ -0,0 +1,530 @@
+package xyz.hotchpotch.hogandiff.logic.plain;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import xyz.hotchpotch.hogandiff.logic.CellData;
+
+/**
+ * 保持するセルデータの推定サイズがヒープ予算を超えた時点で、
+ * それまでに追加されたセルデータのブロックを作業用フォルダ配下の一時ファイルに退避するセルセットです。<br>
+ * 巨大なシートの比較において、メモリ不足で処理を中断する代わりにディスクの速度まで性能を落として処理を継続するために利用します。<br>
+ * <br>
+ * 退避したブロックは、行優先の順序と列優先の順序の双方で一時ファイルに書き出されます。
+ * {@link #rows(Set)}, {@link #columns(Set)} は、退避したブロックとヒープ上のセルデータを併合しながら
+ * 行ごと・列ごとのセルデータを順に返すため、シート全体をヒープ上に展開する必要がありません。<br>
+ * <br>
+ * 一時ファイルへの退避後は、同じセルデータの重複した追加を検出しません。
+ * また、このセットはセルデータの追加のみをサポートし、削除はサポートしません。
+ * セルデータの追加はスレッドセーフではありませんが、追加を終えた後の参照はスレッドセーフです。<br>
+ * 一時ファイルはこのセットが不要になった時点で削除されます。<br>
+ *
+ * @author nmby
+ */
+public final class SpillableCellsSet extends AbstractSet<CellData> {
+    
+    // [static members] ********************************************************
+    
+    private static final int CHUNK_SIZE = 64 * 1024;
+    
+    private static final Cleaner cleaner = Cleaner.create();
+    
+    private static final Comparator<CellData> rowMajor = Comparator
+            .comparingInt(CellData::row)
+            .thenComparingInt(CellData::column);
+    
+    private static final Comparator<CellData> columnMajor = Comparator
+            .comparingInt(CellData::column)
+            .thenComparingInt(CellData::row);
+    
+    /**
+     * 一時ファイルに退避したブロックを表す不変クラスです。<br>
+     *
+     * @author nmby
+     * @param offset ブロックの開始位置（バイト）
+     * @param count  ブロックに含まれるセルデータの数
+     */
+    private static record Block(long offset, int count) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 退避先の一時ファイルを表します。<br>
+     * 一時ファイルはチャネルを閉じた時点で削除されます。<br>
+     *
+     * @author nmby
+     */
+    private static class SpillFile {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final FileChannel channel;
+        private final List<Block> blocks = new ArrayList<>();
+        
+        private SpillFile(Path workDir) throws IOException {
+            assert workDir != null;
+            
+            Files.createDirectories(workDir);
+            Path tmp = Files.createTempFile(workDir, "cells-", ".tmp");
+            channel = FileChannel.open(tmp,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        
+        /**
+         * 指定された順序に並べ替えたセルデータを、新たなブロックとして書き出します。<br>
+         *
+         * @param cells 並べ替え済みのセルデータ
+         * @throws IOException 入出力エラーが発生した場合
+         */
+        private void write(CellData[] cells) throws IOException {
+            long offset = channel.size();
+            ByteBuffer buf = ByteBuffer.allocate(CHUNK_SIZE);
+            
+            for (CellData cell : cells) {
+                byte[] content = cell.content().getBytes(StandardCharsets.UTF_8);
+                byte[] comment = cell.comment() == null ? null : cell.comment().getBytes(StandardCharsets.UTF_8);
+                int len = 16 + content.length + (comment == null ? 0 : comment.length);
+                
+                if (buf.remaining() < len) {
+                    flush(buf);
+                    if (buf.capacity() < len) {
+                        buf = ByteBuffer.allocate(len);
+                    }
+                }
+                buf.putInt(cell.row());
+                buf.putInt(cell.column());
+                buf.putInt(content.length);
+                buf.put(content);
+                buf.putInt(comment == null ? -1 : comment.length);
+                if (comment != null) {
+                    buf.put(comment);
+                }
+            }
+            flush(buf);
+            blocks.add(new Block(offset, cells.length));
+        }
+        
+        private void flush(ByteBuffer buf) throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf, channel.size());
+            }
+            buf.clear();
+        }
+        
+        /**
+         * 指定されたブロックのセルデータを順に返すイテレータを返します。<br>
+         *
+         * @param block ブロック
+         * @return セルデータのイテレータ
+         */
+        private Iterator<CellData> read(Block block) {
+            assert block != null;
+            
+            // 複数のイテレータが位置を共有しないよう、位置指定の読み取りを用いる。
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new InputStream() {
+                private long pos = block.offset;
+                
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+                }
+                
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = channel.read(ByteBuffer.wrap(b, off, len), pos);
+                    if (0 < n) {
+                        pos += n;
+                    }
+                    return n;
+                }
+            }, CHUNK_SIZE));
+            
+            return new Iterator<>() {
+                private int remaining = block.count;
+                
+                @Override
+                public boolean hasNext() {
+                    return 0 < remaining;
+                }
+                
+                @Override
+                public CellData next() {
+                    if (remaining == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        int row = in.readInt();
+                        int column = in.readInt();
+                        String content = readString(in, in.readInt());
+                        String comment = readString(in, in.readInt());
+                        remaining--;
+                        return new CellData(row, column, content, comment);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+        }
+        
+        private static String readString(DataInputStream in, int len) throws IOException {
+            if (len < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[len];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * 複数の整列済みイテレータを併合して、全体として整列した順にセルデータを返すイテレータです。<br>
+     *
+     * @author nmby
+     */
+    private static class MergingIterator implements Iterator<CellData> {
+        
+        // [static members] ----------------------------------------------------
+        
+        private static record Head(CellData cell, Iterator<CellData> source) {
+            
+            // [static members] ------------------------------------------------
+            
+            // [instance members] ----------------------------------------------
+        }
+        
+        // [instance members] --------------------------------------------------
+        
+        /** 一時ファイルが途中で削除されないよう、セットへの参照を保持する。 */
+        @SuppressWarnings("unused")
+        private final Set<CellData> owner;
+        private final PriorityQueue<Head> heads;
+        
+        private MergingIterator(
+                Set<CellData> owner,
+                List<Iterator<CellData>> sources,
+                Comparator<CellData> order) {
+            
+            assert owner != null;
+            assert sources != null;
+            assert order != null;
+            
+            this.owner = owner;
+            this.heads = new PriorityQueue<>(
+                    Math.max(1, sources.size()),
+                    Comparator.comparing(Head::cell, order));
+            
+            sources.stream()
+                    .filter(Iterator::hasNext)
+                    .forEach(source -> heads.add(new Head(source.next(), source)));
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+        
+        @Override
+        public CellData next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.source.hasNext()) {
+                heads.add(new Head(head.source.next(), head.source));
+            }
+            return head.cell;
+        }
+    }
+    
+    /**
+     * 整列済みのセルデータを、指定されたインデックスごとのリストにまとめて返すイテレータです。<br>
+     *
+     * @author nmby
+     */
+    private static class GroupingIterator implements Iterator<List<CellData>> {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final Iterator<CellData> cells;
+        private final ToIntFunction<CellData> key;
+        private CellData next;
+        
+        private GroupingIterator(Iterator<CellData> cells, ToIntFunction<CellData> key) {
+            assert cells != null;
+            assert key != null;
+            
+            this.cells = cells;
+            this.key = key;
+            this.next = cells.hasNext() ? cells.next() : null;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public List<CellData> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            int idx = key.applyAsInt(next);
+            List<CellData> group = new ArrayList<>();
+            
+            while (next != null && key.applyAsInt(next) == idx) {
+                group.add(next);
+                next = cells.hasNext() ? cells.next() : null;
+            }
+            return group;
+        }
+    }
+    
+    /**
+     * 指定されたセルセットのセルデータを、行インデックスの昇順に行ごとのリストにまとめて返します。<br>
+     * 各リストには、同じ行のセルデータが列インデックスの昇順に格納されています。
+     * セルデータを含まない行のリストは返されません。<br>
+     * 指定されたセルセットが {@link SpillableCellsSet} の場合は、
+     * 一時ファイルに退避したブロックを順に読み取りながら返します。<br>
+     *
+     * @param cells セルセット
+     * @return 行ごとのセルデータのリストのイテレータ
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static Iterator<List<CellData>> rows(Set<CellData> cells) {
+        Objects.requireNonNull(cells);
+        
+        return new GroupingIterator(sorted(cells, rowMajor), CellData::row);
+    }
+    
+    /**
+     * 指定されたセルセットのセルデータを、列インデックスの昇順に列ごとのリストにまとめて返します。<br>
+     * 各リストには、同じ列のセルデータが行インデックスの昇順に格納されています。
+     * セルデータを含まない列のリストは返されません。<br>
+     * 指定されたセルセットが {@link SpillableCellsSet} の場合は、
+     * 一時ファイルに退避したブロックを順に読み取りながら返します。<br>
+     *
+     * @param cells セルセット
+     * @return 列ごとのセルデータのリストのイテレータ
+     * @throws NullPointerException パラメータが {@code null} の場合
+     */
+    public static Iterator<List<CellData>> columns(Set<CellData> cells) {
+        Objects.requireNonNull(cells);
+        
+        return new GroupingIterator(sorted(cells, columnMajor), CellData::column);
+    }
+    
+    private static Iterator<CellData> sorted(Set<CellData> cells, Comparator<CellData> order) {
+        assert cells != null;
+        assert order != null;
+        
+        if (cells instanceof SpillableCellsSet spillable) {
+            return spillable.sorted(order);
+        }
+        CellData[] array = cells.toArray(CellData[]::new);
+        Arrays.sort(array, order);
+        return Arrays.asList(array).iterator();
+    }
+    
+    /**
+     * セルデータがヒープ上で占めるおおよそのバイト数を返します。<br>
+     * セットのエントリ、レコード、文字列とその配列の大きさを見込み、文字は2バイトとして概算します。<br>
+     *
+     * @param cell セルデータ
+     * @return おおよそのバイト数
+     */
+    private static long estimatedSize(CellData cell) {
+        long size = 96 + 2L * cell.content().length();
+        if (cell.comment() != null) {
+            size += 40 + 2L * cell.comment().length();
+        }
+        return size;
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final Path workDir;
+    private final long heapBudget;
+    private final Set<CellData> heap = new HashSet<>();
+    
+    private long heapSize;
+    private int spilledCount;
+    private SpillFile rowsFile;
+    private SpillFile columnsFile;
+    
+    /**
+     * 新たな空のセルセットを生成します。<br>
+     *
+     * @param workDir    一時ファイルの作成場所
+     * @param heapBudget ヒープ上に保持するセルデータの推定サイズの上限（バイト）
+     * @throws NullPointerException     {@code workDir} が {@code null} の場合
+     * @throws IllegalArgumentException {@code heapBudget} が 0 以下の場合
+     */
+    public SpillableCellsSet(Path workDir, long heapBudget) {
+        Objects.requireNonNull(workDir);
+        if (heapBudget <= 0) {
+            throw new IllegalArgumentException("heapBudget: " + heapBudget);
+        }
+        
+        this.workDir = workDir;
+        this.heapBudget = heapBudget;
+    }
+    
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException {@code cell} が {@code null} の場合
+     * @throws UncheckedIOException 一時ファイルへの退避に失敗した場合
+     */
+    @Override
+    public boolean add(CellData cell) {
+        Objects.requireNonNull(cell);
+        
+        if (!heap.add(cell)) {
+            return false;
+        }
+        heapSize += estimatedSize(cell);
+        if (heapBudget < heapSize) {
+            spill();
+        }
+        return true;
+    }
+    
+    private void spill() {
+        try {
+            if (rowsFile == null) {
+                rowsFile = new SpillFile(workDir);
+                columnsFile = new SpillFile(workDir);
+                
+                FileChannel rowsChannel = rowsFile.channel;
+                FileChannel columnsChannel = columnsFile.channel;
+                cleaner.register(this, () -> {
+                    try {
+                        rowsChannel.close();
+                        columnsChannel.close();
+                    } catch (IOException e) {
+                        // nop
+                    }
+                });
+            }
+            
+            CellData[] cells = heap.toArray(CellData[]::new);
+            Arrays.sort(cells, rowMajor);
+            rowsFile.write(cells);
+            Arrays.sort(cells, columnMajor);
+            columnsFile.write(cells);
+            
+            spilledCount += cells.length;
+            heap.clear();
+            heapSize = 0;
+            
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * 一時ファイルへの退避を行ったかを返します。<br>
+     *
+     * @return 一時ファイルへの退避を行った場合は {@code true}
+     */
+    public boolean isSpilled() {
+        return rowsFile != null;
+    }
+    
+    @Override
+    public int size() {
+        return spilledCount + heap.size();
+    }
+    
+    /**
+     * {@inheritDoc}
+     *
+     * <br>
+     * 一時ファイルへの退避後は、退避したブロックを順に読み取った後にヒープ上のセルデータを返します。<br>
+     */
+    @Override
+    public Iterator<CellData> iterator() {
+        Iterator<CellData> onHeap = Collections.unmodifiableSet(heap).iterator();
+        if (rowsFile == null) {
+            return onHeap;
+        }
+        
+        List<Iterator<CellData>> sources = new ArrayList<>();
+        rowsFile.blocks.forEach(block -> sources.add(rowsFile.read(block)));
+        sources.add(onHeap);
+        
+        return new Iterator<>() {
+            /** 一時ファイルが途中で削除されないよう、セットへの参照を保持する。 */
+            @SuppressWarnings("unused")
+            private final Set<CellData> owner = SpillableCellsSet.this;
+            private int idx = 0;
+            
+            @Override
+            public boolean hasNext() {
+                while (idx < sources.size() && !sources.get(idx).hasNext()) {
+                    idx++;
+                }
+                return idx < sources.size();
+            }
+            
+            @Override
+            public CellData next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return sources.get(idx).next();
+            }
+        };
+    }
+    
+    private Iterator<CellData> sorted(Comparator<CellData> order) {
+        assert order == rowMajor || order == columnMajor;
+        
+        CellData[] onHeap = heap.toArray(CellData[]::new);
+        Arrays.sort(onHeap, order);
+        if (rowsFile == null) {
+            return Arrays.asList(onHeap).iterator();
+        }
+        
+        SpillFile file = order == rowMajor ? rowsFile : columnsFile;
+        List<Iterator<CellData>> sources = new ArrayList<>();
+        file.blocks.forEach(block -> sources.add(file.read(block)));
+        sources.add(Arrays.asList(onHeap).iterator());
+        
+        return new MergingIterator(this, sources, order);
+    }
+}
@@ -1,7 +1,9 @@
 package xyz.hotchpotch.hogandiff.logic.plain.matchers;
 
 import java.util.List;
+import java.util.Objects;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.logic.DirInfo;
 import xyz.hotchpotch.hogandiff.util.Pair;
 
@@ -35,4 +37,24 @@ public interface DirInfosMatcher {
      * @return フォルダ同士の組み合わせを表すリスト
      */
     public List<Pair<DirInfo>> pairingDirs(Pair<DirInfo> topDirInfos);
+    
+    /**
+     * 指定された打ち切り条件のもとで、
+     * フォルダツリーに含まれるフォルダ同士の組み合わせを決定して返します。<br>
+     * <br>
+     * このデフォルト実装は、処理の開始前に一度だけ打ち切り条件を確認したのち
+     * {@link #pairingDirs(Pair)} を呼び出します。<br>
+     * 
+     * @param topDirInfos トップフォルダ
+     * @param budget 打ち切り条件
+     * @return フォルダ同士の組み合わせを表すリスト
+     * @throws NullPointerException {@code budget} が {@code null} の場合
+     * @throws java.util.concurrent.CancellationException 中断が要求された場合
+     */
+    public default List<Pair<DirInfo>> pairingDirs(Pair<DirInfo> topDirInfos, MatchBudget budget) {
+        Objects.requireNonNull(budget);
+        
+        budget.checkpoint();
+        return pairingDirs(topDirInfos);
+    }
 }
@@ -1,18 +1,23 @@
 package xyz.hotchpotch.hogandiff.logic.plain.matchers;
 
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.function.ToIntFunction;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.plain.SpillableCellsSet;
 import xyz.hotchpotch.hogandiff.util.IntPair;
 import xyz.hotchpotch.hogandiff.util.Pair;
 
 /**
  * 行方向または列方向の対応付けを行うマッチャーを表します。<br>
  * 既に決定済みの横方向の対応付けを加味することにより、縦方向の対応付けを精度高く行うことを目指したマッチャーです。<br>
- * これは、{@link #makePairs(Pair, List)} を関数メソッドに持つ関数型インタフェースです。<br>
+ * これは、{@link #makePairs(Pair, List, MatchBudget)} を関数メソッドに持つ関数型インタフェースです。<br>
  * 
  * @author nmby
  */
@@ -26,17 +31,21 @@ import xyz.hotchpotch.hogandiff.util.Pair;
      * 
      * @param vertical        縦方向のインデックス抽出関数
      * @param horizontal      横方向のインデックス抽出関数
+     * @param verticalGroups  セルセットを縦インデックスの昇順に横方向のリストにまとめる関数
      * @param considerVGaps   縦方向の挿入／削除を考慮する場合は {@code true}
      * @param considerHGaps   横方向の挿入／削除を考慮する場合は {@code true}
      * @param prioritizeSpeed 比較処理の速度を優先する場合は {@code true}
+     * @param pool            並列処理に用いるスレッドプール
      * @return 縦方向の対応付けを行うマッチャー
      */
     private static ItemMatcher matcherOf(
             ToIntFunction<CellData> vertical,
             ToIntFunction<CellData> horizontal,
+            Function<Set<CellData>, Iterator<List<CellData>>> verticalGroups,
             boolean considerVGaps,
             boolean considerHGaps,
-            boolean prioritizeSpeed) {
+            boolean prioritizeSpeed,
+            ForkJoinPool pool) {
         
         if (!considerVGaps) {
             return new ItemMatcherImpl0(vertical);
@@ -50,11 +59,15 @@ import xyz.hotchpotch.hogandiff.util.Pair;
                 ? new ItemMatcherImpl1(
                         vertical,
                         horizontal,
-                        horizontalComparator)
+                        verticalGroups,
+                        horizontalComparator,
+                        pool)
                 : new ItemMatcherImpl2(
                         vertical,
                         horizontal,
-                        horizontalComparator);
+                        verticalGroups,
+                        horizontalComparator,
+                        pool);
     }
     
     /**
@@ -63,19 +76,23 @@ import xyz.hotchpotch.hogandiff.util.Pair;
      * @param considerRowGaps    行の挿入／削除を考慮する場合は {@code true}
      * @param considerColumnGaps 列の挿入／削除を考慮する場合は {@code true}
      * @param prioritizeSpeed    比較処理の速度を優先する場合は {@code true}
+     * @param pool               並列処理に用いるスレッドプール
      * @return 行同士の対応付けを行うマッチャー
      */
     public static ItemMatcher rowsMatcherOf(
             boolean considerRowGaps,
             boolean considerColumnGaps,
-            boolean prioritizeSpeed) {
+            boolean prioritizeSpeed,
+            ForkJoinPool pool) {
         
         return matcherOf(
                 CellData::row,
                 CellData::column,
+                SpillableCellsSet::rows,
                 considerRowGaps,
                 considerColumnGaps,
-                prioritizeSpeed);
+                prioritizeSpeed,
+                pool);
     }
     
     /**
@@ -84,19 +101,23 @@ import xyz.hotchpotch.hogandiff.util.Pair;
      * @param considerRowGaps    行の挿入／削除を考慮する場合は {@code true}
      * @param considerColumnGaps 列の挿入／削除を考慮する場合は {@code true}
      * @param prioritizeSpeed    比較処理の速度を優先する場合は {@code true}
+     * @param pool               並列処理に用いるスレッドプール
      * @return 行同士の対応付けを行うマッチャー
      */
     public static ItemMatcher columnsMatcherOf(
             boolean considerRowGaps,
             boolean considerColumnGaps,
-            boolean prioritizeSpeed) {
+            boolean prioritizeSpeed,
+            ForkJoinPool pool) {
         
         return matcherOf(
                 CellData::column,
                 CellData::row,
+                SpillableCellsSet::columns,
                 considerColumnGaps,
                 considerRowGaps,
-                prioritizeSpeed);
+                prioritizeSpeed,
+                pool);
     }
     
     // [instance members] ******************************************************
@@ -106,9 +127,11 @@ import xyz.hotchpotch.hogandiff.util.Pair;
      * 
      * @param cellsSetPair    比較対象シートのセルセット
      * @param horizontalPairs 既に決定済みの横方向の対応付け
+     * @param budget          打ち切り条件
      * @return 縦方向の対応付け
      */
     List<IntPair> makePairs(
             Pair<Set<CellData>> cellsSetPair,
-            List<IntPair> horizontalPairs);
+            List<IntPair> horizontalPairs,
+            MatchBudget budget);
 }
@@ -1,11 +1,13 @@
 package xyz.hotchpotch.hogandiff.logic.plain.matchers;
 
+import java.util.IntSummaryStatistics;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.ToIntFunction;
 import java.util.stream.IntStream;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.logic.CellData;
 import xyz.hotchpotch.hogandiff.util.IntPair;
 import xyz.hotchpotch.hogandiff.util.Pair;
@@ -43,14 +45,18 @@ import xyz.hotchpotch.hogandiff.util.Pair;
     @Override
     public List<IntPair> makePairs(
             Pair<Set<CellData>> cellsSetPair,
-            List<IntPair> horizontalPairs) {
+            List<IntPair> horizontalPairs,
+            MatchBudget budget) {
         
         Objects.requireNonNull(cellsSetPair);
         
-        int min1 = cellsSetPair.a().parallelStream().mapToInt(vertical).min().orElse(0);
-        int max1 = cellsSetPair.a().parallelStream().mapToInt(vertical).max().orElse(0);
-        int min2 = cellsSetPair.b().parallelStream().mapToInt(vertical).min().orElse(0);
-        int max2 = cellsSetPair.b().parallelStream().mapToInt(vertical).max().orElse(0);
+        // 一時ファイルに退避されたセルセットを何度も読み取らないよう、最小値と最大値を一度に求める。
+        Pair<IntSummaryStatistics> stats = cellsSetPair.map(
+                cells -> cells.parallelStream().mapToInt(vertical).summaryStatistics());
+        int min1 = stats.a().getCount() == 0 ? 0 : stats.a().getMin();
+        int max1 = stats.a().getCount() == 0 ? 0 : stats.a().getMax();
+        int min2 = stats.b().getCount() == 0 ? 0 : stats.b().getMin();
+        int max2 = stats.b().getCount() == 0 ? 0 : stats.b().getMax();
         
         return IntStream.rangeClosed(Math.min(min1, min2), Math.max(max1, max2))
                 .mapToObj(n -> IntPair.of(n, n))
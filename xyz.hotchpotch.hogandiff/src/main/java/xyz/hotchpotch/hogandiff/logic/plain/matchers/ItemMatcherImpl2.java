@@ -1,17 +1,22 @@
 package xyz.hotchpotch.hogandiff.logic.plain.matchers;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.function.ToIntBiFunction;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.core.Matcher;
 import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.plain.SpillableCellsSet;
 import xyz.hotchpotch.hogandiff.util.IntPair;
 import xyz.hotchpotch.hogandiff.util.Pair;
 import xyz.hotchpotch.hogandiff.util.Pair.Side;
@@ -31,40 +36,55 @@ public class ItemMatcherImpl2 implements ItemMatcher {
     
     private final ToIntFunction<CellData> vertical;
     private final ToIntFunction<CellData> horizontal;
+    private final Function<Set<CellData>, Iterator<List<CellData>>> verticalGroups;
     private final Comparator<CellData> horizontalComparator;
+    private final ForkJoinPool pool;
     
     /**
      * コンストラクタ
      * 
      * @param vertical             縦インデックス抽出関数
      * @param horizontal           横インデックス抽出関数
+     * @param verticalGroups       セルセットを縦インデックスの昇順に横方向のリストにまとめる関数
      * @param horizontalComparator 横方向比較関数
+     * @param pool                 並列処理に用いるスレッドプール
      */
     /* package */ ItemMatcherImpl2(
             ToIntFunction<CellData> vertical,
             ToIntFunction<CellData> horizontal,
-            Comparator<CellData> horizontalComparator) {
+            Function<Set<CellData>, Iterator<List<CellData>>> verticalGroups,
+            Comparator<CellData> horizontalComparator,
+            ForkJoinPool pool) {
         
         assert vertical != null;
         assert horizontal != null;
+        assert verticalGroups != null;
         assert horizontalComparator != null;
+        assert pool != null;
         
         this.vertical = vertical;
         this.horizontal = horizontal;
+        this.verticalGroups = verticalGroups;
         this.horizontalComparator = horizontalComparator;
+        this.pool = pool;
     }
     
     /**
      * {@inheritDoc}
      * 
-     * @throws NullPointerException {@code cellsSetPair} が {@code null} の場合
+     * <br>
+     * 制限時間を超過した場合は、縦インデックスの順に単純に対応付けた近似結果を返します。<br>
+     * 
+     * @throws NullPointerException {@code cellsSetPair}, {@code budget} のいずれかが {@code null} の場合
      */
     @Override
     public List<IntPair> makePairs(
             Pair<Set<CellData>> cellsSetPair,
-            List<IntPair> horizontalPairs) {
+            List<IntPair> horizontalPairs,
+            MatchBudget budget) {
         
         Objects.requireNonNull(cellsSetPair);
+        Objects.requireNonNull(budget);
         
         Pair<Set<Integer>> horizontalRedundants = horizontalPairs == null
                 ? new Pair<>(Set.of(), Set.of())
@@ -79,16 +99,21 @@ public class ItemMatcherImpl2 implements ItemMatcher {
         double[] weightsA = weights(cellsSetPair.a(), horizontalRedundants.a());
         double[] weightsB = weights(cellsSetPair.b(), horizontalRedundants.b());
         
-        Matcher<List<CellData>> matcher = Matcher.minimumEditDistanceMatcherOf(
-                gapEvaluator(weightsA),
-                gapEvaluator(weightsB),
-                diffEvaluator(weightsA, weightsB));
+        Matcher<List<CellData>> matcher = Matcher.fallbackMatcherOf(
+                Matcher.bandedMinimumEditDistanceMatcherOf(
+                        gapEvaluator(weightsA),
+                        gapEvaluator(weightsB),
+                        diffEvaluator(weightsA, weightsB),
+                        pool),
+                Matcher.simpleMatcherOf());
         
-        return matcher.makeIdxPairs(listA, listB);
+        return matcher.makeIdxPairs(listA, listB, budget);
     }
     
     /**
      * セルセットを横方向リストを要素に持つ縦方向リストに変換します。<br>
+     * セルセットは縦インデックスの順に読み取るため、一時ファイルに退避された
+     * {@link SpillableCellsSet} であってもセル全体を一度にグループ化することはありません。<br>
      * 
      * @param cells                セルセット
      * @param horizontalRedundants 横方向の余剰インデックス
@@ -101,23 +126,28 @@ public class ItemMatcherImpl2 implements ItemMatcher {
         assert cells != null;
         assert horizontalRedundants != null;
         
-        Map<Integer, List<CellData>> map = cells.parallelStream()
-                .filter(cell -> !horizontalRedundants.contains(horizontal.applyAsInt(cell)))
-                .collect(Collectors.groupingBy(vertical::applyAsInt));
-        
-        int max = map.keySet().stream().mapToInt(n -> n).max().orElse(0);
-        
-        return IntStream.rangeClosed(0, max).parallel()
-                .mapToObj(i -> {
-                    if (map.containsKey(i)) {
-                        List<CellData> list = map.get(i);
-                        list.sort(horizontalComparator);
-                        return list;
-                    } else {
-                        return List.<CellData> of();
-                    }
-                })
-                .toList();
+        List<List<CellData>> lists = new ArrayList<>();
+        Iterator<List<CellData>> groups = verticalGroups.apply(cells);
+        
+        while (groups.hasNext()) {
+            List<CellData> list = groups.next();
+            int idx = vertical.applyAsInt(list.get(0));
+            
+            list.removeIf(cell -> horizontalRedundants.contains(horizontal.applyAsInt(cell)));
+            if (list.isEmpty()) {
+                continue;
+            }
+            list.sort(horizontalComparator);
+            
+            while (lists.size() < idx) {
+                lists.add(List.of());
+            }
+            lists.add(list);
+        }
+        if (lists.isEmpty()) {
+            lists.add(List.of());
+        }
+        return lists;
     }
     
     /**
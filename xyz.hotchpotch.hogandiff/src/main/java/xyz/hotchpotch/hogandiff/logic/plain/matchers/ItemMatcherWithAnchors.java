@@ -0,0 +1,269 @@
+package xyz.hotchpotch.hogandiff.logic.plain.matchers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.util.IntPair;
+import xyz.hotchpotch.hogandiff.util.Pair;
+import xyz.hotchpotch.hogandiff.util.Pair.Side;
+
+/**
+ * 既に対応付けが確定している縦インデックスの組（アンカー）を固定し、
+ * アンカー同士の間の範囲ごとに {@link ItemMatcher} で縦方向の対応付けを行うマッチャーです。<br>
+ * 前回の比較から一部のセルだけを修正したシートを再比較する場合に、
+ * 変更の無い行・列をアンカーとすることで、対応付けの範囲を変更箇所の周辺のみに限定します。<br>
+ *
+ * @author nmby
+ */
+/* package */ final class ItemMatcherWithAnchors {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * 行同士の対応付けを行う {@link ItemMatcher} をアンカー付きで利用するためのマッチャーを返します。<br>
+     *
+     * @param matcher 行同士の対応付けを行うマッチャー
+     * @return アンカー付きのマッチャー
+     */
+    public static ItemMatcherWithAnchors rowsMatcherOf(ItemMatcher matcher) {
+        assert matcher != null;
+        
+        return new ItemMatcherWithAnchors(
+                matcher,
+                CellData::row,
+                (cell, idx) -> new CellData(idx, cell.column(), cell.content(), cell.comment()));
+    }
+    
+    /**
+     * 列同士の対応付けを行う {@link ItemMatcher} をアンカー付きで利用するためのマッチャーを返します。<br>
+     *
+     * @param matcher 列同士の対応付けを行うマッチャー
+     * @return アンカー付きのマッチャー
+     */
+    public static ItemMatcherWithAnchors columnsMatcherOf(ItemMatcher matcher) {
+        assert matcher != null;
+        
+        return new ItemMatcherWithAnchors(
+                matcher,
+                CellData::column,
+                (cell, idx) -> new CellData(cell.row(), idx, cell.content(), cell.comment()));
+    }
+    
+    /**
+     * セルデータの縦インデックスを付け替える関数を表します。<br>
+     *
+     * @author nmby
+     */
+    @FunctionalInterface
+    private static interface Relocator {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        CellData relocate(CellData cell, int idx);
+    }
+    
+    /**
+     * アンカーのうち、両側とも縦インデックスが狭義単調増加となるものを先頭から順に抽出します。<br>
+     *
+     * @param anchors アンカー
+     * @return 抽出したアンカー
+     */
+    private static List<IntPair> increasingAnchors(List<IntPair> anchors) {
+        List<IntPair> result = new ArrayList<>();
+        int lastA = -1;
+        int lastB = -1;
+        
+        for (IntPair anchor : anchors) {
+            if (anchor.isPaired() && lastA < anchor.a() && lastB < anchor.b()) {
+                result.add(anchor);
+                lastA = anchor.a();
+                lastB = anchor.b();
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 縦インデックスの範囲の一方が空の場合や双方にセルが無い場合の対応付けとして、
+     * 範囲の先頭から順に対応付け、余った側を余剰とした組を追加します。<br>
+     */
+    private static void addSequentially(
+            List<IntPair> pairs,
+            int startA,
+            int endA,
+            int startB,
+            int endB) {
+        
+        int a = startA;
+        int b = startB;
+        while (a <= endA && b <= endB) {
+            pairs.add(IntPair.of(a++, b++));
+        }
+        while (a <= endA) {
+            pairs.add(IntPair.onlyA(a++));
+        }
+        while (b <= endB) {
+            pairs.add(IntPair.onlyB(b++));
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final ItemMatcher matcher;
+    private final ToIntFunction<CellData> vertical;
+    private final Relocator relocator;
+    
+    private ItemMatcherWithAnchors(
+            ItemMatcher matcher,
+            ToIntFunction<CellData> vertical,
+            Relocator relocator) {
+        
+        assert matcher != null;
+        assert vertical != null;
+        assert relocator != null;
+        
+        this.matcher = matcher;
+        this.vertical = vertical;
+        this.relocator = relocator;
+    }
+    
+    /**
+     * アンカーを固定して縦方向の対応付けを行い、結果を返します。<br>
+     * アンカーが指定されない場合や、縦方向の挿入／削除を考慮しない場合は、
+     * 元のマッチャーでシート全体の対応付けを行います。<br>
+     *
+     * @param cellsSetPair    比較対象シートのセルセット
+     * @param horizontalPairs 既に決定済みの横方向の対応付け
+     * @param anchors         アンカー（{@code null} 許容）
+     * @param budget          打ち切り条件
+     * @return 縦方向の対応付け
+     */
+    public List<IntPair> makePairs(
+            Pair<Set<CellData>> cellsSetPair,
+            List<IntPair> horizontalPairs,
+            List<IntPair> anchors,
+            MatchBudget budget) {
+        
+        assert cellsSetPair != null;
+        assert budget != null;
+        
+        List<IntPair> fixed = anchors == null || matcher instanceof ItemMatcherImpl0
+                ? List.of()
+                : increasingAnchors(anchors);
+        
+        if (fixed.isEmpty()) {
+            return matcher.makePairs(cellsSetPair, horizontalPairs, budget);
+        }
+        
+        Pair<int[]> anchorIdxs = Side.map(side -> fixed.stream().mapToInt(anchor -> anchor.get(side)).toArray());
+        Pair<List<Set<CellData>>> segmentsPair = Side.map(side -> split(cellsSetPair.get(side), anchorIdxs.get(side)));
+        Pair<Integer> maxIdxs = cellsSetPair.map(cells -> cells.stream().mapToInt(vertical).max().orElse(-1));
+        
+        List<IntPair> pairs = new ArrayList<>();
+        
+        for (int k = 0; k <= fixed.size(); k++) {
+            budget.checkCancelled();
+            
+            int startA = k == 0 ? 0 : anchorIdxs.a()[k - 1] + 1;
+            int startB = k == 0 ? 0 : anchorIdxs.b()[k - 1] + 1;
+            int endA = k < fixed.size() ? anchorIdxs.a()[k] - 1 : maxIdxs.a();
+            int endB = k < fixed.size() ? anchorIdxs.b()[k] - 1 : maxIdxs.b();
+            
+            matchSegment(
+                    pairs,
+                    new Pair<>(segmentsPair.a().get(k), segmentsPair.b().get(k)),
+                    startA, endA, startB, endB,
+                    horizontalPairs,
+                    budget);
+            
+            if (k < fixed.size()) {
+                pairs.add(fixed.get(k));
+            }
+        }
+        
+        return pairs;
+    }
+    
+    /**
+     * セルセットをアンカーで区切られた範囲ごとに分割し、
+     * 各範囲の先頭を 0 とする縦インデックスに付け替えたセルセットのリストを返します。<br>
+     * アンカーの縦インデックスに位置するセルは、いずれの範囲にも含めません。<br>
+     *
+     * @param cells      セルセット
+     * @param anchorIdxs アンカーの縦インデックス（昇順）
+     * @return 範囲ごとのセルセット（アンカーの数 + 1 個）
+     */
+    private List<Set<CellData>> split(Set<CellData> cells, int[] anchorIdxs) {
+        assert cells != null;
+        assert anchorIdxs != null;
+        
+        List<Set<CellData>> segments = new ArrayList<>();
+        for (int k = 0; k <= anchorIdxs.length; k++) {
+            segments.add(new HashSet<>());
+        }
+        
+        for (CellData cell : cells) {
+            int idx = vertical.applyAsInt(cell);
+            int pos = Arrays.binarySearch(anchorIdxs, idx);
+            if (0 <= pos) {
+                continue;
+            }
+            int k = -pos - 1;
+            int start = k == 0 ? 0 : anchorIdxs[k - 1] + 1;
+            segments.get(k).add(relocator.relocate(cell, idx - start));
+        }
+        return segments;
+    }
+    
+    /**
+     * アンカー同士の間の範囲について縦方向の対応付けを行い、
+     * 元の縦インデックスに戻した組を追加します。<br>
+     * 範囲の末尾にあるセルを含まない縦インデックスは、先頭から順に対応付けます。<br>
+     */
+    private void matchSegment(
+            List<IntPair> pairs,
+            Pair<Set<CellData>> segmentPair,
+            int startA,
+            int endA,
+            int startB,
+            int endB,
+            List<IntPair> horizontalPairs,
+            MatchBudget budget) {
+        
+        if (endA < startA || endB < startB
+                || (segmentPair.a().isEmpty() && segmentPair.b().isEmpty())) {
+            addSequentially(pairs, startA, endA, startB, endB);
+            return;
+        }
+        
+        int lastA = startA - 1;
+        int lastB = startB - 1;
+        
+        for (IntPair pair : matcher.makePairs(segmentPair, horizontalPairs, budget)) {
+            int a = pair.hasA() ? pair.a() + startA : -1;
+            int b = pair.hasB() ? pair.b() + startB : -1;
+            boolean hasA = pair.hasA() && a <= endA;
+            boolean hasB = pair.hasB() && b <= endB;
+            
+            if (hasA && hasB) {
+                pairs.add(IntPair.of(a, b));
+            } else if (hasA) {
+                pairs.add(IntPair.onlyA(a));
+            } else if (hasB) {
+                pairs.add(IntPair.onlyB(b));
+            }
+            lastA = hasA ? Math.max(lastA, a) : lastA;
+            lastB = hasB ? Math.max(lastB, b) : lastB;
+        }
+        
+        addSequentially(pairs, lastA + 1, endA, lastB + 1, endB);
+    }
+}
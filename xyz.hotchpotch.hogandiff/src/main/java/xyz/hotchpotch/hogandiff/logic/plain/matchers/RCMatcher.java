@@ -1,15 +1,18 @@
 package xyz.hotchpotch.hogandiff.logic.plain.matchers;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.logic.CellData;
 import xyz.hotchpotch.hogandiff.util.IntPair;
 import xyz.hotchpotch.hogandiff.util.Pair;
 
 /**
  * Excelシート同士の比較を、行同士の比較と列同士の比較によって求めるマッチャーを表します。<br>
- * これは、{@link #make2Pairs(Pair)} を関数メソッドに持つ関数型インタフェースです。<br>
+ * これは、{@link #make2Pairs(Pair, Pair, MatchBudget)} を関数メソッドに持つ関数型インタフェースです。<br>
  * 
  * @author nmby
  */
@@ -31,23 +34,49 @@ public interface RCMatcher {
             boolean considerColumnGaps,
             boolean prioritizeSpeed) {
         
-        ItemMatcher rowsMatcher = ItemMatcher
-                .rowsMatcherOf(considerRowGaps, considerColumnGaps, prioritizeSpeed);
-        ItemMatcher columnsMatcher = ItemMatcher
-                .columnsMatcherOf(considerRowGaps, considerColumnGaps, prioritizeSpeed);
+        return of(considerRowGaps, considerColumnGaps, prioritizeSpeed, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * 新たなマッチャーを返します。<br>
+     * 行同士、列同士の対応付けの並列処理には、指定されたスレッドプールを使用します。<br>
+     * 
+     * @param considerRowGaps    行の挿入／削除を考慮する場合は {@code true}
+     * @param considerColumnGaps 列の挿入／削除を考慮する場合は {@code true}
+     * @param prioritizeSpeed    比較処理の速度を優先する場合は {@code true}
+     * @param pool               並列処理に用いるスレッドプール
+     * @return 新たなマッチャー
+     * @throws NullPointerException {@code pool} が {@code null} の場合
+     */
+    public static RCMatcher of(
+            boolean considerRowGaps,
+            boolean considerColumnGaps,
+            boolean prioritizeSpeed,
+            ForkJoinPool pool) {
+        
+        Objects.requireNonNull(pool);
+        
+        ItemMatcherWithAnchors rowsMatcher = ItemMatcherWithAnchors.rowsMatcherOf(ItemMatcher
+                .rowsMatcherOf(considerRowGaps, considerColumnGaps, prioritizeSpeed, pool));
+        ItemMatcherWithAnchors columnsMatcher = ItemMatcherWithAnchors.columnsMatcherOf(ItemMatcher
+                .columnsMatcherOf(considerRowGaps, considerColumnGaps, prioritizeSpeed, pool));
         
         if (considerRowGaps && considerColumnGaps) {
-            return cellsSetPair -> {
-                List<IntPair> columnPairs = columnsMatcher.makePairs(cellsSetPair, null);
-                List<IntPair> rowPairs = rowsMatcher.makePairs(cellsSetPair, columnPairs);
+            return (cellsSetPair, anchors, budget) -> {
+                List<IntPair> columnPairs = columnsMatcher.makePairs(
+                        cellsSetPair, null, anchors == null ? null : anchors.b(), budget);
+                List<IntPair> rowPairs = rowsMatcher.makePairs(
+                        cellsSetPair, columnPairs, anchors == null ? null : anchors.a(), budget);
                 
                 return new Pair<>(rowPairs, columnPairs);
             };
             
         } else {
-            return cellsSetPair -> {
-                List<IntPair> columnPairs = columnsMatcher.makePairs(cellsSetPair, null);
-                List<IntPair> rowPairs = rowsMatcher.makePairs(cellsSetPair, null);
+            return (cellsSetPair, anchors, budget) -> {
+                List<IntPair> columnPairs = columnsMatcher.makePairs(
+                        cellsSetPair, null, anchors == null ? null : anchors.b(), budget);
+                List<IntPair> rowPairs = rowsMatcher.makePairs(
+                        cellsSetPair, null, anchors == null ? null : anchors.a(), budget);
                 
                 return new Pair<>(rowPairs, columnPairs);
             };
@@ -60,7 +89,24 @@ public interface RCMatcher {
      * 2つのシートに含まれるセルセット同士を比較し、行同士、列同士の対応関係を返します。<br>
      * 
      * @param cellsSetPair 比較対象シートに含まれるセルセット
+     * @param budget       打ち切り条件
+     * @return 行同士、列同士の対応関係
+     */
+    default Pair<List<IntPair>> make2Pairs(Pair<Set<CellData>> cellsSetPair, MatchBudget budget) {
+        return make2Pairs(cellsSetPair, null, budget);
+    }
+    
+    /**
+     * 2つのシートに含まれるセルセット同士を比較し、行同士、列同士の対応関係を返します。<br>
+     * アンカーとして指定された行同士、列同士の対応関係は固定し、アンカー同士の間の範囲のみを対応付けます。<br>
+     * 
+     * @param cellsSetPair 比較対象シートに含まれるセルセット
+     * @param anchors      行同士、列同士のアンカー（{@code null} 許容）
+     * @param budget       打ち切り条件
      * @return 行同士、列同士の対応関係
      */
-    Pair<List<IntPair>> make2Pairs(Pair<Set<CellData>> cellsSetPair);
+    Pair<List<IntPair>> make2Pairs(
+            Pair<Set<CellData>> cellsSetPair,
+            Pair<List<IntPair>> anchors,
+            MatchBudget budget);
 }
@@ -0,0 +1,267 @@
+package xyz.hotchpotch.hogandiff.logic.plain.matchers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToIntBiFunction;
+
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
+import xyz.hotchpotch.hogandiff.core.Matcher;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.util.IntPair;
+import xyz.hotchpotch.hogandiff.util.Pair;
+
+/**
+ * 列の挿入／削除を考慮せずに行の挿入／削除を考慮する場合に、
+ * 両シートの行を先頭から順に読み進めながら、一定の行数のウィンドウの範囲内で行同士の対応付けを行うマッチャーです。<br>
+ * <br>
+ * ウィンドウ内で求めた対応付けのうち、ウィンドウの前半に含まれる最後の内容の等しい行同士の組（アンカー）までを確定させ、
+ * 残りの行は後続の行とともに改めて対応付けます。アンカーが無い場合はウィンドウの前半までを確定させます。<br>
+ * 確定した対応付けは行のセルデータとともに逐次通知するため、シートの長さによらず保持する行はウィンドウの範囲に限られます。
+ * その代わり、ウィンドウを跨ぐ対応付けの最適性は保証しません。<br>
+ * 横方向の要素の重みづけは行いません。<br>
+ *
+ * @author nmby
+ */
+public class RowWindowMatcher {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * 確定した行同士の対応付けを受け取るコールバックです。<br>
+     *
+     * @author nmby
+     */
+    @FunctionalInterface
+    public static interface RowPairConsumer {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        /**
+         * 確定した行同士の対応付けを受け取ります。<br>
+         *
+         * @param rowPair   行同士の対応付け
+         * @param cellsPair 各行に含まれるセル（余剰行の場合、反対側は空のリスト）
+         */
+        void accept(IntPair rowPair, Pair<List<CellData>> cellsPair);
+    }
+    
+    /**
+     * 行ごとのセルのリストを、空の行を補いながら行インデックスの順に返すカーソルです。<br>
+     *
+     * @author nmby
+     */
+    private static class RowCursor {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final Iterator<List<CellData>> rows;
+        private List<CellData> pending;
+        private int nextIdx;
+        
+        private RowCursor(Iterator<List<CellData>> rows) {
+            assert rows != null;
+            
+            this.rows = rows;
+            
+            // 空のシートは空の行がひとつだけあるものとみなす。（ItemMatcherImpl1 に倣う）
+            this.pending = rows.hasNext() ? rows.next() : List.of();
+        }
+        
+        /**
+         * 次の行に含まれるセルを返します。<br>
+         *
+         * @return 次の行に含まれるセル。シートの末尾に達した場合は {@code null}
+         */
+        private List<CellData> next() {
+            if (pending == null) {
+                return null;
+            }
+            nextIdx++;
+            if (pending.isEmpty() || pending.get(0).row() == nextIdx - 1) {
+                List<CellData> row = pending;
+                pending = rows.hasNext() ? rows.next() : null;
+                return row;
+            }
+            return List.of();
+        }
+    }
+    
+    /**
+     * 新たなマッチャーを返します。<br>
+     *
+     * @param windowSize 一度に対応付ける行数
+     * @param pool       並列処理に用いるスレッドプール
+     * @return 新たなマッチャー
+     * @throws NullPointerException     {@code pool} が {@code null} の場合
+     * @throws IllegalArgumentException {@code windowSize} が2未満の場合
+     */
+    public static RowWindowMatcher of(int windowSize, ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("windowSize: " + windowSize);
+        }
+        
+        return new RowWindowMatcher(windowSize, pool);
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final int windowSize;
+    private final ToIntBiFunction<List<CellData>, List<CellData>> diffEvaluator;
+    private final Matcher<List<CellData>> matcher;
+    
+    private RowWindowMatcher(int windowSize, ForkJoinPool pool) {
+        assert 2 <= windowSize;
+        assert pool != null;
+        
+        this.windowSize = windowSize;
+        this.diffEvaluator = ItemMatcherImpl1.diffEvaluator(Comparator.comparingInt(CellData::column));
+        this.matcher = Matcher.fallbackMatcherOf(
+                Matcher.bandedMinimumEditDistanceMatcherOf(
+                        ItemMatcherImpl1.gapEvaluator,
+                        ItemMatcherImpl1.gapEvaluator,
+                        diffEvaluator,
+                        pool),
+                Matcher.simpleMatcherOf());
+    }
+    
+    /**
+     * 両シートの行を先頭から順に読み進めながら行同士の対応付けを行い、
+     * 確定した対応付けを行の順に {@code consumer} に通知します。<br>
+     * 制限時間を超過した場合は、以降のウィンドウを行インデックスの順に単純に対応付けます。<br>
+     *
+     * @param rowsPair 各シートの行ごとのセルのリスト（行インデックスの昇順であること）
+     * @param budget   打ち切り条件
+     * @param consumer 確定した対応付けを受け取るコールバック
+     * @throws NullPointerException パラメータが {@code null} の場合
+     * @throws java.util.concurrent.CancellationException 中断が要求された場合
+     */
+    public void matchRows(
+            Pair<Iterator<List<CellData>>> rowsPair,
+            MatchBudget budget,
+            RowPairConsumer consumer) {
+        
+        Objects.requireNonNull(rowsPair);
+        Objects.requireNonNull(budget);
+        Objects.requireNonNull(consumer);
+        
+        RowCursor cursorA = new RowCursor(rowsPair.a());
+        RowCursor cursorB = new RowCursor(rowsPair.b());
+        List<List<CellData>> windowA = new ArrayList<>(windowSize);
+        List<List<CellData>> windowB = new ArrayList<>(windowSize);
+        int baseA = 0;
+        int baseB = 0;
+        
+        while (true) {
+            boolean endA = fill(windowA, cursorA);
+            boolean endB = fill(windowB, cursorB);
+            if (windowA.isEmpty() && windowB.isEmpty()) {
+                return;
+            }
+            
+            List<IntPair> pairs = matcher.makeIdxPairs(windowA, windowB, budget);
+            int settled = endA && endB
+                    ? pairs.size()
+                    : settledLength(pairs, windowA, windowB);
+            int consumedA = 0;
+            int consumedB = 0;
+            
+            for (int i = 0; i < settled; i++) {
+                IntPair pair = pairs.get(i);
+                IntPair rowPair;
+                if (pair.isPaired()) {
+                    rowPair = IntPair.of(baseA + pair.a(), baseB + pair.b());
+                } else if (pair.hasA()) {
+                    rowPair = IntPair.onlyA(baseA + pair.a());
+                } else {
+                    rowPair = IntPair.onlyB(baseB + pair.b());
+                }
+                consumer.accept(rowPair, new Pair<>(
+                        pair.hasA() ? windowA.get(pair.a()) : List.of(),
+                        pair.hasB() ? windowB.get(pair.b()) : List.of()));
+                
+                if (pair.hasA()) {
+                    consumedA = pair.a() + 1;
+                }
+                if (pair.hasB()) {
+                    consumedB = pair.b() + 1;
+                }
+            }
+            
+            windowA.subList(0, consumedA).clear();
+            windowB.subList(0, consumedB).clear();
+            baseA += consumedA;
+            baseB += consumedB;
+        }
+    }
+    
+    /**
+     * ウィンドウの大きさまで行を読み込みます。<br>
+     *
+     * @param window ウィンドウ
+     * @param cursor カーソル
+     * @return シートの末尾に達した場合は {@code true}
+     */
+    private boolean fill(List<List<CellData>> window, RowCursor cursor) {
+        assert window != null;
+        assert cursor != null;
+        
+        while (window.size() < windowSize) {
+            List<CellData> row = cursor.next();
+            if (row == null) {
+                return true;
+            }
+            window.add(row);
+        }
+        return false;
+    }
+    
+    /**
+     * ウィンドウ内の対応付けのうち、確定させる対応付けの数を返します。<br>
+     * ウィンドウの前半に含まれる最後のアンカーまでとし、アンカーが無い場合はウィンドウの前半までとします。
+     * 少なくともひとつの対応付けを確定させます。<br>
+     *
+     * @param pairs   ウィンドウ内の対応付け
+     * @param windowA シートAのウィンドウ
+     * @param windowB シートBのウィンドウ
+     * @return 確定させる対応付けの数
+     */
+    private int settledLength(
+            List<IntPair> pairs,
+            List<List<CellData>> windowA,
+            List<List<CellData>> windowB) {
+        
+        assert pairs != null;
+        assert windowA != null;
+        assert windowB != null;
+        
+        int half = windowSize / 2;
+        int inHalf = 0;
+        int lastAnchor = -1;
+        
+        for (int i = 0; i < pairs.size(); i++) {
+            IntPair pair = pairs.get(i);
+            if ((pair.hasA() && half <= pair.a()) || (pair.hasB() && half <= pair.b())) {
+                break;
+            }
+            inHalf = i + 1;
+            if (pair.isPaired()
+                    && !windowA.get(pair.a()).isEmpty()
+                    && diffEvaluator.applyAsInt(windowA.get(pair.a()), windowB.get(pair.b())) == 0) {
+                lastAnchor = i;
+            }
+        }
+        
+        return 0 <= lastAnchor
+                ? lastAnchor + 1
+                : Math.max(1, inHalf);
+    }
+}
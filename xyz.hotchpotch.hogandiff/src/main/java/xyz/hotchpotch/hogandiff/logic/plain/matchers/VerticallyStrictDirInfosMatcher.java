@@ -6,6 +6,7 @@ import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.core.Matcher;
 import xyz.hotchpotch.hogandiff.logic.DirInfo;
 import xyz.hotchpotch.hogandiff.util.IntPair;
@@ -66,32 +67,41 @@ public class VerticallyStrictDirInfosMatcher implements DirInfosMatcher {
     
     @Override
     public List<Pair<DirInfo>> pairingDirs(Pair<DirInfo> topDirInfos) {
+        return pairingDirs(topDirInfos, MatchBudget.unlimited());
+    }
+    
+    @Override
+    public List<Pair<DirInfo>> pairingDirs(Pair<DirInfo> topDirInfos, MatchBudget budget) {
         Objects.requireNonNull(topDirInfos);
+        Objects.requireNonNull(budget);
         
         List<Pair<DirInfo>> resultPairs = new ArrayList<>();
         
         resultPairs.add(topDirInfos);
         
-        pairingDirs2(resultPairs, topDirInfos);
+        pairingDirs2(resultPairs, topDirInfos, budget);
         
         return List.copyOf(resultPairs);
     }
     
     private void pairingDirs2(
             List<Pair<DirInfo>> resultPairs,
-            Pair<DirInfo> dirInfos) {
+            Pair<DirInfo> dirInfos,
+            MatchBudget budget) {
         
         assert resultPairs != null;
         assert dirInfos != null;
+        assert budget != null;
         
         List<Pair<DirInfo>> dirPairs = coreMatcher.makeItemPairs(
                 dirInfos.a().childDirInfos(),
-                dirInfos.b().childDirInfos());
+                dirInfos.b().childDirInfos(),
+                budget);
         
         for (Pair<DirInfo> dirPair : dirPairs) {
             if (dirPair.isPaired()) {
                 resultPairs.add(dirPair);
-                pairingDirs2(resultPairs, dirPair);
+                pairingDirs2(resultPairs, dirPair, budget);
                 
             } else if (dirPair.isOnlyA()) {
                 setAloneDirs(resultPairs, dirPair.a(), Side.A);
@@ -1,6 +1,9 @@
 package xyz.hotchpotch.hogandiff.logic.poi;
 
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,11 +11,13 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
 import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
-import org.apache.poi.hssf.eventusermodel.HSSFListener;
 import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
 import org.apache.poi.hssf.record.BOFRecord;
 import org.apache.poi.hssf.record.BoolErrRecord;
 import org.apache.poi.hssf.record.BoundSheetRecord;
@@ -62,214 +67,38 @@ public class CellsLoaderWithPoiEventApi implements CellsLoader {
     // [static members] ********************************************************
     
     /**
-     * 内部処理のステップを表す列挙型です。<br>
+     * 1つのワークシートのセル内容物とセルコメントを読み取るコレクターです。<br>
      *
      * @author nmby
      */
-    private static enum ProcessingStep {
-        
-        // [static members] ----------------------------------------------------
-        
-        /** BOUNDSHEET レコードの中から、目的のシートが何番目に定義されているかを探します。 */
-        SEARCHING_SHEET_DEFINITION,
-        
-        /** Excelブック共通の SST レコードを読み取ります。 */
-        READING_SST_DATA,
-        
-        /** 目的のシートが定義される BOF レコードを探します。 */
-        SEARCHING_SHEET_BODY,
-        
-        /** 目的のシートがワークシートなのかダイアログシートなのかを確認します。 */
-        CHECK_WORKSHEET_OR_DIALOGSHEET,
-        
-        /** 目的のシートのセル内容物とセルコメントを読み取ります。 */
-        READING_CELL_CONTENTS_AND_COMMENTS,
-        
-        /** 処理完了。 */
-        COMPLETED;
-        
-        // [instance members] --------------------------------------------------
-    }
-    
-    private static class Listener1 implements HSSFListener {
+    private static class SheetCollector {
         
         // [static members] ----------------------------------------------------
         
         // [instance members] --------------------------------------------------
         
-        private final String sheetName;
         private final boolean extractCachedValue;
+        private final List<String> sst;
         private final Map<String, CellData> cells = new HashMap<>();
         private final Map<Integer, String> comments = new HashMap<>();
         
-        private ProcessingStep step = ProcessingStep.SEARCHING_SHEET_DEFINITION;
-        private int sheetIdx = 0;
-        private int currIdx = 0;
-        private List<String> sst;
         private FormulaRecord prevFormulaRec;
         private CommonObjectDataSubRecord prevFtCmoRec;
         
-        private Listener1(String sheetName, boolean extractCachedValue) {
-            assert sheetName != null;
-            
-            this.sheetName = sheetName;
+        private SheetCollector(boolean extractCachedValue, List<String> sst) {
             this.extractCachedValue = extractCachedValue;
+            this.sst = sst;
         }
         
         /**
-         * .xls 形式のExcelブックからセルデータを抽出します。<br>
+         * 目的のシートのセル内容物とセルコメントを読み取ります。<br>
          * 
          * @param record
          *            レコード
-         * @throws NoSuchElementException
-         *             指定された名前のシートが見つからない場合
-         * @throws UnsupportedOperationException
-         *             指定された名前のシートがワークシートではなかった場合
          * @throws UnsupportedOperationException
          *             数式セルからキャッシュされた計算値ではなく数式文字列を抽出しようとした場合
          */
-        @Override
-        public void processRecord(Record record) {
-            switch (step) {
-            case SEARCHING_SHEET_DEFINITION:
-                searchingSheetDefinition(record);
-                break;
-            
-            case READING_SST_DATA:
-                readingSstData(record);
-                break;
-            
-            case SEARCHING_SHEET_BODY:
-                searchingSheetBody(record);
-                break;
-            
-            case CHECK_WORKSHEET_OR_DIALOGSHEET:
-                checkWorksheetOrDialogsheet(record);
-                break;
-            
-            case READING_CELL_CONTENTS_AND_COMMENTS:
-                readingCellContentsAndComments(record);
-                break;
-            
-            case COMPLETED:
-                // nop
-                break;
-            
-            default:
-                throw new AssertionError(step);
-            }
-        }
-        
-        /**
-         * BOUNDSHEET レコードの中から、目的のシートが何番目に定義されているかを探します。<br>
-         * 
-         * @param record
-         *            レコード
-         * @throws NoSuchElementException
-         *             指定された名前のシートが見つからない場合
-         */
-        private void searchingSheetDefinition(Record record) {
-            if (record instanceof BoundSheetRecord bsRec) {
-                if (sheetName.equals(bsRec.getSheetname())) {
-                    step = ProcessingStep.READING_SST_DATA;
-                } else {
-                    sheetIdx++;
-                }
-                
-            } else if (record instanceof EOFRecord) {
-                throw new NoSuchElementException(
-                        "no such sheet : " + sheetName);
-            }
-        }
-        
-        /**
-         * Excelブック共通の SST レコードを読み取ります。<br>
-         * 
-         * @param record
-         *            レコード
-         */
-        private void readingSstData(Record record) {
-            if (record instanceof SSTRecord sstRec) {
-                sst = IntStream.range(0, sstRec.getNumUniqueStrings())
-                        .mapToObj(sstRec::getString)
-                        .map(UnicodeString::getString)
-                        .toList();
-                step = ProcessingStep.SEARCHING_SHEET_BODY;
-                
-            } else if (record instanceof EOFRecord) {
-                throw new AssertionError("no sst record");
-            }
-        }
-        
-        /**
-         * 目的のシートが定義される BOF レコードを探します。<br>
-         * 
-         * @param record
-         *            レコード
-         * @throws UnsupportedOperationException
-         *             指定された名前のシートがグラフシートもしくはマクロシートだった場合
-         */
-        private void searchingSheetBody(Record record) {
-            if (record instanceof BOFRecord bofRec) {
-                switch (bofRec.getType()) {
-                case BOFRecord.TYPE_WORKSHEET:
-                    if (currIdx == sheetIdx) {
-                        step = ProcessingStep.CHECK_WORKSHEET_OR_DIALOGSHEET;
-                    } else {
-                        currIdx++;
-                    }
-                    break;
-                
-                case BOFRecord.TYPE_CHART:
-                case BOFRecord.TYPE_EXCEL_4_MACRO:
-                    if (currIdx == sheetIdx) {
-                        throw new UnsupportedOperationException(
-                                "unsupported sheet type : " + bofRec.getType());
-                    } else {
-                        currIdx++;
-                        break;
-                    }
-                    
-                case BOFRecord.TYPE_WORKBOOK:
-                case BOFRecord.TYPE_WORKSPACE_FILE:
-                case BOFRecord.TYPE_VB_MODULE:
-                    // nop
-                    break;
-                
-                default:
-                    throw new AssertionError("unknown BOF type: " + bofRec.getType());
-                }
-            }
-        }
-        
-        /**
-         * 目的のシートがワークシートなのかダイアログシートなのかを確認します。<br>
-         * 
-         * @param record
-         *            レコード
-         * @throws UnsupportedOperationException
-         *             指定された名前のシートがダイアログシートだった場合
-         */
-        private void checkWorksheetOrDialogsheet(Record record) {
-            if (record instanceof WSBoolRecord wsbRec) {
-                if (wsbRec.getDialog()) {
-                    // FIXME: [No.01 シート識別不正 - HSSF] ダイアログシートも何故か getDialog() == false が返されるっぽい。
-                    throw new UnsupportedOperationException("dialog sheets are not supported");
-                }
-                step = ProcessingStep.READING_CELL_CONTENTS_AND_COMMENTS;
-                
-            } else if (record instanceof EOFRecord) {
-                throw new AssertionError("no WSBool record");
-            }
-        }
-        
-        /**
-         * 目的のシートのセル内容物とセルコメントを読み取ります。<br>
-         * 
-         * @param record
-         *            レコード
-         */
-        private void readingCellContentsAndComments(Record record) {
+        private void process(Record record) {
             assert record != null;
             
             if (record instanceof CellRecord && prevFormulaRec != null) {
@@ -283,6 +112,9 @@ public class CellsLoaderWithPoiEventApi implements CellsLoader {
             
             switch (record) {
             case LabelSSTRecord lRec: // セル内容抽出用
+                if (sst == null) {
+                    throw new AssertionError("no sst record");
+                }
                 value = sst.get(lRec.getSSTIndex());
                 break;
             
@@ -358,10 +190,6 @@ public class CellsLoaderWithPoiEventApi implements CellsLoader {
                 }
                 break;
             
-            case EOFRecord _: // 次ステップに移行
-                step = ProcessingStep.COMPLETED;
-                break;
-            
             default:
                 // nop
             }
@@ -427,6 +255,207 @@ public class CellsLoaderWithPoiEventApi implements CellsLoader {
         }
     }
     
+    /**
+     * .xls 形式のExcelブックを1回だけ走査して、
+     * 指定された複数のワークシートからセルデータを抽出するリスナーです。<br>
+     * シートは BOUNDSHEET レコードの定義順とシート本体の BOF レコードの出現順を突き合わせて識別します。<br>
+     * 目的のシートをすべて読み終えた時点で走査を打ち切ります。<br>
+     *
+     * @author nmby
+     */
+    private static class BookListener extends AbortableHSSFListener {
+        
+        // [static members] ----------------------------------------------------
+        
+        private static final short CONTINUE = 0;
+        private static final short ABORT = 1;
+        
+        // [instance members] --------------------------------------------------
+        
+        private final Set<String> targetSheetNames;
+        private final boolean extractCachedValue;
+        
+        /** BOUNDSHEET レコードの定義順に並べたシート名 */
+        private final List<String> sheetNames = new ArrayList<>();
+        
+        /** 読み取りが完了したシートのセルデータ */
+        private final Map<String, Set<CellData>> loaded = new HashMap<>();
+        
+        /** 読み取りに失敗したシートの失敗理由 */
+        private final Map<String, RuntimeException> failures = new HashMap<>();
+        
+        private List<String> sst;
+        
+        /** BOF-EOF の入れ子の深さ */
+        private int depth = 0;
+        
+        /** 現在処理中のシート本体のインデックス。ブック全体のレコードを処理中の場合は -1 */
+        private int currIdx = -1;
+        
+        /** まだ読み取っていない目的のシートの数。ブック全体のレコードを読み終えるまでは -1 */
+        private int remaining = -1;
+        
+        private String currSheetName;
+        private SheetCollector currCollector;
+        private boolean checkingSheetType;
+        
+        private BookListener(Set<String> targetSheetNames, boolean extractCachedValue) {
+            assert targetSheetNames != null;
+            
+            this.targetSheetNames = targetSheetNames;
+            this.extractCachedValue = extractCachedValue;
+        }
+        
+        /**
+         * .xls 形式のExcelブックからセルデータを抽出します。<br>
+         * 目的のシートに関する失敗は例外をスローせずに記録し、他のシートの処理を継続します。<br>
+         * 
+         * @param record
+         *            レコード
+         * @return 走査を継続する場合は {@code 0}、打ち切る場合は {@code 0} 以外
+         */
+        @Override
+        public short abortableProcessRecord(Record record) {
+            switch (record) {
+            case BOFRecord bofRec:
+                depth++;
+                if (depth == 1) {
+                    startSubstream(bofRec);
+                }
+                return CONTINUE;
+            
+            case EOFRecord _:
+                depth--;
+                if (depth == 0) {
+                    endSubstream();
+                    return remaining == 0 ? ABORT : CONTINUE;
+                }
+                return CONTINUE;
+            
+            default:
+                // 埋め込みグラフ等の入れ子になったサブストリームは読み飛ばす。
+                if (depth != 1) {
+                    return CONTINUE;
+                }
+                if (currIdx < 0) {
+                    readWorkbookGlobals(record);
+                } else if (currCollector != null) {
+                    readSheetBody(record);
+                }
+                return CONTINUE;
+            }
+        }
+        
+        /**
+         * BOUNDSHEET レコードと Excelブック共通の SST レコードを読み取ります。<br>
+         * 
+         * @param record
+         *            レコード
+         */
+        private void readWorkbookGlobals(Record record) {
+            if (record instanceof BoundSheetRecord bsRec) {
+                sheetNames.add(bsRec.getSheetname());
+                
+            } else if (record instanceof SSTRecord sstRec) {
+                sst = IntStream.range(0, sstRec.getNumUniqueStrings())
+                        .mapToObj(sstRec::getString)
+                        .map(UnicodeString::getString)
+                        .toList();
+            }
+        }
+        
+        /**
+         * サブストリームの開始を処理します。<br>
+         * 
+         * @param bofRec
+         *            BOF レコード
+         */
+        private void startSubstream(BOFRecord bofRec) {
+            switch (bofRec.getType()) {
+            case BOFRecord.TYPE_WORKSHEET:
+                startSheet(sheetName -> {
+                    currCollector = new SheetCollector(extractCachedValue, sst);
+                    checkingSheetType = true;
+                });
+                break;
+            
+            case BOFRecord.TYPE_CHART:
+            case BOFRecord.TYPE_EXCEL_4_MACRO:
+                startSheet(sheetName -> failures.put(sheetName, new UnsupportedOperationException(
+                        "unsupported sheet type : " + bofRec.getType())));
+                break;
+            
+            case BOFRecord.TYPE_WORKBOOK:
+            case BOFRecord.TYPE_WORKSPACE_FILE:
+            case BOFRecord.TYPE_VB_MODULE:
+                // nop
+                break;
+            
+            default:
+                throw new AssertionError("unknown BOF type: " + bofRec.getType());
+            }
+        }
+        
+        /**
+         * 次のシート本体に移り、それが目的のシートである場合は指定された処理を行います。<br>
+         * 
+         * @param onTarget
+         *            目的のシートである場合の処理
+         */
+        private void startSheet(Consumer<String> onTarget) {
+            currIdx++;
+            currSheetName = currIdx < sheetNames.size() ? sheetNames.get(currIdx) : null;
+            
+            if (currSheetName != null && targetSheetNames.contains(currSheetName)) {
+                remaining--;
+                onTarget.accept(currSheetName);
+            }
+        }
+        
+        /**
+         * サブストリームの終了を処理します。<br>
+         */
+        private void endSubstream() {
+            if (currIdx < 0) {
+                // ブック全体のレコードを読み終えた時点で、読み取るべきシートの数が確定する。
+                remaining = (int) sheetNames.stream().filter(targetSheetNames::contains).count();
+                
+            } else if (currCollector != null) {
+                if (checkingSheetType) {
+                    throw new AssertionError("no WSBool record");
+                }
+                loaded.put(currSheetName, Set.copyOf(currCollector.cells.values()));
+                currCollector = null;
+            }
+        }
+        
+        /**
+         * 目的のシートのセル内容物とセルコメントを読み取ります。<br>
+         * 
+         * @param record
+         *            レコード
+         */
+        private void readSheetBody(Record record) {
+            try {
+                if (checkingSheetType) {
+                    // 目的のシートがワークシートなのかダイアログシートなのかを確認する。
+                    if (record instanceof WSBoolRecord wsbRec) {
+                        if (wsbRec.getDialog()) {
+                            // FIXME: [No.01 シート識別不正 - HSSF] ダイアログシートも何故か getDialog() == false が返されるっぽい。
+                            throw new UnsupportedOperationException("dialog sheets are not supported");
+                        }
+                        checkingSheetType = false;
+                    }
+                } else {
+                    currCollector.process(record);
+                }
+            } catch (RuntimeException e) {
+                failures.put(currSheetName, e);
+                currCollector = null;
+            }
+        }
+    }
+    
     // [instance members] ******************************************************
     
     private final boolean extractCachedValue;
@@ -470,20 +499,88 @@ public class CellsLoaderWithPoiEventApi implements CellsLoader {
         Objects.requireNonNull(sheetName);
         CommonUtil.ifNotSupportedBookTypeThenThrow(getClass(), BookType.of(bookInfo.bookPath()));
         
+        try {
+            BookListener listener = processBook(bookInfo, readPassword, Set.of(sheetName));
+            
+            if (listener.loaded.containsKey(sheetName)) {
+                return listener.loaded.get(sheetName);
+            }
+            throw listener.failures.containsKey(sheetName)
+                    ? listener.failures.get(sheetName)
+                    : new NoSuchElementException("no such sheet : " + sheetName);
+            
+        } catch (Exception e) {
+            throw new ExcelHandlingException(
+                    "processing failed : %s - %s".formatted(bookInfo.bookPath(), sheetName), e);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、Excelブックを1回だけ走査して、指定されたすべてのシートのセルデータを抽出します。<br>
+     * 
+     * @throws NullPointerException
+     *             {@code bookInfo}, {@code sheetNames} のいずれかが
+     *             {@code null} の場合
+     * @throws IllegalArgumentException
+     *             {@code bookInfo} がサポート対象外の形式の場合
+     * @throws ExcelHandlingException
+     *             処理に失敗した場合
+     */
+    @Override
+    public Map<String, Set<CellData>> loadCellsOfSheets(
+            BookInfo bookInfo,
+            String readPassword,
+            Collection<String> sheetNames)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookInfo);
+        // readPassword may be null.
+        Objects.requireNonNull(sheetNames);
+        CommonUtil.ifNotSupportedBookTypeThenThrow(getClass(), BookType.of(bookInfo.bookPath()));
+        
+        try {
+            return Map.copyOf(processBook(bookInfo, readPassword, Set.copyOf(sheetNames)).loaded);
+            
+        } catch (Exception e) {
+            throw new ExcelHandlingException(
+                    "processing failed : %s - %s".formatted(bookInfo.bookPath(), sheetNames), e);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、シートごとにExcelブック全体を走査するため、{@code true} を返します。<br>
+     */
+    @Override
+    public boolean prefersLoadingSheetsAtOnce() {
+        return true;
+    }
+    
+    private BookListener processBook(
+            BookInfo bookInfo,
+            String readPassword,
+            Set<String> sheetNames)
+            throws IOException {
+        
+        assert bookInfo != null;
+        assert sheetNames != null;
+        
         Biff8EncryptionKey.setCurrentUserPassword(readPassword);
         try (FileInputStream fin = new FileInputStream(bookInfo.bookPath().toFile());
                 POIFSFileSystem poifs = new POIFSFileSystem(fin)) {
             
             HSSFRequest req = new HSSFRequest();
-            Listener1 listener1 = new Listener1(sheetName, extractCachedValue);
-            req.addListenerForAllRecords(listener1);
+            BookListener listener = new BookListener(sheetNames, extractCachedValue);
+            req.addListenerForAllRecords(listener);
             HSSFEventFactory factory = new HSSFEventFactory();
             factory.abortableProcessWorkbookEvents(req, poifs);
-            return Set.copyOf(listener1.cells.values());
+            return listener;
             
-        } catch (Exception e) {
-            throw new ExcelHandlingException(
-                    "processing failed : %s - %s".formatted(bookInfo.bookPath(), sheetName), e);
+        } catch (HSSFUserException e) {
+            throw new IOException(e);
             
         } finally {
             Biff8EncryptionKey.setCurrentUserPassword(null);
@@ -1,6 +1,11 @@
 package xyz.hotchpotch.hogandiff.logic.poi;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -11,6 +16,7 @@ import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
@@ -40,6 +46,94 @@ public class CellsLoaderWithPoiUserApi implements CellsLoader {
     
     // [instance members] ******************************************************
     
+    /**
+     * 1つのExcelブックを開いたまま、複数のシートからセルデータを抽出するためのセッションです。<br>
+     * セッションを閉じると、Excelブックも閉じられます。<br>
+     *
+     * @author nmby
+     */
+    private class BookSession implements AutoCloseable {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final BookInfo bookInfo;
+        private final Workbook wb;
+        
+        private BookSession(BookInfo bookInfo, String readPassword) throws IOException {
+            assert bookInfo != null;
+            
+            this.bookInfo = bookInfo;
+            this.wb = WorkbookFactory.create(
+                    bookInfo.bookPath().toFile(),
+                    readPassword,
+                    true);
+        }
+        
+        /**
+         * 指定されたシートに含まれるセルのセットを返します。<br>
+         * 
+         * @param sheetName シート名
+         * @return 指定されたシートに含まれるセルのセット
+         * @throws NoSuchElementException        指定された名前のシートが見つからない場合
+         * @throws UnsupportedOperationException 指定された名前のシートがサポート対象外の種類の場合
+         */
+        private Set<CellData> loadCells(String sheetName) {
+            assert sheetName != null;
+            
+            Sheet sheet = wb.getSheet(sheetName);
+            if (sheet == null) {
+                // 例外カスケードポリシーに従い、
+                // 呼び出し元の catch でさらに ExcelHandlingException にラップする。
+                // ちょっと気持ち悪い気もするけど。
+                throw new NoSuchElementException(
+                        "no such sheet : %s - %s".formatted(bookInfo.bookPath(), sheetName));
+            }
+            
+            Set<SheetType> possibleTypes = PoiUtil.possibleTypes(sheet);
+            // 同じく、呼び出し元の catch でさらに ExcelHandlingException にラップする。
+            CommonUtil.ifNotSupportedSheetTypeThenThrow(CellsLoaderWithPoiUserApi.this.getClass(), possibleTypes);
+            
+            // Sheet#spliterator はサイズが分からず並列処理のための分割がうまく働かないため、
+            // いったん行のリストに詰め替えてから並列に変換する。
+            List<Row> rows = new ArrayList<>(sheet.getPhysicalNumberOfRows());
+            sheet.forEach(rows::add);
+            
+            Set<CellData> cells = rows.parallelStream()
+                    .flatMap(row -> StreamSupport.stream(row.spliterator(), false))
+                    .map(converter::apply)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(HashSet::new));
+            
+            Map<String, CellData> cellsMap = cells.parallelStream()
+                    .collect(Collectors.toMap(
+                            CellData::address,
+                            Function.identity()));
+            
+            sheet.getCellComments().forEach((addr, comm) -> {
+                String address = addr.formatAsString();
+                // xlsx/xlsm 形式の場合、空コメントから null が返されるため、空文字列に標準化する。
+                String comment = Optional.ofNullable(comm.getString().getString()).orElse("");
+                
+                if (cellsMap.containsKey(address)) {
+                    CellData original = cellsMap.get(address);
+                    cells.remove(original);
+                    cells.add(original.withComment(comment));
+                } else {
+                    cells.add(CellData.of(address, "", comment));
+                }
+            });
+            
+            return cells;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            wb.close();
+        }
+    }
+    
     private final Function<Cell, CellData> converter;
     
     /**
@@ -82,55 +176,66 @@ public class CellsLoaderWithPoiUserApi implements CellsLoader {
         Objects.requireNonNull(sheetName);
         CommonUtil.ifNotSupportedBookTypeThenThrow(getClass(), BookType.of(bookInfo.bookPath()));
         
-        try (Workbook wb = WorkbookFactory.create(
-                bookInfo.bookPath().toFile(),
-                readPassword,
-                true)) {
-            
-            Sheet sheet = wb.getSheet(sheetName);
-            if (sheet == null) {
-                // 例外カスケードポリシーに従い、
-                // 後続の catch でさらに ExcelHandlingException にラップする。
-                // ちょっと気持ち悪い気もするけど。
-                throw new NoSuchElementException(
-                        "no such sheet : %s - %s".formatted(bookInfo.bookPath(), sheetName));
-            }
+        try (BookSession session = new BookSession(bookInfo, readPassword)) {
+            return session.loadCells(sheetName);
             
-            Set<SheetType> possibleTypes = PoiUtil.possibleTypes(sheet);
-            // 同じく、後続の catch でさらに ExcelHandlingException にラップする。
-            CommonUtil.ifNotSupportedSheetTypeThenThrow(getClass(), possibleTypes);
-            
-            Set<CellData> cells = StreamSupport.stream(sheet.spliterator(), true)
-                    .flatMap(row -> StreamSupport.stream(row.spliterator(), false))
-                    .map(converter::apply)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toCollection(HashSet::new));
-            
-            Map<String, CellData> cellsMap = cells.parallelStream()
-                    .collect(Collectors.toMap(
-                            CellData::address,
-                            Function.identity()));
-            
-            sheet.getCellComments().forEach((addr, comm) -> {
-                String address = addr.formatAsString();
-                // xlsx/xlsm 形式の場合、空コメントから null が返されるため、空文字列に標準化する。
-                String comment = Optional.ofNullable(comm.getString().getString()).orElse("");
-                
-                if (cellsMap.containsKey(address)) {
-                    CellData original = cellsMap.get(address);
-                    cells.remove(original);
-                    cells.add(original.withComment(comment));
-                } else {
-                    cells.add(CellData.of(address, "", comment));
+        } catch (Exception e) {
+            throw new ExcelHandlingException(
+                    "processing failed : %s - %s".formatted(bookInfo.bookPath(), sheetName),
+                    e);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、Excelブックを1回だけ開き、指定されたすべてのシートのセルデータを抽出します。<br>
+     * 
+     * @throws NullPointerException
+     *                                  {@code bookInfo}, {@code sheetNames} のいずれかが
+     *                                  {@code null} の場合
+     * @throws IllegalArgumentException
+     *                                  {@code bookInfo} がサポート対象外の形式の場合
+     * @throws ExcelHandlingException
+     *                                  Excelブックを開けなかった場合
+     */
+    @Override
+    public Map<String, Set<CellData>> loadCellsOfSheets(
+            BookInfo bookInfo,
+            String readPassword,
+            Collection<String> sheetNames)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookInfo);
+        // readPassword may be null.
+        Objects.requireNonNull(sheetNames);
+        CommonUtil.ifNotSupportedBookTypeThenThrow(getClass(), BookType.of(bookInfo.bookPath()));
+        
+        try (BookSession session = new BookSession(bookInfo, readPassword)) {
+            Map<String, Set<CellData>> result = new HashMap<>();
+            for (String sheetName : sheetNames) {
+                try {
+                    result.put(sheetName, session.loadCells(sheetName));
+                } catch (RuntimeException e) {
+                    // nop: 読み込めなかったシートは戻り値に含めない。
                 }
-            });
-            
-            return cells;
+            }
+            return result;
             
         } catch (Exception e) {
             throw new ExcelHandlingException(
-                    "processing failed : %s - %s".formatted(bookInfo.bookPath(), sheetName),
+                    "processing failed : %s - %s".formatted(bookInfo.bookPath(), sheetNames),
                     e);
         }
     }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装は、シートごとにExcelブック全体を読み込むため、{@code true} を返します。<br>
+     */
+    @Override
+    public boolean prefersLoadingSheetsAtOnce() {
+        return true;
+    }
 }
@@ -721,13 +721,47 @@ public class PoiUtil {
         
         Objects.requireNonNull(sheet);
         
-        Row srcRow = sheet.getRow(srcRowNo);
-        Row dstRow = sheet.getRow(dstRowNo);
+        return copyRow(sheet, srcRowNo, sheet, dstRowNo);
+    }
+    
+    /**
+     * 指定されたシート上の指定された行の内容を、別のシートの指定された行にコピーします。<br>
+     * コピー先のシートは、コピー元のシートと同じブックに属する必要があります。
+     * テンプレートブックを {@link org.apache.poi.xssf.streaming.SXSSFWorkbook} でラップする場合に、
+     * テンプレート部分の行をストリーミング出力する行にコピーするために利用できます。<br>
+     * 現在のバージョンでは次の内容をコピーします。<br>
+     * - セルのスタイル
+     * - セルの内容
+     * これ以外の内容はコピーしませんのでご注意ください。<br>
+     * 
+     * @param srcSheet
+     *            コピー元シート
+     * @param srcRowNo
+     *            コピー元行番号
+     * @param dstSheet
+     *            コピー先シート
+     * @param dstRowNo
+     *            コピー先行番号
+     * @return コピー先の行
+     * @throws NullPointerException
+     *             {@code srcSheet}, {@code dstSheet} のいずれかが {@code null} の場合
+     */
+    public static Row copyRow(
+            Sheet srcSheet,
+            int srcRowNo,
+            Sheet dstSheet,
+            int dstRowNo) {
+        
+        Objects.requireNonNull(srcSheet);
+        Objects.requireNonNull(dstSheet);
+        
+        Row srcRow = srcSheet.getRow(srcRowNo);
+        Row dstRow = dstSheet.getRow(dstRowNo);
         
         if (dstRow != null) {
-            sheet.removeRow(dstRow);
+            dstSheet.removeRow(dstRow);
         }
-        dstRow = sheet.createRow(dstRowNo);
+        dstRow = dstSheet.createRow(dstRowNo);
         
         Iterator<Cell> itr = srcRow.cellIterator();
         while (itr.hasNext()) {
@@ -740,7 +774,7 @@ public class PoiUtil {
             // セル値の設定
             copyCellValue(srcCell, dstCell);
         }
-        return null;
+        return dstRow;
     }
     
     private static void copyCellValue(Cell srcCell, Cell dstCell) {
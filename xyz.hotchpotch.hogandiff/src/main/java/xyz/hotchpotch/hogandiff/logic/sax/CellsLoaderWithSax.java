@@ -1,8 +1,7 @@
 package xyz.hotchpotch.hogandiff.logic.sax;
 
 import java.io.InputStream;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -11,6 +10,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -30,9 +30,11 @@ import xyz.hotchpotch.hogandiff.logic.CellsLoader;
 import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
 import xyz.hotchpotch.hogandiff.logic.SheetHandler;
 import xyz.hotchpotch.hogandiff.logic.SheetType;
+import xyz.hotchpotch.hogandiff.logic.plain.CellsUtil;
 import xyz.hotchpotch.hogandiff.logic.plain.CommonUtil;
 import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil.IgnoreCloseInputStream;
 import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil.SheetInfo;
+import xyz.hotchpotch.hogandiff.util.IntPair;
 import xyz.hotchpotch.hogandiff.util.function.UnsafeFunction;
 
 /**
@@ -49,44 +51,11 @@ public class CellsLoaderWithSax implements CellsLoader {
     // [static members] ********************************************************
     
     /**
-     * セルのタイプ、具体的には c 要素の t 属性の種類を表す列挙型です。<br>
+     * ワークシート（{@code xl/worksheets/sheet?.xml}）の要素の出現を
+     * {@link WorksheetCellsCollector} に通知するハンドラです。<br>
      *
      * @author nmby
-     * @see <a href="http://officeopenxml.com/SScontentOverview.php">
-     *      http://officeopenxml.com/SScontentOverview.php</a>
      */
-    private static enum XSSFCellType {
-        
-        // [static members] ----------------------------------------------------
-        
-        /** boolean */
-        b,
-        
-        /** date */
-        d,
-        
-        /** error */
-        e,
-        
-        /** inline string */
-        inlineStr,
-        
-        /** number */
-        n,
-        
-        /** shared string */
-        s,
-        
-        /** formula */
-        str;
-        
-        private static XSSFCellType of(String t) {
-            return t == null ? n : valueOf(t);
-        }
-        
-        // [instance members] --------------------------------------------------
-    }
-    
     private static class Handler1 extends DefaultHandler {
         
         // [static members] ----------------------------------------------------
@@ -95,100 +64,63 @@ public class CellsLoaderWithSax implements CellsLoader {
         
         // [instance members] --------------------------------------------------
         
-        private final boolean extractCachedValue;
-        private final List<String> sst;
-        
-        private final Deque<String> localNames = new ArrayDeque<>();
-        private final Map<String, StringBuilder> texts = new HashMap<>();
-        private final Map<String, String> addressToContent = new HashMap<>();
+        private final WorksheetCellsCollector collector;
         
-        private XSSFCellType type;
-        private String address;
-        
-        private Handler1(
-                boolean extractCachedValue,
-                List<String> sst) {
-            
-            assert sst != null;
+        private Handler1(WorksheetCellsCollector collector) {
+            assert collector != null;
             
-            this.extractCachedValue = extractCachedValue;
-            this.sst = sst;
+            this.collector = collector;
         }
         
         @Override
         public void startElement(String uri, String localName, String qName, Attributes attributes)
                 throws SAXException {
             
-            localNames.addFirst(localName);
+            if (!xmlns.equals(uri)) {
+                return;
+            }
             
-            if (xmlns.equals(uri) && "c".equals(localName)) {
-                type = XSSFCellType.of(attributes.getValue("t"));
-                address = attributes.getValue("r");
-                texts.clear();
+            switch (localName) {
+            case "row" -> collector.startRow(attributes.getValue("r"));
+            case "c" -> collector.startCell(attributes.getValue("r"), attributes.getValue("t"));
+            case "v" -> collector.startValue();
+            case "f" -> collector.startFormula(
+                    attributes.getValue("t"), attributes.getValue("si"), attributes.getValue("ref"));
+            case "is" -> collector.startInlineString();
+            case "rPh" -> collector.startPhonetic();
+            case "t" -> collector.startText();
+            default -> {
+                // nop
+            }
             }
         }
         
         @Override
         public void characters(char ch[], int start, int length) {
-            String localName = localNames.getFirst();
-            texts.putIfAbsent(localName, new StringBuilder());
-            texts.get(localName).append(ch, start, length);
+            collector.characters(ch, start, length);
         }
         
         @Override
         public void endElement(String uri, String localName, String qName) {
-            if (xmlns.equals(uri) && "c".equals(localName)) {
-                StringBuilder vText = texts.get("v");
-                StringBuilder fText = texts.get("f");
-                StringBuilder tText = texts.get("t");
-                String value = null;
-                
-                if (!extractCachedValue && fText != null) {
-                    value = fText.toString();
-                } else {
-                    switch (type) {
-                    case b:
-                        if (vText != null) {
-                            value = Boolean.toString("1".equals(vText.toString()));
-                        }
-                        break;
-                    
-                    case n:
-                    case d:
-                    case e:
-                    case str:
-                        if (vText != null) {
-                            value = vText.toString();
-                        }
-                        break;
-                    
-                    case inlineStr:
-                        if (tText != null) {
-                            value = tText.toString();
-                        }
-                        break;
-                    
-                    case s:
-                        if (vText != null) {
-                            int idx = Integer.parseInt(vText.toString());
-                            value = sst.get(idx);
-                        }
-                        break;
-                    
-                    default:
-                        throw new AssertionError(type);
-                    }
-                }
-                if (value != null && !"".equals(value)) {
-                    addressToContent.put(address, value);
-                }
-                
-                localNames.removeFirst();
-                type = null;
-                address = null;
-                texts.clear();
+            if (!xmlns.equals(uri)) {
+                return;
+            }
+            
+            switch (localName) {
+            case "v", "f", "t" -> collector.endText();
+            case "is" -> collector.endInlineString();
+            case "rPh" -> collector.endPhonetic();
+            case "c" -> collector.endCell();
+            default -> {
+                // nop
+            }
             }
         }
+        
+        @Override
+        public void endDocument() {
+            collector.endDocument();
+        }
     }
     
     private static class Handler2 extends DefaultHandler {
@@ -234,6 +166,7 @@ public class CellsLoaderWithSax implements CellsLoader {
     // [instance members] ******************************************************
     
     private final boolean extractCachedValue;
+    private final Supplier<? extends Set<CellData>> cellsSetFactory;
     // private final String readPassword;
     
     private Map<String, SheetInfo> nameToInfo;
@@ -247,7 +180,26 @@ public class CellsLoaderWithSax implements CellsLoader {
      *                           数式文字列を抽出する場合は {@code false}
      */
     public CellsLoaderWithSax(boolean extractCachedValue) {
+        this(extractCachedValue, HashSet::new);
+    }
+    
+    /**
+     * コンストラクタ<br>
+     * 抽出したセルデータは、指定されたファクトリで生成したセットに格納して返します。<br>
+     * 
+     * @param extractCachedValue
+     *                           数式セルからキャッシュされた計算値を抽出する場合は {@code true}、
+     *                           数式文字列を抽出する場合は {@code false}
+     * @param cellsSetFactory
+     *                           抽出したセルデータを格納する空のセットのファクトリ
+     * @throws NullPointerException
+     *                                  {@code cellsSetFactory} が {@code null} の場合
+     */
+    public CellsLoaderWithSax(boolean extractCachedValue, Supplier<? extends Set<CellData>> cellsSetFactory) {
+        Objects.requireNonNull(cellsSetFactory);
+        
         this.extractCachedValue = extractCachedValue;
+        this.cellsSetFactory = cellsSetFactory;
     }
     
     /**
@@ -302,14 +254,15 @@ public class CellsLoaderWithSax implements CellsLoader {
             SAXParserFactory factory = SAXParserFactory.newInstance();
             factory.setNamespaceAware(true);
             SAXParser parser = factory.newSAXParser();
-            Handler1 handler1 = new Handler1(extractCachedValue, sst);
+            WorksheetCellsCollector collector = new WorksheetCellsCollector(
+                    extractCachedValue, sst, cellsSetFactory.get());
             Handler2 handler2 = new Handler2();
             InputStream ignoreCloseZis = new IgnoreCloseInputStream(zis);
             ZipEntry zipEntry;
             
             while ((zipEntry = zis.getNextEntry()) != null) {
                 if (zipEntry.getName().equals(info.source())) {
-                    parser.parse(ignoreCloseZis, handler1);
+                    parseWorksheet(ignoreCloseZis, collector);
                 }
                 if (info.commentSource() != null && zipEntry.getName().equals(info.commentSource())) {
                     parser.parse(ignoreCloseZis, handler2);
@@ -317,26 +270,19 @@ public class CellsLoaderWithSax implements CellsLoader {
             }
             
             if (info.commentSource() == null || handler2.addressToComment.isEmpty()) {
-                return handler1.addressToContent.entrySet().stream()
-                        .map(entry -> CellData.of(entry.getKey(), entry.getValue(), null))
-                        .collect(Collectors.toSet());
+                return collector.cells();
             } else {
-                Set<CellData> cells = handler1.addressToContent.entrySet().stream()
-                        .map(entry -> {
-                            String address = entry.getKey();
-                            String content = entry.getValue();
-                            String comment = handler2.addressToComment.containsKey(address)
-                                    ? handler2.addressToComment.get(address)
-                                    : null;
-                            return CellData.of(address, content, comment);
-                        })
-                        .collect(Collectors.toCollection(HashSet::new));
-                        
-                cells.addAll(
-                        handler2.addressToComment.entrySet().stream()
-                                .filter(entry -> !handler1.addressToContent.containsKey(entry.getKey()))
-                                .map(entry -> CellData.of(entry.getKey(), "", entry.getValue()))
-                                .toList());
+                Map<IntPair, String> idxToComment = new HashMap<>();
+                handler2.addressToComment.forEach(
+                        (address, comment) -> idxToComment.put(CellsUtil.addressToIdx(address), comment));
+                
+                Set<CellData> cells = cellsSetFactory.get();
+                for (CellData cell : collector.cells()) {
+                    String comment = idxToComment.remove(IntPair.of(cell.row(), cell.column()));
+                    cells.add(comment == null ? cell : cell.withComment(comment));
+                }
+                idxToComment.forEach(
+                        (idx, comment) -> cells.add(new CellData(idx.a(), idx.b(), "", comment)));
                 
                 return cells;
             }
@@ -344,4 +290,21 @@ public class CellsLoaderWithSax implements CellsLoader {
         
         return SaxUtil.processExcelAsZip(bookInfo.bookPath(), readPassword, processor);
     }
+    
+    /**
+     * ワークシートのXMLを読み取り、要素の出現を指定されたコレクターに通知します。<br>
+     * この実装はSAXを利用します。サブクラスは、他の方式の読み取りで置き換えることができます。<br>
+     * 
+     * @param worksheet ワークシートのXMLを読み取る入力ストリーム
+     * @param collector 要素の出現を通知するコレクター
+     * @throws Exception 処理に失敗した場合
+     */
+    protected void parseWorksheet(InputStream worksheet, WorksheetCellsCollector collector)
+            throws Exception {
+        
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        SAXParser parser = factory.newSAXParser();
+        parser.parse(worksheet, new Handler1(collector));
+    }
 }
@@ -0,0 +1,211 @@
+package xyz.hotchpotch.hogandiff.logic.sax;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import xyz.hotchpotch.hogandiff.logic.BookHandler;
+import xyz.hotchpotch.hogandiff.logic.BookType;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.plain.CommonUtil;
+
+/**
+ * 読み取りパスワードで暗号化された .xlsx/.xlsm/.xlsb 形式のExcelブックを復号した結果を、
+ * 一連の処理の間だけ使い回すためのキャッシュです。<br>
+ * <br>
+ * {@link #open()} から {@link #close()} までの間、同じスレッドで
+ * {@link SaxUtil#processExcelAsZip(Path, String, xyz.hotchpotch.hogandiff.util.function.UnsafeFunction)}
+ * を経由して行われる読み込みは、Excelブックごとに一度だけ復号した一時ファイルを利用します。
+ * 一時ファイルは {@link #open(Path)} で指定されたフォルダに所有者だけが読み書きできるように作成し、
+ * {@link #close()} の際に削除します。
+ * 同じフォルダには、一連の処理の間に作成されるその他の一時ファイル（退避した Shared Strings など）も作成し、
+ * それらも {@link #close()} の際に削除します。<br>
+ * <br>
+ * 既にキャッシュが開かれているスレッドで新たに {@link #open()} した場合は、
+ * 外側のキャッシュを共有します。この場合の一時ファイルは外側のキャッシュを閉じる際に削除されます。<br>
+ *
+ * @author nmby
+ */
+@BookHandler(targetTypes = { BookType.XLSX, BookType.XLSM, BookType.XLSB })
+public final class DecryptedBookCache implements AutoCloseable {
+    
+    // [static members] ********************************************************
+    
+    private static final ThreadLocal<DecryptedBookCache> current = new ThreadLocal<>();
+    
+    private static record Key(Path bookPath, String readPassword) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 現在のスレッドで新たなキャッシュを開きます。<br>
+     * 外側のキャッシュが無い場合、一時ファイルはシステムの一時フォルダに作成します。
+     * 作業用フォルダが定まっている場合は {@link #open(Path)} を利用してください。<br>
+     * 返されたキャッシュは、同じスレッドで必ず {@link #close()} してください。<br>
+     *
+     * @return 新たなキャッシュ
+     */
+    public static DecryptedBookCache open() {
+        return open(Path.of(System.getProperty("java.io.tmpdir")));
+    }
+    
+    /**
+     * 現在のスレッドで、指定されたフォルダに一時ファイルを作成する新たなキャッシュを開きます。<br>
+     * 外側のキャッシュを共有する場合は、外側のキャッシュのフォルダが使われます。<br>
+     * 返されたキャッシュは、同じスレッドで必ず {@link #close()} してください。<br>
+     *
+     * @param tempDir
+     *            復号した一時ファイルを作成するフォルダ
+     * @return 新たなキャッシュ
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     */
+    public static DecryptedBookCache open(Path tempDir) {
+        Objects.requireNonNull(tempDir);
+        
+        DecryptedBookCache cache = new DecryptedBookCache(current.get(), tempDir);
+        current.set(cache);
+        return cache;
+    }
+    
+    /**
+     * 現在のスレッドで開かれているキャッシュを返します。<br>
+     *
+     * @return 現在のスレッドで開かれているキャッシュ
+     */
+    public static Optional<DecryptedBookCache> current() {
+        return Optional.ofNullable(current.get());
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final DecryptedBookCache outer;
+    private final Path tempDir;
+    private final Map<Key, Path> decrypted = new HashMap<>();
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private boolean closed;
+    
+    private DecryptedBookCache(DecryptedBookCache outer, Path tempDir) {
+        this.outer = outer;
+        this.tempDir = tempDir;
+    }
+    
+    /**
+     * 指定されたExcelブックを復号した一時ファイルのパスを返します。<br>
+     * このキャッシュで初めて要求されたExcelブックの場合は、ここで復号を行います。<br>
+     *
+     * @param bookPath
+     *            Excelブックのパス
+     * @param readPassword
+     *            Excelブックの読み取りパスワード
+     * @return 復号した一時ファイルのパス
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     * @throws IllegalArgumentException
+     *             {@code bookPath} がサポート対象外の形式の場合
+     * @throws IllegalStateException
+     *             このキャッシュが既に閉じられている場合
+     * @throws ExcelHandlingException
+     *             復号に失敗した場合
+     */
+    public synchronized Path decryptedPath(Path bookPath, String readPassword)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookPath);
+        Objects.requireNonNull(readPassword);
+        CommonUtil.ifNotSupportedBookTypeThenThrow(getClass(), BookType.of(bookPath));
+        if (closed) {
+            throw new IllegalStateException("already closed");
+        }
+        
+        if (outer != null) {
+            return outer.decryptedPath(bookPath, readPassword);
+        }
+        
+        Key key = new Key(bookPath.toAbsolutePath().normalize(), readPassword);
+        Path path = decrypted.get(key);
+        if (path == null || !Files.exists(path)) {
+            path = SaxUtil.decryptToTempFile(bookPath, readPassword, tempDir);
+            decrypted.put(key, path);
+        }
+        return path;
+    }
+    
+    /**
+     * 一時ファイルを作成するフォルダを返します。<br>
+     * 外側のキャッシュを共有する場合は、外側のキャッシュのフォルダを返します。<br>
+     *
+     * @return 一時ファイルを作成するフォルダ
+     */
+    /*package*/ Path tempDir() {
+        return outer == null ? tempDir : outer.tempDir();
+    }
+    
+    /**
+     * 指定されたリソースを、このキャッシュを閉じる際に閉じるように登録します。<br>
+     * 外側のキャッシュを共有する場合は、外側のキャッシュを閉じる際に閉じます。<br>
+     *
+     * @param resource 一時ファイルを保持するリソース
+     * @throws IllegalStateException このキャッシュが既に閉じられている場合
+     */
+    /*package*/ synchronized void register(AutoCloseable resource) {
+        assert resource != null;
+        if (closed) {
+            throw new IllegalStateException("already closed");
+        }
+        
+        if (outer != null) {
+            outer.register(resource);
+        } else {
+            resources.add(resource);
+        }
+    }
+    
+    /**
+     * このキャッシュを閉じ、復号した一時ファイルを削除します。
+     * 登録されたリソースも閉じます。<br>
+     * 削除できなかった一時ファイルは、Java仮想マシンの終了時に削除されます。<br>
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        
+        for (AutoCloseable resource : resources.reversed()) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                // nop
+            }
+        }
+        resources.clear();
+        
+        for (Path path : decrypted.values()) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                path.toFile().deleteOnExit();
+            }
+        }
+        decrypted.clear();
+        
+        if (current.get() == this) {
+            if (outer == null) {
+                current.remove();
+            } else {
+                current.set(outer);
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package xyz.hotchpotch.hogandiff.logic.sax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import xyz.hotchpotch.hogandiff.logic.plain.CellsUtil;
+
+/**
+ * 数式文字列に含まれる相対参照を、指定された行数・列数だけずらすユーティリティクラスです。<br>
+ * .xlsx/.xlsm 形式のExcelブックの共有数式（{@code <f t="shared">}）を、
+ * 共有数式の基点セル以外のセルの数式に展開するために利用します。<br>
+ * <br>
+ * 数式を構文解析するのではなく字句の並びとして扱い、
+ * 文字列リテラル、引用符で囲まれたシート名、構造化参照、関数名、シート名、エラー値を除く
+ * セル参照（{@code A1}, {@code $A1}, {@code A$1}）と、範囲の端点としての
+ * 列参照（{@code A:B}）、行参照（{@code 1:2}）だけを書き換えます。
+ * 参照先がシートの範囲外となった場合は、Excelと同様に {@code #REF!} に置き換えます。<br>
+ *
+ * @author nmby
+ */
+/*package*/ final class FormulaShifter {
+    
+    // [static members] ********************************************************
+    
+    /** .xlsx/.xlsm 形式のワークシートの最大行数 */
+    private static final int MAX_ROWS = 1_048_576;
+    
+    /** .xlsx/.xlsm 形式のワークシートの最大列数 */
+    private static final int MAX_COLUMNS = 16_384;
+    
+    private static final String REF_ERROR = "#REF!";
+    
+    private static final Pattern CELL_REF = Pattern.compile("(\\$?)([A-Za-z]{1,3})(\\$?)([0-9]{1,7})");
+    private static final Pattern COLUMN_REF = Pattern.compile("(\\$?)([A-Za-z]{1,3})");
+    private static final Pattern ROW_REF = Pattern.compile("(\\$?)([0-9]{1,7})");
+    
+    /**
+     * 数式の字句を表す不変クラスです。<br>
+     *
+     * @author nmby
+     * @param text 字句の文字列
+     * @param isWord 名前や参照になり得る字句の場合は {@code true}
+     */
+    private static record Token(String text, boolean isWord) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 数式文字列に含まれる相対参照を、指定された行数・列数だけずらします。<br>
+     *
+     * @param formula 数式文字列
+     * @param dRow ずらす行数
+     * @param dColumn ずらす列数
+     * @return 相対参照をずらした数式文字列
+     */
+    /*package*/ static String shift(String formula, int dRow, int dColumn) {
+        assert formula != null;
+        
+        if (dRow == 0 && dColumn == 0) {
+            return formula;
+        }
+        
+        List<Token> tokens = tokenize(formula);
+        StringBuilder result = new StringBuilder(formula.length() + 8);
+        
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (!token.isWord) {
+                result.append(token.text);
+                continue;
+            }
+            
+            // 関数名と括弧の間には空白が置かれることがあるため、空白の字句を読み飛ばして判定する。
+            int j = i + 1;
+            while (j < tokens.size() && tokens.get(j).text.isBlank()) {
+                j++;
+            }
+            String next = j < tokens.size() ? tokens.get(j).text : "";
+            if (next.startsWith("(") || next.startsWith("!")) {
+                // 関数名またはシート名
+                result.append(token.text);
+                continue;
+            }
+            
+            Matcher cell = CELL_REF.matcher(token.text);
+            if (cell.matches() && isInSheet(
+                    Integer.parseInt(cell.group(4)), CellsUtil.columnStrToIdx(cell.group(2)))) {
+                result.append(shiftCellRef(cell, dRow, dColumn));
+                continue;
+            }
+            
+            if (isRangeEndpoint(tokens, i, COLUMN_REF)) {
+                Matcher column = COLUMN_REF.matcher(token.text);
+                column.matches();
+                result.append(shiftColumnRef(column, dColumn));
+                continue;
+            }
+            if (isRangeEndpoint(tokens, i, ROW_REF)) {
+                Matcher row = ROW_REF.matcher(token.text);
+                row.matches();
+                result.append(shiftRowRef(row, dRow));
+                continue;
+            }
+            
+            result.append(token.text);
+        }
+        return result.toString();
+    }
+    
+    /**
+     * 数式文字列を字句に分解します。<br>
+     *
+     * @param formula 数式文字列
+     * @return 字句のリスト
+     */
+    private static List<Token> tokenize(String formula) {
+        List<Token> tokens = new ArrayList<>();
+        int len = formula.length();
+        int i = 0;
+        
+        while (i < len) {
+            char c = formula.charAt(i);
+            int start = i;
+            
+            if (c == '"' || c == '\'') {
+                // 文字列リテラルまたは引用符で囲まれたシート名。引用符の二重化はエスケープ。
+                i++;
+                while (i < len) {
+                    if (formula.charAt(i) == c) {
+                        if (i + 1 < len && formula.charAt(i + 1) == c) {
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    i++;
+                }
+                tokens.add(new Token(formula.substring(start, i), false));
+                
+            } else if (c == '[') {
+                // 構造化参照または外部ブック参照。入れ子の角括弧を含めて読み飛ばす。
+                int depth = 0;
+                while (i < len) {
+                    char ch = formula.charAt(i);
+                    if (ch == '[') {
+                        depth++;
+                    } else if (ch == ']') {
+                        depth--;
+                    }
+                    i++;
+                    if (depth == 0) {
+                        break;
+                    }
+                }
+                tokens.add(new Token(formula.substring(start, i), false));
+                
+            } else if (c == '#') {
+                // エラー値（#REF!, #N/A, #DIV/0! など）
+                i++;
+                while (i < len && isErrorChar(formula.charAt(i))) {
+                    i++;
+                }
+                tokens.add(new Token(formula.substring(start, i), false));
+                
+            } else if (isWordChar(c)) {
+                while (i < len && isWordChar(formula.charAt(i))) {
+                    i++;
+                }
+                tokens.add(new Token(formula.substring(start, i), true));
+                
+            } else {
+                // 演算子、区切り文字、空白など。空白は関数名の判定のため後続の字句と区別しておく。
+                i++;
+                while (i < len && Character.isWhitespace(formula.charAt(i)) && Character.isWhitespace(c)) {
+                    i++;
+                }
+                tokens.add(new Token(formula.substring(start, i), false));
+            }
+        }
+        return tokens;
+    }
+    
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$' || c == '\\';
+    }
+    
+    private static boolean isErrorChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '/' || c == '!' || c == '?' || c == '_';
+    }
+    
+    /**
+     * 指定された位置の字句が、{@code A:B} や {@code 1:2} のような範囲の端点であるかを返します。<br>
+     *
+     * @param tokens 字句のリスト
+     * @param i 字句の位置
+     * @param pattern 端点の形式
+     * @return 範囲の端点である場合は {@code true}
+     */
+    private static boolean isRangeEndpoint(List<Token> tokens, int i, Pattern pattern) {
+        if (!pattern.matcher(tokens.get(i).text).matches()) {
+            return false;
+        }
+        if (i + 2 < tokens.size()
+                && ":".equals(tokens.get(i + 1).text)
+                && tokens.get(i + 2).isWord
+                && pattern.matcher(tokens.get(i + 2).text).matches()) {
+            return true;
+        }
+        return 2 <= i
+                && ":".equals(tokens.get(i - 1).text)
+                && tokens.get(i - 2).isWord
+                && pattern.matcher(tokens.get(i - 2).text).matches();
+    }
+    
+    /**
+     * 指定された行番号（1 開始）と列インデックス（0 開始）がシートの範囲内であるかを返します。<br>
+     * 範囲外のものは、セル参照に似た名前（{@code ZZZ1} など）と判断します。<br>
+     *
+     * @param row 行番号（1 開始）
+     * @param column 列インデックス（0 開始）
+     * @return シートの範囲内である場合は {@code true}
+     */
+    private static boolean isInSheet(int row, int column) {
+        return 0 <= column && column < MAX_COLUMNS && 1 <= row && row <= MAX_ROWS;
+    }
+    
+    private static String shiftCellRef(Matcher cell, int dRow, int dColumn) {
+        boolean absColumn = !cell.group(1).isEmpty();
+        boolean absRow = !cell.group(3).isEmpty();
+        int column = CellsUtil.columnStrToIdx(cell.group(2)) + (absColumn ? 0 : dColumn);
+        int row = Integer.parseInt(cell.group(4)) + (absRow ? 0 : dRow);
+        
+        if (!isInSheet(row, column)) {
+            return REF_ERROR;
+        }
+        return cell.group(1) + CellsUtil.columnIdxToStr(column) + cell.group(3) + row;
+    }
+    
+    private static String shiftColumnRef(Matcher columnRef, int dColumn) {
+        if (!columnRef.group(1).isEmpty()) {
+            return columnRef.group();
+        }
+        int column = CellsUtil.columnStrToIdx(columnRef.group(2)) + dColumn;
+        
+        return !isInSheet(1, column)
+                ? REF_ERROR
+                : CellsUtil.columnIdxToStr(column);
+    }
+    
+    private static String shiftRowRef(Matcher rowRef, int dRow) {
+        if (!rowRef.group(1).isEmpty()) {
+            return rowRef.group();
+        }
+        int row = Integer.parseInt(rowRef.group(2)) + dRow;
+        
+        return !isInSheet(row, 0)
+                ? REF_ERROR
+                : Integer.toString(row);
+    }
+    
+    // [instance members] ******************************************************
+    
+    private FormulaShifter() {
+    }
+}
@@ -0,0 +1,700 @@
+package xyz.hotchpotch.hogandiff.logic.sax;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import xyz.hotchpotch.hogandiff.util.function.UnsafeFunction;
+
+/**
+ * .xlsx/.xlsm 形式のExcelブックの Shared Strings（{@code xl/sharedStrings.xml}）を、
+ * 参照されたものだけ遅延して復号するリストです。<br>
+ * <br>
+ * 最初にエントリの内容をバッファに退避しながら各 si 要素の開始位置（バイトオフセット）だけを記録し、
+ * 文字列は初めて参照された時点でその範囲だけを復号してキャッシュします。
+ * 復号の規則は SAX による読み取りと同じで、si 要素直下および r 要素（リッチテキストの書式範囲）配下の
+ * t 要素のテキストを連結し、rPh 要素（フリガナ）配下のテキストは含めません。<br>
+ * 巨大なデータシートを持つ一方で比較対象のシートはその一部しか参照しないExcelブックでは、
+ * 全ての文字列を実体化する場合と比べてメモリ使用量を大きく削減できます。<br>
+ * <br>
+ * バッファは {@value #SPILL_THRESHOLD} バイトまではヒープ上に保持し、
+ * それを超える場合は指定された作業用フォルダの一時ファイルに退避します。
+ * 一時ファイルは {@link #close()} の際に削除されます。<br>
+ * 複数の処理で共有する場合は、処理ごとに {@link #acquire()} と {@link #release()} で利用を宣言します。
+ * 利用中の処理がある間に {@link #close()} された場合は、全ての処理が利用を終えた時点で一時ファイルを削除します。<br>
+ * このクラスは、要素の参照に関してスレッドセーフです。<br>
+ *
+ * @author nmby
+ */
+/*package*/ final class LazySharedStrings extends AbstractList<String> implements RandomAccess, AutoCloseable {
+    
+    // [static members] ********************************************************
+    
+    /** バッファを一時ファイルに退避する閾値（バイト） */
+    private static final int SPILL_THRESHOLD = 8 * 1024 * 1024;
+    
+    private static final int CHUNK_SIZE = 64 * 1024;
+    
+    /**
+     * 退避したエントリの内容を保持するバッファです。<br>
+     *
+     * @author nmby
+     */
+    private static interface Buffer {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        /**
+         * 指定された範囲のバイト列を返します。<br>
+         *
+         * @param offset 開始位置
+         * @param length 長さ
+         * @return バイト列
+         * @throws IOException 入出力エラーが発生した場合
+         */
+        byte[] read(long offset, int length) throws IOException;
+        
+        /**
+         * バッファの全体を読み取る入力ストリームを返します。<br>
+         *
+         * @return 入力ストリーム
+         * @throws IOException 入出力エラーが発生した場合
+         */
+        InputStream openStream() throws IOException;
+        
+        /**
+         * バッファを破棄します。<br>
+         */
+        void close();
+    }
+    
+    /**
+     * ヒープ上のバイト配列によるバッファです。<br>
+     *
+     * @author nmby
+     */
+    private static record HeapBuffer(byte[] bytes, int size) implements Buffer {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        @Override
+        public byte[] read(long offset, int length) {
+            return Arrays.copyOfRange(bytes, (int) offset, (int) offset + length);
+        }
+        
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(bytes, 0, size);
+        }
+        
+        @Override
+        public void close() {
+            // nop
+        }
+    }
+    
+    /**
+     * 一時ファイルによるバッファです。<br>
+     * 一時ファイルはバッファを破棄する際に、チャネルを閉じてから削除します。
+     * 削除できなかった場合は、Java仮想マシンの終了時に削除されます。<br>
+     *
+     * @author nmby
+     */
+    private static record FileBuffer(Path path, FileChannel channel) implements Buffer {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        @Override
+        public byte[] read(long offset, int length) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(length);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, offset + buf.position()) < 0) {
+                    throw new IOException("unexpected end of buffer");
+                }
+            }
+            return buf.array();
+        }
+        
+        @Override
+        public InputStream openStream() throws IOException {
+            // 位置を共有しないよう、複製したチャネルではなく位置指定の読み取りを用いる。
+            return new InputStream() {
+                private long pos = 0;
+                
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+                }
+                
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = channel.read(ByteBuffer.wrap(b, off, len), pos);
+                    if (0 < n) {
+                        pos += n;
+                    }
+                    return n;
+                }
+            };
+        }
+        
+        @Override
+        public void close() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                path.toFile().deleteOnExit();
+            }
+        }
+    }
+    
+    /**
+     * エントリの内容をバッファに退避しながら si 要素の開始位置を記録するスキャナーです。<br>
+     * 要素名の名前空間接頭辞は無視し、コメント、CDATAセクション、処理命令の中は読み飛ばします。<br>
+     *
+     * @author nmby
+     */
+    private static class Scanner {
+        
+        // [static members] ----------------------------------------------------
+        
+        private static final int TEXT = 0;
+        private static final int TAG_NAME = 1;
+        private static final int IN_TAG = 2;
+        private static final int IN_QUOTE = 3;
+        private static final int SPECIAL = 4;
+        
+        private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] PI_END = "?>".getBytes(StandardCharsets.US_ASCII);
+        
+        private static final int MAX_NAME = 16;
+        
+        // [instance members] --------------------------------------------------
+        
+        private final byte[] name = new byte[MAX_NAME];
+        
+        private int state = TEXT;
+        private int nameLen;
+        private long tagStart;
+        private byte quote;
+        private byte[] specialEnd;
+        private int specialMatched;
+        
+        private long[] offsets = new long[1024];
+        private int count;
+        
+        private void feed(byte[] buf, int len, long base) {
+            for (int i = 0; i < len; i++) {
+                byte b = buf[i];
+                
+                switch (state) {
+                case TEXT:
+                    if (b == '<') {
+                        state = TAG_NAME;
+                        nameLen = 0;
+                        tagStart = base + i;
+                    }
+                    break;
+                
+                case TAG_NAME:
+                    if (nameLen == 0 && (b == '?' || b == '!')) {
+                        name[nameLen++] = b;
+                        if (b == '?') {
+                            startSpecial(PI_END);
+                        }
+                    } else if (0 < nameLen && name[0] == '!') {
+                        // "<!--" または "<![CDATA[" の判定
+                        name[nameLen++] = b;
+                        if (nameLen == 3 && name[1] == '-' && name[2] == '-') {
+                            startSpecial(COMMENT_END);
+                        } else if (nameLen == 8 && name[1] == '[') {
+                            startSpecial(CDATA_END);
+                        } else if (nameLen == MAX_NAME) {
+                            state = IN_TAG;
+                        }
+                    } else if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '>' || b == '/') {
+                        if (isSi()) {
+                            addOffset(tagStart);
+                        }
+                        state = b == '>' ? TEXT : IN_TAG;
+                    } else if (nameLen < MAX_NAME) {
+                        name[nameLen++] = b;
+                    } else {
+                        state = IN_TAG;
+                    }
+                    break;
+                
+                case IN_TAG:
+                    if (b == '"' || b == '\'') {
+                        quote = b;
+                        state = IN_QUOTE;
+                    } else if (b == '>') {
+                        state = TEXT;
+                    }
+                    break;
+                
+                case IN_QUOTE:
+                    if (b == quote) {
+                        state = IN_TAG;
+                    }
+                    break;
+                
+                case SPECIAL:
+                    if (b == specialEnd[specialMatched]) {
+                        specialMatched++;
+                        if (specialMatched == specialEnd.length) {
+                            state = TEXT;
+                        }
+                    } else if (specialMatched == 2 && b == specialEnd[0] && specialEnd[0] == specialEnd[1]) {
+                        // "--->" や "]]]>" のように終端の先頭文字が続く場合
+                    } else {
+                        specialMatched = b == specialEnd[0] ? 1 : 0;
+                    }
+                    break;
+                
+                default:
+                    throw new AssertionError(state);
+                }
+            }
+        }
+        
+        private void startSpecial(byte[] end) {
+            state = SPECIAL;
+            specialEnd = end;
+            specialMatched = 0;
+        }
+        
+        /**
+         * 読み取った要素名のローカル名が {@code si} であるかを返します。<br>
+         *
+         * @return ローカル名が {@code si} の場合は {@code true}
+         */
+        private boolean isSi() {
+            int start = 0;
+            for (int i = 0; i < nameLen; i++) {
+                if (name[i] == ':') {
+                    start = i + 1;
+                }
+            }
+            return nameLen - start == 2 && name[start] == 's' && name[start + 1] == 'i';
+        }
+        
+        private void addOffset(long offset) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+        }
+    }
+    
+    /**
+     * 指定された入力ストリームから Shared Strings のエントリの内容を読み取り、
+     * 遅延して復号するリストを返します。<br>
+     * エントリの文字エンコーディングが UTF-8 以外の場合は、退避した内容を {@code fallback} で読み取ります。<br>
+     * {@code spillDir} が {@code null} の場合は、一時ファイルに退避せずに全てヒープ上に保持します。<br>
+     * 返されたリストが {@link LazySharedStrings} の場合は、不要になった時点で必ず {@link #close()} してください。<br>
+     *
+     * @param is Shared Strings のエントリの内容を読み取る入力ストリーム
+     * @param fallback UTF-8 以外の場合に退避した内容から Shared Strings を読み取る関数
+     * @param spillDir 一時ファイルを作成する作業用フォルダ
+     * @return Shared Strings
+     * @throws Exception 処理に失敗した場合
+     */
+    /*package*/ static List<String> of(
+            InputStream is,
+            UnsafeFunction<InputStream, List<String>, Exception> fallback,
+            Path spillDir)
+            throws Exception {
+        
+        assert is != null;
+        assert fallback != null;
+        
+        Scanner scanner = new Scanner();
+        byte[] heap = new byte[CHUNK_SIZE];
+        int heapSize = 0;
+        Path tmp = null;
+        FileChannel channel = null;
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long total = 0;
+        int n;
+        
+        try {
+            while ((n = is.readNBytes(chunk, 0, CHUNK_SIZE)) > 0) {
+                scanner.feed(chunk, n, total);
+                
+                if (channel == null && spillDir != null && SPILL_THRESHOLD < heapSize + n) {
+                    tmp = SaxUtil.createOwnerOnlyTempFile(spillDir, "sharedStrings-", ".xml");
+                    channel = FileChannel.open(tmp,
+                            StandardOpenOption.READ,
+                            StandardOpenOption.WRITE);
+                    writeFully(channel, heap, heapSize);
+                    heap = null;
+                }
+                if (channel == null) {
+                    if (heap.length < heapSize + n) {
+                        heap = Arrays.copyOf(heap, Math.max(heap.length * 2, heapSize + n));
+                    }
+                    System.arraycopy(chunk, 0, heap, heapSize, n);
+                    heapSize += n;
+                } else {
+                    writeFully(channel, chunk, n);
+                }
+                total += n;
+            }
+        } catch (Exception e) {
+            if (channel != null) {
+                new FileBuffer(tmp, channel).close();
+            } else if (tmp != null) {
+                Files.deleteIfExists(tmp);
+            }
+            throw e;
+        }
+        
+        Buffer buffer = channel == null ? new HeapBuffer(heap, heapSize) : new FileBuffer(tmp, channel);
+        
+        if (!isUtf8(buffer.read(0, (int) Math.min(total, 256)))) {
+            try (InputStream spooled = buffer.openStream()) {
+                return fallback.apply(spooled);
+            } finally {
+                buffer.close();
+            }
+        }
+        
+        return new LazySharedStrings(buffer, scanner.offsets, scanner.count, total);
+    }
+    
+    /**
+     * 指定された入力ストリームから Shared Strings のエントリの内容を読み取り、
+     * 一時ファイルに退避せずに遅延して復号するリストを返します。<br>
+     *
+     * @param is Shared Strings のエントリの内容を読み取る入力ストリーム
+     * @param fallback UTF-8 以外の場合に退避した内容から Shared Strings を読み取る関数
+     * @return Shared Strings
+     * @throws Exception 処理に失敗した場合
+     */
+    /*package*/ static List<String> of(
+            InputStream is,
+            UnsafeFunction<InputStream, List<String>, Exception> fallback)
+            throws Exception {
+        
+        return of(is, fallback, null);
+    }
+    
+    private static void writeFully(FileChannel channel, byte[] bytes, int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(bytes, 0, len);
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+    
+    /**
+     * XML宣言とバイト順マークから、文字エンコーディングが UTF-8 であるかを判定します。<br>
+     *
+     * @param head エントリの先頭のバイト列
+     * @return UTF-8 の場合は {@code true}
+     */
+    private static boolean isUtf8(byte[] head) {
+        if (2 <= head.length && ((head[0] == (byte) 0xFE && head[1] == (byte) 0xFF)
+                || (head[0] == (byte) 0xFF && head[1] == (byte) 0xFE))) {
+            return false;
+        }
+        int bom = 3 <= head.length && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF
+                ? 3
+                : 0;
+        String prolog = new String(head, bom, head.length - bom, StandardCharsets.ISO_8859_1);
+        if (!prolog.startsWith("<?xml")) {
+            // XML宣言もバイト順マークもない場合は UTF-8 とみなす。ただし UTF-16 などの判定のため NUL の有無を確認する。
+            return prolog.indexOf(0) < 0;
+        }
+        int end = prolog.indexOf("?>");
+        String decl = end < 0 ? prolog : prolog.substring(0, end);
+        int idx = decl.indexOf("encoding");
+        if (idx < 0) {
+            return true;
+        }
+        int q1 = decl.indexOf('"', idx) < 0 ? decl.indexOf('\'', idx) : decl.indexOf('"', idx);
+        if (q1 < 0) {
+            return true;
+        }
+        int q2 = decl.indexOf(decl.charAt(q1), q1 + 1);
+        String encoding = q2 < 0 ? "" : decl.substring(q1 + 1, q2);
+        return "UTF-8".equalsIgnoreCase(encoding) || "UTF8".equalsIgnoreCase(encoding);
+    }
+    
+    /**
+     * si 要素1つ分のXML断片から文字列を復号します。<br>
+     *
+     * @param fragment si 要素で始まるXML断片
+     * @return 復号した文字列
+     */
+    /*package*/ static String decode(String fragment) {
+        // XMLの改行の正規化。文字参照（&#13; など）は正規化の対象外のため、参照の解決より前に行う。
+        String xml = fragment.indexOf('\r') < 0
+                ? fragment
+                : fragment.replace("\r\n", "\n").replace('\r', '\n');
+        
+        StringBuilder text = new StringBuilder();
+        String[] stack = new String[8];
+        int depth = 0;
+        boolean capturing = false;
+        int len = xml.length();
+        int i = 0;
+        
+        while (i < len) {
+            char c = xml.charAt(i);
+            
+            if (c != '<') {
+                int end = xml.indexOf('<', i);
+                if (end < 0) {
+                    end = len;
+                }
+                if (capturing) {
+                    appendUnescaped(text, xml, i, end);
+                }
+                i = end;
+                
+            } else if (xml.startsWith("<!--", i)) {
+                int end = xml.indexOf("-->", i + 4);
+                i = end < 0 ? len : end + 3;
+                
+            } else if (xml.startsWith("<![CDATA[", i)) {
+                int end = xml.indexOf("]]>", i + 9);
+                if (end < 0) {
+                    end = len;
+                }
+                if (capturing) {
+                    text.append(xml, i + 9, end);
+                }
+                i = end + 3;
+                
+            } else if (xml.startsWith("<?", i)) {
+                int end = xml.indexOf("?>", i + 2);
+                i = end < 0 ? len : end + 2;
+                
+            } else if (xml.startsWith("</", i)) {
+                int end = xml.indexOf('>', i);
+                if (end < 0) {
+                    end = len;
+                }
+                String local = localName(xml.substring(i + 2, end).strip());
+                if ("t".equals(local)) {
+                    capturing = false;
+                }
+                depth--;
+                if (depth <= 0) {
+                    break;
+                }
+                i = end + 1;
+                
+            } else {
+                int nameEnd = i + 1;
+                while (nameEnd < len && !isNameEnd(xml.charAt(nameEnd))) {
+                    nameEnd++;
+                }
+                String local = localName(xml.substring(i + 1, nameEnd));
+                
+                // 属性値には '>' が含まれ得るため、引用符を考慮してタグの終わりを探す。
+                int end = nameEnd;
+                char quote = 0;
+                while (end < len) {
+                    char ch = xml.charAt(end);
+                    if (quote != 0) {
+                        if (ch == quote) {
+                            quote = 0;
+                        }
+                    } else if (ch == '"' || ch == '\'') {
+                        quote = ch;
+                    } else if (ch == '>') {
+                        break;
+                    }
+                    end++;
+                }
+                boolean selfClosing = 0 < end && xml.charAt(end - 1) == '/';
+                
+                if (selfClosing) {
+                    if (depth == 0) {
+                        break;
+                    }
+                } else {
+                    String parent = depth == 0 ? null : stack[depth - 1];
+                    if ("t".equals(local) && ("si".equals(parent) || "r".equals(parent))) {
+                        capturing = true;
+                    }
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = local;
+                }
+                i = end + 1;
+            }
+        }
+        return text.toString();
+    }
+    
+    private static boolean isNameEnd(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '>' || c == '/';
+    }
+    
+    private static String localName(String qName) {
+        int idx = qName.indexOf(':');
+        return idx < 0 ? qName : qName.substring(idx + 1);
+    }
+    
+    /**
+     * 実体参照と文字参照を解決しながらテキストを追加します。<br>
+     *
+     * @param text 追加先
+     * @param xml XML断片
+     * @param start 開始位置
+     * @param end 終了位置
+     */
+    private static void appendUnescaped(StringBuilder text, String xml, int start, int end) {
+        int i = start;
+        while (i < end) {
+            int amp = xml.indexOf('&', i);
+            if (amp < 0 || end <= amp) {
+                text.append(xml, i, end);
+                return;
+            }
+            text.append(xml, i, amp);
+            int semi = xml.indexOf(';', amp);
+            if (semi < 0 || end <= semi) {
+                text.append(xml, amp, end);
+                return;
+            }
+            String ref = xml.substring(amp + 1, semi);
+            switch (ref) {
+            case "amp" -> text.append('&');
+            case "lt" -> text.append('<');
+            case "gt" -> text.append('>');
+            case "quot" -> text.append('"');
+            case "apos" -> text.append('\'');
+            default -> {
+                if (ref.startsWith("#x") || ref.startsWith("#X")) {
+                    text.appendCodePoint(Integer.parseInt(ref, 2, ref.length(), 16));
+                } else if (ref.startsWith("#")) {
+                    text.appendCodePoint(Integer.parseInt(ref, 1, ref.length(), 10));
+                } else {
+                    text.append(xml, amp, semi + 1);
+                }
+            }
+            }
+            i = semi + 1;
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final Buffer buffer;
+    private final long[] offsets;
+    private final int size;
+    private final long total;
+    private final String[] cache;
+    private int users;
+    private boolean closing;
+    private boolean closed;
+    
+    private LazySharedStrings(Buffer buffer, long[] offsets, int size, long total) {
+        assert buffer != null;
+        assert offsets != null;
+        assert 0 <= size && size <= offsets.length;
+        
+        this.buffer = buffer;
+        this.offsets = offsets;
+        this.size = size;
+        this.total = total;
+        this.cache = new String[size];
+    }
+    
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException 一時ファイルの読み取りに失敗した場合
+     */
+    @Override
+    public String get(int index) {
+        Objects.checkIndex(index, size);
+        
+        String str = cache[index];
+        if (str == null) {
+            long start = offsets[index];
+            long end = index + 1 < size ? offsets[index + 1] : total;
+            try {
+                byte[] bytes = buffer.read(start, Math.toIntExact(end - start));
+                str = decode(new String(bytes, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // 複数のスレッドで同時に復号されることがあり得るが、結果は同じであるため問題ない。
+            cache[index] = str;
+        }
+        return str;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * このリストの利用を開始します。<br>
+     * 利用を終えた時点で必ず {@link #release()} してください。<br>
+     *
+     * @return 利用を開始できた場合は {@code true}、既に {@link #close()} されていた場合は {@code false}
+     */
+    /*package*/ synchronized boolean acquire() {
+        if (closing) {
+            return false;
+        }
+        users++;
+        return true;
+    }
+    
+    /**
+     * このリストの利用を終了します。<br>
+     * 既に {@link #close()} されており、他に利用中の処理が無い場合は、一時ファイルを削除します。<br>
+     */
+    /*package*/ synchronized void release() {
+        assert 0 < users;
+        
+        users--;
+        closeIfUnused();
+    }
+    
+    /**
+     * このリストを閉じ、一時ファイルを削除します。<br>
+     * 利用中の処理がある場合は、全ての処理が利用を終えた時点で削除します。<br>
+     */
+    @Override
+    public synchronized void close() {
+        closing = true;
+        closeIfUnused();
+    }
+    
+    private void closeIfUnused() {
+        if (closing && users == 0 && !closed) {
+            closed = true;
+            buffer.close();
+        }
+    }
+}
@@ -5,14 +5,24 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import javax.xml.parsers.SAXParser;
@@ -24,6 +34,7 @@ import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.xml.sax.Attributes;
 import org.xml.sax.helpers.DefaultHandler;
 
+import xyz.hotchpotch.hogandiff.logic.BatchCache;
 import xyz.hotchpotch.hogandiff.logic.BookHandler;
 import xyz.hotchpotch.hogandiff.logic.BookType;
 import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
@@ -372,7 +383,9 @@ public class SaxUtil {
     }
     
     /**
-     * *.xlsx/*.xlsm 形式のExcelファイルをZipファイルとして処理するためのユーティリティメソッドです。<br>
+     * *.xlsx/*.xlsm/*.xlsb 形式のExcelファイルをZipファイルとして処理するためのユーティリティメソッドです。<br>
+     * 読み取りパスワードが指定された場合、現在のスレッドで {@link DecryptedBookCache} が開かれていれば
+     * 復号済みの一時ファイルを利用します。<br>
      * {@code processor} が例外をスローした場合、このメソッドは
      * スローされた例外が {@link ExcelHandlingException} とそのサブタイプの場合はそのままスローし、
      * それ以外の例外の場合は {@link ExcelHandlingException} でラップしてスローします。<br>
@@ -402,8 +415,16 @@ public class SaxUtil {
         // readPassword may be null
         Objects.requireNonNull(processor);
         
-        if (readPassword == null) {
-            try (InputStream is = Files.newInputStream(bookPath);
+        Optional<DecryptedBookCache> cache = readPassword == null
+                ? Optional.empty()
+                : DecryptedBookCache.current();
+        
+        if (readPassword == null || cache.isPresent()) {
+            Path zipPath = readPassword == null
+                    ? bookPath
+                    : cache.get().decryptedPath(bookPath, readPassword);
+            
+            try (InputStream is = Files.newInputStream(zipPath);
                     ZipInputStream zis = new ZipInputStream(is)) {
                 
                 return processor.apply(zis);
@@ -440,6 +461,98 @@ public class SaxUtil {
         }
     }
     
+    /**
+     * 暗号化された .xlsx/.xlsm/.xlsb 形式のExcelブックを復号し、指定されたフォルダの一時ファイルに保存します。<br>
+     * 一時ファイルは、復号した内容を書き込む前に所有者だけが読み書きできるようにします。<br>
+     * 一時ファイルの削除は呼び出し側の責任で行ってください。<br>
+     * 
+     * @param bookPath
+     *            Excelブックのパス
+     * @param readPassword
+     *            読取パスワード
+     * @param tempDir
+     *            一時ファイルを作成するフォルダ
+     * @return 復号したExcelブックを保存した一時ファイルのパス
+     * @throws ExcelHandlingException
+     *             処理に失敗した場合
+     */
+    /*package*/ static Path decryptToTempFile(
+            Path bookPath,
+            String readPassword,
+            Path tempDir)
+            throws ExcelHandlingException {
+        
+        assert bookPath != null;
+        assert readPassword != null;
+        assert tempDir != null;
+        
+        Path tmp = null;
+        try (InputStream is = Files.newInputStream(bookPath);
+                POIFSFileSystem poifs = new POIFSFileSystem(is)) {
+            
+            EncryptionInfo encInfo = new EncryptionInfo(poifs);
+            Decryptor decryptor = Decryptor.getInstance(encInfo);
+            if (!decryptor.verifyPassword(readPassword)) {
+                throw new PasswordHandlingException();
+            }
+            
+            String fileName = bookPath.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            tmp = createOwnerOnlyTempFile(tempDir, "decrypted-", dot < 0 ? null : fileName.substring(dot));
+            tmp.toFile().deleteOnExit();
+            
+            try (InputStream decryptedIs = decryptor.getDataStream(poifs)) {
+                Files.copy(decryptedIs, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return tmp;
+            
+        } catch (Exception e) {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e2) {
+                    e.addSuppressed(e2);
+                }
+            }
+            if (e instanceof ExcelHandlingException ee) {
+                throw ee;
+            }
+            throw new ExcelHandlingException(
+                    "failed to decrypt the book : %s".formatted(bookPath), e);
+        }
+    }
+    
+    /**
+     * 所有者だけが読み書きできる空の一時ファイルを、指定されたフォルダに作成します。<br>
+     * POSIX のファイル属性を扱えるファイルシステムではパーミッションを、
+     * そうでない場合は ACL を、それぞれ所有者のみに制限します。<br>
+     */
+    /*package*/ static Path createOwnerOnlyTempFile(Path dir, String prefix, String suffix) throws IOException {
+        Files.createDirectories(dir);
+        
+        if (dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            FileAttribute<?> ownerOnly = PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------"));
+            return Files.createTempFile(dir, prefix, suffix, ownerOnly);
+        }
+        
+        Path tmp = Files.createTempFile(dir, prefix, suffix);
+        AclFileAttributeView view = Files.getFileAttributeView(tmp, AclFileAttributeView.class);
+        if (view != null) {
+            try {
+                view.setAcl(List.of(AclEntry.newBuilder()
+                        .setType(AclEntryType.ALLOW)
+                        .setPrincipal(Files.getOwner(tmp))
+                        .setPermissions(EnumSet.allOf(AclEntryPermission.class))
+                        .build()));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+        }
+        return tmp;
+    }
+    
     /**
      * .xlsx/.xlsm 形式のExcelブックからシート情報の一覧を読み取ります。<br>
      * 
@@ -526,6 +639,11 @@ public class SaxUtil {
     
     /**
      * .xlsx/.xlsm 形式のExcelブックから Shared Strings を読み取ります。<br>
+     * 返されるリストは各文字列を初めて参照された時点で復号します。
+     * 現在のスレッドで {@link DecryptedBookCache} が開かれている場合は、そのフォルダを作業用フォルダとして
+     * 大きな Shared Strings を一時ファイルに退避し、{@link DecryptedBookCache} を閉じる際に削除します。<br>
+     * {@link BatchCache} が開かれている場合は、キャッシュ済みの読み込み結果を返します。
+     * この場合の一時ファイルは、{@link BatchCache} から破棄され、かつ利用中の処理が無くなった時点で削除します。<br>
      * 
      * @param bookPath
      *            Excelブックのパス
@@ -548,6 +666,41 @@ public class SaxUtil {
         // readPassword may be null.
         CommonUtil.ifNotSupportedBookTypeThenThrow(SaxUtil.class, BookType.of(bookPath));
         
+        Optional<DecryptedBookCache> scope = DecryptedBookCache.current();
+        Path spillDir = scope.map(DecryptedBookCache::tempDir).orElse(null);
+        
+        Optional<BatchCache> cache = BatchCache.current();
+        if (cache.isEmpty()) {
+            List<String> sst = readSharedStrings(bookPath, readPassword, spillDir);
+            if (sst instanceof LazySharedStrings lazy && scope.isPresent()) {
+                scope.get().register(lazy);
+            }
+            return sst;
+        }
+        
+        // キャッシュ済みの読み込み結果は他の処理と共有するため、一連の処理の間だけ利用を宣言する。
+        // 利用を宣言する前にキャッシュから破棄されて閉じられた場合は、改めて読み込む。
+        while (true) {
+            List<String> sst = cache.get().sharedStrings(
+                    bookPath,
+                    readPassword,
+                    () -> readSharedStrings(bookPath, readPassword, spillDir));
+            if (!(sst instanceof LazySharedStrings lazy) || scope.isEmpty()) {
+                return sst;
+            }
+            if (lazy.acquire()) {
+                scope.get().register(lazy::release);
+                return sst;
+            }
+        }
+    }
+    
+    private static List<String> readSharedStrings(
+            Path bookPath,
+            String readPassword,
+            Path spillDir)
+            throws ExcelHandlingException {
+        
         UnsafeFunction<ZipInputStream, List<String>, Exception> processor = zis -> {
             SAXParserFactory factory = SAXParserFactory.newInstance();
             factory.setNamespaceAware(true);
@@ -557,8 +710,10 @@ public class SaxUtil {
             
             while ((entry = zis.getNextEntry()) != null) {
                 if (Handler4.isTarget(entry.getName())) {
-                    parser.parse(zis, handler4);
-                    return handler4.sst;
+                    return LazySharedStrings.of(zis, is -> {
+                        parser.parse(is, handler4);
+                        return handler4.sst;
+                    }, spillDir);
                 }
             }
             return List.of();
@@ -567,6 +722,86 @@ public class SaxUtil {
         return processExcelAsZip(bookPath, readPassword, processor);
     }
     
+    /**
+     * 暗号化されていない .xlsx/.xlsm 形式のExcelブックについて、シート名に対するシートごとのダイジェストを返します。<br>
+     * ダイジェストは、シートのソースエントリ、セルコメントのソースエントリ、Shared Strings およびスタイルのエントリについて、
+     * zipファイルのセントラルディレクトリに記録された CRC-32 とサイズから求めます。
+     * 各シートの内容を展開せずに求めるため、シートの内容が変更されたかを安価に判定するために利用できます。<br>
+     * 
+     * @param bookPath
+     *            Excelブックのパス
+     * @return シート名に対するダイジェスト
+     * @throws NullPointerException
+     *             {@code bookPath} が {@code null} の場合
+     * @throws IllegalArgumentException
+     *             {@code bookPath} がサポート対象外の形式の場合
+     * @throws ExcelHandlingException
+     *             処理に失敗した場合
+     */
+    public static Map<String, String> loadSheetDigests(Path bookPath) throws ExcelHandlingException {
+        Objects.requireNonNull(bookPath);
+        CommonUtil.ifNotSupportedBookTypeThenThrow(SaxUtil.class, BookType.of(bookPath));
+        
+        try (ZipFile zip = new ZipFile(bookPath.toFile())) {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            SAXParser parser = factory.newSAXParser();
+            Handler1 handler1 = new Handler1();
+            Handler2 handler2 = new Handler2();
+            
+            parse(zip, "xl/workbook.xml", parser, handler1);
+            parse(zip, "xl/_rels/workbook.xml.rels", parser, handler2);
+            
+            Map<String, String> digests = new HashMap<>();
+            for (Handler1.SheetNameAndId sheetNameAndId : handler1.sheetNameAndId) {
+                String source = handler2.idToSource.get(sheetNameAndId.id);
+                if (source == null) {
+                    continue;
+                }
+                source = source.startsWith("/") ? source.substring(1) : source;
+                Handler3 handler3 = new Handler3();
+                parse(zip, Handler3.entryFor(source), parser, handler3);
+                
+                StringBuilder digest = new StringBuilder();
+                for (String entryName : new String[] {
+                        source,
+                        handler3.commentSource,
+                        "xl/sharedStrings.xml",
+                        "xl/styles.xml" }) {
+                    
+                    ZipEntry entry = entryName == null ? null : zip.getEntry(entryName);
+                    digest.append(entry == null
+                            ? "-;"
+                            : "%s=%08x:%d;".formatted(entryName, entry.getCrc(), entry.getSize()));
+                }
+                digests.put(sheetNameAndId.sheetName, digest.toString());
+            }
+            return digests;
+            
+        } catch (Exception e) {
+            throw new ExcelHandlingException(
+                    "failed to load the book : %s".formatted(bookPath), e);
+        }
+    }
+    
+    /**
+     * zipファイルの指定されたエントリが存在する場合に、指定されたハンドラで解析します。<br>
+     */
+    private static void parse(
+            ZipFile zip,
+            String entryName,
+            SAXParser parser,
+            DefaultHandler handler)
+            throws Exception {
+        
+        ZipEntry entry = zip.getEntry(entryName);
+        if (entry != null) {
+            try (InputStream is = zip.getInputStream(entry)) {
+                parser.parse(is, handler);
+            }
+        }
+    }
+    
     // [instance members] ******************************************************
     
     private SaxUtil() {
@@ -0,0 +1,519 @@
+package xyz.hotchpotch.hogandiff.logic.sax;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import xyz.hotchpotch.hogandiff.logic.BookHandler;
+import xyz.hotchpotch.hogandiff.logic.BookType;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.plain.CellsUtil;
+import xyz.hotchpotch.hogandiff.util.IntPair;
+
+/**
+ * ワークシート（{@code xl/worksheets/sheet?.xml}）の要素の出現を順に通知されることにより、
+ * セルデータを抽出するコレクターです。<br>
+ * XMLの読み取り方式（SAX, StAX）に依存しない部分、すなわちセル値の解釈や
+ * 共有数式・配列数式の展開を受け持ちます。
+ * 要素の読み取り側は、xmlns = {@code "http://schemas.openxmlformats.org/spreadsheetml/2006/main"}
+ * の要素についてだけ、対応するメソッドを呼び出します。<br>
+ * <br>
+ * 大きなワークシートでもオブジェクトの生成を最小限に抑えるため、
+ * 読み取り中の要素を整数の状態値で管理し、テキストの読み取りには使い回しのバッファを利用します。
+ * セルアドレス（r 属性）は文字列を経由せず直接行・列のインデックスに変換し、
+ * 抽出したセルデータは直接結果のコンテナに格納します。<br>
+ * このクラスはスレッドセーフではありません。<br>
+ *
+ * @author nmby
+ */
+@BookHandler(targetTypes = { BookType.XLSX, BookType.XLSM })
+public final class WorksheetCellsCollector {
+    
+    // [static members] ********************************************************
+    
+    /** テキストを読み取っていない状態 */
+    private static final int TEXT_NONE = 0;
+    
+    /** v 要素（値）のテキストを読み取っている状態 */
+    private static final int TEXT_V = 1;
+    
+    /** f 要素（数式）のテキストを読み取っている状態 */
+    private static final int TEXT_F = 2;
+    
+    /** is 要素（インライン文字列）配下の t 要素のテキストを読み取っている状態 */
+    private static final int TEXT_T = 3;
+    
+    /**
+     * セルのタイプ、具体的には c 要素の t 属性の種類を表す列挙型です。<br>
+     *
+     * @author nmby
+     * @see <a href="http://officeopenxml.com/SScontentOverview.php">
+     *      http://officeopenxml.com/SScontentOverview.php</a>
+     */
+    private static enum XSSFCellType {
+        
+        // [static members] ----------------------------------------------------
+        
+        /** boolean */
+        b,
+        
+        /** date */
+        d,
+        
+        /** error */
+        e,
+        
+        /** inline string */
+        inlineStr,
+        
+        /** number */
+        n,
+        
+        /** shared string */
+        s,
+        
+        /** formula */
+        str;
+        
+        private static XSSFCellType of(String t) {
+            return t == null ? n : valueOf(t);
+        }
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 共有数式または配列数式の基点セルの数式を表す不変クラスです。<br>
+     *
+     * @author nmby
+     * @param formula 基点セルの数式文字列
+     * @param row 基点セルの行インデックス
+     * @param column 基点セルの列インデックス
+     */
+    private static record MasterFormula(String formula, int row, int column) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    /**
+     * 配列数式の範囲を表す不変クラスです。<br>
+     *
+     * @author nmby
+     * @param master 基点セルの数式
+     * @param lastRow 範囲の最終行インデックス
+     * @param lastColumn 範囲の最終列インデックス
+     */
+    private static record ArrayFormula(MasterFormula master, int lastRow, int lastColumn) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private boolean contains(int row, int column) {
+            return master.row <= row && row <= lastRow
+                    && master.column <= column && column <= lastColumn;
+        }
+    }
+    
+    /**
+     * 基点セルより前に現れた共有数式のセルを表す不変クラスです。<br>
+     *
+     * @author nmby
+     * @param row 行インデックス
+     * @param column 列インデックス
+     * @param sharedIndex 共有数式のインデックス（si 属性）
+     * @param cachedValue 基点セルが最後まで現れなかった場合に代わりに用いる、キャッシュされた計算値
+     */
+    private static record PendingFormula(int row, int column, String sharedIndex, String cachedValue) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+    }
+    
+    private static String shiftedFormula(MasterFormula master, int row, int column) {
+        return FormulaShifter.shift(master.formula, row - master.row, column - master.column);
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final boolean extractCachedValue;
+    private final List<String> sst;
+    
+    /** 抽出したセルデータ */
+    private final Set<CellData> cells;
+    
+    private final StringBuilder vText = new StringBuilder();
+    private final StringBuilder fText = new StringBuilder();
+    private final StringBuilder tText = new StringBuilder();
+    
+    /** 共有数式のインデックス（si 属性）に対する基点セルの数式 */
+    private final Map<String, MasterFormula> sharedFormulas = new HashMap<>();
+    
+    private final List<PendingFormula> pendingFormulas = new ArrayList<>();
+    private final List<ArrayFormula> arrayFormulas = new ArrayList<>();
+    
+    private int textState = TEXT_NONE;
+    private boolean hasV;
+    private boolean hasF;
+    private boolean hasT;
+    private boolean inIs;
+    private boolean inRPh;
+    
+    /** 現在のセルが、基点セルがまだ現れていない共有数式のセルであるか */
+    private boolean formulaPending;
+    
+    private int row = -1;
+    private int column;
+    private int nextColumn;
+    private XSSFCellType type;
+    private String formulaType;
+    private String sharedIndex;
+    private String formulaRef;
+    
+    /**
+     * コンストラクタ<br>
+     *
+     * @param extractCachedValue
+     *            数式セルからキャッシュされた計算値を抽出する場合は {@code true}、
+     *            数式文字列を抽出する場合は {@code false}
+     * @param sst
+     *            共有文字列テーブル
+     * @throws NullPointerException
+     *             {@code sst} が {@code null} の場合
+     */
+    public WorksheetCellsCollector(boolean extractCachedValue, List<String> sst) {
+        this(extractCachedValue, sst, new HashSet<>());
+    }
+    
+    /**
+     * コンストラクタ<br>
+     * 抽出したセルデータは、指定されたセットに格納します。<br>
+     *
+     * @param extractCachedValue
+     *            数式セルからキャッシュされた計算値を抽出する場合は {@code true}、
+     *            数式文字列を抽出する場合は {@code false}
+     * @param sst
+     *            共有文字列テーブル
+     * @param cells
+     *            抽出したセルデータを格納する空のセット
+     * @throws NullPointerException
+     *             {@code sst}, {@code cells} のいずれかが {@code null} の場合
+     */
+    public WorksheetCellsCollector(boolean extractCachedValue, List<String> sst, Set<CellData> cells) {
+        Objects.requireNonNull(sst);
+        Objects.requireNonNull(cells);
+        
+        this.extractCachedValue = extractCachedValue;
+        this.sst = sst;
+        this.cells = cells;
+    }
+    
+    /**
+     * row 要素の開始を通知します。<br>
+     *
+     * @param r row 要素の r 属性の値（1 開始の行番号）。省略されている場合は {@code null}
+     */
+    public void startRow(String r) {
+        row = r == null ? row + 1 : Integer.parseInt(r) - 1;
+        nextColumn = 0;
+    }
+    
+    /**
+     * c 要素の開始を通知します。<br>
+     *
+     * @param r c 要素の r 属性の値（{@code "A1"} 形式）。省略されている場合は {@code null}
+     * @param t c 要素の t 属性の値。省略されている場合は {@code null}
+     */
+    public void startCell(String r, String t) {
+        type = XSSFCellType.of(t);
+        locate(r);
+    }
+    
+    /**
+     * v 要素の開始を通知します。<br>
+     */
+    public void startValue() {
+        textState = TEXT_V;
+        hasV = true;
+    }
+    
+    /**
+     * f 要素の開始を通知します。<br>
+     *
+     * @param t f 要素の t 属性の値。省略されている場合は {@code null}
+     * @param si f 要素の si 属性の値。省略されている場合は {@code null}
+     * @param ref f 要素の ref 属性の値。省略されている場合は {@code null}
+     */
+    public void startFormula(String t, String si, String ref) {
+        if (!extractCachedValue) {
+            textState = TEXT_F;
+            hasF = true;
+            formulaType = t;
+            sharedIndex = si;
+            formulaRef = ref;
+        }
+    }
+    
+    /**
+     * is 要素の開始を通知します。<br>
+     */
+    public void startInlineString() {
+        inIs = true;
+    }
+    
+    /**
+     * rPh 要素（フリガナ）の開始を通知します。<br>
+     */
+    public void startPhonetic() {
+        inRPh = true;
+    }
+    
+    /**
+     * t 要素の開始を通知します。<br>
+     */
+    public void startText() {
+        if (inIs && !inRPh) {
+            textState = TEXT_T;
+            hasT = true;
+        }
+    }
+    
+    /**
+     * 文字データを通知します。<br>
+     *
+     * @param ch 文字データを含む配列
+     * @param start 配列内の開始位置
+     * @param length 文字数
+     */
+    public void characters(char[] ch, int start, int length) {
+        switch (textState) {
+        case TEXT_V:
+            vText.append(ch, start, length);
+            break;
+        case TEXT_F:
+            fText.append(ch, start, length);
+            break;
+        case TEXT_T:
+            tText.append(ch, start, length);
+            break;
+        default:
+            // nop
+        }
+    }
+    
+    /**
+     * v, f, t 要素のいずれかの終了を通知します。<br>
+     */
+    public void endText() {
+        textState = TEXT_NONE;
+    }
+    
+    /**
+     * is 要素の終了を通知します。<br>
+     */
+    public void endInlineString() {
+        inIs = false;
+    }
+    
+    /**
+     * rPh 要素の終了を通知します。<br>
+     */
+    public void endPhonetic() {
+        inRPh = false;
+    }
+    
+    /**
+     * c 要素の終了を通知します。<br>
+     */
+    public void endCell() {
+        String value = null;
+        
+        if (!extractCachedValue && (hasF || formulaType != null)) {
+            value = getFormula();
+        }
+        if (!extractCachedValue && !hasF && formulaType == null && !arrayFormulas.isEmpty()) {
+            value = getArrayFormula();
+        }
+        if (value == null) {
+            switch (type) {
+            case b:
+                if (hasV) {
+                    value = Boolean.toString(vText.length() == 1 && vText.charAt(0) == '1');
+                }
+                break;
+            
+            case n:
+            case d:
+            case e:
+            case str:
+                if (hasV) {
+                    value = vText.toString();
+                }
+                break;
+            
+            case inlineStr:
+                if (hasT) {
+                    value = tText.toString();
+                }
+                break;
+            
+            case s:
+                if (hasV) {
+                    int idx = Integer.parseInt(vText, 0, vText.length(), 10);
+                    value = sst.get(idx);
+                }
+                break;
+            
+            default:
+                throw new AssertionError(type);
+            }
+        }
+        if (formulaPending) {
+            // 数式文字列は文書の最後に展開するため、ここではセルデータを追加しない。
+            pendingFormulas.add(new PendingFormula(row, column, sharedIndex, value));
+        } else if (value != null && !value.isEmpty()) {
+            cells.add(new CellData(row, column, value, null));
+        }
+        
+        vText.setLength(0);
+        fText.setLength(0);
+        tText.setLength(0);
+        textState = TEXT_NONE;
+        hasV = false;
+        hasF = false;
+        hasT = false;
+        inIs = false;
+        inRPh = false;
+        formulaPending = false;
+        type = null;
+        formulaType = null;
+        sharedIndex = null;
+        formulaRef = null;
+    }
+    
+    /**
+     * 文書の終了を通知します。<br>
+     */
+    public void endDocument() {
+        // 基点セルより前に現れた共有数式のセルは、文書の最後にまとめて展開する。
+        for (PendingFormula pending : pendingFormulas) {
+            MasterFormula master = sharedFormulas.get(pending.sharedIndex);
+            String value = master != null
+                    ? shiftedFormula(master, pending.row, pending.column)
+                    : pending.cachedValue;
+            if (value != null && !value.isEmpty()) {
+                cells.add(new CellData(pending.row, pending.column, value, null));
+            }
+        }
+        pendingFormulas.clear();
+    }
+    
+    /**
+     * 抽出したセルデータのセットを返します。<br>
+     * 返されるセットは、このコレクターが内部で保持しているもの（生成時に指定されたもの）です。<br>
+     *
+     * @return 抽出したセルデータのセット
+     */
+    public Set<CellData> cells() {
+        return cells;
+    }
+    
+    /**
+     * c 要素の r 属性の値から、現在のセルの行・列のインデックスを求めます。<br>
+     * r 属性が省略されている場合は、直前のセルの右隣のセルとみなします。<br>
+     *
+     * @param r c 要素の r 属性の値（{@code "A1"} 形式）
+     */
+    private void locate(String r) {
+        if (r == null) {
+            column = nextColumn;
+            nextColumn++;
+            return;
+        }
+        
+        int len = r.length();
+        int i = 0;
+        int col = 0;
+        for (; i < len; i++) {
+            char c = r.charAt(i);
+            if ('A' <= c && c <= 'Z') {
+                col = col * 26 + (c - 'A' + 1);
+            } else if ('a' <= c && c <= 'z') {
+                col = col * 26 + (c - 'a' + 1);
+            } else {
+                break;
+            }
+        }
+        int rowNum = 0;
+        for (; i < len; i++) {
+            char c = r.charAt(i);
+            if (c < '0' || '9' < c) {
+                throw new IllegalArgumentException(r);
+            }
+            rowNum = rowNum * 10 + (c - '0');
+        }
+        if (col == 0 || rowNum == 0) {
+            throw new IllegalArgumentException(r);
+        }
+        
+        row = rowNum - 1;
+        column = col - 1;
+        nextColumn = column + 1;
+    }
+    
+    /**
+     * 現在のセルの数式文字列を返します。<br>
+     * 共有数式の基点セル以外のセルの場合は、基点セルの数式の相対参照をずらして返します。<br>
+     *
+     * 基点セルがまだ現れていない共有数式の場合は、その旨を記録して {@code null} を返します。<br>
+     *
+     * @return 数式文字列。基点セルがまだ現れていない共有数式の場合は {@code null}
+     */
+    private String getFormula() {
+        String formula = fText.toString();
+        
+        if ("shared".equals(formulaType) && sharedIndex != null) {
+            if (formulaRef != null) {
+                sharedFormulas.put(sharedIndex, new MasterFormula(formula, row, column));
+                return formula;
+            }
+            MasterFormula master = sharedFormulas.get(sharedIndex);
+            if (master == null) {
+                formulaPending = true;
+                return null;
+            }
+            return shiftedFormula(master, row, column);
+        }
+        
+        if ("array".equals(formulaType) && formulaRef != null) {
+            String lastAddress = formulaRef.contains(":")
+                    ? formulaRef.substring(formulaRef.indexOf(':') + 1)
+                    : formulaRef;
+            IntPair lastIdx = CellsUtil.addressToIdx(lastAddress);
+            arrayFormulas.add(new ArrayFormula(
+                    new MasterFormula(formula, row, column), lastIdx.a(), lastIdx.b()));
+        }
+        return formula;
+    }
+    
+    /**
+     * 現在のセルが配列数式の範囲に含まれる場合は、その配列数式の数式文字列を返します。<br>
+     *
+     * @return 配列数式の数式文字列。配列数式の範囲に含まれない場合は {@code null}
+     */
+    private String getArrayFormula() {
+        for (ArrayFormula array : arrayFormulas) {
+            if (array.contains(row, column)) {
+                return array.master.formula;
+            }
+        }
+        return null;
+    }
+}
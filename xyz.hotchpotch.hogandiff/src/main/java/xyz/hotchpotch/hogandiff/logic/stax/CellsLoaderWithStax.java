@@ -0,0 +1,144 @@
+package xyz.hotchpotch.hogandiff.logic.stax;
+
+import java.io.InputStream;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import xyz.hotchpotch.hogandiff.logic.BookHandler;
+import xyz.hotchpotch.hogandiff.logic.BookType;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.CellsLoader;
+import xyz.hotchpotch.hogandiff.logic.SheetHandler;
+import xyz.hotchpotch.hogandiff.logic.SheetType;
+import xyz.hotchpotch.hogandiff.logic.sax.CellsLoaderWithSax;
+import xyz.hotchpotch.hogandiff.logic.sax.WorksheetCellsCollector;
+import xyz.hotchpotch.hogandiff.logic.stax.StaxUtil.QNAME;
+
+/**
+ * StAX (Streaming API for XML) のカーソルAPI（{@link XMLStreamReader}）を利用して、
+ * .xlsx/.xlsm 形式のExcelブックのワークシートからセルデータを抽出する {@link CellsLoader} の実装です。<br>
+ * <br>
+ * StAXの実装は {@link XMLInputFactory#newFactory()} の規則に従って選択されるため、
+ * より高速なStAX実装（Aalto XML など）をモジュールパスに配置することで差し替えることができます。
+ * シート情報や共有文字列、セルコメントの読み込みは {@link CellsLoaderWithSax} と共通です。<br>
+ *
+ * @author nmby
+ */
+@BookHandler(targetTypes = { BookType.XLSX, BookType.XLSM })
+@SheetHandler(targetTypes = { SheetType.WORKSHEET })
+public class CellsLoaderWithStax extends CellsLoaderWithSax {
+    
+    // [static members] ********************************************************
+    
+    private static final XMLInputFactory inFactory = createInputFactory();
+    
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        return factory;
+    }
+    
+    private static void startElement(XMLStreamReader reader, WorksheetCellsCollector collector) {
+        if (!QNAME.XMLNS.equals(reader.getNamespaceURI())) {
+            return;
+        }
+        
+        switch (reader.getLocalName()) {
+        case "row" -> collector.startRow(reader.getAttributeValue(null, "r"));
+        case "c" -> collector.startCell(
+                reader.getAttributeValue(null, "r"), reader.getAttributeValue(null, "t"));
+        case "v" -> collector.startValue();
+        case "f" -> collector.startFormula(
+                reader.getAttributeValue(null, "t"),
+                reader.getAttributeValue(null, "si"),
+                reader.getAttributeValue(null, "ref"));
+        case "is" -> collector.startInlineString();
+        case "rPh" -> collector.startPhonetic();
+        case "t" -> collector.startText();
+        default -> {
+            // nop
+        }
+        }
+    }
+    
+    private static void endElement(XMLStreamReader reader, WorksheetCellsCollector collector) {
+        if (!QNAME.XMLNS.equals(reader.getNamespaceURI())) {
+            return;
+        }
+        
+        switch (reader.getLocalName()) {
+        case "v", "f", "t" -> collector.endText();
+        case "is" -> collector.endInlineString();
+        case "rPh" -> collector.endPhonetic();
+        case "c" -> collector.endCell();
+        default -> {
+            // nop
+        }
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    /**
+     * コンストラクタ
+     *
+     * @param extractCachedValue
+     *                           数式セルからキャッシュされた計算値を抽出する場合は {@code true}、
+     *                           数式文字列を抽出する場合は {@code false}
+     */
+    public CellsLoaderWithStax(boolean extractCachedValue) {
+        super(extractCachedValue);
+    }
+    
+    /**
+     * コンストラクタ<br>
+     * 抽出したセルデータは、指定されたファクトリで生成したセットに格納して返します。<br>
+     *
+     * @param extractCachedValue
+     *                           数式セルからキャッシュされた計算値を抽出する場合は {@code true}、
+     *                           数式文字列を抽出する場合は {@code false}
+     * @param cellsSetFactory
+     *                           抽出したセルデータを格納する空のセットのファクトリ
+     * @throws NullPointerException
+     *                                  {@code cellsSetFactory} が {@code null} の場合
+     */
+    public CellsLoaderWithStax(boolean extractCachedValue, Supplier<? extends Set<CellData>> cellsSetFactory) {
+        super(extractCachedValue, cellsSetFactory);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <br>
+     * この実装はStAXのカーソルAPIを利用します。<br>
+     */
+    @Override
+    protected void parseWorksheet(InputStream worksheet, WorksheetCellsCollector collector)
+            throws XMLStreamException {
+        
+        XMLStreamReader reader = inFactory.createXMLStreamReader(worksheet);
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> startElement(reader, collector);
+                case XMLStreamConstants.END_ELEMENT -> endElement(reader, collector);
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> collector
+                        .characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                default -> {
+                    // nop
+                }
+                }
+            }
+            collector.endDocument();
+            
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -40,6 +40,7 @@ import xyz.hotchpotch.hogandiff.logic.ResultOfSheets.Piece;
 import xyz.hotchpotch.hogandiff.logic.SheetHandler;
 import xyz.hotchpotch.hogandiff.logic.SheetType;
 import xyz.hotchpotch.hogandiff.logic.plain.CommonUtil;
+import xyz.hotchpotch.hogandiff.logic.sax.DecryptedBookCache;
 import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil;
 import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil.SheetInfo;
 import xyz.hotchpotch.hogandiff.logic.stax.StaxUtil.NONS_QNAME;
@@ -264,11 +265,32 @@ public class PainterWithStax implements Painter {
                     "extentions must be the same : %s -> %s".formatted(srcBookPath, dstBookPath));
         }
         
+        // 暗号化されたブックの場合は、復号したものを元に着色する。
+        // 着色後のブックは、PainterWithPoiUserApi と同様に暗号化せずに保存する。
+        try (DecryptedBookCache cache = DecryptedBookCache.open()) {
+            Path zipPath = readPassword == null
+                    ? srcBookPath
+                    : cache.decryptedPath(srcBookPath, readPassword);
+            
+            paintAndSave2(zipPath, dstBookPath, diffs);
+        }
+    }
+    
+    private void paintAndSave2(
+            Path srcZipPath,
+            Path dstBookPath,
+            Map<String, Optional<Piece>> diffs)
+            throws ExcelHandlingException {
+        
+        assert srcZipPath != null;
+        assert dstBookPath != null;
+        assert diffs != null;
+        
         // 1. 目的のブックをコピーする。
-        copyFile(srcBookPath, dstBookPath);
+        copyFile(srcZipPath, dstBookPath);
         
         // 2. 対象のExcelファイルをZipファイルとして扱い各種処理を行う。
-        try (FileSystem inFs = FileSystems.newFileSystem(srcBookPath);
+        try (FileSystem inFs = FileSystems.newFileSystem(srcZipPath);
                 FileSystem outFs = FileSystems.newFileSystem(dstBookPath)) {
             
             // 空のシートに着色されないというバグがあるので直す。
@@ -284,7 +306,7 @@ public class PainterWithStax implements Painter {
             // - xl/worksheets/sheet?.xml
             // - xl/drawings/vmlDrawing?.vml
             // - xl/comments?.xml
-            processWorksheetEntries(inFs, outFs, dstBookPath, readPassword, diffs);
+            processWorksheetEntries(inFs, outFs, dstBookPath, diffs);
             
         } catch (ExcelHandlingException e) {
             throw e;
@@ -404,7 +426,6 @@ public class PainterWithStax implements Painter {
      * @param inFs
      * @param outFs
      * @param bookPath
-     * @param readPassword
      * @param diffs
      * @throws ExcelHandlingException
      */
@@ -412,7 +433,6 @@ public class PainterWithStax implements Painter {
             FileSystem inFs,
             FileSystem outFs,
             Path bookPath,
-            String readPassword,
             Map<String, Optional<Piece>> diffs)
             throws ExcelHandlingException {
         
@@ -435,7 +455,8 @@ public class PainterWithStax implements Painter {
         }
         
         // 次に、比較対象シートに対する着色処理を行う。
-        List<SheetInfo> sheetInfos = SaxUtil.loadSheetInfos(bookPath, readPassword);
+        // 注意：コピー先は復号済みのため、読み取りパスワードは不要。
+        List<SheetInfo> sheetInfos = SaxUtil.loadSheetInfos(bookPath, null);
         for (SheetInfo sheetInfo : sheetInfos) {
             String sheetName = sheetInfo.sheetName();
             
@@ -0,0 +1,224 @@
+package xyz.hotchpotch.hogandiff.logic.xlsb;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * .xlsb 形式のExcelブックに含まれるバイナリエントリ（BIFF12形式）から
+ * レコードを先頭から順に読み取るリーダーです。<br>
+ * <br>
+ * {@link #next()} で読み取ったレコードのデータはこのリーダーが保持するバッファに格納され、
+ * 次のレコードを読み取るまでの間、カーソルを進めながら {@link #readInt32()} などで参照できます。
+ * バッファはレコード間で使い回されるため、レコードを読み進めてもメモリ使用量は
+ * 最大のレコードの大きさを超えて増えません。<br>
+ * このクラスはスレッドセーフではありません。<br>
+ *
+ * @author nmby
+ */
+public class Biff12RecordReader {
+    
+    // [static members] ********************************************************
+    
+    private static final int INITIAL_CAPACITY = 256;
+    
+    // [instance members] ******************************************************
+    
+    private final InputStream source;
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int type = -1;
+    private int size;
+    private int pos;
+    
+    /**
+     * コンストラクタ<br>
+     *
+     * @param source レコードを読み取る入力ストリーム
+     * @throws NullPointerException {@code source} が {@code null} の場合
+     */
+    public Biff12RecordReader(InputStream source) {
+        Objects.requireNonNull(source);
+        
+        this.source = source instanceof BufferedInputStream
+                ? source
+                : new BufferedInputStream(source);
+    }
+    
+    /**
+     * 次のレコードを読み取り、カーソルをそのデータの先頭に移動します。<br>
+     *
+     * @return 次のレコードを読み取った場合は {@code true}、既に終端に達していた場合は {@code false}
+     * @throws IOException 入出力エラーが発生した場合や、レコードが途中で途切れている場合
+     */
+    public boolean next() throws IOException {
+        int b = source.read();
+        if (b == -1) {
+            type = -1;
+            size = 0;
+            pos = 0;
+            return false;
+        }
+        
+        // レコード種別は最大2バイト、レコード長は最大4バイトの可変長整数で表される。
+        int t = b & 0x7F;
+        if ((b & 0x80) != 0) {
+            t |= (readHeaderByte() & 0x7F) << 7;
+        }
+        int s = 0;
+        for (int i = 0; i < 4; i++) {
+            int c = readHeaderByte();
+            s |= (c & 0x7F) << (7 * i);
+            if ((c & 0x80) == 0) {
+                break;
+            }
+        }
+        
+        if (data.length < s) {
+            data = new byte[Math.max(s, data.length * 2)];
+        }
+        if (source.readNBytes(data, 0, s) < s) {
+            throw new EOFException("record is truncated : type=%d, size=%d".formatted(t, s));
+        }
+        type = t;
+        size = s;
+        pos = 0;
+        return true;
+    }
+    
+    private int readHeaderByte() throws IOException {
+        int b = source.read();
+        if (b == -1) {
+            throw new EOFException("record header is truncated");
+        }
+        return b;
+    }
+    
+    /**
+     * 現在のレコードの種別を返します。<br>
+     *
+     * @return 現在のレコードの種別（レコードを読み取っていない場合は {@code -1}）
+     */
+    public int type() {
+        return type;
+    }
+    
+    /**
+     * 現在のレコードのデータ長（バイト）を返します。<br>
+     *
+     * @return 現在のレコードのデータ長
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 現在のレコードのデータを保持するバッファを返します。<br>
+     * 有効なデータはバッファの先頭から {@link #size()} バイトです。
+     * バッファは次のレコードを読み取る際に上書きされます。<br>
+     *
+     * @return 現在のレコードのデータを保持するバッファ
+     */
+    public byte[] data() {
+        return data;
+    }
+    
+    /**
+     * 現在のレコードにおけるカーソル位置を返します。<br>
+     *
+     * @return カーソル位置（データの先頭からのバイト数）
+     */
+    public int position() {
+        return pos;
+    }
+    
+    /**
+     * 現在のレコードにおけるカーソル位置を変更します。<br>
+     *
+     * @param position カーソル位置（データの先頭からのバイト数）
+     * @throws IndexOutOfBoundsException {@code position} がデータの範囲外の場合
+     */
+    public void position(int position) {
+        Objects.checkIndex(position, size + 1);
+        pos = position;
+    }
+    
+    /**
+     * カーソルを指定されたバイト数だけ進めます。<br>
+     *
+     * @param n 進めるバイト数
+     * @throws EOFException レコードのデータが不足している場合
+     */
+    public void skip(int n) throws EOFException {
+        require(n);
+        pos += n;
+    }
+    
+    /**
+     * 符号なし1バイト整数を読み取り、カーソルを進めます。<br>
+     *
+     * @return 読み取った値
+     * @throws EOFException レコードのデータが不足している場合
+     */
+    public int readUInt8() throws EOFException {
+        require(1);
+        return data[pos++] & 0xFF;
+    }
+    
+    /**
+     * リトルエンディアンの符号付き4バイト整数を読み取り、カーソルを進めます。<br>
+     *
+     * @return 読み取った値
+     * @throws EOFException レコードのデータが不足している場合
+     */
+    public int readInt32() throws EOFException {
+        require(4);
+        int value = XlsbUtil.getInt(data, pos);
+        pos += 4;
+        return value;
+    }
+    
+    /**
+     * リトルエンディアンの倍精度浮動小数点数を読み取り、カーソルを進めます。<br>
+     *
+     * @return 読み取った値
+     * @throws EOFException レコードのデータが不足している場合
+     */
+    public double readDouble() throws EOFException {
+        require(8);
+        long lo = XlsbUtil.getInt(data, pos) & 0xFFFFFFFFL;
+        long hi = XlsbUtil.getInt(data, pos + 4) & 0xFFFFFFFFL;
+        pos += 8;
+        return Double.longBitsToDouble(hi << 32 | lo);
+    }
+    
+    /**
+     * 文字数（4バイト）とそれに続くUTF-16LEの文字列から成る
+     * XLWideString 構造を読み取り、カーソルを進めます。<br>
+     * 文字数が {@code 0xFFFFFFFF} の場合（XLNullableWideString 構造の null 値）は
+     * {@code null} を返します。<br>
+     *
+     * @return 読み取った文字列
+     * @throws EOFException レコードのデータが不足している場合
+     */
+    public String readWideString() throws EOFException {
+        int length = readInt32();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || size - pos < length * 2L) {
+            throw new EOFException("wide string is truncated : type=%d".formatted(type));
+        }
+        String value = new String(data, pos, length * 2, StandardCharsets.UTF_16LE);
+        pos += length * 2;
+        return value;
+    }
+    
+    private void require(int n) throws EOFException {
+        if (n < 0 || size - pos < n) {
+            throw new EOFException("record is too short : type=%d, size=%d".formatted(type, size));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package xyz.hotchpotch.hogandiff.logic.xlsb;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * .xlsb 形式のExcelブックに含まれるバイナリエントリ（BIFF12形式）へ
+ * レコードを順に書き込むライターです。<br>
+ * このクラスはスレッドセーフではありません。<br>
+ *
+ * @author nmby
+ */
+public class Biff12RecordWriter {
+    
+    // [static members] ********************************************************
+    
+    /** レコード種別の最大値（2バイトの可変長整数で表せる値） */
+    private static final int MAX_TYPE = (1 << 14) - 1;
+    
+    /** レコード長の最大値（4バイトの可変長整数で表せる値） */
+    private static final int MAX_SIZE = (1 << 28) - 1;
+    
+    // [instance members] ******************************************************
+    
+    private final OutputStream out;
+    
+    /**
+     * コンストラクタ<br>
+     *
+     * @param out レコードを書き込む出力ストリーム
+     * @throws NullPointerException {@code out} が {@code null} の場合
+     */
+    public Biff12RecordWriter(OutputStream out) {
+        Objects.requireNonNull(out);
+        
+        this.out = out instanceof BufferedOutputStream
+                ? out
+                : new BufferedOutputStream(out);
+    }
+    
+    /**
+     * レコードを書き込みます。<br>
+     *
+     * @param type レコード種別
+     * @param data レコードのデータを保持する配列
+     * @param off  データの開始位置
+     * @param len  データ長
+     * @throws NullPointerException      {@code data} が {@code null} の場合
+     * @throws IllegalArgumentException  {@code type} または {@code len} が表現可能な範囲外の場合
+     * @throws IndexOutOfBoundsException {@code off}, {@code len} が {@code data} の範囲外の場合
+     * @throws IOException               入出力エラーが発生した場合
+     */
+    public void write(int type, byte[] data, int off, int len) throws IOException {
+        Objects.requireNonNull(data);
+        if (type < 0 || MAX_TYPE < type) {
+            throw new IllegalArgumentException("type : " + type);
+        }
+        if (len < 0 || MAX_SIZE < len) {
+            throw new IllegalArgumentException("len : " + len);
+        }
+        Objects.checkFromIndexSize(off, len, data.length);
+        
+        if (type < 0x80) {
+            out.write(type);
+        } else {
+            out.write((type & 0x7F) | 0x80);
+            out.write(type >>> 7);
+        }
+        int s = len;
+        do {
+            int b = s & 0x7F;
+            s >>>= 7;
+            out.write(s == 0 ? b : (b | 0x80));
+        } while (s != 0);
+        
+        out.write(data, off, len);
+    }
+    
+    /**
+     * レコードを書き込みます。<br>
+     *
+     * @param type レコード種別
+     * @param data レコードのデータ
+     * @throws NullPointerException     {@code data} が {@code null} の場合
+     * @throws IllegalArgumentException {@code type} または {@code data} の長さが表現可能な範囲外の場合
+     * @throws IOException              入出力エラーが発生した場合
+     */
+    public void write(int type, byte[] data) throws IOException {
+        Objects.requireNonNull(data);
+        
+        write(type, data, 0, data.length);
+    }
+    
+    /**
+     * 指定されたリーダーが現在指しているレコードをそのまま書き込みます。<br>
+     *
+     * @param reader レコードを読み取っているリーダー
+     * @throws NullPointerException {@code reader} が {@code null} の場合
+     * @throws IOException          入出力エラーが発生した場合
+     */
+    public void copy(Biff12RecordReader reader) throws IOException {
+        Objects.requireNonNull(reader);
+        
+        write(reader.type(), reader.data(), 0, reader.size());
+    }
+    
+    /**
+     * バッファリングされているデータを出力ストリームに書き出します。<br>
+     * 出力ストリームは閉じません。<br>
+     *
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
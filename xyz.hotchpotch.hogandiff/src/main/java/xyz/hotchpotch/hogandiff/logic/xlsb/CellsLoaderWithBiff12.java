@@ -0,0 +1,281 @@
+package xyz.hotchpotch.hogandiff.logic.xlsb;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+import xyz.hotchpotch.hogandiff.logic.BookHandler;
+import xyz.hotchpotch.hogandiff.logic.BookInfo;
+import xyz.hotchpotch.hogandiff.logic.BookType;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.CellsLoader;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.SheetHandler;
+import xyz.hotchpotch.hogandiff.logic.SheetType;
+import xyz.hotchpotch.hogandiff.logic.plain.CommonUtil;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil.IgnoreCloseInputStream;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil.SheetInfo;
+import xyz.hotchpotch.hogandiff.logic.xlsb.XlsbUtil.BRT;
+import xyz.hotchpotch.hogandiff.util.IntPair;
+import xyz.hotchpotch.hogandiff.util.function.UnsafeFunction;
+
+/**
+ * BIFF12形式のレコードを先頭から順に読み取ることにより、
+ * .xlsb 形式のExcelブックのワークシートから
+ * セルデータを抽出する {@link CellsLoader} の実装です。<br>
+ * <br>
+ * 数値は .xls 形式の場合と同様に Excel の表示に準じた文字列に変換します。
+ * .xlsb 形式では数式が解析済みのトークン列として保存されているため、
+ * 数式セルからは常にキャッシュされた計算値を抽出します。<br>
+ *
+ * @author nmby
+ */
+@BookHandler(targetTypes = { BookType.XLSB })
+@SheetHandler(targetTypes = { SheetType.WORKSHEET })
+public class CellsLoaderWithBiff12 implements CellsLoader {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * RK 形式で表された数値を復号します。<br>
+     *
+     * @param rk RK 形式の数値
+     * @return 復号した数値
+     */
+    private static double rkToDouble(int rk) {
+        double value = (rk & 0x02) != 0
+                ? (double) (rk >> 2)
+                : Double.longBitsToDouble((long) (rk & 0xFFFFFFFC) << 32);
+        return (rk & 0x01) != 0 ? value / 100 : value;
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final Supplier<? extends Set<CellData>> cellsSetFactory;
+    
+    private Map<String, SheetInfo> nameToInfo;
+    private List<String> sst;
+    
+    /**
+     * コンストラクタ
+     */
+    public CellsLoaderWithBiff12() {
+        this(HashSet::new);
+    }
+    
+    /**
+     * コンストラクタ<br>
+     * 抽出したセルデータは、指定されたファクトリで生成したセットに格納して返します。<br>
+     *
+     * @param cellsSetFactory
+     *                           抽出したセルデータを格納する空のセットのファクトリ
+     * @throws NullPointerException
+     *                                  {@code cellsSetFactory} が {@code null} の場合
+     */
+    public CellsLoaderWithBiff12(Supplier<? extends Set<CellData>> cellsSetFactory) {
+        Objects.requireNonNull(cellsSetFactory);
+        
+        this.cellsSetFactory = cellsSetFactory;
+    }
+    
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException
+     *                                  {@code bookInfo}, {@code sheetName} のいずれかが
+     *                                  {@code null} の場合
+     * @throws IllegalArgumentException
+     *                                  {@code bookInfo} がサポート対象外の形式の場合
+     * @throws ExcelHandlingException
+     *                                  処理に失敗した場合
+     */
+    // 例外カスケードのポリシーについて：
+    // ・プログラミングミスに起因するこのメソッドの呼出不正は RuntimeException の派生でレポートする。
+    // 例えば null パラメータとか、サポート対象外のブック形式とか。
+    // ・それ以外のあらゆる例外は ExcelHandlingException でレポートする。
+    // 例えば、ブックやシートが見つからないとか、シート種類がサポート対象外とか。
+    @Override
+    public Set<CellData> loadCells(
+            BookInfo bookInfo,
+            String readPassword,
+            String sheetName)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookInfo);
+        // readPassword may be null.
+        Objects.requireNonNull(sheetName);
+        CommonUtil.ifNotSupportedBookTypeThenThrow(getClass(), BookType.of(bookInfo.bookPath()));
+        
+        if (nameToInfo == null) {
+            nameToInfo = XlsbUtil.loadSheetInfos(bookInfo.bookPath(), readPassword).stream()
+                    .collect(Collectors.toMap(
+                            SheetInfo::sheetName,
+                            Function.identity()));
+        }
+        
+        if (!nameToInfo.containsKey(sheetName)) {
+            throw new ExcelHandlingException(
+                    "Processing failed. No such sheet : %s - %s".formatted(bookInfo.bookPath(), sheetName));
+        }
+        SheetInfo info = nameToInfo.get(sheetName);
+        if (info.type() == null || !CommonUtil.isSupportedSheetType(getClass(), EnumSet.of(info.type()))) {
+            throw new ExcelHandlingException(
+                    "Processing failed. Unsupported sheet type : %s - %s".formatted(bookInfo.bookPath(), sheetName));
+        }
+        
+        if (sst == null) {
+            sst = XlsbUtil.loadSharedStrings(bookInfo.bookPath(), readPassword);
+        }
+        
+        UnsafeFunction<ZipInputStream, Set<CellData>, Exception> processor = zis -> {
+            Set<CellData> collected = cellsSetFactory.get();
+            Map<IntPair, String> idxToComment = new HashMap<>();
+            InputStream ignoreCloseZis = new IgnoreCloseInputStream(zis);
+            ZipEntry zipEntry;
+            
+            while ((zipEntry = zis.getNextEntry()) != null) {
+                if (zipEntry.getName().equals(info.source())) {
+                    parseWorksheet(new Biff12RecordReader(ignoreCloseZis), collected);
+                }
+                if (info.commentSource() != null && zipEntry.getName().equals(info.commentSource())) {
+                    parseComments(new Biff12RecordReader(ignoreCloseZis), idxToComment);
+                }
+            }
+            
+            if (idxToComment.isEmpty()) {
+                return collected;
+            } else {
+                Set<CellData> cells = cellsSetFactory.get();
+                for (CellData cell : collected) {
+                    String comment = idxToComment.remove(IntPair.of(cell.row(), cell.column()));
+                    cells.add(comment == null ? cell : cell.withComment(comment));
+                }
+                idxToComment.forEach(
+                        (idx, comment) -> cells.add(new CellData(idx.a(), idx.b(), "", comment)));
+                
+                return cells;
+            }
+        };
+        
+        return XlsbUtil.processExcelAsZip(bookInfo.bookPath(), readPassword, processor);
+    }
+    
+    /**
+     * ワークシートのエントリ（{@code xl/worksheets/sheet?.bin}）のレコードを読み取り、
+     * 空でない値を持つセルを指定されたセットに追加します。<br>
+     *
+     * @param reader ワークシートのエントリを読み取るリーダー
+     * @param cells  セルデータの追加先
+     * @throws IOException 読み取りに失敗した場合
+     */
+    private void parseWorksheet(Biff12RecordReader reader, Set<CellData> cells) throws IOException {
+        int row = -1;
+        int column = -1;
+        
+        while (reader.next()) {
+            int type = reader.type();
+            
+            if (type == BRT.ROW_HDR) {
+                row = reader.readInt32();
+                column = -1;
+                continue;
+            }
+            if (type == BRT.END_SHEET_DATA) {
+                return;
+            }
+            
+            if (XlsbUtil.isFullCell(type)) {
+                column = reader.readInt32();
+            } else if (0 <= XlsbUtil.fullCellTypeOf(type)) {
+                column++;
+                type = XlsbUtil.fullCellTypeOf(type);
+            } else {
+                continue;
+            }
+            // iStyleRef (24 bits) と各種フラグ (8 bits)
+            reader.skip(4);
+            
+            String value = valueOf(type, reader);
+            if (value != null && !value.isEmpty()) {
+                cells.add(new CellData(row, column, value, null));
+            }
+        }
+    }
+    
+    /**
+     * セルレコードのカーソル位置から値を読み取り、文字列として返します。<br>
+     *
+     * @param type   通常形式のセルレコードの種別
+     * @param reader カーソルがセルの値の先頭を指しているリーダー
+     * @return セルの値（空のセルの場合は {@code null}）
+     * @throws EOFException レコードのデータが不足している場合
+     */
+    private String valueOf(int type, Biff12RecordReader reader) throws EOFException {
+        return switch (type) {
+        case BRT.CELL_BLANK -> null;
+        case BRT.CELL_RK -> NumberToTextConverter.toText(rkToDouble(reader.readInt32()));
+        case BRT.CELL_REAL, BRT.FMLA_NUM -> NumberToTextConverter.toText(reader.readDouble());
+        case BRT.CELL_BOOL, BRT.FMLA_BOOL -> Boolean.toString(reader.readUInt8() != 0);
+        case BRT.CELL_ERROR, BRT.FMLA_ERROR -> ErrorEval.getText(reader.readUInt8());
+        case BRT.CELL_ST, BRT.FMLA_STRING -> reader.readWideString();
+        case BRT.CELL_ISST -> sst.get(reader.readInt32());
+        case BRT.CELL_R_STRING -> {
+            // RichStr: フラグ (1 byte), XLWideString, 以降は書式情報とフリガナ
+            reader.skip(1);
+            yield reader.readWideString();
+        }
+        default -> throw new AssertionError("unexpected record type : " + type);
+        };
+    }
+    
+    /**
+     * セルコメントのエントリ（{@code xl/comments?.bin}）のレコードを読み取り、
+     * セルの位置に対するコメント文字列を指定されたマップに追加します。<br>
+     *
+     * @param reader       セルコメントのエントリを読み取るリーダー
+     * @param idxToComment セルの位置に対するコメント文字列の追加先
+     * @throws IOException 読み取りに失敗した場合
+     */
+    private void parseComments(Biff12RecordReader reader, Map<IntPair, String> idxToComment) throws IOException {
+        IntPair idx = null;
+        
+        while (reader.next()) {
+            switch (reader.type()) {
+            case BRT.BEGIN_COMMENT -> {
+                // iauthor (4 bytes), rfx (rwFirst, rwLast, colFirst, colLast), guid (16 bytes)
+                reader.skip(4);
+                int row = reader.readInt32();
+                reader.skip(4);
+                int column = reader.readInt32();
+                idx = IntPair.of(row, column);
+            }
+            case BRT.COMMENT_TEXT -> {
+                // RichStr: フラグ (1 byte), XLWideString, 以降は書式情報とフリガナ
+                reader.skip(1);
+                String comment = reader.readWideString();
+                if (idx != null) {
+                    idxToComment.put(idx, comment == null ? "" : comment);
+                }
+            }
+            default -> {
+                // nop
+            }
+            }
+        }
+    }
+}
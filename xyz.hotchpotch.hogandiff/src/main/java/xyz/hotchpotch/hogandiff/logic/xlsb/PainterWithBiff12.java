@@ -0,0 +1,1241 @@
+package xyz.hotchpotch.hogandiff.logic.xlsb;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import xyz.hotchpotch.hogandiff.logic.BookHandler;
+import xyz.hotchpotch.hogandiff.logic.BookType;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.Painter;
+import xyz.hotchpotch.hogandiff.logic.ResultOfSheets.Piece;
+import xyz.hotchpotch.hogandiff.logic.SheetHandler;
+import xyz.hotchpotch.hogandiff.logic.SheetType;
+import xyz.hotchpotch.hogandiff.logic.plain.CommonUtil;
+import xyz.hotchpotch.hogandiff.logic.sax.DecryptedBookCache;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil.SheetInfo;
+import xyz.hotchpotch.hogandiff.logic.stax.readers.CloseAndUnpaintCommentsReader;
+import xyz.hotchpotch.hogandiff.logic.stax.readers.PaintDiffOrRedundantCommentsReader;
+import xyz.hotchpotch.hogandiff.logic.xlsb.XlsbUtil.BRT;
+import xyz.hotchpotch.hogandiff.util.IntPair;
+
+/**
+ * BIFF12形式のレコードを先頭から順に読み替えることにより
+ * .xlsb 形式のExcelブックのワークシートに着色を行う
+ * {@link Painter} の実装です。<br>
+ * <br>
+ * 着色の仕様は .xlsx/.xlsm 形式に対する {@link xyz.hotchpotch.hogandiff.logic.stax.PainterWithStax}
+ * と同じです。ワークシートのエントリは行単位でバッファリングしながら書き換えるため、
+ * シートの大きさに関わらずメモリ使用量は一定の範囲に収まります。<br>
+ *
+ * @author nmby
+ */
+@BookHandler(targetTypes = { BookType.XLSB })
+@SheetHandler(targetTypes = { SheetType.WORKSHEET })
+public class PainterWithBiff12 implements Painter {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * BIFF12形式のレコードです。<br>
+     *
+     * @param type レコード種別
+     * @param data レコードのデータ
+     * @author nmby
+     */
+    private static record Record(int type, byte[] data) {
+        
+        // [static members] ----------------------------------------------------
+        
+        private static Record of(Biff12RecordReader reader) {
+            return new Record(reader.type(), Arrays.copyOf(reader.data(), reader.size()));
+        }
+        
+        // [instance members] --------------------------------------------------
+        
+        private void writeTo(Biff12RecordWriter writer) throws IOException {
+            writer.write(type, data);
+        }
+    }
+    
+    /**
+     * .xlsb 形式のExcelファイルに含まれる xl/styles.bin エントリのラッパーです。<br>
+     * エントリのレコードをすべてメモリ上に保持し、
+     * 着色用のスタイル（BrtXF）と塗りつぶし（BrtFill）を追加したうえで書き出します。<br>
+     *
+     * @author nmby
+     */
+    private static class StylesManager {
+        
+        // [static members] ----------------------------------------------------
+        
+        /** 自動色を表す BrtColor 構造 */
+        private static final byte[] autoColor = { 0x01, 0x40, 0, 0, 0, 0, 0, 0 };
+        
+        /** 罫線の自動色を表す BrtColor 構造 */
+        private static final byte[] autoBorderColor = { 0x01, 0, 0, 0, 0, 0, 0, 0 };
+        
+        /** 塗りつぶしの前景色の既定値（システム前景色）を表す BrtColor 構造 */
+        private static final byte[] defaultForeColor = { 0x03, 0x40, 0, 0, 0, 0, 0, (byte) 0xFF };
+        
+        /** 塗りつぶしの背景色の既定値（システム背景色）を表す BrtColor 構造 */
+        private static final byte[] defaultBackColor = {
+                0x03, 0x41, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF };
+        
+        private static final int FILL_SIZE = 68;
+        private static final int FLS_NONE = 0x00;
+        private static final int FLS_SOLID = 0x01;
+        private static final int FLS_GRADIENT = 0x28;
+        
+        /** BrtXF 構造の xfGrbitAtr のうち、塗りつぶしの適用を表すビット */
+        private static final int ATR_PAT = 0x10;
+        
+        /**
+         * {@code xl/styles.bin} エントリのレコードを読み込み、
+         * フォント色、塗りつぶし、罫線色をクリアした {@link StylesManager} を返します。<br>
+         *
+         * @param is {@code xl/styles.bin} エントリの入力ストリーム
+         * @return 新しい {@link StylesManager} オブジェクト
+         * @throws IOException 読み込みに失敗した場合
+         */
+        private static StylesManager load(InputStream is) throws IOException {
+            assert is != null;
+            
+            Biff12RecordReader reader = new Biff12RecordReader(is);
+            List<Record> records = new ArrayList<>();
+            while (reader.next()) {
+                Record record = Record.of(reader);
+                switch (record.type()) {
+                case BRT.FONT -> unpaintFont(record.data());
+                case BRT.FILL -> record = new Record(BRT.FILL, unpaintFill(record.data()));
+                case BRT.BORDER -> unpaintBorder(record.data());
+                default -> {
+                    // nop
+                }
+                }
+                records.add(record);
+            }
+            return new StylesManager(records);
+        }
+        
+        private static void unpaintFont(byte[] data) {
+            // dyHeight, grbit, bls, sss (2 bytes each), uls, bFamily, bCharSet, unused (1 byte each), brtColor
+            if (20 <= data.length) {
+                System.arraycopy(autoColor, 0, data, 12, 8);
+            }
+        }
+        
+        private static byte[] unpaintFill(byte[] data) {
+            // fls (4 bytes), brtColorFore, brtColorBack, グラデーション情報...
+            int fls = data.length < 20 ? FLS_NONE : XlsbUtil.getInt(data, 0);
+            if (fls == FLS_SOLID || fls == FLS_GRADIENT || data.length < 20) {
+                return createFill(FLS_NONE, defaultForeColor);
+            }
+            System.arraycopy(defaultForeColor, 0, data, 4, 8);
+            System.arraycopy(defaultBackColor, 0, data, 12, 8);
+            return data;
+        }
+        
+        private static void unpaintBorder(byte[] data) {
+            // flags (1 byte), 上下左右と斜線のそれぞれについて dg, reserved (1 byte each), brtColor
+            for (int i = 0; i < 5; i++) {
+                int off = 1 + 10 * i + 2;
+                if (off + 8 <= data.length) {
+                    System.arraycopy(autoBorderColor, 0, data, off, 8);
+                }
+            }
+        }
+        
+        private static byte[] createFill(int fls, byte[] foreColor) {
+            byte[] data = new byte[FILL_SIZE];
+            XlsbUtil.putInt(data, 0, fls);
+            System.arraycopy(foreColor, 0, data, 4, 8);
+            System.arraycopy(defaultBackColor, 0, data, 12, 8);
+            return data;
+        }
+        
+        // [instance members] --------------------------------------------------
+        
+        private final List<Record> records;
+        private final List<byte[]> cellXfs = new ArrayList<>();
+        private final int fillsCount;
+        private final List<byte[]> newFills = new ArrayList<>();
+        private final List<byte[]> newXfs = new ArrayList<>();
+        private final Map<IntPair, Integer> xfsMap = new HashMap<>();
+        private final Map<Short, Integer> fillsMap = new HashMap<>();
+        
+        private StylesManager(List<Record> records) {
+            assert records != null;
+            
+            this.records = records;
+            
+            int fills = 0;
+            boolean inCellXfs = false;
+            for (Record record : records) {
+                switch (record.type()) {
+                case BRT.FILL -> fills++;
+                case BRT.BEGIN_CELL_XFS -> inCellXfs = true;
+                case BRT.END_CELL_XFS -> inCellXfs = false;
+                case BRT.XF -> {
+                    if (inCellXfs) {
+                        cellXfs.add(record.data());
+                    }
+                }
+                default -> {
+                    // nop
+                }
+                }
+            }
+            fillsCount = fills;
+        }
+        
+        /**
+         * 指定されたスタイルに指定された色を適用したスタイルのインデックスを返します。<br>
+         * 該当するスタイルが既に存在すればそれを、存在しなければ新たに作成して返します。<br>
+         *
+         * @param styleIdx 元のスタイルのインデックス
+         * @param colorIdx 着色する色のインデックス
+         * @return 該当するスタイルのインデックス
+         */
+        private int getPaintedStyle(int styleIdx, short colorIdx) {
+            IntPair key = IntPair.of(styleIdx, colorIdx);
+            Integer idx = xfsMap.get(key);
+            return idx != null ? idx : copyXf(styleIdx, colorIdx);
+        }
+        
+        private int copyXf(int styleIdx, short colorIdx) {
+            byte[] original = 0 <= styleIdx && styleIdx < cellXfs.size()
+                    ? cellXfs.get(styleIdx)
+                    : cellXfs.get(0);
+            byte[] newXf = original.clone();
+            
+            int newFillId = Optional.ofNullable(fillsMap.get(colorIdx))
+                    .orElseGet(() -> createFill(colorIdx));
+            // ixfeParent, iFmt, iFont (2 bytes each), iFill
+            XlsbUtil.putUInt16(newXf, 6, newFillId);
+            // ..., xfGrbitAtr
+            newXf[14] |= ATR_PAT;
+            
+            int newXfId = cellXfs.size() + newXfs.size();
+            newXfs.add(newXf);
+            xfsMap.put(IntPair.of(styleIdx, colorIdx), newXfId);
+            return newXfId;
+        }
+        
+        private int createFill(short colorIdx) {
+            // fValidRGB = 1, xColorType = 1 (インデックス), index
+            byte[] foreColor = { 0x03, (byte) colorIdx, 0, 0, 0, 0, 0, (byte) 0xFF };
+            
+            int newFillId = fillsCount + newFills.size();
+            newFills.add(createFill(FLS_SOLID, foreColor));
+            fillsMap.put(colorIdx, newFillId);
+            return newFillId;
+        }
+        
+        /**
+         * 追加したスタイルと塗りつぶしを含め、すべてのレコードを書き出します。<br>
+         *
+         * @param os 書き出し先の出力ストリーム
+         * @throws IOException 書き出しに失敗した場合
+         */
+        private void writeTo(OutputStream os) throws IOException {
+            assert os != null;
+            
+            Biff12RecordWriter writer = new Biff12RecordWriter(os);
+            for (Record record : records) {
+                switch (record.type()) {
+                case BRT.BEGIN_FILLS -> writeCount(writer, record, fillsCount + newFills.size());
+                case BRT.BEGIN_CELL_XFS -> writeCount(writer, record, cellXfs.size() + newXfs.size());
+                case BRT.END_FILLS -> {
+                    for (byte[] fill : newFills) {
+                        writer.write(BRT.FILL, fill);
+                    }
+                    record.writeTo(writer);
+                }
+                case BRT.END_CELL_XFS -> {
+                    for (byte[] xf : newXfs) {
+                        writer.write(BRT.XF, xf);
+                    }
+                    record.writeTo(writer);
+                }
+                default -> record.writeTo(writer);
+                }
+            }
+            writer.flush();
+        }
+        
+        private void writeCount(Biff12RecordWriter writer, Record record, int count) throws IOException {
+            byte[] data = record.data().clone();
+            if (4 <= data.length) {
+                XlsbUtil.putInt(data, 0, count);
+            }
+            writer.write(record.type(), data);
+        }
+    }
+    
+    /**
+     * ワークシートのセルレコードです。<br>
+     * 省略形式のセルレコードは、列インデックスを持つ通常形式に変換して保持します。<br>
+     *
+     * @param column   列インデックス
+     * @param type     通常形式のセルレコードの種別
+     * @param data     通常形式のセルレコードのデータ
+     * @param trailers セルレコードに付随する後続のレコード（BrtShrFmla など）
+     * @author nmby
+     */
+    private static record CellRecord(int column, int type, byte[] data, List<Record> trailers) {
+    }
+    
+    /**
+     * 比較対象シートのシートデータ部分（BrtBeginSheetData から BrtEndSheetData まで）を
+     * 行単位でバッファリングしながら着色して書き出すクラスです。<br>
+     * 着色に伴い、不足している行や差分セルを補完します。<br>
+     *
+     * @author nmby
+     */
+    private static class SheetDataPainter {
+        
+        // [static members] ----------------------------------------------------
+        
+        /** BrtRowHdr 構造のうち、行のスタイルの適用（fGhostDirty）を表すビットのオフセット */
+        private static final int ROW_FLAGS_OFFSET = 11;
+        private static final int GHOST_DIRTY = 0x40;
+        
+        /** BrtRowHdr 構造の固定長部分の長さ */
+        private static final int ROW_HDR_FIXED_SIZE = 13;
+        
+        /** BrtRowHdr 構造の colspans が表す列ブロックの幅 */
+        private static final int COLSPAN_BLOCK = 1024;
+        
+        // [instance members] --------------------------------------------------
+        
+        private final Biff12RecordWriter writer;
+        private final StylesManager stylesManager;
+        private final short redundantColor;
+        private final short diffColor;
+        private final Set<Integer> redundantRows;
+        private final Set<Integer> redundantColumns;
+        private final Map<Integer, SortedSet<Integer>> diffCells;
+        private final Deque<Integer> rowsToEnsure;
+        private final int defaultRowHeight;
+        
+        private byte[] rowHeader;
+        private final List<Record> headerTrailers = new ArrayList<>();
+        private final List<CellRecord> cells = new ArrayList<>();
+        private final List<Record> pending = new ArrayList<>();
+        private int acDepth;
+        private int prevColumn;
+        
+        private SheetDataPainter(
+                Biff12RecordWriter writer,
+                StylesManager stylesManager,
+                short redundantColor,
+                short diffColor,
+                Piece piece,
+                int defaultRowHeight) {
+            
+            assert writer != null;
+            assert stylesManager != null;
+            assert piece != null;
+            
+            this.writer = writer;
+            this.stylesManager = stylesManager;
+            this.redundantColor = redundantColor;
+            this.diffColor = diffColor;
+            this.redundantRows = new HashSet<>(piece.redundantRows());
+            this.redundantColumns = new HashSet<>(piece.redundantColumns());
+            this.diffCells = new TreeMap<>();
+            piece.diffCellContents().forEach(
+                    cell -> diffCells.computeIfAbsent(cell.row(), k -> new TreeSet<>()).add(cell.column()));
+            SortedSet<Integer> rows = new TreeSet<>(redundantRows);
+            rows.addAll(diffCells.keySet());
+            this.rowsToEnsure = new ArrayDeque<>(rows);
+            this.defaultRowHeight = defaultRowHeight;
+        }
+        
+        /**
+         * シートデータ部分のレコードを受け取り、着色して書き出します。<br>
+         *
+         * @param reader レコードを読み取っているリーダー
+         * @return BrtEndSheetData レコードを書き出した場合は {@code true}
+         * @throws IOException 書き出しに失敗した場合
+         */
+        private boolean accept(Biff12RecordReader reader) throws IOException {
+            int type = reader.type();
+            
+            // BrtACBegin から BrtACEnd までのブロックは後続の行に付随するため、
+            // 次のレコードが現れるまで保留する。
+            if (0 < acDepth || type == BRT.AC_BEGIN) {
+                pending.add(Record.of(reader));
+                if (type == BRT.AC_BEGIN) {
+                    acDepth++;
+                } else if (type == BRT.AC_END) {
+                    acDepth--;
+                }
+                return false;
+            }
+            
+            if (type == BRT.ROW_HDR) {
+                flushRow();
+                int row = XlsbUtil.getInt(reader.data(), 0);
+                ensureRowsBefore(row);
+                writeAll(pending);
+                rowHeader = Arrays.copyOf(reader.data(), reader.size());
+                prevColumn = -1;
+                return false;
+            }
+            
+            if (type == BRT.END_SHEET_DATA) {
+                flushRow();
+                writeAll(pending);
+                ensureRowsBefore(Integer.MAX_VALUE);
+                writer.copy(reader);
+                return true;
+            }
+            
+            if (rowHeader == null) {
+                // 行に属さないレコードはそのまま書き出す。
+                writeAll(pending);
+                writer.copy(reader);
+                return false;
+            }
+            
+            List<Record> trailers = cells.isEmpty()
+                    ? headerTrailers
+                    : cells.getLast().trailers();
+            trailers.addAll(pending);
+            pending.clear();
+            
+            if (XlsbUtil.isFullCell(type)) {
+                int column = XlsbUtil.getInt(reader.data(), 0);
+                cells.add(new CellRecord(
+                        column, type, Arrays.copyOf(reader.data(), reader.size()), new ArrayList<>()));
+                prevColumn = column;
+                
+            } else if (0 <= XlsbUtil.fullCellTypeOf(type)) {
+                int column = prevColumn + 1;
+                byte[] data = new byte[reader.size() + 4];
+                XlsbUtil.putInt(data, 0, column);
+                System.arraycopy(reader.data(), 0, data, 4, reader.size());
+                cells.add(new CellRecord(column, XlsbUtil.fullCellTypeOf(type), data, new ArrayList<>()));
+                prevColumn = column;
+                
+            } else {
+                trailers.add(Record.of(reader));
+            }
+            return false;
+        }
+        
+        private void writeAll(List<Record> records) throws IOException {
+            for (Record record : records) {
+                record.writeTo(writer);
+            }
+            records.clear();
+        }
+        
+        /**
+         * 指定された行より前に補完すべき行があれば、それらを作成して書き出します。<br>
+         *
+         * @param row 行インデックス
+         * @throws IOException 書き出しに失敗した場合
+         */
+        private void ensureRowsBefore(int row) throws IOException {
+            while (!rowsToEnsure.isEmpty() && rowsToEnsure.peek() < row) {
+                int r = rowsToEnsure.poll();
+                
+                byte[] header = new byte[ROW_HDR_FIXED_SIZE + 4];
+                XlsbUtil.putInt(header, 0, r);
+                if (redundantRows.contains(r)) {
+                    XlsbUtil.putInt(header, 4, stylesManager.getPaintedStyle(0, redundantColor));
+                    header[ROW_FLAGS_OFFSET] = GHOST_DIRTY;
+                }
+                XlsbUtil.putUInt16(header, 8, defaultRowHeight);
+                
+                writeRow(header, List.of(), List.of());
+            }
+        }
+        
+        /**
+         * バッファリングしている行を着色して書き出します。<br>
+         *
+         * @throws IOException 書き出しに失敗した場合
+         */
+        private void flushRow() throws IOException {
+            if (rowHeader == null) {
+                return;
+            }
+            int row = XlsbUtil.getInt(rowHeader, 0);
+            if (!rowsToEnsure.isEmpty() && rowsToEnsure.peek() == row) {
+                rowsToEnsure.poll();
+            }
+            
+            if (redundantRows.contains(row)) {
+                int style = XlsbUtil.getInt(rowHeader, 4);
+                XlsbUtil.putInt(rowHeader, 4, stylesManager.getPaintedStyle(style, redundantColor));
+                rowHeader[ROW_FLAGS_OFFSET] |= GHOST_DIRTY;
+            } else if (!redundantRows.isEmpty()) {
+                rowHeader[ROW_FLAGS_OFFSET] &= ~GHOST_DIRTY;
+            }
+            
+            writeRow(rowHeader, headerTrailers, cells);
+            
+            rowHeader = null;
+            headerTrailers.clear();
+            cells.clear();
+        }
+        
+        /**
+         * 行のレコードを書き出します。<br>
+         * 行内のセルを着色するとともに、不足している差分セルを補完します。<br>
+         *
+         * @param header         BrtRowHdr レコードのデータ
+         * @param headerTrailers BrtRowHdr レコードに付随するレコード
+         * @param rowCells       行内のセルレコード
+         * @throws IOException 書き出しに失敗した場合
+         */
+        private void writeRow(
+                byte[] header,
+                List<Record> headerTrailers,
+                List<CellRecord> rowCells)
+                throws IOException {
+            
+            int row = XlsbUtil.getInt(header, 0);
+            boolean isRedundantRow = redundantRows.contains(row);
+            Deque<Integer> diffColumns = new ArrayDeque<>(
+                    diffCells.getOrDefault(row, Collections.emptySortedSet()));
+            List<CellRecord> painted = new ArrayList<>();
+            boolean inserted = false;
+            
+            for (CellRecord cell : rowCells) {
+                while (!diffColumns.isEmpty() && diffColumns.peek() < cell.column()) {
+                    painted.add(createBlankCell(diffColumns.poll()));
+                    inserted = true;
+                }
+                if (!diffColumns.isEmpty() && diffColumns.peek() == cell.column()) {
+                    diffColumns.poll();
+                    paintCell(cell, diffColor);
+                } else if (isRedundantRow || redundantColumns.contains(cell.column())) {
+                    paintCell(cell, redundantColor);
+                }
+                painted.add(cell);
+            }
+            while (!diffColumns.isEmpty()) {
+                painted.add(createBlankCell(diffColumns.poll()));
+                inserted = true;
+            }
+            
+            if (inserted) {
+                header = withColspans(header, painted);
+            }
+            writer.write(BRT.ROW_HDR, header);
+            for (Record record : headerTrailers) {
+                record.writeTo(writer);
+            }
+            for (CellRecord cell : painted) {
+                writer.write(cell.type(), cell.data());
+                for (Record record : cell.trailers()) {
+                    record.writeTo(writer);
+                }
+            }
+        }
+        
+        private void paintCell(CellRecord cell, short colorIdx) {
+            // column (4 bytes), iStyleRef (24 bits), 各種フラグ (8 bits)
+            int style = XlsbUtil.getInt(cell.data(), 4) & 0xFFFFFF;
+            int newStyle = stylesManager.getPaintedStyle(style, colorIdx);
+            cell.data()[4] = (byte) newStyle;
+            cell.data()[5] = (byte) (newStyle >>> 8);
+            cell.data()[6] = (byte) (newStyle >>> 16);
+        }
+        
+        private CellRecord createBlankCell(int column) {
+            byte[] data = new byte[8];
+            XlsbUtil.putInt(data, 0, column);
+            XlsbUtil.putInt(data, 4, stylesManager.getPaintedStyle(0, diffColor));
+            return new CellRecord(column, BRT.CELL_BLANK, data, List.of());
+        }
+        
+        /**
+         * 指定されたセルを含むように colspans を再計算した BrtRowHdr レコードのデータを返します。<br>
+         *
+         * @param header   BrtRowHdr レコードのデータ
+         * @param rowCells 行内のセルレコード（列インデックスの昇順）
+         * @return 新たな BrtRowHdr レコードのデータ
+         */
+        private byte[] withColspans(byte[] header, List<CellRecord> rowCells) {
+            TreeMap<Integer, IntPair> spans = new TreeMap<>();
+            for (CellRecord cell : rowCells) {
+                spans.merge(
+                        cell.column() / COLSPAN_BLOCK,
+                        IntPair.of(cell.column(), cell.column()),
+                        (a, b) -> IntPair.of(Math.min(a.a(), b.a()), Math.max(a.b(), b.b())));
+            }
+            
+            byte[] newHeader = Arrays.copyOf(header, ROW_HDR_FIXED_SIZE + 4 + 8 * spans.size());
+            XlsbUtil.putInt(newHeader, ROW_HDR_FIXED_SIZE, spans.size());
+            int off = ROW_HDR_FIXED_SIZE + 4;
+            for (IntPair span : spans.values()) {
+                XlsbUtil.putInt(newHeader, off, span.a());
+                XlsbUtil.putInt(newHeader, off + 4, span.b());
+                off += 8;
+            }
+            return newHeader;
+        }
+    }
+    
+    /** BrtWsProp 構造のうち、シート見出しの色（brtcolorTab）のオフセット */
+    private static final int TAB_COLOR_OFFSET = 3;
+    
+    /** シート見出しの色が設定されていないことを表す BrtColor 構造 */
+    private static final byte[] noTabColor = { 0x00, 0x40, 0, 0, 0, 0, 0, 0 };
+    
+    /** 新たに作成する列の幅（1/256 文字単位） */
+    private static final int NEW_COLUMN_WIDTH = (int) (9.1 * 256);
+    
+    /** BrtRowHdr 構造の行の高さ（miyRw）の既定値（1/20 ポイント単位） */
+    private static final int DEFAULT_ROW_HEIGHT = 300;
+    
+    private static final String stylesEntry = "xl/styles.bin";
+    private static final String contentTypesEntry = "[Content_Types].xml";
+    private static final String binaryIndexRelType = "http://schemas.microsoft.com/office/2006/relationships/xlBinaryIndex";
+    private static final String relsXmlns = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String contentTypesXmlns = "http://schemas.openxmlformats.org/package/2006/content-types";
+    
+    private static final XMLInputFactory inFactory = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory outFactory = XMLOutputFactory.newInstance();
+    private static final DocumentBuilderFactory docBuilderFactory;
+    static {
+        docBuilderFactory = DocumentBuilderFactory.newInstance();
+        docBuilderFactory.setNamespaceAware(true);
+    }
+    private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    
+    // [instance members] ******************************************************
+    
+    private final short redundantColor;
+    private final short diffColor;
+    private final String redundantCommentColor;
+    private final String diffCommentColor;
+    private final Color redundantSheetColor;
+    private final Color diffSheetColor;
+    private final Color sameSheetColor;
+    
+    /**
+     * コンストラクタ
+     *
+     * @param redundantColor        余剰行・余剰列に着ける色のインデックス値
+     * @param diffColor             差分セルに着ける色のインデックス値
+     * @param redundantCommentColor 余剰セルコメントに着ける色の16進表現（例：{@code "#ff8080"}）
+     * @param diffCommentColor      余剰セルコメントに着ける色の16進表現（例：{@code "#ff8080"}）
+     * @param redundantSheetColor   余剰シートの見出しにつける色
+     * @param diffSheetColor        差分シートの見出しにつける色
+     * @param sameSheetColor        差分の無いシートの見出しにつける色
+     */
+    public PainterWithBiff12(
+            short redundantColor,
+            short diffColor,
+            String redundantCommentColor,
+            String diffCommentColor,
+            Color redundantSheetColor,
+            Color diffSheetColor,
+            Color sameSheetColor) {
+        
+        Objects.requireNonNull(redundantCommentColor);
+        Objects.requireNonNull(diffCommentColor);
+        Objects.requireNonNull(redundantSheetColor);
+        Objects.requireNonNull(diffSheetColor);
+        Objects.requireNonNull(sameSheetColor);
+        
+        this.redundantColor = redundantColor;
+        this.diffColor = diffColor;
+        this.redundantCommentColor = redundantCommentColor;
+        this.diffCommentColor = diffCommentColor;
+        this.redundantSheetColor = redundantSheetColor;
+        this.diffSheetColor = diffSheetColor;
+        this.sameSheetColor = sameSheetColor;
+    }
+    
+    // 例外カスケードのポリシーについて：
+    // ・プログラミングミスに起因するこのメソッドの呼出不正は RuntimeException の派生でレポートする。
+    // 例えば null パラメータとか、サポート対象外のブック形式とか。
+    // ・それ以外のあらゆる例外は ExcelHandlingException でレポートする。
+    // 例えば、ブックが見つからないとか、ファイル内容がおかしく予期せぬ実行時例外が発生したとか。
+    @Override
+    public void paintAndSave(
+            Path srcBookPath,
+            Path dstBookPath,
+            String readPassword,
+            Map<String, Optional<Piece>> diffs)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(srcBookPath);
+        Objects.requireNonNull(dstBookPath);
+        // readPassword may be null
+        Objects.requireNonNull(diffs);
+        CommonUtil.ifNotSupportedBookTypeThenThrow(getClass(), BookType.of(srcBookPath));
+        if (Objects.equals(srcBookPath, dstBookPath)) {
+            throw new IllegalArgumentException(
+                    "different book paths are required : %s -> %s".formatted(srcBookPath, dstBookPath));
+        }
+        if (BookType.of(srcBookPath) != BookType.of(dstBookPath)) {
+            throw new IllegalArgumentException(
+                    "extentions must be the same : %s -> %s".formatted(srcBookPath, dstBookPath));
+        }
+        
+        // 暗号化されたブックの場合は、復号したものを元に着色する。
+        // 着色後のブックは、PainterWithStax と同様に暗号化せずに保存する。
+        try (DecryptedBookCache cache = DecryptedBookCache.open()) {
+            Path zipPath = readPassword == null
+                    ? srcBookPath
+                    : cache.decryptedPath(srcBookPath, readPassword);
+            
+            paintAndSave2(zipPath, dstBookPath, diffs);
+        }
+    }
+    
+    private void paintAndSave2(
+            Path srcZipPath,
+            Path dstBookPath,
+            Map<String, Optional<Piece>> diffs)
+            throws ExcelHandlingException {
+        
+        assert srcZipPath != null;
+        assert dstBookPath != null;
+        assert diffs != null;
+        
+        // 1. 目的のブックをコピーする。
+        copyFile(srcZipPath, dstBookPath);
+        
+        // 2. 対象のExcelファイルをZipファイルとして扱い各種処理を行う。
+        // 注意：コピー先は復号済みのため、読み取りパスワードは不要。
+        List<SheetInfo> sheetInfos = XlsbUtil.loadSheetInfos(dstBookPath, null).stream()
+                .filter(info -> info.type() == SheetType.WORKSHEET)
+                .toList();
+        
+        try (FileSystem inFs = FileSystems.newFileSystem(srcZipPath);
+                FileSystem outFs = FileSystems.newFileSystem(dstBookPath)) {
+            
+            // 2-1. xl/styles.bin エントリを読み込み、色に関わる各種設定をクリアする。
+            //      文字列内の一部の文字に対する書式もフォントとして xl/styles.bin に保持されるため、
+            //      xl/sharedStrings.bin エントリに対する処理は不要である。
+            StylesManager stylesManager = loadStylesEntry(inFs);
+            
+            // 2-2. 個別のワークシートに対応する以下の各エントリに対する処理
+            // - xl/worksheets/sheet?.bin
+            // - xl/drawings/vmlDrawing?.vml
+            processWorksheetEntries(inFs, outFs, stylesManager, sheetInfos, diffs);
+            
+            // 2-3. 書き換えたワークシートの行の位置を保持する xl/worksheets/binaryIndex?.bin エントリを削除する。
+            removeBinaryIndexEntries(outFs, sheetInfos);
+            
+            // 2-4. 最後に、着色用のスタイルを追加した xl/styles.bin エントリを保存する。
+            saveStylesEntry(outFs, stylesManager);
+            
+        } catch (ExcelHandlingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ExcelHandlingException(e);
+        }
+    }
+    
+    /**
+     * 1. 目的のブックをコピーします。<br>
+     *
+     * @param src コピー元Excelブックのパス
+     * @param dst コピー先のパス（ファイル名を含む）
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    private void copyFile(Path src, Path dst) throws ExcelHandlingException {
+        assert src != null;
+        assert dst != null;
+        assert !src.equals(dst);
+        
+        try {
+            Files.copy(src, dst);
+            dst.toFile().setReadable(true, false);
+            dst.toFile().setWritable(true, false);
+            
+        } catch (Exception e) {
+            throw new ExcelHandlingException(
+                    "failed to copy the book : %s -> %s".formatted(src, dst),
+                    e);
+        }
+    }
+    
+    /**
+     * 2-1. xl/styles.bin エントリを読み込みます。<br>
+     * 具体的には、当該エントリ内の色に関わる各種設定をクリアすることにより、
+     * セル背景色、罫線色、フォント色などをクリアします。<br>
+     *
+     * @param inFs コピー元Excelブックに対する {@link FileSystem}
+     * @return xl/styles.bin エントリのラッパー
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    private StylesManager loadStylesEntry(FileSystem inFs) throws ExcelHandlingException {
+        try (InputStream is = Files.newInputStream(inFs.getPath(stylesEntry))) {
+            return StylesManager.load(is);
+            
+        } catch (Exception e) {
+            throw new ExcelHandlingException("failed to load the entry : " + stylesEntry, e);
+        }
+    }
+    
+    /**
+     * 2-2. xl/worksheets/sheet?.bin エントリと xl/drawings/vmlDrawing?.vml エントリに対する処理を行います。<br>
+     * 具体的には、ワークシートのエントリ内の色に関わる設定を除去するとともに、
+     * 比較を行ったワークシートの差分個所に色を付けます。<br>
+     *
+     * @param inFs          コピー元Excelブックに対する {@link FileSystem}
+     * @param outFs         コピー先Excelブックに対する {@link FileSystem}
+     * @param stylesManager xl/styles.bin エントリのラッパー
+     * @param sheetInfos    ワークシートの情報
+     * @param diffs         シート名に対する差分情報
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    private void processWorksheetEntries(
+            FileSystem inFs,
+            FileSystem outFs,
+            StylesManager stylesManager,
+            List<SheetInfo> sheetInfos,
+            Map<String, Optional<Piece>> diffs)
+            throws ExcelHandlingException {
+        
+        for (SheetInfo sheetInfo : sheetInfos) {
+            String sheetName = sheetInfo.sheetName();
+            
+            if (diffs.containsKey(sheetName)) {
+                // 比較対象シートの場合
+                Optional<Piece> piece = diffs.get(sheetName);
+                Color tabColor = piece.map(p -> p.hasDiff() ? diffSheetColor : sameSheetColor)
+                        .orElse(redundantSheetColor);
+                
+                // xl/worksheets/sheet?.bin エントリに対する処理
+                processWorksheetEntry(inFs, outFs, stylesManager, sheetInfo.source(), tabColor, piece);
+                
+                // xl/drawings/vmlDrawing?.vml エントリに対する処理
+                String vmlDrawingSource = sheetInfo.vmlDrawingSource();
+                if (vmlDrawingSource != null) {
+                    processCommentDrawingEntry(inFs, outFs, vmlDrawingSource, piece);
+                }
+                
+            } else {
+                // 比較対象外のシートの場合
+                processWorksheetEntry(inFs, outFs, stylesManager, sheetInfo.source(), null, Optional.empty());
+            }
+        }
+    }
+    
+    /**
+     * ワークシートのエントリを書き換えます。<br>
+     * 条件付き書式を除去し、シート見出しの色を設定したうえで、
+     * 差分情報が指定された場合は余剰列・余剰行・差分セルに色を付けます。<br>
+     *
+     * @param inFs          コピー元Excelブックに対する {@link FileSystem}
+     * @param outFs         コピー先Excelブックに対する {@link FileSystem}
+     * @param stylesManager xl/styles.bin エントリのラッパー
+     * @param source        ワークシートのエントリのパス
+     * @param tabColor      シート見出しにつける色（見出しの色をクリアする場合は {@code null}）
+     * @param piece         差分情報
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    private void processWorksheetEntry(
+            FileSystem inFs,
+            FileSystem outFs,
+            StylesManager stylesManager,
+            String source,
+            Color tabColor,
+            Optional<Piece> piece)
+            throws ExcelHandlingException {
+        
+        try (InputStream is = Files.newInputStream(inFs.getPath(source));
+                OutputStream os = Files.newOutputStream(outFs.getPath(source),
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            
+            Biff12RecordReader reader = new Biff12RecordReader(is);
+            Biff12RecordWriter writer = new Biff12RecordWriter(os);
+            
+            List<Integer> redundantColumns = piece.map(Piece::redundantColumns).orElse(List.of());
+            List<Record> colInfos = null;
+            boolean colInfosWritten = false;
+            int condFormattingDepth = 0;
+            int defaultRowHeight = DEFAULT_ROW_HEIGHT;
+            SheetDataPainter sheetDataPainter = null;
+            
+            while (reader.next()) {
+                int type = reader.type();
+                
+                if (sheetDataPainter != null) {
+                    if (sheetDataPainter.accept(reader)) {
+                        sheetDataPainter = null;
+                    }
+                    continue;
+                }
+                
+                // 条件付き書式を除去する。
+                if (type == BRT.BEGIN_COND_FORMATTING) {
+                    condFormattingDepth++;
+                    continue;
+                }
+                if (0 < condFormattingDepth) {
+                    if (type == BRT.END_COND_FORMATTING) {
+                        condFormattingDepth--;
+                    }
+                    continue;
+                }
+                
+                if (colInfos != null) {
+                    if (type == BRT.END_COL_INFOS) {
+                        writeColInfos(writer, stylesManager, colInfos, redundantColumns);
+                        colInfos = null;
+                        colInfosWritten = true;
+                    } else {
+                        colInfos.add(Record.of(reader));
+                    }
+                    continue;
+                }
+                
+                switch (type) {
+                case BRT.WS_PROP -> {
+                    byte[] data = Arrays.copyOf(reader.data(), reader.size());
+                    if (TAB_COLOR_OFFSET + 8 <= data.length) {
+                        System.arraycopy(tabColorOf(tabColor), 0, data, TAB_COLOR_OFFSET, 8);
+                    }
+                    writer.write(type, data);
+                }
+                case BRT.WS_DIM -> {
+                    byte[] data = Arrays.copyOf(reader.data(), reader.size());
+                    piece.ifPresent(p -> extendDimension(data, p));
+                    writer.write(type, data);
+                }
+                case BRT.WS_FMT_INFO -> {
+                    // dxGCol (4 bytes), cchDefColWidth (2 bytes), miyDefRwHeight (2 bytes)
+                    if (8 <= reader.size()) {
+                        defaultRowHeight = XlsbUtil.getUInt16(reader.data(), 6);
+                    }
+                    writer.copy(reader);
+                }
+                case BRT.BEGIN_COL_INFOS -> colInfos = new ArrayList<>();
+                case BRT.BEGIN_SHEET_DATA -> {
+                    if (!colInfosWritten && !redundantColumns.isEmpty()) {
+                        writeColInfos(writer, stylesManager, List.of(), redundantColumns);
+                    }
+                    writer.copy(reader);
+                    if (piece.isPresent()) {
+                        sheetDataPainter = new SheetDataPainter(
+                                writer,
+                                stylesManager,
+                                redundantColor,
+                                diffColor,
+                                piece.get(),
+                                defaultRowHeight);
+                    }
+                }
+                default -> writer.copy(reader);
+                }
+            }
+            writer.flush();
+            
+        } catch (Exception e) {
+            throw new ExcelHandlingException("failed to process the entry : " + source, e);
+        }
+    }
+    
+    private byte[] tabColorOf(Color color) {
+        if (color == null) {
+            return noTabColor;
+        }
+        // fValidRGB = 1, xColorType = 2 (RGB), index, nTintAndShade (2 bytes), R, G, B, A
+        return new byte[] { 0x05, 0, 0, 0,
+                (byte) color.getRed(), (byte) color.getGreen(), (byte) color.getBlue(), (byte) 0xFF };
+    }
+    
+    /**
+     * 補完する行やセルを含むように、BrtWsDim レコードが表すシートの使用範囲を拡張します。<br>
+     *
+     * @param data  BrtWsDim レコードのデータ（rwFirst, rwLast, colFirst, colLast）
+     * @param piece 差分情報
+     */
+    private void extendDimension(byte[] data, Piece piece) {
+        if (data.length < 16) {
+            return;
+        }
+        int rwFirst = XlsbUtil.getInt(data, 0);
+        int rwLast = XlsbUtil.getInt(data, 4);
+        int colFirst = XlsbUtil.getInt(data, 8);
+        int colLast = XlsbUtil.getInt(data, 12);
+        
+        for (int row : piece.redundantRows()) {
+            rwFirst = Math.min(rwFirst, row);
+            rwLast = Math.max(rwLast, row);
+        }
+        for (CellData cell : piece.diffCellContents()) {
+            rwFirst = Math.min(rwFirst, cell.row());
+            rwLast = Math.max(rwLast, cell.row());
+            colFirst = Math.min(colFirst, cell.column());
+            colLast = Math.max(colLast, cell.column());
+        }
+        
+        XlsbUtil.putInt(data, 0, rwFirst);
+        XlsbUtil.putInt(data, 4, rwLast);
+        XlsbUtil.putInt(data, 8, colFirst);
+        XlsbUtil.putInt(data, 12, colLast);
+    }
+    
+    /**
+     * 列の書式を表すレコード群（BrtBeginColInfos から BrtEndColInfos まで）を書き出します。<br>
+     * 余剰列が指定された場合は、元の列の範囲を余剰列の境界で分割したうえで、
+     * 余剰列に色を付けます。<br>
+     *
+     * @param writer           ワークシートのエントリへのライター
+     * @param stylesManager    xl/styles.bin エントリのラッパー
+     * @param colInfos         元の BrtColInfo レコード
+     * @param redundantColumns 余剰列
+     * @throws IOException 書き出しに失敗した場合
+     */
+    private void writeColInfos(
+            Biff12RecordWriter writer,
+            StylesManager stylesManager,
+            List<Record> colInfos,
+            List<Integer> redundantColumns)
+            throws IOException {
+        
+        writer.write(BRT.BEGIN_COL_INFOS, new byte[0]);
+        
+        if (redundantColumns.isEmpty()) {
+            for (Record record : colInfos) {
+                record.writeTo(writer);
+            }
+            
+        } else {
+            // colFirst, colLast, coldx, ixfe (4 bytes each), flags (2 bytes)
+            TreeMap<Integer, byte[]> firstToInfo = colInfos.stream()
+                    .filter(record -> record.type() == BRT.COL_INFO && 16 <= record.data().length)
+                    .collect(Collectors.toMap(
+                            record -> XlsbUtil.getInt(record.data(), 0),
+                            Record::data,
+                            (a, b) -> a,
+                            TreeMap::new));
+            Set<Integer> redundants = new HashSet<>(redundantColumns);
+            
+            // 元の列の範囲と余剰列の範囲のすべての境界で区切った区間ごとに、レコードを作成する。
+            TreeSet<Integer> bounds = new TreeSet<>();
+            firstToInfo.values().forEach(info -> {
+                bounds.add(XlsbUtil.getInt(info, 0));
+                bounds.add(XlsbUtil.getInt(info, 4) + 1);
+            });
+            redundantColumns.forEach(column -> {
+                bounds.add(column);
+                bounds.add(column + 1);
+            });
+            
+            Integer start = bounds.pollFirst();
+            while (!bounds.isEmpty()) {
+                int end = bounds.pollFirst();
+                Map.Entry<Integer, byte[]> entry = firstToInfo.floorEntry(start);
+                byte[] original = entry != null && start <= XlsbUtil.getInt(entry.getValue(), 4)
+                        ? entry.getValue()
+                        : null;
+                boolean redundant = redundants.contains(start);
+                
+                if (original != null || redundant) {
+                    byte[] data;
+                    if (original != null) {
+                        data = original.clone();
+                    } else {
+                        data = new byte[18];
+                        XlsbUtil.putInt(data, 8, NEW_COLUMN_WIDTH);
+                    }
+                    XlsbUtil.putInt(data, 0, start);
+                    XlsbUtil.putInt(data, 4, end - 1);
+                    if (redundant) {
+                        int style = XlsbUtil.getInt(data, 12);
+                        XlsbUtil.putInt(data, 12, stylesManager.getPaintedStyle(style, redundantColor));
+                    }
+                    writer.write(BRT.COL_INFO, data);
+                }
+                start = end;
+            }
+        }
+        
+        writer.write(BRT.END_COL_INFOS, new byte[0]);
+    }
+    
+    private void processCommentDrawingEntry(
+            FileSystem inFs,
+            FileSystem outFs,
+            String vmlDrawingSource,
+            Optional<Piece> piece)
+            throws ExcelHandlingException {
+        
+        try (InputStream is = Files.newInputStream(inFs.getPath(vmlDrawingSource));
+                OutputStream os = Files.newOutputStream(outFs.getPath(vmlDrawingSource),
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            
+            XMLEventReader reader = inFactory.createXMLEventReader(is, "UTF-8");
+            XMLEventWriter writer = outFactory.createXMLEventWriter(os, "UTF-8");
+            
+            reader = CloseAndUnpaintCommentsReader.of(reader);
+            
+            if (piece.isPresent()) {
+                Piece p = piece.get();
+                
+                Set<String> diffCommentAddrs = p.diffCellComments().stream()
+                        .map(CellData::address)
+                        .collect(Collectors.toSet());
+                Set<String> redundantCommentAddrs = p.redundantCellComments().stream()
+                        .map(CellData::address)
+                        .collect(Collectors.toSet());
+                
+                if (!diffCommentAddrs.isEmpty() || !redundantCommentAddrs.isEmpty()) {
+                    reader = PaintDiffOrRedundantCommentsReader.of(
+                            reader,
+                            diffCommentAddrs,
+                            redundantCommentAddrs,
+                            diffCommentColor,
+                            redundantCommentColor);
+                }
+            }
+            
+            writer.add(reader);
+            
+        } catch (Exception e) {
+            throw new ExcelHandlingException("failed to process the entry : " + vmlDrawingSource, e);
+        }
+    }
+    
+    /**
+     * 2-3. 書き換えたワークシートに対応する xl/worksheets/binaryIndex?.bin エントリを削除します。<br>
+     * 当該エントリはワークシートのエントリ内の行の位置を保持する任意のエントリであり、
+     * 書き換えにより位置がずれると整合しなくなるため、リレーションシップとコンテンツタイプの定義とともに削除します。<br>
+     *
+     * @param outFs      コピー先Excelブックに対する {@link FileSystem}
+     * @param sheetInfos 書き換えたワークシートの情報
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    private void removeBinaryIndexEntries(FileSystem outFs, List<SheetInfo> sheetInfos)
+            throws ExcelHandlingException {
+        
+        Set<String> removed = new HashSet<>();
+        
+        for (SheetInfo sheetInfo : sheetInfos) {
+            String relsEntry = XlsbUtil.relsEntryFor(sheetInfo.source());
+            Path relsPath = outFs.getPath(relsEntry);
+            if (!Files.exists(relsPath)) {
+                continue;
+            }
+            
+            try {
+                Document rels = loadXml(relsPath);
+                NodeList relationships = rels.getElementsByTagNameNS(relsXmlns, "Relationship");
+                boolean modified = false;
+                
+                for (int i = relationships.getLength() - 1; 0 <= i; i--) {
+                    Element relationship = (Element) relationships.item(i);
+                    if (binaryIndexRelType.equals(relationship.getAttribute("Type"))) {
+                        String target = XlsbUtil.resolve(sheetInfo.source(), relationship.getAttribute("Target"));
+                        relationship.getParentNode().removeChild(relationship);
+                        Files.deleteIfExists(outFs.getPath(target));
+                        removed.add("/" + target);
+                        modified = true;
+                    }
+                }
+                if (modified) {
+                    saveXml(rels, relsPath);
+                }
+                
+            } catch (Exception e) {
+                throw new ExcelHandlingException("failed to process the entry : " + relsEntry, e);
+            }
+        }
+        
+        if (removed.isEmpty()) {
+            return;
+        }
+        
+        try {
+            Path contentTypesPath = outFs.getPath(contentTypesEntry);
+            Document contentTypes = loadXml(contentTypesPath);
+            NodeList overrides = contentTypes.getElementsByTagNameNS(contentTypesXmlns, "Override");
+            for (int i = overrides.getLength() - 1; 0 <= i; i--) {
+                Element override = (Element) overrides.item(i);
+                if (removed.contains(override.getAttribute("PartName"))) {
+                    override.getParentNode().removeChild(override);
+                }
+            }
+            saveXml(contentTypes, contentTypesPath);
+            
+        } catch (Exception e) {
+            throw new ExcelHandlingException("failed to process the entry : " + contentTypesEntry, e);
+        }
+    }
+    
+    private Document loadXml(Path path) throws Exception {
+        try (InputStream is = Files.newInputStream(path)) {
+            DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
+            return docBuilder.parse(is);
+        }
+    }
+    
+    private void saveXml(Document doc, Path path) throws Exception {
+        try (OutputStream os = Files.newOutputStream(path, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Transformer transformer = transformerFactory.newTransformer();
+            transformer.transform(new DOMSource(doc), new StreamResult(os));
+        }
+    }
+    
+    /**
+     * 2-4. 着色用のスタイルを追加した xl/styles.bin エントリを保存します。<br>
+     *
+     * @param outFs         コピー先Excelブックに対する {@link FileSystem}
+     * @param stylesManager xl/styles.bin エントリのラッパー
+     * @throws ExcelHandlingException 処理に失敗した場合
+     */
+    private void saveStylesEntry(FileSystem outFs, StylesManager stylesManager) throws ExcelHandlingException {
+        try (OutputStream os = Files.newOutputStream(outFs.getPath(stylesEntry),
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            
+            stylesManager.writeTo(os);
+            
+        } catch (Exception e) {
+            throw new ExcelHandlingException("failed to save the entry : " + stylesEntry, e);
+        }
+    }
+}
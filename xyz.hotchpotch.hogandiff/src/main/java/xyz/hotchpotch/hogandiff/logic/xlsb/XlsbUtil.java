@@ -0,0 +1,543 @@
+package xyz.hotchpotch.hogandiff.logic.xlsb;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import xyz.hotchpotch.hogandiff.logic.BatchCache;
+import xyz.hotchpotch.hogandiff.logic.BookHandler;
+import xyz.hotchpotch.hogandiff.logic.BookType;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.SheetType;
+import xyz.hotchpotch.hogandiff.logic.plain.CommonUtil;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil.IgnoreCloseInputStream;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil.SheetInfo;
+import xyz.hotchpotch.hogandiff.util.function.UnsafeFunction;
+
+/**
+ * .xlsb 形式のExcelブックをBIFF12形式のレコードとして処理する際に便利な機能を集めた
+ * ユーティリティクラスです。<br>
+ *
+ * @author nmby
+ */
+@BookHandler(targetTypes = { BookType.XLSB })
+public class XlsbUtil {
+    
+    // [static members] ********************************************************
+    
+    /**
+     * このアプリケーションで扱うBIFF12レコードの種別を保持する定数クラスです。<br>
+     * 名前は [MS-XLSB] のレコード名から接頭辞 Brt を除いたものです。<br>
+     *
+     * @author nmby
+     */
+    public static class BRT {
+        
+        // [static members] ----------------------------------------------------
+        
+        /** BrtRowHdr */
+        public static final int ROW_HDR = 0;
+        /** BrtCellBlank */
+        public static final int CELL_BLANK = 1;
+        /** BrtCellRk */
+        public static final int CELL_RK = 2;
+        /** BrtCellError */
+        public static final int CELL_ERROR = 3;
+        /** BrtCellBool */
+        public static final int CELL_BOOL = 4;
+        /** BrtCellReal */
+        public static final int CELL_REAL = 5;
+        /** BrtCellSt */
+        public static final int CELL_ST = 6;
+        /** BrtCellIsst */
+        public static final int CELL_ISST = 7;
+        /** BrtFmlaString */
+        public static final int FMLA_STRING = 8;
+        /** BrtFmlaNum */
+        public static final int FMLA_NUM = 9;
+        /** BrtFmlaBool */
+        public static final int FMLA_BOOL = 10;
+        /** BrtFmlaError */
+        public static final int FMLA_ERROR = 11;
+        /** BrtShortBlank */
+        public static final int SHORT_BLANK = 12;
+        /** BrtShortRk */
+        public static final int SHORT_RK = 13;
+        /** BrtShortError */
+        public static final int SHORT_ERROR = 14;
+        /** BrtShortBool */
+        public static final int SHORT_BOOL = 15;
+        /** BrtShortReal */
+        public static final int SHORT_REAL = 16;
+        /** BrtShortSt */
+        public static final int SHORT_ST = 17;
+        /** BrtShortIsst */
+        public static final int SHORT_ISST = 18;
+        /** BrtSSTItem */
+        public static final int SST_ITEM = 19;
+        /** BrtFont */
+        public static final int FONT = 43;
+        /** BrtFill */
+        public static final int FILL = 45;
+        /** BrtBorder */
+        public static final int BORDER = 46;
+        /** BrtXF */
+        public static final int XF = 47;
+        /** BrtACBegin */
+        public static final int AC_BEGIN = 37;
+        /** BrtACEnd */
+        public static final int AC_END = 38;
+        /** BrtColInfo */
+        public static final int COL_INFO = 60;
+        /** BrtCellRString */
+        public static final int CELL_R_STRING = 62;
+        /** BrtBeginSheetData */
+        public static final int BEGIN_SHEET_DATA = 145;
+        /** BrtEndSheetData */
+        public static final int END_SHEET_DATA = 146;
+        /** BrtWsProp */
+        public static final int WS_PROP = 147;
+        /** BrtWsDim */
+        public static final int WS_DIM = 148;
+        /** BrtBundleSh */
+        public static final int BUNDLE_SH = 156;
+        /** BrtBeginSst */
+        public static final int BEGIN_SST = 159;
+        /** BrtBeginColInfos */
+        public static final int BEGIN_COL_INFOS = 390;
+        /** BrtEndColInfos */
+        public static final int END_COL_INFOS = 391;
+        /** BrtBeginCondFormatting */
+        public static final int BEGIN_COND_FORMATTING = 461;
+        /** BrtEndCondFormatting */
+        public static final int END_COND_FORMATTING = 462;
+        /** BrtWsFmtInfo */
+        public static final int WS_FMT_INFO = 485;
+        /** BrtBeginFills */
+        public static final int BEGIN_FILLS = 603;
+        /** BrtEndFills */
+        public static final int END_FILLS = 604;
+        /** BrtBeginCellXFs */
+        public static final int BEGIN_CELL_XFS = 617;
+        /** BrtEndCellXFs */
+        public static final int END_CELL_XFS = 618;
+        /** BrtBeginComment */
+        public static final int BEGIN_COMMENT = 635;
+        /** BrtCommentText */
+        public static final int COMMENT_TEXT = 637;
+        
+        // [instance members] --------------------------------------------------
+        
+        private BRT() {
+        }
+    }
+    
+    /**
+     * zipファイルとしての.xlsbファイルに含まれるリレーションシップパーツ（{@code *.rels}）から、
+     * リレーションシップIdに対する種類とターゲットのパスを抽出します。<br>
+     *
+     * <pre>
+     * *.xlsb
+     *   +-xl
+     *     +-_rels
+     *     | +-workbook.bin.rels
+     *     +-worksheets
+     *       +-_rels
+     *         +-sheet?.bin.rels
+     * </pre>
+     *
+     * @author nmby
+     */
+    private static class RelsHandler extends DefaultHandler {
+        
+        // [static members] ----------------------------------------------------
+        
+        private static final String xmlns = "http://schemas.openxmlformats.org/package/2006/relationships";
+        
+        // [instance members] --------------------------------------------------
+        
+        private final String partName;
+        private final Map<String, String> idToType = new HashMap<>();
+        private final Map<String, String> idToTarget = new HashMap<>();
+        
+        /**
+         * コンストラクタ<br>
+         *
+         * @param partName リレーションシップの元となるパーツのパス（例：{@code "xl/workbook.bin"}）
+         */
+        private RelsHandler(String partName) {
+            assert partName != null;
+            
+            this.partName = partName;
+        }
+        
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (xmlns.equals(uri) && "Relationship".equals(localName)) {
+                String id = attributes.getValue("Id");
+                idToType.put(id, attributes.getValue("Type"));
+                idToTarget.put(id, resolve(partName, attributes.getValue("Target")));
+            }
+        }
+        
+        private String targetOf(String type) {
+            return idToType.entrySet().stream()
+                    .filter(entry -> type.equals(entry.getValue()))
+                    .map(entry -> idToTarget.get(entry.getKey()))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+    
+    private static final String workbookEntry = "xl/workbook.bin";
+    private static final String sharedStringsEntry = "xl/sharedStrings.bin";
+    
+    private static final String relsPrefix = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/";
+    private static final String commentRelType = relsPrefix + "comments";
+    private static final String vmlDrawingRelType = relsPrefix + "vmlDrawing";
+    
+    private static SheetType sheetTypeOf(String relType) {
+        return switch (relType) {
+        case relsPrefix + "worksheet" -> SheetType.WORKSHEET;
+        case relsPrefix + "chartsheet" -> SheetType.CHART_SHEET;
+        case relsPrefix + "dialogsheet" -> SheetType.DIALOG_SHEET;
+        case "http://schemas.microsoft.com/office/2006/relationships/xlMacrosheet" -> SheetType.MACRO_SHEET;
+        default -> null;
+        };
+    }
+    
+    /**
+     * 指定されたパーツのリレーションシップパーツのパスを返します。<br>
+     *
+     * @param partName パーツのパス（例：{@code "xl/worksheets/sheet1.bin"}）
+     * @return リレーションシップパーツのパス（例：{@code "xl/worksheets/_rels/sheet1.bin.rels"}）
+     */
+    /*package*/ static String relsEntryFor(String partName) {
+        int slash = partName.lastIndexOf('/');
+        return partName.substring(0, slash + 1) + "_rels/" + partName.substring(slash + 1) + ".rels";
+    }
+    
+    /**
+     * リレーションシップのターゲットを、パッケージのルートからのパスに解決します。<br>
+     *
+     * @param partName リレーションシップの元となるパーツのパス（例：{@code "xl/worksheets/sheet1.bin"}）
+     * @param target   ターゲット（例：{@code "../comments1.bin"}）
+     * @return パッケージのルートからのパス（例：{@code "xl/comments1.bin"}）
+     */
+    /*package*/ static String resolve(String partName, String target) {
+        if (target.startsWith("/")) {
+            return target.substring(1);
+        }
+        
+        Deque<String> segments = new ArrayDeque<>();
+        String[] base = partName.split("/");
+        for (int i = 0; i < base.length - 1; i++) {
+            segments.addLast(base[i]);
+        }
+        for (String segment : target.split("/")) {
+            switch (segment) {
+            case "", "." -> {
+                // nop
+            }
+            case ".." -> segments.pollLast();
+            default -> segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+    
+    /**
+     * 指定されたレコード種別が、列インデックスを持つ通常形式のセルレコードかを返します。<br>
+     *
+     * @param type レコード種別
+     * @return 通常形式のセルレコードの場合は {@code true}
+     */
+    /*package*/ static boolean isFullCell(int type) {
+        return (BRT.CELL_BLANK <= type && type <= BRT.FMLA_ERROR) || type == BRT.CELL_R_STRING;
+    }
+    
+    /**
+     * 省略形式のセルレコードの種別を、対応する通常形式のセルレコードの種別に変換します。<br>
+     * 省略形式のセルレコードは列インデックスを持たず、直前のセルの右隣のセルを表します。<br>
+     *
+     * @param type レコード種別
+     * @return 対応する通常形式のセルレコードの種別（省略形式のセルレコードでない場合は {@code -1}）
+     */
+    /*package*/ static int fullCellTypeOf(int type) {
+        return switch (type) {
+        case BRT.SHORT_BLANK -> BRT.CELL_BLANK;
+        case BRT.SHORT_RK -> BRT.CELL_RK;
+        case BRT.SHORT_ERROR -> BRT.CELL_ERROR;
+        case BRT.SHORT_BOOL -> BRT.CELL_BOOL;
+        case BRT.SHORT_REAL -> BRT.CELL_REAL;
+        case BRT.SHORT_ST -> BRT.CELL_ST;
+        case BRT.SHORT_ISST -> BRT.CELL_ISST;
+        default -> -1;
+        };
+    }
+    
+    /**
+     * 指定された配列の指定された位置から、リトルエンディアンの4バイト整数を読み取ります。<br>
+     *
+     * @param data 配列
+     * @param off  位置
+     * @return 読み取った値
+     */
+    /*package*/ static int getInt(byte[] data, int off) {
+        return (data[off] & 0xFF)
+                | (data[off + 1] & 0xFF) << 8
+                | (data[off + 2] & 0xFF) << 16
+                | (data[off + 3] & 0xFF) << 24;
+    }
+    
+    /**
+     * 指定された配列の指定された位置に、リトルエンディアンの4バイト整数を書き込みます。<br>
+     *
+     * @param data  配列
+     * @param off   位置
+     * @param value 書き込む値
+     */
+    /*package*/ static void putInt(byte[] data, int off, int value) {
+        data[off] = (byte) value;
+        data[off + 1] = (byte) (value >>> 8);
+        data[off + 2] = (byte) (value >>> 16);
+        data[off + 3] = (byte) (value >>> 24);
+    }
+    
+    /**
+     * 指定された配列の指定された位置から、リトルエンディアンの符号なし2バイト整数を読み取ります。<br>
+     *
+     * @param data 配列
+     * @param off  位置
+     * @return 読み取った値
+     */
+    /*package*/ static int getUInt16(byte[] data, int off) {
+        return (data[off] & 0xFF) | (data[off + 1] & 0xFF) << 8;
+    }
+    
+    /**
+     * 指定された配列の指定された位置に、リトルエンディアンの2バイト整数を書き込みます。<br>
+     *
+     * @param data  配列
+     * @param off   位置
+     * @param value 書き込む値
+     */
+    /*package*/ static void putUInt16(byte[] data, int off, int value) {
+        data[off] = (byte) value;
+        data[off + 1] = (byte) (value >>> 8);
+    }
+    
+    /**
+     * *.xlsb 形式のExcelファイルをZipファイルとして処理するためのユーティリティメソッドです。<br>
+     * 暗号化されたブックの扱いを含め、
+     * {@link SaxUtil#processExcelAsZip(Path, String, UnsafeFunction)} と同様に振る舞います。<br>
+     *
+     * @param <T>
+     *            戻り値の型
+     * @param bookPath
+     *            Excelブックのパス
+     * @param readPassword
+     *            読取パスワード（読取パスワード無しの場合は {@code null}）
+     * @param processor
+     *            Zip処理プロセッサ
+     * @return 処理結果
+     * @throws NullPointerException
+     *             {@code bookPath}, {@code processor} のいずれかが
+     *             {@code null} の場合
+     * @throws ExcelHandlingException
+     *             処理に失敗した場合
+     */
+    public static <T> T processExcelAsZip(
+            Path bookPath,
+            String readPassword,
+            UnsafeFunction<ZipInputStream, T, Exception> processor)
+            throws ExcelHandlingException {
+        
+        return SaxUtil.processExcelAsZip(bookPath, readPassword, processor);
+    }
+    
+    /**
+     * .xlsb 形式のExcelブックからシート情報の一覧を読み取ります。<br>
+     *
+     * @param bookPath
+     *            Excelブックのパス
+     * @param readPassword
+     *            Excelブックの読み取りパスワード
+     * @return シート情報の一覧
+     * @throws NullPointerException
+     *             {@code bookPath} が {@code null} の場合
+     * @throws IllegalArgumentException
+     *             {@code bookPath} がサポート対象外の形式の場合
+     * @throws ExcelHandlingException
+     *             処理に失敗した場合
+     */
+    public static List<SheetInfo> loadSheetInfos(
+            Path bookPath,
+            String readPassword)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookPath);
+        // readPassword may be null.
+        CommonUtil.ifNotSupportedBookTypeThenThrow(XlsbUtil.class, BookType.of(bookPath));
+        
+        record SheetNameAndId(String sheetName, String id) {
+        }
+        
+        UnsafeFunction<ZipInputStream, List<SheetInfo>, Exception> processor = zis -> {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            SAXParser parser = factory.newSAXParser();
+            List<SheetNameAndId> sheetNameAndIds = new ArrayList<>();
+            Map<String, RelsHandler> relsHandlers = new HashMap<>();
+            
+            InputStream ignoreCloseZis = new IgnoreCloseInputStream(zis);
+            ZipEntry entry;
+            
+            while ((entry = zis.getNextEntry()) != null) {
+                String entryName = entry.getName();
+                
+                if (workbookEntry.equals(entryName)) {
+                    Biff12RecordReader reader = new Biff12RecordReader(ignoreCloseZis);
+                    while (reader.next()) {
+                        if (reader.type() == BRT.BUNDLE_SH) {
+                            // hsState (4 bytes), iTabID (4 bytes), strRelID, strName
+                            reader.skip(8);
+                            String id = reader.readWideString();
+                            String sheetName = reader.readWideString();
+                            sheetNameAndIds.add(new SheetNameAndId(sheetName, id));
+                        }
+                    }
+                    
+                } else if (entryName.startsWith("xl/") && entryName.endsWith(".rels")) {
+                    String partName = entryName.replace("_rels/", "");
+                    partName = partName.substring(0, partName.length() - ".rels".length());
+                    RelsHandler handler = new RelsHandler(partName);
+                    parser.parse(ignoreCloseZis, handler);
+                    relsHandlers.put(entryName, handler);
+                }
+            }
+            
+            RelsHandler workbookRels = relsHandlers.get(relsEntryFor(workbookEntry));
+            if (sheetNameAndIds.isEmpty() || workbookRels == null) {
+                // 何らかの理由によりシート名を読み取れなかった場合。
+                // パスワードでロックされている場合もあり得るが、例外を投げて後続のローダーに委ねることにする。
+                throw new ExcelHandlingException("no sheets found in the book : %s".formatted(bookPath));
+            }
+            
+            return sheetNameAndIds.stream()
+                    .map(sheetNameAndId -> {
+                        String id = sheetNameAndId.id();
+                        String relType = workbookRels.idToType.get(id);
+                        String source = workbookRels.idToTarget.get(id);
+                        RelsHandler sheetRels = source == null ? null : relsHandlers.get(relsEntryFor(source));
+                        
+                        return new SheetInfo(
+                                sheetNameAndId.sheetName(),
+                                id,
+                                relType == null ? null : sheetTypeOf(relType),
+                                source,
+                                sheetRels == null ? null : sheetRels.targetOf(commentRelType),
+                                sheetRels == null ? null : sheetRels.targetOf(vmlDrawingRelType));
+                    })
+                    .toList();
+        };
+        
+        return processExcelAsZip(bookPath, readPassword, processor);
+    }
+    
+    /**
+     * .xlsb 形式のExcelブックから Shared Strings を読み取ります。<br>
+     * リッチテキストの書式情報とフリガナは読み飛ばし、文字列のみを返します。<br>
+     * {@link BatchCache} が開かれている場合は、キャッシュ済みの読み込み結果を返します。<br>
+     *
+     * @param bookPath
+     *            Excelブックのパス
+     * @param readPassword
+     *            Excelブックの読み取りパスワード
+     * @return Shared Strings
+     * @throws NullPointerException
+     *             {@code bookPath} が {@code null} の場合
+     * @throws IllegalArgumentException
+     *             {@code bookPath} がサポート対象外の形式の場合
+     * @throws ExcelHandlingException
+     *             処理に失敗した場合
+     */
+    public static List<String> loadSharedStrings(
+            Path bookPath,
+            String readPassword)
+            throws ExcelHandlingException {
+        
+        Objects.requireNonNull(bookPath);
+        // readPassword may be null.
+        CommonUtil.ifNotSupportedBookTypeThenThrow(XlsbUtil.class, BookType.of(bookPath));
+        
+        Optional<BatchCache> cache = BatchCache.current();
+        if (cache.isPresent()) {
+            return cache.get().sharedStrings(
+                    bookPath,
+                    readPassword,
+                    () -> readSharedStrings(bookPath, readPassword));
+        }
+        return readSharedStrings(bookPath, readPassword);
+    }
+    
+    private static List<String> readSharedStrings(
+            Path bookPath,
+            String readPassword)
+            throws ExcelHandlingException {
+        
+        UnsafeFunction<ZipInputStream, List<String>, Exception> processor = zis -> {
+            ZipEntry entry;
+            
+            while ((entry = zis.getNextEntry()) != null) {
+                if (sharedStringsEntry.equals(entry.getName())) {
+                    Biff12RecordReader reader = new Biff12RecordReader(zis);
+                    List<String> sst = new ArrayList<>();
+                    
+                    while (reader.next()) {
+                        switch (reader.type()) {
+                        case BRT.BEGIN_SST -> {
+                            // cstTotal (4 bytes), cstUnique (4 bytes)
+                            reader.skip(4);
+                            sst = new ArrayList<>(Math.max(0, reader.readInt32()));
+                        }
+                        case BRT.SST_ITEM -> {
+                            // RichStr: フラグ (1 byte), XLWideString, 以降は書式情報とフリガナ
+                            reader.skip(1);
+                            sst.add(reader.readWideString());
+                        }
+                        default -> {
+                            // nop
+                        }
+                        }
+                    }
+                    return sst;
+                }
+            }
+            return List.of();
+        };
+        
+        return processExcelAsZip(bookPath, readPassword, processor);
+    }
+    
+    // [instance members] ******************************************************
+    
+    private XlsbUtil() {
+    }
+}
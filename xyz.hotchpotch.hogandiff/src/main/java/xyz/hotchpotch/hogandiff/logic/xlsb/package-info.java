@@ -0,0 +1,6 @@
+/**
+ * 比較機能に関するBIFF12（.xlsb 形式のバイナリレコード）依存の実装を提供します。<br>
+ *
+ * @author nmby
+ */
+package xyz.hotchpotch.hogandiff.logic.xlsb;
@@ -5,13 +5,19 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
 
 import javafx.concurrent.Task;
 import xyz.hotchpotch.hogandiff.AppMenu;
@@ -19,33 +25,42 @@ import xyz.hotchpotch.hogandiff.ApplicationException;
 import xyz.hotchpotch.hogandiff.ErrorReporter;
 import xyz.hotchpotch.hogandiff.Msg;
 import xyz.hotchpotch.hogandiff.SettingKeys;
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
 import xyz.hotchpotch.hogandiff.logic.BookInfo;
 import xyz.hotchpotch.hogandiff.logic.BookInfo.Status;
 import xyz.hotchpotch.hogandiff.logic.BookReportCreator;
+import xyz.hotchpotch.hogandiff.logic.BookType;
 import xyz.hotchpotch.hogandiff.logic.CellData;
 import xyz.hotchpotch.hogandiff.logic.CellsLoader;
 import xyz.hotchpotch.hogandiff.logic.ComparatorOfSheets;
 import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
 import xyz.hotchpotch.hogandiff.logic.Factory;
+import xyz.hotchpotch.hogandiff.logic.IncrementalComparison;
+import xyz.hotchpotch.hogandiff.logic.NdjsonResultWriter;
+import xyz.hotchpotch.hogandiff.logic.NdjsonResultWriter.PhaseTimings;
 import xyz.hotchpotch.hogandiff.logic.Painter;
 import xyz.hotchpotch.hogandiff.logic.PairingInfoBooks;
 import xyz.hotchpotch.hogandiff.logic.PairingInfoDirs;
+import xyz.hotchpotch.hogandiff.logic.PairingInfoDirs.PairingInfoDirsFlatten;
 import xyz.hotchpotch.hogandiff.logic.Result;
 import xyz.hotchpotch.hogandiff.logic.ResultOfBooks;
 import xyz.hotchpotch.hogandiff.logic.ResultOfDirs;
 import xyz.hotchpotch.hogandiff.logic.ResultOfSheets;
 import xyz.hotchpotch.hogandiff.logic.ResultOfTrees;
 import xyz.hotchpotch.hogandiff.logic.TreeReportCreator;
+import xyz.hotchpotch.hogandiff.logic.sax.DecryptedBookCache;
 import xyz.hotchpotch.hogandiff.util.Pair;
 import xyz.hotchpotch.hogandiff.util.Pair.Side;
 import xyz.hotchpotch.hogandiff.util.Settings;
 
 /**
  * 比較タスクの基底クラスです。<br>
+ * JavaFXのタスクとして実行するほか、{@link #callHeadless(Consumer)} により
+ * JavaFXランタイムを起動せずに呼び出し元のスレッドで実行することもできます。<br>
  * 
  * @author nmby
  */
-/* package */ abstract sealed class CompareTask extends Task<Void>
+public abstract sealed class CompareTask extends Task<Void>
         permits CompareTaskSheets, CompareTaskBooks, CompareTaskDirs, CompareTaskTrees {
     
     // [static members] ********************************************************
@@ -70,6 +85,21 @@ import xyz.hotchpotch.hogandiff.util.Settings;
     /** ユーザー向け表示文字列を保持する {@link StringBuilder} */
     protected final StringBuilder str = new StringBuilder();
     
+    /** 比較結果をNDJSON形式で逐次書き出すライター（出力しない場合または出力に失敗した場合は {@code null}） */
+    private NdjsonResultWriter ndjsonWriter;
+    
+    /** 比較結果のNDJSON形式での出力に失敗した場合の例外 */
+    private Exception ndjsonFailure;
+    
+    /** JavaFXランタイムを起動せずに実行する場合の、表示文字列の追記分の通知先 */
+    private Consumer<String> headlessMessageConsumer;
+    
+    /** {@link #headlessMessageConsumer} に通知済みの表示文字列の長さ */
+    private int notifiedMessageLength;
+    
+    /** 数式で比較する設定で、.xlsb 形式のExcelブックを値で比較したか */
+    private boolean xlsbComparedOnValues;
+    
     /**
      * コンストラクタ
      * 
@@ -95,11 +125,107 @@ import xyz.hotchpotch.hogandiff.util.Settings;
         }
     }
     
+    /**
+     * シート1組分の比較処理に適用する打ち切り条件を新たに生成して返します。<br>
+     * このタスクの中断要求と、設定された制限時間を監視します。<br>
+     * 
+     * @return 新たな打ち切り条件
+     */
+    protected MatchBudget newMatchBudget() {
+        int seconds = settings.get(SettingKeys.MATCHING_TIME_LIMIT_SECONDS);
+        return 0 < seconds
+                ? MatchBudget.of(this::isCancelled, Duration.ofSeconds(seconds))
+                : MatchBudget.of(this::isCancelled);
+    }
+    
+    /**
+     * 指定されたシートのセルデータを先読みするローダーを返します。<br>
+     * シートごとに読み込むとExcelブック全体の読み込みを繰り返すことになるローダーの場合は、
+     * 比較対象のシートをまとめて読み込んでおきます。
+     * それ以外の場合は、指定されたローダーをそのまま返します。<br>
+     * 先読みしたセルデータは一度取り出されると破棄されます。
+     * 先読みできなかったシートは、指定されたローダーでシートごとに読み込みます。<br>
+     * 
+     * @param loader
+     *            ローダー
+     * @param bookInfo
+     *            Excelブック情報
+     * @param sheetNames
+     *            比較対象のシート名
+     * @return セルデータを先読みするローダー
+     */
+    protected CellsLoader preloadingLoader(
+            CellsLoader loader,
+            BookInfo bookInfo,
+            List<String> sheetNames) {
+        
+        if (!loader.prefersLoadingSheetsAtOnce() || sheetNames.size() < 2) {
+            return loader;
+        }
+        
+        Map<Path, String> readPasswords = settings.get(SettingKeys.CURR_READ_PASSWORDS);
+        Map<String, Set<CellData>> preloaded;
+        try {
+            preloaded = new HashMap<>(loader.loadCellsOfSheets(
+                    bookInfo, readPasswords.get(bookInfo.bookPath()), sheetNames));
+        } catch (ExcelHandlingException e) {
+            return loader;
+        }
+        
+        return (bookInfo2, readPassword, sheetName) -> {
+            Set<CellData> cells = preloaded.remove(sheetName);
+            return cells != null
+                    ? cells
+                    : loader.loadCells(bookInfo2, readPassword, sheetName);
+        };
+    }
+    
     @Override
     protected Void call() throws ApplicationException {
-        try {
-            call2();
-            return null;
+        execute();
+        return null;
+    }
+    
+    /**
+     * このタスクを、JavaFXランタイムを起動せずに呼び出し元のスレッドで実行します。<br>
+     * ユーザー向け表示文字列は、追記されるたびにその追記分が {@code messageConsumer} に通知されます。
+     * 進捗度は通知されません。<br>
+     * Excelブックや比較結果レポートを表示するか否かは設定セットに従うため、
+     * 表示しない場合は呼び出し元で設定セットを構成してください。<br>
+     * 
+     * @param messageConsumer
+     *            表示文字列の追記分の通知先
+     * @return 比較結果
+     * @throws NullPointerException
+     *             パラメータが {@code null} の場合
+     * @throws ApplicationException
+     *             処理が失敗した場合
+     */
+    public Result callHeadless(Consumer<String> messageConsumer) throws ApplicationException {
+        Objects.requireNonNull(messageConsumer);
+        
+        headlessMessageConsumer = messageConsumer;
+        return execute();
+    }
+    
+    private Result execute() throws ApplicationException {
+        // 暗号化されたExcelブックは、今回の実行の間に一度だけ復号して使い回す。
+        try (DecryptedBookCache _ = DecryptedBookCache.open(settings.get(SettingKeys.WORK_DIR_BASE))) {
+            Result result;
+            openNdjson();
+            try {
+                result = call2();
+            } finally {
+                closeNdjson();
+            }
+            if (xlsbComparedOnValues) {
+                str.append(Msg.APP_0300.get()).append(BR).append(BR);
+                updateMessage(str.toString());
+            }
+            if (ndjsonFailure != null) {
+                throw getApplicationException(ndjsonFailure, Msg.APP_0840.get());
+            }
+            return result;
             
         } catch (OutOfMemoryError e) {
             throw getApplicationException(e, Msg.APP_0140.get());
@@ -118,15 +244,205 @@ import xyz.hotchpotch.hogandiff.util.Settings;
      */
     protected abstract Result call2() throws ApplicationException;
     
+    @Override
+    protected void updateMessage(String message) {
+        if (headlessMessageConsumer == null) {
+            super.updateMessage(message);
+            return;
+        }
+        // 表示文字列は追記されていくため、前回通知した以降の部分だけを通知する。
+        if (message.length() < notifiedMessageLength) {
+            notifiedMessageLength = 0;
+        }
+        if (notifiedMessageLength < message.length()) {
+            headlessMessageConsumer.accept(message.substring(notifiedMessageLength));
+            notifiedMessageLength = message.length();
+        }
+    }
+    
+    @Override
+    protected void updateProgress(long workDone, long max) {
+        // JavaFXランタイムを起動していない場合は、進捗度を通知しない。
+        if (headlessMessageConsumer == null) {
+            super.updateProgress(workDone, max);
+        }
+    }
+    
+    @Override
+    protected void updateProgress(double workDone, double max) {
+        if (headlessMessageConsumer == null) {
+            super.updateProgress(workDone, max);
+        }
+    }
+    
+    /**
+     * 設定に応じて、比較結果をNDJSON形式で書き出すライターを作業用フォルダに開きます。<br>
+     */
+    private void openNdjson() {
+        if (!settings.get(SettingKeys.REPORT_NDJSON)) {
+            return;
+        }
+        try {
+            ndjsonWriter = NdjsonResultWriter.open(workDir.resolve("result.ndjson"));
+        } catch (Exception e) {
+            ndjsonFailure = e;
+            ErrorReporter.reportIfEnabled(e, "CompareTask::openNdjson-1");
+        }
+    }
+    
+    private void closeNdjson() {
+        if (ndjsonWriter == null) {
+            return;
+        }
+        try {
+            ndjsonWriter.close();
+        } catch (Exception e) {
+            if (ndjsonFailure == null) {
+                ndjsonFailure = e;
+            }
+            ErrorReporter.reportIfEnabled(e, "CompareTask::closeNdjson-1");
+        }
+        ndjsonWriter = null;
+    }
+    
+    /**
+     * シート同士の比較結果を、設定に応じてNDJSON形式で書き出します。<br>
+     * 書き出しに失敗した場合は以降の書き出しを取りやめ、比較処理はそのまま続行します。<br>
+     * 
+     * @param dirId
+     *            フォルダの識別番号（フォルダ同士の比較でない場合は {@code null}）
+     * @param bookInfoPair
+     *            比較対象のExcelブック情報
+     * @param sheetNamePair
+     *            比較対象のシート名
+     * @param result
+     *            比較結果（片側のみのシートまたは比較に失敗したシートの場合は空）
+     * @param timings
+     *            各フェーズに要した時間（計測していない場合は {@code null}）
+     */
+    protected void writeNdjson(
+            String dirId,
+            Pair<BookInfo> bookInfoPair,
+            Pair<String> sheetNamePair,
+            Optional<ResultOfSheets> result,
+            PhaseTimings timings) {
+        
+        if (ndjsonWriter == null) {
+            return;
+        }
+        try {
+            ndjsonWriter.writeSheetResult(dirId, bookInfoPair, sheetNamePair, result, timings);
+        } catch (Exception e) {
+            ndjsonFailure = e;
+            ErrorReporter.reportIfEnabled(e, "CompareTask::writeNdjson-1");
+            closeNdjson();
+        }
+    }
+    
+    /**
+     * シート1組分のセルデータを読み込んで比較し、
+     * 設定に応じて比較結果を各フェーズの所要時間とともにNDJSON形式で書き出します。<br>
+     * 
+     * @param dirId
+     *            フォルダの識別番号（フォルダ同士の比較でない場合は {@code null}）
+     * @param bookInfoPair
+     *            比較対象のExcelブック情報
+     * @param sheetNamePair
+     *            比較対象のシート名
+     * @param loaderPair
+     *            各Excelブックのセルデータのローダー
+     * @param comparator
+     *            シート同士の比較器
+     * @return 比較結果
+     * @throws ExcelHandlingException
+     *             セルデータの読み込みに失敗した場合
+     */
+    protected ResultOfSheets compareSheetPair(
+            String dirId,
+            Pair<BookInfo> bookInfoPair,
+            Pair<String> sheetNamePair,
+            Pair<CellsLoader> loaderPair,
+            ComparatorOfSheets comparator)
+            throws ExcelHandlingException {
+        
+        assert bookInfoPair != null;
+        assert sheetNamePair != null && sheetNamePair.isPaired();
+        assert loaderPair != null;
+        assert comparator != null;
+        
+        Map<Path, String> readPasswords = settings.get(SettingKeys.CURR_READ_PASSWORDS);
+        boolean useCachedValue = !settings.get(SettingKeys.COMPARE_ON_FORMULA_STRING);
+        Optional<IncrementalComparison> incremental = incrementalComparison();
+        long[] loadNanos = new long[2];
+        
+        // .xlsb 形式からは数式を抽出できず値で比較されるため、その旨を最後に表示する。
+        if (!useCachedValue && Stream.of(Side.values())
+                .anyMatch(side -> BookType.of(bookInfoPair.get(side).bookPath()) == BookType.XLSB)) {
+            xlsbComparedOnValues = true;
+        }
+        
+        Pair<Set<CellData>> cellsSetPair = Side.unsafeMap(side -> {
+            long start = System.nanoTime();
+            BookInfo bookInfo = bookInfoPair.get(side);
+            String readPassword = readPasswords.get(bookInfo.bookPath());
+            Set<CellData> cells = incremental.isPresent()
+                    ? incremental.get().loadCells(
+                            bookInfo,
+                            readPassword,
+                            sheetNamePair.get(side),
+                            useCachedValue,
+                            loaderPair.get(side))
+                    : loaderPair.get(side).loadCells(
+                            bookInfo,
+                            readPassword,
+                            sheetNamePair.get(side));
+            loadNanos[side.ordinal()] = System.nanoTime() - start;
+            return cells;
+        });
+        
+        long start = System.nanoTime();
+        ResultOfSheets result = incremental.isPresent()
+                ? incremental.get().compare(
+                        bookInfoPair,
+                        sheetNamePair,
+                        useCachedValue,
+                        cellsSetPair,
+                        comparator,
+                        newMatchBudget())
+                : comparator.compare(cellsSetPair, newMatchBudget());
+        long compareNanos = System.nanoTime() - start;
+        
+        writeNdjson(
+                dirId,
+                bookInfoPair,
+                sheetNamePair,
+                Optional.of(result),
+                new PhaseTimings(loadNanos[0], loadNanos[1], compareNanos));
+        
+        return result;
+    }
+    
+    /**
+     * 前回の比較の情報を引き継いで再比較を行う設定の場合に、そのための仕組みを返します。<br>
+     * 
+     * @return 前回の比較の情報を引き継ぐ仕組み
+     */
+    protected Optional<IncrementalComparison> incrementalComparison() {
+        return settings.get(SettingKeys.INCREMENTAL_COMPARISON)
+                ? Optional.of(IncrementalComparison.shared())
+                : Optional.empty();
+    }
+    
     // ■ タスクステップ ■■■■■■■■■■■■■■■■■■■■■■■■■■■■■■■■■■■■■■
     
     /**
-     * 比較結果文字列をテキストファイルに保存します。<br>
+     * 比較結果をテキストファイルに保存します。<br>
+     * 比較結果の全文を文字列に組み立てずに、バッファ付きのライターに逐次書き出します。<br>
      * 
      * @param workDir
      *            作業用フォルダ
-     * @param resultText
-     *            比較結果文字列
+     * @param result
+     *            比較結果
      * @param progressBefore
      *            進捗率（開始時）
      * @param progressAfter
@@ -137,13 +453,13 @@ import xyz.hotchpotch.hogandiff.util.Settings;
     // CompareSheetsTask, CompareBooksTask, CompareDirsTask, CompareTreesTask
     protected void saveResultText(
             Path workDir,
-            String resultText,
+            Result result,
             int progressBefore,
             int progressAfter)
             throws ApplicationException {
         
         assert workDir != null;
-        assert resultText != null;
+        assert result != null;
         assert 0 <= progressBefore;
         assert progressBefore <= progressAfter;
         assert progressAfter <= PROGRESS_MAX;
@@ -162,7 +478,8 @@ import xyz.hotchpotch.hogandiff.util.Settings;
                     execDatetime.format(formatter2));
             
             try (BufferedWriter writer = Files.newBufferedWriter(textPath)) {
-                writer.write(execDatetimeStr + resultText);
+                writer.write(execDatetimeStr);
+                result.writeTo(writer);
             }
             
             updateProgress(progressAfter, PROGRESS_MAX);
@@ -398,7 +715,7 @@ import xyz.hotchpotch.hogandiff.util.Settings;
      * @throws ApplicationException
      *             処理に失敗した場合
      */
-    // CompareDirsTask, CompareTreesTask
+    // CompareDirsTask
     protected void createSaveAndShowResultBook(
             Path workDir,
             ResultOfTrees tResult,
@@ -414,7 +731,7 @@ import xyz.hotchpotch.hogandiff.util.Settings;
             str.append("%s%n    - %s%n%n".formatted(Msg.APP_0200.get(), resultBookPath));
             updateMessage(str.toString());
             
-            TreeReportCreator creator = new TreeReportCreator();
+            TreeReportCreator creator = new TreeReportCreator(settings);
             creator.createResultBook(
                     resultBookPath,
                     tResult,
@@ -425,6 +742,78 @@ import xyz.hotchpotch.hogandiff.util.Settings;
             throw getApplicationException(e, Msg.APP_0210.get());
         }
         
+        showResultBook(resultBookPath, progressAfter);
+    }
+    
+    /**
+     * フォルダツリー同士の比較結果Excelブックを、フォルダペアの比較と並行して作成するためのライターを返します。<br>
+     * 
+     * @param workDir
+     *            作業用フォルダ
+     * @param flattenDirComparison
+     *            フォルダツリー比較情報
+     * @return 比較結果Excelブックのライター
+     * @throws ApplicationException
+     *             処理に失敗した場合
+     */
+    // CompareTreesTask
+    protected TreeReportCreator.ReportWriter openResultBook(
+            Path workDir,
+            PairingInfoDirsFlatten flattenDirComparison)
+            throws ApplicationException {
+        
+        try {
+            TreeReportCreator creator = new TreeReportCreator(settings);
+            return creator.openResultBook(
+                    workDir.resolve("result.xlsx"),
+                    flattenDirComparison,
+                    settings.get(SettingKeys.CURR_MENU) == AppMenu.COMPARE_TREES);
+            
+        } catch (Exception e) {
+            throw getApplicationException(e, Msg.APP_0210.get());
+        }
+    }
+    
+    /**
+     * フォルダペアの比較と並行して作成したフォルダツリー同士の比較結果Excelブックを保存し、表示します。<br>
+     * 
+     * @param writer
+     *            全てのフォルダペアの比較結果を出力済みのライター
+     * @param progressBefore
+     *            進捗率（開始時）
+     * @param progressAfter
+     *            進捗率（終了時）
+     * @throws ApplicationException
+     *             処理に失敗した場合
+     */
+    // CompareTreesTask
+    protected void saveAndShowResultBook(
+            TreeReportCreator.ReportWriter writer,
+            int progressBefore,
+            int progressAfter)
+            throws ApplicationException {
+        
+        try {
+            updateProgress(progressBefore, PROGRESS_MAX);
+            
+            str.append("%s%n    - %s%n%n".formatted(Msg.APP_0200.get(), writer.dstBookPath()));
+            updateMessage(str.toString());
+            
+            writer.save();
+            updateProgress(progressBefore + (progressAfter - progressBefore) * 4 / 5, PROGRESS_MAX);
+            
+        } catch (Exception e) {
+            throw getApplicationException(e, Msg.APP_0210.get());
+        }
+        
+        showResultBook(writer.dstBookPath(), progressAfter);
+    }
+    
+    private void showResultBook(
+            Path resultBookPath,
+            int progressAfter)
+            throws ApplicationException {
+        
         try {
             if (settings.get(SettingKeys.SHOW_RESULT_REPORT)) {
                 str.append(Msg.APP_0220.get()).append(BR).append(BR);
@@ -468,7 +857,7 @@ import xyz.hotchpotch.hogandiff.util.Settings;
             str.append("%s%n    - %s%n%n".formatted(Msg.APP_0200.get(), resultBookPath));
             updateMessage(str.toString());
             
-            BookReportCreator creator = new BookReportCreator();
+            BookReportCreator creator = new BookReportCreator(settings);
             creator.createResultBook(resultBookPath, bResult);
             updateProgress(progressBefore + (progressAfter - progressBefore) * 4 / 5, PROGRESS_MAX);
             
@@ -494,6 +883,8 @@ import xyz.hotchpotch.hogandiff.util.Settings;
     /**
      * Excelブック同士の比較を行います。<br>
      * 
+     * @param dirId
+     *            フォルダの識別番号
      * @param bookPathPair
      *            比較対象ブックのパス
      * @param readPasswords
@@ -508,6 +899,7 @@ import xyz.hotchpotch.hogandiff.util.Settings;
      */
     // CompareTask#compareDirs
     private ResultOfBooks compareBooks(
+            String dirId,
             PairingInfoBooks bookComparison,
             int progressBefore,
             int progressAfter)
@@ -515,27 +907,50 @@ import xyz.hotchpotch.hogandiff.util.Settings;
         
         updateProgress(progressBefore, PROGRESS_MAX);
         
-        Pair<CellsLoader> cellsLoaderPair = bookComparison.parentBookInfoPair().unsafeMap(
-                bookInfo -> Factory.cellsLoader(settings, bookInfo));
-        ComparatorOfSheets sheetComparator = Factory.sheetComparator(settings);
         Map<Path, String> readPasswords = settings.get(SettingKeys.CURR_READ_PASSWORDS);
+        boolean useCachedValue = !settings.get(SettingKeys.COMPARE_ON_FORMULA_STRING);
+        Optional<IncrementalComparison> incremental = incrementalComparison();
+        
+        Pair<CellsLoader> cellsLoaderPair = Side.unsafeMap(side -> {
+            BookInfo bookInfo = bookComparison.parentBookInfoPair().get(side);
+            List<String> sheetNames = bookComparison.childSheetNamePairs().stream()
+                    .filter(Pair::isPaired)
+                    .map(sheetNamePair -> sheetNamePair.get(side))
+                    .toList();
+            
+            // 前回の比較から変更の無いシートは読み込まないため、先読みの対象から除く
+            if (incremental.isPresent()) {
+                sheetNames = incremental.get().sheetNamesToLoad(
+                        bookInfo,
+                        readPasswords.get(bookInfo.bookPath()),
+                        sheetNames,
+                        useCachedValue);
+            }
+            return preloadingLoader(Factory.cellsLoader(settings, bookInfo), bookInfo, sheetNames);
+        });
+        ComparatorOfSheets sheetComparator = Factory.sheetComparator(settings);
         Map<Pair<String>, Optional<ResultOfSheets>> results = new HashMap<>();
         
         for (int i = 0; i < bookComparison.childSheetNamePairs().size(); i++) {
             Pair<String> sheetNamePair = bookComparison.childSheetNamePairs().get(i);
             
             if (sheetNamePair.isPaired()) {
-                BookInfo bookInfoA = bookComparison.parentBookInfoPair().a();
-                BookInfo bookInfoB = bookComparison.parentBookInfoPair().b();
-                Set<CellData> cellsSetA = cellsLoaderPair.a().loadCells(
-                        bookInfoA, readPasswords.get(bookInfoA.bookPath()), sheetNamePair.a());
-                Set<CellData> cellsSetB = cellsLoaderPair.b().loadCells(
-                        bookInfoB, readPasswords.get(bookInfoB.bookPath()), sheetNamePair.b());
-                
-                ResultOfSheets result = sheetComparator.compare(Pair.of(cellsSetA, cellsSetB));
-                results.put(sheetNamePair, Optional.of(result));
+                try {
+                    ResultOfSheets result = compareSheetPair(
+                            dirId,
+                            bookComparison.parentBookInfoPair(),
+                            sheetNamePair,
+                            cellsLoaderPair,
+                            sheetComparator);
+                    results.put(sheetNamePair, Optional.of(result));
+                    
+                } catch (ExcelHandlingException | RuntimeException e) {
+                    writeNdjson(dirId, bookComparison.parentBookInfoPair(), sheetNamePair, Optional.empty(), null);
+                    throw e;
+                }
                 
             } else {
+                writeNdjson(dirId, bookComparison.parentBookInfoPair(), sheetNamePair, Optional.empty(), null);
                 results.put(sheetNamePair, Optional.empty());
             }
             
@@ -631,6 +1046,7 @@ import xyz.hotchpotch.hogandiff.util.Settings;
                     
                 } else {
                     ResultOfBooks bookResult = compareBooks(
+                            dirId,
                             dirComparison.childBookComparisons().get(bookInfoPair).get(),
                             srcPathPair,
                             dstPathPair,
@@ -677,6 +1093,7 @@ import xyz.hotchpotch.hogandiff.util.Settings;
     }
     
     private ResultOfBooks compareBooks(
+            String dirId,
             PairingInfoBooks bookComparison,
             Pair<Path> srcPathPair,
             Pair<Path> dstPathPair,
@@ -685,10 +1102,14 @@ import xyz.hotchpotch.hogandiff.util.Settings;
         
         try {
             return compareBooks(
+                    dirId,
                     bookComparison,
                     progressBefore,
                     progressAfter);
             
+        } catch (CancellationException e) {
+            throw e;
+            
         } catch (Exception e) {
             str.append("  -  ").append(Msg.APP_0120.get()).append(BR);
             updateMessage(str.toString());
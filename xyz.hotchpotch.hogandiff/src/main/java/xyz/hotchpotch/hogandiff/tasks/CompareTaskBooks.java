@@ -1,17 +1,15 @@
 package xyz.hotchpotch.hogandiff.tasks;
 
-import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 import xyz.hotchpotch.hogandiff.ApplicationException;
 import xyz.hotchpotch.hogandiff.ErrorReporter;
 import xyz.hotchpotch.hogandiff.Msg;
 import xyz.hotchpotch.hogandiff.SettingKeys;
 import xyz.hotchpotch.hogandiff.logic.BookInfo;
-import xyz.hotchpotch.hogandiff.logic.CellData;
 import xyz.hotchpotch.hogandiff.logic.CellsLoader;
 import xyz.hotchpotch.hogandiff.logic.ComparatorOfSheets;
 import xyz.hotchpotch.hogandiff.logic.Factory;
@@ -80,7 +78,7 @@ public final class CompareTaskBooks extends CompareTask {
             
             // 4. 比較結果レポート（テキスト）の保存
             try {
-                saveResultText(workDir, bResult.toString(), 98, 99);
+                saveResultText(workDir, bResult, 98, 99);
             } catch (Exception e) {
                 if (failed == null) {
                     failed = e;
@@ -147,11 +145,15 @@ public final class CompareTaskBooks extends CompareTask {
             
             PairingInfoBooks pairingInfoBooks = settings.get(SettingKeys.CURR_BOOK_COMPARE_INFO);
             Pair<BookInfo> bookInfoPair = pairingInfoBooks.parentBookInfoPair();
-            Pair<CellsLoader> loaderPair = bookInfoPair
-                    .unsafeMap(bookInfo -> Factory.cellsLoader(settings, bookInfo));
+            Pair<CellsLoader> loaderPair = Side.unsafeMap(side -> preloadingLoader(
+                    Factory.cellsLoader(settings, bookInfoPair.get(side)),
+                    bookInfoPair.get(side),
+                    pairingInfoBooks.childSheetNamePairs().stream()
+                            .filter(Pair::isPaired)
+                            .map(sheetNamePair -> sheetNamePair.get(side))
+                            .toList()));
             
             ComparatorOfSheets sheetComparator = Factory.sheetComparator(settings);
-            Map<Path, String> readPasswords = settings.get(SettingKeys.CURR_READ_PASSWORDS);
             Map<Pair<String>, Optional<ResultOfSheets>> results = new HashMap<>();
             
             double progressDelta = (progressAfter - progressBefore)
@@ -166,20 +168,21 @@ public final class CompareTaskBooks extends CompareTask {
                         str.append(ResultOfBooks.formatSheetNamesPair(Integer.toString(i + 1), sheetNamePair));
                         updateMessage(str.toString());
                         
-                        Pair<Set<CellData>> cellsSetPair = Side.unsafeMap(
-                                side -> loaderPair.get(side).loadCells(
-                                        bookInfoPair.get(side),
-                                        readPasswords.get(bookInfoPair.get(side).bookPath()),
-                                        sheetNamePair.get(side)));
-                        
-                        result = sheetComparator.compare(cellsSetPair);
+                        result = compareSheetPair(null, bookInfoPair, sheetNamePair, loaderPair, sheetComparator);
                         
                         str.append("  -  ").append(result.getDiffSummary()).append(BR);
                         updateMessage(str.toString());
+                        
+                    } else {
+                        writeNdjson(null, bookInfoPair, sheetNamePair, Optional.empty(), null);
                     }
+                } catch (CancellationException e) {
+                    throw e;
+                    
                 } catch (Exception e) {
                     str.append("  -  ").append(Msg.APP_0120.get()).append(BR);
                     ErrorReporter.reportIfEnabled(e, "CompareTaskBooks::compareSheets-1");
+                    writeNdjson(null, bookInfoPair, sheetNamePair, Optional.empty(), null);
                 }
                 
                 results.put(sheetNamePair, Optional.ofNullable(result));
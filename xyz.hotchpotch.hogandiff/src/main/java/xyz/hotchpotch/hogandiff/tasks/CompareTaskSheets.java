@@ -1,15 +1,12 @@
 package xyz.hotchpotch.hogandiff.tasks;
 
-import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 
 import xyz.hotchpotch.hogandiff.ApplicationException;
 import xyz.hotchpotch.hogandiff.Msg;
 import xyz.hotchpotch.hogandiff.SettingKeys;
 import xyz.hotchpotch.hogandiff.logic.BookInfo;
-import xyz.hotchpotch.hogandiff.logic.CellData;
 import xyz.hotchpotch.hogandiff.logic.CellsLoader;
 import xyz.hotchpotch.hogandiff.logic.ComparatorOfSheets;
 import xyz.hotchpotch.hogandiff.logic.Factory;
@@ -18,7 +15,6 @@ import xyz.hotchpotch.hogandiff.logic.Result;
 import xyz.hotchpotch.hogandiff.logic.ResultOfBooks;
 import xyz.hotchpotch.hogandiff.logic.ResultOfSheets;
 import xyz.hotchpotch.hogandiff.util.Pair;
-import xyz.hotchpotch.hogandiff.util.Pair.Side;
 import xyz.hotchpotch.hogandiff.util.Settings;
 
 /**
@@ -78,7 +74,7 @@ public final class CompareTaskSheets extends CompareTask {
             
             // 4. 比較結果レポート（テキスト）の保存
             try {
-                saveResultText(workDir, bResult.toString(), 98, 99);
+                saveResultText(workDir, bResult, 98, 99);
             } catch (Exception e) {
                 if (failed == null) {
                     failed = e;
@@ -152,15 +148,8 @@ public final class CompareTaskSheets extends CompareTask {
             str.append(ResultOfBooks.formatSheetNamesPair("1", sheetNamePair));
             updateMessage(str.toString());
             
-            Map<Path, String> readPasswords = settings.get(SettingKeys.CURR_READ_PASSWORDS);
-            Pair<Set<CellData>> cellsSetPair = Side.unsafeMap(
-                    side -> loaderPair.get(side).loadCells(
-                            bookInfoPair.get(side),
-                            readPasswords.get(bookInfoPair.get(side).bookPath()),
-                            sheetNamePair.get(side)));
-            
             ComparatorOfSheets comparator = Factory.sheetComparator(settings);
-            ResultOfSheets result = comparator.compare(cellsSetPair);
+            ResultOfSheets result = compareSheetPair(null, bookInfoPair, sheetNamePair, loaderPair, comparator);
             
             str.append("  -  ").append(result.getDiffSummary()).append(BR).append(BR);
             updateMessage(str.toString());
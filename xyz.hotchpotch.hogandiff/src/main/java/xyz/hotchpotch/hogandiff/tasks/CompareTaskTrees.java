@@ -17,6 +17,7 @@ import xyz.hotchpotch.hogandiff.logic.PairingInfoDirs.PairingInfoDirsFlatten;
 import xyz.hotchpotch.hogandiff.logic.Result;
 import xyz.hotchpotch.hogandiff.logic.ResultOfDirs;
 import xyz.hotchpotch.hogandiff.logic.ResultOfTrees;
+import xyz.hotchpotch.hogandiff.logic.TreeReportCreator;
 import xyz.hotchpotch.hogandiff.util.Pair;
 import xyz.hotchpotch.hogandiff.util.Pair.Side;
 import xyz.hotchpotch.hogandiff.util.Settings;
@@ -36,6 +37,12 @@ public final class CompareTaskTrees extends CompareTask {
     
     // [instance members] ******************************************************
     
+    /** フォルダペアの比較と並行して比較結果Excelブックを出力するライター */
+    private TreeReportCreator.ReportWriter reportWriter;
+    
+    /** 比較結果Excelブックの出力に失敗した場合の例外 */
+    private ApplicationException reportFailure;
+    
     /**
      * コンストラクタ
      * 
@@ -53,20 +60,30 @@ public final class CompareTaskTrees extends CompareTask {
             announceStart(0, 5);
             
             // 1. フォルダツリー同士の比較
+            //    比較結果レポート（Excelブック）は、フォルダペアの比較と並行して出力する。
+            try {
+                reportWriter = openResultBook(
+                        workDir,
+                        settings.get(SettingKeys.CURR_TREE_COMPARE_INFO).flatten());
+            } catch (ApplicationException e) {
+                reportFailure = e;
+            }
             ResultOfTrees tResult = compareTrees(workDir, 5, 93);
             
-            Exception failed = null;
+            Exception failed = reportFailure;
             
             // 2. 比較結果レポート（Excelブック）の保存と表示
-            try {
-                createSaveAndShowResultBook(workDir, tResult, 93, 97);
-            } catch (Exception e) {
-                failed = e;
+            if (reportWriter != null) {
+                try {
+                    saveAndShowResultBook(reportWriter, 93, 97);
+                } catch (Exception e) {
+                    failed = e;
+                }
             }
             
             // 3. 比較結果レポート（テキスト）の保存
             try {
-                saveResultText(workDir, tResult.toString(), 97, 99);
+                saveResultText(workDir, tResult, 97, 99);
             } catch (Exception e) {
                 if (failed == null) {
                     failed = e;
@@ -86,6 +103,12 @@ public final class CompareTaskTrees extends CompareTask {
             
         } catch (Exception e) {
             throw getApplicationException(e, Msg.APP_0150.get() + " at CompareTreesTask::call2");
+            
+        } finally {
+            // 一時ファイルを削除する。
+            if (reportWriter != null) {
+                reportWriter.close();
+            }
         }
     }
     
@@ -177,6 +200,7 @@ public final class CompareTaskTrees extends CompareTask {
                     
                 } catch (IOException e) {
                     dirResults.putIfAbsent(dirInfoPair, Optional.empty());
+                    writeDirResult(dirInfoPair, dirResults.get(dirInfoPair));
                     str.append("  -  ").append(Msg.APP_0120.get()).append(BR);
                     updateMessage(str.toString());
                     ErrorReporter.reportIfEnabled(e, "CompareTaskTrees::compareTrees-1");
@@ -201,6 +225,7 @@ public final class CompareTaskTrees extends CompareTask {
                     updateMessage(str.toString());
                     updateProgress(progressBefore + progressDelta * (i + 1), PROGRESS_MAX);
                 }
+                writeDirResult(dirInfoPair, dirResults.get(dirInfoPair));
             }
             
             updateProgress(progressAfter, PROGRESS_MAX);
@@ -211,4 +236,31 @@ public final class CompareTaskTrees extends CompareTask {
             throw getApplicationException(e, Msg.APP_0390.get());
         }
     }
+    
+    /**
+     * フォルダペアの比較結果を比較結果Excelブックに出力します。<br>
+     * 出力に失敗した場合は、以降の出力を行わずにフォルダツリー同士の比較を続けます。<br>
+     * 
+     * @param dirInfoPair
+     *            フォルダペア
+     * @param dirResult
+     *            フォルダ同士の比較結果
+     */
+    private void writeDirResult(
+            Pair<DirInfo> dirInfoPair,
+            Optional<ResultOfDirs> dirResult) {
+        
+        if (reportWriter == null) {
+            return;
+        }
+        
+        try {
+            reportWriter.writeDirResult(dirInfoPair, dirResult);
+            
+        } catch (Exception e) {
+            reportFailure = getApplicationException(e, Msg.APP_0210.get());
+            reportWriter.close();
+            reportWriter = null;
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package xyz.hotchpotch.hogandiff;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+class AppArgsParserTest {
+    
+    // [static members] ********************************************************
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testIsHeadless() {
+        assertThrows(
+                NullPointerException.class,
+                () -> AppArgsParser.isHeadless(null));
+        
+        assertTrue(AppArgsParser.isHeadless(new String[] { "a", "b", "--headless=true" }));
+        assertTrue(AppArgsParser.isHeadless(new String[] { "--headless=true" }));
+        assertFalse(AppArgsParser.isHeadless(new String[] { "a", "b", "--headless=false" }));
+        assertFalse(AppArgsParser.isHeadless(new String[] { "a", "b" }));
+    }
+    
+    @Test
+    void testParseArgs(@TempDir Path tempDir) throws IOException {
+        Path bookA = Files.createFile(tempDir.resolve("a.xlsx"));
+        Path bookB = Files.createFile(tempDir.resolve("b.xlsx"));
+        Path dirA = Files.createDirectory(tempDir.resolve("A"));
+        Path dirB = Files.createDirectory(tempDir.resolve("B"));
+        
+        assertTrue(AppArgsParser.parseArgs(new String[] { bookA.toString() }).isEmpty());
+        assertTrue(AppArgsParser.parseArgs(new String[] { bookA.toString(), dirB.toString() }).isEmpty());
+        assertTrue(AppArgsParser.parseArgs(
+                new String[] { bookA.toString(), bookB.toString(), "--unknown=true" }).isEmpty());
+        assertTrue(AppArgsParser.parseArgs(
+                new String[] { bookA.toString(), bookB.toString(), "--headless=yes" }).isEmpty());
+        
+        Optional<Settings> books = AppArgsParser.parseArgs(
+                new String[] { bookA.toString(), bookB.toString(), "--headless=true" });
+        assertEquals(AppMenu.COMPARE_BOOKS, books.get().get(SettingKeys.CURR_MENU));
+        assertEquals(bookA, books.get().get(SettingKeys.CURR_ARG_PATH1));
+        assertTrue(books.get().get(SettingKeys.CURR_HEADLESS));
+        
+        Optional<Settings> dirs = AppArgsParser.parseArgs(
+                new String[] { dirA.toString(), dirB.toString() });
+        assertEquals(AppMenu.COMPARE_DIRS, dirs.get().get(SettingKeys.CURR_MENU));
+        assertFalse(dirs.get().get(SettingKeys.CURR_HEADLESS));
+        
+        Optional<Settings> trees = AppArgsParser.parseArgs(
+                new String[] { dirA.toString(), dirB.toString(), "--compare-dirs-recursively=true" });
+        assertEquals(AppMenu.COMPARE_TREES, trees.get().get(SettingKeys.CURR_MENU));
+        assertTrue(trees.get().get(SettingKeys.COMPARE_DIRS_RECURSIVELY));
+    }
+}
@@ -0,0 +1,165 @@
+package xyz.hotchpotch.hogandiff;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.AppBatch.Item;
+import xyz.hotchpotch.hogandiff.logic.BatchCache;
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+class AppBatchTest {
+    
+    // [static members] ********************************************************
+    
+    private static Path test1_xlsx;
+    private static Path test4_xlsx;
+    
+    @BeforeAll
+    static void beforeAll() throws URISyntaxException {
+        test1_xlsx = Path.of(AppBatchTest.class.getResource("logic/sax/Test1.xlsx").toURI());
+        test4_xlsx = Path.of(AppBatchTest.class.getResource("logic/sax/Test4.xlsx").toURI());
+    }
+    
+    private static Path manifest(Path dir, String... lines) throws IOException {
+        return Files.write(dir.resolve("manifest.txt"), List.of(lines), StandardCharsets.UTF_8);
+    }
+    
+    private static List<JSONObject> summary(Path workDirBase) throws IOException {
+        try (Stream<Path> paths = Files.walk(workDirBase)) {
+            Path summary = paths
+                    .filter(p -> p.getFileName().toString().equals("summary.ndjson"))
+                    .findFirst()
+                    .get();
+            return Files.readAllLines(summary, StandardCharsets.UTF_8).stream()
+                    .map(JSONObject::new)
+                    .sorted((o1, o2) -> Integer.compare(o1.getInt("no"), o2.getInt("no")))
+                    .toList();
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+    private final PrintStream err = new PrintStream(errBytes, true, StandardCharsets.UTF_8);
+    
+    @Test
+    void testIsBatch() {
+        assertThrows(
+                NullPointerException.class,
+                () -> AppBatch.isBatch(null));
+        
+        assertTrue(AppBatch.isBatch(new String[] { "--batch=manifest.txt" }));
+        assertTrue(AppBatch.isBatch(new String[] { "--consider-row-gaps=true", "--batch=manifest.txt" }));
+        assertFalse(AppBatch.isBatch(new String[] { "a", "b", "--headless=true" }));
+    }
+    
+    @Test
+    void testReadManifest(@TempDir Path tempDir) throws IOException {
+        List<Item> items = AppBatch.readManifest(manifest(
+                tempDir,
+                "# comment",
+                "",
+                "{\"a\": \"A/x.xlsx\", \"b\": \"B/x.xlsx\", \"options\": [\"--consider-row-gaps=false\"]}",
+                "\"A/a,b.xlsx\", B/y.xlsx, --compare-on-formulas=true",
+                "{\"a\": \"A\", \"b\": \"B\"}"));
+        
+        assertEquals(3, items.size());
+        assertEquals(
+                new Item(1, tempDir.resolve("A/x.xlsx"), tempDir.resolve("B/x.xlsx"),
+                        List.of("--consider-row-gaps=false")),
+                items.get(0));
+        assertEquals(
+                new Item(2, tempDir.resolve("A/a,b.xlsx"), tempDir.resolve("B/y.xlsx"),
+                        List.of("--compare-on-formulas=true")),
+                items.get(1));
+        assertEquals(List.of(), items.get(2).options());
+        
+        // 項目ごとのオプションは共通のオプションよりも優先される
+        assertArrayEquals(
+                new String[] { tempDir.resolve("A/x.xlsx").toString(), tempDir.resolve("B/x.xlsx").toString(),
+                        "--consider-row-gaps=false", "--enable-fuzzy-matching=false" },
+                items.get(0).toArgs(List.of("--consider-row-gaps=true", "--enable-fuzzy-matching=false")));
+        
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> AppBatch.readManifest(manifest(tempDir, "only-one-path.xlsx")));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> AppBatch.readManifest(manifest(tempDir, "{\"a\": \"A\"}")));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> AppBatch.readManifest(manifest(tempDir, "\"A,B")));
+    }
+    
+    @Test
+    void testRun_引数不正(@TempDir Path tempDir) throws IOException {
+        Settings settings = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, tempDir)
+                .build();
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> AppBatch.run(null, settings, err));
+        
+        Path manifest = manifest(tempDir, "a.xlsx,b.xlsx");
+        assertEquals(
+                AppHeadless.EXIT_INVALID_ARGS,
+                AppBatch.run(new String[] { "--batch=" + tempDir.resolve("none.txt") }, settings, err));
+        assertEquals(
+                AppHeadless.EXIT_INVALID_ARGS,
+                AppBatch.run(new String[] { "--batch=" + manifest, "--batch-threads=0" }, settings, err));
+        assertEquals(
+                AppHeadless.EXIT_INVALID_ARGS,
+                AppBatch.run(new String[] { "--batch=" + manifest, "--unknown=true" }, settings, err));
+    }
+    
+    @Test
+    void testRun(@TempDir Path tempDir) throws IOException {
+        Path workDirBase = tempDir.resolve("work");
+        Settings settings = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, workDirBase)
+                .build();
+        Path dir = Files.createDirectories(tempDir.resolve("books"));
+        Files.copy(test1_xlsx, dir.resolve("a.xlsx"));
+        Files.copy(test1_xlsx, dir.resolve("b.xlsx"));
+        Files.copy(test4_xlsx, dir.resolve("c.xlsx"));
+        Path manifest = manifest(
+                tempDir,
+                "books/a.xlsx,books/b.xlsx",
+                "{\"a\": \"books/a.xlsx\", \"b\": \"books/c.xlsx\", \"options\": [\"--consider-row-gaps=false\"]}",
+                "books/a.xlsx,books/missing.xlsx",
+                "books/b.xlsx,books/c.xlsx");
+        
+        // ひとつの項目が不正でも、他の項目は比較される
+        assertEquals(
+                AppHeadless.EXIT_INVALID_ARGS,
+                AppBatch.run(
+                        new String[] { "--batch=" + manifest, "--batch-threads=2", "--consider-row-gaps=true" },
+                        settings,
+                        err));
+        assertTrue(BatchCache.current().isEmpty());
+        
+        List<JSONObject> summary = summary(workDirBase);
+        assertEquals(
+                List.of("noDiff", "diffFound", "invalid", "diffFound"),
+                summary.stream().map(line -> line.getString("status")).toList());
+        assertTrue(Files.exists(Path.of(summary.get(0).getString("workDir")).resolve("log.txt")));
+        
+        String errText = errBytes.toString(StandardCharsets.UTF_8);
+        assertTrue(errText.contains("no diff: 1, diff found: 2, invalid: 1, failed: 0"));
+    }
+}
@@ -0,0 +1,155 @@
+package xyz.hotchpotch.hogandiff;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+class AppHeadlessTest {
+    
+    // [static members] ********************************************************
+    
+    private static Path test1_xlsx;
+    private static Path test4_xlsx;
+    
+    @BeforeAll
+    static void beforeAll() throws URISyntaxException {
+        test1_xlsx = Path.of(AppHeadlessTest.class.getResource("logic/sax/Test1.xlsx").toURI());
+        test4_xlsx = Path.of(AppHeadlessTest.class.getResource("logic/sax/Test4.xlsx").toURI());
+    }
+    
+    private static Path copy(Path src, Path dstDir, String name) throws IOException {
+        Files.createDirectories(dstDir);
+        return Files.copy(src, dstDir.resolve(name));
+    }
+    
+    private static boolean existsInWorkDir(Path workDirBase, String fileName) throws IOException {
+        try (Stream<Path> paths = Files.walk(workDirBase)) {
+            return paths.anyMatch(p -> p.getFileName().toString().equals(fileName));
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    private final ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+    private final PrintStream err = new PrintStream(errBytes, true, StandardCharsets.UTF_8);
+    
+    private String errText() {
+        return errBytes.toString(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    void testRun_例外系() {
+        assertThrows(
+                NullPointerException.class,
+                () -> AppHeadless.run(null, Settings.builder().build(), err));
+        assertThrows(
+                NullPointerException.class,
+                () -> AppHeadless.run(new String[0], null, err));
+        assertThrows(
+                NullPointerException.class,
+                () -> AppHeadless.run(new String[0], Settings.builder().build(), null));
+    }
+    
+    @Test
+    void testRun_引数不正(@TempDir Path tempDir) {
+        Settings settings = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, tempDir)
+                .build();
+        
+        assertEquals(
+                AppHeadless.EXIT_INVALID_ARGS,
+                AppHeadless.run(new String[] { "--headless=true" }, settings, err));
+        assertTrue(errText().contains(AppArgsParser.USAGE));
+        
+        // 同じExcelブック同士は比較できない
+        assertEquals(
+                AppHeadless.EXIT_INVALID_ARGS,
+                AppHeadless.run(
+                        new String[] { test1_xlsx.toString(), test1_xlsx.toString(), "--headless=true" },
+                        settings,
+                        err));
+    }
+    
+    @Test
+    void testRun_ブック同士(@TempDir Path tempDir) throws IOException {
+        Path workDirBase = tempDir.resolve("work");
+        Settings settings = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, workDirBase)
+                .build();
+        Path bookA = copy(test1_xlsx, tempDir.resolve("A"), "book.xlsx");
+        Path bookB = copy(test1_xlsx, tempDir.resolve("B"), "book.xlsx");
+        Path bookC = copy(test4_xlsx, tempDir.resolve("C"), "book.xlsx");
+        
+        assertEquals(
+                AppHeadless.EXIT_NO_DIFF,
+                AppHeadless.run(
+                        new String[] { bookA.toString(), bookB.toString(), "--headless=true" },
+                        settings,
+                        err));
+        assertTrue(existsInWorkDir(workDirBase, "result.txt"));
+        assertTrue(existsInWorkDir(workDirBase, "result.xlsx"));
+        assertFalse(errText().isEmpty());
+        
+        assertEquals(
+                AppHeadless.EXIT_DIFF_FOUND,
+                AppHeadless.run(
+                        new String[] { bookA.toString(), bookC.toString(), "--headless=true" },
+                        settings,
+                        err));
+    }
+    
+    @Test
+    void testRun_フォルダ同士(@TempDir Path tempDir) throws IOException {
+        Path workDirBase = tempDir.resolve("work");
+        Settings settings = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, workDirBase)
+                .build();
+        Path dirA = tempDir.resolve("A");
+        Path dirB = tempDir.resolve("B");
+        copy(test1_xlsx, dirA, "book.xlsx");
+        copy(test1_xlsx, dirB, "book.xlsx");
+        copy(test4_xlsx, dirA.resolve("sub"), "book4.xlsx");
+        copy(test4_xlsx, dirB.resolve("sub"), "book4.xlsx");
+        
+        assertEquals(
+                AppHeadless.EXIT_NO_DIFF,
+                AppHeadless.run(
+                        new String[] { dirA.toString(), dirB.toString(), "--headless=true" },
+                        settings,
+                        err));
+        assertTrue(existsInWorkDir(workDirBase, "result.xlsx"));
+        
+        // 子フォルダを含めて比較すると差分は無い
+        assertEquals(
+                AppHeadless.EXIT_NO_DIFF,
+                AppHeadless.run(
+                        new String[] { dirA.toString(), dirB.toString(),
+                                "--compare-dirs-recursively=true", "--headless=true" },
+                        settings,
+                        err));
+        
+        // 子フォルダ内のブックに差分がある場合
+        Files.delete(dirB.resolve("sub").resolve("book4.xlsx"));
+        copy(test1_xlsx, dirB.resolve("sub"), "book4.xlsx");
+        assertEquals(
+                AppHeadless.EXIT_DIFF_FOUND,
+                AppHeadless.run(
+                        new String[] { dirA.toString(), dirB.toString(),
+                                "--compare-dirs-recursively=true", "--headless=true" },
+                        settings,
+                        err));
+    }
+}
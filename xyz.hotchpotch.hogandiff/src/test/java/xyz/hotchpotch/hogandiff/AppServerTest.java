@@ -0,0 +1,266 @@
+package xyz.hotchpotch.hogandiff;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.logic.BatchCache;
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+class AppServerTest {
+    
+    // [static members] ********************************************************
+    
+    private static Path test1_xlsx;
+    private static Path test4_xlsx;
+    
+    @BeforeAll
+    static void beforeAll() throws URISyntaxException {
+        test1_xlsx = Path.of(AppServerTest.class.getResource("logic/sax/Test1.xlsx").toURI());
+        test4_xlsx = Path.of(AppServerTest.class.getResource("logic/sax/Test4.xlsx").toURI());
+    }
+    
+    private static record Response(int code, byte[] body) {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+        
+        private JSONObject json() {
+            return new JSONObject(text());
+        }
+    }
+    
+    private static Response request(AppServer server, String method, String path, byte[] body) throws IOException {
+        return request(server, method, path, body, Map.of(
+                AppServer.TOKEN_HEADER, server.token(),
+                "Content-Type", "application/json"));
+    }
+    
+    private static Response request(
+            AppServer server,
+            String method,
+            String path,
+            byte[] body,
+            Map<String, String> headers)
+            throws IOException {
+        
+        HttpURLConnection conn = (HttpURLConnection) URI
+                .create("http://127.0.0.1:%d%s".formatted(server.port(), path))
+                .toURL()
+                .openConnection();
+        conn.setRequestMethod(method);
+        headers.forEach(conn::setRequestProperty);
+        if (body != null) {
+            conn.setDoOutput(true);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        int code = conn.getResponseCode();
+        try (InputStream in = code < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+            return new Response(code, in == null ? new byte[0] : in.readAllBytes());
+        } finally {
+            conn.disconnect();
+        }
+    }
+    
+    /**
+     * {@link HttpURLConnection} では指定できない {@code Host}, {@code Origin} ヘッダを含むリクエストを送信し、
+     * ステータスコードを返します。<br>
+     */
+    private static int rawRequest(AppServer server, String host, String origin) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            String request = "GET /jobs/1 HTTP/1.1\r\nHost: %s\r\n%s%s: %s\r\nConnection: close\r\n\r\n".formatted(
+                    host,
+                    origin == null ? "" : "Origin: %s\r\n".formatted(origin),
+                    AppServer.TOKEN_HEADER,
+                    server.token());
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            String statusLine = new String(socket.getInputStream().readAllBytes(), StandardCharsets.US_ASCII)
+                    .lines()
+                    .findFirst()
+                    .orElseThrow();
+            return Integer.parseInt(statusLine.split(" ")[1]);
+        }
+    }
+    
+    private static JSONObject submit(AppServer server, Path a, Path b) throws IOException {
+        Response response = request(server, "POST", "/jobs", new JSONObject()
+                .put("a", a.toString())
+                .put("b", b.toString())
+                .toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(202, response.code());
+        return response.json();
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testIsServer() {
+        assertThrows(
+                NullPointerException.class,
+                () -> AppServer.isServer(null));
+        
+        assertTrue(AppServer.isServer(new String[] { "--serve=8080" }));
+        assertFalse(AppServer.isServer(new String[] { "a", "b", "--headless=true" }));
+    }
+    
+    @Test
+    void testRun_引数不正(@TempDir Path tempDir) {
+        Settings settings = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, tempDir)
+                .build();
+        
+        PrintStream err = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        
+        assertEquals(
+                AppHeadless.EXIT_INVALID_ARGS,
+                AppServer.run(new String[] { "--serve=abc" }, settings, err));
+        assertEquals(
+                AppHeadless.EXIT_INVALID_ARGS,
+                AppServer.run(new String[] { "--serve=0", "--serve-threads=0" }, settings, err));
+        assertEquals(
+                AppHeadless.EXIT_INVALID_ARGS,
+                AppServer.run(new String[] { "--serve=0", "--unknown=true" }, settings, err));
+    }
+    
+    @Test
+    void testStart(@TempDir Path tempDir) {
+        Settings settings = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, tempDir)
+                .build();
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> AppServer.start(0, 1, 1, null));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> AppServer.start(0, 0, 1, settings));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> AppServer.start(0, 1, 0, settings));
+        assertTrue(BatchCache.current().isEmpty());
+    }
+    
+    @Test
+    void testJobs(@TempDir Path tempDir) throws Exception {
+        Settings settings = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, tempDir.resolve("work"))
+                .build();
+        
+        try (AppServer server = AppServer.start(0, 1, 4, settings)) {
+            
+            // アップロードしたExcelブックを比較できる
+            Response upload = request(server, "POST", "/uploads?name=a.xlsx", Files.readAllBytes(test1_xlsx));
+            assertEquals(201, upload.code());
+            Path uploaded = Path.of(upload.json().getString("path"));
+            assertTrue(Files.isRegularFile(uploaded));
+            
+            JSONObject job1 = submit(server, uploaded, test4_xlsx);
+            String id = job1.getString("id");
+            
+            // 進捗状況は比較の終了までストリーミングされる
+            Response progress = request(server, "GET", "/jobs/%s/progress".formatted(id), null);
+            assertEquals(200, progress.code());
+            assertFalse(progress.text().isEmpty());
+            
+            JSONObject status = request(server, "GET", "/jobs/" + id, null).json();
+            assertEquals("diffFound", status.getString("status"));
+            assertEquals(AppHeadless.EXIT_DIFF_FOUND, status.getInt("exitCode"));
+            
+            Response result = request(server, "GET", "/jobs/%s/result".formatted(id), null);
+            assertEquals(200, result.code());
+            assertFalse(result.text().lines().map(JSONObject::new).toList().isEmpty());
+            
+            JSONArray files = new JSONArray(request(server, "GET", "/jobs/%s/files".formatted(id), null).text());
+            assertTrue(files.toList().stream().anyMatch(file -> file.toString().endsWith("result.txt")));
+            String resultTxt = files.toList().stream()
+                    .map(Object::toString)
+                    .filter(file -> file.endsWith("result.txt"))
+                    .findFirst()
+                    .get();
+            assertEquals(200, request(server, "GET", "/jobs/%s/files/%s".formatted(id, resultTxt), null).code());
+            assertEquals(404, request(server, "GET", "/jobs/%s/files/../../x".formatted(id), null).code());
+            
+            // 同じExcelブック同士は差分なし
+            JSONObject job2 = submit(server, test1_xlsx, uploaded);
+            request(server, "GET", "/jobs/%s/progress".formatted(job2.getString("id")), null);
+            assertEquals(
+                    "noDiff",
+                    request(server, "GET", "/jobs/" + job2.getString("id"), null).json().getString("status"));
+            
+            // 不正なリクエスト
+            assertEquals(404, request(server, "GET", "/jobs/999", null).code());
+            assertEquals(400, request(server, "POST", "/jobs", "{}".getBytes(StandardCharsets.UTF_8)).code());
+            assertEquals(400, request(server, "POST", "/jobs", new JSONObject()
+                    .put("a", tempDir.resolve("none.xlsx").toString())
+                    .put("b", test1_xlsx.toString())
+                    .toString().getBytes(StandardCharsets.UTF_8)).code());
+            assertEquals(400, request(server, "POST", "/uploads", new byte[0]).code());
+            
+            assertEquals(202, request(server, "POST", "/shutdown", new byte[0]).code());
+            server.awaitStop();
+        }
+        assertTrue(BatchCache.current().isEmpty());
+    }
+    
+    @Test
+    void testJobs_不正なアクセス(@TempDir Path tempDir) throws Exception {
+        Settings settings = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, tempDir.resolve("work"))
+                .build();
+        
+        try (AppServer server = AppServer.start(0, 1, 4, settings)) {
+            byte[] body = new JSONObject()
+                    .put("a", test1_xlsx.toString())
+                    .put("b", test4_xlsx.toString())
+                    .toString().getBytes(StandardCharsets.UTF_8);
+            
+            // トークンが無い、または誤っている
+            assertEquals(401, request(server, "POST", "/jobs", body, Map.of(
+                    "Content-Type", "application/json")).code());
+            assertEquals(401, request(server, "POST", "/shutdown", new byte[0], Map.of(
+                    AppServer.TOKEN_HEADER, server.token() + "0")).code());
+            
+            // 他のサイトからの要求
+            String localHost = "127.0.0.1:%d".formatted(server.port());
+            assertEquals(404, rawRequest(server, localHost, null));
+            assertEquals(404, rawRequest(server, "localhost:%d".formatted(server.port()), "http://" + localHost));
+            assertEquals(403, rawRequest(server, "example.com", null));
+            assertEquals(403, rawRequest(server, localHost, "http://example.com"));
+            
+            // JSON以外のリクエストボディ
+            assertEquals(415, request(server, "POST", "/jobs", body, Map.of(
+                    AppServer.TOKEN_HEADER, server.token(),
+                    "Content-Type", "text/plain")).code());
+            
+            assertEquals(404, request(server, "GET", "/jobs/1", null).code());
+        }
+        assertTrue(BatchCache.current().isEmpty());
+    }
+}
@@ -0,0 +1,207 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToIntFunction;
+
+import org.junit.jupiter.api.Test;
+
+import xyz.hotchpotch.hogandiff.util.IntPair;
+
+class BandedMinimumEditDistanceMatcherTest {
+    
+    // [static members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    private static final ToIntFunction<Character> gapEvaluator = _ -> 1;
+    private static final ToIntBiFunction<Character, Character> diffEvaluator = (c1, c2) -> c1.equals(c2) ? 0 : 3;
+    
+    private static final ToIntFunction<Integer> intGapEvaluator = n -> n % 3;
+    private static final ToIntBiFunction<Integer, Integer> intDiffEvaluator = (n1, n2) -> Math.abs(n1 - n2);
+    
+    private static final List<Character> list0 = List.of();
+    private static final List<Character> listABC = List.of('A', 'B', 'C');
+    private static final List<Character> listKITTEN = List.of('K', 'I', 'T', 'T', 'E', 'N');
+    private static final List<Character> listSITTING = List.of('S', 'I', 'T', 'T', 'I', 'N', 'G');
+    
+    private static <T> long costOf(
+            List<IntPair> pairs,
+            List<? extends T> listA,
+            List<? extends T> listB,
+            ToIntFunction<? super T> gapEvaluator,
+            ToIntBiFunction<? super T, ? super T> diffEvaluator) {
+        
+        return pairs.stream()
+                .mapToLong(p -> p.isPaired()
+                        ? diffEvaluator.applyAsInt(listA.get(p.a()), listB.get(p.b()))
+                        : p.isOnlyA()
+                                ? gapEvaluator.applyAsInt(listA.get(p.a()))
+                                : gapEvaluator.applyAsInt(listB.get(p.b())))
+                .sum();
+    }
+    
+    private static List<Integer> locallyEdited(List<Integer> original, Random random, int edits) {
+        List<Integer> list = new ArrayList<>(original);
+        for (int i = 0; i < edits; i++) {
+            int idx = random.nextInt(list.size());
+            switch (random.nextInt(3)) {
+            case 0 -> list.add(idx, random.nextInt(100));
+            case 1 -> list.remove(idx);
+            default -> list.set(idx, random.nextInt(100));
+            }
+        }
+        return list;
+    }
+    
+    // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    @Test
+    void testConstructor() {
+        assertThrows(
+                AssertionError.class,
+                () -> new BandedMinimumEditDistanceMatcher<>(null, diffEvaluator));
+        assertThrows(
+                AssertionError.class,
+                () -> new BandedMinimumEditDistanceMatcher<>(gapEvaluator, null));
+        assertThrows(
+                AssertionError.class,
+                () -> new BandedMinimumEditDistanceMatcher<>(null, null));
+        
+        assertDoesNotThrow(
+                () -> new BandedMinimumEditDistanceMatcher<>(gapEvaluator, diffEvaluator));
+    }
+    
+    @Test
+    void testMakePairs1_パラメータチェック() {
+        BandedMinimumEditDistanceMatcher<Character> testee = new BandedMinimumEditDistanceMatcher<>(
+                gapEvaluator, diffEvaluator);
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.makeIdxPairs(null, list0));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.makeIdxPairs(list0, null));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.makeIdxPairs(null, null));
+        
+        assertDoesNotThrow(
+                () -> testee.makeIdxPairs(list0, list0));
+    }
+    
+    @Test
+    void testMakePairs2_マッチングロジック() {
+        BandedMinimumEditDistanceMatcher<Character> testee = new BandedMinimumEditDistanceMatcher<>(
+                gapEvaluator, diffEvaluator);
+        
+        assertEquals(
+                List.of(
+                        IntPair.onlyB(0),
+                        IntPair.onlyB(1),
+                        IntPair.onlyB(2)),
+                testee.makeIdxPairs(list0, listABC));
+        
+        // K ITTE N
+        //   |||  |
+        //  SITT ING
+        assertEquals(
+                List.of(
+                        IntPair.onlyA(0),
+                        IntPair.onlyB(0),
+                        IntPair.of(1, 1),
+                        IntPair.of(2, 2),
+                        IntPair.of(3, 3),
+                        IntPair.onlyA(4),
+                        IntPair.onlyB(4),
+                        IntPair.of(5, 5),
+                        IntPair.onlyB(6)),
+                testee.makeIdxPairs(listKITTEN, listSITTING));
+    }
+    
+    @Test
+    void testMakePairs3_全域探索と同じコスト() {
+        BandedMinimumEditDistanceMatcher<Integer> testee = new BandedMinimumEditDistanceMatcher<>(
+                intGapEvaluator, intDiffEvaluator);
+        MinimumEditDistanceMatcher<Integer> full = new MinimumEditDistanceMatcher<>(
+                intGapEvaluator, intDiffEvaluator);
+        Random random = new Random(0);
+        
+        for (int n = 0; n < 30; n++) {
+            List<Integer> listA = random.ints(50 + random.nextInt(150), 0, 100).boxed().toList();
+            List<Integer> listB = n % 3 == 0
+                    ? random.ints(50 + random.nextInt(150), 0, 100).boxed().toList()
+                    : locallyEdited(listA, random, 1 + random.nextInt(20));
+            
+            List<IntPair> actual = testee.makeIdxPairs(listA, listB);
+            List<IntPair> expected = full.makeIdxPairs(listA, listB);
+            
+            assertEquals(
+                    costOf(expected, listA, listB, intGapEvaluator, intDiffEvaluator),
+                    costOf(actual, listA, listB, intGapEvaluator, intDiffEvaluator));
+            
+            assertEquals(listA.size(), actual.stream().filter(IntPair::hasA).count());
+            assertEquals(listB.size(), actual.stream().filter(IntPair::hasB).count());
+        }
+    }
+    
+    @Test
+    void testMakePairs4_局所的な差分() {
+        BandedMinimumEditDistanceMatcher<Integer> testee = new BandedMinimumEditDistanceMatcher<>(
+                _ -> 1, (n1, n2) -> n1.equals(n2) ? 0 : 3);
+        
+        // 全域探索では現実的な時間で終わらない長さでも、差分が局所的であれば帯の内側で確定する。
+        List<Integer> listA = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            listA.add(i);
+        }
+        List<Integer> listB = new ArrayList<>(listA);
+        listB.add(150_000, -1);
+        listB.remove(100_000);
+        listB.add(50_000, -2);
+        listB.add(50_000, -3);
+        
+        EditScript actual = (EditScript) testee.makeIdxPairs(listA, listB);
+        
+        assertEquals(listA.size() - 1, actual.pairedCount());
+        assertEquals(4, actual.unpairedCount());
+    }
+    
+    @Test
+    void testMakePairs5_余剰コストが0の要素() {
+        // 行の比較と同様に、空の要素の余剰コストを 0 とする。
+        ToIntFunction<List<Integer>> rowGapEvaluator = List::size;
+        ToIntBiFunction<List<Integer>, List<Integer>> rowDiffEvaluator = (r1, r2) -> r1.equals(r2) ? 0 : 3;
+        BandedMinimumEditDistanceMatcher<List<Integer>> testee = new BandedMinimumEditDistanceMatcher<>(
+                rowGapEvaluator, rowDiffEvaluator);
+        MinimumEditDistanceMatcher<List<Integer>> full = new MinimumEditDistanceMatcher<>(
+                rowGapEvaluator, rowDiffEvaluator);
+        Random random = new Random(0);
+        
+        for (int n = 0; n < 10; n++) {
+            List<List<Integer>> listA = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                listA.add(random.nextInt(3) == 0 ? List.of() : List.of(random.nextInt(10)));
+            }
+            List<List<Integer>> listB = new ArrayList<>(listA);
+            for (int i = 0; i < 1 + random.nextInt(10); i++) {
+                int idx = random.nextInt(listB.size());
+                if (random.nextBoolean()) {
+                    listB.add(idx, List.of());
+                } else {
+                    listB.set(idx, List.of(random.nextInt(10)));
+                }
+            }
+            
+            List<IntPair> actual = testee.makeIdxPairs(listA, listB);
+            List<IntPair> expected = full.makeIdxPairs(listA, listB);
+            
+            assertEquals(
+                    costOf(expected, listA, listB, rowGapEvaluator, rowDiffEvaluator),
+                    costOf(actual, listA, listB, rowGapEvaluator, rowDiffEvaluator));
+        }
+    }
+}
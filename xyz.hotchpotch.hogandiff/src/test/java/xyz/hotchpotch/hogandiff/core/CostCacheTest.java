@@ -0,0 +1,108 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntBiFunction;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class CostCacheTest {
+    
+    // [static members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    @Test
+    void testOf() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CostCache.of(0));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CostCache.of(-1));
+        
+        assertDoesNotThrow(
+                () -> CostCache.of(1));
+    }
+    
+    @Test
+    void testMemoize() {
+        CostCache testee = CostCache.of(100);
+        AtomicInteger calls = new AtomicInteger();
+        ToIntBiFunction<String, String> evaluator = testee.memoize((s1, s2) -> {
+            calls.incrementAndGet();
+            return StringDiffUtil.levenshteinDistance(s1, s2);
+        });
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.memoize(null));
+        
+        String abc = "abc";
+        String abd = "abd";
+        assertEquals(2, evaluator.applyAsInt(abc, abd));
+        assertEquals(2, evaluator.applyAsInt(abc, abd));
+        assertEquals(1, calls.get());
+        
+        // 等価であっても同一でない要素は別の組み合わせとして扱う。
+        String abc2 = new String("abc");
+        assertEquals(2, evaluator.applyAsInt(abc2, abd));
+        assertEquals(2, calls.get());
+        
+        // 評価関数ごとにキャッシュを区別する。
+        ToIntBiFunction<String, String> evaluator2 = testee.memoize((_, _) -> 100);
+        assertEquals(100, evaluator2.applyAsInt(abc, abd));
+        
+        assertEquals(new CostCache.Stats(1, 3, 3), testee.stats());
+        assertEquals(0.25, testee.stats().hitRate());
+        
+        testee.clear();
+        assertEquals(new CostCache.Stats(0, 0, 0), testee.stats());
+        assertEquals(0.0, testee.stats().hitRate());
+    }
+    
+    @Test
+    void testMemoize_LRU() {
+        CostCache testee = CostCache.of(2);
+        ToIntBiFunction<String, String> evaluator = testee.memoize((s1, s2) -> s1.length() + s2.length());
+        String a = "a";
+        String b = "bb";
+        String c = "ccc";
+        
+        evaluator.applyAsInt(a, a);
+        evaluator.applyAsInt(b, b);
+        evaluator.applyAsInt(a, a); // (a, a) を直近の参照とする
+        evaluator.applyAsInt(c, c); // (b, b) が破棄される
+        assertEquals(new CostCache.Stats(1, 3, 2), testee.stats());
+        
+        evaluator.applyAsInt(a, a);
+        evaluator.applyAsInt(b, b);
+        assertEquals(new CostCache.Stats(2, 4, 2), testee.stats());
+    }
+    
+    @Test
+    void testMemoize_マッチャーでの再利用() {
+        CostCache testee = CostCache.of(1000);
+        Matcher<String> matcher = Matcher.combinedMatcherOf(List.of(
+                Matcher.identityMatcherOf(),
+                Matcher.minimumCostFlowMatcherOf(
+                        String::length,
+                        testee.memoize((String s1, String s2) -> StringDiffUtil.levenshteinDistance(s1, s2) + 1))));
+        List<String> listA = IntStream.range(0, 20).mapToObj(i -> "sheet" + i).toList();
+        List<String> listB = IntStream.range(0, 20).mapToObj(i -> "Sheet" + i).toList();
+        
+        List<?> expected = matcher.makeIdxPairs(listA, listB);
+        CostCache.Stats stats1 = testee.stats();
+        assertEquals(0, stats1.hitCount());
+        assertEquals(400, stats1.missCount());
+        
+        // 再計算では全ての差分コストをキャッシュから取得する。
+        assertEquals(expected, matcher.makeIdxPairs(listA, listB));
+        CostCache.Stats stats2 = testee.stats();
+        assertEquals(400, stats2.hitCount());
+        assertEquals(400, stats2.missCount());
+    }
+}
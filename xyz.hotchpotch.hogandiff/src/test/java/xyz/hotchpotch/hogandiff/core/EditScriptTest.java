@@ -0,0 +1,135 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import xyz.hotchpotch.hogandiff.util.IntPair;
+
+class EditScriptTest {
+    
+    // [static members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    @Test
+    void testBuilder1_パラメータチェック() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> EditScript.builder().paired(-1));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> EditScript.builder().onlyA(-1));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> EditScript.builder().onlyB(-1));
+        
+        EditScript.Builder builder = EditScript.builder();
+        builder.build();
+        assertThrows(
+                IllegalStateException.class,
+                () -> builder.paired(1));
+        assertThrows(
+                IllegalStateException.class,
+                () -> builder.build());
+    }
+    
+    @Test
+    void testBuilder2_ランの併合() {
+        EditScript testee = EditScript.builder()
+                .onlyA(1)
+                .onlyB(1)
+                .paired(2)
+                .paired(1)
+                .onlyA(0)
+                .onlyA(1)
+                .onlyB(1)
+                .paired(1)
+                .onlyB(1)
+                .build();
+        
+        assertEquals(7, testee.runCount());
+        assertEquals(9, testee.size());
+        assertEquals(6, testee.sizeA());
+        assertEquals(7, testee.sizeB());
+        assertEquals(4, testee.pairedCount());
+        assertEquals(5, testee.unpairedCount());
+        
+        // K ITTE N
+        //   |||  |
+        //  SITT ING
+        List<IntPair> expected = List.of(
+                IntPair.onlyA(0),
+                IntPair.onlyB(0),
+                IntPair.of(1, 1),
+                IntPair.of(2, 2),
+                IntPair.of(3, 3),
+                IntPair.onlyA(4),
+                IntPair.onlyB(4),
+                IntPair.of(5, 5),
+                IntPair.onlyB(6));
+        
+        assertEquals(expected, testee);
+        assertEquals(testee, expected);
+        assertEquals(expected.hashCode(), testee.hashCode());
+        
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), testee.get(i));
+        }
+        assertEquals(expected, new ArrayList<>(testee));
+        assertEquals(expected, testee.stream().toList());
+        
+        assertThrows(
+                IndexOutOfBoundsException.class,
+                () -> testee.get(-1));
+        assertThrows(
+                IndexOutOfBoundsException.class,
+                () -> testee.get(9));
+    }
+    
+    @Test
+    void testSimple() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> EditScript.simple(-1, 0));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> EditScript.simple(0, -1));
+        
+        assertEquals(
+                List.of(),
+                EditScript.simple(0, 0));
+        assertSame(
+                EditScript.empty(),
+                EditScript.simple(0, 0));
+        assertEquals(
+                List.of(
+                        IntPair.of(0, 0),
+                        IntPair.of(1, 1),
+                        IntPair.onlyA(2)),
+                EditScript.simple(3, 2));
+        assertEquals(
+                List.of(
+                        IntPair.onlyB(0),
+                        IntPair.onlyB(1)),
+                EditScript.simple(0, 2));
+    }
+    
+    @Test
+    void testImmutable() {
+        EditScript testee = EditScript.simple(2, 2);
+        
+        assertThrows(
+                UnsupportedOperationException.class,
+                () -> testee.add(IntPair.of(2, 2)));
+        assertThrows(
+                UnsupportedOperationException.class,
+                () -> testee.remove(0));
+        assertThrows(
+                UnsupportedOperationException.class,
+                () -> testee.set(0, IntPair.onlyA(0)));
+    }
+}
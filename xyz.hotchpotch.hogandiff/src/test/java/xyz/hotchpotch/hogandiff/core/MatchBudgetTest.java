@@ -0,0 +1,124 @@
+package xyz.hotchpotch.hogandiff.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class MatchBudgetTest {
+    
+    // [static members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    private static MatchBudget expiredBudget() throws InterruptedException {
+        MatchBudget budget = MatchBudget.of(() -> false, Duration.ofNanos(1));
+        Thread.sleep(1);
+        return budget;
+    }
+    
+    // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    @Test
+    void testOf_パラメータチェック() {
+        assertThrows(
+                NullPointerException.class,
+                () -> MatchBudget.of(null));
+        assertThrows(
+                NullPointerException.class,
+                () -> MatchBudget.of(null, Duration.ofSeconds(1)));
+        assertThrows(
+                NullPointerException.class,
+                () -> MatchBudget.of(() -> false, null));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MatchBudget.of(() -> false, Duration.ZERO));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MatchBudget.of(() -> false, Duration.ofSeconds(-1)));
+        
+        assertDoesNotThrow(
+                () -> MatchBudget.of(() -> false, Duration.ofSeconds(Long.MAX_VALUE)));
+    }
+    
+    @Test
+    void testCheckpoint() throws InterruptedException {
+        assertDoesNotThrow(
+                () -> MatchBudget.unlimited().checkpoint());
+        assertDoesNotThrow(
+                () -> MatchBudget.of(() -> false, Duration.ofHours(1)).checkpoint());
+        
+        AtomicBoolean cancelled = new AtomicBoolean();
+        MatchBudget budget = MatchBudget.of(cancelled::get);
+        assertDoesNotThrow(budget::checkpoint);
+        cancelled.set(true);
+        assertThrows(
+                CancellationException.class,
+                budget::checkpoint);
+        
+        MatchBudget expired = expiredBudget();
+        assertThrows(
+                MatchBudget.ExceededException.class,
+                expired::checkpoint);
+        assertDoesNotThrow(expired::checkCancelled);
+    }
+    
+    @Test
+    void testMakeIdxPairs_打ち切り() throws InterruptedException {
+        Matcher<String> testee = Matcher.minimumEditDistanceMatcherOf(
+                _ -> 1,
+                (s1, s2) -> s1.equals(s2) ? 0 : 2);
+        List<String> listA = List.of("A", "B", "C");
+        List<String> listB = List.of("A", "X", "C");
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.makeIdxPairs(listA, listB, null));
+        assertThrows(
+                MatchBudget.ExceededException.class,
+                () -> testee.makeIdxPairs(listA, listB, expiredBudget()));
+        assertThrows(
+                CancellationException.class,
+                () -> testee.makeIdxPairs(listA, listB, MatchBudget.of(() -> true)));
+        assertEquals(
+                testee.makeIdxPairs(listA, listB),
+                testee.makeIdxPairs(listA, listB, MatchBudget.of(() -> false, Duration.ofHours(1))));
+    }
+    
+    @Test
+    void testFallbackMatcher() throws InterruptedException {
+        Matcher<String> testee = Matcher.fallbackMatcherOf(
+                Matcher.minimumEditDistanceMatcherOf(
+                        _ -> 1,
+                        (s1, s2) -> s1.equals(s2) ? 0 : 2),
+                Matcher.simpleMatcherOf());
+        List<String> listA = List.of("A", "B", "C");
+        List<String> listB = List.of("X", "A", "B", "C");
+        
+        // 制限時間内であれば主マッチャーの結果を返す。
+        MatchBudget budget1 = MatchBudget.of(() -> false, Duration.ofHours(1));
+        assertEquals(
+                Matcher.minimumEditDistanceMatcherOf(
+                        _ -> 1,
+                        (String s1, String s2) -> s1.equals(s2) ? 0 : 2)
+                        .makeIdxPairs(listA, listB),
+                testee.makeIdxPairs(listA, listB, budget1));
+        assertFalse(budget1.isDegraded());
+        
+        // 制限時間を超過した場合は代替マッチャーの結果を返し、その旨を記録する。
+        MatchBudget budget2 = expiredBudget();
+        assertEquals(
+                Matcher.simpleMatcherOf().makeIdxPairs(listA, listB),
+                testee.makeIdxPairs(listA, listB, budget2));
+        assertTrue(budget2.isDegraded());
+        
+        // 中断要求は代替せずにそのまま伝播する。
+        MatchBudget budget3 = MatchBudget.of(() -> true);
+        assertThrows(
+                CancellationException.class,
+                () -> testee.makeIdxPairs(listA, listB, budget3));
+        assertFalse(budget3.isDegraded());
+    }
+}
@@ -2,6 +2,7 @@ package xyz.hotchpotch.hogandiff.core;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.ToIntBiFunction;
 import java.util.function.ToIntFunction;
 
@@ -42,6 +43,39 @@ class MatcherTest {
         assertTrue(
                 Matcher.minimumEditDistanceMatcherOf(gapEvaluator,
                         diffEvaluator) instanceof MinimumEditDistanceMatcher);
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> Matcher.minimumEditDistanceMatcherOf(gapEvaluator, gapEvaluator, diffEvaluator, null));
+        assertTrue(
+                Matcher.minimumEditDistanceMatcherOf(gapEvaluator, gapEvaluator, diffEvaluator,
+                        ForkJoinPool.commonPool()) instanceof MinimumEditDistanceMatcher);
+    }
+    
+    @Test
+    void testBandedMinimumEditDistanceMatcherOf() {
+        assertThrows(
+                NullPointerException.class,
+                () -> Matcher.bandedMinimumEditDistanceMatcherOf(null, diffEvaluator));
+        assertThrows(
+                NullPointerException.class,
+                () -> Matcher.bandedMinimumEditDistanceMatcherOf(gapEvaluator, null));
+        assertThrows(
+                NullPointerException.class,
+                () -> Matcher.bandedMinimumEditDistanceMatcherOf(null, null));
+        assertDoesNotThrow(
+                () -> Matcher.bandedMinimumEditDistanceMatcherOf(gapEvaluator, diffEvaluator));
+        
+        assertTrue(
+                Matcher.bandedMinimumEditDistanceMatcherOf(gapEvaluator,
+                        diffEvaluator) instanceof BandedMinimumEditDistanceMatcher);
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> Matcher.bandedMinimumEditDistanceMatcherOf(gapEvaluator, gapEvaluator, diffEvaluator, null));
+        assertTrue(
+                Matcher.bandedMinimumEditDistanceMatcherOf(gapEvaluator, gapEvaluator, diffEvaluator,
+                        ForkJoinPool.commonPool()) instanceof BandedMinimumEditDistanceMatcher);
     }
     
     @Test
@@ -4,8 +4,11 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.ToIntBiFunction;
 import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -25,6 +28,36 @@ class MinimumEditDistanceMatcherTest {
     private static final List<Character> listKITTEN = List.of('K', 'I', 'T', 'T', 'E', 'N');
     private static final List<Character> listSITTING = List.of('S', 'I', 'T', 'T', 'I', 'N', 'G');
     
+    private static List<Character> randomList(Random random, int size) {
+        return IntStream.range(0, size)
+                .mapToObj(_ -> (char) ('A' + random.nextInt(4)))
+                .toList();
+    }
+    
+    private static long minCost(List<Character> listA, List<Character> listB) {
+        long[][] costs = new long[listA.size() + 1][listB.size() + 1];
+        for (int a = 0; a <= listA.size(); a++) {
+            for (int b = 0; b <= listB.size(); b++) {
+                if (a == 0 || b == 0) {
+                    costs[a][b] = a + b;
+                } else {
+                    costs[a][b] = Math.min(
+                            costs[a - 1][b - 1] + diffEvaluator.applyAsInt(listA.get(a - 1), listB.get(b - 1)),
+                            Math.min(costs[a - 1][b], costs[a][b - 1]) + 1);
+                }
+            }
+        }
+        return costs[listA.size()][listB.size()];
+    }
+    
+    private static long costOf(List<IntPair> pairs, List<Character> listA, List<Character> listB) {
+        return pairs.stream()
+                .mapToLong(p -> p.isPaired()
+                        ? diffEvaluator.applyAsInt(listA.get(p.a()), listB.get(p.b()))
+                        : 1)
+                .sum();
+    }
+    
     // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
     
     @Test
@@ -138,4 +171,46 @@ class MinimumEditDistanceMatcherTest {
                         IntPair.onlyA(6)),
                 testee.makeIdxPairs(listSITTING, listKITTEN));
     }
+    
+    @Test
+    void testMakePairs4_結果の表現形式() {
+        MinimumEditDistanceMatcher<Character> testee = new MinimumEditDistanceMatcher<>(gapEvaluator, diffEvaluator);
+        
+        List<IntPair> result = testee.makeIdxPairs(listKITTEN, listSITTING);
+        assertTrue(result instanceof EditScript);
+        
+        EditScript script = (EditScript) result;
+        assertEquals(7, script.runCount());
+        assertEquals(4, script.pairedCount());
+        assertEquals(5, script.unpairedCount());
+    }
+    
+    @Test
+    void testMakePairs5_タイル分割() {
+        Random random = new Random(29);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ForkJoinPool single = new ForkJoinPool(1);
+        
+        try {
+            MinimumEditDistanceMatcher<Character> parallel = new MinimumEditDistanceMatcher<>(
+                    gapEvaluator, gapEvaluator, diffEvaluator, pool);
+            MinimumEditDistanceMatcher<Character> sequential = new MinimumEditDistanceMatcher<>(
+                    gapEvaluator, gapEvaluator, diffEvaluator, single);
+            
+            // タイルの境界をまたぐ長さ、端数のタイルを含む長さを試す。
+            int[][] sizes = { { 256, 257 }, { 700, 650 }, { 1030, 513 }, { 90, 1200 } };
+            for (int[] size : sizes) {
+                List<Character> listA = randomList(random, size[0]);
+                List<Character> listB = randomList(random, size[1]);
+                
+                List<IntPair> result = parallel.makeIdxPairs(listA, listB);
+                
+                assertEquals(sequential.makeIdxPairs(listA, listB), result);
+                assertEquals(minCost(listA, listB), costOf(result, listA, listB));
+            }
+        } finally {
+            pool.shutdown();
+            single.shutdown();
+        }
+    }
 }
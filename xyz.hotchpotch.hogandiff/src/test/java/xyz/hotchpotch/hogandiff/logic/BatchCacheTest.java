@@ -0,0 +1,168 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchCacheTest {
+    
+    // [static members] ********************************************************
+    
+    private static class CloseableList extends AbstractList<String> implements AutoCloseable {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private boolean closed;
+        
+        @Override
+        public String get(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        
+        @Override
+        public int size() {
+            return 0;
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testOpen() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> BatchCache.open(0, 1));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> BatchCache.open(1, 0));
+        
+        assertTrue(BatchCache.current().isEmpty());
+        try (BatchCache cache = BatchCache.open(1, 1)) {
+            assertSame(cache, BatchCache.current().get());
+            
+            // 同時に開けるのはひとつまで
+            assertThrows(
+                    IllegalStateException.class,
+                    () -> BatchCache.open(1, 1));
+        }
+        assertTrue(BatchCache.current().isEmpty());
+    }
+    
+    @Test
+    void testBookInfo(@TempDir Path tempDir) throws IOException {
+        Path bookA = Files.writeString(tempDir.resolve("a.xlsx"), "a");
+        Path bookB = Files.writeString(tempDir.resolve("b.xlsx"), "b");
+        AtomicInteger loads = new AtomicInteger();
+        BookInfoLoader loader = (path, readPassword) -> {
+            loads.incrementAndGet();
+            return BookInfo.ofLoadCompleted(path, List.of("Sheet1"));
+        };
+        BookInfoLoader failing = (path, readPassword) -> BookInfo.ofLoadFailed(path);
+        
+        try (BatchCache testee = BatchCache.open(1, 1)) {
+            assertThrows(
+                    NullPointerException.class,
+                    () -> testee.bookInfo(null, null, loader));
+            assertThrows(
+                    NullPointerException.class,
+                    () -> testee.bookInfo(bookA, null, null));
+            
+            BookInfo first = testee.bookInfo(bookA, null, loader);
+            assertSame(first, testee.bookInfo(bookA, null, loader));
+            assertEquals(1, loads.get());
+            
+            // 読み取りパスワードが異なる場合は別のExcelブックとして扱う
+            testee.bookInfo(bookA, "pw", loader);
+            assertEquals(2, loads.get());
+            
+            // 容量を超えた場合は古いものから破棄される
+            testee.bookInfo(bookA, null, loader);
+            assertEquals(3, loads.get());
+            
+            // ファイルが更新された場合は改めて読み込む
+            Files.setLastModifiedTime(bookA, FileTime.fromMillis(0));
+            assertNotSame(first, testee.bookInfo(bookA, null, loader));
+            assertEquals(4, loads.get());
+            
+            // 読み込みに失敗した結果はキャッシュしない
+            assertEquals(BookInfo.Status.LOAD_FAILED, testee.bookInfo(bookB, null, failing).status());
+            assertEquals(BookInfo.Status.LOAD_COMPLETED, testee.bookInfo(bookB, null, loader).status());
+            assertEquals(5, loads.get());
+            
+            assertEquals(1, testee.stats().hitCount());
+            assertEquals(6, testee.stats().missCount());
+        }
+    }
+    
+    @Test
+    void testSharedStrings(@TempDir Path tempDir) throws Exception {
+        Path book = Files.writeString(tempDir.resolve("a.xlsx"), "a");
+        AtomicInteger loads = new AtomicInteger();
+        
+        try (BatchCache testee = BatchCache.open(1, 1)) {
+            assertThrows(
+                    NullPointerException.class,
+                    () -> testee.sharedStrings(book, null, null));
+            
+            List<String> first = testee.sharedStrings(book, null, () -> {
+                loads.incrementAndGet();
+                return List.of("x");
+            });
+            assertSame(first, testee.sharedStrings(book, null, () -> List.of("y")));
+            assertEquals(1, loads.get());
+            
+            // 存在しないファイルはキャッシュしない
+            Path missing = tempDir.resolve("missing.xlsx");
+            assertEquals(List.of("z"), testee.sharedStrings(missing, null, () -> List.of("z")));
+            assertEquals(List.of("w"), testee.sharedStrings(missing, null, () -> List.of("w")));
+            
+            assertThrows(
+                    ExcelHandlingException.class,
+                    () -> testee.sharedStrings(book, "pw", () -> {
+                        throw new ExcelHandlingException("failing");
+                    }));
+        }
+    }
+    
+    @Test
+    void testSharedStrings_後始末(@TempDir Path tempDir) throws Exception {
+        Path book1 = Files.writeString(tempDir.resolve("a.xlsx"), "a");
+        Path book2 = Files.writeString(tempDir.resolve("b.xlsx"), "b");
+        Path missing = tempDir.resolve("missing.xlsx");
+        CloseableList sst1 = new CloseableList();
+        CloseableList sst2 = new CloseableList();
+        CloseableList sst3 = new CloseableList();
+        
+        try (BatchCache testee = BatchCache.open(1, 1)) {
+            testee.sharedStrings(book1, null, () -> sst1);
+            assertFalse(sst1.closed);
+            
+            // 容量を超えて破棄した読み込み結果は閉じる
+            testee.sharedStrings(book2, null, () -> sst2);
+            assertTrue(sst1.closed);
+            assertFalse(sst2.closed);
+            
+            // キャッシュしない読み込み結果も、キャッシュを閉じるまでは閉じない
+            testee.sharedStrings(missing, null, () -> sst3);
+            assertFalse(sst3.closed);
+        }
+        assertTrue(sst2.closed);
+        assertTrue(sst3.closed);
+    }
+}
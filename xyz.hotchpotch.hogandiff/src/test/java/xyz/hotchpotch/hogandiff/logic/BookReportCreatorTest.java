@@ -0,0 +1,150 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.util.Pair;
+
+class BookReportCreatorTest {
+    
+    // [static members] ********************************************************
+    
+    private static final int ROW_START = 19;
+    
+    private static final String TIMESTAMP = "20260101-123456-789";
+    
+    /**
+     * 差分セルを {@code diffCells} 個持つシート比較結果を返します。<br>
+     * 差分セルを持つ場合は、余剰行も2行持つものとします。<br>
+     */
+    private static ResultOfSheets sheetResult(int diffCells) {
+        Set<CellData> cellsA = new HashSet<>();
+        Set<CellData> cellsB = new HashSet<>();
+        List<Pair<CellData>> diffs = new ArrayList<>();
+        for (int i = 0; i < diffCells; i++) {
+            CellData cellA = new CellData(i, 0, "A" + i, null);
+            CellData cellB = new CellData(i, 0, "B" + i, null);
+            cellsA.add(cellA);
+            cellsB.add(cellB);
+            diffs.add(new Pair<>(cellA, cellB));
+        }
+        return new ResultOfSheets(
+                new Pair<>(cellsA, cellsB),
+                new Pair<>(0 < diffCells ? List.of(3, 4) : List.of(), List.of()),
+                new Pair<>(List.of(), List.of()),
+                diffs);
+    }
+    
+    private static ResultOfBooks bookResult(Path dir, int diffCells) {
+        Pair<String> sheetNamePair1 = new Pair<>("シート1", "シート1");
+        Pair<String> sheetNamePair2 = new Pair<>("シート2", "シート2");
+        Pair<String> sheetNamePair3 = Pair.ofOnly(Pair.Side.A, "シート3");
+        
+        return new ResultOfBooks(
+                new PairingInfoBooks(
+                        new Pair<>(
+                                BookInfo.ofLoadCompleted(dir.resolve("a.xlsx"), List.of("シート1", "シート2", "シート3")),
+                                BookInfo.ofLoadCompleted(dir.resolve("b.xlsx"), List.of("シート1", "シート2"))),
+                        List.of(sheetNamePair1, sheetNamePair2, sheetNamePair3)),
+                Map.of(
+                        sheetNamePair1, Optional.of(sheetResult(diffCells)),
+                        sheetNamePair2, Optional.of(sheetResult(0)),
+                        sheetNamePair3, Optional.empty()));
+    }
+    
+    private static String stringValue(Sheet sheet, int r, int c) {
+        Row row = sheet.getRow(r);
+        return row == null || row.getCell(c) == null ? null : row.getCell(c).getStringCellValue();
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testCreateResultBook_例外系() throws Exception {
+        BookReportCreator testee = new BookReportCreator(0, TIMESTAMP);
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.createResultBook(null, bookResult(Path.of("dummy"), 1)));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.createResultBook(Path.of("dummy.xlsx"), null));
+    }
+    
+    @Test
+    void testCreateResultBook_正常系(@TempDir Path tempDir) throws Exception {
+        Path dst = tempDir.resolve("result.xlsx");
+        
+        new BookReportCreator(0, TIMESTAMP).createResultBook(dst, bookResult(tempDir, 300));
+        
+        try (Workbook book = WorkbookFactory.create(dst.toFile())) {
+            Sheet sheet = book.getSheet("result");
+            
+            // シート1：見出し、余剰行（見出し＋1行）、差分セル（見出し＋300行）
+            assertEquals("シート1", stringValue(sheet, ROW_START, 4));
+            assertEquals("【A】", stringValue(sheet, ROW_START + 2, 3));
+            assertEquals("4, 5", stringValue(sheet, ROW_START + 2, 4));
+            assertEquals(1, sheet.getRow(ROW_START + 2).getOutlineLevel());
+            assertEquals(0, sheet.getRow(ROW_START + 3).getOutlineLevel());
+            
+            for (int i = 0; i < 300; i++) {
+                Row row = sheet.getRow(ROW_START + 4 + i);
+                assertEquals("A" + (i + 1), row.getCell(3).getStringCellValue());
+                assertEquals("A" + i, row.getCell(4).getStringCellValue());
+                assertEquals("B" + i, row.getCell(6).getStringCellValue());
+                assertEquals(1, row.getOutlineLevel());
+            }
+            
+            // シート2：差分なし、シート3：比較相手なし
+            int next = ROW_START + 4 + 300 + 1;
+            assertEquals("シート2", stringValue(sheet, next, 4));
+            assertEquals(0, sheet.getRow(next + 1).getOutlineLevel());
+            assertEquals("シート3", stringValue(sheet, next + 3, 4));
+            assertEquals(next + 4, sheet.getLastRowNum());
+            
+            // テンプレート部分の行は残ること
+            assertTrue(sheet.getRow(4).getZeroHeight());
+        }
+        
+        // 保存先が既に存在する場合は失敗する
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> new BookReportCreator(0, TIMESTAMP).createResultBook(dst, bookResult(tempDir, 1)));
+    }
+    
+    @Test
+    void testCreateResultBook_差分セルの上限(@TempDir Path tempDir) throws Exception {
+        Path dst = tempDir.resolve("result.xlsx");
+        
+        new BookReportCreator(100, TIMESTAMP).createResultBook(dst, bookResult(tempDir, 300));
+        
+        try (Workbook book = WorkbookFactory.create(dst.toFile())) {
+            Sheet sheet = book.getSheet("result");
+            
+            assertEquals("A99", stringValue(sheet, ROW_START + 4 + 99, 4));
+            
+            // 省略した差分セルの数を出力すること
+            Row omitted = sheet.getRow(ROW_START + 4 + 100);
+            assertTrue(omitted.getCell(4).getStringCellValue().contains("200"));
+            assertEquals(1, omitted.getOutlineLevel());
+            
+            assertEquals("シート2", stringValue(sheet, ROW_START + 4 + 101 + 1, 4));
+        }
+        assertTrue(Files.size(dst) < 100_000);
+    }
+}
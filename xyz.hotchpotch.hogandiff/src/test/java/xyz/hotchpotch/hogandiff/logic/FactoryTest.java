@@ -0,0 +1,64 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import xyz.hotchpotch.hogandiff.SettingKeys;
+import xyz.hotchpotch.hogandiff.core.CostCache;
+import xyz.hotchpotch.hogandiff.core.Matcher;
+import xyz.hotchpotch.hogandiff.util.IntPair;
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+class FactoryTest {
+    
+    // [static members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    private static final List<String> sheetNamesA = List.of("Sheet1", "集計", "明細（旧）");
+    private static final List<String> sheetNamesB = List.of("Sheet2", "集計表", "明細（新）");
+    
+    // [instance members] ++++++++++++++++++++++++++++++++++++++++++++++++++++++
+    
+    @Test
+    void testSheetNamesMatcher_異常系() {
+        Settings settings = Settings.builder().build();
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> Factory.sheetNamesMatcher(null, Factory.pairingCostCache()));
+        assertThrows(
+                NullPointerException.class,
+                () -> Factory.sheetNamesMatcher(settings, null));
+    }
+    
+    @Test
+    void testSheetNamesMatcher_正常系1_キャッシュの共有() {
+        Settings settings = Settings.builder().set(SettingKeys.ENABLE_FUZZY_MATCHING, true).build();
+        CostCache costCache = Factory.pairingCostCache();
+        
+        List<IntPair> expected = Factory.sheetNamesMatcher(settings).makeIdxPairs(sheetNamesA, sheetNamesB);
+        
+        Matcher<String> matcher1 = Factory.sheetNamesMatcher(settings, costCache);
+        assertEquals(expected, matcher1.makeIdxPairs(sheetNamesA, sheetNamesB));
+        CostCache.Stats stats1 = costCache.stats();
+        assertTrue(0 < stats1.missCount());
+        
+        // 同じキャッシュから生成したマッチャー同士は、差分コストを共有する。
+        Matcher<String> matcher2 = Factory.sheetNamesMatcher(settings, costCache);
+        assertEquals(expected, matcher2.makeIdxPairs(sheetNamesA, sheetNamesB));
+        CostCache.Stats stats2 = costCache.stats();
+        assertEquals(stats1.missCount(), stats2.missCount());
+        assertTrue(stats1.hitCount() < stats2.hitCount());
+    }
+    
+    @Test
+    void testSheetNamesMatcher_正常系2_曖昧一致なし() {
+        Settings settings = Settings.builder().set(SettingKeys.ENABLE_FUZZY_MATCHING, false).build();
+        CostCache costCache = Factory.pairingCostCache();
+        
+        Factory.sheetNamesMatcher(settings, costCache).makeIdxPairs(sheetNamesA, sheetNamesB);
+        assertEquals(new CostCache.Stats(0, 0, 0), costCache.stats());
+    }
+}
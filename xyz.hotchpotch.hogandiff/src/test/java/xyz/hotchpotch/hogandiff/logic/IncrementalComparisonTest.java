@@ -0,0 +1,220 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil;
+import xyz.hotchpotch.hogandiff.util.Pair;
+
+class IncrementalComparisonTest {
+    
+    // [static members] ********************************************************
+    
+    private static Path test1_xlsx;
+    private static Path test1_xls;
+    private static Path test4_xlsx;
+    
+    @BeforeAll
+    static void beforeAll() throws URISyntaxException {
+        test1_xlsx = Path.of(IncrementalComparisonTest.class.getResource("sax/Test1.xlsx").toURI());
+        test1_xls = Path.of(IncrementalComparisonTest.class.getResource("sax/Test1.xls").toURI());
+        test4_xlsx = Path.of(IncrementalComparisonTest.class.getResource("sax/Test4.xlsx").toURI());
+    }
+    
+    private static Set<CellData> cellsOf(int rows, String changed) {
+        Set<CellData> cells = new HashSet<>();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < 3; c++) {
+                cells.add(new CellData(r, c, r == rows / 2 && c == 1 && changed != null ? changed : "R" + r + "C" + c, null));
+            }
+        }
+        return cells;
+    }
+    
+    private static void touch(Path path) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 60_000));
+    }
+    
+    /**
+     * 指定されたセルデータを返し、読み込んだ回数を数えるローダーです。<br>
+     */
+    private static class CountingLoader implements CellsLoader {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final Map<String, Set<CellData>> cells = new HashMap<>();
+        private int count;
+        
+        @Override
+        public Set<CellData> loadCells(BookInfo bookInfo, String readPassword, String sheetName) {
+            count++;
+            return cells.get(sheetName);
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    @TempDir
+    private Path tempDir;
+    
+    @Test
+    void testLoadCells_例外系() {
+        IncrementalComparison testee = new IncrementalComparison(100);
+        BookInfo bookInfo = BookInfo.ofLoadCompleted(test1_xlsx, List.of("A1_ワークシート"));
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCells(null, null, "A1_ワークシート", true, new CountingLoader()));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCells(bookInfo, null, null, true, new CountingLoader()));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCells(bookInfo, null, "A1_ワークシート", true, null));
+    }
+    
+    @Test
+    void testLoadCells_シートごとのダイジェスト() throws Exception {
+        Path book = Files.copy(test1_xlsx, tempDir.resolve("book.xlsx"));
+        List<String> sheetNames = List.copyOf(SaxUtil.loadSheetDigests(book).keySet());
+        String sheetName = sheetNames.get(0);
+        BookInfo bookInfo = BookInfo.ofLoadCompleted(book, sheetNames);
+        CountingLoader loader = new CountingLoader();
+        loader.cells.put(sheetName, cellsOf(10, null));
+        IncrementalComparison testee = new IncrementalComparison(100);
+        
+        Set<CellData> cells1 = testee.loadCells(bookInfo, null, sheetName, true, loader);
+        assertEquals(1, loader.count);
+        
+        // 内容の変わらないブックは、最終更新日時が変わっても読み込まない
+        touch(book);
+        assertSame(cells1, testee.loadCells(bookInfo, null, sheetName, true, loader));
+        assertEquals(1, loader.count);
+        assertEquals(List.of(), testee.sheetNamesToLoad(bookInfo, null, List.of(sheetName), true));
+        
+        // 読み込み方法が異なる場合は別のシートとして扱う
+        testee.loadCells(bookInfo, null, sheetName, false, loader);
+        assertEquals(2, loader.count);
+        
+        // 内容が変わった場合は読み込む
+        Files.copy(test4_xlsx, book, StandardCopyOption.REPLACE_EXISTING);
+        touch(book);
+        assertEquals(List.of(sheetName), testee.sheetNamesToLoad(bookInfo, null, List.of(sheetName), true));
+        testee.loadCells(bookInfo, null, sheetName, true, loader);
+        assertEquals(3, loader.count);
+        
+        assertEquals(new IncrementalComparison.Stats(1, 3, 0, 0), testee.stats());
+    }
+    
+    @Test
+    void testLoadCells_ブック単位のダイジェスト() throws Exception {
+        Path book = Files.copy(test1_xls, tempDir.resolve("book.xls"));
+        BookInfo bookInfo = BookInfo.ofLoadCompleted(book, List.of("シート"));
+        CountingLoader loader = new CountingLoader();
+        loader.cells.put("シート", cellsOf(10, null));
+        IncrementalComparison testee = new IncrementalComparison(100);
+        
+        testee.loadCells(bookInfo, null, "シート", true, loader);
+        testee.loadCells(bookInfo, null, "シート", true, loader);
+        assertEquals(1, loader.count);
+        
+        // .xls 形式のブックは、最終更新日時が変われば読み込み直す
+        touch(book);
+        testee.loadCells(bookInfo, null, "シート", true, loader);
+        assertEquals(2, loader.count);
+    }
+    
+    @Test
+    void testLoadCells_保持数の上限() throws Exception {
+        Path book = Files.copy(test1_xls, tempDir.resolve("book.xls"));
+        BookInfo bookInfo = BookInfo.ofLoadCompleted(book, List.of("S1", "S2"));
+        CountingLoader loader = new CountingLoader();
+        loader.cells.put("S1", cellsOf(10, null));
+        loader.cells.put("S2", cellsOf(10, null));
+        IncrementalComparison testee = new IncrementalComparison(70);
+        
+        testee.loadCells(bookInfo, null, "S1", true, loader);
+        testee.loadCells(bookInfo, null, "S2", true, loader);
+        assertEquals(List.of(), testee.sheetNamesToLoad(bookInfo, null, List.of("S1", "S2"), true));
+        
+        // 上限を超えると最も長い間参照されていないシートから破棄する
+        testee.loadCells(bookInfo, null, "S1", true, loader);
+        testee.loadCells(bookInfo, null, "S3", true, new CountingLoader() {
+            @Override
+            public Set<CellData> loadCells(BookInfo bookInfo, String readPassword, String sheetName) {
+                return cellsOf(5, null);
+            }
+        });
+        assertEquals(List.of("S2"), testee.sheetNamesToLoad(bookInfo, null, List.of("S1", "S2"), true));
+        
+        testee.clear();
+        assertEquals(List.of("S1", "S2"), testee.sheetNamesToLoad(bookInfo, null, List.of("S1", "S2"), true));
+    }
+    
+    @Test
+    void testCompare() throws Exception {
+        Path bookA = Files.copy(test1_xls, tempDir.resolve("A.xls"));
+        Path bookB = Files.copy(test1_xls, tempDir.resolve("B.xls"));
+        Pair<BookInfo> bookInfoPair = new Pair<>(
+                BookInfo.ofLoadCompleted(bookA, List.of("シート")),
+                BookInfo.ofLoadCompleted(bookB, List.of("シート")));
+        Pair<String> sheetNamePair = new Pair<>("シート", "シート");
+        CountingLoader loaderA = new CountingLoader();
+        CountingLoader loaderB = new CountingLoader();
+        loaderA.cells.put("シート", cellsOf(50, null));
+        loaderB.cells.put("シート", cellsOf(50, "変更1"));
+        ComparatorOfSheets comparator = ComparatorOfSheets.of(true, false, false);
+        IncrementalComparison testee = new IncrementalComparison(1000);
+        
+        Pair<Set<CellData>> cells1 = new Pair<>(
+                testee.loadCells(bookInfoPair.a(), null, "シート", true, loaderA),
+                testee.loadCells(bookInfoPair.b(), null, "シート", true, loaderB));
+        ResultOfSheets result1 = testee.compare(
+                bookInfoPair, sheetNamePair, true, cells1, comparator, MatchBudget.unlimited());
+        assertEquals(1, result1.diffCells().size());
+        
+        // 両シートとも変わらなければ前回の比較結果を返す
+        Pair<Set<CellData>> cells2 = new Pair<>(
+                testee.loadCells(bookInfoPair.a(), null, "シート", true, loaderA),
+                testee.loadCells(bookInfoPair.b(), null, "シート", true, loaderB));
+        assertSame(
+                result1,
+                testee.compare(bookInfoPair, sheetNamePair, true, cells2,
+                        ComparatorOfSheets.of(true, false, false), MatchBudget.unlimited()));
+        
+        // 片方のシートを修正した場合は、前回の対応付けを手掛かりに比較する
+        loaderB.cells.put("シート", cellsOf(50, "変更2"));
+        touch(bookB);
+        Pair<Set<CellData>> cells3 = new Pair<>(
+                testee.loadCells(bookInfoPair.a(), null, "シート", true, loaderA),
+                testee.loadCells(bookInfoPair.b(), null, "シート", true, loaderB));
+        ResultOfSheets result3 = testee.compare(
+                bookInfoPair, sheetNamePair, true, cells3, comparator, MatchBudget.unlimited());
+        assertEquals(comparator.compare(cells3).diffCells(), result3.diffCells());
+        assertEquals("変更2", result3.diffCells().get(0).b().content());
+        
+        // 比較方法が変わった場合は前回の比較結果を用いない
+        testee.compare(bookInfoPair, sheetNamePair, true, cells3,
+                ComparatorOfSheets.of(true, true, false), MatchBudget.unlimited());
+        
+        assertEquals(new IncrementalComparison.Stats(3, 3, 1, 1), testee.stats());
+    }
+}
@@ -0,0 +1,115 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class IndentingAppendableTest {
+    
+    // [static members] ********************************************************
+    
+    private static final String BR = System.lineSeparator();
+    
+    private static final String[] TEXTS = {
+            "",
+            "a",
+            "a\n",
+            "a\n\n",
+            "\n",
+            "\n\na",
+            "a\nb\r\nc\rd",
+            "a\r\n\r\nb\r",
+            "a\r\rb\n\rc",
+            "  a\n    b\n",
+    };
+    
+    private static String expected(String text, int n) {
+        return text.indent(n).replace("\n", BR);
+    }
+    
+    /**
+     * テキストを1文字ずつ、または指定された区切り位置で分割して書き込みます。<br>
+     */
+    private static String indent(String text, int n, int chunk) throws IOException {
+        StringBuilder out = new StringBuilder();
+        IndentingAppendable testee = new IndentingAppendable(out, n);
+        for (int i = 0; i < text.length(); i += chunk) {
+            if (chunk == 1) {
+                testee.append(text.charAt(i));
+            } else {
+                testee.append(text, i, Math.min(i + chunk, text.length()));
+            }
+        }
+        testee.finish();
+        return out.toString();
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testConstructor() {
+        assertThrows(
+                NullPointerException.class,
+                () -> new IndentingAppendable(null, 4));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new IndentingAppendable(new StringBuilder(), -1));
+        assertDoesNotThrow(
+                () -> new IndentingAppendable(new StringBuilder(), 0));
+    }
+    
+    @Test
+    void testAppend_Stringのindentと同じ結果になること() throws IOException {
+        for (String text : TEXTS) {
+            for (int n : new int[] { 0, 4, 8 }) {
+                for (int chunk : new int[] { 1, 2, 3, Math.max(1, text.length()) }) {
+                    assertEquals(
+                            expected(text, n),
+                            indent(text, n, chunk),
+                            "text:[%s], n:%d, chunk:%d".formatted(text, n, chunk));
+                }
+            }
+        }
+    }
+    
+    @Test
+    void testAppend_入れ子() throws IOException {
+        String inner = "x\n\ny\r\nz";
+        String outerHead = "head" + BR;
+        String expected = (outerHead + BR + expected(inner, 8) + BR).indent(4).replace("\n", BR);
+        
+        StringBuilder out = new StringBuilder();
+        IndentingAppendable outer = new IndentingAppendable(out, 4);
+        IndentingAppendable nested = new IndentingAppendable(outer, 8);
+        outer.append(outerHead).append(BR);
+        nested.append(inner);
+        nested.finish();
+        outer.append(BR);
+        outer.finish();
+        
+        assertEquals(expected, out.toString());
+    }
+    
+    @Test
+    void testFinish_再利用() throws IOException {
+        StringBuilder out = new StringBuilder();
+        IndentingAppendable testee = new IndentingAppendable(out, 2);
+        
+        testee.append("a\r");
+        testee.finish();
+        testee.append("\nb");
+        testee.finish();
+        
+        // finish 後の "\n" は直前の "\r" と結びつかない
+        assertEquals(expected("a\r", 2) + expected("\nb", 2), out.toString());
+    }
+    
+    @Test
+    void testToText() {
+        assertEquals(
+                "abc",
+                IndentingAppendable.toText(out -> out.append("a").append("bc")));
+    }
+}
@@ -0,0 +1,188 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.logic.NdjsonResultWriter.PhaseTimings;
+import xyz.hotchpotch.hogandiff.util.Pair;
+import xyz.hotchpotch.hogandiff.util.Pair.Side;
+
+class NdjsonResultWriterTest {
+    
+    // [static members] ********************************************************
+    
+    private static final Pair<BookInfo> BOOKS = new Pair<>(
+            BookInfo.ofLoadCompleted(Path.of("dir", "a.xlsx"), List.of("S1", "S2")),
+            BookInfo.ofLoadCompleted(Path.of("dir", "b.xlsx"), List.of("S1", "S3")));
+    
+    private static final Pair<String> S1 = new Pair<>("S1", "S1");
+    private static final Pair<String> S2 = Pair.ofOnly(Side.A, "S2");
+    private static final Pair<String> S3 = Pair.ofOnly(Side.B, "S3");
+    
+    private static final ResultOfSheets RESULT = new ResultOfSheets(
+            new Pair<>(Set.of(), Set.of()),
+            new Pair<>(List.of(1, 2, 3, 7), List.of()),
+            new Pair<>(List.of(), List.of(0, 2, 3)),
+            List.of(new Pair<>(
+                    CellData.of("B2", "foo\n\"bar\"", null),
+                    CellData.of("B3", "baz", "comment"))));
+    
+    private static List<JSONObject> lines(String text) {
+        assertTrue(text.endsWith("\n"));
+        return text.lines().map(JSONObject::new).toList();
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testConstructor() {
+        assertThrows(
+                NullPointerException.class,
+                () -> new NdjsonResultWriter(null));
+    }
+    
+    @Test
+    void testWriteSheetResult() throws IOException {
+        StringBuilder out = new StringBuilder();
+        NdjsonResultWriter testee = new NdjsonResultWriter(out);
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.writeSheetResult(null, null, S1, Optional.of(RESULT), null));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.writeSheetResult(null, BOOKS, null, Optional.of(RESULT), null));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.writeSheetResult(null, BOOKS, S1, null, null));
+        assertEquals("", out.toString());
+        
+        testee.writeSheetResult("1", BOOKS, S1, Optional.of(RESULT), new PhaseTimings(10, 20, 30));
+        testee.writeSheetResult(null, BOOKS, S2, Optional.empty(), null);
+        testee.writeSheetResult(null, BOOKS, S1, Optional.empty(), null);
+        
+        List<JSONObject> lines = lines(out.toString());
+        assertEquals(3, lines.size());
+        
+        JSONObject compared = lines.get(0);
+        assertEquals("1", compared.getString("dirId"));
+        assertEquals(Path.of("dir", "a.xlsx").toString(), compared.getJSONObject("books").getString("a"));
+        assertEquals(Path.of("dir", "b.xlsx").toString(), compared.getJSONObject("books").getString("b"));
+        assertEquals("S1", compared.getJSONObject("sheets").getString("b"));
+        assertEquals("compared", compared.getString("status"));
+        assertTrue(compared.getBoolean("hasDiff"));
+        assertFalse(compared.getBoolean("approximated"));
+        
+        // 余剰行・余剰列は連続範囲にまとめられる
+        assertEquals(
+                "[[2,4],[8,8]]",
+                compared.getJSONObject("redundantRows").getJSONArray("a").toString());
+        assertEquals(
+                "[]",
+                compared.getJSONObject("redundantRows").getJSONArray("b").toString());
+        assertEquals(
+                "[[\"A\",\"A\"],[\"C\",\"D\"]]",
+                compared.getJSONObject("redundantColumns").getJSONArray("b").toString());
+        
+        JSONArray diffCells = compared.getJSONArray("diffCells");
+        assertEquals(1, diffCells.length());
+        JSONObject cellA = diffCells.getJSONObject(0).getJSONObject("a");
+        JSONObject cellB = diffCells.getJSONObject(0).getJSONObject("b");
+        assertEquals("B2", cellA.getString("address"));
+        assertEquals("foo\n\"bar\"", cellA.getString("content"));
+        assertTrue(cellA.isNull("comment"));
+        assertEquals("B3", cellB.getString("address"));
+        assertEquals("comment", cellB.getString("comment"));
+        
+        JSONObject timings = compared.getJSONObject("timingsNanos");
+        assertEquals(10, timings.getLong("loadA"));
+        assertEquals(20, timings.getLong("loadB"));
+        assertEquals(30, timings.getLong("compare"));
+        
+        JSONObject unpaired = lines.get(1);
+        assertFalse(unpaired.has("dirId"));
+        assertEquals("unpaired", unpaired.getString("status"));
+        assertTrue(unpaired.getJSONObject("sheets").isNull("b"));
+        assertFalse(unpaired.has("diffCells"));
+        assertFalse(unpaired.has("timingsNanos"));
+        
+        assertEquals("failed", lines.get(2).getString("status"));
+    }
+    
+    @Test
+    void testWriteBookResult() throws IOException {
+        PairingInfoBooks bookComparison = new PairingInfoBooks(BOOKS, List.of(S1, S2, S3));
+        ResultOfBooks bookResult = new ResultOfBooks(
+                bookComparison,
+                Map.of(S1, Optional.of(RESULT), S2, Optional.empty(), S3, Optional.empty()));
+        
+        StringBuilder out = new StringBuilder();
+        NdjsonResultWriter testee = new NdjsonResultWriter(out);
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.writeBookResult(null, null));
+        
+        testee.writeBookResult("2", bookResult);
+        
+        List<JSONObject> lines = lines(out.toString());
+        assertEquals(
+                List.of("compared", "unpaired", "unpaired"),
+                lines.stream().map(line -> line.getString("status")).toList());
+        assertEquals(
+                List.of("2", "2", "2"),
+                lines.stream().map(line -> line.getString("dirId")).toList());
+    }
+    
+    @Test
+    void testOpenAndClose(@TempDir Path tempDir) throws IOException {
+        Path dst = tempDir.resolve("result.ndjson");
+        
+        try (NdjsonResultWriter testee = NdjsonResultWriter.open(dst)) {
+            testee.writeSheetResult(null, BOOKS, S1, Optional.of(RESULT), null);
+        }
+        assertEquals(1, lines(Files.readString(dst, StandardCharsets.UTF_8)).size());
+        
+        // 既に存在するファイルには書き出さない
+        assertThrows(
+                IOException.class,
+                () -> NdjsonResultWriter.open(dst));
+    }
+    
+    @Test
+    void testWriteSheetResult_書き出し失敗() {
+        Writer failing = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("failing");
+            }
+            
+            @Override
+            public void flush() {
+            }
+            
+            @Override
+            public void close() {
+            }
+        };
+        NdjsonResultWriter testee = new NdjsonResultWriter(failing);
+        
+        assertThrows(
+                IOException.class,
+                () -> testee.writeSheetResult(null, BOOKS, S1, Optional.of(RESULT), null));
+    }
+}
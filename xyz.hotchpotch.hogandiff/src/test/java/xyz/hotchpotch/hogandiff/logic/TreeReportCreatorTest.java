@@ -0,0 +1,236 @@
+package xyz.hotchpotch.hogandiff.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.SettingKeys;
+import xyz.hotchpotch.hogandiff.logic.PairingInfoDirs.PairingInfoDirsFlatten;
+import xyz.hotchpotch.hogandiff.logic.TreeReportCreator.ReportWriter;
+import xyz.hotchpotch.hogandiff.util.Pair;
+import xyz.hotchpotch.hogandiff.util.Pair.Side;
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+class TreeReportCreatorTest {
+    
+    // [static members] ********************************************************
+    
+    private static final int ROW_START = 7;
+    
+    private static final Settings settings = Settings.builder()
+            .set(SettingKeys.CURR_TIMESTAMP, "20260101-123456-789")
+            .build();
+    
+    private static BookInfo book(Path dir, String name) {
+        return BookInfo.ofLoadCompleted(dir.resolve(name), List.of("シート1"));
+    }
+    
+    private static PairingInfoBooks bookComparison(Pair<BookInfo> bookInfoPair) {
+        return new PairingInfoBooks(bookInfoPair, List.of(new Pair<>("シート1", "シート1")));
+    }
+    
+    /**
+     * 次の構成のフォルダツリー同士の比較結果を返します。<br>
+     * top：差分あり、Aのみ、Bのみ、比較失敗のExcelブックを1つずつ含む<br>
+     * top/sub：Aのみに存在し、Excelブックを1つ含む<br>
+     */
+    private static ResultOfTrees treeResult(Path base) {
+        Path topA = base.resolve("A").resolve("top");
+        Path topB = base.resolve("B").resolve("top");
+        Path subA = topA.resolve("sub");
+        
+        Pair<BookInfo> x = new Pair<>(book(topA, "x.xlsx"), book(topB, "x.xlsx"));
+        Pair<BookInfo> y = Pair.ofOnly(Side.A, book(topA, "y.xlsx"));
+        Pair<BookInfo> z = Pair.ofOnly(Side.B, book(topB, "z.xlsx"));
+        Pair<BookInfo> w = new Pair<>(book(topA, "w.xlsx"), book(topB, "w.xlsx"));
+        Pair<BookInfo> s = Pair.ofOnly(Side.A, book(subA, "s.xlsx"));
+        
+        DirInfo subInfoA = new DirInfo(subA, List.of(), List.of(s.a()));
+        Pair<DirInfo> subPair = Pair.ofOnly(Side.A, subInfoA);
+        Pair<DirInfo> topPair = new Pair<>(
+                new DirInfo(topA, List.of(subInfoA), List.of(x.a(), y.a(), w.a())),
+                new DirInfo(topB, List.of(), List.of(x.b(), z.b(), w.b())));
+        
+        PairingInfoDirs subComparison = new PairingInfoDirs(
+                subPair, List.of(), Map.of(), List.of(s), Map.of(s, Optional.empty()));
+        PairingInfoDirs topComparison = new PairingInfoDirs(
+                topPair,
+                List.of(subPair),
+                Map.of(subPair, Optional.of(subComparison)),
+                List.of(x, y, z, w),
+                Map.of(
+                        x, Optional.of(bookComparison(x)),
+                        y, Optional.empty(),
+                        z, Optional.empty(),
+                        w, Optional.of(bookComparison(w))));
+        
+        // シートの比較結果が無いExcelブックは差分ありとみなされる
+        ResultOfBooks xResult = new ResultOfBooks(
+                bookComparison(x),
+                Map.of(new Pair<>("シート1", "シート1"), Optional.empty()));
+        
+        return new ResultOfTrees(
+                topComparison.flatten(),
+                Map.of(
+                        topPair, Optional.of(new ResultOfDirs(
+                                topComparison,
+                                Map.of(
+                                        x, Optional.of(xResult),
+                                        y, Optional.empty(),
+                                        z, Optional.empty(),
+                                        w, Optional.empty()),
+                                "1")),
+                        subPair, Optional.empty()));
+    }
+    
+    private static String stringValue(Sheet sheet, int r, int c) {
+        Row row = sheet.getRow(r);
+        return row == null || row.getCell(c) == null ? null : row.getCell(c).getStringCellValue();
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testCreateResultBook_例外系() throws Exception {
+        TreeReportCreator testee = new TreeReportCreator(settings);
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.createResultBook(null, treeResult(Path.of("dummy")), true));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.createResultBook(Path.of("dummy.xlsx"), null, true));
+    }
+    
+    @Test
+    void testCreateResultBook_正常系(@TempDir Path tempDir) throws Exception {
+        Path dst = tempDir.resolve("result.xlsx");
+        
+        new TreeReportCreator(settings).createResultBook(dst, treeResult(tempDir), true);
+        
+        try (Workbook book = WorkbookFactory.create(dst.toFile())) {
+            Sheet sheet = book.getSheet("result");
+            
+            // フォルダ top
+            assertEquals("【A1】", stringValue(sheet, ROW_START, 3));
+            assertEquals("top", stringValue(sheet, ROW_START, 4));
+            assertEquals("【B1】", stringValue(sheet, ROW_START, 8));
+            assertEquals("top", stringValue(sheet, ROW_START, 9));
+            
+            // フォルダ top のExcelブック
+            assertEquals("【A1-1】", stringValue(sheet, ROW_START + 1, 5));
+            assertEquals("x.xlsx", stringValue(sheet, ROW_START + 1, 6));
+            assertEquals("!", stringValue(sheet, ROW_START + 1, 7));
+            assertEquals("<", stringValue(sheet, ROW_START + 2, 7));
+            assertNull(stringValue(sheet, ROW_START + 2, 8));
+            assertEquals(">", stringValue(sheet, ROW_START + 3, 7));
+            assertNull(stringValue(sheet, ROW_START + 3, 3));
+            assertEquals("?", stringValue(sheet, ROW_START + 4, 7));
+            
+            // フォルダ top/sub（Aのみ）
+            assertEquals("【A2】", stringValue(sheet, ROW_START + 6, 3));
+            assertEquals(Path.of("top", "sub").toString(), stringValue(sheet, ROW_START + 6, 4));
+            assertNull(stringValue(sheet, ROW_START + 6, 8));
+            assertEquals("【A2-1】", stringValue(sheet, ROW_START + 7, 5));
+            assertEquals("<", stringValue(sheet, ROW_START + 7, 7));
+            assertEquals(ROW_START + 7, sheet.getLastRowNum());
+            
+            // ハイパーリンク
+            Path outputDirA = tempDir.resolve("【A1】top");
+            assertEquals(
+                    outputDirA.toUri().toString(),
+                    sheet.getRow(ROW_START + 2).getCell(3).getHyperlink().getAddress());
+            assertEquals(
+                    outputDirA.resolve("【A1-1】x.xlsx").toUri().toString(),
+                    sheet.getRow(ROW_START + 1).getCell(5).getHyperlink().getAddress());
+            assertEquals(
+                    outputDirA.resolve("【A2】sub").resolve("【A2-1】s.xlsx").toUri().toString(),
+                    sheet.getRow(ROW_START + 7).getCell(5).getHyperlink().getAddress());
+            
+            // 書式はテンプレート行のものが適用されること
+            Row templateRow = sheet.getRow(5);
+            for (int c : new int[] { 3, 4, 5, 6, 7 }) {
+                Cell cell = sheet.getRow(ROW_START + 1).getCell(c);
+                assertEquals(templateRow.getCell(c).getCellStyle().getIndex(), cell.getCellStyle().getIndex());
+            }
+        }
+        
+        // 保存先が既に存在する場合は失敗する
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> new TreeReportCreator(settings).createResultBook(dst, treeResult(tempDir), true));
+    }
+    
+    @Test
+    void testCreateResultBook_子フォルダを含めない(@TempDir Path tempDir) throws Exception {
+        Path dst = tempDir.resolve("result.xlsx");
+        
+        new TreeReportCreator(settings).createResultBook(dst, treeResult(tempDir), false);
+        
+        try (Workbook book = WorkbookFactory.create(dst.toFile())) {
+            Sheet sheet = book.getSheet("result");
+            
+            assertEquals("【A】", stringValue(sheet, ROW_START, 3));
+            assertEquals("【A-1】", stringValue(sheet, ROW_START + 1, 5));
+        }
+    }
+    
+    @Test
+    void testOpenResultBook_逐次出力(@TempDir Path tempDir) throws Exception {
+        ResultOfTrees treeResult = treeResult(tempDir);
+        PairingInfoDirsFlatten flatten = treeResult.flattenDirComparison();
+        Pair<DirInfo> topPair = flatten.dirInfoPairs().get(0);
+        Pair<DirInfo> subPair = flatten.dirInfoPairs().get(1);
+        Path dst = tempDir.resolve("result.xlsx");
+        
+        try (ReportWriter writer = new TreeReportCreator(settings).openResultBook(dst, flatten, true)) {
+            assertEquals(dst, writer.dstBookPath());
+            
+            // 出力していないフォルダペアがある状態では保存できない
+            assertThrows(
+                    IllegalStateException.class,
+                    () -> writer.save());
+            
+            // フォルダペアの順序を守る必要がある
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> writer.writeDirResult(subPair, Optional.empty()));
+            assertThrows(
+                    NullPointerException.class,
+                    () -> writer.writeDirResult(topPair, null));
+            
+            writer.writeDirResult(topPair, treeResult.dirResults().get(topPair));
+            writer.writeDirResult(subPair, treeResult.dirResults().get(subPair));
+            
+            assertThrows(
+                    IllegalStateException.class,
+                    () -> writer.writeDirResult(subPair, Optional.empty()));
+            assertFalse(Files.exists(dst));
+            
+            writer.save();
+            
+            assertThrows(
+                    IllegalStateException.class,
+                    () -> writer.save());
+        }
+        
+        try (Workbook book = WorkbookFactory.create(dst.toFile())) {
+            Sheet sheet = book.getSheet("result");
+            
+            assertEquals("x.xlsx", stringValue(sheet, ROW_START + 1, 6));
+            assertEquals("【A2-1】", stringValue(sheet, ROW_START + 7, 5));
+        }
+    }
+}
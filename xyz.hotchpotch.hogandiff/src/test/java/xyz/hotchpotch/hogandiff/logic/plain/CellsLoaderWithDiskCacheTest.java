@@ -0,0 +1,234 @@
+package xyz.hotchpotch.hogandiff.logic.plain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.SettingKeys;
+import xyz.hotchpotch.hogandiff.logic.BookInfo;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.CellsLoader;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.Factory;
+import xyz.hotchpotch.hogandiff.util.Settings;
+
+class CellsLoaderWithDiskCacheTest {
+    
+    // [static members] ********************************************************
+    
+    private static final Set<CellData> CELLS = Set.of(
+            new CellData(0, 0, "A1", null),
+            new CellData(0, 200, "あいう\nえお", "comment"),
+            new CellData(1, 3, "", null),
+            new CellData(70000, 16383, "x".repeat(1000), ""),
+            new CellData(70000, 2, "y", null));
+    
+    /**
+     * シート名を内容とするセルを返し、呼び出された回数を数えるローダーです。<br>
+     */
+    private static class CountingLoader implements CellsLoader {
+        
+        // [static members] ----------------------------------------------------
+        
+        // [instance members] --------------------------------------------------
+        
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public Set<CellData> loadCells(BookInfo bookInfo, String readPassword, String sheetName)
+                throws ExcelHandlingException {
+            
+            if ("failing".equals(sheetName)) {
+                throw new ExcelHandlingException("failing");
+            }
+            count.incrementAndGet();
+            return Set.of(new CellData(0, 0, sheetName, null));
+        }
+    }
+    
+    private static long countCacheFiles(Path cacheDir) throws IOException {
+        if (!Files.isDirectory(cacheDir)) {
+            return 0;
+        }
+        try (Stream<Path> paths = Files.list(cacheDir)) {
+            return paths.filter(p -> p.toString().endsWith(".cells")).count();
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testEncodeDecode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CellsLoaderWithDiskCache.encode(CELLS, bytes);
+        
+        Set<CellData> decoded = new HashSet<>();
+        CellsLoaderWithDiskCache.decode(new ByteArrayInputStream(bytes.toByteArray()), decoded);
+        assertEquals(CELLS, decoded);
+        
+        // 形式が異なるデータは読み込まない
+        assertThrows(
+                IOException.class,
+                () -> CellsLoaderWithDiskCache.decode(
+                        new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }), new HashSet<>()));
+    }
+    
+    @Test
+    void testOf(@TempDir Path tempDir) {
+        CellsLoader delegate = new CountingLoader();
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> CellsLoaderWithDiskCache.of(null, tempDir, 1, true, HashSet::new));
+        assertThrows(
+                NullPointerException.class,
+                () -> CellsLoaderWithDiskCache.of(delegate, null, 1, true, HashSet::new));
+        assertThrows(
+                NullPointerException.class,
+                () -> CellsLoaderWithDiskCache.of(delegate, tempDir, 1, true, null));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CellsLoaderWithDiskCache.of(delegate, tempDir, 0, true, HashSet::new));
+    }
+    
+    @Test
+    void testLoadCells(@TempDir Path tempDir) throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        Path bookA = Files.writeString(tempDir.resolve("a.xlsx"), "book");
+        Path bookB = Files.writeString(tempDir.resolve("b.xlsx"), "book");
+        Path bookC = Files.writeString(tempDir.resolve("c.xlsx"), "other");
+        CountingLoader delegate = new CountingLoader();
+        
+        CellsLoader testee1 = CellsLoaderWithDiskCache.of(delegate, cacheDir, 1 << 20, true, HashSet::new);
+        assertEquals(
+                Set.of(new CellData(0, 0, "S1", null)),
+                testee1.loadCells(BookInfo.ofLoadCompleted(bookA, List.of("S1")), null, "S1"));
+        assertEquals(1, delegate.count.get());
+        
+        // 別のインスタンスからも、内容が同じ別のExcelブックからもキャッシュを利用できる
+        CellsLoader testee2 = CellsLoaderWithDiskCache.of(delegate, cacheDir, 1 << 20, true, HashSet::new);
+        assertEquals(
+                Set.of(new CellData(0, 0, "S1", null)),
+                testee2.loadCells(BookInfo.ofLoadCompleted(bookB, List.of("S1")), null, "S1"));
+        assertEquals(1, delegate.count.get());
+        
+        // 内容、シート名、比較方法が異なる場合はキャッシュを利用しない
+        testee2.loadCells(BookInfo.ofLoadCompleted(bookC, List.of("S1")), null, "S1");
+        testee2.loadCells(BookInfo.ofLoadCompleted(bookA, List.of("S2")), null, "S2");
+        CellsLoaderWithDiskCache.of(delegate, cacheDir, 1 << 20, false, HashSet::new)
+                .loadCells(BookInfo.ofLoadCompleted(bookA, List.of("S1")), null, "S1");
+        assertEquals(4, delegate.count.get());
+        assertEquals(4, countCacheFiles(cacheDir));
+        
+        // 暗号化されたExcelブックはキャッシュしない
+        testee2.loadCells(BookInfo.ofLoadCompleted(bookA, List.of("S1")), "password", "S1");
+        testee2.loadCells(BookInfo.ofLoadCompleted(bookA, List.of("S1")), "password", "S1");
+        assertEquals(6, delegate.count.get());
+        assertEquals(4, countCacheFiles(cacheDir));
+        
+        // 読み込みに失敗した場合は例外がそのままスローされる
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee2.loadCells(BookInfo.ofLoadCompleted(bookA, List.of("failing")), null, "failing"));
+    }
+    
+    @Test
+    void testLoadCells_作業用フォルダが異なる場合の共有(@TempDir Path tempDir) throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        Path book = Path.of(CellsLoaderWithDiskCacheTest.class.getResource("/xyz/hotchpotch/hogandiff/logic/sax/Test1.xlsx").toURI());
+        BookInfo bookInfo = BookInfo.ofLoadCompleted(book, List.of("A1_ワークシート"));
+        
+        // 一括比較やサービスのように、比較ごとに作業用フォルダの作成場所を付け替える場合
+        Settings settings1 = Settings.builder()
+                .set(SettingKeys.WORK_DIR_BASE, tempDir.resolve("work1"))
+                .set(SettingKeys.SHEET_CACHE_DIR, cacheDir)
+                .build();
+        Settings settings2 = settings1.getAltered(SettingKeys.WORK_DIR_BASE, tempDir.resolve("work2"));
+        
+        Factory.cellsLoader(settings1, bookInfo).loadCells(bookInfo, null, "A1_ワークシート");
+        assertEquals(1, countCacheFiles(cacheDir));
+        assertFalse(Files.exists(tempDir.resolve("work1").resolve("sheetCache")));
+        
+        // キャッシュの内容を差し替え、もう一方のローダーがキャッシュから読み込むことを確かめる
+        try (Stream<Path> paths = Files.list(cacheDir);
+                OutputStream os = Files.newOutputStream(paths.findFirst().get())) {
+            CellsLoaderWithDiskCache.encode(CELLS, os);
+        }
+        assertEquals(
+                CELLS,
+                Factory.cellsLoader(settings2, bookInfo).loadCells(bookInfo, null, "A1_ワークシート"));
+        assertEquals(1, countCacheFiles(cacheDir));
+        assertFalse(Files.exists(tempDir.resolve("work2").resolve("sheetCache")));
+        
+        // 保存先が設定されていない場合は、作業用フォルダの作成場所の配下とする
+        assertEquals(
+                tempDir.resolve("work1").resolve("sheetCache"),
+                Factory.sheetCacheDir(Settings.builder()
+                        .set(SettingKeys.WORK_DIR_BASE, tempDir.resolve("work1"))
+                        .build()));
+    }
+    
+    @Test
+    void testLoadCells_破損したキャッシュ(@TempDir Path tempDir) throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        Path book = Files.writeString(tempDir.resolve("a.xlsx"), "book");
+        CountingLoader delegate = new CountingLoader();
+        CellsLoader testee = CellsLoaderWithDiskCache.of(delegate, cacheDir, 1 << 20, true, HashSet::new);
+        
+        testee.loadCells(BookInfo.ofLoadCompleted(book, List.of("S1")), null, "S1");
+        try (Stream<Path> paths = Files.list(cacheDir)) {
+            Files.writeString(paths.findFirst().get(), "broken");
+        }
+        
+        assertEquals(
+                Set.of(new CellData(0, 0, "S1", null)),
+                testee.loadCells(BookInfo.ofLoadCompleted(book, List.of("S1")), null, "S1"));
+        assertEquals(2, delegate.count.get());
+    }
+    
+    @Test
+    void testLoadCells_容量超過(@TempDir Path tempDir) throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        Path book = Files.writeString(tempDir.resolve("a.xlsx"), "book");
+        CountingLoader delegate = new CountingLoader();
+        
+        // キャッシュファイル1つ分程度の容量
+        CellsLoader testee = CellsLoaderWithDiskCache.of(delegate, cacheDir, 40, true, HashSet::new);
+        for (int i = 0; i < 5; i++) {
+            testee.loadCells(BookInfo.ofLoadCompleted(book, List.of("S" + i)), null, "S" + i);
+        }
+        assertTrue(countCacheFiles(cacheDir) <= 2);
+    }
+    
+    @Test
+    void testLoadCellsOfSheets(@TempDir Path tempDir) throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        Path book = Files.writeString(tempDir.resolve("a.xlsx"), "book");
+        BookInfo bookInfo = BookInfo.ofLoadCompleted(book, List.of("S1", "S2", "failing"));
+        CountingLoader delegate = new CountingLoader();
+        CellsLoader testee = CellsLoaderWithDiskCache.of(delegate, cacheDir, 1 << 20, true, HashSet::new);
+        
+        testee.loadCells(bookInfo, null, "S1");
+        assertEquals(1, delegate.count.get());
+        
+        // キャッシュに無いシートだけが読み込まれ、読み込めないシートは含まれない
+        Map<String, Set<CellData>> result = testee.loadCellsOfSheets(bookInfo, null, List.of("S1", "S2", "failing"));
+        assertEquals(Set.of("S1", "S2"), result.keySet());
+        assertEquals(Set.of(new CellData(0, 0, "S2", null)), result.get("S2"));
+        assertEquals(2, delegate.count.get());
+    }
+}
@@ -0,0 +1,218 @@
+package xyz.hotchpotch.hogandiff.logic.plain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.ComparatorOfSheets;
+import xyz.hotchpotch.hogandiff.logic.ResultOfSheets;
+import xyz.hotchpotch.hogandiff.util.Pair;
+
+class ComparatorOfSheetsRCTest {
+    
+    // [static members] ********************************************************
+    
+    private static void addRow(Set<CellData> cells, int row, String key) {
+        for (int c = 0; c < 4; c++) {
+            if ((key.hashCode() + c) % 5 != 0) {
+                cells.add(new CellData(row, c, key + "-" + c, null));
+            }
+        }
+    }
+    
+    /**
+     * 300行のシートAと、シートAの行を削除・挿入・変更したシートBを返します。<br>
+     */
+    private static Pair<Set<CellData>> sheets() {
+        Set<CellData> cellsA = new HashSet<>();
+        Set<CellData> cellsB = new HashSet<>();
+        int rowB = 0;
+        
+        for (int r = 0; r < 300; r++) {
+            addRow(cellsA, r, "行" + r);
+            
+            if (r == 50 || r == 51 || r == 230) {
+                continue;
+            }
+            if (r == 120) {
+                addRow(cellsB, rowB++, "挿入1");
+                addRow(cellsB, rowB++, "挿入2");
+                rowB++;
+            }
+            if (r == 200) {
+                cellsB.add(new CellData(rowB, 1, "変更", null));
+                cellsB.add(new CellData(rowB, 3, "追加", null));
+                rowB++;
+                continue;
+            }
+            addRow(cellsB, rowB++, "行" + r);
+        }
+        return new Pair<>(cellsA, cellsB);
+    }
+    
+    /**
+     * 指定されたシートの1つのセルを修正し、1行を挿入したシートを返します。<br>
+     */
+    private static Set<CellData> edited(Set<CellData> cells) {
+        Set<CellData> edited = new HashSet<>();
+        for (CellData cell : cells) {
+            if (cell.row() == 10 && cell.column() == 1) {
+                edited.add(new CellData(10, 1, "修正", null));
+            } else if (250 <= cell.row()) {
+                edited.add(new CellData(cell.row() + 1, cell.column(), cell.content(), cell.comment()));
+            } else {
+                edited.add(cell);
+            }
+        }
+        addRow(edited, 250, "挿入3");
+        return edited;
+    }
+    
+    private static void assertSameResult(ResultOfSheets expected, ResultOfSheets actual) {
+        assertEquals(expected.redundantRows(), actual.redundantRows());
+        assertEquals(expected.redundantColumns(), actual.redundantColumns());
+        assertEquals(expected.diffCells(), actual.diffCells());
+    }
+    
+    // [instance members] ******************************************************
+    
+    @TempDir
+    private Path tempDir;
+    
+    @Test
+    void testOf() {
+        assertThrows(
+                NullPointerException.class,
+                () -> ComparatorOfSheetsRC.of(true, false, true, 16).compare(null));
+        
+        // ウィンドウの大きさは正の値であれば補正される
+        assertDoesNotThrow(
+                () -> ComparatorOfSheetsRC.of(true, false, true, 1).compare(sheets()));
+    }
+    
+    @Test
+    void testCompareIncrementally() {
+        Pair<Set<CellData>> prev = sheets();
+        
+        for (boolean[] flags : new boolean[][] {
+                { true, false, true },
+                { true, false, false },
+                { true, true, true },
+                { true, true, false },
+                { false, false, true } }) {
+            
+            ComparatorOfSheets testee = ComparatorOfSheets.of(flags[0], flags[1], flags[2]);
+            ResultOfSheets prevResult = testee.compare(prev);
+            assertTrue(prevResult.rowPairs().isPresent());
+            assertTrue(prevResult.columnPairs().isPresent());
+            
+            // 一方のシートを修正した場合
+            Pair<Set<CellData>> curr1 = new Pair<>(prev.a(), edited(prev.b()));
+            assertSameResult(
+                    testee.compare(curr1),
+                    testee.compareIncrementally(curr1, MatchBudget.unlimited(), prev, prevResult));
+            
+            // 双方のシートを修正した場合
+            Pair<Set<CellData>> curr2 = new Pair<>(edited(prev.a()), edited(prev.b()));
+            assertSameResult(
+                    testee.compare(curr2),
+                    testee.compareIncrementally(curr2, MatchBudget.unlimited(), prev, prevResult));
+        }
+    }
+    
+    @Test
+    void testCompareIncrementally_ウィンドウ() {
+        Pair<Set<CellData>> prev = sheets();
+        ComparatorOfSheets testee = ComparatorOfSheets.of(true, false, true, 16);
+        ResultOfSheets prevResult = testee.compare(prev);
+        Pair<Set<CellData>> curr = new Pair<>(prev.a(), edited(prev.b()));
+        
+        // ウィンドウの範囲内で対応付ける場合は、前回の比較結果を用いずに比較する
+        assertTrue(prevResult.rowPairs().isEmpty());
+        assertSameResult(
+                testee.compare(curr),
+                testee.compareIncrementally(curr, MatchBudget.unlimited(), prev, prevResult));
+    }
+    
+    @Test
+    void testEquals() {
+        assertEquals(ComparatorOfSheets.of(true, false, true), ComparatorOfSheets.of(true, false, true));
+        assertEquals(
+                ComparatorOfSheets.of(true, false, true).hashCode(),
+                ComparatorOfSheets.of(true, false, true).hashCode());
+        assertNotEquals(ComparatorOfSheets.of(true, false, true), ComparatorOfSheets.of(true, true, true));
+        assertNotEquals(ComparatorOfSheets.of(true, false, true), ComparatorOfSheets.of(true, false, true, 16));
+        
+        // ウィンドウが適用されない設定では、ウィンドウの大きさは区別しない
+        assertEquals(ComparatorOfSheets.of(true, true, true), ComparatorOfSheets.of(true, true, true, 16));
+    }
+    
+    @Test
+    void testCompare_ウィンドウ() {
+        Pair<Set<CellData>> sheets = sheets();
+        ResultOfSheets expected = ComparatorOfSheets.of(true, false, true).compare(sheets);
+        
+        assertEquals(
+                Pair.of(List.of(50, 51, 230), List.of(118, 119, 120)),
+                expected.redundantRows());
+        
+        for (int windowSize : new int[] { 8, 16, 64, 1000 }) {
+            for (boolean prioritizeSpeed : new boolean[] { true, false }) {
+                assertSameResult(
+                        expected,
+                        ComparatorOfSheets.of(true, false, prioritizeSpeed, windowSize).compare(sheets));
+            }
+        }
+    }
+    
+    @Test
+    void testCompare_ウィンドウ_一時ファイルへの退避() {
+        Pair<Set<CellData>> sheets = sheets();
+        Pair<Set<CellData>> spilled = sheets.map(cells -> {
+            Set<CellData> spillable = new SpillableCellsSet(tempDir, 4 * 1024);
+            spillable.addAll(cells);
+            return spillable;
+        });
+        
+        assertSameResult(
+                ComparatorOfSheets.of(true, false, true).compare(sheets),
+                ComparatorOfSheets.of(true, false, true, 16).compare(spilled));
+    }
+    
+    @Test
+    void testCompare_ウィンドウ_空のシート() {
+        Set<CellData> empty = new HashSet<>();
+        Set<CellData> cells = new HashSet<>();
+        addRow(cells, 2, "行");
+        ComparatorOfSheets testee = ComparatorOfSheets.of(true, false, true, 8);
+        
+        assertSameResult(
+                ComparatorOfSheets.of(true, false, true).compare(new Pair<>(empty, cells)),
+                testee.compare(new Pair<>(empty, cells)));
+        assertSameResult(
+                ComparatorOfSheets.of(true, false, true).compare(new Pair<>(cells, empty)),
+                testee.compare(new Pair<>(cells, empty)));
+        assertFalse(testee.compare(new Pair<>(empty, new HashSet<>())).hasDiff());
+    }
+    
+    @Test
+    void testCompare_ウィンドウが適用されない設定() {
+        Pair<Set<CellData>> sheets = sheets();
+        
+        // 行の挿入／削除を考慮しない場合や列の挿入／削除を考慮する場合は、ウィンドウの大きさは無視される
+        assertSameResult(
+                ComparatorOfSheets.of(false, false, true).compare(sheets),
+                ComparatorOfSheets.of(false, false, true, 8).compare(sheets));
+        assertSameResult(
+                ComparatorOfSheets.of(true, true, true).compare(sheets),
+                ComparatorOfSheets.of(true, true, true, 8).compare(sheets));
+    }
+}
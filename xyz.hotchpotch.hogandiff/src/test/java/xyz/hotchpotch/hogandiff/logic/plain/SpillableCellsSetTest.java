@@ -0,0 +1,175 @@
+package xyz.hotchpotch.hogandiff.logic.plain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.core.MatchBudget;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.ComparatorOfSheets;
+import xyz.hotchpotch.hogandiff.logic.ResultOfSheets;
+import xyz.hotchpotch.hogandiff.util.Pair;
+
+class SpillableCellsSetTest {
+    
+    // [static members] ********************************************************
+    
+    private static Set<CellData> randomCells(long seed, int rows, int columns) {
+        Random random = new Random(seed);
+        Set<CellData> cells = new HashSet<>();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (random.nextInt(3) != 0) {
+                    cells.add(new CellData(
+                            r,
+                            c,
+                            "値" + random.nextInt(5),
+                            random.nextInt(20) == 0 ? "コメント" + random.nextInt(2) : null));
+                }
+            }
+        }
+        return cells;
+    }
+    
+    private static Set<CellData> spilled(Path workDir, Set<CellData> cells) {
+        Set<CellData> spillable = new SpillableCellsSet(workDir, 4 * 1024);
+        spillable.addAll(cells);
+        return spillable;
+    }
+    
+    private static List<List<CellData>> toList(Iterator<List<CellData>> groups) {
+        List<List<CellData>> list = new ArrayList<>();
+        groups.forEachRemaining(list::add);
+        return list;
+    }
+    
+    // [instance members] ******************************************************
+    
+    @TempDir
+    Path workDir;
+    
+    @Test
+    void testConstructor() {
+        assertThrows(
+                NullPointerException.class,
+                () -> new SpillableCellsSet(null, 1024));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new SpillableCellsSet(workDir, 0));
+        
+        assertDoesNotThrow(
+                () -> new SpillableCellsSet(workDir, 1));
+    }
+    
+    @Test
+    void testAdd_ヒープ上() throws IOException {
+        SpillableCellsSet cells = new SpillableCellsSet(workDir, 1024 * 1024);
+        CellData a1 = CellData.of("A1", "a1", null);
+        CellData b2 = CellData.of("B2", "b2", "comment");
+        
+        assertTrue(cells.add(a1));
+        assertTrue(cells.add(b2));
+        assertFalse(cells.add(CellData.of("A1", "a1", null)));
+        assertThrows(
+                NullPointerException.class,
+                () -> cells.add(null));
+        
+        assertFalse(cells.isSpilled());
+        assertEquals(Set.of(a1, b2), cells);
+        try (Stream<Path> files = Files.list(workDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+    
+    @Test
+    void testAdd_一時ファイルへの退避() {
+        Set<CellData> expected = randomCells(1, 200, 30);
+        SpillableCellsSet actual = new SpillableCellsSet(workDir, 4 * 1024);
+        actual.addAll(expected);
+        
+        assertTrue(actual.isSpilled());
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+        assertEquals(expected, new HashSet<>(actual));
+        assertThrows(
+                UnsupportedOperationException.class,
+                () -> actual.iterator().remove());
+    }
+    
+    @Test
+    void testRowsAndColumns() {
+        Set<CellData> onHeap = randomCells(2, 100, 40);
+        Set<CellData> spilled = spilled(workDir, onHeap);
+        
+        List<List<CellData>> rows = toList(SpillableCellsSet.rows(onHeap));
+        List<List<CellData>> columns = toList(SpillableCellsSet.columns(onHeap));
+        
+        assertEquals(onHeap.size(), rows.stream().mapToInt(List::size).sum());
+        for (int i = 0; i < rows.size(); i++) {
+            List<CellData> row = rows.get(i);
+            assertTrue(row.stream().allMatch(cell -> cell.row() == row.get(0).row()));
+            for (int j = 1; j < row.size(); j++) {
+                assertTrue(row.get(j - 1).column() < row.get(j).column());
+            }
+            if (0 < i) {
+                assertTrue(rows.get(i - 1).get(0).row() < row.get(0).row());
+            }
+        }
+        assertEquals(onHeap.size(), columns.stream().mapToInt(List::size).sum());
+        for (int i = 0; i < columns.size(); i++) {
+            List<CellData> column = columns.get(i);
+            assertTrue(column.stream().allMatch(cell -> cell.column() == column.get(0).column()));
+            for (int j = 1; j < column.size(); j++) {
+                assertTrue(column.get(j - 1).row() < column.get(j).row());
+            }
+        }
+        
+        assertEquals(rows, toList(SpillableCellsSet.rows(spilled)));
+        assertEquals(columns, toList(SpillableCellsSet.columns(spilled)));
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> SpillableCellsSet.rows(null));
+        assertThrows(
+                NullPointerException.class,
+                () -> SpillableCellsSet.columns(null));
+    }
+    
+    @Test
+    void testCompare_退避の有無で結果が変わらないこと() {
+        Set<CellData> cellsA = randomCells(3, 60, 12);
+        Set<CellData> cellsB = randomCells(4, 55, 14);
+        
+        for (boolean considerRowGaps : new boolean[] { false, true }) {
+            for (boolean considerColumnGaps : new boolean[] { false, true }) {
+                for (boolean prioritizeSpeed : new boolean[] { false, true }) {
+                    ComparatorOfSheets comparator = ComparatorOfSheets.of(
+                            considerRowGaps, considerColumnGaps, prioritizeSpeed);
+                    
+                    ResultOfSheets expected = comparator.compare(
+                            Pair.of(cellsA, cellsB), MatchBudget.of(() -> false));
+                    ResultOfSheets actual = comparator.compare(
+                            Pair.of(spilled(workDir, cellsA), spilled(workDir, cellsB)),
+                            MatchBudget.of(() -> false));
+                    
+                    assertEquals(expected.redundantRows(), actual.redundantRows());
+                    assertEquals(expected.redundantColumns(), actual.redundantColumns());
+                    assertEquals(expected.diffCells(), actual.diffCells());
+                    assertEquals(expected.sheetStats(), actual.sheetStats());
+                }
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.jupiter.api.BeforeAll;
@@ -290,4 +291,75 @@ class CellsLoaderWithPoiEventApiTest {
                         new CellData(19, 1, "セル値のみ", null)),
                 testee.loadCells(test5_xls, null, "コメント"));
     }
+    
+    @Test
+    void testLoadCellsOfSheets_例外系() {
+        CellsLoader testee = new CellsLoaderWithPoiEventApi(true);
+        
+        // null パラメータ
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCellsOfSheets(null, null, List.of("A1_ワークシート")));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCellsOfSheets(test1_xls, null, null));
+        
+        // サポート対象外のブック形式
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> testee.loadCellsOfSheets(test1_xlsx, null, List.of("A1_ワークシート")));
+        
+        // 存在しないファイル
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee.loadCellsOfSheets(
+                        BookInfo.ofLoadCompleted(Path.of("X:\\dummy\\dummy.xls"), List.of()), null,
+                        List.of("A1_ワークシート")));
+        
+        // 暗号化ファイル
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee.loadCellsOfSheets(test2_xls, null, List.of("A1_ワークシート")));
+    }
+    
+    @Test
+    void testLoadCellsOfSheets_正常系1() throws ExcelHandlingException {
+        CellsLoader testee = new CellsLoaderWithPoiEventApi(true);
+        
+        Map<String, Set<CellData>> actual = testee.loadCellsOfSheets(
+                test1_xls, null, List.of("A1_ワークシート", "A2_グラフ", "A3_ダイアログ", "A4_マクロ", "X9_ダミー"));
+        
+        // 読み込めなかったシートは含まれない。
+        assertEquals(
+                Set.of("A1_ワークシート", "A3_ダイアログ"),
+                actual.keySet());
+        assertEquals(
+                testee.loadCells(test1_xls, null, "A1_ワークシート"),
+                actual.get("A1_ワークシート"));
+        assertEquals(
+                testee.loadCells(test1_xls, null, "A3_ダイアログ"),
+                actual.get("A3_ダイアログ"));
+        
+        assertEquals(
+                Map.of(),
+                testee.loadCellsOfSheets(test1_xls, null, List.of()));
+    }
+    
+    @Test
+    void testLoadCellsOfSheets_正常系2() throws ExcelHandlingException {
+        CellsLoader testee1 = new CellsLoaderWithPoiEventApi(true);
+        
+        assertEquals(
+                Map.of(
+                        "A_バリエーション", testee1.loadCells(test3_xls, null, "A_バリエーション"),
+                        "B_数式なし", testee1.loadCells(test3_xls, null, "B_数式なし")),
+                testee1.loadCellsOfSheets(test3_xls, null, List.of("B_数式なし", "A_バリエーション")));
+        
+        // 数式文字列の抽出に失敗したシートだけが除かれる。
+        CellsLoader testee2 = new CellsLoaderWithPoiEventApi(false);
+        
+        assertEquals(
+                Map.of("B_数式なし", testee1.loadCells(test3_xls, null, "B_数式なし")),
+                testee2.loadCellsOfSheets(test3_xls, null, List.of("A_バリエーション", "B_数式なし")));
+    }
 }
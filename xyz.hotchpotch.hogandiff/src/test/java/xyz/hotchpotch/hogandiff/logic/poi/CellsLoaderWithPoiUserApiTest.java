@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 
@@ -199,4 +200,35 @@ class CellsLoaderWithPoiUserApiTest {
                         new CellData(22, 1, "空コメント", "")),
                 testee1.loadCells(test4_xlsx, null, "コメント"));
     }
+    
+    @Test
+    void testLoadCellsOfSheets() throws ExcelHandlingException {
+        CellsLoader testee = new CellsLoaderWithPoiUserApi(converter);
+        
+        // 例外系
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCellsOfSheets(test1_xlsx, null, null));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> testee.loadCellsOfSheets(test1_xlsb, null, List.of("A1_ワークシート")));
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee.loadCellsOfSheets(test2_xlsx, null, List.of("A1_ワークシート")));
+        
+        // 正常系：読み込めなかったシートは含まれない。
+        assertEquals(
+                Map.of("A1_ワークシート", testee.loadCells(test1_xls, null, "A1_ワークシート")),
+                testee.loadCellsOfSheets(test1_xls, null, List.of("A1_ワークシート", "X9_ダミー")));
+        for (BookInfo bookInfo : List.of(test1_xlsx, test1_xlsm)) {
+            assertEquals(
+                    Map.of("A1_ワークシート", testee.loadCells(bookInfo, null, "A1_ワークシート")),
+                    testee.loadCellsOfSheets(bookInfo, null, List.of("A1_ワークシート", "A2_グラフ", "X9_ダミー")));
+        }
+        assertEquals(
+                Map.of("コメント", testee.loadCells(test4_xlsx, null, "コメント")),
+                testee.loadCellsOfSheets(test4_xlsx, null, List.of("コメント")));
+        
+        assertTrue(testee.prefersLoadingSheetsAtOnce());
+    }
 }
@@ -24,6 +24,8 @@ class CellsLoaderWithSaxTest {
     private static BookInfo test1_xlsx;
     private static BookInfo test3_xlsx;
     private static BookInfo test4_xlsx;
+    private static BookInfo sharedFormulas_xlsx;
+    private static BookInfo inlineStrings_xlsx;
     
     @BeforeAll
     static void beforeAll() throws URISyntaxException {
@@ -35,6 +37,10 @@ class CellsLoaderWithSaxTest {
                 Path.of(CellsLoaderWithSaxTest.class.getResource("Test3.xlsx").toURI()), List.of());
         test4_xlsx = BookInfo.ofLoadCompleted(
                 Path.of(CellsLoaderWithSaxTest.class.getResource("Test4a.xlsx").toURI()), List.of());
+        sharedFormulas_xlsx = BookInfo.ofLoadCompleted(
+                Path.of(CellsLoaderWithSaxTest.class.getResource("SharedFormulas.xlsx").toURI()), List.of());
+        inlineStrings_xlsx = BookInfo.ofLoadCompleted(
+                Path.of(CellsLoaderWithSaxTest.class.getResource("InlineStrings.xlsx").toURI()), List.of());
     }
     
     // [instance members] ******************************************************
@@ -353,4 +359,57 @@ class CellsLoaderWithSaxTest {
                         new CellData(19, 1, " \"セル値\" & \"のみ\"", null)),
                 testee.loadCells(test4_xlsx, null, "コメント"));
     }
+    
+    @Test
+    void testLoadCells_正常系5_共有数式と配列数式() throws ExcelHandlingException {
+        CellsLoader testee = new CellsLoaderWithSax(false);
+        
+        assertEquals(
+                Set.of(
+                        new CellData(0, 0, "1", null),
+                        new CellData(1, 0, "2", null),
+                        new CellData(2, 0, "3", null),
+                        new CellData(0, 1, "A1*2+$A$1+SUM(A:A)+SUM(1:1)+\"A1\"", null),
+                        new CellData(1, 1, "A2*2+$A$1+SUM(A:A)+SUM(2:2)+\"A1\"", null),
+                        new CellData(2, 1, "A3*2+$A$1+SUM(A:A)+SUM(3:3)+\"A1\"", null),
+                        new CellData(0, 2, "$A1+A$1+LEN(\"B2\")", null),
+                        new CellData(0, 3, "$A1+B$1+LEN(\"B2\")", null),
+                        new CellData(0, 4, "A1:A3*2", null),
+                        new CellData(1, 4, "A1:A3*2", null),
+                        new CellData(2, 4, "A1:A3*2", null)),
+                testee.loadCells(sharedFormulas_xlsx, null, "共有数式"));
+    }
+    
+    @Test
+    void testLoadCells_正常系5_共有数式_基点セルより前のセル() throws ExcelHandlingException {
+        CellsLoader testee = new CellsLoaderWithSax(false);
+        
+        // 基点セルより前に現れたセルは、キャッシュされた計算値と数式文字列を重複して抽出しない。
+        // 基点セルが最後まで現れない場合は、キャッシュされた計算値を抽出する。
+        assertEquals(
+                Set.of(
+                        new CellData(0, 0, "1", null),
+                        new CellData(1, 0, "2", null),
+                        new CellData(0, 1, "A1*2", null),
+                        new CellData(1, 1, "A2*2", null),
+                        new CellData(0, 2, "7", null)),
+                testee.loadCells(sharedFormulas_xlsx, null, "基点が後方の共有数式"));
+    }
+    
+    @Test
+    void testLoadCells_正常系6_インライン文字列と属性の省略() throws ExcelHandlingException {
+        CellsLoader testee = new CellsLoaderWithSax(true);
+        
+        // 書式設定された要素間の空白やフリガナ（rPh 要素）は値に含めない。
+        // r 属性が省略された行・セルは、直前の行・セルの次の位置とみなす。
+        assertEquals(
+                Set.of(
+                        new CellData(0, 0, "abc", null),
+                        new CellData(0, 1, "true", null),
+                        new CellData(0, 2, "42", null),
+                        new CellData(1, 0, "xyz", null),
+                        new CellData(1, 3, "3.5", null),
+                        new CellData(1, 4, "7", null)),
+                testee.loadCells(inlineStrings_xlsx, null, "インライン文字列"));
+    }
 }
@@ -0,0 +1,140 @@
+package xyz.hotchpotch.hogandiff.logic.sax;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.PasswordHandlingException;
+
+class DecryptedBookCacheTest {
+    
+    // [static members] ********************************************************
+    
+    private static Path test1_xls;
+    private static Path test2_xlsx;
+    
+    @BeforeAll
+    static void beforeAll() throws URISyntaxException {
+        test1_xls = Path.of(DecryptedBookCacheTest.class.getResource("Test1.xls").toURI());
+        test2_xlsx = Path.of(DecryptedBookCacheTest.class.getResource("Test2_passwordAAA.xlsx").toURI());
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testOpenAndClose() {
+        assertEquals(Optional.empty(), DecryptedBookCache.current());
+        
+        try (DecryptedBookCache cache1 = DecryptedBookCache.open()) {
+            assertEquals(Optional.of(cache1), DecryptedBookCache.current());
+            
+            try (DecryptedBookCache cache2 = DecryptedBookCache.open()) {
+                assertEquals(Optional.of(cache2), DecryptedBookCache.current());
+            }
+            assertEquals(Optional.of(cache1), DecryptedBookCache.current());
+        }
+        assertEquals(Optional.empty(), DecryptedBookCache.current());
+    }
+    
+    @Test
+    void testDecryptedPath_例外系() {
+        try (DecryptedBookCache cache = DecryptedBookCache.open()) {
+            assertThrows(
+                    NullPointerException.class,
+                    () -> cache.decryptedPath(null, "AAA"));
+            assertThrows(
+                    NullPointerException.class,
+                    () -> cache.decryptedPath(test2_xlsx, null));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> cache.decryptedPath(test1_xls, "AAA"));
+            assertThrows(
+                    PasswordHandlingException.class,
+                    () -> cache.decryptedPath(test2_xlsx, "BBB"));
+        }
+        
+        DecryptedBookCache closed = DecryptedBookCache.open();
+        closed.close();
+        assertThrows(
+                IllegalStateException.class,
+                () -> closed.decryptedPath(test2_xlsx, "AAA"));
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> DecryptedBookCache.open(null));
+    }
+    
+    @Test
+    void testDecryptedPath_正常系() throws ExcelHandlingException {
+        Path decrypted;
+        
+        try (DecryptedBookCache cache = DecryptedBookCache.open()) {
+            decrypted = cache.decryptedPath(test2_xlsx, "AAA");
+            
+            assertTrue(Files.isRegularFile(decrypted));
+            assertSame(decrypted, cache.decryptedPath(test2_xlsx, "AAA"));
+            
+            // 内側のキャッシュは外側のキャッシュを共有する。
+            try (DecryptedBookCache inner = DecryptedBookCache.open()) {
+                assertSame(decrypted, inner.decryptedPath(test2_xlsx, "AAA"));
+            }
+            assertTrue(Files.isRegularFile(decrypted));
+            
+            // 復号済みの一時ファイルは暗号化されていない.xlsxファイルとして読み込める。
+            assertEquals(
+                    SaxUtil.loadSheetInfos(decrypted, null),
+                    SaxUtil.loadSheetInfos(test2_xlsx, "AAA"));
+        }
+        
+        assertFalse(Files.exists(decrypted));
+    }
+    
+    @Test
+    void testDecryptedPath_正常系2_作成先フォルダ(@TempDir Path tempDir) throws Exception {
+        Path workDir = tempDir.resolve("work");
+        Path decrypted;
+        
+        try (DecryptedBookCache cache = DecryptedBookCache.open(workDir)) {
+            decrypted = cache.decryptedPath(test2_xlsx, "AAA");
+            
+            assertEquals(workDir, decrypted.getParent());
+            if (workDir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                assertEquals(
+                        PosixFilePermissions.fromString("rw-------"),
+                        Files.getPosixFilePermissions(decrypted));
+            }
+            
+            // 内側のキャッシュは、外側のキャッシュのフォルダを利用する。
+            try (DecryptedBookCache inner = DecryptedBookCache.open(tempDir.resolve("other"))) {
+                assertSame(decrypted, inner.decryptedPath(test2_xlsx, "AAA"));
+            }
+        }
+        
+        assertFalse(Files.exists(decrypted));
+    }
+    
+    @Test
+    void testRegister(@TempDir Path tempDir) {
+        AtomicInteger closed = new AtomicInteger();
+        
+        try (DecryptedBookCache cache = DecryptedBookCache.open(tempDir)) {
+            // 内側のキャッシュに登録したリソースは、外側のキャッシュを閉じる際に閉じる。
+            try (DecryptedBookCache inner = DecryptedBookCache.open(tempDir.resolve("other"))) {
+                assertEquals(tempDir, inner.tempDir());
+                inner.register(closed::incrementAndGet);
+            }
+            assertEquals(0, closed.get());
+        }
+        assertEquals(1, closed.get());
+    }
+}
@@ -0,0 +1,67 @@
+package xyz.hotchpotch.hogandiff.logic.sax;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class FormulaShifterTest {
+    
+    // [static members] ********************************************************
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testShift_セル参照() {
+        assertEquals("B2", FormulaShifter.shift("A1", 1, 1));
+        assertEquals("$A2", FormulaShifter.shift("$A1", 1, 1));
+        assertEquals("B$1", FormulaShifter.shift("A$1", 1, 1));
+        assertEquals("$A$1", FormulaShifter.shift("$A$1", 1, 1));
+        assertEquals("SUM(B2:C3)*AA10", FormulaShifter.shift("SUM(A1:B2)*Z9", 1, 1));
+        assertEquals("A1", FormulaShifter.shift("A1", 0, 0));
+    }
+    
+    @Test
+    void testShift_列参照と行参照() {
+        assertEquals("SUM(B:C)", FormulaShifter.shift("SUM(A:B)", 1, 1));
+        assertEquals("SUM($A:C)", FormulaShifter.shift("SUM($A:B)", 1, 1));
+        assertEquals("SUM(2:3)", FormulaShifter.shift("SUM(1:2)", 1, 1));
+        assertEquals("SUM($1:3)", FormulaShifter.shift("SUM($1:2)", 1, 1));
+        
+        // 範囲の端点でない数値はそのまま
+        assertEquals("B2+1", FormulaShifter.shift("A1+1", 1, 1));
+    }
+    
+    @Test
+    void testShift_書き換え対象外() {
+        // 文字列リテラル
+        assertEquals("B2&\"A1\"&\"x\"\"A1\"", FormulaShifter.shift("A1&\"A1\"&\"x\"\"A1\"", 1, 1));
+        
+        // シート名
+        assertEquals("Sheet2!B2", FormulaShifter.shift("Sheet2!A1", 1, 1));
+        assertEquals("'My A1''s'!B2", FormulaShifter.shift("'My A1''s'!A1", 1, 1));
+        
+        // 関数名
+        assertEquals("LOG10(B2)", FormulaShifter.shift("LOG10(A1)", 1, 1));
+        assertEquals("ATAN2 (B2,1)", FormulaShifter.shift("ATAN2 (A1,1)", 1, 1));
+        assertEquals("LOG10 (B2)+LOG10(B2)", FormulaShifter.shift("LOG10 (A1)+LOG10(A1)", 1, 1));
+        assertEquals("LOG10\t (B2)", FormulaShifter.shift("LOG10\t (A1)", 1, 1));
+        
+        // セル参照に似た名前
+        assertEquals("ZZZZ1+B2", FormulaShifter.shift("ZZZZ1+A1", 1, 1));
+        assertEquals("XFE1+B2", FormulaShifter.shift("XFE1+A1", 1, 1));
+        
+        // 構造化参照とエラー値
+        assertEquals("SUM(Table1[A1])+#N/A", FormulaShifter.shift("SUM(Table1[A1])+#N/A", 1, 1));
+        assertEquals("SUM(Table1[[#This Row],[B2]])", FormulaShifter.shift("SUM(Table1[[#This Row],[B2]])", 1, 1));
+    }
+    
+    @Test
+    void testShift_範囲外() {
+        assertEquals("#REF!", FormulaShifter.shift("A1", -1, 0));
+        assertEquals("#REF!", FormulaShifter.shift("A1", 0, -1));
+        assertEquals("#REF!+$A$1", FormulaShifter.shift("XFD1+$A$1", 0, 1));
+        assertEquals("#REF!", FormulaShifter.shift("A1048576", 1, 0));
+        assertEquals("SUM(#REF!:A)", FormulaShifter.shift("SUM(B:C)", 0, -2));
+        assertEquals("A1", FormulaShifter.shift("B2", -1, -1));
+    }
+}
@@ -0,0 +1,136 @@
+package xyz.hotchpotch.hogandiff.logic.sax;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LazySharedStringsTest {
+    
+    // [static members] ********************************************************
+    
+    private static final String HEADER = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <sst xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" count="9" uniqueCount="9">""";
+    
+    private static InputStream stream(String xml, Charset charset) {
+        return new ByteArrayInputStream(xml.getBytes(charset));
+    }
+    
+    private static long countFiles(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testOf_復号規則() throws Exception {
+        String xml = HEADER
+                + "<si><t>abc</t></si>"
+                + "<si><r><rPr><b/></rPr><t>あい</t></r><r><t xml:space=\"preserve\"> う </t></r>"
+                + "<rPh sb=\"0\" eb=\"1\"><t>フリガナ</t></rPh><phoneticPr fontId=\"1\"/></si>"
+                + "<si><t>&lt;a&amp;b&gt; &quot;&apos; &#x41;&#66;&#x1F600;</t></si>"
+                + "<si><t/></si>"
+                + "<si/>"
+                + "<si>\r\n<!-- <si><t>comment</t></si> --><t><![CDATA[<si>x</si>]]>\r\ny&#13;</t></si>"
+                + "<si><t attr=\"a>b\">z</t></si>"
+                + "</sst>";
+        
+        List<String> actual = LazySharedStrings.of(stream(xml, StandardCharsets.UTF_8), _ -> fail());
+        
+        assertEquals(
+                List.of(
+                        "abc",
+                        "あい う ",
+                        "<a&b> \"' AB😀",
+                        "",
+                        "",
+                        "<si>x</si>\ny\r",
+                        "z"),
+                actual);
+        
+        assertThrows(
+                IndexOutOfBoundsException.class,
+                () -> actual.get(7));
+    }
+    
+    @Test
+    void testOf_名前空間接頭辞() throws Exception {
+        String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <x:sst xmlns:x="http://schemas.openxmlformats.org/spreadsheetml/2006/main">
+                  <x:si><x:t>one</x:t></x:si>
+                  <x:si>
+                    <x:r><x:t>t</x:t></x:r><x:r><x:t>wo</x:t></x:r>
+                  </x:si>
+                  <x:sst-like/>
+                </x:sst>""";
+        
+        assertEquals(
+                List.of("one", "two"),
+                LazySharedStrings.of(stream(xml, StandardCharsets.UTF_8), _ -> fail()));
+    }
+    
+    @Test
+    void testOf_空() throws Exception {
+        assertEquals(
+                List.of(),
+                LazySharedStrings.of(stream("", StandardCharsets.UTF_8), _ -> fail()));
+        assertEquals(
+                List.of(),
+                LazySharedStrings.of(stream(HEADER + "</sst>", StandardCharsets.UTF_8), _ -> fail()));
+    }
+    
+    @Test
+    void testOf_UTF8以外() throws Exception {
+        String xml = HEADER.replace("UTF-8", "UTF-16") + "<si><t>abc</t></si></sst>";
+        List<String> fallback = List.of("fallback");
+        
+        assertSame(
+                fallback,
+                LazySharedStrings.of(stream(xml, StandardCharsets.UTF_16), is -> {
+                    assertEquals(xml, new String(is.readAllBytes(), StandardCharsets.UTF_16));
+                    return fallback;
+                }));
+    }
+    
+    @Test
+    void testOf_一時ファイルへの退避(@TempDir Path tempDir) throws Exception {
+        int n = 300_000;
+        StringBuilder xml = new StringBuilder(HEADER);
+        for (int i = 0; i < n; i++) {
+            xml.append("<si><t>文字列").append(i).append("</t></si>");
+        }
+        xml.append("</sst>");
+        
+        LazySharedStrings actual = (LazySharedStrings) LazySharedStrings.of(
+                stream(xml.toString(), StandardCharsets.UTF_8), _ -> fail(), tempDir);
+        assertEquals(1, countFiles(tempDir));
+        
+        assertEquals(n, actual.size());
+        assertEquals("文字列0", actual.get(0));
+        assertEquals("文字列123456", actual.get(123456));
+        assertEquals("文字列" + (n - 1), actual.get(n - 1));
+        
+        // 利用中の処理がある間は一時ファイルを削除しない
+        assertTrue(actual.acquire());
+        actual.close();
+        assertFalse(actual.acquire());
+        assertEquals(1, countFiles(tempDir));
+        assertEquals("文字列654", actual.get(654));
+        
+        actual.release();
+        assertEquals(0, countFiles(tempDir));
+    }
+}
@@ -0,0 +1,84 @@
+package xyz.hotchpotch.hogandiff.logic.stax;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import xyz.hotchpotch.hogandiff.logic.BookInfo;
+import xyz.hotchpotch.hogandiff.logic.CellsLoader;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.SheetType;
+import xyz.hotchpotch.hogandiff.logic.sax.CellsLoaderWithSax;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil;
+import xyz.hotchpotch.hogandiff.logic.sax.SaxUtil.SheetInfo;
+
+class CellsLoaderWithStaxTest {
+    
+    // [static members] ********************************************************
+    
+    private static final String RESOURCE_DIR = "/xyz/hotchpotch/hogandiff/logic/sax/";
+    
+    private static List<BookInfo> books;
+    
+    private static BookInfo bookInfo(String name) throws URISyntaxException {
+        return BookInfo.ofLoadCompleted(
+                Path.of(CellsLoaderWithStaxTest.class.getResource(RESOURCE_DIR + name).toURI()), List.of());
+    }
+    
+    @BeforeAll
+    static void beforeAll() throws URISyntaxException {
+        books = List.of(
+                bookInfo("Test1.xlsm"),
+                bookInfo("Test1.xlsx"),
+                bookInfo("Test3.xlsx"),
+                bookInfo("Test4a.xlsx"),
+                bookInfo("SharedFormulas.xlsx"),
+                bookInfo("InlineStrings.xlsx"));
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testLoadCells_例外系() throws ExcelHandlingException {
+        CellsLoader testee = new CellsLoaderWithStax(true);
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCells(null, null, "A1_ワークシート"));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCells(books.get(0), null, null));
+        
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee.loadCells(books.get(0), null, "X9_存在しないシート"));
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee.loadCells(books.get(0), null, "A2_グラフ"));
+    }
+    
+    @Test
+    void testLoadCells_正常系_SAXとの比較() throws ExcelHandlingException {
+        for (boolean extractCachedValue : new boolean[] { true, false }) {
+            for (BookInfo bookInfo : books) {
+                CellsLoader expected = new CellsLoaderWithSax(extractCachedValue);
+                CellsLoader testee = new CellsLoaderWithStax(extractCachedValue);
+                
+                for (SheetInfo info : SaxUtil.loadSheetInfos(bookInfo.bookPath(), null)) {
+                    if (info.type() != SheetType.WORKSHEET) {
+                        continue;
+                    }
+                    assertEquals(
+                            expected.loadCells(bookInfo, null, info.sheetName()),
+                            testee.loadCells(bookInfo, null, info.sheetName()),
+                            "%s - %s".formatted(bookInfo.bookPath().getFileName(), info.sheetName()));
+                }
+            }
+        }
+    }
+}
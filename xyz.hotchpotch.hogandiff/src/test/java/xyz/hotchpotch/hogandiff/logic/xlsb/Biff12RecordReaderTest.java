@@ -0,0 +1,92 @@
+package xyz.hotchpotch.hogandiff.logic.xlsb;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class Biff12RecordReaderTest {
+    
+    // [static members] ********************************************************
+    
+    private static byte[] wideString(String str) {
+        byte[] chars = str.getBytes(StandardCharsets.UTF_16LE);
+        byte[] data = new byte[4 + chars.length];
+        XlsbUtil.putInt(data, 0, str.length());
+        System.arraycopy(chars, 0, data, 4, chars.length);
+        return data;
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testConstructor() {
+        assertThrows(
+                NullPointerException.class,
+                () -> new Biff12RecordReader(null));
+        assertThrows(
+                NullPointerException.class,
+                () -> new Biff12RecordWriter(null));
+    }
+    
+    @Test
+    void testRoundTrip() throws IOException {
+        byte[] large = new byte[300];
+        Arrays.fill(large, (byte) 7);
+        byte[] cell = new byte[16];
+        XlsbUtil.putInt(cell, 0, 3);
+        XlsbUtil.putInt(cell, 4, 0x01000002);
+        long bits = Double.doubleToLongBits(1.25);
+        XlsbUtil.putInt(cell, 8, (int) bits);
+        XlsbUtil.putInt(cell, 12, (int) (bits >>> 32));
+        
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Biff12RecordWriter writer = new Biff12RecordWriter(os);
+        writer.write(XlsbUtil.BRT.BEGIN_SHEET_DATA, new byte[0]);
+        writer.write(XlsbUtil.BRT.CELL_REAL, cell);
+        writer.write(XlsbUtil.BRT.CELL_ST, wideString("あいう"));
+        writer.write(XlsbUtil.BRT.BEGIN_COMMENT, large);
+        writer.flush();
+        
+        Biff12RecordReader reader = new Biff12RecordReader(new ByteArrayInputStream(os.toByteArray()));
+        
+        // 2バイトのレコード種別
+        assertTrue(reader.next());
+        assertEquals(XlsbUtil.BRT.BEGIN_SHEET_DATA, reader.type());
+        assertEquals(0, reader.size());
+        
+        assertTrue(reader.next());
+        assertEquals(XlsbUtil.BRT.CELL_REAL, reader.type());
+        assertEquals(3, reader.readInt32());
+        assertEquals(0x02, reader.readUInt8());
+        reader.skip(3);
+        assertEquals(1.25, reader.readDouble());
+        assertThrows(EOFException.class, () -> reader.readUInt8());
+        
+        assertTrue(reader.next());
+        assertEquals("あいう", reader.readWideString());
+        
+        // 2バイトのレコード長
+        assertTrue(reader.next());
+        assertEquals(XlsbUtil.BRT.BEGIN_COMMENT, reader.type());
+        assertEquals(300, reader.size());
+        assertArrayEquals(large, Arrays.copyOf(reader.data(), reader.size()));
+        
+        assertFalse(reader.next());
+        assertEquals(-1, reader.type());
+    }
+    
+    @Test
+    void testNext_途切れたレコード() throws IOException {
+        Biff12RecordReader reader = new Biff12RecordReader(
+                new ByteArrayInputStream(new byte[] { 0x05, 0x10, 0x00, 0x00 }));
+        
+        assertThrows(EOFException.class, () -> reader.next());
+    }
+}
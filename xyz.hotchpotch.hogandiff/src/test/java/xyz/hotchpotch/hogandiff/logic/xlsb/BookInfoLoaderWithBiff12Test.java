@@ -0,0 +1,114 @@
+package xyz.hotchpotch.hogandiff.logic.xlsb;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import xyz.hotchpotch.hogandiff.logic.BookInfo;
+import xyz.hotchpotch.hogandiff.logic.BookInfoLoader;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.SheetType;
+
+class BookInfoLoaderWithBiff12Test {
+    
+    // [static members] ********************************************************
+    
+    private static Path test1_xlsb;
+    private static Path test1_xlsx;
+    
+    @BeforeAll
+    static void beforeAll() throws URISyntaxException {
+        test1_xlsb = Path.of(BookInfoLoaderWithBiff12Test.class.getResource("Test1.xlsb").toURI());
+        test1_xlsx = Path.of(BookInfoLoaderWithBiff12Test.class.getResource("Test1.xlsx").toURI());
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testOf() {
+        // 異常系
+        assertThrows(
+                NullPointerException.class,
+                () -> BookInfoLoaderWithBiff12.of(null));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> BookInfoLoaderWithBiff12.of(Set.of()));
+        
+        // 正常系
+        assertTrue(
+                BookInfoLoaderWithBiff12.of(
+                        EnumSet.allOf(SheetType.class)) instanceof BookInfoLoaderWithBiff12);
+    }
+    
+    @Test
+    void testLoadSheetNames_例外系_非チェック例外() {
+        BookInfoLoader testee = BookInfoLoaderWithBiff12.of(Set.of(SheetType.WORKSHEET));
+        
+        // null パラメータ
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadBookInfo(null, null));
+        
+        // サポート対象外のブック形式
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> testee.loadBookInfo(test1_xlsx, null));
+    }
+    
+    @Test
+    void testLoadSheetNames_例外系_チェック例外() {
+        BookInfoLoader testee = BookInfoLoaderWithBiff12.of(Set.of(SheetType.WORKSHEET));
+        
+        // 存在しないファイル
+        assertEquals(
+                BookInfo.ofLoadFailed(Path.of("X:\\dummy\\dummy.xlsb")),
+                testee.loadBookInfo(Path.of("X:\\dummy\\dummy.xlsb"), null));
+    }
+    
+    @Test
+    void testLoadSheetNames_全てのシート種別が対象の場合() throws ExcelHandlingException {
+        BookInfoLoader testee = BookInfoLoaderWithBiff12.of(EnumSet.allOf(SheetType.class));
+        
+        assertEquals(
+                BookInfo.ofLoadCompleted(
+                        test1_xlsb,
+                        List.of("A1_ワークシート", "A2_グラフ", "A3_ダイアログ", "A4_マクロ",
+                                "B1_ワークシート", "B2_グラフ", "B3_ダイアログ", "B4_マクロ")),
+                testee.loadBookInfo(test1_xlsb, null));
+    }
+    
+    @Test
+    void testLoadSheetNames_シート種別ごとの場合() throws ExcelHandlingException {
+        assertEquals(
+                BookInfo.ofLoadCompleted(
+                        test1_xlsb,
+                        List.of("A1_ワークシート", "B1_ワークシート")),
+                BookInfoLoaderWithBiff12.of(EnumSet.of(SheetType.WORKSHEET))
+                        .loadBookInfo(test1_xlsb, null));
+        assertEquals(
+                BookInfo.ofLoadCompleted(
+                        test1_xlsb,
+                        List.of("A2_グラフ", "B2_グラフ")),
+                BookInfoLoaderWithBiff12.of(EnumSet.of(SheetType.CHART_SHEET))
+                        .loadBookInfo(test1_xlsb, null));
+        assertEquals(
+                BookInfo.ofLoadCompleted(
+                        test1_xlsb,
+                        List.of("A3_ダイアログ", "B3_ダイアログ")),
+                BookInfoLoaderWithBiff12.of(EnumSet.of(SheetType.DIALOG_SHEET))
+                        .loadBookInfo(test1_xlsb, null));
+        assertEquals(
+                BookInfo.ofLoadCompleted(
+                        test1_xlsb,
+                        List.of("A4_マクロ", "B4_マクロ")),
+                BookInfoLoaderWithBiff12.of(EnumSet.of(SheetType.MACRO_SHEET))
+                        .loadBookInfo(test1_xlsb, null));
+    }
+}
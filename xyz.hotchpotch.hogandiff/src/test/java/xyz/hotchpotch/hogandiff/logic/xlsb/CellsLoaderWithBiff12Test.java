@@ -0,0 +1,169 @@
+package xyz.hotchpotch.hogandiff.logic.xlsb;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import xyz.hotchpotch.hogandiff.logic.BookInfo;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.CellsLoader;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+
+class CellsLoaderWithBiff12Test {
+    
+    // [static members] ********************************************************
+    
+    private static BookInfo test1_xlsb;
+    private static BookInfo test1_xlsx;
+    private static BookInfo cellVariations_xlsb;
+    
+    @BeforeAll
+    static void beforeAll() throws URISyntaxException {
+        test1_xlsb = BookInfo.ofLoadCompleted(
+                Path.of(CellsLoaderWithBiff12Test.class.getResource("Test1.xlsb").toURI()), List.of());
+        test1_xlsx = BookInfo.ofLoadCompleted(
+                Path.of(CellsLoaderWithBiff12Test.class.getResource("Test1.xlsx").toURI()), List.of());
+        cellVariations_xlsb = BookInfo.ofLoadCompleted(
+                Path.of(CellsLoaderWithBiff12Test.class.getResource("CellVariations.xlsb").toURI()), List.of());
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testOf() {
+        // ■非チェック例外
+        assertThrows(
+                NullPointerException.class,
+                () -> new CellsLoaderWithBiff12(null));
+        
+        // ■正常系
+        assertTrue(
+                new CellsLoaderWithBiff12() instanceof CellsLoaderWithBiff12);
+    }
+    
+    @Test
+    void testLoadCells_例外系_非チェック例外() {
+        CellsLoader testee = new CellsLoaderWithBiff12();
+        
+        // 対照
+        assertDoesNotThrow(
+                () -> testee.loadCells(test1_xlsb, null, "A1_ワークシート"));
+        
+        // null パラメータ
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCells(null, null, "A1_ワークシート"));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.loadCells(test1_xlsb, null, null));
+        
+        // サポート対象外のブック形式
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> testee.loadCells(test1_xlsx, null, "A1_ワークシート"));
+    }
+    
+    @Test
+    void testLoadCells_例外系_チェック例外() {
+        CellsLoader testee = new CellsLoaderWithBiff12();
+        
+        // 存在しないシート
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee.loadCells(test1_xlsb, null, "X9_ダミー"));
+        
+        // サポート対象外のシート形式
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee.loadCells(test1_xlsb, null, "A2_グラフ"));
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee.loadCells(test1_xlsb, null, "A3_ダイアログ"));
+        assertThrows(
+                ExcelHandlingException.class,
+                () -> testee.loadCells(test1_xlsb, null, "A4_マクロ"));
+    }
+    
+    @Test
+    void testLoadCells_正常系3_数式で比較する設定() throws ExcelHandlingException {
+        // .xlsb 形式からは数式文字列を抽出できないため、数式で比較する設定でも計算値を抽出する。
+        assertEquals(
+                CellsLoader.of(cellVariations_xlsb, true).loadCells(cellVariations_xlsb, null, "バリエーション"),
+                CellsLoader.of(cellVariations_xlsb, false).loadCells(cellVariations_xlsb, null, "バリエーション"));
+    }
+    
+    @Test
+    void testLoadCells_正常系1() throws ExcelHandlingException {
+        CellsLoader testee = new CellsLoaderWithBiff12();
+        
+        assertEquals(
+                Set.of(
+                        new CellData(0, 0, "これはワークシートです。", null),
+                        new CellData(2, 1, "X", null),
+                        new CellData(3, 1, "Y", null),
+                        new CellData(4, 1, "Z", null),
+                        new CellData(2, 2, "90", null),
+                        new CellData(3, 2, "20", null),
+                        new CellData(4, 2, "60", null)),
+                testee.loadCells(test1_xlsb, null, "A1_ワークシート"));
+    }
+    
+    @Test
+    void testLoadCells_正常系2_バリエーション() throws ExcelHandlingException {
+        CellsLoader testee = new CellsLoaderWithBiff12();
+        
+        assertEquals(
+                Set.of(
+                        // 通常形式のセルレコード
+                        new CellData(0, 0, "共有文字列", null),
+                        new CellData(0, 1, "インライン文字列", null),
+                        new CellData(0, 2, "123", null),
+                        new CellData(0, 3, "1.23", null),
+                        new CellData(0, 4, "0.5", null),
+                        new CellData(0, 5, "3.141592", null),
+                        new CellData(0, 6, "true", null),
+                        new CellData(0, 7, "#DIV/0!", null),
+                        new CellData(0, 9, "リッチ", null),
+                        // 数式セルのキャッシュされた計算値
+                        new CellData(1, 0, "42", null),
+                        new CellData(1, 1, "計算結果", null),
+                        new CellData(1, 2, "false", null),
+                        new CellData(1, 3, "#N/A", null),
+                        // 省略形式のセルレコード
+                        new CellData(3, 0, "ショート前", null),
+                        new CellData(3, 1, "ショート共有", null),
+                        new CellData(3, 2, "7", null),
+                        new CellData(3, 3, "2.5", null),
+                        new CellData(3, 4, "ショート", null),
+                        new CellData(3, 5, "false", null),
+                        new CellData(3, 6, "#REF!", null),
+                        // セルコメント
+                        new CellData(5, 1, "コメントあり", "作成者:\nコメント"),
+                        new CellData(7, 2, "", "空セルのコメント")),
+                testee.loadCells(cellVariations_xlsb, null, "バリエーション"));
+        
+        assertEquals(
+                Set.of(),
+                testee.loadCells(cellVariations_xlsb, null, "空のシート"));
+    }
+    
+    @Test
+    void testLoadCells_セットファクトリ() throws ExcelHandlingException {
+        Supplier<Set<CellData>> factory = () -> new TreeSet<>((c1, c2) -> c1.row() != c2.row()
+                ? Integer.compare(c1.row(), c2.row())
+                : Integer.compare(c1.column(), c2.column()));
+        
+        assertTrue(new CellsLoaderWithBiff12(factory)
+                .loadCells(test1_xlsb, null, "A1_ワークシート") instanceof TreeSet);
+        assertTrue(new CellsLoaderWithBiff12(factory)
+                .loadCells(cellVariations_xlsb, null, "バリエーション") instanceof TreeSet);
+    }
+}
@@ -0,0 +1,221 @@
+package xyz.hotchpotch.hogandiff.logic.xlsb;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.hotchpotch.hogandiff.logic.BookInfo;
+import xyz.hotchpotch.hogandiff.logic.CellData;
+import xyz.hotchpotch.hogandiff.logic.ExcelHandlingException;
+import xyz.hotchpotch.hogandiff.logic.Painter;
+import xyz.hotchpotch.hogandiff.logic.ResultOfSheets.Piece;
+import xyz.hotchpotch.hogandiff.logic.xlsb.XlsbUtil.BRT;
+import xyz.hotchpotch.hogandiff.util.IntPair;
+
+class PainterWithBiff12Test {
+    
+    // [static members] ********************************************************
+    
+    private static Path test1_xlsb;
+    private static Path test1_xlsx;
+    private static Path cellVariations_xlsb;
+    
+    private static final short redundantColor = 10;
+    private static final short diffColor = 13;
+    
+    @BeforeAll
+    static void beforeAll() throws URISyntaxException {
+        test1_xlsb = Path.of(PainterWithBiff12Test.class.getResource("Test1.xlsb").toURI());
+        test1_xlsx = Path.of(PainterWithBiff12Test.class.getResource("Test1.xlsx").toURI());
+        cellVariations_xlsb = Path.of(PainterWithBiff12Test.class.getResource("CellVariations.xlsb").toURI());
+    }
+    
+    private static Painter testee() {
+        return new PainterWithBiff12(
+                redundantColor,
+                diffColor,
+                "#ff8080",
+                "#ffff80",
+                Color.RED,
+                Color.YELLOW,
+                Color.CYAN);
+    }
+    
+    /**
+     * ワークシートのエントリを読み取り、行ごとのスタイルとセルごとのスタイルを返します。<br>
+     * 行のスタイルは、行のスタイルが適用される（fGhostDirty）場合のみ格納します。<br>
+     */
+    private static Map<IntPair, Integer> loadStyles(Path bookPath, String entry) throws IOException {
+        Map<IntPair, Integer> styles = new HashMap<>();
+        try (FileSystem fs = FileSystems.newFileSystem(bookPath);
+                InputStream is = Files.newInputStream(fs.getPath(entry))) {
+            
+            Biff12RecordReader reader = new Biff12RecordReader(is);
+            int row = -1;
+            int column = -1;
+            while (reader.next()) {
+                if (reader.type() == BRT.ROW_HDR) {
+                    row = XlsbUtil.getInt(reader.data(), 0);
+                    column = -1;
+                    if ((reader.data()[11] & 0x40) != 0) {
+                        styles.put(IntPair.of(row, -1), XlsbUtil.getInt(reader.data(), 4));
+                    }
+                } else if (XlsbUtil.isFullCell(reader.type())) {
+                    column = XlsbUtil.getInt(reader.data(), 0);
+                    styles.put(IntPair.of(row, column), XlsbUtil.getInt(reader.data(), 4) & 0xFFFFFF);
+                } else if (0 <= XlsbUtil.fullCellTypeOf(reader.type())) {
+                    column++;
+                    styles.put(IntPair.of(row, column), XlsbUtil.getInt(reader.data(), 0) & 0xFFFFFF);
+                }
+            }
+        }
+        return styles;
+    }
+    
+    private static byte[] loadTabColor(Path bookPath, String entry) throws IOException {
+        try (FileSystem fs = FileSystems.newFileSystem(bookPath);
+                InputStream is = Files.newInputStream(fs.getPath(entry))) {
+            
+            Biff12RecordReader reader = new Biff12RecordReader(is);
+            while (reader.next()) {
+                if (reader.type() == BRT.WS_PROP) {
+                    byte[] color = new byte[8];
+                    System.arraycopy(reader.data(), 3, color, 0, 8);
+                    return color;
+                }
+            }
+        }
+        throw new AssertionError();
+    }
+    
+    // [instance members] ******************************************************
+    
+    @Test
+    void testPaintAndSave_例外系_非チェック例外(@TempDir Path tempDir) {
+        Painter testee = testee();
+        Path dst = tempDir.resolve("dst.xlsb");
+        
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.paintAndSave(null, dst, null, Map.of()));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.paintAndSave(test1_xlsb, null, null, Map.of()));
+        assertThrows(
+                NullPointerException.class,
+                () -> testee.paintAndSave(test1_xlsb, dst, null, null));
+        
+        // サポート対象外のブック形式
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> testee.paintAndSave(test1_xlsx, tempDir.resolve("dst.xlsx"), null, Map.of()));
+        
+        // 同一パス、異なる形式
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> testee.paintAndSave(test1_xlsb, test1_xlsb, null, Map.of()));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> testee.paintAndSave(test1_xlsb, tempDir.resolve("dst.xlsx"), null, Map.of()));
+    }
+    
+    @Test
+    void testPaintAndSave_正常系(@TempDir Path tempDir) throws Exception {
+        Path dst = tempDir.resolve("dst.xlsb");
+        Piece piece = new Piece(
+                List.of(10, 11),
+                List.of(12),
+                List.of(
+                        new CellData(0, 0, "共有文字列", null),
+                        new CellData(3, 2, "7", null),
+                        new CellData(3, 8, "", null),
+                        new CellData(20, 3, "", null)),
+                List.of(new CellData(5, 1, "コメントあり", "作成者:\nコメント")),
+                List.of());
+        
+        testee().paintAndSave(
+                cellVariations_xlsb,
+                dst,
+                null,
+                Map.of("バリエーション", Optional.of(piece)));
+        
+        // セルの値は変わらないこと
+        BookInfo srcInfo = BookInfo.ofLoadCompleted(cellVariations_xlsb, List.of());
+        BookInfo dstInfo = BookInfo.ofLoadCompleted(dst, List.of());
+        assertEquals(
+                new CellsLoaderWithBiff12().loadCells(srcInfo, null, "バリエーション"),
+                new CellsLoaderWithBiff12().loadCells(dstInfo, null, "バリエーション"));
+        
+        Map<IntPair, Integer> before = loadStyles(cellVariations_xlsb, "xl/worksheets/sheet1.bin");
+        Map<IntPair, Integer> after = loadStyles(dst, "xl/worksheets/sheet1.bin");
+        
+        // 差分セルには差分用のスタイルが適用されること
+        int diffStyle = after.get(IntPair.of(0, 0));
+        assertNotEquals(before.get(IntPair.of(0, 0)), diffStyle);
+        assertNotEquals(before.get(IntPair.of(3, 2)), after.get(IntPair.of(3, 2)));
+        
+        // 差分セルが存在しない場合は補完されること
+        assertFalse(before.containsKey(IntPair.of(3, 8)));
+        assertFalse(before.containsKey(IntPair.of(20, 3)));
+        assertEquals(diffStyle, after.get(IntPair.of(3, 8)));
+        assertEquals(diffStyle, after.get(IntPair.of(20, 3)));
+        
+        // 余剰行は作成され、余剰行用のスタイルが適用されること
+        int redundantStyle = after.get(IntPair.of(10, -1));
+        assertEquals(redundantStyle, after.get(IntPair.of(11, -1)));
+        assertNotEquals(diffStyle, redundantStyle);
+        
+        // 差分の無いセルのスタイルは変わらないこと
+        assertEquals(before.get(IntPair.of(3, 4)), after.get(IntPair.of(3, 4)));
+        
+        // シート見出しに色が付くこと
+        assertArrayEquals(
+                new byte[] { 0x05, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, 0, (byte) 0xFF },
+                loadTabColor(dst, "xl/worksheets/sheet1.bin"));
+        assertArrayEquals(
+                new byte[] { 0x00, 0x40, 0, 0, 0, 0, 0, 0 },
+                loadTabColor(dst, "xl/worksheets/sheet2.bin"));
+    }
+    
+    @Test
+    void testPaintAndSave_余剰シート(@TempDir Path tempDir) throws ExcelHandlingException, IOException {
+        Path dst = tempDir.resolve("dst.xlsb");
+        
+        testee().paintAndSave(
+                test1_xlsb,
+                dst,
+                null,
+                Map.of("A1_ワークシート", Optional.empty()));
+        
+        assertArrayEquals(
+                new byte[] { 0x05, 0, 0, 0, (byte) 0xFF, 0, 0, (byte) 0xFF },
+                loadTabColor(dst, "xl/worksheets/sheet1.bin"));
+        
+        // 書き換えたワークシートのインデックスは削除されること
+        try (FileSystem fs = FileSystems.newFileSystem(dst)) {
+            assertFalse(Files.exists(fs.getPath("xl/worksheets/binaryIndex1.bin")));
+            assertFalse(Files.readString(fs.getPath("[Content_Types].xml")).contains("/xl/worksheets/binaryIndex1.bin"));
+        }
+        
+        assertEquals(
+                new CellsLoaderWithBiff12().loadCells(
+                        BookInfo.ofLoadCompleted(test1_xlsb, List.of()), null, "A1_ワークシート"),
+                new CellsLoaderWithBiff12().loadCells(
+                        BookInfo.ofLoadCompleted(dst, List.of()), null, "A1_ワークシート"));
+    }
+}